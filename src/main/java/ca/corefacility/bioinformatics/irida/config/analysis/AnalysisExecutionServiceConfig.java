@@ -1,11 +1,16 @@
 package ca.corefacility.bioinformatics.irida.config.analysis;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
@@ -105,6 +110,18 @@ public class AnalysisExecutionServiceConfig {
 	@Autowired
 	private List<AnalysisSampleUpdater> defaultAnalysisSampleUpdaters;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Value("${irida.workflow.analysis.transfer.download.threads:4}")
+	private int outputDownloadThreads;
+
+	@Value("${irida.workflow.analysis.transfer.staging.directory:${java.io.tmpdir}/irida-analysis-output}")
+	private Path outputStagingDirectory;
+
+	@Value("${irida.workflow.analysis.transfer.attempts:3}")
+	private int transferAttempts;
+
 	private List<AnalysisSampleUpdater> loadPluginAnalysisSampleUpdaters() {
 		List<AnalysisSampleUpdater> pluginUpdaters = Lists.newLinkedList();
 
@@ -143,7 +160,8 @@ public class AnalysisExecutionServiceConfig {
 	@Bean
 	public AnalysisExecutionServiceGalaxyAsync analysisExecutionServiceGalaxyAsync() {
 		return new AnalysisExecutionServiceGalaxyAsync(analysisSubmissionService, analysisService,
-				galaxyWorkflowService, analysisWorkspaceService(), iridaWorkflowsService, analysisSubmissionSampleProcessor());
+				galaxyWorkflowService, analysisWorkspaceService(), iridaWorkflowsService, analysisSubmissionSampleProcessor(),
+				eventPublisher);
 	}
 	
 	@Lazy
@@ -159,7 +177,20 @@ public class AnalysisExecutionServiceConfig {
 		return new AnalysisWorkspaceServiceGalaxy(galaxyHistoriesService, galaxyWorkflowService,
 				galaxyLibrariesService, iridaWorkflowsService, analysisCollectionServiceGalaxy(),
 				analysisProvenanceService(), analysisParameterServiceGalaxy,
-				sequencingObjectService);
+				sequencingObjectService, analysisOutputDownloadExecutor(), outputStagingDirectory, transferAttempts);
+	}
+
+	/**
+	 * Downloads the output files of finished analyses from Galaxy. Shared by
+	 * all analyses being transferred, so it limits how many files are
+	 * downloaded from Galaxy at once.
+	 * 
+	 * @return the executor for downloading output files
+	 */
+	@Lazy
+	@Bean(destroyMethod = "shutdown")
+	public ExecutorService analysisOutputDownloadExecutor() {
+		return Executors.newFixedThreadPool(outputDownloadThreads);
 	}
 
 	@Lazy
@@ -3,8 +3,10 @@ package ca.corefacility.bioinformatics.irida.config.analysis;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -30,6 +32,7 @@ import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyJobErro
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyLibrariesService;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyWorkflowService;
 
+import com.github.jmchilton.blend4j.galaxy.DefaultWebResourceFactoryImpl;
 import com.github.jmchilton.blend4j.galaxy.GalaxyInstance;
 import com.github.jmchilton.blend4j.galaxy.GalaxyInstanceFactory;
 import com.github.jmchilton.blend4j.galaxy.HistoriesClient;
@@ -40,6 +43,7 @@ import com.github.jmchilton.blend4j.galaxy.ToolsClient;
 import com.github.jmchilton.blend4j.galaxy.WorkflowsClient;
 import com.github.jmchilton.blend4j.galaxy.ToolDataClient;
 import com.google.common.collect.ImmutableMap;
+import com.sun.jersey.api.client.Client;
 
 /**
  * Configuration for connections to an ExecutionManager in IRIDA.
@@ -84,6 +88,26 @@ public class ExecutionManagerConfig {
 	@Value("${galaxy.library.upload.threads}")
 	private int libraryUploadThreads;
 
+	/**
+	 * How long in seconds the last status loaded for a Galaxy history is used
+	 * when reporting the progress of an analysis.
+	 */
+	@Value("${irida.workflow.monitor.status.max-age:30}")
+	private int historyStatusMaxAge;
+
+	/**
+	 * How long in seconds to wait to connect to Galaxy, or 0 to wait forever.
+	 */
+	@Value("${galaxy.client.connect.timeout:60}")
+	private int connectTimeout;
+
+	/**
+	 * How long in seconds to wait for Galaxy to answer a request, or 0 to wait
+	 * forever.
+	 */
+	@Value("${galaxy.client.read.timeout:600}")
+	private int readTimeout;
+
 	@Autowired
 	private Environment environment;
 
@@ -275,7 +299,8 @@ public class ExecutionManagerConfig {
 	@Lazy
 	@Bean
 	public GalaxyHistoriesService galaxyHistoriesService() throws ExecutionManagerConfigurationException {
-		return new GalaxyHistoriesService(historiesClient(), toolsClient(), galaxyLibrariesService());
+		return new GalaxyHistoriesService(historiesClient(), toolsClient(), galaxyLibrariesService(), galaxyInstance(),
+				Duration.ofSeconds(historyStatusMaxAge));
 	}
 
 	/**
@@ -331,6 +356,15 @@ public class ExecutionManagerConfig {
 	@Lazy
 	@Bean
 	public GalaxyInstance galaxyInstance() throws ExecutionManagerConfigurationException {
-		return GalaxyInstanceFactory.get(executionManager().getLocation().toString(), executionManager().getAPIKey());
+		return GalaxyInstanceFactory.get(new DefaultWebResourceFactoryImpl(executionManager().getLocation()
+				.toString(), executionManager().getAPIKey()) {
+			@Override
+			protected Client getJerseyClient() {
+				Client client = super.getJerseyClient();
+				client.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(connectTimeout));
+				client.setReadTimeout((int) TimeUnit.SECONDS.toMillis(readTimeout));
+				return client;
+			}
+		});
 	}
 }
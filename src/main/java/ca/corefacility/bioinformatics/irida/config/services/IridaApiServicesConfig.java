@@ -14,12 +14,15 @@ import ca.corefacility.bioinformatics.irida.plugins.IridaPlugin;
 import ca.corefacility.bioinformatics.irida.plugins.IridaPluginException;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessingChain;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
 import ca.corefacility.bioinformatics.irida.processing.impl.*;
 import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.QCEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionCleanupService;
 import ca.corefacility.bioinformatics.irida.service.TaxonomyService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisStageExecutor;
+import ca.corefacility.bioinformatics.irida.service.analysis.workspace.AnalysisWorkspaceService;
 import ca.corefacility.bioinformatics.irida.service.impl.InMemoryTaxonomyService;
 import ca.corefacility.bioinformatics.irida.service.impl.analysis.submission.AnalysisSubmissionCleanupServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.user.UserService;
@@ -97,6 +100,12 @@ public class IridaApiServicesConfig {
 	@Value("${file.processing.decompress.remove.compressed.file}")
 	private Boolean removeCompressedFiles;
 
+	@Value("${file.processing.streaming}")
+	private Boolean streamFileProcessing;
+
+	@Value("${file.processing.fastqc.native}")
+	private Boolean nativeFastqStatistics;
+
 	// the key + colon syntax allows default values. we use `false` here so we can conditionally show tags on the page with thymeleaf
 	@Value("${help.page.title:false}")
 	private String helpPageTitle;
@@ -119,11 +128,26 @@ public class IridaApiServicesConfig {
 	@Value("${file.processing.queue.capacity}")
 	private int fpQueueCapacity;
 
+	@Value("${file.processing.file.threads}")
+	private int fpFileThreads;
+
 	@Value("${irida.debug.nrepl.server.port:#{null}}")
 	private Integer nreplPort;
 
 	@Value("${irida.workflow.analysis.threads}")
 	private int analysisTaskThreads;
+
+	@Value("${irida.workflow.analysis.prepare.threads:${irida.workflow.analysis.threads}}")
+	private int analysisPrepareThreads;
+
+	@Value("${irida.workflow.analysis.execute.threads:${irida.workflow.analysis.threads}}")
+	private int analysisExecuteThreads;
+
+	@Value("${irida.workflow.analysis.transfer.threads:${irida.workflow.analysis.threads}}")
+	private int analysisTransferThreads;
+
+	@Value("${irida.workflow.analysis.post-process.threads:${irida.workflow.analysis.threads}}")
+	private int analysisPostProcessThreads;
 	@Value("${locales.enabled}")
 	private String availableLocales;
 	@Autowired
@@ -287,9 +311,16 @@ public class IridaApiServicesConfig {
 	public FileProcessingChain fileProcessorChain(SequencingObjectRepository sequencingObjectRepository,
 			QCEntryRepository qcRepository, GzipFileProcessor gzipFileProcessor,
 			FastqcFileProcessor fastQcFileProcessor, ChecksumFileProcessor checksumProcessor,
-			CoverageFileProcessor coverageProcessor, AutomatedAnalysisFileProcessor automatedAnalysisFileProcessor) {
+			CoverageFileProcessor coverageProcessor, AutomatedAnalysisFileProcessor automatedAnalysisFileProcessor,
+			SequenceFileTaskRunner fileTaskRunner) {
 
 		gzipFileProcessor.setRemoveCompressedFiles(removeCompressedFiles);
+		fastQcFileProcessor.setFileTaskRunner(fileTaskRunner);
+		if (nativeFastqStatistics) {
+			logger.info("FastQC statistics will be computed natively for fastq files [file.processing.fastqc.native=true]");
+			fastQcFileProcessor.setNativeStatistics(true);
+		}
+		checksumProcessor.setFileTaskRunner(fileTaskRunner);
 
 		final List<FileProcessor> fileProcessors = Lists.newArrayList(checksumProcessor, gzipFileProcessor,
 				fastQcFileProcessor, coverageProcessor, automatedAnalysisFileProcessor);
@@ -299,7 +330,34 @@ public class IridaApiServicesConfig {
 			fileProcessors.remove(gzipFileProcessor);
 		}
 
-		return new DefaultFileProcessingChain(sequencingObjectRepository, qcRepository, fileProcessors);
+		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(sequencingObjectRepository,
+				qcRepository, fileProcessors);
+
+		if (streamFileProcessing) {
+			logger.info("Files will be read once for all streaming file processors [file.processing.streaming=true]");
+			fileProcessingChain.setStreaming(true);
+		}
+		fileProcessingChain.setFileTaskRunner(fileTaskRunner);
+
+		return fileProcessingChain;
+	}
+
+	/**
+	 * Runner used by the file processors to handle the files in a sequencing object. With more than one thread,
+	 * the files in a pair are read at the same time on a pool shared by every file processing chain thread. The chain
+	 * threads wait on this pool, so it bounds the number of files being read at once regardless of
+	 * <code>file.processing.core.size</code>.
+	 *
+	 * @return the {@link SequenceFileTaskRunner}
+	 */
+	@Bean
+	public SequenceFileTaskRunner fileTaskRunner() {
+		if (fpFileThreads > 1) {
+			logger.info("Files in a sequencing object will be processed concurrently with up to " + fpFileThreads
+					+ " threads shared by " + fpCoreSize + " file processing threads [file.processing.file.threads="
+					+ fpFileThreads + "]");
+		}
+		return new SequenceFileTaskRunner(fpFileThreads);
 	}
 
 	@Bean(name = "fileProcessingChainExecutor")
@@ -345,13 +403,67 @@ public class IridaApiServicesConfig {
 		return new DelegatingSecurityContextExecutorService(delegateExecutor, schedulerContext);
 	}
 
+	/**
+	 * Builds a new {@link AnalysisStageExecutor} for preparing analysis submissions.
+	 *
+	 * @param userService a reference to the user service.
+	 * @return An {@link AnalysisStageExecutor} for preparing analysis submissions.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@DependsOn("springLiquibase")
+	public AnalysisStageExecutor analysisPrepareExecutor(UserService userService) {
+		return analysisStageExecutor("prepare", analysisPrepareThreads, userService);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisStageExecutor} for submitting analyses to Galaxy.
+	 *
+	 * @param userService a reference to the user service.
+	 * @return An {@link AnalysisStageExecutor} for submitting analyses to Galaxy.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@DependsOn("springLiquibase")
+	public AnalysisStageExecutor analysisExecuteExecutor(UserService userService) {
+		return analysisStageExecutor("execute", analysisExecuteThreads, userService);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisStageExecutor} for transferring analysis results.
+	 *
+	 * @param userService a reference to the user service.
+	 * @return An {@link AnalysisStageExecutor} for transferring analysis results.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@DependsOn("springLiquibase")
+	public AnalysisStageExecutor analysisTransferExecutor(UserService userService) {
+		return analysisStageExecutor("transfer", analysisTransferThreads, userService);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisStageExecutor} for post-processing analysis results.
+	 *
+	 * @param userService a reference to the user service.
+	 * @return An {@link AnalysisStageExecutor} for post-processing analysis results.
+	 */
+	@Bean(destroyMethod = "shutdown")
+	@DependsOn("springLiquibase")
+	public AnalysisStageExecutor analysisPostProcessExecutor(UserService userService) {
+		return analysisStageExecutor("post-process", analysisPostProcessThreads, userService);
+	}
+
+	private AnalysisStageExecutor analysisStageExecutor(String stage, int threads, UserService userService) {
+		logger.info("Creating thread pool for analysis stage " + stage + " with " + threads + " threads");
+		return new AnalysisStageExecutor(stage, threads, createAnalysisTaskSecurityContext(userService));
+	}
+
 	@Bean
 	@DependsOn("springLiquibase")
 	@Profile({ "prod", "analysis" })
 	public AnalysisSubmissionCleanupService analysisSubmissionCleanupService(
-			AnalysisSubmissionRepository analysisSubmissionRepository, UserService userService) {
+			AnalysisSubmissionRepository analysisSubmissionRepository, UserService userService,
+			@Lazy AnalysisWorkspaceService analysisWorkspaceService) {
 		AnalysisSubmissionCleanupService analysisSubmissionCleanupService = new AnalysisSubmissionCleanupServiceImpl(
-				analysisSubmissionRepository);
+				analysisSubmissionRepository, analysisWorkspaceService);
 		SecurityContext adminContext = createAnalysisTaskSecurityContext(userService);
 
 		// Run method to clean up previous analysis submissions in inconsistent
@@ -6,6 +6,7 @@ import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.Job
 import ca.corefacility.bioinformatics.irida.service.AnalysisExecutionScheduledTask;
 import ca.corefacility.bioinformatics.irida.service.CleanupAnalysisSubmissionCondition;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisExecutionService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisSubmissionQueue;
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.AnalysisWorkspaceService;
 import ca.corefacility.bioinformatics.irida.service.impl.AnalysisExecutionScheduledTaskImpl;
 import ca.corefacility.bioinformatics.irida.service.impl.analysis.submission.CleanupAnalysisSubmissionConditionAge;
@@ -19,8 +20,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -50,17 +55,46 @@ public class AnalysisScheduledTaskConfig {
 	@Autowired
 	private AnalysisWorkspaceService analysisWorkspaceService;
 
+	@Autowired
+	private AnalysisSubmissionQueue analysisSubmissionQueue;
+
 	/**
 	 * Defines the time to clean up in number of days a submission must exist before it is cleaned up.
 	 */
 	@Value("${irida.analysis.cleanup.days}")
 	private Double daysToCleanup;
 
+	/**
+	 * The number of concurrent requests to Galaxy when checking the state of running analyses.
+	 */
+	@Value("${irida.workflow.monitor.threads:4}")
+	private int monitorThreads;
+
+	/**
+	 * How long (in seconds) a monitoring cycle waits for Galaxy to return the state of an analysis.
+	 */
+	@Value("${irida.workflow.monitor.timeout:60}")
+	private long monitorTimeout;
+
+	/**
+	 * The maximum number of monitoring cycles to skip for an analysis whose state hasn't changed.
+	 */
+	@Value("${irida.workflow.monitor.max-backoff:8}")
+	private int monitorMaxBackoff;
+
+	private ExecutorService monitorStatusExecutor;
+	private ExecutorService monitorTransitionExecutor;
+
 	/**
 	 * Rate in milliseconds of the analysis execution tasks.
 	 */
 	private static final long ANALYSIS_EXECUTION_TASK_RATE = 15000; // 15 seconds
 
+	/**
+	 * Rate in milliseconds of the recovery checks for stages which are started as soon as the previous stage finishes.
+	 */
+	private static final String ANALYSIS_RECOVERY_TASK_RATE = "${irida.workflow.analysis.recovery.delay:60000}";
+
 	/**
 	 * Rate in milliseconds of the cleanup task.
 	 */
@@ -75,9 +109,10 @@ public class AnalysisScheduledTaskConfig {
 	}
 
 	/**
-	 * Cycle through any outstanding submissions and execute them.
+	 * Cycle through any outstanding submissions and execute them. Prepared submissions are normally executed as soon
+	 * as they're prepared, so this only picks up submissions that were missed.
 	 */
-	@Scheduled(initialDelay = 3000, fixedDelay = ANALYSIS_EXECUTION_TASK_RATE)
+	@Scheduled(initialDelay = 3000, fixedDelayString = ANALYSIS_RECOVERY_TASK_RATE)
 	public void executeAnalyses() {
 		analysisExecutionScheduledTask().executeAnalyses();
 	}
@@ -91,17 +126,19 @@ public class AnalysisScheduledTaskConfig {
 	}
 
 	/**
-	 * Cycle through any completed submissions and transfer the results.
+	 * Cycle through any completed submissions and transfer the results. Results are normally transferred as soon as
+	 * the submission finishes running, so this only picks up submissions that were missed.
 	 */
-	@Scheduled(initialDelay = 5000, fixedDelay = ANALYSIS_EXECUTION_TASK_RATE)
+	@Scheduled(initialDelay = 5000, fixedDelayString = ANALYSIS_RECOVERY_TASK_RATE)
 	public void transferAnalysesResults() {
 		analysisExecutionScheduledTask().transferAnalysesResults();
 	}
 
 	/**
-	 * Cycle through any transferred submissions and perform post-processing
+	 * Cycle through any transferred submissions and perform post-processing. Submissions are normally post-processed
+	 * as soon as their results are transferred, so this only picks up submissions that were missed.
 	 */
-	@Scheduled(initialDelay = 6000, fixedDelay = ANALYSIS_EXECUTION_TASK_RATE)
+	@Scheduled(initialDelay = 6000, fixedDelayString = ANALYSIS_RECOVERY_TASK_RATE)
 	public void postProcessResults() {
 		analysisExecutionScheduledTask().postProcessResults();
 	}
@@ -123,9 +160,30 @@ public class AnalysisScheduledTaskConfig {
 	@DependsOn("analysisSubmissionCleanupService")
 	@Bean
 	public AnalysisExecutionScheduledTask analysisExecutionScheduledTask() {
+		logger.info("Monitoring running analyses with " + monitorThreads + " threads, timeout=" + monitorTimeout
+				+ "s, max-backoff=" + monitorMaxBackoff);
+		// the scheduled task's security context is passed on to the tasks run by these executors
+		monitorStatusExecutor = new DelegatingSecurityContextExecutorService(
+				Executors.newFixedThreadPool(monitorThreads));
+		monitorTransitionExecutor = new DelegatingSecurityContextExecutorService(
+				Executors.newFixedThreadPool(monitorThreads));
+
 		return new AnalysisExecutionScheduledTaskImpl(analysisSubmissionRepository, analysisExecutionService,
 				cleanupAnalysisSubmissionCondition(), galaxyJobErrorsService, jobErrorRepository, emailController,
-				analysisWorkspaceService);
+				analysisWorkspaceService, monitorStatusExecutor, monitorTransitionExecutor, monitorTimeout,
+				monitorMaxBackoff, analysisSubmissionQueue);
+	}
+
+	/**
+	 * Stops the threads used to monitor running analyses.
+	 */
+	@PreDestroy
+	public void shutdownMonitorExecutors() {
+		if (monitorStatusExecutor != null) {
+			// outstanding state requests can be dropped, but let state changes finish saving
+			monitorStatusExecutor.shutdownNow();
+			monitorTransitionExecutor.shutdown();
+		}
 	}
 
 	/**
@@ -1,13 +1,20 @@
 package ca.corefacility.bioinformatics.irida.config.services.scheduled;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ca.corefacility.bioinformatics.irida.events.SequencingObjectCreatedEvent;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectProcessingService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 /**
  * Scheduled task configuration for running file processors
@@ -20,13 +27,21 @@ public class FileProcessingScheduledTaskConfig {
 	@Autowired
 	private SequencingObjectProcessingService fileProcessingService;
 
+	@Autowired
+	@Qualifier("scheduledTaskExecutor")
+	private Executor taskExecutor;
+
 	@Value("${file.processing.process}")
 	private boolean processFiles;
 
+	// whether a processing run has been requested but hasn't started yet
+	private final AtomicBoolean runPending = new AtomicBoolean(false);
+
 	/**
-	 * Check for newly uploaded files to process
+	 * Check for newly uploaded files to process. New files uploaded to this server are normally processed as soon as
+	 * they're created, so this only needs to pick up files that were missed, like those uploaded to another server.
 	 */
-	@Scheduled(fixedDelay = 5000)
+	@Scheduled(fixedDelayString = "${file.processing.poll.delay}")
 	public void processFiles() {
 		if (processFiles) {
 			fileProcessingService.runProcessingJob();
@@ -34,4 +49,26 @@ public class FileProcessingScheduledTaskConfig {
 			logger.trace("Skipping file processing.  It is disabled on this server.");
 		}
 	}
+
+	/**
+	 * Start processing a newly created file as soon as the transaction that created it commits.
+	 *
+	 * @param event the event for the created file
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void sequencingObjectCreated(SequencingObjectCreatedEvent event) {
+		if (!processFiles) {
+			return;
+		}
+
+		fileProcessingService.enqueue(event.getSequencingObjectId());
+
+		// a burst of uploads only needs one run to claim them
+		if (runPending.compareAndSet(false, true)) {
+			taskExecutor.execute(() -> {
+				runPending.set(false);
+				fileProcessingService.runProcessingJob();
+			});
+		}
+	}
 }
@@ -17,7 +17,7 @@ import java.util.concurrent.Executor;
 @EnableScheduling
 @Import({ ExecutorConfig.class, AnalysisScheduledTaskConfig.class, EmailScheduledTaskConfig.class,
 		FileProcessingScheduledTaskConfig.class, NcbiUploadScheduledTaskConfig.class,
-		ProjectSyncScheduledTaskConfig.class })
+		ProjectSyncScheduledTaskConfig.class, UploadCleanupScheduledTaskConfig.class })
 public class IridaScheduledTasksConfig implements SchedulingConfigurer {
 
 	@Autowired
@@ -0,0 +1,52 @@
+package ca.corefacility.bioinformatics.irida.config.services.scheduled;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import ca.corefacility.bioinformatics.irida.service.SequenceFileUploadService;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
+
+/**
+ * Scheduled task configuration for removing resumable uploads that were never
+ * completed, and sample metadata uploads that were never saved
+ */
+@Profile({ "dev", "prod", "web" })
+@Configuration
+public class UploadCleanupScheduledTaskConfig {
+	private static final Logger logger = LoggerFactory.getLogger(UploadCleanupScheduledTaskConfig.class);
+
+	@Autowired
+	private SequenceFileUploadService uploadService;
+
+	@Autowired
+	private MetadataUploadService metadataUploadService;
+
+	// rate in MS of the upload cleanup task
+	private static final long UPLOAD_CLEANUP_TASK_RATE = 3600000; // 1 hour
+
+	/**
+	 * Remove expired uploads
+	 */
+	@Scheduled(initialDelay = UPLOAD_CLEANUP_TASK_RATE, fixedDelay = UPLOAD_CLEANUP_TASK_RATE)
+	public void removeExpiredUploads() {
+		int removed = uploadService.removeExpiredSessions();
+		if (removed > 0) {
+			logger.info("Removed " + removed + " expired uploads");
+		}
+	}
+
+	/**
+	 * Remove expired sample metadata uploads
+	 */
+	@Scheduled(initialDelay = UPLOAD_CLEANUP_TASK_RATE, fixedDelay = UPLOAD_CLEANUP_TASK_RATE)
+	public void removeExpiredMetadataUploads() {
+		int removed = metadataUploadService.removeExpiredUploads();
+		if (removed > 0) {
+			logger.info("Removed " + removed + " expired sample metadata uploads");
+		}
+	}
+}
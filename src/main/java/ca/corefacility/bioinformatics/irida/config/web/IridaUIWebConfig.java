@@ -14,9 +14,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.LocaleResolver;
@@ -218,6 +220,67 @@ public class IridaUIWebConfig implements WebMvcConfigurer, ApplicationContextAwa
 		return viewResolver;
 	}
 
+	/**
+	 * @param threads the number of threads from <code>file.download.deflate.threads</code>
+	 * @return the executor that deflates blocks of large files in parallel for zip downloads. It isn't created when
+	 * <code>file.download.deflate.threads</code> is 0, and files are then deflated on the request thread.
+	 */
+	@Bean(name = "zipDeflateExecutor")
+	@ConditionalOnExpression("${file.download.deflate.threads:2} > 0")
+	public ThreadPoolTaskExecutor zipDeflateExecutor(@Value("${file.download.deflate.threads:2}") int threads) {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(threads);
+		taskExecutor.setMaxPoolSize(threads);
+		taskExecutor.setThreadNamePrefix("zip-deflate-");
+		taskExecutor.setThreadPriority(Thread.MIN_PRIORITY);
+		return taskExecutor;
+	}
+
+	/**
+	 * @param threads the number of single sample pipeline launches that can create their analyses at once
+	 * @return the executor that creates the analyses for single sample pipeline launches in the background
+	 */
+	@Bean(name = "pipelineLaunchExecutor")
+	public ThreadPoolTaskExecutor pipelineLaunchExecutor(@Value("${irida.analysis.launch.threads:2}") int threads) {
+		return backgroundJobExecutor("pipeline-launch-", threads);
+	}
+
+	/**
+	 * @param threads the number of sample metadata uploads that can be saved at once
+	 * @return the executor that saves uploaded sample metadata in the background
+	 */
+	@Bean(name = "metadataImportExecutor")
+	public ThreadPoolTaskExecutor metadataImportExecutor(@Value("${irida.metadata.import.threads:2}") int threads) {
+		return backgroundJobExecutor("metadata-import-", threads);
+	}
+
+	/**
+	 * @return the executor that reads analyses reported by the analysis monitor for the progress pushed to the
+	 * browser. It has a single thread so that reads for the same analysis happen in the order they were reported.
+	 */
+	@Bean(name = "analysisProgressRefreshExecutor")
+	public ThreadPoolTaskExecutor analysisProgressRefreshExecutor() {
+		return backgroundJobExecutor("analysis-progress-refresh-", 1);
+	}
+
+	/**
+	 * @param threads the number of threads sending analysis progress events to browsers
+	 * @return the executor that sends analysis progress events to the open connections
+	 */
+	@Bean(name = "analysisProgressSendExecutor")
+	public ThreadPoolTaskExecutor analysisProgressSendExecutor(
+			@Value("${irida.analysis.progress.push.threads:4}") int threads) {
+		return backgroundJobExecutor("analysis-progress-send-", threads);
+	}
+
+	private ThreadPoolTaskExecutor backgroundJobExecutor(String threadNamePrefix, int threads) {
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(Math.max(1, threads));
+		taskExecutor.setMaxPoolSize(Math.max(1, threads));
+		taskExecutor.setThreadNamePrefix(threadNamePrefix);
+		return taskExecutor;
+	}
+
 	@Override
 	public void addInterceptors(InterceptorRegistry registry) {
 		logger.debug("Adding Interceptors to the Registry");
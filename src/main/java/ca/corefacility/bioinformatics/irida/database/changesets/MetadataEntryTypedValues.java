@@ -0,0 +1,116 @@
+package ca.corefacility.bioinformatics.irida.database.changesets;
+
+import ca.corefacility.bioinformatics.irida.config.data.IridaApiJdbcDataSourceConfig;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
+import liquibase.change.custom.CustomSqlChange;
+import liquibase.database.Database;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import liquibase.statement.SqlStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Liquibase update to fill the numeric and date columns of existing metadata entries.  The values are read with the same
+ * rules as {@link MetadataEntry} so that existing and new entries search and sort the same way.
+ */
+public class MetadataEntryTypedValues implements CustomSqlChange {
+	private static final Logger logger = LoggerFactory.getLogger(MetadataEntryTypedValues.class);
+	private static final int PAGE_SIZE = 1000;
+
+	private DataSource dataSource;
+
+	@Override
+	public SqlStatement[] generateStatements(Database database) throws CustomChangeException {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+		long lastId = 0;
+		int updated = 0;
+		List<Entry> entries;
+		do {
+			// page through the entries by id so the values are never all in memory at once
+			entries = jdbcTemplate.query("SELECT id, value FROM metadata_entry WHERE id > ? ORDER BY id LIMIT ?",
+					(rs, rowNum) -> new Entry(rs.getLong(1), rs.getString(2)), lastId, PAGE_SIZE);
+
+			List<Object[]> updates = new ArrayList<>();
+			for (Entry entry : entries) {
+				Double numericValue = MetadataEntry.parseNumber(entry.value);
+				Date dateValue = MetadataEntry.parseDate(entry.value);
+				if (numericValue != null || dateValue != null) {
+					updates.add(new Object[] { numericValue,
+							dateValue == null ? null : new Timestamp(dateValue.getTime()), entry.id });
+				}
+				lastId = entry.id;
+			}
+
+			if (!updates.isEmpty()) {
+				jdbcTemplate.batchUpdate("UPDATE metadata_entry SET numeric_value=?, date_value=? WHERE id=?",
+						updates);
+				updated += updates.size();
+			}
+		} while (entries.size() == PAGE_SIZE);
+
+		logger.info("Set typed values for " + updated + " metadata entries");
+
+		return new SqlStatement[0];
+	}
+
+	@Override
+	public String getConfirmationMessage() {
+		return "Set numeric and date values for existing metadata entries";
+	}
+
+	@Override
+	public void setUp() throws SetupException {
+		logger.info("Setting numeric and date values for existing metadata entries");
+	}
+
+	@Override
+	public void setFileOpener(ResourceAccessor resourceAccessor) {
+		logger.info("The resource accessor is of type [" + resourceAccessor.getClass() + "]");
+		final ApplicationContext applicationContext;
+		if (resourceAccessor instanceof IridaApiJdbcDataSourceConfig.ApplicationContextAwareSpringLiquibase.ApplicationContextSpringResourceOpener) {
+			applicationContext = ((IridaApiJdbcDataSourceConfig.ApplicationContextAwareSpringLiquibase.ApplicationContextSpringResourceOpener) resourceAccessor).getApplicationContext();
+		} else {
+			applicationContext = null;
+		}
+
+		if (applicationContext != null) {
+			logger.info("We're running inside of a spring instance, getting the existing application context.");
+			this.dataSource = applicationContext.getBean(DataSource.class);
+		} else {
+			logger.error(
+					"This changeset *must* be run from a servlet container as it requires access to Spring's application context.");
+			throw new IllegalStateException(
+					"This changeset *must* be run from a servlet container as it requires access to Spring's application context.");
+		}
+	}
+
+	@Override
+	public ValidationErrors validate(Database database) {
+		return null;
+	}
+
+	/**
+	 * Private class to store the id and value of an entry
+	 */
+	private static class Entry {
+		long id;
+		String value;
+
+		Entry(long id, String value) {
+			this.id = id;
+			this.value = value;
+		}
+	}
+}
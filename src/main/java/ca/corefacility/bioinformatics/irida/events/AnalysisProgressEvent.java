@@ -0,0 +1,44 @@
+package ca.corefacility.bioinformatics.irida.events;
+
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+
+/**
+ * Published by the analysis monitor when it finds that an
+ * {@link AnalysisSubmission} has made progress, either because more of its
+ * workflow has finished in Galaxy or because its state changed, so that
+ * anyone watching the submission can be told straight away.
+ */
+public class AnalysisProgressEvent {
+	private final Long submissionId;
+	private final AnalysisState analysisState;
+
+	/**
+	 * Create an event for a submission that has made progress
+	 *
+	 * @param submissionId  the id of the {@link AnalysisSubmission}
+	 * @param analysisState the state of the submission
+	 */
+	public AnalysisProgressEvent(Long submissionId, AnalysisState analysisState) {
+		this.submissionId = submissionId;
+		this.analysisState = analysisState;
+	}
+
+	/**
+	 * Get the id of the {@link AnalysisSubmission} that made progress
+	 *
+	 * @return the submission id
+	 */
+	public Long getSubmissionId() {
+		return submissionId;
+	}
+
+	/**
+	 * Get the state of the {@link AnalysisSubmission}
+	 *
+	 * @return the state of the submission
+	 */
+	public AnalysisState getAnalysisState() {
+		return analysisState;
+	}
+}
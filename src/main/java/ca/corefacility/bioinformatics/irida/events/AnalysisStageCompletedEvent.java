@@ -0,0 +1,45 @@
+package ca.corefacility.bioinformatics.irida.events;
+
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+
+/**
+ * Published when an {@link AnalysisSubmission} finishes a stage of execution
+ * (preparing, executing, transferring results or post-processing) so that it
+ * can be passed to the next stage without waiting for the next scheduled
+ * check. Listeners should handle the event after the changing transaction
+ * commits.
+ */
+public class AnalysisStageCompletedEvent {
+	private final Long submissionId;
+	private final AnalysisState analysisState;
+
+	/**
+	 * Create an event for a submission that finished a stage
+	 *
+	 * @param submissionId  the id of the {@link AnalysisSubmission}
+	 * @param analysisState the state the submission was left in
+	 */
+	public AnalysisStageCompletedEvent(Long submissionId, AnalysisState analysisState) {
+		this.submissionId = submissionId;
+		this.analysisState = analysisState;
+	}
+
+	/**
+	 * Get the id of the {@link AnalysisSubmission} that finished a stage
+	 *
+	 * @return the submission id
+	 */
+	public Long getSubmissionId() {
+		return submissionId;
+	}
+
+	/**
+	 * Get the state the {@link AnalysisSubmission} was left in
+	 *
+	 * @return the state of the submission
+	 */
+	public AnalysisState getAnalysisState() {
+		return analysisState;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 
 import ca.corefacility.bioinformatics.irida.events.annotations.LaunchesProjectEvent;
 import ca.corefacility.bioinformatics.irida.model.enums.UserGroupRemovedProjectEvent;
@@ -35,14 +36,16 @@ public class ProjectEventHandler {
 	private final ProjectSampleJoinRepository psjRepository;
 	private final ProjectRepository projectRepository;
 	private final SampleRepository sampleRepository;
+	private final ApplicationEventPublisher eventPublisher;
 
 	public ProjectEventHandler(final ProjectEventRepository eventRepository,
 			final ProjectSampleJoinRepository psjRepository, final ProjectRepository projectRepository,
-			final SampleRepository sampleRepository) {
+			final SampleRepository sampleRepository, final ApplicationEventPublisher eventPublisher) {
 		this.eventRepository = eventRepository;
 		this.psjRepository = psjRepository;
 		this.projectRepository = projectRepository;
 		this.sampleRepository = sampleRepository;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -148,6 +151,7 @@ public class ProjectEventHandler {
 			throw new IllegalArgumentException(
 					"Project or user cannot be found on method annotated with @LaunchesProjectEvent(UserRemovedProjectEvent.class)");
 		}
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forUser(user.getUsername()));
 		return eventRepository.save(new UserRemovedProjectEvent(project, user));
 	}
 
@@ -163,6 +167,7 @@ public class ProjectEventHandler {
 			throw new IllegalArgumentException(
 					"Project or user group cannot be found on method annotated with @LaunchesProjectEvent(UserGroupRemovedProjectEvent.class)");
 		}
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forAllUsers());
 		return eventRepository.save(new UserGroupRemovedProjectEvent((Project) project.get(), (UserGroup) user.get()));
 	}
 
@@ -178,6 +183,7 @@ public class ProjectEventHandler {
 					"Method annotated with @LaunchesProjectEvent(UserRoleSetProjectEvent.class) method must return ProjectUserJoin");
 		}
 		ProjectUserJoin join = (ProjectUserJoin) returnValue;
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forUser(join.getObject().getUsername()));
 		return eventRepository.save(new UserRoleSetProjectEvent(join));
 
 	}
@@ -194,6 +200,7 @@ public class ProjectEventHandler {
 					"Method annotated with @LaunchesProjectEvent(UserGroupRoleSetProjectEvent.class) method must return UserGroupProjectJoin");
 		}
 		UserGroupProjectJoin join = (UserGroupProjectJoin) returnValue;
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forAllUsers());
 		return eventRepository.save(new UserGroupRoleSetProjectEvent(join));
 
 	}
@@ -0,0 +1,47 @@
+package ca.corefacility.bioinformatics.irida.events;
+
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.user.User;
+
+/**
+ * Published when the {@link Project}s a {@link User} can read may have
+ * changed, either because the user was added to or removed from a project, or
+ * because a group they belong to was. Listeners should handle the event after
+ * the changing transaction commits.
+ */
+public class ProjectMembershipChangedEvent {
+	private final String username;
+
+	private ProjectMembershipChangedEvent(String username) {
+		this.username = username;
+	}
+
+	/**
+	 * Create an event for a change that affects a single {@link User}
+	 *
+	 * @param username the name of the user whose projects changed
+	 * @return the event
+	 */
+	public static ProjectMembershipChangedEvent forUser(String username) {
+		return new ProjectMembershipChangedEvent(username);
+	}
+
+	/**
+	 * Create an event for a change that may affect any {@link User}, such as a
+	 * group being added to or removed from a project
+	 *
+	 * @return the event
+	 */
+	public static ProjectMembershipChangedEvent forAllUsers() {
+		return new ProjectMembershipChangedEvent(null);
+	}
+
+	/**
+	 * Get the name of the {@link User} whose projects changed
+	 *
+	 * @return the name of the user, or null if the change may affect any user
+	 */
+	public String getUsername() {
+		return username;
+	}
+}
@@ -0,0 +1,85 @@
+package ca.corefacility.bioinformatics.irida.events;
+
+import java.util.Map;
+
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+
+/**
+ * Published when the {@link MetadataTemplateField}s used by the {@link Sample}s of a {@link Project}, or the
+ * restrictions on them, may have changed. The change is either the fields each sample gained (positive) or lost
+ * (negative) a value for, or a change that can only be handled by reading the fields of the project again. Listeners
+ * should handle the event after the changing transaction commits.
+ */
+public class ProjectMetadataFieldsChangedEvent {
+	private final Long projectId;
+	private final Map<Long, Map<Long, Integer>> sampleFieldChanges;
+	private final long createdAt = System.nanoTime();
+
+	private ProjectMetadataFieldsChangedEvent(Long projectId, Map<Long, Map<Long, Integer>> sampleFieldChanges) {
+		this.projectId = projectId;
+		this.sampleFieldChanges = sampleFieldChanges;
+	}
+
+	/**
+	 * Create an event for metadata written to {@link Sample}s, which affects every {@link Project} the samples are in
+	 *
+	 * @param sampleFieldChanges the change in values of each field, keyed by sample id then field id
+	 * @return the event
+	 */
+	public static ProjectMetadataFieldsChangedEvent forSamples(Map<Long, Map<Long, Integer>> sampleFieldChanges) {
+		return new ProjectMetadataFieldsChangedEvent(null, sampleFieldChanges);
+	}
+
+	/**
+	 * Create an event for {@link Sample}s being added to or removed from a single {@link Project}
+	 *
+	 * @param projectId          the id of the project
+	 * @param sampleFieldChanges the change in values of each field, keyed by sample id then field id
+	 * @return the event
+	 */
+	public static ProjectMetadataFieldsChangedEvent forSamplesInProject(Long projectId,
+			Map<Long, Map<Long, Integer>> sampleFieldChanges) {
+		return new ProjectMetadataFieldsChangedEvent(projectId, sampleFieldChanges);
+	}
+
+	/**
+	 * Create an event for a change to a {@link Project} that can't be described field by field, such as a change to
+	 * the restriction on a field
+	 *
+	 * @param projectId the id of the project
+	 * @return the event
+	 */
+	public static ProjectMetadataFieldsChangedEvent forProject(Long projectId) {
+		return new ProjectMetadataFieldsChangedEvent(projectId, null);
+	}
+
+	/**
+	 * Get the id of the {@link Project} that changed
+	 *
+	 * @return the id of the project, or null if the change affects every project the samples are in
+	 */
+	public Long getProjectId() {
+		return projectId;
+	}
+
+	/**
+	 * Get the change in values of each field for each {@link Sample}
+	 *
+	 * @return the changes keyed by sample id then field id, or null if the fields of the project must be read again
+	 */
+	public Map<Long, Map<Long, Integer>> getSampleFieldChanges() {
+		return sampleFieldChanges;
+	}
+
+	/**
+	 * Get when the event was created, from {@link System#nanoTime()}. The event is always created before the change
+	 * is committed.
+	 *
+	 * @return the time the event was created
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+}
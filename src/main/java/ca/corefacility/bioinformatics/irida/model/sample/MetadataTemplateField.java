@@ -45,6 +45,10 @@ public class MetadataTemplateField {
 		return id;
 	}
 
+	public void setId(Long id) {
+		this.id = id;
+	}
+
 	public String getLabel() {
 		return label;
 	}
@@ -1,11 +1,17 @@
 package ca.corefacility.bioinformatics.irida.model.sample.metadata;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
 import java.util.Objects;
+import java.util.regex.Pattern;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
@@ -16,13 +22,16 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Class for storing generic metadata for a {@link Sample}
+ * Class for storing generic metadata for a {@link Sample}.  Values that can be read as a number or as an ISO-8601 date
+ * (yyyy-MM-dd) are also stored in typed columns so that range searches and sorts on a field can use an index.
  */
 @Entity
 @Audited
 @Table(name = "metadata_entry")
 @Inheritance(strategy = InheritanceType.JOINED)
 public class MetadataEntry {
+	private static final Pattern NUMBER = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+	private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
 
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -35,6 +44,15 @@ public class MetadataEntry {
 	@NotNull
 	private String type;
 
+	@NotAudited
+	@Column(name = "numeric_value")
+	private Double numericValue;
+
+	@NotAudited
+	@Temporal(TemporalType.DATE)
+	@Column(name = "date_value")
+	private Date dateValue;
+
 	@ManyToOne(fetch = FetchType.EAGER, cascade = CascadeType.DETACH)
 	@JoinColumn(name = "field_id", nullable = false)
 	private MetadataTemplateField field;
@@ -47,7 +65,7 @@ public class MetadataEntry {
 	}
 
 	public MetadataEntry(String value, String type) {
-		this.value = value;
+		setValue(value);
 		this.type = type;
 	}
 
@@ -62,6 +80,8 @@ public class MetadataEntry {
 
 	public void setValue(String value) {
 		this.value = value;
+		this.numericValue = parseNumber(value);
+		this.dateValue = parseDate(value);
 	}
 
 	public void setId(Long id) {
@@ -81,6 +101,57 @@ public class MetadataEntry {
 		return value;
 	}
 
+	/**
+	 * Get the value of the entry as a number
+	 *
+	 * @return the numeric value, or null if the value is not a number
+	 */
+	@JsonIgnore
+	public Double getNumericValue() {
+		return numericValue;
+	}
+
+	/**
+	 * Get the value of the entry as a date
+	 *
+	 * @return the date value, or null if the value is not a yyyy-MM-dd date
+	 */
+	@JsonIgnore
+	public Date getDateValue() {
+		return dateValue;
+	}
+
+	/**
+	 * Read a metadata value as a number
+	 *
+	 * @param value the metadata value
+	 * @return the number, or null if the value is not a finite decimal number
+	 */
+	public static Double parseNumber(String value) {
+		if (value == null || !NUMBER.matcher(value.trim()).matches()) {
+			return null;
+		}
+		double number = Double.parseDouble(value.trim());
+		return Double.isFinite(number) ? number : null;
+	}
+
+	/**
+	 * Read a metadata value as a date
+	 *
+	 * @param value the metadata value
+	 * @return the start of the day in the server time zone, or null if the value is not a valid yyyy-MM-dd date
+	 */
+	public static Date parseDate(String value) {
+		if (value == null || !DATE.matcher(value.trim()).matches()) {
+			return null;
+		}
+		try {
+			return Date.from(LocalDate.parse(value.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+		} catch (DateTimeParseException e) {
+			return null;
+		}
+	}
+
 	/**
 	 * Merges the passed metadata entry into this metadata entry.
 	 *
@@ -92,7 +163,7 @@ public class MetadataEntry {
 				.equals(metadataEntry.getClass()), "Cannot merge " + metadataEntry + " into " + this);
 
 		this.type = metadataEntry.getType();
-		this.value = metadataEntry.getValue();
+		setValue(metadataEntry.getValue());
 	}
 
 	@Override
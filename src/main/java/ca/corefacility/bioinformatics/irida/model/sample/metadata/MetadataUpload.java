@@ -0,0 +1,105 @@
+package ca.corefacility.bioinformatics.irida.model.sample.metadata;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Sample metadata uploaded from a spreadsheet, waiting to be reviewed and
+ * saved to a project. The rows are stored on disk next to the upload in
+ * groups, with the values of each column kept together, so that only a page
+ * of rows or a single column has to be read at a time.
+ */
+public class MetadataUpload {
+	private String id;
+	private Long projectId;
+	private String owner;
+	private Date createdDate;
+	private List<String> headers;
+	private String sampleNameColumn;
+	private int invalidSampleNames;
+	private int rowCount;
+
+	// [file offset, first row, number of rows] of each group of rows
+	private List<long[]> groups = new ArrayList<>();
+
+	public MetadataUpload() {
+	}
+
+	public MetadataUpload(String id, Long projectId, String owner, List<String> headers) {
+		this.id = id;
+		this.projectId = projectId;
+		this.owner = owner;
+		this.headers = headers;
+		this.createdDate = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Long getProjectId() {
+		return projectId;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public Date getCreatedDate() {
+		return createdDate;
+	}
+
+	public List<String> getHeaders() {
+		return headers;
+	}
+
+	public String getSampleNameColumn() {
+		return sampleNameColumn;
+	}
+
+	public void setSampleNameColumn(String sampleNameColumn) {
+		this.sampleNameColumn = sampleNameColumn;
+	}
+
+	/**
+	 * Get the number of rows whose sample name can't be used to create a
+	 * sample
+	 *
+	 * @return the number of rows with an invalid sample name
+	 */
+	public int getInvalidSampleNames() {
+		return invalidSampleNames;
+	}
+
+	public void setInvalidSampleNames(int invalidSampleNames) {
+		this.invalidSampleNames = invalidSampleNames;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Get the groups of rows that have been stored
+	 *
+	 * @return <code>[file offset, first row, number of rows]</code> of each
+	 *         group, in the order the rows were uploaded
+	 */
+	public List<long[]> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * Record that a group of rows was stored
+	 *
+	 * @param offset
+	 *            where the group starts in the rows file
+	 * @param rows
+	 *            the number of rows in the group
+	 */
+	public void addGroup(long offset, int rows) {
+		groups.add(new long[] { offset, rowCount, rows });
+		rowCount += rows;
+	}
+}
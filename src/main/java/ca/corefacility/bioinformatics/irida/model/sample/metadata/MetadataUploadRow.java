@@ -0,0 +1,66 @@
+package ca.corefacility.bioinformatics.irida.model.sample.metadata;
+
+import java.util.List;
+
+/**
+ * A row of a {@link MetadataUpload}, with the sample it was matched to and
+ * whether it has been saved.
+ */
+public class MetadataUploadRow {
+	private final int index;
+	private final List<String> values;
+	private Long foundSampleId;
+	private Boolean saved;
+	private String error;
+
+	public MetadataUploadRow(int index, List<String> values, Long foundSampleId, Boolean saved, String error) {
+		this.index = index;
+		this.values = values;
+		this.foundSampleId = foundSampleId;
+		this.saved = saved;
+		this.error = error;
+	}
+
+	/**
+	 * Get the position of the row in the upload
+	 *
+	 * @return the index of the row, starting at 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Get the values of the row, in the same order as the headers of the
+	 * upload
+	 *
+	 * @return the values, with null for empty cells
+	 */
+	public List<String> getValues() {
+		return values;
+	}
+
+	public Long getFoundSampleId() {
+		return foundSampleId;
+	}
+
+	public void setFoundSampleId(Long foundSampleId) {
+		this.foundSampleId = foundSampleId;
+	}
+
+	public Boolean isSaved() {
+		return saved;
+	}
+
+	public void setSaved(Boolean saved) {
+		this.saved = saved;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,120 @@
+package ca.corefacility.bioinformatics.irida.model.sample.metadata;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.*;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * All the {@link MetadataEntry} values of a {@link Sample} in a single row, so that the metadata for a page of samples
+ * can be read without going through the metadata entry table one cell at a time. The summary is rewritten every time
+ * the metadata of the sample is changed.
+ */
+@Entity
+@Table(name = "sample_metadata_summary")
+public class SampleMetadataSummary {
+	@Id
+	@Column(name = "sample_id")
+	private Long sampleId;
+
+	@MapsId
+	@OneToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "sample_id")
+	@OnDelete(action = OnDeleteAction.CASCADE)
+	private Sample sample;
+
+	@Lob
+	@Column(name = "metadata", nullable = false)
+	@Convert(converter = SampleMetadataSummaryConverter.class)
+	private Map<Long, MetadataValue> metadata;
+
+	protected SampleMetadataSummary() {
+	}
+
+	public SampleMetadataSummary(Sample sample, Collection<MetadataEntry> entries) {
+		this.sample = sample;
+		this.sampleId = sample.getId();
+		setEntries(entries);
+	}
+
+	public Long getSampleId() {
+		return sampleId;
+	}
+
+	/**
+	 * Get the metadata of the sample
+	 *
+	 * @return the values of the sample keyed by {@link MetadataTemplateField} id
+	 */
+	public Map<Long, MetadataValue> getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Replace the summary with the current metadata of the sample
+	 *
+	 * @param entries all the {@link MetadataEntry} of the sample
+	 */
+	public void setEntries(Collection<MetadataEntry> entries) {
+		this.metadata = summarize(entries);
+	}
+
+	/**
+	 * Summarize the metadata of a sample
+	 *
+	 * @param entries all the {@link MetadataEntry} of the sample
+	 * @return the values of the sample keyed by {@link MetadataTemplateField} id
+	 */
+	public static Map<Long, MetadataValue> summarize(Collection<MetadataEntry> entries) {
+		Map<Long, MetadataValue> metadata = new HashMap<>();
+		for (MetadataEntry entry : entries) {
+			metadata.put(entry.getField().getId(),
+					new MetadataValue(entry.getId(), entry.getType(), entry.getValue()));
+		}
+		return metadata;
+	}
+
+	/**
+	 * The value of a single {@link MetadataEntry} in the summary
+	 */
+	public static class MetadataValue {
+		private final Long id;
+		private final String type;
+		private final String value;
+
+		@JsonCreator
+		public MetadataValue(@JsonProperty("id") Long id, @JsonProperty("type") String type,
+				@JsonProperty("value") String value) {
+			this.id = id;
+			this.type = type;
+			this.value = value;
+		}
+
+		/**
+		 * Get the id of the {@link MetadataEntry} the value came from
+		 *
+		 * @return the id of the entry
+		 */
+		public Long getId() {
+			return id;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public String getValue() {
+			return value;
+		}
+	}
+}
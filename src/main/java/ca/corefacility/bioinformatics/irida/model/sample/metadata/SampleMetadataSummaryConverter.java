@@ -0,0 +1,48 @@
+package ca.corefacility.bioinformatics.irida.model.sample.metadata;
+
+import java.util.Map;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores the metadata of a {@link SampleMetadataSummary} as a JSON document in a single column.
+ */
+@Converter
+public class SampleMetadataSummaryConverter implements AttributeConverter<Map<Long, MetadataValue>, String> {
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final TypeReference<Map<Long, MetadataValue>> METADATA_TYPE = new TypeReference<>() {
+	};
+
+	@Override
+	public String convertToDatabaseColumn(Map<Long, MetadataValue> metadata) {
+		if (metadata == null) {
+			return null;
+		}
+
+		try {
+			return mapper.writeValueAsString(metadata);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not write sample metadata summary", e);
+		}
+	}
+
+	@Override
+	public Map<Long, MetadataValue> convertToEntityAttribute(String json) {
+		if (json == null) {
+			return null;
+		}
+
+		try {
+			return mapper.readValue(json, METADATA_TYPE);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not read sample metadata summary", e);
+		}
+	}
+}
@@ -90,6 +90,10 @@ public class SequenceFile extends IridaRepresentationModel
 	@Column(name = "file_revision_number")
 	private Long fileRevisionNumber; // the filesystem file revision number
 
+	// CRC-32 of the current file revision, cleared when the file changes
+	@Column(name = "crc32")
+	private Long crc32;
+
 	// Key/value map of additional properties you could set on a sequence file.
 	// This may contain optional sequencer specific properties.
 	@ElementCollection(fetch = FetchType.EAGER)
@@ -248,6 +252,7 @@ public class SequenceFile extends IridaRepresentationModel
 	@Override
 	public void incrementFileRevisionNumber() {
 		this.fileRevisionNumber++;
+		this.crc32 = null;
 	}
 
 	@Override
@@ -303,4 +308,21 @@ public class SequenceFile extends IridaRepresentationModel
 	public void setUploadSha256(String uploadSha256) {
 		this.uploadSha256 = uploadSha256;
 	}
+
+	/**
+	 * Get the CRC-32 of the current revision of the file. This is used when
+	 * the file is stored in a zip archive without being compressed.
+	 *
+	 * @return the CRC-32 of the file, or null if it hasn't been computed for
+	 *         the current revision of the file.
+	 */
+	@JsonIgnore
+	public Long getCrc32() {
+		return crc32;
+	}
+
+	@JsonIgnore
+	public void setCrc32(Long crc32) {
+		this.crc32 = crc32;
+	}
 }
@@ -0,0 +1,134 @@
+package ca.corefacility.bioinformatics.irida.model.sequenceFile;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A resumable upload of a single {@link SequenceFile}. The client creates a
+ * session with the name and size of the file, sends the file in chunks at any
+ * offset and in any order, and completes the session once every byte has been
+ * received. Sessions are stored next to the uploaded data so that an upload
+ * can be resumed after the server restarts.
+ */
+public class SequenceFileUploadSession {
+	private String id;
+	private Long sampleId;
+	private String fileName;
+	private long size;
+	private String sha256;
+	private String owner;
+	private Date createdDate;
+
+	// sorted, non-overlapping [start, end) ranges of the bytes received so far
+	private List<long[]> received = new ArrayList<>();
+
+	public SequenceFileUploadSession() {
+	}
+
+	public SequenceFileUploadSession(String id, Long sampleId, String fileName, long size, String sha256,
+			String owner) {
+		this.id = id;
+		this.sampleId = sampleId;
+		this.fileName = fileName;
+		this.size = size;
+		this.sha256 = sha256;
+		this.owner = owner;
+		this.createdDate = new Date();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Long getSampleId() {
+		return sampleId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the sha256 that the client expects the completed file to have
+	 *
+	 * @return the expected sha256, or null if the client didn't send one
+	 */
+	public String getSha256() {
+		return sha256;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public Date getCreatedDate() {
+		return createdDate;
+	}
+
+	/**
+	 * Get the ranges of the file that have been received
+	 *
+	 * @return sorted, non-overlapping <code>[start, end)</code> byte ranges
+	 */
+	public List<long[]> getReceived() {
+		return received;
+	}
+
+	/**
+	 * Get the number of bytes of the file that have been received
+	 *
+	 * @return the number of bytes received
+	 */
+	public long getBytesReceived() {
+		return received.stream().mapToLong(r -> r[1] - r[0]).sum();
+	}
+
+	/**
+	 * Check whether every byte of the file has been received
+	 *
+	 * @return true if the whole file has been received
+	 */
+	public boolean isComplete() {
+		return getBytesReceived() == size;
+	}
+
+	/**
+	 * Record that a range of the file was received, merging it with any ranges
+	 * it overlaps or touches
+	 *
+	 * @param start
+	 *            the first byte received
+	 * @param end
+	 *            the byte after the last byte received
+	 */
+	public void addReceived(long start, long end) {
+		if (end <= start) {
+			return;
+		}
+		List<long[]> merged = new ArrayList<>(received.size() + 1);
+		boolean added = false;
+		for (long[] range : received) {
+			if (range[1] < start) {
+				merged.add(range);
+			} else if (end < range[0]) {
+				if (!added) {
+					merged.add(new long[] { start, end });
+					added = true;
+				}
+				merged.add(range);
+			} else {
+				start = Math.min(start, range[0]);
+				end = Math.max(end, range[1]);
+			}
+		}
+		if (!added) {
+			merged.add(new long[] { start, end });
+		}
+		received = merged;
+	}
+}
@@ -48,6 +48,11 @@ public class AnalysisFastQC extends Analysis {
 	@JoinTable(joinColumns = @JoinColumn(name = "analysis_fastqc_id"))
 	private final Set<OverrepresentedSequence> overrepresentedSequences;
 
+	@Lob
+	@Column(name = "chart_data")
+	@Convert(converter = FastQCChartDataConverter.class)
+	private final FastQCChartData chartData;
+
 	/**
 	 * Required for hibernate, should not be used anywhere else, so private.
 	 */
@@ -63,6 +68,7 @@ public class AnalysisFastQC extends Analysis {
 		this.gcContent = null;
 		this.overrepresentedSequences = null;
 		this.fastqcVersion = null;
+		this.chartData = null;
 
 		this.setAnalysisType(BuiltInAnalysisTypes.FASTQC);
 	}
@@ -79,6 +85,7 @@ public class AnalysisFastQC extends Analysis {
 		this.gcContent = builder.gcContent;
 		this.overrepresentedSequences = builder.overrepresentedSequences;
 		this.fastqcVersion = builder.fastqcVersion;
+		this.chartData = builder.chartData;
 
 		this.setAnalysisType(BuiltInAnalysisTypes.FASTQC);
 	}
@@ -109,6 +116,7 @@ public class AnalysisFastQC extends Analysis {
 		private AnalysisOutputFile perBaseQualityScoreChart;
 		private AnalysisOutputFile perSequenceQualityScoreChart;
 		private AnalysisOutputFile duplicationLevelChart;
+		private FastQCChartData chartData;
 		private Set<OverrepresentedSequence> overrepresentedSequences;
 		private String description;
 		private String executionManagerAnalysisId;
@@ -182,6 +190,18 @@ public class AnalysisFastQC extends Analysis {
 			return this;
 		}
 
+		/**
+		 * Set the series that the charts are drawn from
+		 *
+		 * @param chartData
+		 *            the chartData
+		 * @return the builder
+		 */
+		public AnalysisFastQCBuilder chartData(final FastQCChartData chartData) {
+			this.chartData = chartData;
+			return this;
+		}
+
 		/**
 		 * set the duplicationLevelChart
 		 *
@@ -322,9 +342,16 @@ public class AnalysisFastQC extends Analysis {
 		 */
 		public AnalysisFastQC build() {
 			images = new HashMap<>();
-			images.put("perBaseQualityScoreChart", perBaseQualityScoreChart);
-			images.put("perSequenceQualityScoreChart", perSequenceQualityScoreChart);
-			images.put("duplicationLevelChart", duplicationLevelChart);
+			// analyses with chart data don't have chart images
+			if (perBaseQualityScoreChart != null) {
+				images.put("perBaseQualityScoreChart", perBaseQualityScoreChart);
+			}
+			if (perSequenceQualityScoreChart != null) {
+				images.put("perSequenceQualityScoreChart", perSequenceQualityScoreChart);
+			}
+			if (duplicationLevelChart != null) {
+				images.put("duplicationLevelChart", duplicationLevelChart);
+			}
 
 			return new AnalysisFastQC(this);
 		}
@@ -334,7 +361,9 @@ public class AnalysisFastQC extends Analysis {
 	 * Box and whisker plot showing per-base quality scores as a PNG-formatted
 	 * image in a byte array.
 	 *
-	 * @return a PNG-formatted byte array for per-base quality score.
+	 * @return a PNG-formatted byte array for per-base quality score. An empty array
+	 *         is returned if the analysis has {@link #getChartData()}
+	 *         instead of images.
 	 * @throws IOException
 	 *             if the file does not exist
 	 */
@@ -347,7 +376,9 @@ public class AnalysisFastQC extends Analysis {
 	 * Line chartshowing per-sequence quality scores as a PNG-formatted image in
 	 * a byte array.
 	 *
-	 * @return a PNG-formatted byte array for per-sequence quality score.
+	 * @return a PNG-formatted byte array for per-sequence quality score. An empty array
+	 *         is returned if the analysis has {@link #getChartData()}
+	 *         instead of images.
 	 * @throws IOException
 	 *             if the file does not exist
 	 */
@@ -360,7 +391,9 @@ public class AnalysisFastQC extends Analysis {
 	 * Line chartshowing duplication-level as a PNG-formatted image in a byte
 	 * array.
 	 *
-	 * @return a PNG-formatted byte array for duplication levels.
+	 * @return a PNG-formatted byte array for duplication levels. An empty array
+	 *         is returned if the analysis has {@link #getChartData()}
+	 *         instead of images.
 	 * @throws IOException
 	 *             if the file does not exist
 	 */
@@ -369,6 +402,18 @@ public class AnalysisFastQC extends Analysis {
 		return getBytesForFile("duplicationLevelChart");
 	}
 
+	/**
+	 * The series that the FastQC charts are drawn from. Analyses created
+	 * before chart data was stored only have chart images and return null.
+	 *
+	 * @return the {@link FastQCChartData}, or null if the analysis only has
+	 *         chart images.
+	 */
+	@JsonIgnore
+	public FastQCChartData getChartData() {
+		return chartData;
+	}
+
 	public String getFastqcVersion() {
 		return fastqcVersion;
 	}
@@ -419,6 +464,10 @@ public class AnalysisFastQC extends Analysis {
 	private byte[] getBytesForFile(String key) {
 		AnalysisOutputFile chart = getAnalysisOutputFile(key);
 		byte[] bytes = new byte[0];
+		if (chart == null) {
+			return bytes;
+		}
+
 		try {
 			bytes = Files.readAllBytes(chart.getFile());
 		} catch (IOException e) {
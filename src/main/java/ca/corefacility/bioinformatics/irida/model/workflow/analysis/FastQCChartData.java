@@ -0,0 +1,248 @@
+package ca.corefacility.bioinformatics.irida.model.workflow.analysis;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The numeric series behind the charts stored with an {@link AnalysisFastQC}.
+ * Charts are drawn from these series when they're requested instead of being
+ * written as images when the file is processed.
+ */
+public class FastQCChartData {
+	private BoxPlotSeries perBaseQualityScores;
+	private LineSeries perSequenceQualityScores;
+	private LineSeries duplicationLevels;
+
+	/**
+	 * Required for deserialization.
+	 */
+	protected FastQCChartData() {
+	}
+
+	/**
+	 * Create the chart data for a FastQC analysis
+	 *
+	 * @param perBaseQualityScores
+	 *            quality scores across all bases
+	 * @param perSequenceQualityScores
+	 *            the distribution of mean quality scores over all sequences
+	 * @param duplicationLevels
+	 *            sequence duplication levels
+	 */
+	public FastQCChartData(BoxPlotSeries perBaseQualityScores, LineSeries perSequenceQualityScores,
+			LineSeries duplicationLevels) {
+		this.perBaseQualityScores = perBaseQualityScores;
+		this.perSequenceQualityScores = perSequenceQualityScores;
+		this.duplicationLevels = duplicationLevels;
+	}
+
+	public BoxPlotSeries getPerBaseQualityScores() {
+		return perBaseQualityScores;
+	}
+
+	public LineSeries getPerSequenceQualityScores() {
+		return perSequenceQualityScores;
+	}
+
+	public LineSeries getDuplicationLevels() {
+		return duplicationLevels;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		FastQCChartData that = (FastQCChartData) o;
+		return Objects.equals(perBaseQualityScores, that.perBaseQualityScores)
+				&& Objects.equals(perSequenceQualityScores, that.perSequenceQualityScores)
+				&& Objects.equals(duplicationLevels, that.duplicationLevels);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(perBaseQualityScores, perSequenceQualityScores, duplicationLevels);
+	}
+
+	/**
+	 * The values for a box and whisker plot with one box for each group of
+	 * positions.
+	 */
+	public static class BoxPlotSeries {
+		private double[] means;
+		private double[] medians;
+		private double[] lowest;
+		private double[] highest;
+		private double[] lowerQuartile;
+		private double[] upperQuartile;
+		private double minY;
+		private double maxY;
+		private double yInterval;
+		private String[] xLabels;
+		private String title;
+
+		/**
+		 * Required for deserialization.
+		 */
+		protected BoxPlotSeries() {
+		}
+
+		public BoxPlotSeries(double[] means, double[] medians, double[] lowest, double[] highest,
+				double[] lowerQuartile, double[] upperQuartile, double minY, double maxY, double yInterval,
+				String[] xLabels, String title) {
+			this.means = means;
+			this.medians = medians;
+			this.lowest = lowest;
+			this.highest = highest;
+			this.lowerQuartile = lowerQuartile;
+			this.upperQuartile = upperQuartile;
+			this.minY = minY;
+			this.maxY = maxY;
+			this.yInterval = yInterval;
+			this.xLabels = xLabels;
+			this.title = title;
+		}
+
+		public double[] getMeans() {
+			return means;
+		}
+
+		public double[] getMedians() {
+			return medians;
+		}
+
+		public double[] getLowest() {
+			return lowest;
+		}
+
+		public double[] getHighest() {
+			return highest;
+		}
+
+		public double[] getLowerQuartile() {
+			return lowerQuartile;
+		}
+
+		public double[] getUpperQuartile() {
+			return upperQuartile;
+		}
+
+		public double getMinY() {
+			return minY;
+		}
+
+		public double getMaxY() {
+			return maxY;
+		}
+
+		public double getyInterval() {
+			return yInterval;
+		}
+
+		public String[] getxLabels() {
+			return xLabels;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			BoxPlotSeries that = (BoxPlotSeries) o;
+			return Arrays.equals(means, that.means) && Arrays.equals(medians, that.medians)
+					&& Arrays.equals(lowest, that.lowest) && Arrays.equals(highest, that.highest)
+					&& Arrays.equals(lowerQuartile, that.lowerQuartile)
+					&& Arrays.equals(upperQuartile, that.upperQuartile) && minY == that.minY && maxY == that.maxY
+					&& yInterval == that.yInterval && Arrays.equals(xLabels, that.xLabels)
+					&& Objects.equals(title, that.title);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(Arrays.hashCode(means), Arrays.hashCode(medians), minY, maxY, yInterval,
+					Arrays.hashCode(xLabels), title);
+		}
+	}
+
+	/**
+	 * The values for a line graph with one or more lines over a set of
+	 * categories.
+	 */
+	public static class LineSeries {
+		private double[][] data;
+		private double minY;
+		private double maxY;
+		private String xLabel;
+		private String[] xTitles;
+		private String[] xCategories;
+		private String title;
+
+		/**
+		 * Required for deserialization.
+		 */
+		protected LineSeries() {
+		}
+
+		public LineSeries(double[][] data, double minY, double maxY, String xLabel, String[] xTitles,
+				String[] xCategories, String title) {
+			this.data = data;
+			this.minY = minY;
+			this.maxY = maxY;
+			this.xLabel = xLabel;
+			this.xTitles = xTitles;
+			this.xCategories = xCategories;
+			this.title = title;
+		}
+
+		public double[][] getData() {
+			return data;
+		}
+
+		public double getMinY() {
+			return minY;
+		}
+
+		public double getMaxY() {
+			return maxY;
+		}
+
+		public String getxLabel() {
+			return xLabel;
+		}
+
+		public String[] getxTitles() {
+			return xTitles;
+		}
+
+		public String[] getxCategories() {
+			return xCategories;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			LineSeries that = (LineSeries) o;
+			return Arrays.deepEquals(data, that.data) && minY == that.minY && maxY == that.maxY
+					&& Objects.equals(xLabel, that.xLabel) && Arrays.equals(xTitles, that.xTitles)
+					&& Arrays.equals(xCategories, that.xCategories) && Objects.equals(title, that.title);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(Arrays.deepHashCode(data), minY, maxY, xLabel, Arrays.hashCode(xCategories), title);
+		}
+	}
+}
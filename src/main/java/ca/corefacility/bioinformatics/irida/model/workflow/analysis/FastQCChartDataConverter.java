@@ -0,0 +1,41 @@
+package ca.corefacility.bioinformatics.irida.model.workflow.analysis;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores {@link FastQCChartData} as a JSON document in a single column.
+ */
+@Converter
+public class FastQCChartDataConverter implements AttributeConverter<FastQCChartData, String> {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	@Override
+	public String convertToDatabaseColumn(FastQCChartData chartData) {
+		if (chartData == null) {
+			return null;
+		}
+
+		try {
+			return mapper.writeValueAsString(chartData);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not write FastQC chart data", e);
+		}
+	}
+
+	@Override
+	public FastQCChartData convertToEntityAttribute(String json) {
+		if (json == null) {
+			return null;
+		}
+
+		try {
+			return mapper.readValue(json, FastQCChartData.class);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Could not read FastQC chart data", e);
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -93,6 +94,29 @@ public class GalaxyWorkflowStatus {
 		return countHistoryItemsInState(GalaxyWorkflowState.OK) / (float) countTotalWorkflowItems();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof GalaxyWorkflowStatus)) {
+			return false;
+		}
+		GalaxyWorkflowStatus other = (GalaxyWorkflowStatus) o;
+		return state == other.state && Objects.equals(stateIds, other.stateIds);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return Objects.hash(state, stateIds);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
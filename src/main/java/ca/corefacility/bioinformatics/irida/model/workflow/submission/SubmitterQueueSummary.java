@@ -0,0 +1,62 @@
+package ca.corefacility.bioinformatics.irida.model.workflow.submission;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The number of {@link AnalysisSubmission}s a single user has in a state at a
+ * single {@link AnalysisSubmission.Priority}, and when the oldest of them was
+ * created.
+ */
+public class SubmitterQueueSummary {
+	private final Long submitterId;
+	private final AnalysisSubmission.Priority priority;
+	private final long count;
+	private final Date oldestCreatedDate;
+
+	public SubmitterQueueSummary(Long submitterId, AnalysisSubmission.Priority priority, Long count,
+			Date oldestCreatedDate) {
+		this.submitterId = submitterId;
+		this.priority = priority;
+		this.count = count;
+		this.oldestCreatedDate = oldestCreatedDate;
+	}
+
+	public Long getSubmitterId() {
+		return submitterId;
+	}
+
+	public AnalysisSubmission.Priority getPriority() {
+		return priority;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Date getOldestCreatedDate() {
+		return oldestCreatedDate;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		SubmitterQueueSummary that = (SubmitterQueueSummary) o;
+		return count == that.count && Objects.equals(submitterId, that.submitterId) && priority == that.priority
+				&& Objects.equals(oldestCreatedDate, that.oldestCreatedDate);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(submitterId, priority, count, oldestCreatedDate);
+	}
+
+	@Override
+	public String toString() {
+		return "SubmitterQueueSummary [submitterId=" + submitterId + ", priority=" + priority + ", count=" + count
+				+ ", oldestCreatedDate=" + oldestCreatedDate + "]";
+	}
+}
@@ -5,8 +5,13 @@ import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,6 +35,7 @@ import ca.corefacility.bioinformatics.irida.model.workflow.execution.InputFileTy
 import ca.corefacility.bioinformatics.irida.model.workflow.execution.galaxy.GalaxyWorkflowStatus;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.DataStorage;
 
+import com.github.jmchilton.blend4j.galaxy.GalaxyInstance;
 import com.github.jmchilton.blend4j.galaxy.HistoriesClient;
 import com.github.jmchilton.blend4j.galaxy.ToolsClient;
 import com.github.jmchilton.blend4j.galaxy.ToolsClient.FileUploadRequest;
@@ -44,9 +50,11 @@ import com.github.jmchilton.blend4j.galaxy.beans.HistoryDetails;
 import com.github.jmchilton.blend4j.galaxy.beans.Library;
 import com.github.jmchilton.blend4j.galaxy.beans.collection.request.CollectionDescription;
 import com.github.jmchilton.blend4j.galaxy.beans.collection.response.CollectionResponse;
+import com.google.common.io.ByteStreams;
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
+import com.sun.jersey.api.client.WebResource;
 
 /**
  * Class for working with Galaxy Histories.
@@ -59,10 +67,23 @@ public class GalaxyHistoriesService {
 	
 	private static final String COLLECTION = "dataset_collection";
 
+	private static final String RANGE_HEADER = "Range";
+	private static final int PARTIAL_CONTENT_STATUS = 206;
+
+	/**
+	 * How long a history status is used for progress requests when no maximum
+	 * age is given.
+	 */
+	public static final Duration DEFAULT_STATUS_MAX_AGE = Duration.ofSeconds(30);
+
 	private HistoriesClient historiesClient;
 	private ToolsClient toolsClient;
 	
 	private GalaxyLibrariesService librariesService;
+
+	private GalaxyInstance galaxyInstance;
+
+	private GalaxyHistoryStatusCache statusCache;
 	
 	/**
 	 * Builds a new GalaxyHistory object for working with Galaxy Histories.
@@ -72,6 +93,37 @@ public class GalaxyHistoriesService {
 	 */
 	public GalaxyHistoriesService(HistoriesClient historiesClient,
 			ToolsClient toolsClient, GalaxyLibrariesService librariesService) {
+		this(historiesClient, toolsClient, librariesService, null);
+	}
+
+	/**
+	 * Builds a new GalaxyHistory object for working with Galaxy Histories,
+	 * which can resume partial downloads of datasets.
+	 * @param historiesClient  The HistoriesClient for interacting with Galaxy histories.
+	 * @param toolsClient  The ToolsClient for interacting with tools in Galaxy.
+	 * @param librariesService  A service for dealing with Galaxy libraries.
+	 * @param galaxyInstance  The Galaxy instance the clients connect to, used to request part of a dataset.
+	 *                        If null, datasets are always downloaded in full.
+	 */
+	public GalaxyHistoriesService(HistoriesClient historiesClient,
+			ToolsClient toolsClient, GalaxyLibrariesService librariesService, GalaxyInstance galaxyInstance) {
+		this(historiesClient, toolsClient, librariesService, galaxyInstance, DEFAULT_STATUS_MAX_AGE);
+	}
+
+	/**
+	 * Builds a new GalaxyHistory object for working with Galaxy Histories,
+	 * which can resume partial downloads of datasets.
+	 * @param historiesClient  The HistoriesClient for interacting with Galaxy histories.
+	 * @param toolsClient  The ToolsClient for interacting with tools in Galaxy.
+	 * @param librariesService  A service for dealing with Galaxy libraries.
+	 * @param galaxyInstance  The Galaxy instance the clients connect to, used to request part of a dataset.
+	 *                        If null, datasets are always downloaded in full.
+	 * @param statusMaxAge  How long the last loaded status of a history is used by
+	 *                      {@link #getRecentStatusForHistory(String)}.
+	 */
+	public GalaxyHistoriesService(HistoriesClient historiesClient,
+			ToolsClient toolsClient, GalaxyLibrariesService librariesService, GalaxyInstance galaxyInstance,
+			Duration statusMaxAge) {
 		checkNotNull(historiesClient, "historiesClient is null");
 		checkNotNull(toolsClient, "toolsClient is null");
 		checkNotNull(librariesService, "librariesService is null");
@@ -79,6 +131,8 @@ public class GalaxyHistoriesService {
 		this.historiesClient = historiesClient;
 		this.toolsClient = toolsClient;
 		this.librariesService = librariesService;
+		this.galaxyInstance = galaxyInstance;
+		this.statusCache = new GalaxyHistoryStatusCache(statusMaxAge);
 	}
 
 	/**
@@ -104,6 +158,32 @@ public class GalaxyHistoriesService {
 	public GalaxyWorkflowStatus getStatusForHistory(String historyId) throws ExecutionManagerException {
 		checkNotNull(historyId, "historyId is null");
 
+		GalaxyWorkflowStatus status = loadStatusForHistory(historyId);
+		statusCache.put(historyId, status);
+		return status;
+	}
+
+	/**
+	 * Given a history id returns a recently loaded status for the given
+	 * workflow, only asking Galaxy if the last status loaded for the history
+	 * is older than the maximum age. Use this for reporting progress, and
+	 * {@link #getStatusForHistory(String)} for deciding what to do next with
+	 * the workflow.
+	 *
+	 * @param historyId
+	 *            The history id to use to find a workflow.
+	 * @return The WorkflowStatus for the given workflow.
+	 * @throws ExecutionManagerException
+	 *             If there was an exception when attempting to get the status
+	 *             for a history.
+	 */
+	public GalaxyWorkflowStatus getRecentStatusForHistory(String historyId) throws ExecutionManagerException {
+		checkNotNull(historyId, "historyId is null");
+
+		return statusCache.get(historyId, this::loadStatusForHistory);
+	}
+
+	private GalaxyWorkflowStatus loadStatusForHistory(String historyId) throws ExecutionManagerException {
 		try {
 			HistoryDetails details = historiesClient.showHistory(historyId);
 			logger.trace("Details for history " + details.getId() + ": state=" + details.getState());
@@ -195,35 +275,24 @@ public class GalaxyHistoriesService {
 			DataStorage dataStorage) throws UploadException {
 		checkNotNull(paths, "paths is null");
 
-		Map<Path, String> datasetIdsMap = new HashMap<>();
+		// copy each dataset to the history as soon as it's in the library
+		Map<Path, String> datasetIdsMap = librariesService.filesToLibraryWait(paths, library, dataStorage,
+				datasetLibraryId -> {
+					HistoryDetails historyDetails = libraryDatasetToHistory(datasetLibraryId, history);
 
-		Map<Path, String> datasetLibraryIdsMap = librariesService
-				.filesToLibraryWait(paths, library, dataStorage);
+					logger.debug("Transfered library dataset " + datasetLibraryId + " to history "
+							+ history.getId() + " dataset id " + historyDetails.getId());
 
-		if (datasetLibraryIdsMap.size() != paths.size()) {
+					return historyDetails.getId();
+				});
+
+		if (datasetIdsMap.size() != paths.size()) {
 			throw new UploadException(
 					"Error: datasets uploaded to a Galaxy library are not the same size ("
-							+ datasetLibraryIdsMap.size()
+							+ datasetIdsMap.size()
 							+ ") as the paths to upload (" + paths.size() + ")");
 		}
 
-		try {
-			for (Path path : datasetLibraryIdsMap.keySet()) {
-				String datasetLibraryId = datasetLibraryIdsMap.get(path);
-
-				HistoryDetails historyDetails = libraryDatasetToHistory(
-						datasetLibraryId, history);
-
-				logger.debug("Transfered library dataset " + datasetLibraryId
-						+ " to history " + history.getId() + " dataset id "
-						+ historyDetails.getId());
-
-				datasetIdsMap.put(path, historyDetails.getId());
-			}
-		} catch (RuntimeException e) {
-			throw new UploadException(e);
-		}
-
 		return datasetIdsMap;
 	}
 	
@@ -260,6 +329,25 @@ public class GalaxyHistoriesService {
 		List<HistoryContents> historyContentsList =
 				historiesClient.showHistoryContents(historyId);
 		
+		return getDatasetForFileInHistory(filename, historyId, historyContentsList);
+	}
+
+	/**
+	 * Gets a Dataset object for a file with the given name in the given
+	 * history, using contents of the history that have already been loaded.
+	 * 
+	 * @param filename  The name of the file to get a Dataset object for.
+	 * @param historyId  The history id to look for the dataset.
+	 * @param historyContentsList  The already loaded contents of the history.
+	 * @return The corresponding dataset for the given file name.
+	 * @throws GalaxyDatasetException If there was an issue when searching for a dataset.
+	 */
+	public Dataset getDatasetForFileInHistory(String filename, String historyId,
+			List<HistoryContents> historyContentsList) throws GalaxyDatasetException {
+		checkNotNull(filename, "filename is null");
+		checkNotNull(historyId, "historyId is null");
+		checkNotNull(historyContentsList, "historyContentsList is null");
+
 		List<HistoryContents> matchingHistoryContents = historyContentsList.stream()
 				.filter((historyContents) -> filename.equals(historyContents.getName())
 						&& !COLLECTION.equals(historyContents.getHistoryContentType()))
@@ -344,6 +432,97 @@ public class GalaxyHistoriesService {
 		}
 	}
 	
+	/**
+	 * Downloads a dataset within a Galaxy history to the local filesystem,
+	 * continuing from the end of any part of the dataset already in the
+	 * destination from an earlier attempt. Data is written to the destination
+	 * as it arrives, so a download that fails part way can be resumed by
+	 * calling this again.
+	 * 
+	 * @param historyId
+	 *            The id of the history containing the dataset.
+	 * @param dataset
+	 *            The dataset to download.
+	 * @param destination
+	 *            The destination to download a file to.
+	 * @throws IOException
+	 *             If there was an error writing the file or the connection
+	 *             was lost while downloading.
+	 * @throws ExecutionManagerDownloadException
+	 *             If there was an issue downloading the dataset.
+	 */
+	public void downloadDatasetTo(String historyId, Dataset dataset, Path destination)
+			throws IOException, ExecutionManagerDownloadException {
+		checkNotNull(historyId, "historyId is null");
+		checkNotNull(dataset, "dataset is null");
+		checkNotNull(destination, "destination is null");
+
+		Integer expectedSize = dataset.getFileSize();
+		if (galaxyInstance == null || expectedSize == null || expectedSize < 0) {
+			// can't tell how much is left, start again
+			downloadDatasetTo(historyId, dataset.getId(), destination);
+			return;
+		}
+
+		long existingSize = Files.exists(destination) ? Files.size(destination) : 0;
+		if (existingSize == expectedSize) {
+			logger.debug("Dataset " + dataset.getId() + " already downloaded to " + destination);
+			return;
+		} else if (existingSize > expectedSize) {
+			existingSize = 0;
+		}
+
+		ClientResponse response;
+		try {
+			WebResource.Builder request = galaxyInstance.getWebResource()
+					.path("histories")
+					.path(historyId)
+					.path("contents")
+					.path(dataset.getId())
+					.path("display")
+					.queryParam("to_ext", dataset.getDataTypeExt())
+					.getRequestBuilder();
+			if (existingSize > 0) {
+				logger.debug("Resuming download of dataset " + dataset.getId() + " to " + destination + " at byte "
+						+ existingSize + " of " + expectedSize);
+				request = request.header(RANGE_HEADER, "bytes=" + existingSize + "-");
+			}
+			response = request.get(ClientResponse.class);
+		} catch (RuntimeException e) {
+			throw new ExecutionManagerDownloadException("Could not download dataset identified by historyId="
+					+ historyId + ", datasetId=" + dataset.getId() + " to destination=" + destination, e);
+		}
+
+		try {
+			OpenOption[] openOptions;
+			if (response.getStatus() == PARTIAL_CONTENT_STATUS && existingSize > 0) {
+				openOptions = new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.APPEND };
+			} else if (response.getStatus() == ClientResponse.Status.OK.getStatusCode()) {
+				// Galaxy ignored the range, the whole dataset is coming
+				openOptions = new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE };
+			} else {
+				// don't try to continue from this part again
+				Files.deleteIfExists(destination);
+				throw new ExecutionManagerDownloadException("Could not download dataset identified by historyId="
+						+ historyId + ", datasetId=" + dataset.getId() + ", status=" + response.getStatusInfo());
+			}
+
+			try (InputStream in = response.getEntityInputStream();
+					OutputStream out = Files.newOutputStream(destination, openOptions)) {
+				ByteStreams.copy(in, out);
+			}
+		} finally {
+			response.close();
+		}
+
+		long downloadedSize = Files.size(destination);
+		if (downloadedSize != expectedSize) {
+			throw new ExecutionManagerDownloadException("Downloaded " + downloadedSize + " bytes of dataset "
+					+ dataset.getId() + " to " + destination + ", expected " + expectedSize);
+		}
+	}
+	
 	/**
 	 * Show the history contents for the specified history identifier
 	 * 
@@ -0,0 +1,154 @@
+package ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
+import ca.corefacility.bioinformatics.irida.model.workflow.execution.galaxy.GalaxyWorkflowStatus;
+
+/**
+ * The most recent {@link GalaxyWorkflowStatus} loaded for each Galaxy history.
+ * The analysis monitor stores the status of every running analysis each time
+ * it checks Galaxy, and progress requests from the UI and REST API read it
+ * from here instead of asking Galaxy again. A status older than the maximum
+ * age is loaded again when it is asked for; if several requests ask for the
+ * same history at once only one of them loads it and the rest wait for it.
+ */
+public class GalaxyHistoryStatusCache {
+	private static final Logger logger = LoggerFactory.getLogger(GalaxyHistoryStatusCache.class);
+
+	private final long maxAgeNanos;
+
+	private final Map<String, CachedStatus> statuses = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<GalaxyWorkflowStatus>> loading = new ConcurrentHashMap<>();
+
+	private volatile long lastPurge = System.nanoTime();
+
+	/**
+	 * Builds a new {@link GalaxyHistoryStatusCache}.
+	 *
+	 * @param maxAge How long a status is used for before it is loaded again.
+	 */
+	public GalaxyHistoryStatusCache(Duration maxAge) {
+		this.maxAgeNanos = maxAge.toNanos();
+	}
+
+	/**
+	 * Get the status of a history, loading it if there is no status for the
+	 * history younger than the maximum age.
+	 *
+	 * @param historyId The id of the history.
+	 * @param loader    Loads the status of the history from Galaxy.
+	 * @return The status of the history.
+	 * @throws ExecutionManagerException If the status could not be loaded.
+	 */
+	public GalaxyWorkflowStatus get(String historyId, StatusLoader loader) throws ExecutionManagerException {
+		CachedStatus cached = statuses.get(historyId);
+		if (cached != null && isFresh(cached, System.nanoTime())) {
+			return cached.status;
+		}
+
+		CompletableFuture<GalaxyWorkflowStatus> load = new CompletableFuture<>();
+		CompletableFuture<GalaxyWorkflowStatus> inProgress = loading.putIfAbsent(historyId, load);
+		if (inProgress != null) {
+			logger.trace("Waiting for status of history " + historyId + " already being loaded");
+			return await(inProgress);
+		}
+
+		try {
+			GalaxyWorkflowStatus status = loader.load(historyId);
+			put(historyId, status);
+			load.complete(status);
+			return status;
+		} catch (Throwable e) {
+			// waiting requests fail the same way
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(historyId, load);
+		}
+	}
+
+	/**
+	 * Store a status that was just loaded for a history.
+	 *
+	 * @param historyId The id of the history.
+	 * @param status    The status of the history.
+	 */
+	public void put(String historyId, GalaxyWorkflowStatus status) {
+		long now = System.nanoTime();
+		statuses.put(historyId, new CachedStatus(status, now));
+
+		// histories that are no longer monitored stop being updated, so drop
+		// them once in a while rather than keeping every history ever seen
+		if (now - lastPurge >= maxAgeNanos) {
+			lastPurge = now;
+			statuses.values().removeIf(s -> !isFresh(s, now));
+		}
+	}
+
+	/**
+	 * Get the number of histories with a stored status.
+	 *
+	 * @return The number of histories.
+	 */
+	public int size() {
+		return statuses.size();
+	}
+
+	private boolean isFresh(CachedStatus cached, long now) {
+		return now - cached.loadedAt < maxAgeNanos;
+	}
+
+	private static GalaxyWorkflowStatus await(CompletableFuture<GalaxyWorkflowStatus> load)
+			throws ExecutionManagerException {
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ExecutionManagerException("Interrupted waiting for history status", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ExecutionManagerException) {
+				throw (ExecutionManagerException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw (RuntimeException) cause;
+		}
+	}
+
+	/**
+	 * Loads the status of a history from Galaxy.
+	 */
+	@FunctionalInterface
+	public interface StatusLoader {
+		/**
+		 * Load the status of a history.
+		 *
+		 * @param historyId The id of the history.
+		 * @return The status of the history.
+		 * @throws ExecutionManagerException If the status could not be loaded.
+		 */
+		GalaxyWorkflowStatus load(String historyId) throws ExecutionManagerException;
+	}
+
+	/**
+	 * A status and when it was loaded.
+	 */
+	private static class CachedStatus {
+		private final GalaxyWorkflowStatus status;
+		private final long loadedAt;
+
+		private CachedStatus(GalaxyWorkflowStatus status, long loadedAt) {
+			this.status = status;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
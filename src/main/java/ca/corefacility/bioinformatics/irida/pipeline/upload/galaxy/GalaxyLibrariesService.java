@@ -7,17 +7,18 @@ import static com.google.common.base.Preconditions.checkState;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,6 +59,12 @@ public class GalaxyLibrariesService {
 	private final int libraryPollingTime;
 	private final int libraryUploadTimeout;
 
+	/**
+	 * How long to wait before first checking the state of uploaded library
+	 * datasets. Doubled each time until it reaches the polling time.
+	 */
+	private static final long INITIAL_POLLING_TIME_MILLIS = 500;
+
 	/**
 	 * State a library dataset should be in on proper upload.
 	 */
@@ -80,7 +87,8 @@ public class GalaxyLibrariesService {
 	 *            The timeout (in seconds) for waiting for files to be uploaded
 	 *            to a library.
 	 * @param threadPoolSize
-	 *            The thread pool size for parallel polling of Galaxy to check if uploads are finished.
+	 *            The thread pool size for parallel uploads to Galaxy and
+	 *            polling of Galaxy to check if uploads are finished.
 	 */
 	public GalaxyLibrariesService(LibrariesClient librariesClient, final int libraryPollingTime,
 			final int libraryUploadTimeout, final int threadPoolSize) {
@@ -153,13 +161,41 @@ public class GalaxyLibrariesService {
 		checkNotNull(library.getId(), "library id is null");
 		checkState(path.toFile().exists(), "path " + path + " does not exist");
 
+		LibraryContent rootContent;
+		try {
+			rootContent = librariesClient.getRootFolder(library
+					.getId());
+		} catch (RuntimeException e) {
+			throw new UploadException(e);
+		}
+
+		return fileToLibrary(path, fileType, library, rootContent, dataStorage);
+	}
+
+	/**
+	 * Uploads the given file to a folder of a library.
+	 * 
+	 * @param path
+	 *            The path of the file to upload.
+	 * @param fileType
+	 *            The type of the file to upload.
+	 * @param library
+	 *            The library to upload the file into.
+	 * @param folder
+	 *            The folder of the library to upload the file into.
+	 * @param dataStorage
+	 *            The {@link DataStorage} method to apply to this dataset.
+	 * @return A dataset id for the dataset in this library.
+	 * @throws UploadException
+	 *             If there was an issue uploading the file to the library.
+	 */
+	private String fileToLibrary(Path path, InputFileType fileType, Library library, LibraryContent folder,
+			DataStorage dataStorage) throws UploadException {
 		File file = path.toFile();
 
 		try {
-			LibraryContent rootContent = librariesClient.getRootFolder(library
-					.getId());
 			FilesystemPathsLibraryUpload upload = new FilesystemPathsLibraryUpload();
-			upload.setFolderId(rootContent.getId());
+			upload.setFolderId(folder.getId());
 
 			upload.setContent(file.getAbsolutePath());
 			upload.setName(file.getName());
@@ -193,67 +229,151 @@ public class GalaxyLibrariesService {
 	public Map<Path, String> filesToLibraryWait(Set<Path> paths,
 			Library library, DataStorage dataStorage)
 			throws UploadException {
+		return filesToLibraryWait(paths, library, dataStorage, datasetLibraryId -> datasetLibraryId);
+	}
+
+	/**
+	 * Uploads a set of files to a given library, handing each dataset to
+	 * <code>whenUploaded</code> as soon as Galaxy has finished processing it
+	 * and waiting until all of them have been handled.
+	 * <p>
+	 * The files are added to the library in parallel. The states of all
+	 * datasets still being processed are then checked together, first after
+	 * half a second and then backing off exponentially up to the configured
+	 * polling time. Adding the files and waiting for Galaxy to process them
+	 * must finish within the configured upload timeout. Handling the datasets
+	 * isn't part of the upload and isn't limited by it, each request it makes
+	 * to Galaxy is limited by the Galaxy client's own timeouts instead.
+	 * 
+	 * @param <T>
+	 *            The result of handling an uploaded dataset.
+	 * @param paths
+	 *            The set of paths to upload.
+	 * @param library
+	 *            The library to initially upload the file into.
+	 * @param dataStorage
+	 *            The type of DataStorage strategy to use.
+	 * @param whenUploaded
+	 *            Handles the id of a library dataset once it has been
+	 *            uploaded, while the other datasets are still being waited
+	 *            for.
+	 * @return An @{link Map} of paths and the results of handling each
+	 *         dataset.
+	 * @throws UploadException
+	 *             If there was an issue uploading the file to Galaxy.
+	 */
+	public <T> Map<Path, T> filesToLibraryWait(Set<Path> paths, Library library, DataStorage dataStorage,
+			Function<String, T> whenUploaded) throws UploadException {
 		checkNotNull(paths, "paths is null");
-		final int pollingTimeMillis = libraryPollingTime*1000;
+		checkNotNull(library, "library is null");
+		checkNotNull(whenUploaded, "whenUploaded is null");
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(libraryUploadTimeout);
+		final long maxPollingTimeMillis = TimeUnit.SECONDS.toMillis(libraryPollingTime);
 
-		Map<Path, String> datasetLibraryIdsMap = new HashMap<>();
+		List<Future<?>> submitted = new ArrayList<>();
 
 		try {
-			// upload all files to library first
+			// add all files to the library first
+			LibraryContent rootContent = librariesClient.getRootFolder(library.getId());
+			Map<Path, Future<String>> libraryUploads = new HashMap<>();
 			for (Path path : paths) {
 				InputFileType fileType = getFileType(path);
-				String datasetLibraryId = fileToLibrary(path, fileType,
-						library, dataStorage);
-				datasetLibraryIdsMap.put(path, datasetLibraryId);
+				Future<String> libraryUpload = executor.submit(
+						() -> fileToLibrary(path, fileType, library, rootContent, dataStorage));
+				libraryUploads.put(path, libraryUpload);
+				submitted.add(libraryUpload);
 			}
 
-			Future<Void> waitForLibraries = executor.submit(new Callable<Void>(){
-				@Override
-				public Void call() throws Exception {
-					// wait for uploads to finish
-					for (Path path : paths) {
-						String datasetLibraryId = datasetLibraryIdsMap.get(path);
-						LibraryDataset libraryDataset = librariesClient.showDataset(
-								library.getId(), datasetLibraryId);
-						while (!LIBRARY_OK_STATE.equals(libraryDataset.getState())) {
-							logger.trace("Waiting for library dataset "
-									+ libraryDataset.getId()
-									+ " to be finished processing, in state "
-									+ libraryDataset.getState());
-							Thread.sleep(pollingTimeMillis);
-	
-							libraryDataset = librariesClient.showDataset(
-									library.getId(), datasetLibraryId);
-
-							if (LIBRARY_FAIL_STATES.contains(libraryDataset.getState())) {
-								throw new UploadErrorException("Error: upload to Galaxy library id=" + library.getId()
-										+ " name=" + library.getName() + " for dataset id=" + datasetLibraryId
-										+ " name=" + libraryDataset.getName() + " failed with state="
-										+ libraryDataset.getState());
-							}
-						}
+			Map<String, Path> processingDatasets = new HashMap<>();
+			for (Map.Entry<Path, Future<String>> libraryUpload : libraryUploads.entrySet()) {
+				processingDatasets.put(getBefore(libraryUpload.getValue(), deadline), libraryUpload.getKey());
+			}
+
+			// wait for uploads to finish, handling each one as soon as it is
+			Map<Path, Future<T>> handledDatasets = new HashMap<>();
+			long pollingTimeMillis = Math.min(INITIAL_POLLING_TIME_MILLIS, maxPollingTimeMillis);
+			while (!processingDatasets.isEmpty()) {
+				Map<String, Future<LibraryDataset>> datasetStates = new HashMap<>();
+				for (String datasetLibraryId : processingDatasets.keySet()) {
+					Future<LibraryDataset> datasetState = executor.submit(
+							() -> librariesClient.showDataset(library.getId(), datasetLibraryId));
+					datasetStates.put(datasetLibraryId, datasetState);
+					submitted.add(datasetState);
+				}
+
+				for (Map.Entry<String, Future<LibraryDataset>> datasetState : datasetStates.entrySet()) {
+					String datasetLibraryId = datasetState.getKey();
+					LibraryDataset libraryDataset = getBefore(datasetState.getValue(), deadline);
+
+					if (LIBRARY_OK_STATE.equals(libraryDataset.getState())) {
+						Path path = processingDatasets.remove(datasetLibraryId);
+						Future<T> handledDataset = executor.submit(() -> whenUploaded.apply(datasetLibraryId));
+						handledDatasets.put(path, handledDataset);
+						submitted.add(handledDataset);
+					} else if (LIBRARY_FAIL_STATES.contains(libraryDataset.getState())) {
+						throw new UploadErrorException("Error: upload to Galaxy library id=" + library.getId()
+								+ " name=" + library.getName() + " for dataset id=" + datasetLibraryId + " name="
+								+ libraryDataset.getName() + " failed with state=" + libraryDataset.getState());
+					} else {
+						logger.trace("Waiting for library dataset " + libraryDataset.getId()
+								+ " to be finished processing, in state " + libraryDataset.getState());
 					}
-					
-					return null;
 				}
-			});
-			
-			waitForLibraries.get(libraryUploadTimeout, TimeUnit.SECONDS);
+
+				if (!processingDatasets.isEmpty()) {
+					long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+					if (remainingMillis <= 0) {
+						throw new TimeoutException(processingDatasets.size() + " library datasets still processing");
+					}
+					Thread.sleep(Math.min(pollingTimeMillis, remainingMillis));
+					pollingTimeMillis = Math.min(pollingTimeMillis * 2, maxPollingTimeMillis);
+				}
+			}
+
+			// every dataset is uploaded, wait for the rest to be handled
+			Map<Path, T> handledResults = new HashMap<>();
+			for (Map.Entry<Path, Future<T>> handledDataset : handledDatasets.entrySet()) {
+				handledResults.put(handledDataset.getKey(), handledDataset.getValue()
+						.get());
+			}
+
+			return handledResults;
 		} catch (RuntimeException | IOException e) {
 			throw new UploadException(e);
 		} catch (TimeoutException e) {
 			throw new UploadTimeoutException("Timeout while uploading, time limit = " + libraryUploadTimeout + " seconds", e);
 		} catch (ExecutionException e) {
-			if (e.getCause() instanceof UploadErrorException) {
-				throw (UploadErrorException)e.getCause();
+			if (e.getCause() instanceof UploadException) {
+				throw (UploadException)e.getCause();
 			} else {
 				throw new UploadException(e);
 			}
 		} catch (InterruptedException e) {
 			throw new UploadException(e);
+		} finally {
+			// stop anything left over if an upload failed
+			submitted.forEach(f -> f.cancel(true));
 		}
+	}
 
-		return datasetLibraryIdsMap;
+	/**
+	 * Waits for a task on the upload thread pool to finish.
+	 * 
+	 * @param future
+	 *            The task.
+	 * @param deadline
+	 *            The time (from {@link System#nanoTime()}) to wait until.
+	 * @return The result of the task.
+	 * @throws TimeoutException
+	 *             If the task hasn't finished by the deadline.
+	 * @throws ExecutionException
+	 *             If the task failed.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	private static <T> T getBefore(Future<T> future, long deadline)
+			throws TimeoutException, ExecutionException, InterruptedException {
+		return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
 	}
 	
 	/**
@@ -2,7 +2,7 @@ package ca.corefacility.bioinformatics.irida.processing;
 
 import java.util.List;
 
-import ca.corefacility.bioinformatics.irida.exceptions.FileProcessorTimeoutException;
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 
 /**
@@ -21,11 +21,10 @@ public interface FileProcessingChain {
 	 * @return any {@link Exception} thrown during chain processing (in the same
 	 *         order as {@link FileProcessor} returned by
 	 *         {@link #getFileProcessors()}).
-	 * @throws FileProcessorTimeoutException
-	 *             when the processor chain waits too long for the specified
-	 *             {@link SequencingObject} to appear in the database.
+	 * @throws EntityNotFoundException
+	 *             if the {@link SequencingObject} doesn't exist.
 	 */
-	public List<Exception> launchChain(Long sequencingObjectId) throws FileProcessorTimeoutException;
+	public List<Exception> launchChain(Long sequencingObjectId);
 
 	/**
 	 * Get the collection of {@link FileProcessor} that this
@@ -46,22 +45,22 @@ public interface FileProcessingChain {
 	public void setFastFail(Boolean fastFail);
 
 	/**
-	 * Set the total amount of time (in seconds) that the processor chain should
-	 * wait for the {@link SequencingObject} to appear before failing.
-	 * 
-	 * @param timeout
-	 *            the total amount of time in seconds that the processor chain
-	 *            should wait.
+	 * Set whether or not the {@link FileProcessingChain} should run
+	 * consecutive {@link StreamingFileProcessor}s with a single read of each
+	 * file.
+	 *
+	 * @param streaming
+	 *            whether or not the chain should stream files to its
+	 *            processors.
 	 */
-	public void setTimeout(Integer timeout);
+	public void setStreaming(Boolean streaming);
 
 	/**
-	 * Set the amount of time (in seconds) that the processor chain should sleep
-	 * each time it sleeps.
-	 * 
-	 * @param sleepDuration
-	 *            the amount of time in seconds that the processor chain should
-	 *            wait.
+	 * Set the {@link SequenceFileTaskRunner} used to read the files of a
+	 * {@link SequencingObject} when streaming.
+	 *
+	 * @param fileTaskRunner
+	 *            the {@link SequenceFileTaskRunner} to use
 	 */
-	public void setSleepDuration(Integer sleepDuration);
+	public void setFileTaskRunner(SequenceFileTaskRunner fileTaskRunner);
 }
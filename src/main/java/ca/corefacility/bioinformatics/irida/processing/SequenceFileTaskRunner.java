@@ -0,0 +1,150 @@
+package ca.corefacility.bioinformatics.irida.processing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+
+/**
+ * Runs a task against each {@link SequenceFile} in a {@link SequencingObject}.
+ * By default the files are handled one after another on the calling thread.
+ * When created with a number of threads, the files are handled concurrently on
+ * a bounded pool shared by every {@link FileProcessor} so that both files in a
+ * pair are read at the same time.
+ * <p>
+ * Tasks should only compute results. Anything that must be persisted should
+ * be saved by the calling thread once {@link #run(Collection, FileTask)}
+ * returns, since the tasks don't run in the caller's transaction.
+ */
+public class SequenceFileTaskRunner {
+	private static final Logger logger = LoggerFactory.getLogger(SequenceFileTaskRunner.class);
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create a {@link SequenceFileTaskRunner} that handles files one after
+	 * another on the calling thread.
+	 */
+	public SequenceFileTaskRunner() {
+		this.pool = null;
+	}
+
+	/**
+	 * Create a {@link SequenceFileTaskRunner} that handles files concurrently.
+	 *
+	 * @param threads
+	 *            the maximum number of files handled at once across all
+	 *            {@link SequencingObject}s. If less than 2, files are handled
+	 *            one after another.
+	 */
+	public SequenceFileTaskRunner(int threads) {
+		if (threads > 1) {
+			this.pool = new ForkJoinPool(threads, p -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setName("file-processing-" + thread.getPoolIndex());
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}, null, false);
+		} else {
+			this.pool = null;
+		}
+	}
+
+	/**
+	 * A task to run against a single {@link SequenceFile}
+	 *
+	 * @param <T>
+	 *            the type of result computed for the file
+	 */
+	@FunctionalInterface
+	public interface FileTask<T> {
+		/**
+		 * Compute the result for a single file
+		 *
+		 * @param file
+		 *            the {@link SequenceFile} to handle
+		 * @return the result for the file
+		 * @throws Exception
+		 *             if the file could not be handled
+		 */
+		public T apply(SequenceFile file) throws Exception;
+	}
+
+	/**
+	 * Whether files are handled concurrently
+	 *
+	 * @return true if files are handled concurrently
+	 */
+	public boolean isParallel() {
+		return pool != null;
+	}
+
+	/**
+	 * Run the task for every file and wait for all of them to finish.
+	 *
+	 * @param files
+	 *            the files to handle
+	 * @param task
+	 *            the task to run for each file
+	 * @param <T>
+	 *            the type of result computed for each file
+	 * @return the result for each file, in the iteration order of the files
+	 * @throws Exception
+	 *             the exception thrown by the first failed task. The remaining
+	 *             tasks are still allowed to finish.
+	 */
+	public <T> Map<SequenceFile, T> run(Collection<SequenceFile> files, FileTask<T> task) throws Exception {
+		Map<SequenceFile, T> results = new LinkedHashMap<>();
+
+		if (pool == null || files.size() < 2) {
+			for (SequenceFile file : files) {
+				results.put(file, task.apply(file));
+			}
+			return results;
+		}
+
+		List<Future<T>> futures = new ArrayList<>(files.size());
+		for (SequenceFile file : files) {
+			futures.add(pool.submit(() -> task.apply(file)));
+		}
+
+		Exception failure = null;
+		int i = 0;
+		for (SequenceFile file : files) {
+			try {
+				results.put(file, futures.get(i++).get());
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+
+		if (failure != null) {
+			throw failure;
+		}
+
+		return results;
+	}
+
+	/**
+	 * Stop the shared pool
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			logger.debug("Shutting down file processing pool");
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package ca.corefacility.bioinformatics.irida.processing;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+
+/**
+ * A {@link FileProcessor} that can take part in a single, shared read of each
+ * {@link SequenceFile}. When the {@link FileProcessingChain} runs in streaming
+ * mode, consecutive {@link StreamingFileProcessor}s in the chain are fused:
+ * every {@link SequenceFile} is read from disk exactly once and the bytes are
+ * handed to a {@link StreamConsumer} opened by each processor. Once the whole
+ * file has been read, the chain asks each processor (in chain order) to persist
+ * what its consumer gathered.
+ *
+ * @param <C>
+ *            the type of {@link StreamConsumer} used by this processor.
+ */
+public interface StreamingFileProcessor<C extends StreamingFileProcessor.StreamConsumer> extends FileProcessor {
+
+	/**
+	 * The content of the file that a {@link StreamConsumer} is given.
+	 */
+	public enum StreamContent {
+		/**
+		 * The bytes exactly as they are stored on disk.
+		 */
+		STORED,
+		/**
+		 * The bytes after gzip decompression. If the file is not compressed,
+		 * this is the same as {@link #STORED}.
+		 */
+		DECOMPRESSED
+	}
+
+	/**
+	 * Receives the bytes of a {@link SequenceFile} while the file is being
+	 * read.
+	 */
+	public interface StreamConsumer extends Closeable {
+
+		/**
+		 * Consume the next block of bytes from the file.
+		 *
+		 * @param buffer
+		 *            the buffer holding the bytes. The buffer is re-used
+		 *            after this method returns.
+		 * @param offset
+		 *            the offset of the first byte in the buffer
+		 * @param length
+		 *            the number of bytes to consume
+		 * @throws IOException
+		 *             if the bytes could not be consumed
+		 */
+		public void accept(byte[] buffer, int offset, int length) throws IOException;
+
+		/**
+		 * Signal that there are no more bytes in the file.
+		 *
+		 * @throws IOException
+		 *             if the consumer could not finish handling the file
+		 */
+		public default void finish() throws IOException {
+		}
+
+		/**
+		 * Release any resources held by the consumer.
+		 */
+		@Override
+		public default void close() throws IOException {
+		}
+
+		/**
+		 * Remove anything the consumer left behind for
+		 * {@link StreamingFileProcessor#completeStream(SequenceFile, StreamConsumer)}.
+		 * Called after {@link #close()} when the results of the consumer won't
+		 * be persisted.
+		 *
+		 * @throws IOException
+		 *             if the consumer could not clean up
+		 */
+		public default void discard() throws IOException {
+		}
+	}
+
+	/**
+	 * Which version of the file contents this processor wants to consume.
+	 *
+	 * @return the {@link StreamContent} for this processor
+	 */
+	public StreamContent getStreamContent();
+
+	/**
+	 * Whether this processor can take part in a single shared read of the
+	 * files in the {@link SequencingObject}. If any processor cannot, the
+	 * processors are run one after another in the usual way.
+	 *
+	 * @param sequencingObject
+	 *            the {@link SequencingObject} to check
+	 * @return true if the files can be streamed to this processor
+	 */
+	public default boolean canStream(SequencingObject sequencingObject) {
+		return true;
+	}
+
+	/**
+	 * Open a {@link StreamConsumer} for a single {@link SequenceFile}.
+	 *
+	 * @param sequenceFile
+	 *            the {@link SequenceFile} that is about to be read
+	 * @param compressed
+	 *            whether the file is stored gzip compressed
+	 * @return the {@link StreamConsumer} for the file, or <code>null</code> if
+	 *         this processor has nothing to do for the file
+	 * @throws IOException
+	 *             if the consumer could not be opened
+	 */
+	public C openStream(SequenceFile sequenceFile, boolean compressed) throws IOException;
+
+	/**
+	 * Persist the results gathered by a {@link StreamConsumer} once the whole
+	 * file has been read. Like {@link #process(SequencingObject)}, the
+	 * processor is responsible for persisting any changes it makes.
+	 *
+	 * @param sequenceFile
+	 *            the {@link SequenceFile} that was read
+	 * @param consumer
+	 *            the {@link StreamConsumer} returned by
+	 *            {@link #openStream(SequenceFile, boolean)} for the file
+	 * @throws FileProcessorException
+	 *             when processing fails.
+	 */
+	public void completeStream(SequenceFile sequenceFile, C consumer);
+}
@@ -23,6 +23,7 @@ import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectSa
 import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleSequencingObjectJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsService;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,7 @@ import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -93,6 +95,11 @@ public class AutomatedAnalysisFileProcessor implements FileProcessor {
 			List<Join<Project, Sample>> projectsForSample = psjRepository.getProjectForSample(
 					sampleForSequencingObject.getSubject());
 
+			//the submissions to create, the project each is shared with and the templates they came from
+			List<AnalysisSubmission> submissions = new ArrayList<>();
+			List<Project> submissionProjects = new ArrayList<>();
+			List<AnalysisSubmissionTemplate> launchedTemplates = new ArrayList<>();
+
 			//for each project
 			for (Join<Project, Sample> j : projectsForSample) {
 				//get the analysis templates for this project
@@ -124,28 +131,38 @@ public class AutomatedAnalysisFileProcessor implements FileProcessor {
 							builder.priority(AnalysisSubmission.Priority.LOW);
 						}
 
-						//build the submission and save it
-						AnalysisSubmission submission = builder.inputFiles(Sets.newHashSet(sequencingObject))
-								.build();
-						submission = submissionRepository.save(submission);
+						//build the submission, it's saved with the rest below
+						submissions.add(builder.inputFiles(Sets.newHashSet(sequencingObject))
+								.build());
+						submissionProjects.add(project);
+						launchedTemplates.add(template);
+					}
+				}
 
-						//share submission back to the project
-						pasRepository.save(new ProjectAnalysisSubmissionJoin(project, submission));
+			}
 
-						//check if we have to do any legacy updates
-						legacyFileProcessorCompatibility(submission, sequencingObject);
+			if (!submissions.isEmpty()) {
+				//save all the submissions together
+				List<AnalysisSubmission> saved = Lists.newArrayList(submissionRepository.saveAll(submissions));
 
-						//set the status message for the template
-						String date = LAUNCHED_DATE_FORMAT.format(new Date());
-						String message = messageSource.getMessage("analysis.template.status.lastlaunched",
-								new Object[] { date }, Locale.getDefault());
-						template.setStatusMessage(message);
+				//share each submission back to its project
+				List<ProjectAnalysisSubmissionJoin> shares = new ArrayList<>(saved.size());
+				for (int i = 0; i < saved.size(); i++) {
+					shares.add(new ProjectAnalysisSubmissionJoin(submissionProjects.get(i), saved.get(i)));
+				}
+				pasRepository.saveAll(shares);
 
-						//re-save the template
-						analysisTemplateRepository.save(template);
-					}
+				//check if we have to do any legacy updates
+				for (AnalysisSubmission submission : saved) {
+					legacyFileProcessorCompatibility(submission, sequencingObject);
 				}
 
+				//set the status message for the templates and re-save them
+				String date = LAUNCHED_DATE_FORMAT.format(new Date());
+				String message = messageSource.getMessage("analysis.template.status.lastlaunched",
+						new Object[] { date }, Locale.getDefault());
+				launchedTemplates.forEach(template -> template.setStatusMessage(message));
+				analysisTemplateRepository.saveAll(launchedTemplates);
 			}
 		} else {
 			logger.warn("Cannot find sample for sequencing object " + sequencingObject.getId()
@@ -1,10 +1,13 @@
 package ca.corefacility.bioinformatics.irida.processing.impl;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.Set;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,18 +18,23 @@ import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFileRepository;
 
 /**
  * {@link FileProcessor} used to calculate a checksum using sha256 for uploaded
- * {@link SequenceFile}s
+ * {@link SequenceFile}s. The CRC-32 of the file is computed at the same time so
+ * that compressed files can be added to zip downloads without reading them
+ * twice.
  */
 @Component
-public class ChecksumFileProcessor implements FileProcessor {
+public class ChecksumFileProcessor implements StreamingFileProcessor<ChecksumFileProcessor.ChecksumConsumer> {
 	private static final Logger logger = LoggerFactory.getLogger(ChecksumFileProcessor.class);
 
 	private SequenceFileRepository fileRepository;
 
+	private SequenceFileTaskRunner fileTaskRunner = new SequenceFileTaskRunner();
 
 	@Autowired
 	public ChecksumFileProcessor(SequenceFileRepository fileRepository) {
@@ -34,8 +42,8 @@ public class ChecksumFileProcessor implements FileProcessor {
 	}
 
 	/**
-	 * Create an sha256sum for the files in a {@link SequencingObject} and save
-	 * it with the file.
+	 * Create an sha256sum and CRC-32 for the files in a {@link SequencingObject}
+	 * and save them with the file.
 	 * 
 	 * @param sequencingObject
 	 *            the {@link SequencingObject} to modify
@@ -45,21 +53,72 @@ public class ChecksumFileProcessor implements FileProcessor {
 	 */
 	@Override
 	public void process(SequencingObject sequencingObject) {
-		Set<SequenceFile> files = sequencingObject.getFiles();
+		Map<SequenceFile, Checksums> checksums;
+		try {
+			checksums = fileTaskRunner.run(sequencingObject.getFiles(), file -> {
+				try (CheckedInputStream is = new CheckedInputStream(Files.newInputStream(file.getFile()),
+						new CRC32())) {
+					String sha = DigestUtils.sha256Hex(is);
+					return new Checksums(sha, is.getChecksum().getValue());
+				}
+			});
+		} catch (Exception e) {
+			throw new FileProcessorException("could not calculate checksum", e);
+		}
 
-		for (SequenceFile file : files) {
+		checksums.forEach(this::saveChecksum);
+	}
 
-			try (InputStream is = Files.newInputStream(file.getFile())) {
-				String shaDigest = DigestUtils.sha256Hex(is);
-				logger.trace("Checksum generated for file " + file.getId() + ": " + shaDigest);
-				file.setUploadSha256(shaDigest);
+	/**
+	 * Set the {@link SequenceFileTaskRunner} used to read the files in a
+	 * {@link SequencingObject}
+	 *
+	 * @param fileTaskRunner
+	 *            the {@link SequenceFileTaskRunner} to use
+	 */
+	public void setFileTaskRunner(SequenceFileTaskRunner fileTaskRunner) {
+		this.fileTaskRunner = fileTaskRunner;
+	}
 
-				fileRepository.saveMetadata(file);
-			} catch (IOException e) {
-				throw new FileProcessorException("could not calculate checksum", e);
-			}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamContent getStreamContent() {
+		return StreamContent.STORED;
+	}
 
-		}
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ChecksumConsumer openStream(SequenceFile sequenceFile, boolean compressed) {
+		return new ChecksumConsumer();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void completeStream(SequenceFile sequenceFile, ChecksumConsumer consumer) {
+		saveChecksum(sequenceFile,
+				new Checksums(Hex.encodeHexString(consumer.digest.digest()), consumer.crc.getValue()));
+	}
+
+	/**
+	 * Set the checksums on a {@link SequenceFile} and save it.
+	 *
+	 * @param file
+	 *            the {@link SequenceFile} to update
+	 * @param checksums
+	 *            the checksums of the file
+	 */
+	private void saveChecksum(SequenceFile file, Checksums checksums) {
+		logger.trace("Checksum generated for file " + file.getId() + ": " + checksums.sha256);
+		file.setUploadSha256(checksums.sha256);
+		file.setCrc32(checksums.crc32);
+
+		fileRepository.saveMetadata(file);
 	}
 
 	/**
@@ -70,4 +129,31 @@ public class ChecksumFileProcessor implements FileProcessor {
 		return false;
 	}
 
+	/**
+	 * {@link StreamConsumer} that computes the sha256 and CRC-32 of the file as
+	 * it is read.
+	 */
+	public static class ChecksumConsumer implements StreamConsumer {
+		private final MessageDigest digest = DigestUtils.getSha256Digest();
+		private final CRC32 crc = new CRC32();
+
+		@Override
+		public void accept(byte[] buffer, int offset, int length) {
+			digest.update(buffer, offset, length);
+			crc.update(buffer, offset, length);
+		}
+	}
+
+	/**
+	 * The checksums computed for a file
+	 */
+	private static class Checksums {
+		private final String sha256;
+		private final long crc32;
+
+		public Checksums(String sha256, long crc32) {
+			this.sha256 = sha256;
+			this.crc32 = crc32;
+		}
+	}
 }
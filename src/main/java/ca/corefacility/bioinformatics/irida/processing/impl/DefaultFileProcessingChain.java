@@ -1,24 +1,28 @@
 package ca.corefacility.bioinformatics.irida.processing.impl;
 
-import java.nio.file.Files;
-import java.util.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ca.corefacility.bioinformatics.irida.exceptions.FileProcessorTimeoutException;
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.sample.FileProcessorErrorQCEntry;
-import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessingChain;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
 import ca.corefacility.bioinformatics.irida.repositories.sample.QCEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 
 /**
  * Default implementation of {@link FileProcessingChain}. Simply iterates
- * through a collection of {@link FileProcessor}.
+ * through a collection of {@link FileProcessor}. In streaming mode, consecutive
+ * {@link StreamingFileProcessor}s are run with a single read of each file.
  * 
  * 
  */
@@ -30,9 +34,9 @@ public class DefaultFileProcessingChain implements FileProcessingChain {
 
 	private Boolean fastFail = false;
 
-	private Integer timeout = 60;
+	private Boolean streaming = false;
 
-	private Integer sleepDuration = 1000;
+	private SequenceFileTaskRunner fileTaskRunner = new SequenceFileTaskRunner();
 
 	private final SequencingObjectRepository sequencingObjectRepository;
 	private QCEntryRepository qcRepository;
@@ -53,55 +57,38 @@ public class DefaultFileProcessingChain implements FileProcessingChain {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public List<Exception> launchChain(Long sequencingObjectId) throws FileProcessorTimeoutException {
+	public List<Exception> launchChain(Long sequencingObjectId) {
 		List<Exception> ignoredExceptions = new ArrayList<>();
-		Integer waiting = 0;
-
-		// this class is typically launched in a thread after a file has been
-		// initially saved to the database, but not necessarily before the
-		// transaction has completed and closed, so we need to block until the
-		// file has been persisted in the database.
-		while (!sequencingObjectRepository.existsById(sequencingObjectId)) {
-			if (waiting > timeout) {
-				throw new FileProcessorTimeoutException(
-						"Waiting for longer than " + sleepDuration * timeout + "ms, bailing out.");
-			}
 
-			waiting++;
+		// the chain is only launched for objects that have been claimed in a
+		// committed transaction, so the object and its files are already in
+		// place and there's nothing to wait for.
+		getSequencingObject(sequencingObjectId);
 
-			try {
-				Thread.sleep(sleepDuration);
-			} catch (InterruptedException e) {
+		// processors before this position are run one at a time
+		int streamFrom = 0;
+		for (int i = 0; i < fileProcessors.size(); i++) {
+			FileProcessor fileProcessor = fileProcessors.get(i);
+
+			if (streaming && i >= streamFrom && fileProcessor instanceof StreamingFileProcessor) {
+				List<StreamingFileProcessor<?>> streamingProcessors = getStreamingProcessors(i);
+				streamFrom = i + streamingProcessors.size();
+
+				if (streamingProcessors.size() > 1 && runStreamingProcessors(sequencingObjectId, streamingProcessors,
+						ignoredExceptions)) {
+					i = streamFrom - 1;
+					continue;
+				}
 			}
-		}
 
-		for (FileProcessor fileProcessor : fileProcessors) {
 			try {
-				SequencingObject settledSequencingObject = getSettledSequencingObject(sequencingObjectId);
+				SequencingObject sequencingObject = getSequencingObject(sequencingObjectId);
 
-				if (fileProcessor.shouldProcessFile(settledSequencingObject)) {
-					fileProcessor.process(settledSequencingObject);
+				if (fileProcessor.shouldProcessFile(sequencingObject)) {
+					fileProcessor.process(sequencingObject);
 				}
 			} catch (FileProcessorException e) {
-				SequencingObject sequencingObject = sequencingObjectRepository.findById(sequencingObjectId).orElse(null);
-
-				qcRepository.save(new FileProcessorErrorQCEntry(sequencingObject));
-
-				// if the file processor modifies the file, then just fast fail,
-				// we can't proceed with the remaining file processors. If the
-				// file processor *doesn't* modify the file, then continue with
-				// execution (show the error, but proceed).
-				if (fileProcessor.modifiesFile() || fastFail) {
-					sequencingObject.setProcessingState(SequencingObject.ProcessingState.ERROR);
-					sequencingObjectRepository.save(sequencingObject);
-
-					throw e;
-				} else {
-					ignoredExceptions.add(e);
-					logger.error("File processor [" + fileProcessor.getClass() + "] failed to process ["
-							+ sequencingObjectId + "], but proceeding with the remaining processors because the "
-							+ "file would not be modified by the processor: " + e.getMessage());
-				}
+				handleProcessorException(fileProcessor, sequencingObjectId, e, ignoredExceptions);
 			}
 		}
 
@@ -113,6 +100,115 @@ public class DefaultFileProcessingChain implements FileProcessingChain {
 		return ignoredExceptions;
 	}
 
+	/**
+	 * Handle a {@link FileProcessorException} thrown by a {@link FileProcessor}
+	 * in the chain. If the processor modifies the file (or the chain is set to
+	 * fast fail) the {@link SequencingObject} is marked as being in error and
+	 * the exception is re-thrown, otherwise the exception is recorded and the
+	 * chain continues.
+	 *
+	 * @param fileProcessor
+	 *            the {@link FileProcessor} that failed
+	 * @param sequencingObjectId
+	 *            the id of the {@link SequencingObject} being processed
+	 * @param e
+	 *            the exception thrown by the processor
+	 * @param ignoredExceptions
+	 *            the exceptions ignored so far in the chain
+	 */
+	private void handleProcessorException(FileProcessor fileProcessor, Long sequencingObjectId,
+			FileProcessorException e, List<Exception> ignoredExceptions) {
+		SequencingObject sequencingObject = sequencingObjectRepository.findById(sequencingObjectId).orElse(null);
+
+		qcRepository.save(new FileProcessorErrorQCEntry(sequencingObject));
+
+		// if the file processor modifies the file, then just fast fail,
+		// we can't proceed with the remaining file processors. If the
+		// file processor *doesn't* modify the file, then continue with
+		// execution (show the error, but proceed).
+		if (fileProcessor.modifiesFile() || fastFail) {
+			sequencingObject.setProcessingState(SequencingObject.ProcessingState.ERROR);
+			sequencingObjectRepository.save(sequencingObject);
+
+			throw e;
+		} else {
+			ignoredExceptions.add(e);
+			logger.error("File processor [" + fileProcessor.getClass() + "] failed to process [" + sequencingObjectId
+					+ "], but proceeding with the remaining processors because the "
+					+ "file would not be modified by the processor: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the run of consecutive {@link StreamingFileProcessor}s in the chain
+	 * starting at the given position.
+	 *
+	 * @param start
+	 *            the position of the first {@link StreamingFileProcessor}
+	 * @return the consecutive {@link StreamingFileProcessor}s
+	 */
+	private List<StreamingFileProcessor<?>> getStreamingProcessors(int start) {
+		List<StreamingFileProcessor<?>> streamingProcessors = new ArrayList<>();
+
+		for (int i = start; i < fileProcessors.size() && fileProcessors.get(i) instanceof StreamingFileProcessor; i++) {
+			streamingProcessors.add((StreamingFileProcessor<?>) fileProcessors.get(i));
+		}
+
+		return streamingProcessors;
+	}
+
+	/**
+	 * Run a group of {@link StreamingFileProcessor}s with a single read of each
+	 * file in the {@link SequencingObject}. If the files can't be streamed, or
+	 * reading fails, nothing is persisted and the caller should run the
+	 * processors one at a time instead.
+	 *
+	 * @param sequencingObjectId
+	 *            the id of the {@link SequencingObject} to process
+	 * @param streamingProcessors
+	 *            the processors to run, in chain order
+	 * @param ignoredExceptions
+	 *            the exceptions ignored so far in the chain
+	 * @return true if the processors were run, false if they should be run one
+	 *         at a time
+	 */
+	private boolean runStreamingProcessors(Long sequencingObjectId,
+			List<StreamingFileProcessor<?>> streamingProcessors, List<Exception> ignoredExceptions) {
+		SequencingObject sequencingObject = getSequencingObject(sequencingObjectId);
+
+		List<StreamingFileProcessor<?>> processorsToRun = new ArrayList<>();
+		for (StreamingFileProcessor<?> processor : streamingProcessors) {
+			if (processor.shouldProcessFile(sequencingObject)) {
+				if (!processor.canStream(sequencingObject)) {
+					logger.debug("File processor [" + processor.getClass() + "] can't stream [" + sequencingObjectId
+							+ "], running processors separately.");
+					return false;
+				}
+				processorsToRun.add(processor);
+			}
+		}
+
+		StreamingFileProcessingPass pass = new StreamingFileProcessingPass(sequencingObject, processorsToRun,
+				fileTaskRunner);
+		try {
+			pass.read();
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Single pass read of [" + sequencingObjectId
+					+ "] failed, running processors separately: " + e.getMessage());
+			return false;
+		}
+
+		for (StreamingFileProcessor<?> processor : processorsToRun) {
+			try {
+				pass.complete(processor);
+			} catch (FileProcessorException e) {
+				handleProcessorException(processor, sequencingObjectId, e, ignoredExceptions);
+			}
+		}
+
+		return true;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -128,59 +224,30 @@ public class DefaultFileProcessingChain implements FileProcessingChain {
 	/**
 	 * {@inheritDoc}
 	 */
-	public void setTimeout(Integer timeout) {
-		this.timeout = timeout;
+	public void setStreaming(Boolean streaming) {
+		this.streaming = streaming;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public void setSleepDuration(Integer sleepDuration) {
-		this.sleepDuration = sleepDuration * 1000;
+	public void setFileTaskRunner(SequenceFileTaskRunner fileTaskRunner) {
+		this.fileTaskRunner = fileTaskRunner;
 	}
 
 	/**
-	 * Checks the {@link SequenceFile}s for the given {@link SequencingObject}
-	 * to see if it's files are in the place they should be. Since there's lots
-	 * of saves going on during the {@link FileProcessingChain} the transaction
-	 * might not be complete in the time the file is first read.
-	 * 
+	 * Read the {@link SequencingObject} again before each processor, as the
+	 * processors before it may have changed its files.
+	 *
 	 * @param sequencingObjectId
-	 *            the id of the {@link SequencingObject} to check
-	 * @return the settled {@link SequencingObject}
-	 * @throws FileProcessorTimeoutException
-	 *             if the files don't settle in the configured timeout
+	 *            the id of the {@link SequencingObject} to read
+	 * @return the {@link SequencingObject}
+	 * @throws EntityNotFoundException
+	 *             if the {@link SequencingObject} was removed
 	 */
-	private SequencingObject getSettledSequencingObject(Long sequencingObjectId) throws FileProcessorTimeoutException {
-		boolean filesNotSettled = true;
-
-		Integer waiting = 0;
-
-		Optional<SequencingObject> sequencingObject;
-
-		do {
-			if (waiting > timeout) {
-				throw new FileProcessorTimeoutException("Waiting for longer than " + sleepDuration * timeout
-						+ "ms, bailing out.  File id " + sequencingObjectId);
-			}
-
-			waiting++;
-
-			try {
-				Thread.sleep(sleepDuration);
-			} catch (InterruptedException e) {
-			}
-
-			sequencingObject = sequencingObjectRepository.findById(sequencingObjectId);
-
-			if(sequencingObject.isPresent()) {
-				Set<SequenceFile> files = sequencingObject.get().getFiles();
-				filesNotSettled = files.stream().anyMatch(f -> {
-					return !Files.exists(f.getFile());
-				});
-			}
-		} while (filesNotSettled);
-
-		return sequencingObject.get();
+	private SequencingObject getSequencingObject(Long sequencingObjectId) {
+		return sequencingObjectRepository.findById(sequencingObjectId)
+				.orElseThrow(() -> new EntityNotFoundException(
+						"Sequencing object [" + sequencingObjectId + "] no longer exists"));
 	}
 }
@@ -0,0 +1,221 @@
+package ca.corefacility.bioinformatics.irida.processing.impl;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.stereotype.Component;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.BoxPlotSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.LineSeries;
+import uk.ac.babraham.FastQC.Graphs.LineGraph;
+import uk.ac.babraham.FastQC.Graphs.QualityBoxPlot;
+
+/**
+ * Draws the charts for an {@link AnalysisFastQC} from its
+ * {@link FastQCChartData} when they're requested. The most recently drawn
+ * charts are kept in memory. Analyses that were created with chart images
+ * return the stored images.
+ */
+@Component
+public class FastQCChartRenderer {
+	public static final int WIDTH = 800;
+	public static final int HEIGHT = 600;
+
+	private static final int DEFAULT_CACHE_SIZE = 256;
+
+	private enum Chart {
+		PER_BASE_QUALITY_SCORES, PER_SEQUENCE_QUALITY_SCORES, DUPLICATION_LEVELS
+	}
+
+	private final Map<ChartKey, byte[]> charts;
+
+	/**
+	 * Create a renderer that keeps the default number of charts in memory
+	 */
+	public FastQCChartRenderer() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Create a renderer
+	 *
+	 * @param cacheSize
+	 *            the number of drawn charts to keep in memory
+	 */
+	public FastQCChartRenderer(final int cacheSize) {
+		this.charts = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ChartKey, byte[]> eldest) {
+				return size() > cacheSize;
+			}
+		});
+	}
+
+	/**
+	 * Get the per-base quality score chart for an analysis
+	 *
+	 * @param analysis
+	 *            the {@link AnalysisFastQC}
+	 * @return a PNG-formatted byte array for the per-base quality scores.
+	 * @throws IOException
+	 *             if the chart could not be drawn
+	 */
+	public byte[] getPerBaseQualityScoreChart(AnalysisFastQC analysis) throws IOException {
+		FastQCChartData data = analysis.getChartData();
+		if (data == null) {
+			return analysis.getPerBaseQualityScoreChart();
+		}
+
+		ChartKey key = new ChartKey(analysis.getId(), Chart.PER_BASE_QUALITY_SCORES);
+		byte[] chart = getCached(key);
+		if (chart == null) {
+			chart = render(data.getPerBaseQualityScores());
+			cache(key, chart);
+		}
+		return chart;
+	}
+
+	/**
+	 * Get the per-sequence quality score chart for an analysis
+	 *
+	 * @param analysis
+	 *            the {@link AnalysisFastQC}
+	 * @return a PNG-formatted byte array for the per-sequence quality scores.
+	 * @throws IOException
+	 *             if the chart could not be drawn
+	 */
+	public byte[] getPerSequenceQualityScoreChart(AnalysisFastQC analysis) throws IOException {
+		FastQCChartData data = analysis.getChartData();
+		if (data == null) {
+			return analysis.getPerSequenceQualityScoreChart();
+		}
+
+		ChartKey key = new ChartKey(analysis.getId(), Chart.PER_SEQUENCE_QUALITY_SCORES);
+		byte[] chart = getCached(key);
+		if (chart == null) {
+			chart = render(data.getPerSequenceQualityScores());
+			cache(key, chart);
+		}
+		return chart;
+	}
+
+	/**
+	 * Get the duplication level chart for an analysis
+	 *
+	 * @param analysis
+	 *            the {@link AnalysisFastQC}
+	 * @return a PNG-formatted byte array for the duplication levels.
+	 * @throws IOException
+	 *             if the chart could not be drawn
+	 */
+	public byte[] getDuplicationLevelChart(AnalysisFastQC analysis) throws IOException {
+		FastQCChartData data = analysis.getChartData();
+		if (data == null) {
+			return analysis.getDuplicationLevelChart();
+		}
+
+		ChartKey key = new ChartKey(analysis.getId(), Chart.DUPLICATION_LEVELS);
+		byte[] chart = getCached(key);
+		if (chart == null) {
+			chart = render(data.getDuplicationLevels());
+			cache(key, chart);
+		}
+		return chart;
+	}
+
+	/**
+	 * Draw a box and whisker plot the same way that FastQC does
+	 *
+	 * @param series
+	 *            the values to plot
+	 * @return a PNG-formatted byte array
+	 * @throws IOException
+	 *             if the image could not be written
+	 */
+	public static byte[] render(BoxPlotSeries series) throws IOException {
+		QualityBoxPlot plot = new QualityBoxPlot(series.getMeans(), series.getMedians(), series.getLowest(),
+				series.getHighest(), series.getLowerQuartile(), series.getUpperQuartile(), series.getMinY(),
+				series.getMaxY(), series.getyInterval(), series.getxLabels(), series.getTitle());
+		BufferedImage b = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics g = b.getGraphics();
+		plot.paint(g, b.getWidth(), b.getHeight());
+
+		return writePng(b);
+	}
+
+	/**
+	 * Draw a line graph the same way that FastQC does
+	 *
+	 * @param series
+	 *            the values to plot
+	 * @return a PNG-formatted byte array
+	 * @throws IOException
+	 *             if the image could not be written
+	 */
+	public static byte[] render(LineSeries series) throws IOException {
+		LineGraph graph = new LineGraph(series.getData(), series.getMinY(), series.getMaxY(), series.getxLabel(),
+				series.getxTitles(), series.getxCategories(), series.getTitle());
+		BufferedImage b = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		Graphics g = b.getGraphics();
+		graph.paint(g, b.getWidth(), b.getHeight());
+
+		return writePng(b);
+	}
+
+	private static byte[] writePng(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "PNG", out);
+		return out.toByteArray();
+	}
+
+	private byte[] getCached(ChartKey key) {
+		return key.analysisId == null ? null : charts.get(key);
+	}
+
+	private void cache(ChartKey key, byte[] chart) {
+		// unsaved analyses can't be told apart, so don't keep their charts
+		if (key.analysisId != null) {
+			charts.put(key, chart);
+		}
+	}
+
+	/**
+	 * A chart for a specific analysis
+	 */
+	private static final class ChartKey {
+		private final Long analysisId;
+		private final Chart chart;
+
+		public ChartKey(Long analysisId, Chart chart) {
+			this.analysisId = analysisId;
+			this.chart = chart;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (o == null || getClass() != o.getClass())
+				return false;
+			ChartKey that = (ChartKey) o;
+			return Objects.equals(analysisId, that.analysisId) && chart == that.chart;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(analysisId, chart);
+		}
+	}
+}
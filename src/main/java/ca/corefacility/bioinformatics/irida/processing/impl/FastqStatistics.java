@@ -0,0 +1,55 @@
+package ca.corefacility.bioinformatics.irida.processing.impl;
+
+import java.util.Set;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.OverrepresentedSequence;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC.AnalysisFastQCBuilder;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.BoxPlotSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.LineSeries;
+
+/**
+ * The statistics gathered from every sequence in a fastq file that are stored
+ * in an {@link AnalysisFastQC}. Implemented by the FastQC library modules and
+ * by {@link NativeFastqStatistics}.
+ */
+public interface FastqStatistics {
+
+	/**
+	 * Set the basic sequence statistics (counts, lengths, encoding, GC
+	 * content) on the analysis.
+	 *
+	 * @param analysis
+	 *            the {@link AnalysisFastQCBuilder} to update
+	 */
+	public void populateBasicStats(AnalysisFastQCBuilder analysis);
+
+	/**
+	 * Get the series for the per-base quality score chart
+	 *
+	 * @return the quality scores across all bases
+	 */
+	public BoxPlotSeries getPerBaseQualityScores();
+
+	/**
+	 * Get the series for the per-sequence quality score chart
+	 *
+	 * @return the mean quality score distribution
+	 */
+	public LineSeries getPerSequenceQualityScores();
+
+	/**
+	 * Get the series for the sequence duplication level chart
+	 *
+	 * @return the sequence duplication levels
+	 */
+	public LineSeries getDuplicationLevels();
+
+	/**
+	 * Get the sequences that make up more than the FastQC warning threshold of
+	 * all sequences.
+	 *
+	 * @return the overrepresented sequences
+	 */
+	public Set<OverrepresentedSequence> getOverrepresentedSequences();
+}
@@ -1,15 +1,19 @@
 package ca.corefacility.bioinformatics.irida.processing.impl;
 
+import ca.corefacility.bioinformatics.irida.exceptions.AnalysisAlreadySetException;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.Fast5Object;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.OverrepresentedSequence;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC.AnalysisFastQCBuilder;
-import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisOutputFile;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.BoxPlotSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.LineSeries;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
-import ca.corefacility.bioinformatics.irida.repositories.analysis.AnalysisOutputFileRepository;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFileRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +22,7 @@ import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ReflectionUtils;
 import uk.ac.babraham.FastQC.FastQCApplication;
 import uk.ac.babraham.FastQC.Graphs.LineGraph;
 import uk.ac.babraham.FastQC.Graphs.QualityBoxPlot;
@@ -27,16 +32,20 @@ import uk.ac.babraham.FastQC.Sequence.QualityEncoding.PhredEncoding;
 import uk.ac.babraham.FastQC.Sequence.Sequence;
 import uk.ac.babraham.FastQC.Sequence.SequenceFactory;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.math.BigDecimal;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * Executes FastQC on a {@link SequenceFile} and stores the report in the
@@ -45,15 +54,20 @@ import java.util.Set;
  * on those fields and make them <code>public</code> to get the values.
  */
 @Component
-public class FastqcFileProcessor implements FileProcessor {
+public class FastqcFileProcessor implements StreamingFileProcessor<FastqcFileProcessor.FastqConsumer> {
 	private static final Logger logger = LoggerFactory.getLogger(FastqcFileProcessor.class);
 
 	private static final String EXECUTION_MANAGER_ANALYSIS_ID = "internal-fastqc";
 
+	private static final Pattern COLORSPACE_PATTERN = Pattern.compile("^[GATCNgatcn][\\.0123456]+$");
+
 	private final SequenceFileRepository sequenceFileRepository;
-	private final AnalysisOutputFileRepository outputFileRepository;
 	private final MessageSource messageSource;
 
+	private SequenceFileTaskRunner fileTaskRunner = new SequenceFileTaskRunner();
+
+	private boolean nativeStatistics = false;
+
 	/**
 	 * Create a new {@link FastqcFileProcessor}
 	 *
@@ -62,80 +76,194 @@ public class FastqcFileProcessor implements FileProcessor {
 	 *            description for the analysis).
 	 * @param sequenceFileRepository
 	 *            Repository for storing sequence files
-	 * @param outputFileRepository
-	 *            Repository for storing analysis output files
 	 */
 	@Autowired
-	public FastqcFileProcessor(final MessageSource messageSource, final SequenceFileRepository sequenceFileRepository,
-			AnalysisOutputFileRepository outputFileRepository) {
+	public FastqcFileProcessor(final MessageSource messageSource, final SequenceFileRepository sequenceFileRepository) {
 		this.messageSource = messageSource;
 		this.sequenceFileRepository = sequenceFileRepository;
-		this.outputFileRepository = outputFileRepository;
 	}
 
 	@Override
 	@Transactional
 	public void process(SequencingObject sequencingObject) {
-		for (SequenceFile file : sequencingObject.getFiles()) {
-			processSingleFile(file);
+		Map<SequenceFile, FastqStatistics> results;
+		try {
+			// read the files (possibly concurrently), then save the results
+			// here in the processor's transaction
+			results = fileTaskRunner.run(sequencingObject.getFiles(), this::computeStatistics);
+
+			for (Map.Entry<SequenceFile, FastqStatistics> result : results.entrySet()) {
+				saveAnalysis(result.getKey(), result.getValue());
+			}
+		} catch (Exception e) {
+			logger.error("FastQC failed to process the sequence file: " + e.getMessage());
+			throw new FileProcessorException("FastQC failed to parse the sequence file.", e);
 		}
 	}
 
 	/**
-	 * Process a single {@link SequenceFile}
+	 * Set the {@link SequenceFileTaskRunner} used to read the files in a
+	 * {@link SequencingObject}
+	 *
+	 * @param fileTaskRunner
+	 *            the {@link SequenceFileTaskRunner} to use
+	 */
+	public void setFileTaskRunner(SequenceFileTaskRunner fileTaskRunner) {
+		this.fileTaskRunner = fileTaskRunner;
+	}
+
+	/**
+	 * Set whether to compute the FastQC statistics with
+	 * {@link NativeFastqStatistics} instead of the FastQC library modules.
+	 * Files that {@link NativeFastqStatistics} can't read are still handled by
+	 * FastQC.
+	 *
+	 * @param nativeStatistics
+	 *            whether to use {@link NativeFastqStatistics}
+	 */
+	public void setNativeStatistics(boolean nativeStatistics) {
+		this.nativeStatistics = nativeStatistics;
+	}
+
+	/**
+	 * Compute the statistics for a single {@link SequenceFile}
 	 *
 	 * @param sequenceFile
 	 *            file to process
-	 * @throws FileProcessorException
-	 *             if an error occurs while processing
+	 * @return the statistics for every sequence in the file
+	 * @throws Exception
+	 *             if the file could not be read or parsed
 	 */
-	private void processSingleFile(SequenceFile sequenceFile) throws FileProcessorException {
-		Path fileToProcess = sequenceFile.getFile();
-		AnalysisFastQC.AnalysisFastQCBuilder analysis = AnalysisFastQC.builder()
-				.fastqcVersion(FastQCApplication.VERSION).executionManagerAnalysisId(EXECUTION_MANAGER_ANALYSIS_ID)
-				.description(messageSource.getMessage("fastqc.file.processor.analysis.description",
-						new Object[] { FastQCApplication.VERSION }, LocaleContextHolder.getLocale()));
-		try {
-			uk.ac.babraham.FastQC.Sequence.SequenceFile fastQCSequenceFile = SequenceFactory
-					.getSequenceFile(fileToProcess.toFile());
-			BasicStats basicStats = new BasicStats();
-			PerBaseQualityScores pbqs = new PerBaseQualityScores();
-			PerSequenceQualityScores psqs = new PerSequenceQualityScores();
-			OverRepresentedSeqs overRep = new OverRepresentedSeqs();
-			QCModule[] moduleList = new QCModule[] { basicStats, pbqs, psqs, overRep };
-
-			logger.debug("Launching FastQC analysis modules on all sequences.");
-			while (fastQCSequenceFile.hasNext()) {
-				Sequence sequence = fastQCSequenceFile.next();
-				for (QCModule module : moduleList) {
-					module.processSequence(sequence);
-				}
+	private FastqStatistics computeStatistics(SequenceFile sequenceFile) throws Exception {
+		if (nativeStatistics && isFastq(sequenceFile.getFile())) {
+			try {
+				return NativeFastqStatistics.read(sequenceFile.getFile());
+			} catch (NativeFastqStatistics.UnsupportedFastqException e) {
+				logger.debug("Falling back to FastQC for " + sequenceFile.getFile() + ": " + e.getMessage());
 			}
+		}
 
-			logger.debug("Finished FastQC analysis modules.");
+		return runModules(sequenceFile);
+	}
 
-			Path outputDirectory = Files.createTempDirectory("analysis-output");
+	/**
+	 * Run the FastQC modules over every sequence in a single
+	 * {@link SequenceFile}
+	 *
+	 * @param sequenceFile
+	 *            file to process
+	 * @return the FastQC modules that have seen every sequence in the file
+	 * @throws Exception
+	 *             if the file could not be read or parsed
+	 */
+	private FastQCModules runModules(SequenceFile sequenceFile) throws Exception {
+		Path fileToProcess = sequenceFile.getFile();
+		uk.ac.babraham.FastQC.Sequence.SequenceFile fastQCSequenceFile = SequenceFactory
+				.getSequenceFile(fileToProcess.toFile());
+		FastQCModules modules = new FastQCModules();
 
-			handleBasicStats(basicStats, analysis);
-			handlePerBaseQualityScores(pbqs, analysis, outputDirectory);
-			handlePerSequenceQualityScores(psqs, analysis, outputDirectory);
-			handleDuplicationLevel(overRep.duplicationLevelModule(), analysis, outputDirectory);
-			Set<OverrepresentedSequence> overrepresentedSequences = handleOverRepresentedSequences(overRep);
+		logger.debug("Launching FastQC analysis modules on all sequences.");
+		while (fastQCSequenceFile.hasNext()) {
+			modules.processSequence(fastQCSequenceFile.next());
+		}
+
+		logger.debug("Finished FastQC analysis modules.");
+
+		return modules;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamContent getStreamContent() {
+		return StreamContent.DECOMPRESSED;
+	}
 
-			logger.trace("Saving FastQC analysis.");
-			analysis.overrepresentedSequences(overrepresentedSequences);
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean canStream(SequencingObject sequencingObject) {
+		// only fastq files are parsed while streaming, leave anything else to
+		// the FastQC file readers
+		if (sequencingObject instanceof Fast5Object) {
+			return false;
+		}
 
-			AnalysisFastQC analysisFastQC = analysis.build();
+		return sequencingObject.getFiles().stream().allMatch(f -> isFastq(f.getFile()));
+	}
+
+	/**
+	 * Check if a file is a plain or gzip compressed fastq file, rather than
+	 * one of the other formats that FastQC reads.
+	 *
+	 * @param file
+	 *            the file to check
+	 * @return true if the file should be read as fastq
+	 */
+	private static boolean isFastq(Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		return !(name.endsWith(".bam") || name.endsWith(".sam") || name.endsWith(".fast5") || name.endsWith(".bz2"));
+	}
 
-			sequenceFile.setFastQCAnalysis(analysisFastQC);
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public FastqConsumer openStream(SequenceFile sequenceFile, boolean compressed) {
+		return new FastqConsumer(sequenceFile.getFile(), nativeStatistics);
+	}
 
-			sequenceFileRepository.saveMetadata(sequenceFile);
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public void completeStream(SequenceFile sequenceFile, FastqConsumer consumer) {
+		try {
+			saveAnalysis(sequenceFile, consumer.getStatistics());
 		} catch (Exception e) {
 			logger.error("FastQC failed to process the sequence file: " + e.getMessage());
 			throw new FileProcessorException("FastQC failed to parse the sequence file.", e);
 		}
 	}
 
+	/**
+	 * Build the {@link AnalysisFastQC} from the file statistics and save it
+	 * with the {@link SequenceFile}. The chart series are stored with the
+	 * analysis and the charts are drawn by {@link FastQCChartRenderer} when
+	 * they're viewed.
+	 *
+	 * @param sequenceFile
+	 *            the {@link SequenceFile} that was analyzed
+	 * @param statistics
+	 *            the statistics for every sequence in the file
+	 * @throws AnalysisAlreadySetException
+	 *             if the {@link SequenceFile} already has a FastQC analysis
+	 */
+	private void saveAnalysis(SequenceFile sequenceFile, FastqStatistics statistics)
+			throws AnalysisAlreadySetException {
+		AnalysisFastQC.AnalysisFastQCBuilder analysis = AnalysisFastQC.builder()
+				.fastqcVersion(FastQCApplication.VERSION).executionManagerAnalysisId(EXECUTION_MANAGER_ANALYSIS_ID)
+				.description(messageSource.getMessage("fastqc.file.processor.analysis.description",
+						new Object[] { FastQCApplication.VERSION }, LocaleContextHolder.getLocale()));
+
+		statistics.populateBasicStats(analysis);
+		analysis.chartData(new FastQCChartData(statistics.getPerBaseQualityScores(),
+				statistics.getPerSequenceQualityScores(), statistics.getDuplicationLevels()));
+		Set<OverrepresentedSequence> overrepresentedSequences = statistics.getOverrepresentedSequences();
+
+		logger.trace("Saving FastQC analysis.");
+		analysis.overrepresentedSequences(overrepresentedSequences);
+
+		AnalysisFastQC analysisFastQC = analysis.build();
+
+		sequenceFile.setFastQCAnalysis(analysisFastQC);
+
+		sequenceFileRepository.saveMetadata(sequenceFile);
+	}
+
 	/**
 	 * Handle writing the {@link BasicStats} to the database.
 	 *
@@ -144,7 +272,7 @@ public class FastqcFileProcessor implements FileProcessor {
 	 * @param analysis
 	 *            the {@link AnalysisFastQCBuilder} to update.
 	 */
-	private void handleBasicStats(BasicStats stats, AnalysisFastQCBuilder analysis) {
+	private static void handleBasicStats(BasicStats stats, AnalysisFastQCBuilder analysis) {
 		analysis.fileType(stats.getFileType());
 		analysis.encoding(PhredEncoding.getFastQEncodingOffset(stats.getLowestChar()).name());
 		analysis.minLength(stats.getMinLength());
@@ -157,60 +285,40 @@ public class FastqcFileProcessor implements FileProcessor {
 	}
 
 	/**
-	 * Handle writing the {@link PerBaseQualityScores} to the database.
+	 * Get the values plotted in a FastQC {@link QualityBoxPlot}.
 	 *
-	 * @param scores
-	 *            the {@link PerBaseQualityScores} computed by fastqc.
-	 * @param analysis
-	 *            the {@link AnalysisFastQCBuilder} to update.
+	 * @param bp
+	 *            the {@link QualityBoxPlot} chart.
+	 * @return the {@link BoxPlotSeries} for the chart.
 	 */
-	private void handlePerBaseQualityScores(PerBaseQualityScores scores, AnalysisFastQCBuilder analysis,
-			Path tempDirectory) throws IOException {
-		QualityBoxPlot bp = (QualityBoxPlot) scores.getResultsPanel();
-		BufferedImage b = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
-		Graphics g = b.getGraphics();
-		bp.paint(g, b.getWidth(), b.getHeight());
-
-		AnalysisOutputFile file = writeImageToFile(tempDirectory, b, "perBaseQualityScoreChart.png");
-		analysis.perBaseQualityScoreChart(file);
+	private static BoxPlotSeries handleBoxPlot(QualityBoxPlot bp) {
+		return new BoxPlotSeries(getField(bp, "means"), getField(bp, "medians"), getField(bp, "lowest"),
+				getField(bp, "highest"), getField(bp, "lowerQuartile"), getField(bp, "upperQuartile"),
+				getField(bp, "minY"), getField(bp, "maxY"), getField(bp, "yInterval"), getField(bp, "xLabels"),
+				getField(bp, "graphTitle"));
 	}
 
 	/**
-	 * Handle writing the {@link PerSequenceQualityScores} to the database.
+	 * Get the values plotted in a FastQC {@link LineGraph}.
 	 *
-	 * @param scores
-	 *            the {@link PerSequenceQualityScores} computed by fastqc.
-	 * @param analysis
-	 *            the {@link AnalysisFastQCBuilder} to update.
+	 * @param lg
+	 *            the {@link LineGraph} chart.
+	 * @return the {@link LineSeries} for the chart.
 	 */
-	private void handlePerSequenceQualityScores(PerSequenceQualityScores scores, AnalysisFastQCBuilder analysis,
-			Path tempDirectory) throws IOException {
-		LineGraph lg = (LineGraph) scores.getResultsPanel();
-		BufferedImage b = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
-		Graphics g = b.getGraphics();
-		lg.paint(g, b.getWidth(), b.getHeight());
-
-		AnalysisOutputFile file = writeImageToFile(tempDirectory, b, "perSequenceQualityScoreChart.png");
-		analysis.perSequenceQualityScoreChart(file);
+	private static LineSeries handleLineGraph(LineGraph lg) {
+		return new LineSeries(getField(lg, "data"), getField(lg, "minY"), getField(lg, "maxY"),
+				getField(lg, "xLabel"), getField(lg, "xTitles"), getField(lg, "xCategories"),
+				getField(lg, "graphTitle"));
 	}
 
 	/**
-	 * Handle writing the {@link DuplicationLevel} to the database.
-	 *
-	 * @param duplicationLevel
-	 *            the {@link DuplicationLevel} calculated by fastqc.
-	 * @param analysis
-	 *            the {@link AnalysisFastQCBuilder} to update.
+	 * Read a private field from a FastQC chart.
 	 */
-	private void handleDuplicationLevel(DuplicationLevel duplicationLevel, AnalysisFastQCBuilder analysis,
-			Path tempDirectory) throws IOException {
-		LineGraph lg = (LineGraph) duplicationLevel.getResultsPanel();
-		BufferedImage b = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
-		Graphics g = b.getGraphics();
-		lg.paint(g, b.getWidth(), b.getHeight());
-
-		AnalysisOutputFile file = writeImageToFile(tempDirectory, b, "duplicationLevelChart.png");
-		analysis.duplicationLevelChart(file);
+	@SuppressWarnings("unchecked")
+	private static <T> T getField(Object chart, String name) {
+		Field field = ReflectionUtils.findField(chart.getClass(), name);
+		ReflectionUtils.makeAccessible(field);
+		return (T) ReflectionUtils.getField(field, chart);
 	}
 
 	/**
@@ -221,7 +329,7 @@ public class FastqcFileProcessor implements FileProcessor {
 	 * @return a collection of {@link OverrepresentedSequence} corresponding to
 	 *         the FastQC {@link OverRepresentedSeqs}.
 	 */
-	private Set<OverrepresentedSequence> handleOverRepresentedSequences(OverRepresentedSeqs seqs) {
+	private static Set<OverrepresentedSequence> handleOverRepresentedSequences(OverRepresentedSeqs seqs) {
 
 		OverrepresentedSeq[] sequences = seqs.getOverrepresentedSequences();
 		if (sequences == null) {
@@ -241,18 +349,6 @@ public class FastqcFileProcessor implements FileProcessor {
 		return overrepresentedSequences;
 	}
 
-	private AnalysisOutputFile writeImageToFile(Path tempDirectory, BufferedImage imageBuffer, String fileName)
-			throws IOException {
-		Path filePath = tempDirectory.resolve(fileName);
-
-		ImageIO.write(imageBuffer, "PNG", filePath.toFile());
-
-		AnalysisOutputFile analysisOutputFile = outputFileRepository
-				.save(new AnalysisOutputFile(filePath, null, fileName, null));
-
-		return analysisOutputFile;
-	}
-
 	/**
 	 * {@inheritDoc}
 	 */
@@ -275,4 +371,242 @@ public class FastqcFileProcessor implements FileProcessor {
 
 		return true;
 	}
+
+	/**
+	 * The FastQC modules whose results are stored for a {@link SequenceFile}.
+	 */
+	private static class FastQCModules implements FastqStatistics {
+		private final BasicStats basicStats = new BasicStats();
+		private final PerBaseQualityScores pbqs = new PerBaseQualityScores();
+		private final PerSequenceQualityScores psqs = new PerSequenceQualityScores();
+		private final OverRepresentedSeqs overRep = new OverRepresentedSeqs();
+		private final QCModule[] moduleList = new QCModule[] { basicStats, pbqs, psqs, overRep };
+
+		public void processSequence(Sequence sequence) {
+			for (QCModule module : moduleList) {
+				module.processSequence(sequence);
+			}
+		}
+
+		@Override
+		public void populateBasicStats(AnalysisFastQCBuilder analysis) {
+			handleBasicStats(basicStats, analysis);
+		}
+
+		@Override
+		public BoxPlotSeries getPerBaseQualityScores() {
+			return handleBoxPlot((QualityBoxPlot) pbqs.getResultsPanel());
+		}
+
+		@Override
+		public LineSeries getPerSequenceQualityScores() {
+			return handleLineGraph((LineGraph) psqs.getResultsPanel());
+		}
+
+		@Override
+		public LineSeries getDuplicationLevels() {
+			return handleLineGraph((LineGraph) overRep.duplicationLevelModule().getResultsPanel());
+		}
+
+		@Override
+		public Set<OverrepresentedSequence> getOverrepresentedSequences() {
+			return handleOverRepresentedSequences(overRep);
+		}
+	}
+
+	/**
+	 * {@link StreamConsumer} that splits the decompressed file into fastq
+	 * records as it is read and runs the FastQC modules on each record. Records
+	 * are read the same way as FastQC's own fastq reader. If native statistics
+	 * are enabled, the bytes are handed to {@link NativeFastqStatistics}
+	 * instead.
+	 */
+	public static class FastqConsumer implements StreamConsumer {
+		private final FastQCModules modules;
+		private final NativeFastqStatistics nativeStatistics;
+		private final StreamedFastQFile fastQCFile;
+
+		private byte[] line = new byte[1024];
+		private int lineLength = 0;
+
+		private final String[] record = new String[4];
+		private int recordLine = 0;
+
+		public FastqConsumer(Path file, boolean nativeStatistics) {
+			this.fastQCFile = new StreamedFastQFile(file);
+			if (nativeStatistics) {
+				this.nativeStatistics = new NativeFastqStatistics();
+				this.modules = null;
+			} else {
+				this.nativeStatistics = null;
+				this.modules = new FastQCModules();
+			}
+		}
+
+		/**
+		 * Get the statistics gathered from the file
+		 *
+		 * @return the statistics for every sequence in the file
+		 */
+		private FastqStatistics getStatistics() {
+			return nativeStatistics != null ? nativeStatistics : modules;
+		}
+
+		@Override
+		public void accept(byte[] buffer, int offset, int length) throws IOException {
+			if (nativeStatistics != null) {
+				nativeStatistics.accept(ByteBuffer.wrap(buffer, offset, length));
+				return;
+			}
+
+			int end = offset + length;
+			for (int i = offset; i < end; i++) {
+				byte b = buffer[i];
+				if (b == '\n') {
+					handleLine();
+				} else {
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, line.length * 2);
+					}
+					line[lineLength++] = b;
+				}
+			}
+		}
+
+		@Override
+		public void finish() throws IOException {
+			if (nativeStatistics != null) {
+				nativeStatistics.finish();
+				return;
+			}
+
+			if (lineLength > 0) {
+				handleLine();
+			}
+
+			if (recordLine != 0) {
+				throw new IOException(
+						"Ran out of data in the middle of a fastq entry.  Your file is probably truncated");
+			}
+		}
+
+		/**
+		 * Handle a complete line from the file.
+		 */
+		private void handleLine() throws IOException {
+			int length = lineLength;
+			if (length > 0 && line[length - 1] == '\r') {
+				length--;
+			}
+			lineLength = 0;
+
+			// allow for blank lines between entries
+			if (recordLine == 0 && length == 0) {
+				return;
+			}
+
+			record[recordLine] = new String(line, 0, length, StandardCharsets.ISO_8859_1);
+
+			if (recordLine == 0 && !record[0].startsWith("@")) {
+				throw new IOException("ID line didn't start with '@'");
+			} else if (recordLine == 2 && !record[2].startsWith("+")) {
+				throw new IOException("Midline '" + record[2] + "' didn't start with '+'");
+			}
+
+			recordLine++;
+			if (recordLine == 4) {
+				recordLine = 0;
+				handleRecord();
+			}
+		}
+
+		/**
+		 * Run the FastQC modules on a complete fastq record.
+		 */
+		private void handleRecord() throws IOException {
+			String sequence = record[1];
+
+			// FastQC converts colorspace data, which we don't handle while
+			// streaming
+			if (!fastQCFile.checkedColorspace) {
+				fastQCFile.checkedColorspace = true;
+				if (COLORSPACE_PATTERN.matcher(sequence).find()) {
+					throw new IOException("Colorspace data can't be streamed");
+				}
+			}
+
+			fastQCFile.add(sequence.toUpperCase(), record[3], record[0]);
+			while (fastQCFile.hasNext()) {
+				modules.processSequence(fastQCFile.next());
+			}
+		}
+	}
+
+	/**
+	 * A FastQC {@link uk.ac.babraham.FastQC.Sequence.SequenceFile} over the
+	 * records that a {@link FastqConsumer} has parsed from the stream but not
+	 * yet handed to the FastQC modules.
+	 */
+	private static class StreamedFastQFile implements uk.ac.babraham.FastQC.Sequence.SequenceFile {
+		private final File file;
+		private boolean checkedColorspace = false;
+		private Sequence pending;
+
+		public StreamedFastQFile(Path file) {
+			this.file = file.toFile();
+		}
+
+		/**
+		 * Add a record parsed from the stream, to be returned by the next call
+		 * to {@link #next()}.
+		 *
+		 * @param sequence
+		 *            the bases of the record
+		 * @param quality
+		 *            the quality string of the record
+		 * @param id
+		 *            the id line of the record
+		 */
+		public void add(String sequence, String quality, String id) {
+			if (pending != null) {
+				throw new IllegalStateException("The previous record hasn't been read");
+			}
+			pending = new Sequence(this, sequence, quality, id);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return pending != null;
+		}
+
+		@Override
+		public Sequence next() {
+			if (pending == null) {
+				throw new NoSuchElementException("No record has been read from the stream");
+			}
+			Sequence next = pending;
+			pending = null;
+			return next;
+		}
+
+		@Override
+		public boolean isColorspace() {
+			return false;
+		}
+
+		@Override
+		public String name() {
+			return file.getName();
+		}
+
+		@Override
+		public int getPercentComplete() {
+			return 0;
+		}
+
+		@Override
+		public File getFile() {
+			return file;
+		}
+	}
 }
@@ -1,6 +1,8 @@
 package ca.corefacility.bioinformatics.irida.processing.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,6 +19,7 @@ import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFileRepository;
 import ca.corefacility.bioinformatics.irida.util.FileUtils;
 
@@ -31,7 +34,7 @@ import ca.corefacility.bioinformatics.irida.util.FileUtils;
  *
  */
 @Component
-public class GzipFileProcessor implements FileProcessor {
+public class GzipFileProcessor implements StreamingFileProcessor<GzipFileProcessor.DecompressingConsumer> {
 	private static final Logger logger = LoggerFactory.getLogger(GzipFileProcessor.class);
 	private static final String GZIP_EXTENSION = ".gz";
 
@@ -102,12 +105,7 @@ public class GzipFileProcessor implements FileProcessor {
 		}
 
 		Path file = sequenceFile.getFile();
-		String nameWithoutExtension = file.getFileName().toString();
-
-		// strip the extension from the filename (if necessary)
-		if (nameWithoutExtension.endsWith(GZIP_EXTENSION)) {
-			nameWithoutExtension = nameWithoutExtension.substring(0, nameWithoutExtension.lastIndexOf(GZIP_EXTENSION));
-		}
+		String nameWithoutExtension = getNameWithoutExtension(file);
 
 		try {
 			logger.trace("About to try handling a gzip file.");
@@ -124,21 +122,7 @@ public class GzipFileProcessor implements FileProcessor {
 
 					Files.copy(zippedInputStream, target);
 
-					sequenceFile.setFile(target);
-					sequenceFile = sequenceFileRepository.save(sequenceFile);
-
-					if (removeCompressedFile) {
-						logger.debug(
-								"Removing original compressed files [file.processing.decompress.remove.compressed.file=true]");
-						try {
-							Files.delete(file);
-						} catch (final Exception e) {
-							logger.error("Failed to remove the original compressed file.", e);
-							// throw the exception again to be caught by the
-							// outer try/catch block:
-							throw e;
-						}
-					}
+					replaceWithDecompressedFile(sequenceFile, file, target);
 				}
 			}
 		} catch (Exception e) {
@@ -147,6 +131,105 @@ public class GzipFileProcessor implements FileProcessor {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public StreamContent getStreamContent() {
+		return StreamContent.DECOMPRESSED;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DecompressingConsumer openStream(SequenceFile sequenceFile, boolean compressed) throws IOException {
+		if (disableFileProcessor || !compressed) {
+			return null;
+		}
+
+		Path targetDirectory = Files.createTempDirectory(null);
+		Path target = targetDirectory.resolve(getNameWithoutExtension(sequenceFile.getFile()));
+		logger.debug("Writing uncompressed file to [" + target + "]");
+
+		try {
+			return new DecompressingConsumer(target);
+		} catch (IOException e) {
+			Files.delete(targetDirectory);
+			throw e;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Transactional
+	@Override
+	public void completeStream(SequenceFile sequenceFile, DecompressingConsumer consumer) {
+		try {
+			Path file = addExtensionToFilename(sequenceFile.getFile(), GZIP_EXTENSION);
+			replaceWithDecompressedFile(sequenceFile, file, consumer.target);
+		} catch (Exception e) {
+			try {
+				consumer.discard();
+			} catch (IOException discardException) {
+				logger.warn("Could not remove the decompressed file [" + consumer.target + "]", discardException);
+			}
+			logger.error("Failed to process the input file [" + sequenceFile + "]; stack trace follows.", e);
+			throw new FileProcessorException("Failed to process input file [" + sequenceFile + "].");
+		}
+	}
+
+	/**
+	 * Point the {@link SequenceFile} at its decompressed file and save it,
+	 * optionally removing the original compressed file.
+	 *
+	 * @param sequenceFile
+	 *            the {@link SequenceFile} to update
+	 * @param compressedFile
+	 *            the original compressed file
+	 * @param decompressedFile
+	 *            the decompressed file
+	 * @throws IOException
+	 *             if the compressed file could not be removed
+	 */
+	private void replaceWithDecompressedFile(SequenceFile sequenceFile, Path compressedFile, Path decompressedFile)
+			throws IOException {
+		sequenceFile.setFile(decompressedFile);
+		sequenceFileRepository.save(sequenceFile);
+
+		if (removeCompressedFile) {
+			logger.debug("Removing original compressed files [file.processing.decompress.remove.compressed.file=true]");
+			try {
+				Files.delete(compressedFile);
+			} catch (final IOException e) {
+				logger.error("Failed to remove the original compressed file.", e);
+				// throw the exception again to be caught by the
+				// outer try/catch block:
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Get the name of the file with the gzip extension removed (if
+	 * necessary).
+	 *
+	 * @param file
+	 *            the file to get the name for
+	 * @return the name of the file without a gzip extension
+	 */
+	private String getNameWithoutExtension(Path file) {
+		String nameWithoutExtension = file.getFileName().toString();
+
+		// strip the extension from the filename (if necessary)
+		if (nameWithoutExtension.endsWith(GZIP_EXTENSION)) {
+			nameWithoutExtension = nameWithoutExtension.substring(0, nameWithoutExtension.lastIndexOf(GZIP_EXTENSION));
+		}
+
+		return nameWithoutExtension;
+	}
+
 	/**
 	 * Ensures that the supplied file ends with a specific extension.
 	 *
@@ -181,4 +264,38 @@ public class GzipFileProcessor implements FileProcessor {
 		}
 		return true;
 	}
+
+	/**
+	 * {@link StreamConsumer} that writes the decompressed file to a temporary
+	 * location as it is read.
+	 */
+	public static class DecompressingConsumer implements StreamConsumer {
+		private final Path target;
+		private final OutputStream outputStream;
+
+		public DecompressingConsumer(Path target) throws IOException {
+			this.target = target;
+			this.outputStream = new BufferedOutputStream(Files.newOutputStream(target));
+		}
+
+		@Override
+		public void accept(byte[] buffer, int offset, int length) throws IOException {
+			outputStream.write(buffer, offset, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			outputStream.close();
+		}
+
+		/**
+		 * Remove the decompressed file and its temporary directory.
+		 */
+		@Override
+		public void discard() throws IOException {
+			close();
+			Files.deleteIfExists(target);
+			Files.deleteIfExists(target.getParent());
+		}
+	}
 }
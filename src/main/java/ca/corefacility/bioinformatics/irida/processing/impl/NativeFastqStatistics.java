@@ -0,0 +1,706 @@
+package ca.corefacility.bioinformatics.irida.processing.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.OverrepresentedSequence;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC.AnalysisFastQCBuilder;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.BoxPlotSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.LineSeries;
+import ca.corefacility.bioinformatics.irida.util.FileUtils;
+import uk.ac.babraham.FastQC.Graphs.BaseGroup;
+import uk.ac.babraham.FastQC.Modules.ModuleConfig;
+import uk.ac.babraham.FastQC.Sequence.Contaminant.ContaminantHit;
+import uk.ac.babraham.FastQC.Sequence.Contaminant.ContaminentFinder;
+import uk.ac.babraham.FastQC.Sequence.QualityEncoding.PhredEncoding;
+
+/**
+ * Computes the same statistics as the FastQC basic statistics, per-base
+ * quality, per-sequence quality, duplication level and overrepresented
+ * sequence modules, but parses fastq bytes directly instead of building a
+ * FastQC <code>Sequence</code> for every read. Everything is counted into
+ * primitive arrays while the file is read, so nothing is allocated per read.
+ * The results follow the FastQC calculations so that the stored
+ * {@link ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC}
+ * is the same whichever is used.
+ * <p>
+ * Colorspace files aren't handled and throw an
+ * {@link UnsupportedFastqException} so they can be handed to FastQC instead.
+ */
+public class NativeFastqStatistics implements FastqStatistics {
+	// FastQC counts quality characters in 150 slots
+	private static final int QUALITY_SLOTS = 150;
+
+	// FastQC only tracks the first 100,000 unique sequences for duplication
+	private static final int OBSERVATION_CUTOFF = 100000;
+	private static final int DUPLICATION_MAX_LENGTH = 75;
+	private static final int DUPLICATION_TRUNCATED_LENGTH = 50;
+	private static final int TABLE_SIZE = 1 << 18;
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private static final String CONVENTIONAL_BASE_CALLS = "Conventional base calls";
+
+	// parser state
+	private int recordLine = 0;
+	private int lineLength = 0;
+	private boolean skipLineFeed = false;
+	private boolean checkedColorspace = false;
+	private boolean colorspace = true;
+
+	// the current record
+	private final byte[] sequence = new byte[DUPLICATION_MAX_LENGTH + 1];
+	private int sequenceLength = 0;
+	private int qualityLength = 0;
+	private long qualitySum = 0;
+
+	// basic statistics
+	private long count = 0;
+	private int minLength = 0;
+	private int maxLength = 0;
+	private long aCount = 0;
+	private long cCount = 0;
+	private long gCount = 0;
+	private long tCount = 0;
+	private long nCount = 0;
+	private int lowestChar = 126;
+
+	// per-base quality, QUALITY_SLOTS counts for each position
+	private long[] qualityCounts = new long[0];
+	private long[] positionCounts = new long[0];
+	private int positions = 0;
+
+	// per-sequence quality, indexed by the mean quality character
+	private final long[] meanQualityCounts = new long[QUALITY_SLOTS];
+
+	// duplication, an open addressing table of the observed sequences
+	private final int[] table = new int[TABLE_SIZE];
+	private byte[] keys = new byte[64 * 1024];
+	private int keysLength = 0;
+	private int[] keyOffsets = new int[1024];
+	private int[] keyLengths = new int[1024];
+	private int[] keyCounts = new int[1024];
+	private int uniqueCount = 0;
+	private boolean frozen = false;
+	private long countAtUniqueLimit = 0;
+
+	/**
+	 * Read a plain or gzip compressed fastq file.
+	 *
+	 * @param file
+	 *            the fastq file to read
+	 * @return the statistics for the file
+	 * @throws IOException
+	 *             if the file could not be read or isn't a fastq file
+	 */
+	public static NativeFastqStatistics read(Path file) throws IOException {
+		NativeFastqStatistics statistics = new NativeFastqStatistics();
+
+		ReadableByteChannel channel;
+		if (FileUtils.isGzipped(file)) {
+			InputStream stream = new GZIPInputStream(Files.newInputStream(file), BUFFER_SIZE);
+			channel = Channels.newChannel(stream);
+		} else {
+			channel = FileChannel.open(file, StandardOpenOption.READ);
+		}
+
+		try (ReadableByteChannel c = channel) {
+			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+			while (c.read(buffer) != -1) {
+				buffer.flip();
+				statistics.accept(buffer);
+				buffer.clear();
+			}
+		}
+
+		statistics.finish();
+		return statistics;
+	}
+
+	/**
+	 * Consume the next block of (decompressed) fastq bytes. The buffer is
+	 * read from its position to its limit.
+	 *
+	 * @param buffer
+	 *            the bytes to consume
+	 * @throws IOException
+	 *             if the bytes aren't valid fastq
+	 */
+	public void accept(ByteBuffer buffer) throws IOException {
+		if (buffer.hasArray()) {
+			byte[] array = buffer.array();
+			int end = buffer.arrayOffset() + buffer.limit();
+			for (int i = buffer.arrayOffset() + buffer.position(); i < end; i++) {
+				accept(array[i]);
+			}
+			buffer.position(buffer.limit());
+		} else {
+			while (buffer.hasRemaining()) {
+				accept(buffer.get());
+			}
+		}
+	}
+
+	/**
+	 * Signal that there are no more bytes in the file.
+	 *
+	 * @throws IOException
+	 *             if the file ended in the middle of a record
+	 */
+	public void finish() throws IOException {
+		if (lineLength > 0) {
+			endLine();
+		}
+
+		if (recordLine != 0) {
+			throw new IOException("Ran out of data in the middle of a fastq entry.  Your file is probably truncated");
+		}
+	}
+
+	/**
+	 * Consume a single byte. Lines end at '\n', '\r' or "\r\n", the same as
+	 * {@link java.io.BufferedReader#readLine()}.
+	 */
+	private void accept(byte b) throws IOException {
+		if (skipLineFeed) {
+			skipLineFeed = false;
+			if (b == '\n') {
+				return;
+			}
+		}
+
+		if (b == '\n' || b == '\r') {
+			skipLineFeed = b == '\r';
+			endLine();
+			return;
+		}
+
+		switch (recordLine) {
+		case 0:
+			if (lineLength == 0 && b != '@') {
+				throw new IOException("ID line didn't start with '@'");
+			}
+			break;
+		case 1:
+			addBase(b);
+			break;
+		case 2:
+			if (lineLength == 0 && b != '+') {
+				throw new IOException("Midline didn't start with '+'");
+			}
+			break;
+		default:
+			addQuality(b);
+			break;
+		}
+
+		lineLength++;
+	}
+
+	/**
+	 * Handle the end of a line
+	 */
+	private void endLine() throws IOException {
+		if (recordLine == 0 && lineLength == 0) {
+			// allow for blank lines between entries
+			return;
+		} else if (recordLine == 1) {
+			sequenceLength = lineLength;
+		} else if (recordLine == 2 && lineLength == 0) {
+			throw new IOException("Midline '' didn't start with '+'");
+		} else if (recordLine == 3) {
+			endRecord();
+		}
+
+		recordLine = (recordLine + 1) & 3;
+		lineLength = 0;
+	}
+
+	/**
+	 * Count a single base of the sequence line
+	 */
+	private void addBase(byte b) {
+		if (b >= 'a' && b <= 'z') {
+			b -= 'a' - 'A';
+		}
+
+		switch (b) {
+		case 'G':
+			gCount++;
+			break;
+		case 'A':
+			aCount++;
+			break;
+		case 'T':
+			tCount++;
+			break;
+		case 'C':
+			cCount++;
+			break;
+		case 'N':
+			nCount++;
+			break;
+		default:
+			break;
+		}
+
+		// FastQC checks the first sequence for colorspace data, a base
+		// followed by colour calls
+		if (!checkedColorspace) {
+			if (lineLength == 0) {
+				colorspace = b == 'G' || b == 'A' || b == 'T' || b == 'C' || b == 'N';
+			} else {
+				colorspace = colorspace && (b == '.' || (b >= '0' && b <= '6'));
+			}
+		}
+
+		if (lineLength < sequence.length) {
+			sequence[lineLength] = b;
+		}
+	}
+
+	/**
+	 * Count a single character of the quality line
+	 */
+	private void addQuality(byte b) throws IOException {
+		int quality = b & 0xff;
+		if (quality >= QUALITY_SLOTS) {
+			throw new IOException("Quality character " + quality + " is out of range");
+		}
+
+		if (qualityLength == positions) {
+			addPosition();
+		}
+
+		qualityCounts[qualityLength * QUALITY_SLOTS + quality]++;
+		positionCounts[qualityLength]++;
+		qualitySum += quality;
+		if (quality < lowestChar) {
+			lowestChar = quality;
+		}
+
+		qualityLength++;
+	}
+
+	/**
+	 * Make room to count qualities at one more position
+	 */
+	private void addPosition() {
+		if (positions == positionCounts.length) {
+			int capacity = Math.max(positionCounts.length + (positionCounts.length >> 1), 128);
+			positionCounts = Arrays.copyOf(positionCounts, capacity);
+			qualityCounts = Arrays.copyOf(qualityCounts, capacity * QUALITY_SLOTS);
+		}
+		positions++;
+	}
+
+	/**
+	 * Handle a complete fastq record
+	 */
+	private void endRecord() throws IOException {
+		if (!checkedColorspace) {
+			checkedColorspace = true;
+			if (colorspace && sequenceLength > 1) {
+				throw new UnsupportedFastqException("Colorspace data is not supported");
+			}
+		}
+
+		count++;
+
+		if (count == 1) {
+			minLength = sequenceLength;
+			maxLength = sequenceLength;
+		} else if (sequenceLength < minLength) {
+			minLength = sequenceLength;
+		} else if (sequenceLength > maxLength) {
+			maxLength = sequenceLength;
+		}
+
+		if (qualityLength > 0) {
+			meanQualityCounts[(int) (qualitySum / qualityLength)]++;
+		}
+
+		countDuplicate(sequenceLength > DUPLICATION_MAX_LENGTH ? DUPLICATION_TRUNCATED_LENGTH : sequenceLength);
+
+		qualityLength = 0;
+		qualitySum = 0;
+	}
+
+	/**
+	 * Count an observation of the first <code>length</code> bytes of the
+	 * current sequence, the same as FastQC's overrepresented sequences module.
+	 */
+	private void countDuplicate(int length) {
+		int hash = 1;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + sequence[i];
+		}
+		hash ^= hash >>> 16;
+
+		int slot = hash & (TABLE_SIZE - 1);
+		while (table[slot] != 0) {
+			int key = table[slot] - 1;
+			if (keyLengths[key] == length
+					&& Arrays.equals(keys, keyOffsets[key], keyOffsets[key] + length, sequence, 0, length)) {
+				keyCounts[key]++;
+				if (!frozen) {
+					countAtUniqueLimit = count;
+				}
+				return;
+			}
+			slot = (slot + 1) & (TABLE_SIZE - 1);
+		}
+
+		if (frozen) {
+			return;
+		}
+
+		if (uniqueCount == keyCounts.length) {
+			int capacity = Math.min(keyCounts.length * 2, OBSERVATION_CUTOFF);
+			keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+			keyLengths = Arrays.copyOf(keyLengths, capacity);
+			keyCounts = Arrays.copyOf(keyCounts, capacity);
+		}
+		if (keysLength + length > keys.length) {
+			keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+		}
+
+		System.arraycopy(sequence, 0, keys, keysLength, length);
+		keyOffsets[uniqueCount] = keysLength;
+		keyLengths[uniqueCount] = length;
+		keyCounts[uniqueCount] = 1;
+		keysLength += length;
+
+		table[slot] = ++uniqueCount;
+		countAtUniqueLimit = count;
+		if (uniqueCount == OBSERVATION_CUTOFF) {
+			frozen = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void populateBasicStats(AnalysisFastQCBuilder analysis) {
+		analysis.fileType(count > 0 ? CONVENTIONAL_BASE_CALLS : null);
+		analysis.encoding(PhredEncoding.getFastQEncodingOffset((char) lowestChar).name());
+		analysis.minLength(minLength);
+		analysis.maxLength(maxLength);
+		analysis.totalSequences((int) count);
+		analysis.filteredSequences(0);
+		analysis.gcContent(getGCContent());
+		analysis.totalBases(aCount + gCount + cCount + tCount + nCount);
+	}
+
+	/**
+	 * Get the GC content of the file, calculated the same way as FastQC.
+	 *
+	 * @return the percent of A, C, G and T bases that are G or C
+	 */
+	private short getGCContent() {
+		long totalBases = aCount + tCount + gCount + cCount;
+		if (totalBases > 0) {
+			return (short) (((gCount + cCount) * 100.0) / totalBases);
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BoxPlotSeries getPerBaseQualityScores() {
+		int minChar = QUALITY_SLOTS;
+		int maxChar = 0;
+		for (int position = 0; position < positions; position++) {
+			int offset = position * QUALITY_SLOTS;
+			for (int q = 0; q < QUALITY_SLOTS; q++) {
+				if (qualityCounts[offset + q] > 0) {
+					minChar = Math.min(minChar, q);
+					break;
+				}
+			}
+			for (int q = QUALITY_SLOTS - 1; q >= 0; q--) {
+				if (qualityCounts[offset + q] > 0) {
+					maxChar = Math.max(maxChar, q);
+					break;
+				}
+			}
+		}
+		if (positions == 0) {
+			minChar = 0;
+		}
+
+		PhredEncoding encoding = PhredEncoding.getFastQEncodingOffset((char) minChar);
+		int high = Math.max(maxChar - encoding.offset(), 35);
+
+		BaseGroup[] groups = BaseGroup.makeBaseGroups(positions);
+		double[] means = new double[groups.length];
+		double[] medians = new double[groups.length];
+		double[] lowest = new double[groups.length];
+		double[] highest = new double[groups.length];
+		double[] lowerQuartile = new double[groups.length];
+		double[] upperQuartile = new double[groups.length];
+		String[] xLabels = new String[groups.length];
+
+		for (int i = 0; i < groups.length; i++) {
+			xLabels[i] = groups[i].toString();
+			int minBase = groups[i].lowerCount();
+			int maxBase = groups[i].upperCount();
+			lowest[i] = getPercentile(minBase, maxBase, encoding.offset(), 10);
+			highest[i] = getPercentile(minBase, maxBase, encoding.offset(), 90);
+			means[i] = getMean(minBase, maxBase, encoding.offset());
+			medians[i] = getPercentile(minBase, maxBase, encoding.offset(), 50);
+			lowerQuartile[i] = getPercentile(minBase, maxBase, encoding.offset(), 25);
+			upperQuartile[i] = getPercentile(minBase, maxBase, encoding.offset(), 75);
+		}
+
+		return new BoxPlotSeries(means, medians, lowest, highest, lowerQuartile, upperQuartile, 0, high, 2d, xLabels,
+				"Quality scores across all bases (" + encoding + " encoding)");
+	}
+
+	/**
+	 * Get the mean of a percentile across a group of (1-based) positions,
+	 * skipping positions with 100 or fewer observations.
+	 */
+	private double getPercentile(int minBase, int maxBase, int offset, int percentile) {
+		int groupCount = 0;
+		double total = 0;
+		for (int position = minBase - 1; position < maxBase && position < positions; position++) {
+			if (positionCounts[position] > 100) {
+				groupCount++;
+				total += getPercentile(position, offset, percentile);
+			}
+		}
+
+		if (groupCount > 0) {
+			return total / groupCount;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Get a percentile of the quality scores at a single position
+	 */
+	private double getPercentile(int position, int offset, int percentile) {
+		long total = positionCounts[position] * percentile / 100;
+		long seen = 0;
+		int start = position * QUALITY_SLOTS;
+		for (int q = offset; q < QUALITY_SLOTS; q++) {
+			seen += qualityCounts[start + q];
+			if (seen >= total) {
+				return q - offset;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the mean of the mean quality scores across a group of (1-based)
+	 * positions.
+	 */
+	private double getMean(int minBase, int maxBase, int offset) {
+		int groupCount = 0;
+		double total = 0;
+		for (int position = minBase - 1; position < maxBase && position < positions; position++) {
+			if (positionCounts[position] > 0) {
+				groupCount++;
+
+				long positionTotal = 0;
+				long positionCount = 0;
+				int start = position * QUALITY_SLOTS;
+				for (int q = offset; q < QUALITY_SLOTS; q++) {
+					positionTotal += qualityCounts[start + q] * (q - offset);
+					positionCount += qualityCounts[start + q];
+				}
+				total += ((double) positionTotal) / positionCount;
+			}
+		}
+
+		if (groupCount > 0) {
+			return total / groupCount;
+		}
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LineSeries getPerSequenceQualityScores() {
+		PhredEncoding encoding = PhredEncoding.getFastQEncodingOffset((char) lowestChar);
+
+		int min = -1;
+		int max = -1;
+		for (int q = 0; q < QUALITY_SLOTS; q++) {
+			if (meanQualityCounts[q] > 0) {
+				if (min < 0) {
+					min = q;
+				}
+				max = q;
+			}
+		}
+		if (min < 0) {
+			throw new IllegalStateException("No quality scores were read");
+		}
+
+		double[] qualityDistribution = new double[1 + max - min];
+		String[] xCategories = new String[qualityDistribution.length];
+		int maxCount = 0;
+		for (int i = 0; i < qualityDistribution.length; i++) {
+			xCategories[i] = String.valueOf((min + i) - encoding.offset());
+			qualityDistribution[i] = meanQualityCounts[min + i];
+			if (qualityDistribution[i] > maxCount) {
+				maxCount = (int) qualityDistribution[i];
+			}
+		}
+
+		return new LineSeries(new double[][] { qualityDistribution }, 0d, maxCount,
+				"Mean Sequence Quality (Phred Score)", new String[] { "Average Quality per read" }, xCategories,
+				"Quality score distribution over all sequences");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LineSeries getDuplicationLevels() {
+		// number of distinct sequences seen at each duplication level
+		Map<Integer, Integer> collatedCounts = new TreeMap<>();
+		for (int key = 0; key < uniqueCount; key++) {
+			collatedCounts.merge(keyCounts[key], 1, Integer::sum);
+		}
+
+		double[] deduplicatedPercentages = new double[16];
+		double[] totalPercentages = new double[16];
+		double dedupTotal = 0;
+		double rawTotal = 0;
+		for (Map.Entry<Integer, Integer> collated : collatedCounts.entrySet()) {
+			int dupLevel = collated.getKey();
+			double correctedCount = getCorrectedCount(countAtUniqueLimit, count, dupLevel, collated.getValue());
+
+			dedupTotal += correctedCount;
+			rawTotal += correctedCount * dupLevel;
+
+			int dupSlot = getDuplicationSlot(dupLevel);
+			deduplicatedPercentages[dupSlot] += correctedCount;
+			totalPercentages[dupSlot] += correctedCount * dupLevel;
+		}
+
+		String[] labels = new String[] { "1", "2", "3", "4", "5", "6", "7", "8", "9", ">10", ">50", ">100", ">500",
+				">1k", ">5k", ">10k" };
+		for (int i = 0; i < deduplicatedPercentages.length; i++) {
+			deduplicatedPercentages[i] = deduplicatedPercentages[i] / dedupTotal * 100;
+			totalPercentages[i] = totalPercentages[i] / rawTotal * 100;
+		}
+
+		double percentDifferentSeqs = rawTotal == 0 ? 100 : (dedupTotal / rawTotal) * 100;
+
+		return new LineSeries(new double[][] { deduplicatedPercentages, totalPercentages }, 0d, 100,
+				"Sequence Duplication Level", new String[] { "% Deduplicated sequences", "% Total sequences" },
+				labels,
+				"Percent of seqs remaining if deduplicated " + new DecimalFormat("#.##").format(percentDifferentSeqs)
+						+ "%");
+	}
+
+	/**
+	 * Get the slot in the duplication level chart for a duplication level
+	 */
+	private static int getDuplicationSlot(int dupLevel) {
+		int dupSlot = dupLevel - 1;
+		if (dupSlot > 9999) {
+			return 15;
+		} else if (dupSlot > 4999) {
+			return 14;
+		} else if (dupSlot > 999) {
+			return 13;
+		} else if (dupSlot > 499) {
+			return 12;
+		} else if (dupSlot > 99) {
+			return 11;
+		} else if (dupSlot > 49) {
+			return 10;
+		} else if (dupSlot > 9) {
+			return 9;
+		}
+		return dupSlot;
+	}
+
+	/**
+	 * Estimate the number of distinct sequences at a duplication level,
+	 * correcting for sequences that weren't tracked after the unique sequence
+	 * limit was reached. This is the FastQC calculation.
+	 */
+	private static double getCorrectedCount(long countAtLimit, long totalCount, int duplicationLevel,
+			int numberOfObservations) {
+		if (countAtLimit == totalCount) {
+			return numberOfObservations;
+		}
+		if (totalCount - numberOfObservations < countAtLimit) {
+			return numberOfObservations;
+		}
+
+		double pNotSeeingAtLimit = 1;
+		double limitOfCaring = 1d - (numberOfObservations / (numberOfObservations + 0.01d));
+		for (int i = 0; i < countAtLimit; i++) {
+			pNotSeeingAtLimit *= ((totalCount - i) - duplicationLevel) / (double) (totalCount - i);
+			if (pNotSeeingAtLimit < limitOfCaring) {
+				pNotSeeingAtLimit = 0;
+				break;
+			}
+		}
+
+		double pSeeingAtLimit = 1 - pNotSeeingAtLimit;
+		return numberOfObservations / pSeeingAtLimit;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<OverrepresentedSequence> getOverrepresentedSequences() {
+		double threshold = ModuleConfig.getParam("overrepresented", "warn");
+
+		Set<OverrepresentedSequence> overrepresentedSequences = new HashSet<>();
+		for (int key = 0; key < uniqueCount; key++) {
+			double percentage = ((double) keyCounts[key] / count) * 100;
+			if (percentage > threshold) {
+				String sequenceString = new String(keys, keyOffsets[key], keyLengths[key], StandardCharsets.ISO_8859_1);
+				ContaminantHit hit = ContaminentFinder.findContaminantHit(sequenceString);
+				String possibleSource = hit == null ? "No Hit" : hit.toString();
+
+				overrepresentedSequences.add(new OverrepresentedSequence(sequenceString, keyCounts[key],
+						BigDecimal.valueOf(percentage), possibleSource));
+			}
+		}
+		return overrepresentedSequences;
+	}
+
+	/**
+	 * Thrown when a file is valid, but uses a format that
+	 * {@link NativeFastqStatistics} doesn't handle.
+	 */
+	public static class UnsupportedFastqException extends IOException {
+		public UnsupportedFastqException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package ca.corefacility.bioinformatics.irida.processing.impl;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor.StreamConsumer;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor.StreamContent;
+import ca.corefacility.bioinformatics.irida.util.FileUtils;
+
+/**
+ * Reads every {@link SequenceFile} in a {@link SequencingObject} exactly once
+ * and feeds the bytes to a group of {@link StreamingFileProcessor}s. Stored
+ * bytes go to processors that want {@link StreamContent#STORED} content; if the
+ * file is gzip compressed, it is inflated in the same pass for processors that
+ * want {@link StreamContent#DECOMPRESSED} content.
+ */
+public class StreamingFileProcessingPass {
+	private static final Logger logger = LoggerFactory.getLogger(StreamingFileProcessingPass.class);
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final SequencingObject sequencingObject;
+	private final List<? extends StreamingFileProcessor<?>> processors;
+	private final SequenceFileTaskRunner fileTaskRunner;
+
+	// files may be read concurrently
+	private final Map<StreamingFileProcessor<?>, Map<SequenceFile, StreamConsumer>> consumers = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a new pass over the files in a {@link SequencingObject}
+	 *
+	 * @param sequencingObject
+	 *            the {@link SequencingObject} to read
+	 * @param processors
+	 *            the processors to feed, in chain order
+	 */
+	public StreamingFileProcessingPass(SequencingObject sequencingObject,
+			List<? extends StreamingFileProcessor<?>> processors) {
+		this(sequencingObject, processors, new SequenceFileTaskRunner());
+	}
+
+	/**
+	 * Create a new pass over the files in a {@link SequencingObject}
+	 *
+	 * @param sequencingObject
+	 *            the {@link SequencingObject} to read
+	 * @param processors
+	 *            the processors to feed, in chain order
+	 * @param fileTaskRunner
+	 *            the {@link SequenceFileTaskRunner} used to read the files
+	 */
+	public StreamingFileProcessingPass(SequencingObject sequencingObject,
+			List<? extends StreamingFileProcessor<?>> processors, SequenceFileTaskRunner fileTaskRunner) {
+		this.sequencingObject = sequencingObject;
+		this.processors = processors;
+		this.fileTaskRunner = fileTaskRunner;
+	}
+
+	/**
+	 * Read all files in the {@link SequencingObject}, handing the bytes to the
+	 * processors' {@link StreamConsumer}s. Nothing is persisted by this method.
+	 * If reading fails, every consumer is discarded.
+	 *
+	 * @throws IOException
+	 *             if any file could not be read or consumed
+	 */
+	public void read() throws IOException {
+		boolean read = false;
+		try {
+			fileTaskRunner.run(sequencingObject.getFiles(), file -> {
+				readFile(file);
+				return file;
+			});
+			read = true;
+		} catch (IOException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Could not read files for sequencing object " + sequencingObject.getId(), e);
+		} finally {
+			if (!read) {
+				discard();
+			}
+		}
+	}
+
+	/**
+	 * Discard the consumers of every file, since the processors will be run
+	 * one at a time instead.
+	 */
+	private void discard() {
+		for (Map<SequenceFile, StreamConsumer> fileConsumers : consumers.values()) {
+			for (StreamConsumer consumer : fileConsumers.values()) {
+				try {
+					consumer.discard();
+				} catch (IOException e) {
+					logger.warn("Could not discard stream consumer " + consumer, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Persist the results for a single processor after {@link #read()} has
+	 * finished.
+	 *
+	 * @param processor
+	 *            the processor to complete
+	 */
+	@SuppressWarnings("unchecked")
+	public <C extends StreamConsumer> void complete(StreamingFileProcessor<C> processor) {
+		Map<SequenceFile, StreamConsumer> fileConsumers = consumers.get(processor);
+		if (fileConsumers == null) {
+			return;
+		}
+
+		for (SequenceFile file : sequencingObject.getFiles()) {
+			StreamConsumer consumer = fileConsumers.get(file);
+			if (consumer != null) {
+				processor.completeStream(file, (C) consumer);
+			}
+		}
+	}
+
+	/**
+	 * Read a single file and feed it to the consumers.
+	 *
+	 * @param file
+	 *            the {@link SequenceFile} to read
+	 * @throws IOException
+	 *             if the file could not be read or consumed
+	 */
+	private void readFile(SequenceFile file) throws IOException {
+		boolean compressed = FileUtils.isGzipped(file.getFile());
+
+		List<StreamConsumer> stored = new ArrayList<>();
+		List<StreamConsumer> decompressed = new ArrayList<>();
+
+		try {
+			for (StreamingFileProcessor<?> processor : processors) {
+				StreamConsumer consumer = processor.openStream(file, compressed);
+				if (consumer == null) {
+					continue;
+				}
+
+				consumers.computeIfAbsent(processor, p -> new ConcurrentHashMap<>()).put(file, consumer);
+				// when the file isn't compressed the stored bytes are the
+				// decompressed bytes
+				if (processor.getStreamContent() == StreamContent.STORED || !compressed) {
+					stored.add(consumer);
+				} else {
+					decompressed.add(consumer);
+				}
+			}
+
+			logger.trace("Reading file " + file.getFile() + " once for " + (stored.size() + decompressed.size())
+					+ " processors");
+
+			InputStream storedStream = new ConsumingInputStream(Files.newInputStream(file.getFile()), stored);
+			// closing the decompressing stream also closes the stored stream
+			InputStream outerStream = storedStream;
+			try {
+				byte[] buffer = new byte[BUFFER_SIZE];
+
+				if (!decompressed.isEmpty()) {
+					// GZIPInputStream reads concatenated gzip members, the same
+					// as gunzip does
+					outerStream = new GZIPInputStream(storedStream, BUFFER_SIZE);
+					drain(outerStream, buffer, decompressed);
+				}
+
+				// make sure that consumers of the stored file see every byte,
+				// including anything after the end of the gzip stream
+				drain(storedStream, buffer, Collections.emptyList());
+			} finally {
+				outerStream.close();
+			}
+
+			for (StreamConsumer consumer : stored) {
+				consumer.finish();
+			}
+			for (StreamConsumer consumer : decompressed) {
+				consumer.finish();
+			}
+		} finally {
+			for (StreamConsumer consumer : stored) {
+				closeQuietly(consumer);
+			}
+			for (StreamConsumer consumer : decompressed) {
+				closeQuietly(consumer);
+			}
+		}
+	}
+
+	/**
+	 * Read a stream to the end, handing every block to the consumers.
+	 */
+	private static void drain(InputStream stream, byte[] buffer, List<StreamConsumer> consumers) throws IOException {
+		int read;
+		while ((read = stream.read(buffer)) != -1) {
+			for (StreamConsumer consumer : consumers) {
+				consumer.accept(buffer, 0, read);
+			}
+		}
+	}
+
+	private static void closeQuietly(StreamConsumer consumer) {
+		try {
+			consumer.close();
+		} catch (IOException e) {
+			logger.warn("Could not close stream consumer " + consumer, e);
+		}
+	}
+
+	/**
+	 * An {@link InputStream} that hands every byte read from it to a set of
+	 * {@link StreamConsumer}s.
+	 */
+	private static class ConsumingInputStream extends FilterInputStream {
+		private final List<StreamConsumer> consumers;
+
+		public ConsumingInputStream(InputStream in, List<StreamConsumer> consumers) {
+			super(in);
+			this.consumers = consumers;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			int read = read(single, 0, 1);
+			return read == -1 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = in.read(b, off, len);
+			if (read > 0) {
+				for (StreamConsumer consumer : consumers) {
+					consumer.accept(b, off, read);
+				}
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// skipping would hide bytes from the consumers
+			byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+			int read = read(buffer, 0, buffer.length);
+			return Math.max(read, 0);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
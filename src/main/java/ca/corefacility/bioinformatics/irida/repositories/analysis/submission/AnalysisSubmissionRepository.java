@@ -2,6 +2,7 @@ package ca.corefacility.bioinformatics.irida.repositories.analysis.submission;
 
 import java.util.*;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 
 import ca.corefacility.bioinformatics.irida.model.enums.AnalysisCleanedState;
@@ -13,6 +14,7 @@ import ca.corefacility.bioinformatics.irida.model.user.User;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.Analysis;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.ProjectSampleAnalysisOutputInfo;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary;
 import ca.corefacility.bioinformatics.irida.repositories.IridaJpaRepository;
 import ca.corefacility.bioinformatics.irida.ria.web.admin.dto.statistics.GenericStatModel;
 
@@ -48,6 +50,32 @@ public interface AnalysisSubmissionRepository extends IridaJpaRepository<Analysi
 	@Query("select count(s.id) from AnalysisSubmission s where s.analysisState in ?1")
 	public Long countByAnalysisState(Collection<AnalysisState> state);
 
+	/**
+	 * Counts the {@link AnalysisSubmission}s in the given states for each
+	 * submitter and priority, along with the created date of the oldest of
+	 * them.
+	 *
+	 * @param states The states of the analyses to count.
+	 * @return A {@link SubmitterQueueSummary} for each submitter and priority with analyses in the states.
+	 */
+	@Query("select new ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary(s.submitter.id, s.priority, count(s.id), min(s.createdDate)) "
+			+ "from AnalysisSubmission s where s.analysisState in ?1 group by s.submitter.id, s.priority")
+	public List<SubmitterQueueSummary> summarizeBySubmitterAndPriority(Collection<AnalysisState> states);
+
+	/**
+	 * Loads the oldest {@link AnalysisSubmission}s in a state that were
+	 * submitted by a user at a priority, oldest first.
+	 *
+	 * @param state       The state of the analyses.
+	 * @param submitterId The id of the user who submitted the analyses.
+	 * @param priority    The priority of the analyses.
+	 * @param page        The number of analyses to load.
+	 * @return The oldest matching {@link AnalysisSubmission}s.
+	 */
+	@Query("select s from AnalysisSubmission s where s.analysisState = ?1 and s.submitter.id = ?2 and s.priority = ?3 order by s.createdDate asc, s.id asc")
+	public List<AnalysisSubmission> findOldestBySubmitterAndPriority(AnalysisState state, Long submitterId,
+			AnalysisSubmission.Priority priority, Pageable page);
+
 	/**
 	 * Loads up a list of {@link AnalysisSubmission}s with the given states.
 	 *
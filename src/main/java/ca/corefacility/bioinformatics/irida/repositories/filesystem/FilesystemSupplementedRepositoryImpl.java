@@ -1,16 +1,10 @@
 package ca.corefacility.bioinformatics.irida.repositories.filesystem;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PostLoad;
@@ -21,7 +15,6 @@ import javax.persistence.PreUpdate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.ReflectionUtils;
 
 import ca.corefacility.bioinformatics.irida.exceptions.StorageException;
 import ca.corefacility.bioinformatics.irida.model.IridaThing;
@@ -56,26 +49,17 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 
 		private static final Map<Class<?>, Path> baseDirectories = new ConcurrentHashMap<>();
 
-		private static final Predicate<Field> pathFilter = f -> f.getType().equals(Path.class);
-
 		/**
-		 * Get a collection of fields that have type Path.
+		 * Add a base directory to safe files to. The {@link Path} members of
+		 * the class are found here, once, instead of every time an entity is
+		 * loaded.
 		 * 
-		 * @param type
-		 *            the class type to get field references for.
-		 * @return the set of field references for the class.
-		 */
-		private static Set<Field> findPathFields(final Class<?> type) {
-			return Arrays.stream(type.getDeclaredFields()).filter(pathFilter).collect(Collectors.toSet());
-		}
-
-		/**
-		 * Add a base directory to safe files to
 		 * @param c The class for the base directory to save files
 		 * @param p the path to save files to
 		 */
 		public static void addBaseDirectory(final Class<?> c, final Path p) {
 			baseDirectories.put(c, p);
+			PathFieldAccessors.forType(c);
 		}
 
 		/**
@@ -93,14 +77,13 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 			logger.trace("Going to get an absolute path after loading.");
 			final Path directoryForType = baseDirectories.get(fileSystemEntity.getClass());
 			// find any members that are of type Path:
-			final Set<Field> pathFields = findPathFields(fileSystemEntity.getClass());
+			final PathFieldAccessors pathFields = PathFieldAccessors.forType(fileSystemEntity.getClass());
 
 			// for every member that's a path, make it an absolute path based on
 			// the
 			// base directory
-			for (final Field field : pathFields) {
-				ReflectionUtils.makeAccessible(field);
-				final Path source = (Path) ReflectionUtils.getField(field, fileSystemEntity);
+			for (int i = 0; i < pathFields.size(); i++) {
+				final Path source = pathFields.get(i, fileSystemEntity);
 				// source will have a null root **only** if it's a relative
 				// path. basically: don't try to make an absolute path out of
 				// one that's already absolute.
@@ -108,7 +91,7 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 					logger.trace("About to get ABSOLUTE path for [" + source.toString() + "] from base directory ["
 							+ directoryForType.toString() + "]");
 					final Path absolutePath = directoryForType.resolve(source);
-					ReflectionUtils.setField(field, fileSystemEntity, absolutePath);
+					pathFields.set(i, fileSystemEntity, absolutePath);
 					logger.trace("Setting ABSOLUTE path to [" + absolutePath.toString() + "] from relative path ["
 							+ source.toString() + "]");
 				} else {
@@ -131,21 +114,20 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 
 			final Path directoryForType = baseDirectories.get(fileSystemEntity.getClass());
 			// find any members that are of type Path:
-			final Set<Field> pathFields = findPathFields(fileSystemEntity.getClass());
+			final PathFieldAccessors pathFields = PathFieldAccessors.forType(fileSystemEntity.getClass());
 
 			// for every member that's a path, make it a relative path based on
 			// the
 			// base directory
-			for (final Field field : pathFields) {
-				ReflectionUtils.makeAccessible(field);
-				final Path source = (Path) ReflectionUtils.getField(field, fileSystemEntity);
+			for (int i = 0; i < pathFields.size(); i++) {
+				final Path source = pathFields.get(i, fileSystemEntity);
 				// source will have a not-null root **only** if it's an absolute
 				// path.
 				if (source != null && source.getRoot() != null) {
 					logger.trace("About to get RELATIVE path for [" + source.toString() + "] from base directory ["
 							+ directoryForType.toString() + "]");
 					final Path relativePath = directoryForType.relativize(source);
-					ReflectionUtils.setField(field, fileSystemEntity, relativePath);
+					pathFields.set(i, fileSystemEntity, relativePath);
 					logger.trace("Setting RELATIVE path to [" + relativePath.toString() + "] from absolute path ["
 							+ source.toString() + "]");
 				}
@@ -199,8 +181,8 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 
 	/**
 	 * Write any files to disk and update the {@link Path} location. This method
-	 * works using reflection to automagically find and update any internal
-	 * {@link Path} members on the {@link VersionedFileFields}. This class
+	 * uses {@link PathFieldAccessors} to automagically find and update any
+	 * internal {@link Path} members on the {@link VersionedFileFields}. This class
 	 * **does not** update the object in the database
 	 * 
 	 * @param baseDirectory
@@ -213,29 +195,28 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 
 		Path sequenceFileDir = baseDirectory.resolve(objectToWrite.getId().toString());
 
-		Predicate<Field> pathFilter = f -> f.getType().equals(Path.class);
 		// now find any members that are of type Path and shuffle them around:
-		Set<Field> pathFields = Arrays.stream(objectToWrite.getClass().getDeclaredFields()).filter(pathFilter)
-				.collect(Collectors.toSet());
+		PathFieldAccessors pathFields = PathFieldAccessors.forType(objectToWrite.getClass());
 
-		Set<Field> fieldsToUpdate = new HashSet<>();
-		for (Field field : pathFields) {
-			ReflectionUtils.makeAccessible(field);
-			Path source = (Path) ReflectionUtils.getField(field, objectToWrite);
-			if (source != null) {
-				fieldsToUpdate.add(field);
-			}
+		Path[] sources = new Path[pathFields.size()];
+		boolean hasFiles = false;
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = pathFields.get(i, objectToWrite);
+			hasFiles |= sources[i] != null;
 		}
 
 		// if there are non-null fields, increment the revision number and
 		// update the objects
-		if (!fieldsToUpdate.isEmpty()) {
+		if (hasFiles) {
 			objectToWrite.incrementFileRevisionNumber();
 			Path sequenceFileDirWithRevision = sequenceFileDir
 					.resolve(objectToWrite.getFileRevisionNumber().toString());
 
-			for (Field field : fieldsToUpdate) {
-				Path source = (Path) ReflectionUtils.getField(field, objectToWrite);
+			for (int i = 0; i < sources.length; i++) {
+				Path source = sources[i];
+				if (source == null) {
+					continue;
+				}
 				Path target = sequenceFileDirWithRevision.resolve(source.getFileName());
 				logger.debug("Target is [" + target.toString() + "]");
 				try {
@@ -256,7 +237,7 @@ public abstract class FilesystemSupplementedRepositoryImpl<Type extends Versione
 					throw new StorageException("Failed to move file into new directory.", e);
 				}
 
-				ReflectionUtils.setField(field, objectToWrite, target);
+				pathFields.set(i, objectToWrite, target);
 			}
 		}
 
@@ -0,0 +1,111 @@
+package ca.corefacility.bioinformatics.irida.repositories.filesystem;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.corefacility.bioinformatics.irida.exceptions.StorageException;
+
+/**
+ * The {@link Path} members declared by a file-backed entity type. The members
+ * are found once per type and are read and written through
+ * {@link MethodHandle}s afterwards, so loading or saving an entity doesn't scan
+ * its class with reflection.
+ */
+final class PathFieldAccessors {
+
+	private static final ClassValue<PathFieldAccessors> ACCESSORS = new ClassValue<>() {
+		@Override
+		protected PathFieldAccessors computeValue(final Class<?> type) {
+			return new PathFieldAccessors(type);
+		}
+	};
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Path.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Path.class);
+
+	private final MethodHandle[] getters;
+	private final MethodHandle[] setters;
+
+	private PathFieldAccessors(final Class<?> type) {
+		final List<MethodHandle> foundGetters = new ArrayList<>();
+		final List<MethodHandle> foundSetters = new ArrayList<>();
+		try {
+			final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			for (final Field field : type.getDeclaredFields()) {
+				if (field.getType().equals(Path.class) && !Modifier.isStatic(field.getModifiers())) {
+					// some entities declare their file as final, which a
+					// setter can only write once the field is accessible
+					field.setAccessible(true);
+					foundGetters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+					foundSetters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+				}
+			}
+		} catch (final IllegalAccessException | RuntimeException e) {
+			throw new StorageException("Unable to access the file members of " + type.getName(), e);
+		}
+		this.getters = foundGetters.toArray(new MethodHandle[0]);
+		this.setters = foundSetters.toArray(new MethodHandle[0]);
+	}
+
+	/**
+	 * Get the accessors for the {@link Path} members of a type, finding them
+	 * the first time the type is seen.
+	 *
+	 * @param type
+	 *            the entity type
+	 * @return the accessors for the type
+	 */
+	static PathFieldAccessors forType(final Class<?> type) {
+		return ACCESSORS.get(type);
+	}
+
+	/**
+	 * Get the number of {@link Path} members declared by the type.
+	 *
+	 * @return the number of members
+	 */
+	int size() {
+		return getters.length;
+	}
+
+	/**
+	 * Read a {@link Path} member of an entity.
+	 *
+	 * @param index
+	 *            the member to read
+	 * @param entity
+	 *            the entity to read from
+	 * @return the value of the member
+	 */
+	Path get(final int index, final Object entity) {
+		try {
+			return (Path) getters[index].invokeExact(entity);
+		} catch (final Throwable e) {
+			throw new StorageException("Unable to read file member of " + entity.getClass().getName(), e);
+		}
+	}
+
+	/**
+	 * Write a {@link Path} member of an entity.
+	 *
+	 * @param index
+	 *            the member to write
+	 * @param entity
+	 *            the entity to write to
+	 * @param path
+	 *            the new value of the member
+	 */
+	void set(final int index, final Object entity, final Path path) {
+		try {
+			setters[index].invokeExact(entity, path);
+		} catch (final Throwable e) {
+			throw new StorageException("Unable to write file member of " + entity.getClass().getName(), e);
+		}
+	}
+}
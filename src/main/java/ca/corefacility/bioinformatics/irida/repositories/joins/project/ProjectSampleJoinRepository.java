@@ -1,5 +1,6 @@
 package ca.corefacility.bioinformatics.irida.repositories.joins.project;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
@@ -95,4 +96,33 @@ public interface ProjectSampleJoinRepository
 	@Query("SELECT j.sample.id FROM ProjectSampleJoin j where j.owner=false AND j.project=?1")
 	public List<Long> getLockedSamplesForProject(Project project);
 
+	/**
+	 * Get the {@link ProjectSampleJoin}s for the {@link Sample}s in a {@link Project} with the given names.
+	 *
+	 * @param project     the {@link Project} to get samples for
+	 * @param sampleNames the names of the {@link Sample}s
+	 * @return the {@link ProjectSampleJoin}s for the samples that were found
+	 */
+	@Query("select j from ProjectSampleJoin j where j.project = ?1 and j.sample.sampleName in ?2")
+	public List<ProjectSampleJoin> getSamplesInProjectByName(Project project, Collection<String> sampleNames);
+
+	/**
+	 * Get the ids of the given {@link Sample}s that are owned by a {@link Project}.
+	 *
+	 * @param project the {@link Project} to check
+	 * @param samples the {@link Sample}s to check
+	 * @return the ids of the samples owned by the project
+	 */
+	@Query("SELECT j.sample.id FROM ProjectSampleJoin j where j.owner=true AND j.project=?1 AND j.sample in ?2")
+	public List<Long> getOwnedSamplesInProject(Project project, Collection<Sample> samples);
+
+	/**
+	 * Get the {@link Project}s that each of the given {@link Sample}s is in.
+	 *
+	 * @param sampleIds the ids of the {@link Sample}s to check
+	 * @return a row for each project a sample is in, holding the project id then the sample id
+	 */
+	@Query("SELECT j.project.id, j.sample.id FROM ProjectSampleJoin j where j.sample.id in ?1")
+	public List<Object[]> getProjectIdsForSamples(Collection<Long> sampleIds);
+
 }
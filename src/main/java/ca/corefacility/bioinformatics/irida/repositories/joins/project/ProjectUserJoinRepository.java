@@ -68,6 +68,15 @@ public interface ProjectUserJoinRepository
 	@Query("select j from ProjectUserJoin j where j.user = ?1")
 	public List<Join<Project, User>> getProjectsForUser(User user);
 
+	/**
+	 * Get the identifiers of the {@link Project}s a {@link User} has been added to directly.
+	 *
+	 * @param username the name of the user to get projects for.
+	 * @return the identifiers of the user's projects.
+	 */
+	@Query("select j.project.id from ProjectUserJoin j where j.user.username = ?1")
+	public List<Long> getProjectIdsForUser(String username);
+
 	/**
 	 * Get the join object between a given {@link Project} and {@link User}
 	 *
@@ -52,6 +52,15 @@ public interface UserGroupProjectJoinRepository extends IridaJpaRepository<UserG
 	@Query("from UserGroupProjectJoin ugpj where ugpj.userGroup in (select group from UserGroupJoin where user = ?1)")
 	public Collection<UserGroupProjectJoin> findProjectsByUser(final User u);
 
+	/**
+	 * Find the identifiers of the projects where the specified user is in a group on the project.
+	 *
+	 * @param username the name of the user.
+	 * @return the identifiers of the projects that the user is in via a group.
+	 */
+	@Query("select ugpj.project.id from UserGroupProjectJoin ugpj where ugpj.userGroup in (select ugj.group from UserGroupJoin ugj where ugj.user.username = ?1)")
+	public List<Long> findProjectIdsByUser(final String username);
+
 	/**
 	 * Find the join for a user group and project.
 	 *
@@ -1,6 +1,7 @@
 package ca.corefacility.bioinformatics.irida.repositories.sample;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.springframework.data.jpa.repository.Query;
@@ -33,4 +34,22 @@ public interface MetadataEntryRepository extends IridaJpaRepository<MetadataEntr
 	 */
 	@Query("FROM MetadataEntry m WHERE m.sample=?1 AND m.field IN (?2)")
 	Set<MetadataEntry> getMetadataForSampleAndField(Sample sample, Collection<MetadataTemplateField> fields);
+
+	/**
+	 * Get all the {@link MetadataEntry} attached to any of the given {@link Sample}s
+	 *
+	 * @param samples the samples to get metadata for
+	 * @return a set of {@link MetadataEntry}
+	 */
+	@Query("FROM MetadataEntry m WHERE m.sample IN (?1)")
+	Set<MetadataEntry> getMetadataForSamples(Collection<Sample> samples);
+
+	/**
+	 * Get the ids of the {@link MetadataTemplateField}s the given {@link Sample} has a value for
+	 *
+	 * @param sample the sample to get fields for
+	 * @return the ids of the fields
+	 */
+	@Query("SELECT m.field.id FROM MetadataEntry m WHERE m.sample=?1")
+	List<Long> getFieldIdsForSample(Sample sample);
 }
@@ -3,17 +3,22 @@ package ca.corefacility.bioinformatics.irida.repositories.sample;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 import javax.sql.DataSource;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummaryConverter;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -21,13 +26,14 @@ import static com.google.common.base.Preconditions.checkArgument;
  * Implementation of the custom methods for retrieving {@link MetadataEntry}
  */
 public class MetadataEntryRepositoryImpl implements MetadataEntryRepositoryCustom {
+	private static final Logger logger = LoggerFactory.getLogger(MetadataEntryRepositoryImpl.class);
+
+	private final SampleMetadataSummaryConverter summaryConverter = new SampleMetadataSummaryConverter();
 	private final DataSource dataSource;
-	private final EntityManager entityManager;
 
 	@Autowired
-	public MetadataEntryRepositoryImpl(DataSource dataSource, EntityManager entityManager) {
+	public MetadataEntryRepositoryImpl(DataSource dataSource) {
 		this.dataSource = dataSource;
-		this.entityManager = entityManager;
 	}
 
 	/**
@@ -40,45 +46,82 @@ public class MetadataEntryRepositoryImpl implements MetadataEntryRepositoryCusto
 		NamedParameterJdbcTemplate tmpl = new NamedParameterJdbcTemplate(dataSource);
 		MapSqlParameterSource parameters = new MapSqlParameterSource();
 		parameters.addValue("project", project.getId());
+		parameters.addValue("sampleIds", sampleIds);
+
+		//Collect the requested fields into a map from ID to field for use later
+		Map<Long, MetadataTemplateField> fieldMap = requestedFields.stream()
+				.collect(Collectors.toMap(MetadataTemplateField::getId, field -> field, (f1, f2) -> f1));
+
+		//build a map of sample ID some empty sets for us to add the metadata
+		Map<Long, Set<MetadataEntry>> sampleMetadata = sampleIds.stream()
+				.collect(Collectors.toMap(s -> s, s -> new HashSet<>(), (s1, s2) -> s1));
+
+		if (sampleIds.isEmpty()) {
+			return sampleMetadata;
+		}
 
 		/*
-		 * The below code for loading the metadata fields could be simplified into a single query, but the previous
-		 * 3-join query was taking 10s of seconds to load for large projects.  The 2 query process below for loading the
-		 * fields is providing significantly better performance than loading fields in a single 3-join query.
+		 * Read the metadata of each sample from its summary row instead of reading every metadata entry of the page of
+		 * samples.  Samples that were last updated before the summaries existed don't have one yet.
 		 */
+		String summaryQueryString = "SELECT m.sample_id, m.metadata FROM sample_metadata_summary m INNER JOIN project_sample p ON p.sample_id=m.sample_id WHERE p.project_id=:project AND m.sample_id IN (:sampleIds)";
+		Map<Long, Map<Long, MetadataValue>> summaries = new HashMap<>();
+		tmpl.query(summaryQueryString, parameters, rs -> {
+			summaries.put(rs.getLong("sample_id"), summaryConverter.convertToEntityAttribute(rs.getString("metadata")));
+		});
 
-		//First get all the field IDs that are associated with this project
-		String fieldIdQueryString = "SELECT DISTINCT e.field_id FROM metadata_entry e INNER JOIN project_sample p ON e.sample_id=p.sample_id WHERE p.project_id=:project";
-		parameters.addValue("project", project.getId());
-		List<Long> fieldIds = tmpl.queryForList(fieldIdQueryString, parameters, Long.class);
-
-		List<MetadataTemplateField> fields;
-		if (!fieldIds.isEmpty()) {
-			// next load the full fields
-			String queryString = "SELECT f from MetadataTemplateField f WHERE f.id IN :fields";
-			TypedQuery<MetadataTemplateField> nativeQuery = entityManager.createQuery(queryString,
-					MetadataTemplateField.class);
-			nativeQuery.setParameter("fields", fieldIds);
-			fields = nativeQuery.getResultList();
-		} else {
-			// if there's no metadata, at least return the empty list
-			fields = new ArrayList<>();
+		List<Long> unsummarized = sampleIds.stream()
+				.filter(id -> !summaries.containsKey(id))
+				.distinct()
+				.collect(Collectors.toList());
+		if (!unsummarized.isEmpty()) {
+			summaries.putAll(summarizeProjectSamples(tmpl, project, unsummarized));
 		}
 
-		//Collect the fields into a map from ID to field for use later
-		Map<Long, MetadataTemplateField> fieldMap = fields.stream()
-				.collect(Collectors.toMap(MetadataTemplateField::getId, field -> field));
+		//for each sample id, add the requested metadata
+		for (Map.Entry<Long, Map<Long, MetadataValue>> summary : summaries.entrySet()) {
+			Set<MetadataEntry> entries = sampleMetadata.get(summary.getKey());
+			for (Map.Entry<Long, MetadataValue> value : summary.getValue().entrySet()) {
+				//get the field associated with this entry, skipping the ones that weren't asked for
+				MetadataTemplateField metadataTemplateField = fieldMap.get(value.getKey());
+				if (metadataTemplateField != null) {
+					// build a MetadataEntry for the object
+					MetadataEntry entry = new MetadataEntry(value.getValue().getValue(), value.getValue().getType(),
+							metadataTemplateField);
+					entry.setId(value.getValue().getId());
+					entries.add(entry);
+				}
+			}
+		}
 
-		//query for all metadata entries used in the project
-		String entityQueryString = "select e.id, e.type, e.value, e.field_id, e.sample_id from metadata_entry e INNER JOIN project_sample s ON s.sample_id=e.sample_id WHERE s.project_id=:project AND s.sample_id in (:sampleIds) AND e.field_id IN (:fieldIds)";
-		List<Long> requestedFieldIds = requestedFields.stream()
-				.map(MetadataTemplateField::getId)
-				.collect(Collectors.toList());
+		return sampleMetadata;
+	}
+
+	/**
+	 * Summarize the metadata of samples that don't have a summary yet from their metadata entries, and store the
+	 * summaries so the next read can use them.
+	 *
+	 * @param tmpl      the template to query with
+	 * @param project   the project the samples are in
+	 * @param sampleIds the samples without a summary
+	 * @return the metadata of each sample that is in the project, keyed by field id
+	 */
+	private Map<Long, Map<Long, MetadataValue>> summarizeProjectSamples(NamedParameterJdbcTemplate tmpl,
+			Project project, List<Long> sampleIds) {
+		MapSqlParameterSource parameters = new MapSqlParameterSource();
+		parameters.addValue("project", project.getId());
 		parameters.addValue("sampleIds", sampleIds);
-		parameters.addValue("fieldIds", requestedFieldIds);
 
-		//map the results into a SampleMetadataEntry
-		List<SampleMetadataEntry> sampleEntryCollection = tmpl.query(entityQueryString, parameters, (rs, rowNum) -> {
+		Map<Long, Map<Long, MetadataValue>> summaries = new HashMap<>();
+
+		//every sample in the project gets a summary, even if it has no metadata
+		String sampleQueryString = "SELECT s.sample_id FROM project_sample s WHERE s.project_id=:project AND s.sample_id IN (:sampleIds)";
+		tmpl.queryForList(sampleQueryString, parameters, Long.class)
+				.forEach(id -> summaries.put(id, new HashMap<>()));
+
+		//query for all metadata entries of the samples
+		String entityQueryString = "select e.id, e.type, e.value, e.field_id, e.sample_id from metadata_entry e INNER JOIN project_sample s ON s.sample_id=e.sample_id WHERE s.project_id=:project AND s.sample_id in (:sampleIds)";
+		tmpl.query(entityQueryString, parameters, rs -> {
 			//get the request columns
 			String type = rs.getString("e.type");
 			String value = rs.getString("e.value");
@@ -86,47 +129,27 @@ public class MetadataEntryRepositoryImpl implements MetadataEntryRepositoryCusto
 			long fieldId = rs.getLong("e.field_id");
 			long sampleId = rs.getLong("e.sample_id");
 
-			//get the field associated with this entry
-			MetadataTemplateField metadataTemplateField = fieldMap.get(fieldId);
-
-			// build a MetadataEntry for the object
-			MetadataEntry entry = new MetadataEntry(value, type, metadataTemplateField);
-			entry.setId(entryId);
-
-			return new SampleMetadataEntry(sampleId, entry);
+			summaries.get(sampleId).putIfAbsent(fieldId, new MetadataValue(entryId, type, value));
 		});
 
-		//build a map of sample ID some empty sets for us to add the metadata
-		Map<Long, Set<MetadataEntry>> sampleMetadata = sampleIds.stream()
-				.collect(Collectors.toMap(s -> s, s -> new HashSet<>()));
-
-		//for each sample id, add the associated metadata
-		for (SampleMetadataEntry entries : sampleEntryCollection) {
-			sampleMetadata.get(entries.getSampleId()).add(entries.getEntry());
-		}
-
-		return sampleMetadata;
-	}
-
-	/**
-	 * A convenience class for collecting the results of the above metadata query. It will be used after to convert into
-	 * the sample/metadata map.
-	 */
-	private class SampleMetadataEntry {
-		Long sampleId;
-		MetadataEntry entry;
-
-		SampleMetadataEntry(Long sampleId, MetadataEntry entry) {
-			this.sampleId = sampleId;
-			this.entry = entry;
-		}
-
-		public Long getSampleId() {
-			return sampleId;
+		/*
+		 * Another request may be summarizing the same samples at the same time.  Whichever one stores the summary
+		 * first wins, they were built from the same entries.  A save of the samples' metadata replaces the summary
+		 * stored here, so a summary read from entries that were being changed doesn't stick.  If the summary can't
+		 * be stored at all (e.g. in a read only transaction) it will be built again on the next read.
+		 */
+		JdbcTemplate jdbcTemplate = tmpl.getJdbcTemplate();
+		for (Map.Entry<Long, Map<Long, MetadataValue>> summary : summaries.entrySet()) {
+			try {
+				jdbcTemplate.update("INSERT INTO sample_metadata_summary (sample_id, metadata) VALUES (?, ?)",
+						summary.getKey(), summaryConverter.convertToDatabaseColumn(summary.getValue()));
+			} catch (DuplicateKeyException e) {
+				logger.trace("Sample [" + summary.getKey() + "] was already summarized");
+			} catch (DataAccessException e) {
+				logger.debug("Could not store the metadata summary of sample [" + summary.getKey() + "]", e);
+			}
 		}
 
-		public MetadataEntry getEntry() {
-			return entry;
-		}
+		return summaries;
 	}
 }
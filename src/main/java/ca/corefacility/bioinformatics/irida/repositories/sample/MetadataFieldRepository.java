@@ -7,6 +7,7 @@ import ca.corefacility.bioinformatics.irida.repositories.IridaJpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +25,15 @@ public interface MetadataFieldRepository
 	@Query("from MetadataTemplateField m where m.label = ?1")
 	public MetadataTemplateField findMetadataFieldByLabel(String label);
 
+	/**
+	 * Get the {@link MetadataTemplateField}s with any of the given {@link String} labels.
+	 *
+	 * @param labels the {@link String} field labels
+	 * @return the {@link MetadataTemplateField}s that were found
+	 */
+	@Query("from MetadataTemplateField m where m.label in ?1")
+	public List<MetadataTemplateField> findMetadataFieldsByLabels(Collection<String> labels);
+
 	/**
 	 * Get a {@link List} of {@link MetadataTemplateField} with a label that partially matches the query
 	 *
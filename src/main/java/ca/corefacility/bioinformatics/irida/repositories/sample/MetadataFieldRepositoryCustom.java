@@ -3,17 +3,17 @@ package ca.corefacility.bioinformatics.irida.repositories.sample;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 
-import java.util.List;
+import java.util.Map;
 
 /**
  * Custom repository methods for getting {@link MetadataTemplateField}s
  */
 public interface MetadataFieldRepositoryCustom {
 	/**
-	 * Get all MetadataTemplateField associated with a {@link Project}
+	 * Count the samples in a {@link Project} that have a value for each MetadataTemplateField
 	 *
 	 * @param p The project to get fields for
-	 * @return a list of fields
+	 * @return the number of samples with a value, keyed by the id of each field used in the project
 	 */
-	public List<MetadataTemplateField> getMetadataFieldsForProject(Project p);
+	public Map<Long, Long> getMetadataFieldUsageForProject(Project p);
 }
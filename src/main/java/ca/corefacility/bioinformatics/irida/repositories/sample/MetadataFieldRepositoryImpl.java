@@ -1,10 +1,8 @@
 package ca.corefacility.bioinformatics.irida.repositories.sample;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,12 +17,10 @@ import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
  */
 public class MetadataFieldRepositoryImpl implements MetadataFieldRepositoryCustom {
 
-	private final EntityManager entityManager;
 	private DataSource dataSource;
 
 	@Autowired
-	public MetadataFieldRepositoryImpl(EntityManager entityManager, DataSource dataSource) {
-		this.entityManager = entityManager;
+	public MetadataFieldRepositoryImpl(DataSource dataSource) {
 		this.dataSource = dataSource;
 	}
 
@@ -32,35 +28,23 @@ public class MetadataFieldRepositoryImpl implements MetadataFieldRepositoryCusto
 	 * {@inheritDoc}
 	 */
 	@Override
-	public List<MetadataTemplateField> getMetadataFieldsForProject(Project p) {
+	public Map<Long, Long> getMetadataFieldUsageForProject(Project p) {
 		NamedParameterJdbcTemplate tmpl = new NamedParameterJdbcTemplate(dataSource);
 		MapSqlParameterSource parameters = new MapSqlParameterSource();
 
 		/*
-		 * The below code for loading the metadata fields could be simplified
-		 * into a single query, but the previous 3-join query was taking 10s of
-		 * seconds to load for large projects. The 2 query process below for
-		 * loading the fields is providing significantly better performance than
-		 * loading fields in a single 3-join query.
+		 * Only count the field ids here rather than joining the fields as well, as
+		 * the 3-join query was taking 10s of seconds to load for large projects.
+		 * The (sample_id, field_id) index covers the metadata_entry side of this
+		 * query.
 		 */
-
-		// First load all the field IDs related to this project
-		String fieldIdQueryString = "SELECT DISTINCT e.field_id FROM metadata_entry e INNER JOIN project_sample p ON e.sample_id=p.sample_id WHERE p.project_id=:project";
+		String usageQueryString = "SELECT e.field_id, COUNT(*) FROM metadata_entry e INNER JOIN project_sample p ON e.sample_id=p.sample_id WHERE p.project_id=:project GROUP BY e.field_id";
 		parameters.addValue("project", p.getId());
-		List<Long> fieldIds = tmpl.queryForList(fieldIdQueryString, parameters, Long.class);
-
-		List<MetadataTemplateField> resultList;
-		if (!fieldIds.isEmpty()) {
-			// next load all the full fields with those ids
-			String queryString = "SELECT f from MetadataTemplateField f WHERE f.id IN :fields";
-			TypedQuery<MetadataTemplateField> nativeQuery = entityManager.createQuery(queryString,
-					MetadataTemplateField.class);
-			nativeQuery.setParameter("fields", fieldIds);
-			resultList = nativeQuery.getResultList();
-		} else {
-			resultList = new ArrayList<>();
-		}
 
-		return resultList;
+		Map<Long, Long> usage = new HashMap<>();
+		tmpl.query(usageQueryString, parameters, rs -> {
+			usage.put(rs.getLong(1), rs.getLong(2));
+		});
+		return usage;
 	}
 }
@@ -0,0 +1,12 @@
+package ca.corefacility.bioinformatics.irida.repositories.sample;
+
+import org.springframework.data.repository.CrudRepository;
+
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary;
+
+/**
+ * Repository for saving and reading {@link SampleMetadataSummary}, keyed by the id of the sample
+ */
+public interface SampleMetadataSummaryRepository
+		extends CrudRepository<SampleMetadataSummary, Long>, SampleMetadataSummaryRepositoryCustom {
+}
@@ -0,0 +1,22 @@
+package ca.corefacility.bioinformatics.irida.repositories.sample;
+
+import java.util.Map;
+
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
+
+/**
+ * Custom repository methods for {@link SampleMetadataSummary}s
+ */
+public interface SampleMetadataSummaryRepositoryCustom {
+
+	/**
+	 * Store the {@link SampleMetadataSummary} of each {@link Sample}, replacing any summary it already has. A summary
+	 * being stored at the same time by a read of the sample is replaced rather than failing the save.
+	 *
+	 * @param summaries the metadata of each sample keyed by {@link MetadataTemplateField} id, keyed by sample id
+	 */
+	void saveSummaries(Map<Long, Map<Long, MetadataValue>> summaries);
+}
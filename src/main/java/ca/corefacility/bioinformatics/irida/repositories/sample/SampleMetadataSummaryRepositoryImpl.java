@@ -0,0 +1,49 @@
+package ca.corefacility.bioinformatics.irida.repositories.sample;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummaryConverter;
+
+/**
+ * Implementation of custom repository methods for {@link SampleMetadataSummary}s
+ */
+public class SampleMetadataSummaryRepositoryImpl implements SampleMetadataSummaryRepositoryCustom {
+	private final SampleMetadataSummaryConverter summaryConverter = new SampleMetadataSummaryConverter();
+	private final DataSource dataSource;
+
+	@Autowired
+	public SampleMetadataSummaryRepositoryImpl(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void saveSummaries(Map<Long, Map<Long, MetadataValue>> summaries) {
+		if (summaries.isEmpty()) {
+			return;
+		}
+
+		/*
+		 * A read of the samples may insert a summary between reading the current summaries and saving these ones, so
+		 * the summaries are upserted instead of picking between an insert and an update beforehand.
+		 */
+		List<Object[]> rows = summaries.entrySet()
+				.stream()
+				.map(summary -> new Object[] {
+						summary.getKey(), summaryConverter.convertToDatabaseColumn(summary.getValue()) })
+				.collect(Collectors.toList());
+		new JdbcTemplate(dataSource).batchUpdate(
+				"INSERT INTO sample_metadata_summary (sample_id, metadata) VALUES (?, ?) ON DUPLICATE KEY UPDATE metadata=VALUES(metadata)",
+				rows);
+	}
+}
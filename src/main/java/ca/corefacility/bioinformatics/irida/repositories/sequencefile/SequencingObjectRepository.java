@@ -15,7 +15,8 @@ import org.springframework.transaction.annotation.Transactional;
 /**
  * Repository for storing and retrieving {@link SequencingObject}s
  */
-public interface SequencingObjectRepository extends IridaJpaRepository<SequencingObject, Long> {
+public interface SequencingObjectRepository
+		extends IridaJpaRepository<SequencingObject, Long>, SequencingObjectRepositoryCustom {
 
 	/**
 	 * Get the {@link SequencingObject}s for a given {@link SequencingRun}
@@ -63,9 +64,10 @@ public interface SequencingObjectRepository extends IridaJpaRepository<Sequencin
 	 * @param objectId        ID of the sequencing object
 	 * @param processor       File processor id string to set
 	 * @param processingState processing state to set
+	 * @return the number of objects updated. 0 if the object was already marked by a processor
 	 */
 	@Transactional
 	@Modifying(clearAutomatically = true)
 	@Query("UPDATE SequencingObject f SET f.processingState = ?3, f.fileProcessor = ?2 WHERE f.id = ?1 AND f.fileProcessor is NULL")
-	public void markFileProcessor(Long objectId, String processor, SequencingObject.ProcessingState processingState);
+	public int markFileProcessor(Long objectId, String processor, SequencingObject.ProcessingState processingState);
 }
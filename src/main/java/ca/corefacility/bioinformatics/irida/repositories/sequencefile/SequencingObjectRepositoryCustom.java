@@ -0,0 +1,34 @@
+package ca.corefacility.bioinformatics.irida.repositories.sequencefile;
+
+import java.util.List;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+
+/**
+ * Custom repository methods for {@link SequencingObject}s
+ */
+public interface SequencingObjectRepositoryCustom {
+
+	/**
+	 * Claim a batch of {@link SequencingObject}s in the
+	 * {@link SequencingObject.ProcessingState#UNPROCESSED} state for the given
+	 * file processor. Claimed objects are moved directly to
+	 * {@link SequencingObject.ProcessingState#PROCESSING}. Rows that are
+	 * being claimed by another processor at the same time are skipped rather
+	 * than waited on.
+	 *
+	 * @param processor file processor id string to set
+	 * @param limit     the maximum number of objects to claim
+	 * @return the ids of the claimed {@link SequencingObject}s
+	 */
+	public List<Long> claimUnprocessedSequencingObjects(String processor, int limit);
+
+	/**
+	 * Release a {@link SequencingObject} claimed by the given processor so
+	 * that it can be picked up again.
+	 *
+	 * @param objectId  ID of the sequencing object
+	 * @param processor file processor id string that claimed the object
+	 */
+	public void releaseSequencingObject(Long objectId, String processor);
+}
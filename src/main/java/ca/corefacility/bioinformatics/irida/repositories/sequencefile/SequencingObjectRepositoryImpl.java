@@ -0,0 +1,120 @@
+package ca.corefacility.bioinformatics.irida.repositories.sequencefile;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject.ProcessingState;
+
+/**
+ * Implementation of custom repository methods for {@link SequencingObject}s
+ */
+public class SequencingObjectRepositoryImpl implements SequencingObjectRepositoryCustom {
+	private static final Logger logger = LoggerFactory.getLogger(SequencingObjectRepositoryImpl.class);
+
+	private static final String CLAIM_QUERY = "SELECT id FROM sequencing_object WHERE processing_state = :state AND file_processor IS NULL ORDER BY id LIMIT :limit FOR UPDATE";
+
+	private static final Pattern MARIADB_VERSION = Pattern.compile("(\\d+)\\.(\\d+)[^-]*-MariaDB");
+
+	private final EntityManager entityManager;
+
+	private Boolean skipLocked;
+
+	@Autowired
+	public SequencingObjectRepositoryImpl(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public List<Long> claimUnprocessedSequencingObjects(String processor, int limit) {
+		List<Long> ids = selectUnprocessed(limit);
+
+		if (ids.isEmpty()) {
+			return ids;
+		}
+
+		Query update = entityManager.createNativeQuery(
+				"UPDATE sequencing_object SET processing_state = :state, file_processor = :processor WHERE id IN (:ids)");
+		update.setParameter("state", ProcessingState.PROCESSING.name());
+		update.setParameter("processor", processor);
+		update.setParameter("ids", ids);
+		update.executeUpdate();
+
+		return ids;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional
+	public void releaseSequencingObject(Long objectId, String processor) {
+		Query update = entityManager.createNativeQuery(
+				"UPDATE sequencing_object SET processing_state = :state, file_processor = NULL WHERE id = :id AND file_processor = :processor");
+		update.setParameter("state", ProcessingState.UNPROCESSED.name());
+		update.setParameter("id", objectId);
+		update.setParameter("processor", processor);
+		update.executeUpdate();
+	}
+
+	/**
+	 * Select and lock the ids of unprocessed {@link SequencingObject}s.
+	 *
+	 * @param limit the maximum number of ids to select
+	 * @return the locked ids
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Long> selectUnprocessed(int limit) {
+		if (skipLocked == null) {
+			skipLocked = entityManager.unwrap(Session.class)
+					.doReturningWork(c -> supportsSkipLocked(c.getMetaData()));
+			logger.debug("Claiming sequencing objects for processing with SKIP LOCKED: " + skipLocked);
+		}
+
+		Query query = entityManager.createNativeQuery(skipLocked ? CLAIM_QUERY + " SKIP LOCKED" : CLAIM_QUERY);
+		query.setParameter("state", ProcessingState.UNPROCESSED.name());
+		query.setParameter("limit", limit);
+
+		List<Number> ids = query.getResultList();
+		return ids.stream().map(Number::longValue).collect(Collectors.toList());
+	}
+
+	/**
+	 * Check whether the database supports skipping locked rows with
+	 * <code>SELECT ... FOR UPDATE SKIP LOCKED</code>. This is supported by
+	 * MySQL 8 and MariaDB 10.6.
+	 *
+	 * @param metaData the {@link DatabaseMetaData} for the connection
+	 * @return true if <code>SKIP LOCKED</code> can be used
+	 * @throws SQLException if the database version could not be read
+	 */
+	static boolean supportsSkipLocked(DatabaseMetaData metaData) throws SQLException {
+		Matcher mariadb = MARIADB_VERSION.matcher(metaData.getDatabaseProductVersion());
+		if (mariadb.find()) {
+			int major = Integer.parseInt(mariadb.group(1));
+			int minor = Integer.parseInt(mariadb.group(2));
+			return major > 10 || (major == 10 && minor >= 6);
+		} else if (metaData.getDatabaseProductName().equalsIgnoreCase("MySQL")) {
+			return metaData.getDatabaseMajorVersion() >= 8;
+		}
+
+		return false;
+	}
+}
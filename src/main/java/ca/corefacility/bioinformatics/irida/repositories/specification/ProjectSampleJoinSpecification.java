@@ -2,25 +2,58 @@ package ca.corefacility.bioinformatics.irida.repositories.specification;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.persistence.criteria.*;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
 
 /**
- * Specification for searching {@link ProjectSampleJoin}s
+ * Specification for searching {@link ProjectSampleJoin}s.  Keys starting with {@link #METADATA_PREFIX} followed by the
+ * id of a {@link MetadataTemplateField} search and sort on the value of that metadata field on the sample.  Range
+ * searches on metadata compare numbers and dates by their typed value, and sorts put numbers and dates in order
+ * before falling back to the text of the value.
+ * <p>
+ * Restrictions on metadata fields are set per project, so a search can be limited with
+ * {@link #setMetadataProject(Long)} to the samples of the project whose restrictions were checked.
  */
 public class ProjectSampleJoinSpecification implements Specification<ProjectSampleJoin> {
+	public static final String METADATA_PREFIX = "metadata.";
+
+	private static final Set<SearchOperation> RANGE_OPERATIONS = EnumSet.of(SearchOperation.GREATER_THAN,
+			SearchOperation.LESS_THAN, SearchOperation.GREATER_THAN_EQUAL, SearchOperation.LESS_THAN_EQUAL);
 
 	private List<SearchCriteria> list;
+	private Sort sort = Sort.unsorted();
+	private Long metadataProjectId;
 
 	public ProjectSampleJoinSpecification() {
 		this.list = new ArrayList<>();
 	}
 
+	/**
+	 * Only search and sort the samples of one project on metadata.  Samples in other projects don't match searches on
+	 * metadata fields and sort as if they had no value.
+	 *
+	 * @param projectId the identifier of the project whose samples can be searched on metadata
+	 */
+	public void setMetadataProject(Long projectId) {
+		this.metadataProjectId = projectId;
+	}
+
+	public Long getMetadataProject() {
+		return metadataProjectId;
+	}
+
 	/**
 	 * Add a {@link SearchCriteria}
 	 *
@@ -30,6 +63,30 @@ public class ProjectSampleJoinSpecification implements Specification<ProjectSamp
 		list.add(criteria);
 	}
 
+	/**
+	 * Get the key to search or sort on a metadata field with
+	 *
+	 * @param field the {@link MetadataTemplateField} to search or sort on
+	 * @return the key for the field
+	 */
+	public static String getMetadataKey(MetadataTemplateField field) {
+		return METADATA_PREFIX + field.getId();
+	}
+
+	/**
+	 * Sort by metadata fields in the query itself, as a {@link Pageable} can only sort on the properties of the join.
+	 *
+	 * @param sort the requested sort
+	 * @return the sort to page the results with, which is unsorted if the query sorts itself
+	 */
+	public Sort applySort(Sort sort) {
+		if (sort.stream().anyMatch(order -> order.getProperty().startsWith(METADATA_PREFIX))) {
+			this.sort = sort;
+			return Sort.unsorted();
+		}
+		return sort;
+	}
+
 	@Override
 	public Predicate toPredicate(Root<ProjectSampleJoin> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
 		//create a new predicate list
@@ -37,62 +94,212 @@ public class ProjectSampleJoinSpecification implements Specification<ProjectSamp
 
 		//add criteria to predicates
 		for (SearchCriteria criteria : list) {
-			Path<?> path = getPath(root, criteria.getKey());
-
-			if (criteria.getOperation().equals(SearchOperation.GREATER_THAN)) {
-				if (path.getJavaType() == Date.class) {
-					predicates.add(builder.greaterThan(path.as(Date.class), valueToDate(criteria.getValue())));
-				} else {
-					predicates.add(builder.greaterThan(path.as(String.class), criteria.getValue().toString()));
-				}
-			} else if (criteria.getOperation().equals(SearchOperation.LESS_THAN)) {
-				if (path.getJavaType() == Date.class) {
-					predicates.add(builder.lessThan(path.as(Date.class), valueToDate(criteria.getValue())));
-				} else {
-					predicates.add(builder.lessThan(path.as(String.class), criteria.getValue().toString()));
-				}
-			} else if (criteria.getOperation().equals(SearchOperation.GREATER_THAN_EQUAL)) {
-				if (path.getJavaType() == Date.class) {
-					predicates.add(builder.greaterThanOrEqualTo(path.as(Date.class), valueToDate(criteria.getValue())));
-				} else {
-					predicates.add(builder.greaterThanOrEqualTo(path.as(String.class), criteria.getValue().toString()));
-				}
-			} else if (criteria.getOperation().equals(SearchOperation.LESS_THAN_EQUAL)) {
-				if (path.getJavaType() == Date.class) {
-					predicates.add(builder.lessThanOrEqualTo(path.as(Date.class), valueToDate(criteria.getValue())));
-				} else {
-					predicates.add(builder.lessThanOrEqualTo(path.as(String.class), criteria.getValue().toString()));
-				}
-			} else if (criteria.getOperation().equals(SearchOperation.NOT_EQUAL)) {
-				predicates.add(builder.notEqual(path, criteria.getValue()));
-			} else if (criteria.getOperation().equals(SearchOperation.EQUAL)) {
-				predicates.add(builder.equal(path, criteria.getValue()));
-			} else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
-				predicates.add(builder.like(builder.lower(path.as(String.class)),
-						"%" + criteria.getValue().toString().toLowerCase() + "%"));
-			} else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
-				predicates.add(builder.like(builder.lower(path.as(String.class)),
-						criteria.getValue().toString().toLowerCase() + "%"));
-			} else if (criteria.getOperation().equals(SearchOperation.MATCH_START)) {
-				predicates.add(builder.like(builder.lower(path.as(String.class)),
-						"%" + criteria.getValue().toString().toLowerCase()));
-			} else if (criteria.getOperation().equals(SearchOperation.MATCH_IN)) {
-				List<Predicate> matchInPredicates = new ArrayList<>();
-				for (Object value : (List<Object>) criteria.getValue()) {
-					matchInPredicates.add(builder.like(builder.lower(path.as(String.class)),
-							"%" + value.toString().toLowerCase() + "%"));
-				}
-				predicates.add(builder.or(matchInPredicates.toArray(new Predicate[0])));
-			} else if (criteria.getOperation().equals(SearchOperation.IN)) {
-				predicates.add(builder.in((Path) path).value(criteria.getValue()));
-			} else if (criteria.getOperation().equals(SearchOperation.NOT_IN)) {
-				predicates.add(builder.not((Path) path).in(criteria.getValue()));
+			if (criteria.getKey().startsWith(METADATA_PREFIX)) {
+				predicates.add(getMetadataPredicate(root, query, builder, criteria));
+			} else {
+				predicates.add(getPredicate(getPath(root, criteria.getKey()), criteria, builder));
 			}
 		}
 
+		// the count query for the page doesn't need to be sorted
+		if (sort.isSorted() && !Long.class.equals(query.getResultType())) {
+			query.orderBy(getOrders(root, builder));
+		}
+
 		return builder.and(predicates.toArray(new Predicate[0]));
 	}
 
+	/**
+	 * Search for samples that have a value for a metadata field matching the criteria
+	 *
+	 * @param root     the root of the query
+	 * @param query    the query
+	 * @param builder  the criteria builder
+	 * @param criteria the criteria with a metadata key
+	 * @return a predicate that the sample has a matching value
+	 */
+	private Predicate getMetadataPredicate(Root<ProjectSampleJoin> root, CriteriaQuery<?> query,
+			CriteriaBuilder builder, SearchCriteria criteria) {
+		Subquery<Long> subquery = query.subquery(Long.class);
+		Root<MetadataEntry> entry = subquery.from(MetadataEntry.class);
+		subquery.select(entry.get("id"))
+				.where(builder.equal(entry.get("sample"), root.get("sample")),
+						builder.equal(entry.get("field").get("id"), getFieldId(criteria.getKey())),
+						getMetadataValuePredicate(entry, criteria, builder));
+		if (metadataProjectId != null) {
+			return builder.and(builder.equal(root.get("project").get("id"), metadataProjectId),
+					builder.exists(subquery));
+		}
+		return builder.exists(subquery);
+	}
+
+	/**
+	 * Get the predicate on the value of a metadata entry.  Range searches with a date or a number use the typed value
+	 * of the entry, everything else searches the text of the value.
+	 *
+	 * @param entry    the metadata entry
+	 * @param criteria the criteria with a metadata key
+	 * @param builder  the criteria builder
+	 * @return the predicate for the criteria
+	 */
+	private Predicate getMetadataValuePredicate(Root<MetadataEntry> entry, SearchCriteria criteria,
+			CriteriaBuilder builder) {
+		if (RANGE_OPERATIONS.contains(criteria.getOperation())) {
+			Object value = criteria.getValue();
+			Date date = value instanceof Date ? (Date) value : MetadataEntry.parseDate(value.toString());
+			if (date != null) {
+				return getRangePredicate(entry.get("dateValue"), date, criteria.getOperation(), builder);
+			}
+
+			Double number = value instanceof Number ?
+					Double.valueOf(((Number) value).doubleValue()) :
+					MetadataEntry.parseNumber(value.toString());
+			if (number != null) {
+				return getRangePredicate(entry.get("numericValue"), number, criteria.getOperation(), builder);
+			}
+		}
+		return getPredicate(entry.get("value"), criteria, builder);
+	}
+
+	/**
+	 * Get the predicate for a range operation on a typed path
+	 *
+	 * @param path      the path to compare
+	 * @param value     the value to compare the path with
+	 * @param operation the range operation
+	 * @param builder   the criteria builder
+	 * @param <T>       the type of the path
+	 * @return the predicate for the operation
+	 */
+	private <T extends Comparable<? super T>> Predicate getRangePredicate(Expression<T> path, T value,
+			SearchOperation operation, CriteriaBuilder builder) {
+		switch (operation) {
+		case GREATER_THAN:
+			return builder.greaterThan(path, value);
+		case LESS_THAN:
+			return builder.lessThan(path, value);
+		case GREATER_THAN_EQUAL:
+			return builder.greaterThanOrEqualTo(path, value);
+		default:
+			return builder.lessThanOrEqualTo(path, value);
+		}
+	}
+
+	/**
+	 * Get the orders for the query, joining the metadata of the sample for orders on metadata fields.  Metadata is
+	 * ordered by its numeric value, then its date value, then its text.
+	 *
+	 * @param root    the root of the query
+	 * @param builder the criteria builder
+	 * @return the orders for the query
+	 */
+	private List<Order> getOrders(Root<ProjectSampleJoin> root, CriteriaBuilder builder) {
+		List<Order> orders = new ArrayList<>();
+		for (Sort.Order order : sort) {
+			List<Expression<?>> expressions = new ArrayList<>();
+			if (order.getProperty().startsWith(METADATA_PREFIX)) {
+				Join<ProjectSampleJoin, Sample> sample = root.join("sample");
+				Join<Sample, MetadataEntry> entry = sample.join("metadataEntries", JoinType.LEFT);
+				entry.on(builder.equal(entry.get("field").get("id"), getFieldId(order.getProperty())));
+				expressions.add(getMetadataOrderValue(root, entry.get("numericValue"), builder));
+				expressions.add(getMetadataOrderValue(root, entry.get("dateValue"), builder));
+				expressions.add(getMetadataOrderValue(root, entry.get("value"), builder));
+			} else {
+				expressions.add(getPath(root, order.getProperty()));
+			}
+			for (Expression<?> expression : expressions) {
+				orders.add(order.isAscending() ? builder.asc(expression) : builder.desc(expression));
+			}
+		}
+		return orders;
+	}
+
+	/**
+	 * Get the value of a metadata entry to sort on, which is null for samples outside the metadata project
+	 *
+	 * @param root    the root of the query
+	 * @param value   the value of the entry
+	 * @param builder the criteria builder
+	 * @param <T>     the type of the value
+	 * @return the value to sort on
+	 */
+	private <T> Expression<T> getMetadataOrderValue(Root<ProjectSampleJoin> root, Path<T> value,
+			CriteriaBuilder builder) {
+		if (metadataProjectId == null) {
+			return value;
+		}
+		return builder.<T>selectCase()
+				.when(builder.equal(root.get("project").get("id"), metadataProjectId), value)
+				.otherwise(builder.nullLiteral(value.getJavaType()));
+	}
+
+	private Long getFieldId(String key) {
+		return Long.valueOf(key.substring(METADATA_PREFIX.length()));
+	}
+
+	/**
+	 * Get the predicate for a single criteria on a path
+	 *
+	 * @param path     the path the criteria applies to
+	 * @param criteria the criteria
+	 * @param builder  the criteria builder
+	 * @return the predicate for the criteria
+	 */
+	private Predicate getPredicate(Path<?> path, SearchCriteria criteria, CriteriaBuilder builder) {
+		if (criteria.getOperation().equals(SearchOperation.GREATER_THAN)) {
+			if (path.getJavaType() == Date.class) {
+				return builder.greaterThan(path.as(Date.class), valueToDate(criteria.getValue()));
+			} else {
+				return builder.greaterThan(path.as(String.class), criteria.getValue().toString());
+			}
+		} else if (criteria.getOperation().equals(SearchOperation.LESS_THAN)) {
+			if (path.getJavaType() == Date.class) {
+				return builder.lessThan(path.as(Date.class), valueToDate(criteria.getValue()));
+			} else {
+				return builder.lessThan(path.as(String.class), criteria.getValue().toString());
+			}
+		} else if (criteria.getOperation().equals(SearchOperation.GREATER_THAN_EQUAL)) {
+			if (path.getJavaType() == Date.class) {
+				return builder.greaterThanOrEqualTo(path.as(Date.class), valueToDate(criteria.getValue()));
+			} else {
+				return builder.greaterThanOrEqualTo(path.as(String.class), criteria.getValue().toString());
+			}
+		} else if (criteria.getOperation().equals(SearchOperation.LESS_THAN_EQUAL)) {
+			if (path.getJavaType() == Date.class) {
+				return builder.lessThanOrEqualTo(path.as(Date.class), valueToDate(criteria.getValue()));
+			} else {
+				return builder.lessThanOrEqualTo(path.as(String.class), criteria.getValue().toString());
+			}
+		} else if (criteria.getOperation().equals(SearchOperation.NOT_EQUAL)) {
+			return builder.notEqual(path, criteria.getValue());
+		} else if (criteria.getOperation().equals(SearchOperation.EQUAL)) {
+			return builder.equal(path, criteria.getValue());
+		} else if (criteria.getOperation().equals(SearchOperation.MATCH)) {
+			return builder.like(builder.lower(path.as(String.class)),
+					"%" + criteria.getValue().toString().toLowerCase() + "%");
+		} else if (criteria.getOperation().equals(SearchOperation.MATCH_END)) {
+			return builder.like(builder.lower(path.as(String.class)),
+					criteria.getValue().toString().toLowerCase() + "%");
+		} else if (criteria.getOperation().equals(SearchOperation.MATCH_START)) {
+			return builder.like(builder.lower(path.as(String.class)),
+					"%" + criteria.getValue().toString().toLowerCase());
+		} else if (criteria.getOperation().equals(SearchOperation.MATCH_IN)) {
+			List<Predicate> matchInPredicates = new ArrayList<>();
+			for (Object value : (List<Object>) criteria.getValue()) {
+				matchInPredicates.add(builder.like(builder.lower(path.as(String.class)),
+						"%" + value.toString().toLowerCase() + "%"));
+			}
+			return builder.or(matchInPredicates.toArray(new Predicate[0]));
+		} else if (criteria.getOperation().equals(SearchOperation.IN)) {
+			return builder.in((Path) path).value(criteria.getValue());
+		} else if (criteria.getOperation().equals(SearchOperation.NOT_IN)) {
+			return builder.not((Path) path).in(criteria.getValue());
+		}
+
+		// unknown operations don't restrict the results
+		return builder.conjunction();
+	}
+
 	private Path<?> getPath(Root<ProjectSampleJoin> root, String attributeName) {
 		Path<?> path;
 		if (attributeName.contains(".")) {
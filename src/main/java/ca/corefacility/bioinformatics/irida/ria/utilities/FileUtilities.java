@@ -5,15 +5,15 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.poi.ss.usermodel.*;
@@ -29,6 +29,7 @@ import ca.corefacility.bioinformatics.irida.ria.web.dto.ExcelCol;
 import ca.corefacility.bioinformatics.irida.ria.web.dto.ExcelData;
 import ca.corefacility.bioinformatics.irida.ria.web.dto.ExcelHeader;
 import ca.corefacility.bioinformatics.irida.ria.web.dto.ExcelRow;
+import ca.corefacility.bioinformatics.irida.web.spring.view.RangedFileResponse;
 
 import com.github.pjfanning.xlsx.StreamingReader;
 import com.github.pjfanning.xlsx.impl.StreamingCell;
@@ -52,9 +53,11 @@ public class FileUtilities {
 	 * @param response {@link HttpServletResponse}
 	 * @param fileName Name fo the file to create
 	 * @param files    Set of {@link AnalysisOutputFile}
+	 * @param deflateExecutor the {@link Executor} used to compress large files, or null to compress them on the
+	 *                        calling thread
 	 */
 	public static void createAnalysisOutputFileZippedResponse(HttpServletResponse response, String fileName,
-			Set<AnalysisOutputFile> files) {
+			Set<AnalysisOutputFile> files, Executor deflateExecutor) {
 		/*
 		 * Replacing spaces and commas as they cause issues with
 		 * Content-disposition response header.
@@ -70,7 +73,7 @@ public class FileUtilities {
 		response.setContentType(CONTENT_TYPE_APPLICATION_ZIP);
 
 		try (ServletOutputStream responseStream = response.getOutputStream();
-				ZipOutputStream outputStream = new ZipOutputStream(responseStream)) {
+				ZipStreamWriter outputStream = new ZipStreamWriter(responseStream, deflateExecutor)) {
 
 			for (AnalysisOutputFile file : files) {
 				if (!Files.exists(file.getFile())) {
@@ -81,22 +84,13 @@ public class FileUtilities {
 				StringBuilder zipEntryName = new StringBuilder(fileName);
 				zipEntryName.append("/").append(file.getLabel());
 
-				// 2) Tell the zip stream that we are starting a new entry in
-				// the archive.
-				outputStream.putNextEntry(new ZipEntry(zipEntryName.toString()));
-
-				// 3) COPY all of thy bytes from the file to the output stream.
-				Files.copy(file.getFile(), outputStream);
-
-				// 4) Close the current entry in the archive in preparation for
-				// the next entry.
-				outputStream.closeEntry();
+				// 2) Add the file to the archive. Compressed files are stored
+				// as they are, everything else is deflated.
+				outputStream.putFile(zipEntryName.toString(), file.getFile());
 
 				ObjectMapper objectMapper = new ObjectMapper();
 				byte[] bytes = objectMapper.writeValueAsBytes(file);
-				outputStream.putNextEntry(new ZipEntry(zipEntryName.toString() + "-prov.json"));
-				outputStream.write(bytes);
-				outputStream.closeEntry();
+				outputStream.putBytes(zipEntryName.toString() + "-prov.json", bytes);
 			}
 
 			// Tell the output stream that you are finished downloading.
@@ -118,9 +112,11 @@ public class FileUtilities {
 	 * @param response {@link HttpServletResponse}
 	 * @param fileName Name fo the file to create
 	 * @param files    Set of {@link AnalysisOutputFile}
+	 * @param deflateExecutor the {@link Executor} used to compress large files, or null to compress them on the
+	 *                        calling thread
 	 */
 	public static void createBatchAnalysisOutputFileZippedResponse(HttpServletResponse response, String fileName,
-			Map<ProjectSampleAnalysisOutputInfo, AnalysisOutputFile> files) {
+			Map<ProjectSampleAnalysisOutputInfo, AnalysisOutputFile> files, Executor deflateExecutor) {
 		/*
 		 * Replacing spaces and commas as they cause issues with
 		 * Content-disposition response header.
@@ -135,7 +131,7 @@ public class FileUtilities {
 		response.setContentType(CONTENT_TYPE_APPLICATION_ZIP);
 
 		try (ServletOutputStream responseStream = response.getOutputStream();
-				ZipOutputStream outputStream = new ZipOutputStream(responseStream)) {
+				ZipStreamWriter outputStream = new ZipStreamWriter(responseStream, deflateExecutor)) {
 			for (Map.Entry<ProjectSampleAnalysisOutputInfo, AnalysisOutputFile> entry : files.entrySet()) {
 				final AnalysisOutputFile file = entry.getValue();
 				final ProjectSampleAnalysisOutputInfo outputInfo = entry.getKey();
@@ -148,16 +144,9 @@ public class FileUtilities {
 				// trying to pack as much useful info into the filename as possible!
 				String outputFilename = getUniqueFilename(file.getFile(), outputInfo.getSampleName(),
 						outputInfo.getSampleId(), +outputInfo.getAnalysisSubmissionId());
-				// 2) Tell the zip stream that we are starting a new entry in
-				// the archive.
-				outputStream.putNextEntry(new ZipEntry(fileName + "/" + outputFilename));
-
-				// 3) COPY all of thy bytes from the file to the output stream.
-				Files.copy(file.getFile(), outputStream);
-
-				// 4) Close the current entry in the archive in preparation for
-				// the next entry.
-				outputStream.closeEntry();
+				// 2) Add the file to the archive. Compressed files are stored
+				// as they are, everything else is deflated.
+				outputStream.putFile(fileName + "/" + outputFilename, file.getFile());
 			}
 
 			// Tell the output stream that you are finished downloading.
@@ -174,14 +163,17 @@ public class FileUtilities {
 	}
 
 	/**
-	 * Utility method for download single file from an analysis.
+	 * Utility method for download single file from an analysis. Supports
+	 * conditional and byte-range requests so that interrupted downloads can be
+	 * resumed.
 	 *
+	 * @param request  {@link HttpServletRequest}
 	 * @param response {@link HttpServletResponse}
 	 * @param file     Set of {@link AnalysisOutputFile}
 	 * @param fileName Filename
 	 */
-	public static void createSingleFileResponse(HttpServletResponse response, AnalysisOutputFile file,
-			String fileName) {
+	public static void createSingleFileResponse(HttpServletRequest request, HttpServletResponse response,
+			AnalysisOutputFile file, String fileName) {
 		fileName = formatName(fileName);
 
 		// set the response headers before we do *ANYTHING* so that the filename
@@ -189,8 +181,9 @@ public class FileUtilities {
 		response.setHeader(CONTENT_DISPOSITION, ATTACHMENT_FILENAME + fileName);
 		response.setContentType(CONTENT_TYPE_TEXT);
 
-		try (ServletOutputStream outputStream = response.getOutputStream()) {
-			Files.copy(file.getFile(), response.getOutputStream());
+		try {
+			String etag = RangedFileResponse.fileEtag(file.getFile(), file.getId(), file.getFileRevisionNumber());
+			RangedFileResponse.write(request, response, file.getFile(), CONTENT_TYPE_TEXT, etag);
 		} catch (IOException e) {
 			// this generally means that the user has cancelled the download
 			// from their web browser; we can safely ignore this
@@ -204,12 +197,14 @@ public class FileUtilities {
 	/**
 	 * Utility method for download single file from an analysis.
 	 *
+	 * @param request  {@link HttpServletRequest}
 	 * @param response {@link HttpServletResponse}
 	 * @param file     Set of {@link AnalysisOutputFile}
 	 */
-	public static void createSingleFileResponse(HttpServletResponse response, AnalysisOutputFile file) {
+	public static void createSingleFileResponse(HttpServletRequest request, HttpServletResponse response,
+			AnalysisOutputFile file) {
 		String fileName = file.getLabel();
-		FileUtilities.createSingleFileResponse(response, file, fileName);
+		FileUtilities.createSingleFileResponse(request, response, file, fileName);
 	}
 
 	/**
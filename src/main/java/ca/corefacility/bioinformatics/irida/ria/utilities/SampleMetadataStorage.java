@@ -1,17 +1,26 @@
 package ca.corefacility.bioinformatics.irida.ria.utilities;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 /**
- * Used to store information relating to sample metadata during upload.
+ * Used to send a page of sample metadata to the UI during upload.
  */
 public class SampleMetadataStorage {
+	private String uploadId;
 	private String sampleNameColumn;
 	private List<String> headers;
 	private List<SampleMetadataStorageRow> rows;
+	private int total;
+	private int invalidSampleNames;
+
+	public String getUploadId() {
+		return uploadId;
+	}
+
+	public void setUploadId(String uploadId) {
+		this.uploadId = uploadId;
+	}
 
 	public void setSampleNameColumn(String sampleColumnName) {
 		this.sampleNameColumn = sampleColumnName;
@@ -29,41 +38,44 @@ public class SampleMetadataStorage {
 		return headers;
 	}
 
+	/**
+	 * Get the rows on the requested page
+	 *
+	 * @return the rows, or null if no page was requested
+	 */
 	public List<SampleMetadataStorageRow> getRows() {
 		return rows;
 	}
 
+	public void setRows(List<SampleMetadataStorageRow> rows) {
+		this.rows = rows;
+	}
+
 	/**
-	 * Returns the row from storage given the sample name and column name
+	 * Get the number of rows in the whole upload
 	 *
-	 * @param sampleName       the name of the sample
-	 * @param sampleNameColumn the header name of the sample column
-	 * @return the value associated with the key
+	 * @return the total number of rows
 	 */
-	public SampleMetadataStorageRow getRow(String sampleName, String sampleNameColumn) {
-		return rows.stream()
-				.filter(row -> sampleName.equals(row.getEntryValue(sampleNameColumn)))
-				.findFirst()
-				.orElse(null);
-	}
-
-	public List<SampleMetadataStorageRow> getFoundRows() {
-		return rows == null ?
-				Collections.emptyList() :
-				rows.stream()
-						.filter((r) -> r != null && r.getFoundSampleId() != null)
-						.collect(Collectors.toList());
+	public int getTotal() {
+		return total;
 	}
 
-	public void setRows(List<SampleMetadataStorageRow> rows) {
-		this.rows = rows;
+	public void setTotal(int total) {
+		this.total = total;
 	}
 
 	/**
-	 * remove all rows
+	 * Get the number of rows in the whole upload that have an invalid sample
+	 * name
+	 *
+	 * @return the number of rows with an invalid sample name
 	 */
-	public void removeRows() {
-		this.rows = null;
+	public int getInvalidSampleNames() {
+		return invalidSampleNames;
+	}
+
+	public void setInvalidSampleNames(int invalidSampleNames) {
+		this.invalidSampleNames = invalidSampleNames;
 	}
 
 	@Override
@@ -73,8 +85,13 @@ public class SampleMetadataStorage {
 		if (o == null || getClass() != o.getClass())
 			return false;
 		SampleMetadataStorage that = (SampleMetadataStorage) o;
-		return Objects.equals(sampleNameColumn, that.sampleNameColumn) && Objects.equals(headers, that.headers)
-				&& Objects.equals(rows, that.rows);
+		return total == that.total && invalidSampleNames == that.invalidSampleNames && Objects.equals(uploadId,
+				that.uploadId) && Objects.equals(sampleNameColumn, that.sampleNameColumn) && Objects.equals(headers,
+				that.headers) && Objects.equals(rows, that.rows);
 	}
 
+	@Override
+	public int hashCode() {
+		return Objects.hash(uploadId, sampleNameColumn, headers, rows, total, invalidSampleNames);
+	}
 }
@@ -8,6 +8,7 @@ import java.util.Objects;
  */
 public class SampleMetadataStorageRow {
 
+	private int index;
 	private Map<String, String> entry;
 	private Long foundSampleId;
 	private String error;
@@ -17,6 +18,20 @@ public class SampleMetadataStorageRow {
 		this.entry = entry;
 	}
 
+	public SampleMetadataStorageRow(int index, Map<String, String> entry) {
+		this.index = index;
+		this.entry = entry;
+	}
+
+	/**
+	 * Get the position of the row in the uploaded file
+	 *
+	 * @return the index of the row, starting at 0
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	public Map<String, String> getEntry() {
 		return entry;
 	}
@@ -66,6 +81,7 @@ public class SampleMetadataStorageRow {
 		if (o == null || getClass() != o.getClass())
 			return false;
 		SampleMetadataStorageRow that = (SampleMetadataStorageRow) o;
-		return Objects.equals(entry, that.entry) && Objects.equals(foundSampleId, that.foundSampleId);
+		return index == that.index && Objects.equals(entry, that.entry) && Objects.equals(foundSampleId,
+				that.foundSampleId);
 	}
 }
@@ -0,0 +1,644 @@
+package ca.corefacility.bioinformatics.irida.ria.utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a zip archive to a stream one file at a time without building the
+ * archive in memory or on disk.
+ * <p>
+ * Files that are already compressed (e.g. <code>.fastq.gz</code>) are
+ * {@link Deflater stored} as they are and copied straight from the file
+ * channel, since deflating them again takes a lot of CPU time for no gain.
+ * Storing a file requires its CRC-32 before the file is written, so a cached
+ * value should be passed in when one is known; otherwise the file is read
+ * once to compute it. All other files are deflated. Large files can be
+ * deflated in blocks on an {@link Executor} so that one download can use more
+ * than one core.
+ * <p>
+ * ZIP64 records are written when an entry or the archive is larger than 4GB
+ * or has more than 65535 entries.
+ */
+public class ZipStreamWriter implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(ZipStreamWriter.class);
+
+	/**
+	 * Extensions of files that are already compressed and are stored instead
+	 * of deflated
+	 */
+	public static final Set<String> STORED_EXTENSIONS = Set.of("gz", "gzip", "bz2", "xz", "zst", "zip", "bam",
+			"fast5", "png", "jpg", "jpeg", "gif");
+
+	// files larger than this are deflated in parallel when an executor is set
+	private static final int PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+	private static final int BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private static final int VERSION_STORED = 10;
+	private static final int VERSION_DEFLATED = 20;
+	private static final int VERSION_ZIP64 = 45;
+
+	private static final short ZIP64_EXTRA_TAG = 0x0001;
+	private static final short TIMESTAMP_EXTRA_TAG = 0x5455;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private final CountingOutputStream out;
+	private final Executor deflateExecutor;
+	private final int level;
+	private final List<Entry> entries = new ArrayList<>();
+	private boolean finished = false;
+
+	/**
+	 * Create a writer that deflates files on the calling thread
+	 *
+	 * @param out
+	 *            the stream to write the archive to
+	 */
+	public ZipStreamWriter(OutputStream out) {
+		this(out, null);
+	}
+
+	/**
+	 * Create a writer
+	 *
+	 * @param out
+	 *            the stream to write the archive to
+	 * @param deflateExecutor
+	 *            the {@link Executor} used to deflate blocks of large files, or
+	 *            null to deflate on the calling thread
+	 */
+	public ZipStreamWriter(OutputStream out, Executor deflateExecutor) {
+		this(out, deflateExecutor, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Create a writer
+	 *
+	 * @param out
+	 *            the stream to write the archive to
+	 * @param deflateExecutor
+	 *            the {@link Executor} used to deflate blocks of large files, or
+	 *            null to deflate on the calling thread
+	 * @param level
+	 *            the {@link Deflater} compression level
+	 */
+	public ZipStreamWriter(OutputStream out, Executor deflateExecutor, int level) {
+		this.out = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+		this.deflateExecutor = deflateExecutor;
+		this.level = level;
+	}
+
+	/**
+	 * Check whether a file is already compressed and should be stored in the
+	 * archive as it is
+	 *
+	 * @param file
+	 *            the file to check
+	 * @return true if the file will be stored
+	 */
+	public static boolean isStored(Path file) {
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return dot >= 0 && STORED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Add a file to the archive using the file's last modified time
+	 *
+	 * @param name
+	 *            the name of the entry in the archive
+	 * @param file
+	 *            the file to add
+	 * @throws IOException
+	 *             if the file could not be read or the archive could not be
+	 *             written
+	 */
+	public void putFile(String name, Path file) throws IOException {
+		putFile(name, file, Files.getLastModifiedTime(file), null);
+	}
+
+	/**
+	 * Add a file to the archive
+	 *
+	 * @param name
+	 *            the name of the entry in the archive
+	 * @param file
+	 *            the file to add
+	 * @param modified
+	 *            the modification time to record for the entry
+	 * @param crc32
+	 *            the CRC-32 of the file if it is already known, or null
+	 * @throws IOException
+	 *             if the file could not be read or the archive could not be
+	 *             written
+	 */
+	public void putFile(String name, Path file, FileTime modified, Long crc32) throws IOException {
+		checkNotFinished();
+		long size = Files.size(file);
+		if (isStored(file)) {
+			if (crc32 == null) {
+				logger.trace("No cached CRC-32 for [" + file + "], reading it before it is stored");
+				crc32 = crc32(file);
+			}
+			Entry entry = new Entry(name, METHOD_STORED, modified, out.count);
+			entry.crc = crc32;
+			entry.size = size;
+			entry.compressedSize = size;
+			writeLocalHeader(entry);
+			transfer(file, size);
+			entries.add(entry);
+		} else {
+			Entry entry = new Entry(name, METHOD_DEFLATED, modified, out.count);
+			writeLocalHeader(entry);
+			if (deflateExecutor != null && size > PARALLEL_THRESHOLD) {
+				deflateParallel(entry, file);
+			} else {
+				try (InputStream in = Files.newInputStream(file)) {
+					deflate(entry, in);
+				}
+			}
+			writeDataDescriptor(entry);
+			entries.add(entry);
+		}
+	}
+
+	/**
+	 * Add an entry to the archive from memory
+	 *
+	 * @param name
+	 *            the name of the entry in the archive
+	 * @param bytes
+	 *            the contents of the entry
+	 * @throws IOException
+	 *             if the archive could not be written
+	 */
+	public void putBytes(String name, byte[] bytes) throws IOException {
+		checkNotFinished();
+		Entry entry = new Entry(name, METHOD_DEFLATED, FileTime.fromMillis(System.currentTimeMillis()), out.count);
+		writeLocalHeader(entry);
+		deflate(entry, new ByteArrayInputStream(bytes));
+		writeDataDescriptor(entry);
+		entries.add(entry);
+	}
+
+	/**
+	 * Write the central directory. No entries can be added afterwards. The
+	 * underlying stream is flushed but not closed.
+	 *
+	 * @throws IOException
+	 *             if the archive could not be written
+	 */
+	public void finish() throws IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+
+		long directoryOffset = out.count;
+		for (Entry entry : entries) {
+			writeCentralHeader(entry);
+		}
+		long directorySize = out.count - directoryOffset;
+
+		boolean zip64 = entries.size() >= ZIP64_MAGIC_COUNT || isZip64(directoryOffset) || isZip64(directorySize);
+		if (zip64) {
+			long zip64EndOffset = out.count;
+			ByteBuffer end = buffer(56);
+			end.putInt(ZIP64_END_SIGNATURE);
+			end.putLong(44);
+			end.putShort((short) VERSION_ZIP64);
+			end.putShort((short) VERSION_ZIP64);
+			end.putInt(0);
+			end.putInt(0);
+			end.putLong(entries.size());
+			end.putLong(entries.size());
+			end.putLong(directorySize);
+			end.putLong(directoryOffset);
+			write(end);
+
+			ByteBuffer locator = buffer(20);
+			locator.putInt(ZIP64_LOCATOR_SIGNATURE);
+			locator.putInt(0);
+			locator.putLong(zip64EndOffset);
+			locator.putInt(1);
+			write(locator);
+		}
+
+		ByteBuffer end = buffer(22);
+		end.putInt(END_SIGNATURE);
+		end.putShort((short) 0);
+		end.putShort((short) 0);
+		end.putShort((short) Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+		end.putShort((short) Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+		end.putInt((int) Math.min(directorySize, ZIP64_MAGIC));
+		end.putInt((int) Math.min(directoryOffset, ZIP64_MAGIC));
+		end.putShort((short) 0);
+		write(end);
+		out.flush();
+	}
+
+	/**
+	 * Finish the archive and close the underlying stream
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Compute the CRC-32 of a file
+	 *
+	 * @param file
+	 *            the file to read
+	 * @return the CRC-32 of the file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static long crc32(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[BLOCK_SIZE];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	private void checkNotFinished() {
+		if (finished) {
+			throw new IllegalStateException("The archive has already been finished");
+		}
+	}
+
+	/**
+	 * Copy a file to the archive from its file channel
+	 */
+	private void transfer(Path file, long size) throws IOException {
+		WritableByteChannel target = Channels.newChannel(out);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long sent = 0;
+			while (sent < size) {
+				long transferred = channel.transferTo(sent, size - sent, target);
+				if (transferred <= 0) {
+					throw new IOException("File [" + file + "] ended before " + size + " bytes");
+				}
+				sent += transferred;
+			}
+		}
+	}
+
+	/**
+	 * Deflate a stream to the archive on the calling thread
+	 */
+	private void deflate(Entry entry, InputStream in) throws IOException {
+		Deflater deflater = new Deflater(level, true);
+		CRC32 crc = new CRC32();
+		byte[] input = new byte[BLOCK_SIZE];
+		byte[] output = new byte[BLOCK_SIZE];
+		long start = out.count;
+		long size = 0;
+		try {
+			int read;
+			while ((read = in.read(input)) != -1) {
+				crc.update(input, 0, read);
+				size += read;
+				deflater.setInput(input, 0, read);
+				while (!deflater.needsInput()) {
+					int written = deflater.deflate(output);
+					out.write(output, 0, written);
+				}
+			}
+			deflater.finish();
+			while (!deflater.finished()) {
+				int written = deflater.deflate(output);
+				out.write(output, 0, written);
+			}
+		} finally {
+			deflater.end();
+		}
+		entry.crc = crc.getValue();
+		entry.size = size;
+		entry.compressedSize = out.count - start;
+	}
+
+	/**
+	 * Deflate a file to the archive in blocks on the deflate executor. Each
+	 * block is primed with the last 32KB of the block before it so that the
+	 * compression ratio is close to deflating the whole file at once, and all
+	 * but the last block end with a sync flush so that the compressed blocks
+	 * can be written one after the other as a single deflate stream. The
+	 * CRC-32 is computed on the calling thread as the file is read.
+	 */
+	private void deflateParallel(Entry entry, Path file) throws IOException {
+		int window = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+		Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+		CRC32 crc = new CRC32();
+		long size = Files.size(file);
+		long start = out.count;
+		long read = 0;
+
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] previous = null;
+			while (read < size) {
+				byte[] block = in.readNBytes((int) Math.min(BLOCK_SIZE, size - read));
+				if (block.length == 0) {
+					throw new IOException("File [" + file + "] ended before " + size + " bytes");
+				}
+				crc.update(block);
+				read += block.length;
+
+				byte[] dictionary = previous == null ? null
+						: Arrays.copyOfRange(previous, Math.max(0, previous.length - DICTIONARY_SIZE),
+								previous.length);
+				boolean last = read == size;
+				pending.add(CompletableFuture.supplyAsync(() -> deflateBlock(block, dictionary, last),
+						deflateExecutor));
+				previous = block;
+
+				if (pending.size() >= window) {
+					out.write(join(pending.removeFirst()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				out.write(join(pending.removeFirst()));
+			}
+		} finally {
+			pending.forEach(f -> f.cancel(false));
+		}
+
+		entry.crc = crc.getValue();
+		entry.size = size;
+		entry.compressedSize = out.count - start;
+	}
+
+	private byte[] deflateBlock(byte[] block, byte[] dictionary, boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.length / 2);
+		byte[] output = new byte[BLOCK_SIZE];
+		try {
+			if (dictionary != null) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(block);
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int written = deflater.deflate(output);
+					compressed.write(output, 0, written);
+				}
+			} else {
+				int written;
+				do {
+					written = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+					compressed.write(output, 0, written);
+				} while (written == output.length);
+			}
+		} finally {
+			deflater.end();
+		}
+		return compressed.toByteArray();
+	}
+
+	private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw new IOException("Failed to deflate block", e.getCause());
+		}
+	}
+
+	/**
+	 * Whether a size or offset has to be written in a zip64 extra field. A value of exactly 0xFFFFFFFF would be read
+	 * as the zip64 marker, so it counts as too large for the 4 byte field in every record.
+	 */
+	private static boolean isZip64(long value) {
+		return value >= ZIP64_MAGIC;
+	}
+
+	private void writeLocalHeader(Entry entry) throws IOException {
+		boolean stored = entry.method == METHOD_STORED;
+		boolean zip64 = stored && isZip64(entry.size);
+
+		ByteBuffer extra = buffer((zip64 ? 20 : 0) + 9);
+		if (zip64) {
+			extra.putShort(ZIP64_EXTRA_TAG);
+			extra.putShort((short) 16);
+			extra.putLong(entry.size);
+			extra.putLong(entry.compressedSize);
+		}
+		putTimestamp(extra, entry);
+
+		ByteBuffer header = buffer(30 + entry.name.length + extra.capacity());
+		header.putInt(LOCAL_HEADER_SIGNATURE);
+		header.putShort((short) (zip64 ? VERSION_ZIP64 : stored ? VERSION_STORED : VERSION_DEFLATED));
+		header.putShort((short) (stored ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR));
+		header.putShort((short) entry.method);
+		header.putInt(entry.dosTime);
+		if (stored) {
+			header.putInt((int) entry.crc);
+			header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compressedSize));
+			header.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+		} else {
+			header.putInt(0);
+			header.putInt(0);
+			header.putInt(0);
+		}
+		header.putShort((short) entry.name.length);
+		header.putShort((short) extra.capacity());
+		header.put(entry.name);
+		header.put(extra.array());
+		write(header);
+	}
+
+	private void writeDataDescriptor(Entry entry) throws IOException {
+		// readers expect 8 byte sizes whenever the central header has zip64 sizes
+		boolean zip64 = isZip64(entry.size) || isZip64(entry.compressedSize);
+		ByteBuffer descriptor = buffer(zip64 ? 24 : 16);
+		descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE);
+		descriptor.putInt((int) entry.crc);
+		if (zip64) {
+			descriptor.putLong(entry.compressedSize);
+			descriptor.putLong(entry.size);
+		} else {
+			descriptor.putInt((int) entry.compressedSize);
+			descriptor.putInt((int) entry.size);
+		}
+		write(descriptor);
+	}
+
+	private void writeCentralHeader(Entry entry) throws IOException {
+		boolean stored = entry.method == METHOD_STORED;
+		boolean zip64Size = isZip64(entry.size) || isZip64(entry.compressedSize);
+		boolean zip64Offset = isZip64(entry.offset);
+		boolean zip64 = zip64Size || zip64Offset;
+
+		int zip64Length = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+		ByteBuffer extra = buffer((zip64 ? 4 + zip64Length : 0) + 9);
+		if (zip64) {
+			extra.putShort(ZIP64_EXTRA_TAG);
+			extra.putShort((short) zip64Length);
+			if (zip64Size) {
+				extra.putLong(entry.size);
+				extra.putLong(entry.compressedSize);
+			}
+			if (zip64Offset) {
+				extra.putLong(entry.offset);
+			}
+		}
+		putTimestamp(extra, entry);
+
+		int version = zip64 ? VERSION_ZIP64 : stored ? VERSION_STORED : VERSION_DEFLATED;
+		ByteBuffer header = buffer(46 + entry.name.length + extra.capacity());
+		header.putInt(CENTRAL_HEADER_SIGNATURE);
+		header.putShort((short) VERSION_ZIP64);
+		header.putShort((short) version);
+		header.putShort((short) (stored ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR));
+		header.putShort((short) entry.method);
+		header.putInt(entry.dosTime);
+		header.putInt((int) entry.crc);
+		header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.compressedSize));
+		header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.size));
+		header.putShort((short) entry.name.length);
+		header.putShort((short) extra.capacity());
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putInt(0);
+		header.putInt((int) (zip64Offset ? ZIP64_MAGIC : entry.offset));
+		header.put(entry.name);
+		header.put(extra.array());
+		write(header);
+	}
+
+	/**
+	 * Add the extended timestamp field with the modification time so that
+	 * readers don't have to rely on the 2 second resolution DOS time
+	 */
+	private static void putTimestamp(ByteBuffer extra, Entry entry) {
+		extra.putShort(TIMESTAMP_EXTRA_TAG);
+		extra.putShort((short) 5);
+		extra.put((byte) 1);
+		extra.putInt((int) entry.modified.to(TimeUnit.SECONDS));
+	}
+
+	private static ByteBuffer buffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		out.write(buffer.array(), 0, buffer.position());
+	}
+
+	/**
+	 * Convert a time to the MS-DOS date and time format used in zip headers
+	 */
+	private static int dosTime(FileTime time) {
+		LocalDateTime local = LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+		if (local.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return (local.getYear() - 1980) << 25 | local.getMonthValue() << 21 | local.getDayOfMonth() << 16
+				| local.getHour() << 11 | local.getMinute() << 5 | local.getSecond() >> 1;
+	}
+
+	/**
+	 * An entry that has been written to the archive
+	 */
+	private static class Entry {
+		private final byte[] name;
+		private final int method;
+		private final FileTime modified;
+		private final int dosTime;
+		private final long offset;
+		private long crc;
+		private long size;
+		private long compressedSize;
+
+		public Entry(String name, int method, FileTime modified, long offset) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.method = method;
+			this.modified = modified;
+			this.dosTime = dosTime(modified);
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * Keeps track of the number of bytes written so that entry offsets are
+	 * known for the central directory
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
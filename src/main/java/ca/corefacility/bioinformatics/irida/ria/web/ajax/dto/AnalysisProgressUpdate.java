@@ -0,0 +1,65 @@
+package ca.corefacility.bioinformatics.irida.ria.web.ajax.dto;
+
+import java.util.Objects;
+
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+
+/**
+ * Pushed to the UI when the state or percentage complete of an analysis
+ * changes.
+ */
+public class AnalysisProgressUpdate {
+	private final Long id;
+	private final AnalysisState analysisState;
+	private final Float percentComplete;
+
+	public AnalysisProgressUpdate(Long id, AnalysisState analysisState, Float percentComplete) {
+		this.id = id;
+		this.analysisState = analysisState;
+		this.percentComplete = percentComplete;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public AnalysisState getAnalysisState() {
+		return analysisState;
+	}
+
+	public Float getPercentComplete() {
+		return percentComplete;
+	}
+
+	/**
+	 * Whether the analysis has finished, one way or another, so it won't
+	 * change again.
+	 *
+	 * @return true if the analysis is completed or in error
+	 */
+	public boolean isFinished() {
+		return analysisState == AnalysisState.COMPLETED || analysisState == AnalysisState.ERROR;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		AnalysisProgressUpdate that = (AnalysisProgressUpdate) o;
+		return Objects.equals(id, that.id) && analysisState == that.analysisState && Objects.equals(
+				percentComplete, that.percentComplete);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, analysisState, percentComplete);
+	}
+
+	@Override
+	public String toString() {
+		return "AnalysisProgressUpdate [id=" + id + ", analysisState=" + analysisState + ", percentComplete="
+				+ percentComplete + "]";
+	}
+}
@@ -3,6 +3,7 @@ package ca.corefacility.bioinformatics.irida.ria.web.analyses;
 import java.util.List;
 import java.util.Locale;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
@@ -110,11 +111,14 @@ public class AnalysesOutputsAjaxController {
 	 * @param analysisSubmissionId Id for a {@link AnalysisSubmission}
 	 * @param fileId               the id of the file to download
 	 * @param filename             Optional filename for file download.
+	 * @param request              {@link HttpServletRequest}
 	 * @param response             {@link HttpServletResponse}
 	 */
 	@GetMapping(value = "/download/file")
 	public void downloadIndividualFile(@RequestParam Long analysisSubmissionId, @RequestParam Long fileId,
-			@RequestParam(defaultValue = "", required = false) String filename, HttpServletResponse response) {
-		uiAnalysesOutputsService.downloadIndividualAnalysisOutputFile(analysisSubmissionId, fileId, filename, response);
+			@RequestParam(defaultValue = "", required = false) String filename, HttpServletRequest request,
+			HttpServletResponse response) {
+		uiAnalysesOutputsService.downloadIndividualAnalysisOutputFile(analysisSubmissionId, fileId, filename, request,
+				response);
 	}
 }
@@ -1,18 +1,22 @@
 package ca.corefacility.bioinformatics.irida.ria.web.analysis;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
@@ -31,7 +35,9 @@ import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.AnalysesListReq
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.AnalysisModel;
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.AnalysisStateModel;
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.AnalysisTypeModel;
+import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.QueuedAnalysisModel;
 import ca.corefacility.bioinformatics.irida.ria.web.models.tables.TableResponse;
+import ca.corefacility.bioinformatics.irida.ria.web.services.UIAnalysisProgressService;
 import ca.corefacility.bioinformatics.irida.ria.web.utilities.DateUtilities;
 import ca.corefacility.bioinformatics.irida.security.permissions.analysis.UpdateAnalysisSubmissionPermission;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
@@ -47,6 +53,8 @@ import com.google.common.base.Strings;
 @RestController
 @RequestMapping("/ajax/analyses")
 public class AnalysesTableAjaxController {
+	private static final int MAX_QUEUED_ANALYSES = 1000;
+
 	private AnalysisSubmissionService analysisSubmissionService;
 	private AnalysisTypesService analysisTypesService;
 	private ProjectService projectService;
@@ -54,12 +62,17 @@ public class AnalysesTableAjaxController {
 	private MessageSource messageSource;
 	private UpdateAnalysisSubmissionPermission updateAnalysisSubmissionPermission;
 	private AnalysisAudit analysisAudit;
+	private UIAnalysisProgressService analysisProgressService;
+
+	private final Executor zipDeflateExecutor;
 
 	@Autowired
 	public AnalysesTableAjaxController(AnalysisSubmissionService analysisSubmissionService,
 			AnalysisTypesService analysisTypesService, ProjectService projectService,
 			IridaWorkflowsService iridaWorkflowsService, MessageSource messageSource,
-			UpdateAnalysisSubmissionPermission updateAnalysisSubmissionPermission, AnalysisAudit analysisAudit) {
+			UpdateAnalysisSubmissionPermission updateAnalysisSubmissionPermission, AnalysisAudit analysisAudit,
+			UIAnalysisProgressService analysisProgressService,
+			@Qualifier("zipDeflateExecutor") Optional<Executor> zipDeflateExecutor) {
 		this.analysisSubmissionService = analysisSubmissionService;
 		this.analysisTypesService = analysisTypesService;
 		this.projectService = projectService;
@@ -67,6 +80,8 @@ public class AnalysesTableAjaxController {
 		this.messageSource = messageSource;
 		this.updateAnalysisSubmissionPermission = updateAnalysisSubmissionPermission;
 		this.analysisAudit = analysisAudit;
+		this.analysisProgressService = analysisProgressService;
+		this.zipDeflateExecutor = zipDeflateExecutor.orElse(null);
 	}
 
 	/**
@@ -250,7 +265,8 @@ public class AnalysesTableAjaxController {
 
 		Analysis analysis = analysisSubmission.getAnalysis();
 		Set<AnalysisOutputFile> files = analysis.getAnalysisOutputFiles();
-		FileUtilities.createAnalysisOutputFileZippedResponse(response, analysisSubmission.getName(), files);
+		FileUtilities.createAnalysisOutputFileZippedResponse(response, analysisSubmission.getName(), files,
+				zipDeflateExecutor);
 	}
 
 	/**
@@ -262,6 +278,48 @@ public class AnalysesTableAjaxController {
 		return analysisSubmissionService.getAnalysisServiceStatus();
 	}
 
+	/**
+	 * Get the analyses waiting to run, in the order they will be run.  Only available to administrators.
+	 *
+	 * @param count The number of queued analyses to get
+	 * @return the queued analyses, the next to run first
+	 */
+	@GetMapping("/queue/analyses")
+	public List<QueuedAnalysisModel> getQueuedAnalyses(@RequestParam(defaultValue = "100") int count) {
+		List<AnalysisSubmission> queued = analysisSubmissionService.getQueuedAnalysisSubmissions(
+				Math.min(count, MAX_QUEUED_ANALYSES));
+		List<QueuedAnalysisModel> models = new ArrayList<>(queued.size());
+		for (int i = 0; i < queued.size(); i++) {
+			models.add(new QueuedAnalysisModel(queued.get(i), i + 1));
+		}
+		return models;
+	}
+
+	/**
+	 * Watch the state and percentage complete of analyses, pushed as
+	 * server-sent events until they have all completed or failed. One
+	 * connection can watch every analysis shown in a table.
+	 *
+	 * @param ids The analysis submission ids to watch, or none to watch the current user's analyses
+	 * @return the event stream
+	 */
+	@GetMapping(value = "/progress-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter getProgressEvents(@RequestParam(required = false) List<Long> ids) {
+		Collection<AnalysisSubmission> submissions;
+		if (ids == null || ids.isEmpty()) {
+			submissions = analysisSubmissionService.getAnalysisSubmissionsForCurrentUser()
+					.stream()
+					.filter(s -> s.getAnalysisState() != AnalysisState.COMPLETED
+							&& s.getAnalysisState() != AnalysisState.ERROR)
+					.collect(Collectors.toList());
+		} else {
+			submissions = new ArrayList<>();
+			analysisSubmissionService.readMultiple(ids)
+					.forEach(submissions::add);
+		}
+		return analysisProgressService.subscribe(submissions);
+	}
+
 	/**
 	 * Get the updated state and duration of an analysis
 	 *
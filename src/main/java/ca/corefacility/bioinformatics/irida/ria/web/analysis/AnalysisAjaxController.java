@@ -6,6 +6,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.security.Principal;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletResponse;
@@ -13,6 +14,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Scope;
 import org.springframework.http.MediaType;
@@ -20,6 +22,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import ca.corefacility.bioinformatics.irida.config.analysis.ExecutionManagerConfig;
 import ca.corefacility.bioinformatics.irida.exceptions.*;
@@ -48,6 +51,7 @@ import ca.corefacility.bioinformatics.irida.ria.web.analysis.auditing.AnalysisAu
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.*;
 import ca.corefacility.bioinformatics.irida.ria.web.dto.ExcelData;
 import ca.corefacility.bioinformatics.irida.ria.web.dto.ResponseDetails;
+import ca.corefacility.bioinformatics.irida.ria.web.services.UIAnalysisProgressService;
 import ca.corefacility.bioinformatics.irida.ria.web.utilities.DateUtilities;
 import ca.corefacility.bioinformatics.irida.security.permissions.analysis.UpdateAnalysisSubmissionPermission;
 import ca.corefacility.bioinformatics.irida.service.*;
@@ -91,6 +95,9 @@ public class AnalysisAjaxController {
 	private AnalysisAudit analysisAudit;
 	private AnalysisTypesService analysisTypesService;
 	private EmailController emailController;
+	private UIAnalysisProgressService analysisProgressService;
+
+	private final Executor zipDeflateExecutor;
 
 	@Autowired
 	public AnalysisAjaxController(AnalysisSubmissionService analysisSubmissionService,
@@ -99,7 +106,8 @@ public class AnalysisAjaxController {
 			MetadataTemplateService metadataTemplateService, SequencingObjectService sequencingObjectService,
 			AnalysisSubmissionSampleProcessor analysisSubmissionSampleProcessor, MessageSource messageSource,
 			ExecutionManagerConfig configFile, AnalysisAudit analysisAudit, AnalysisTypesService analysisTypesService,
-			EmailController emailController) {
+			EmailController emailController, UIAnalysisProgressService analysisProgressService,
+			@Qualifier("zipDeflateExecutor") Optional<Executor> zipDeflateExecutor) {
 
 		this.analysisSubmissionService = analysisSubmissionService;
 		this.workflowsService = iridaWorkflowsService;
@@ -115,6 +123,8 @@ public class AnalysisAjaxController {
 		this.analysisAudit = analysisAudit;
 		this.analysisTypesService = analysisTypesService;
 		this.emailController = emailController;
+		this.analysisProgressService = analysisProgressService;
+		this.zipDeflateExecutor = zipDeflateExecutor.orElse(null);
 	}
 
 	/**
@@ -785,7 +795,8 @@ public class AnalysisAjaxController {
 
 		Analysis analysis = analysisSubmission.getAnalysis();
 		Set<AnalysisOutputFile> files = analysis.getAnalysisOutputFiles();
-		FileUtilities.createAnalysisOutputFileZippedResponse(response, analysisSubmission.getName(), files);
+		FileUtilities.createAnalysisOutputFileZippedResponse(response, analysisSubmission.getName(), files,
+				zipDeflateExecutor);
 	}
 
 	/**
@@ -1079,7 +1090,8 @@ public class AnalysisAjaxController {
 			executionParameters = getExecutionParameters(tool);
 
 			analysisProvenance = new AnalysisProvenanceResponse(outputFile.getLabel(),
-					new AnalysisToolExecution(tool.getLabel(), executionParameters, getPreviousExecutionTools(tool)));
+					new AnalysisToolExecution(tool.getLabel(), executionParameters,
+							getPreviousExecutionTools(tool, new IdentityHashMap<>())));
 		}
 		return analysisProvenance;
 	}
@@ -1119,6 +1131,19 @@ public class AnalysisAjaxController {
 
 	}
 
+	/**
+	 * Watch the state and percentage complete of an analysis, pushed as
+	 * server-sent events until the analysis completes or fails.
+	 *
+	 * @param submissionId The analysis submission id
+	 * @return the event stream
+	 */
+	@GetMapping(value = "/{submissionId}/progress-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter getProgressEvents(@PathVariable Long submissionId) {
+		AnalysisSubmission submission = analysisSubmissionService.read(submissionId);
+		return analysisProgressService.subscribe(List.of(submission));
+	}
+
 	/**
 	 * Private method which gets whether the tree view should be the default
 	 * view or not
@@ -1221,22 +1246,29 @@ public class AnalysisAjaxController {
 
 	/*
 	 * Recursive function to get the previous execution tools and their
-	 * parameters
+	 * parameters. Steps that feed into more than one later step are only
+	 * converted once.
 	 *
 	 * @param tool The tool to get the previous execution tools and their
 	 * parameters for
 	 *
+	 * @param converted The execution tools already converted for this
+	 * provenance
+	 *
 	 * @return an arraylist of previous execution tools for the tool
 	 */
-	private ArrayList<AnalysisToolExecution> getPreviousExecutionTools(ToolExecution tool) {
+	private ArrayList<AnalysisToolExecution> getPreviousExecutionTools(ToolExecution tool,
+			Map<ToolExecution, AnalysisToolExecution> converted) {
 		ArrayList<AnalysisToolExecution> previousExecutionTools = new ArrayList<>();
-		ArrayList<AnalysisToolExecutionParameters> executionParameters;
 
 		for (ToolExecution currTool : new ArrayList<>(getPrevTools(tool))) {
-			executionParameters = getExecutionParameters(currTool);
-
-			previousExecutionTools.add(new AnalysisToolExecution(currTool.getLabel(), executionParameters,
-					getPreviousExecutionTools(currTool)));
+			AnalysisToolExecution previousExecutionTool = converted.get(currTool);
+			if (previousExecutionTool == null) {
+				previousExecutionTool = new AnalysisToolExecution(currTool.getLabel(),
+						getExecutionParameters(currTool), getPreviousExecutionTools(currTool, converted));
+				converted.put(currTool, previousExecutionTool);
+			}
+			previousExecutionTools.add(previousExecutionTool);
 		}
 		return previousExecutionTools;
 	}
@@ -0,0 +1,34 @@
+package ca.corefacility.bioinformatics.irida.ria.web.analysis.dto;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.ria.web.models.tables.TableModel;
+
+/**
+ * Used to represent an {@link AnalysisSubmission} waiting to be run, and its place in the queue, for consumption by
+ * the user interface.
+ */
+public class QueuedAnalysisModel extends TableModel {
+	private int position;
+	private String submitter;
+	private AnalysisSubmission.Priority priority;
+
+	public QueuedAnalysisModel(AnalysisSubmission submission, int position) {
+		super(submission.getId(), submission.getLabel(), submission.getCreatedDate(), submission.getModifiedDate());
+		this.position = position;
+		this.submitter = submission.getSubmitter()
+				.getLabel();
+		this.priority = submission.getPriority();
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public String getSubmitter() {
+		return submitter;
+	}
+
+	public AnalysisSubmission.Priority getPriority() {
+		return priority;
+	}
+}
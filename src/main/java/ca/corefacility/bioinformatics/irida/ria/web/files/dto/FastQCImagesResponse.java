@@ -1,5 +1,7 @@
 package ca.corefacility.bioinformatics.irida.ria.web.files.dto;
 
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData;
+
 /**
  *  Used by UI to encapsulate fastqc images data.
  */
@@ -9,6 +11,7 @@ public class FastQCImagesResponse {
 	private byte[] persequenceChart;
 	private byte[] duplicationlevelChart;
 	private String fastQCVersion;
+	private FastQCChartData chartData;
 
 	public FastQCImagesResponse(byte[] perbaseChart, byte[] persequenceChart, byte[] duplicationlevelChart, String fastQCVersion) {
 		this.perbaseChart = perbaseChart;
@@ -48,4 +51,12 @@ public class FastQCImagesResponse {
 	public void setFastQCVersion(String fastQCVersion) {
 		this.fastQCVersion = fastQCVersion;
 	}
+
+	public FastQCChartData getChartData() {
+		return chartData;
+	}
+
+	public void setChartData(FastQCChartData chartData) {
+		this.chartData = chartData;
+	}
 }
@@ -9,14 +9,15 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.pipelines.ReferenceFileRequiredException;
-import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxCreateItemSuccessResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxErrorResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.pipeline.CreateNamedParameterSetAjaxResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.pipeline.SavePipelineParametersRequest;
+import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchProgress;
 import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchRequest;
 import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchSample;
 import ca.corefacility.bioinformatics.irida.ria.web.pipelines.dto.Pipeline;
@@ -85,7 +86,7 @@ public class LaunchAjaxController {
     @PostMapping("/{id}")
     public ResponseEntity<AjaxResponse> launchPipeline(@PathVariable UUID id, @RequestBody LaunchRequest request, Locale locale) {
         try {
-            return ResponseEntity.ok(new AjaxCreateItemSuccessResponse(startService.start(id, request, locale)));
+            return ResponseEntity.ok(startService.start(id, request, locale));
         } catch (IridaWorkflowNotFoundException | ReferenceFileRequiredException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new AjaxErrorResponse(e.getMessage()));
@@ -93,6 +94,22 @@ public class LaunchAjaxController {
         }
     }
 
+    /**
+     * Get how far along the creation of the analyses for a single sample pipeline launch is.
+     *
+     * @param launchId the id returned when the pipeline was launched
+     * @return the progress of the launch, or a status that the launch cannot be found
+     */
+    @GetMapping("/launch/{launchId}")
+    public ResponseEntity<LaunchProgress> getLaunchProgress(@PathVariable UUID launchId) {
+        try {
+            return ResponseEntity.ok(startService.getLaunchProgress(launchId));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .build();
+        }
+    }
+
     /**
      * Save a new set of named pipeline parameters
      *
@@ -0,0 +1,76 @@
+package ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * How far along the creation of the analyses for a pipeline launched on many
+ * samples is.
+ */
+public class LaunchProgress {
+	private final UUID launchId;
+	private final int saved;
+	private final int total;
+	private final boolean finished;
+	private final String error;
+
+	public LaunchProgress(UUID launchId, int saved, int total, boolean finished, String error) {
+		this.launchId = launchId;
+		this.saved = saved;
+		this.total = total;
+		this.finished = finished;
+		this.error = error;
+	}
+
+	public UUID getLaunchId() {
+		return launchId;
+	}
+
+	/**
+	 * Get the number of analyses created so far.
+	 *
+	 * @return the number of analyses created
+	 */
+	public int getSaved() {
+		return saved;
+	}
+
+	/**
+	 * Get the number of analyses being created, which is 0 until the samples
+	 * have been read.
+	 *
+	 * @return the number of analyses being created
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Get the reason the launch failed.
+	 *
+	 * @return the error message, or null if the launch didn't fail
+	 */
+	public String getError() {
+		return error;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		LaunchProgress that = (LaunchProgress) o;
+		return saved == that.saved && total == that.total && finished == that.finished && Objects.equals(launchId,
+				that.launchId) && Objects.equals(error, that.error);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(launchId, saved, total, finished, error);
+	}
+}
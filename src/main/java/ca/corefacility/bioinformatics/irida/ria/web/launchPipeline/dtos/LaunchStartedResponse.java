@@ -0,0 +1,27 @@
+package ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos;
+
+import java.util.UUID;
+
+import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxCreateItemSuccessResponse;
+
+/**
+ * UI Response for a pipeline launch. When a single sample pipeline is launched
+ * the analyses are created in the background, the id is -1 and the launch id
+ * is used to follow their creation.
+ */
+public class LaunchStartedResponse extends AjaxCreateItemSuccessResponse {
+	private final UUID launchId;
+
+	public LaunchStartedResponse(long id) {
+		this(id, null);
+	}
+
+	public LaunchStartedResponse(long id, UUID launchId) {
+		super(id);
+		this.launchId = launchId;
+	}
+
+	public UUID getLaunchId() {
+		return launchId;
+	}
+}
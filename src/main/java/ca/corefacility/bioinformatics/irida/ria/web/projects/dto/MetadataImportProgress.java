@@ -0,0 +1,82 @@
+package ca.corefacility.bioinformatics.irida.ria.web.projects.dto;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * How far along saving uploaded sample metadata to a project is.
+ */
+public class MetadataImportProgress {
+	private final UUID importId;
+	private final int saved;
+	private final int total;
+	private final boolean finished;
+	private final boolean failed;
+	private final String message;
+
+	public MetadataImportProgress(UUID importId, int saved, int total, boolean finished, boolean failed,
+			String message) {
+		this.importId = importId;
+		this.saved = saved;
+		this.total = total;
+		this.finished = finished;
+		this.failed = failed;
+		this.message = message;
+	}
+
+	public UUID getImportId() {
+		return importId;
+	}
+
+	/**
+	 * Get the number of rows that have been processed so far.
+	 *
+	 * @return the number of rows processed
+	 */
+	public int getSaved() {
+		return saved;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Whether any of the rows could not be saved. The rows that could not be
+	 * saved have their error set in the uploaded metadata.
+	 *
+	 * @return true if any row could not be saved
+	 */
+	public boolean isFailed() {
+		return failed;
+	}
+
+	/**
+	 * Get the summary of how many samples were updated and created.
+	 *
+	 * @return the message, or null until the import has finished
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (o == null || getClass() != o.getClass())
+			return false;
+		MetadataImportProgress that = (MetadataImportProgress) o;
+		return saved == that.saved && total == that.total && finished == that.finished && failed == that.failed
+				&& Objects.equals(importId, that.importId) && Objects.equals(message, that.message);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(importId, saved, total, finished, failed, message);
+	}
+}
@@ -1,6 +1,8 @@
 package ca.corefacility.bioinformatics.irida.ria.web.projects.dto;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.ria.web.models.tables.AntTableItem;
@@ -15,6 +17,7 @@ public class ProjectSampleTableItem extends AntTableItem {
 	private final SampleObject sample;
 	private final ProjectObject project;
 	private final List<String> quality;
+	private Map<Long, String> metadata = new HashMap<>();
 
 	public ProjectSampleTableItem(ProjectSampleJoin join, List<String> quality) {
 		super(join.getId());
@@ -39,4 +42,17 @@ public class ProjectSampleTableItem extends AntTableItem {
 	public List<String> getQuality() {
 		return quality;
 	}
+
+	/**
+	 * Get the values of the metadata fields shown in the table
+	 *
+	 * @return the values keyed by metadata field id
+	 */
+	public Map<Long, String> getMetadata() {
+		return metadata;
+	}
+
+	public void setMetadata(Map<Long, String> metadata) {
+		this.metadata = metadata;
+	}
 }
@@ -1,5 +1,9 @@
 package ca.corefacility.bioinformatics.irida.ria.web.projects.dto;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.ria.web.models.tables.AntTableRequest;
 import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.samples.ProjectSamplesFilter;
 
@@ -8,6 +12,7 @@ import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.samples.Project
  */
 public class ProjectSamplesTableRequest extends AntTableRequest {
 	private ProjectSamplesFilter filters;
+	private List<Long> metadataFields;
 
 	public ProjectSamplesFilter getFilters() {
 		return filters != null ? filters : new ProjectSamplesFilter();
@@ -16,4 +21,17 @@ public class ProjectSamplesTableRequest extends AntTableRequest {
 	public void setFilters(ProjectSamplesFilter filters) {
 		this.filters = filters;
 	}
+
+	/**
+	 * Get the {@link MetadataTemplateField}s shown as columns in the table
+	 *
+	 * @return the identifiers of the fields
+	 */
+	public List<Long> getMetadataFields() {
+		return metadataFields != null ? metadataFields : new ArrayList<>();
+	}
+
+	public void setMetadataFields(List<Long> metadataFields) {
+		this.metadataFields = metadataFields;
+	}
 }
@@ -2,8 +2,6 @@ package ca.corefacility.bioinformatics.irida.ria.web.projects.metadata;
 
 import java.util.*;
 
-import javax.servlet.http.HttpSession;
-
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,15 +9,15 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
 import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorage;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxSuccessResponse;
-import ca.corefacility.bioinformatics.irida.ria.web.errors.SavedMetadataException;
-import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.SavedMetadataErrorResponse;
-import ca.corefacility.bioinformatics.irida.ria.web.services.UIMetadataImportService;;
+import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.MetadataImportProgress;
+import ca.corefacility.bioinformatics.irida.ria.web.services.UIMetadataImportService;
 
 /**
  * This class is designed to be used for bulk actions on {@link MetadataEntry}
@@ -37,36 +35,34 @@ public class ProjectSampleMetadataAjaxController {
 
 	/**
 	 * Upload CSV or Excel file containing sample metadata and extract the
-	 * headers. The file is stored in the session until the column that
-	 * corresponds to a {@link Sample} identifier has been sent.
+	 * headers. The file is stored until the column that corresponds to a
+	 * {@link Sample} identifier has been sent.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}
 	 * @param file
 	 *            {@link MultipartFile} The csv or excel file containing the
 	 *            metadata.
-	 * @return {@link SampleMetadataStorage} which includes a {@link List} of
-	 *         headers and rows from the csv or excel file.
+	 * @return {@link SampleMetadataStorage} which includes the id of the
+	 *         upload and a {@link List} of headers from the csv or excel file.
 	 * @throws Exception
 	 *             if there is an error reading the file
 	 */
 	@PostMapping("/file")
 	@ResponseBody
-	public ResponseEntity<SampleMetadataStorage> createProjectSampleMetadata(HttpSession session,
-			@RequestParam Long projectId, @RequestParam("file") MultipartFile file) throws Exception {
-		return ResponseEntity.ok(metadataImportService.createProjectSampleMetadata(session, projectId, file));
+	public ResponseEntity<SampleMetadataStorage> createProjectSampleMetadata(@RequestParam Long projectId,
+			@RequestParam("file") MultipartFile file) throws Exception {
+		return ResponseEntity.ok(metadataImportService.createProjectSampleMetadata(projectId, file));
 	}
 
 	/**
 	 * Add the metadata to specific {@link Sample} based on the selected column
 	 * to correspond to the {@link Sample} id.
 	 *
-	 * @param session
-	 *            {@link HttpSession}.
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}.
+	 * @param uploadId
+	 *            the id of the upload
 	 * @param sampleNameColumn
 	 *            {@link String} the header to used to represent the
 	 *            {@link Sample} identifier.
@@ -74,65 +70,91 @@ public class ProjectSampleMetadataAjaxController {
 	 */
 	@PutMapping("/setSampleColumn")
 	@ResponseBody
-	public ResponseEntity<AjaxResponse> setProjectSampleMetadataSampleId(HttpSession session,
-			@RequestParam Long projectId, @RequestParam String sampleNameColumn) {
+	public ResponseEntity<AjaxResponse> setProjectSampleMetadataSampleId(@RequestParam Long projectId,
+			@RequestParam String uploadId, @RequestParam String sampleNameColumn) {
 		return ResponseEntity.ok(new AjaxSuccessResponse(
-				metadataImportService.setProjectSampleMetadataSampleId(session, projectId, sampleNameColumn)));
+				metadataImportService.setProjectSampleMetadataSampleId(projectId, uploadId, sampleNameColumn)));
 	}
 
 	/**
-	 * Save uploaded metadata from the session into IRIDA.
+	 * Start saving uploaded metadata into IRIDA.
 	 *
 	 * @param locale
 	 *            {@link Locale} of the current user.
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current project
-	 * @param sampleNames
-	 *            {@link List} of {@link String} sample names
-	 * @return {@link String} message of how many samples were created and/or
-	 *         updated.
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param excludedSampleNames
+	 *            {@link List} of {@link String} sample names not to save
+	 * @return {@link MetadataImportProgress} with the id to follow the import
+	 *         with.
 	 */
 	@PostMapping("/save")
 	@ResponseBody
-	public ResponseEntity<AjaxResponse> saveProjectSampleMetadata(Locale locale, HttpSession session,
-			@RequestParam Long projectId, @RequestParam List<String> sampleNames) {
+	public ResponseEntity<MetadataImportProgress> saveProjectSampleMetadata(Locale locale,
+			@RequestParam Long projectId, @RequestParam String uploadId,
+			@RequestParam(required = false) List<String> excludedSampleNames) {
+		return ResponseEntity.ok(
+				metadataImportService.saveProjectSampleMetadata(locale, projectId, uploadId, excludedSampleNames));
+	}
+
+	/**
+	 * Get how far along saving uploaded metadata is.
+	 *
+	 * @param importId
+	 *            the id returned when saving the metadata was started
+	 * @return {@link MetadataImportProgress} of the import, including a
+	 *         message of how many samples were created and/or updated once it
+	 *         has finished.
+	 */
+	@GetMapping("/progress")
+	@ResponseBody
+	public ResponseEntity<MetadataImportProgress> getMetadataImportProgress(@RequestParam UUID importId) {
 		try {
-			return ResponseEntity.ok(new AjaxSuccessResponse(
-					metadataImportService.saveProjectSampleMetadata(locale, session, projectId, sampleNames)));
-		} catch (SavedMetadataException e) {
-			return ResponseEntity.status(HttpStatus.CONFLICT).body(new SavedMetadataErrorResponse(e.getStorage()));
+			return ResponseEntity.ok(metadataImportService.getMetadataImportProgress(importId));
+		} catch (EntityNotFoundException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND)
+					.build();
 		}
 	}
 
 	/**
-	 * Clear any uploaded sample metadata stored into the session.
+	 * Clear any sample metadata the current user uploaded to the project.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            identifier for the {@link Project} currently uploaded metadata
 	 *            to.
 	 */
 	@DeleteMapping("/clear")
-	public void clearProjectSampleMetadata(HttpSession session, @RequestParam Long projectId) {
-		metadataImportService.clearProjectSampleMetadata(session, projectId);
+	public void clearProjectSampleMetadata(@RequestParam Long projectId) {
+		metadataImportService.clearProjectSampleMetadata(projectId);
 	}
 
 	/**
-	 * Get the currently stored metadata.
+	 * Get a page of the uploaded metadata.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}
-	 * @return the currently stored {@link SampleMetadataStorage}
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param current
+	 *            the page to get, starting at 1
+	 * @param pageSize
+	 *            the number of rows on each page
+	 * @return the {@link SampleMetadataStorage} with the rows on the page
 	 */
 	@GetMapping("/getMetadata")
 	@ResponseBody
-	public ResponseEntity<SampleMetadataStorage> getProjectSampleMetadata(HttpSession session,
-			@RequestParam Long projectId) {
-		return ResponseEntity.ok(metadataImportService.getProjectSampleMetadata(session, projectId));
+	public ResponseEntity<SampleMetadataStorage> getProjectSampleMetadata(@RequestParam Long projectId,
+			@RequestParam String uploadId, @RequestParam(defaultValue = "1") int current,
+			@RequestParam(defaultValue = "100") int pageSize) {
+		try {
+			return ResponseEntity.ok(
+					metadataImportService.getProjectSampleMetadata(projectId, uploadId, current - 1, pageSize));
+		} catch (EntityNotFoundException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND)
+					.build();
+		}
 	}
 }
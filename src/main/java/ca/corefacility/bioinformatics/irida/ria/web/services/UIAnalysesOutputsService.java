@@ -4,11 +4,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -39,14 +42,18 @@ public class UIAnalysesOutputsService {
 	private UserService userService;
 	private AnalysisOutputFileDownloadManager analysisOutputFileDownloadManager;
 
+	private final Executor zipDeflateExecutor;
+
 	@Autowired
 	public UIAnalysesOutputsService(AnalysisSubmissionService analysisSubmissionService,
 			IridaWorkflowsService workflowsService, UserService userService,
-			AnalysisOutputFileDownloadManager analysisOutputFileDownloadManager) {
+			AnalysisOutputFileDownloadManager analysisOutputFileDownloadManager,
+			@Qualifier("zipDeflateExecutor") Optional<Executor> zipDeflateExecutor) {
 		this.analysisSubmissionService = analysisSubmissionService;
 		this.workflowsService = workflowsService;
 		this.userService = userService;
 		this.analysisOutputFileDownloadManager = analysisOutputFileDownloadManager;
+		this.zipDeflateExecutor = zipDeflateExecutor.orElse(null);
 	}
 
 	/**
@@ -111,7 +118,7 @@ public class UIAnalysesOutputsService {
 	 */
 	public void downloadAnalysisOutputsSelection(String filename, HttpServletResponse response) {
 		Map<ProjectSampleAnalysisOutputInfo, AnalysisOutputFile> files = analysisOutputFileDownloadManager.getSelection();
-		FileUtilities.createBatchAnalysisOutputFileZippedResponse(response, filename, files);
+		FileUtilities.createBatchAnalysisOutputFileZippedResponse(response, filename, files, zipDeflateExecutor);
 	}
 
 	/**
@@ -120,10 +127,11 @@ public class UIAnalysesOutputsService {
 	 * @param analysisSubmissionId Id for a {@link AnalysisSubmission}
 	 * @param fileId               the id of the file to download
 	 * @param filename             Optional filename for file download.
+	 * @param request              {@link HttpServletRequest}
 	 * @param response             {@link HttpServletResponse}
 	 */
 	public void downloadIndividualAnalysisOutputFile(Long analysisSubmissionId, Long fileId, String filename,
-			HttpServletResponse response) {
+			HttpServletRequest request, HttpServletResponse response) {
 		AnalysisSubmission analysisSubmission = analysisSubmissionService.read(analysisSubmissionId);
 
 		Analysis analysis = analysisSubmission.getAnalysis();
@@ -138,9 +146,9 @@ public class UIAnalysesOutputsService {
 		}
 
 		if (!Strings.isNullOrEmpty(filename)) {
-			FileUtilities.createSingleFileResponse(response, optFile.get(), filename);
+			FileUtilities.createSingleFileResponse(request, response, optFile.get(), filename);
 		} else {
-			FileUtilities.createSingleFileResponse(response, optFile.get());
+			FileUtilities.createSingleFileResponse(request, response, optFile.get());
 		}
 	}
 
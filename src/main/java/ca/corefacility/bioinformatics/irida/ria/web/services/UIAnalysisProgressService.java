@@ -0,0 +1,352 @@
+package ca.corefacility.bioinformatics.irida.ria.web.services;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ca.corefacility.bioinformatics.irida.events.AnalysisProgressEvent;
+import ca.corefacility.bioinformatics.irida.events.AnalysisStageCompletedEvent;
+import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
+import ca.corefacility.bioinformatics.irida.exceptions.NoPercentageCompleteException;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.AnalysisProgressUpdate;
+import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
+
+/**
+ * UI Service that pushes the state and percentage complete of analyses to the
+ * browser as server-sent events, so that pages showing analyses don't have to
+ * poll for them.
+ * <p>
+ * Each connection watches a set of {@link AnalysisSubmission}s. Progress is
+ * pushed as soon as the analysis monitor reports it when the analysis engine
+ * runs on this server, and every
+ * <code>irida.analysis.progress.push.interval</code> milliseconds all of the
+ * watched submissions are read in a single query in case it runs elsewhere.
+ * Updates waiting to be sent to a connection are kept per submission, and a
+ * connection that falls more than
+ * <code>irida.analysis.progress.push.buffer</code> submissions behind is
+ * closed so the browser reconnects and starts again.
+ */
+@Component
+public class UIAnalysisProgressService {
+	private static final Logger logger = LoggerFactory.getLogger(UIAnalysisProgressService.class);
+
+	/**
+	 * The name of the events carrying an {@link AnalysisProgressUpdate}.
+	 */
+	public static final String PROGRESS_EVENT = "progress";
+
+	// the browser reconnects after this, which also cleans up after clients that went away quietly
+	private static final long CONNECTION_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+	private final AnalysisSubmissionService analysisSubmissionService;
+	private final Executor refreshExecutor;
+	private final Executor sendExecutor;
+	private final int maxPendingUpdates;
+	private final long heartbeatNanos;
+
+	private final Set<ProgressConnection> connections = ConcurrentHashMap.newKeySet();
+	private final Map<Long, AnalysisProgressUpdate> lastProgress = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds a new {@link UIAnalysisProgressService}.
+	 *
+	 * @param analysisSubmissionService the {@link AnalysisSubmissionService}
+	 * @param refreshExecutor           reads submissions reported by the analysis monitor
+	 * @param sendExecutor              sends events to the connections
+	 * @param maxPendingUpdates         the number of submissions with updates waiting to be sent before a
+	 *                                  connection is closed
+	 * @param heartbeatSeconds          how long a connection can go without an event before a heartbeat is sent
+	 */
+	@Autowired
+	public UIAnalysisProgressService(AnalysisSubmissionService analysisSubmissionService,
+			@Qualifier("analysisProgressRefreshExecutor") Executor refreshExecutor,
+			@Qualifier("analysisProgressSendExecutor") Executor sendExecutor,
+			@Value("${irida.analysis.progress.push.buffer:100}") int maxPendingUpdates,
+			@Value("${irida.analysis.progress.push.heartbeat:30}") long heartbeatSeconds) {
+		this.analysisSubmissionService = analysisSubmissionService;
+		this.refreshExecutor = refreshExecutor;
+		this.sendExecutor = sendExecutor;
+		this.maxPendingUpdates = maxPendingUpdates;
+		this.heartbeatNanos = TimeUnit.SECONDS.toNanos(heartbeatSeconds);
+	}
+
+	/**
+	 * Open a connection that pushes the progress of the given analyses until
+	 * they have all finished. The current progress of each analysis is sent
+	 * straight away.
+	 *
+	 * @param submissions the {@link AnalysisSubmission}s to watch, which the current user must be able to read
+	 * @return the emitter for the connection
+	 */
+	public SseEmitter subscribe(Collection<AnalysisSubmission> submissions) {
+		SseEmitter emitter = createEmitter();
+		ProgressConnection connection = new ProgressConnection(emitter);
+		emitter.onCompletion(connection::close);
+		emitter.onTimeout(connection::close);
+		emitter.onError(e -> connection.close());
+
+		List<AnalysisProgressUpdate> current = submissions.stream()
+				.map(this::getProgress)
+				.collect(Collectors.toList());
+		current.stream()
+				.filter(update -> !update.isFinished())
+				.forEach(update -> connection.submissionIds.add(update.getId()));
+
+		// start watching before sending the current progress so no change is missed in between
+		if (!connection.submissionIds.isEmpty()) {
+			connections.add(connection);
+		}
+		current.forEach(connection::offer);
+		if (connection.submissionIds.isEmpty()) {
+			// nothing to watch, send what's there and let the browser stop
+			connection.finish();
+		}
+		logger.trace("Watching progress of " + connection.submissionIds.size() + " analyses, " + connections.size()
+				+ " connections open");
+		return emitter;
+	}
+
+	/**
+	 * Push the progress of a submission the analysis monitor has just checked.
+	 *
+	 * @param event the progress reported by the monitor
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void handleAnalysisProgress(AnalysisProgressEvent event) {
+		refreshWatched(event.getSubmissionId());
+	}
+
+	/**
+	 * Push the progress of a submission that just finished a stage.
+	 *
+	 * @param event the submission that finished a stage
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void handleStageCompleted(AnalysisStageCompletedEvent event) {
+		refreshWatched(event.getSubmissionId());
+	}
+
+	/**
+	 * Read all of the watched submissions, push any progress that wasn't
+	 * already pushed and send a heartbeat to quiet connections.
+	 */
+	@Scheduled(initialDelayString = "${irida.analysis.progress.push.interval:5000}", fixedDelayString = "${irida.analysis.progress.push.interval:5000}")
+	public void pushProgress() {
+		Set<Long> watched = new HashSet<>();
+		for (ProgressConnection connection : connections) {
+			watched.addAll(connection.submissionIds);
+		}
+		lastProgress.keySet().retainAll(watched);
+
+		if (!watched.isEmpty()) {
+			refresh(watched);
+		}
+
+		long now = System.nanoTime();
+		for (ProgressConnection connection : connections) {
+			if (now - connection.lastSent >= heartbeatNanos) {
+				connection.heartbeat();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of open connections.
+	 *
+	 * @return the number of connections
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	/**
+	 * Create the emitter for a new connection.
+	 *
+	 * @return the emitter
+	 */
+	protected SseEmitter createEmitter() {
+		return new SseEmitter(CONNECTION_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Stop sending events.
+	 */
+	private void refreshWatched(Long submissionId) {
+		boolean watched = connections.stream()
+				.anyMatch(c -> c.submissionIds.contains(submissionId));
+		if (watched) {
+			// the event is handled on the analysis engine's threads, don't hold them up with the database
+			refreshExecutor.execute(new DelegatingSecurityContextRunnable(() -> refresh(Set.of(submissionId))));
+		}
+	}
+
+	private void refresh(Collection<Long> submissionIds) {
+		try {
+			for (AnalysisSubmission submission : analysisSubmissionService.readMultiple(submissionIds)) {
+				AnalysisProgressUpdate update = getProgress(submission);
+				AnalysisProgressUpdate previous = lastProgress.put(submission.getId(), update);
+				if (!update.equals(previous)) {
+					for (ProgressConnection connection : connections) {
+						if (connection.submissionIds.contains(submission.getId())) {
+							connection.offer(update);
+						}
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Could not read progress of analyses " + submissionIds, e);
+		}
+	}
+
+	private AnalysisProgressUpdate getProgress(AnalysisSubmission submission) {
+		Float percentComplete = null;
+		try {
+			percentComplete = analysisSubmissionService.getPercentComplete(submission);
+		} catch (NoPercentageCompleteException e) {
+			// errors have no percentage
+		} catch (ExecutionManagerException e) {
+			logger.debug("Could not get percentage complete for " + submission, e);
+		}
+		return new AnalysisProgressUpdate(submission.getId(), submission.getAnalysisState(), percentComplete);
+	}
+
+	/**
+	 * A browser watching the progress of some analyses.
+	 */
+	private class ProgressConnection {
+		private final SseEmitter emitter;
+		private final Set<Long> submissionIds = ConcurrentHashMap.newKeySet();
+
+		// guarded by this
+		private final Map<Long, AnalysisProgressUpdate> pending = new LinkedHashMap<>();
+		private boolean sending;
+		private boolean closed;
+		private boolean completeWhenSent;
+
+		private volatile long lastSent = System.nanoTime();
+
+		private ProgressConnection(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		/**
+		 * Queue an update to send, replacing any update for the same
+		 * submission that hasn't been sent yet.
+		 *
+		 * @param update the update, or null to only make sure the queue is being sent
+		 */
+		private void offer(AnalysisProgressUpdate update) {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				if (update != null) {
+					pending.remove(update.getId());
+					pending.put(update.getId(), update);
+					if (pending.size() > maxPendingUpdates) {
+						logger.debug("Connection is " + pending.size() + " analyses behind, closing it");
+						pending.clear();
+						completeWhenSent = true;
+					}
+				}
+				if (sending) {
+					return;
+				}
+				sending = true;
+			}
+			sendExecutor.execute(this::sendPending);
+		}
+
+		/**
+		 * Close the connection once everything queued has been sent.
+		 */
+		private void finish() {
+			synchronized (this) {
+				completeWhenSent = true;
+			}
+			offer(null);
+		}
+
+		private void sendPending() {
+			while (true) {
+				AnalysisProgressUpdate update;
+				synchronized (this) {
+					Iterator<AnalysisProgressUpdate> next = pending.values()
+							.iterator();
+					if (closed || !next.hasNext()) {
+						sending = false;
+						if (completeWhenSent && !closed) {
+							emitter.complete();
+							close();
+						}
+						return;
+					}
+					update = next.next();
+					next.remove();
+				}
+
+				try {
+					emitter.send(SseEmitter.event()
+							.name(PROGRESS_EVENT)
+							.data(update, MediaType.APPLICATION_JSON));
+					lastSent = System.nanoTime();
+				} catch (IOException | IllegalStateException e) {
+					logger.trace("Could not send progress, closing connection", e);
+					close();
+					return;
+				}
+
+				if (update.isFinished()) {
+					submissionIds.remove(update.getId());
+					if (submissionIds.isEmpty()) {
+						synchronized (this) {
+							completeWhenSent = true;
+						}
+					}
+				}
+			}
+		}
+
+		private void heartbeat() {
+			sendExecutor.execute(() -> {
+				try {
+					emitter.send(SseEmitter.event()
+							.comment("heartbeat"));
+					lastSent = System.nanoTime();
+				} catch (IOException | IllegalStateException e) {
+					close();
+				}
+			});
+		}
+
+		private void close() {
+			synchronized (this) {
+				closed = true;
+				pending.clear();
+			}
+			connections.remove(this);
+		}
+	}
+}
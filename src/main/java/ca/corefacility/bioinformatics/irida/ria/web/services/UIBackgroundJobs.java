@@ -0,0 +1,112 @@
+package ca.corefacility.bioinformatics.irida.ria.web.services;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Runs long jobs started from the UI in the background, as the user who
+ * started them, and keeps track of them so the page that started a job can
+ * follow along. A finished job is kept for an hour.
+ *
+ * @param <J> the type of job, holding its progress
+ */
+public class UIBackgroundJobs<J extends UIBackgroundJobs.Job> {
+
+	// how long the outcome of a job is kept after it has finished
+	private static final long FINISHED_JOB_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private final Executor executor;
+	private final Map<UUID, J> jobs = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds a new {@link UIBackgroundJobs}.
+	 *
+	 * @param executor runs the jobs
+	 */
+	public UIBackgroundJobs(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Start running a job in the background as the current user.
+	 *
+	 * @param job  the progress of the job
+	 * @param work does the job, updating its progress
+	 * @return the job
+	 */
+	public J start(J job, Runnable work) {
+		purgeFinishedJobs();
+		jobs.put(job.getId(), job);
+		executor.execute(new DelegatingSecurityContextRunnable(work));
+		return job;
+	}
+
+	/**
+	 * Get one of the current user's jobs.
+	 *
+	 * @param id the id of the job
+	 * @return the job, or empty if the current user has no job with the id, or it finished a while ago
+	 */
+	public Optional<J> get(UUID id) {
+		J job = jobs.get(id);
+		if (job == null || !job.getUsername()
+				.equals(currentUsername())) {
+			return Optional.empty();
+		}
+		return Optional.of(job);
+	}
+
+	private void purgeFinishedJobs() {
+		long oldest = System.currentTimeMillis() - FINISHED_JOB_RETENTION_MILLIS;
+		jobs.values()
+				.removeIf(job -> job.isFinished() && job.getFinishedAt() < oldest);
+	}
+
+	private static String currentUsername() {
+		return SecurityContextHolder.getContext()
+				.getAuthentication()
+				.getName();
+	}
+
+	/**
+	 * A job started by the current user.
+	 */
+	public abstract static class Job {
+		private final UUID id = UUID.randomUUID();
+		private final String username = currentUsername();
+
+		private volatile boolean finished;
+		private volatile long finishedAt;
+
+		public UUID getId() {
+			return id;
+		}
+
+		public String getUsername() {
+			return username;
+		}
+
+		public boolean isFinished() {
+			return finished;
+		}
+
+		long getFinishedAt() {
+			return finishedAt;
+		}
+
+		/**
+		 * Mark the job as finished, after its outcome has been set.
+		 */
+		protected void finished() {
+			this.finishedAt = System.currentTimeMillis();
+			this.finished = true;
+		}
+	}
+}
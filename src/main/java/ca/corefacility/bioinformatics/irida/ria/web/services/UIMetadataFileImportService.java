@@ -10,38 +10,47 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
-import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.MetadataImportFileTypeNotSupportedError;
+import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
-import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorage;
-import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorageRow;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
-import com.google.common.base.Strings;
+import com.github.pjfanning.xlsx.StreamingReader;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 
 /**
- * UI service to handle parsing metadata files so they can be saved to the
- * session.
+ * UI service to handle parsing metadata files so they can be stored in a
+ * {@link MetadataUpload}. Files are read a row at a time and stored a group of
+ * rows at a time, so the whole file is never held in memory.
  */
 @Component
 public class UIMetadataFileImportService {
 
-	private static final Logger logger = LoggerFactory.getLogger(UIMetadataFileImportService.class);
+	// rows of an xlsx file read from the zip at a time
+	private static final int EXCEL_ROW_CACHE_SIZE = 100;
+	private static final int EXCEL_BUFFER_SIZE = 4096;
+
+	// number of sample names to look up at a time
+	private static final int SAMPLE_NAME_BATCH_SIZE = 500;
 
 	private final ProjectService projectService;
 	private final SampleService sampleService;
+	private final MetadataUploadService metadataUploadService;
 
 	@Autowired
-	public UIMetadataFileImportService(ProjectService projectService, SampleService sampleService) {
+	public UIMetadataFileImportService(ProjectService projectService, SampleService sampleService,
+			MetadataUploadService metadataUploadService) {
 		this.projectService = projectService;
 		this.sampleService = sampleService;
+		this.metadataUploadService = metadataUploadService;
 	}
 
 	/**
@@ -51,40 +60,23 @@ public class UIMetadataFileImportService {
 	 *            {@link Long} The project identifier.
 	 * @param inputStream
 	 *            The inputStream of the csv file.
-	 * @return {@link SampleMetadataStorage} contains the metadata from file.
+	 * @return {@link MetadataUpload} containing the metadata from file.
 	 * @throws IOException
-	 *             thrown if the extension does not exist.
+	 *             thrown if the file can't be read.
 	 */
-	public SampleMetadataStorage parseCSV(Long projectId, InputStream inputStream) throws IOException {
-		SampleMetadataStorage storage = new SampleMetadataStorage();
-
-		CSVParser parser = CSVParser.parse(inputStream, StandardCharsets.UTF_8,
-				CSVFormat.RFC4180.withFirstRecordAsHeader().withTrim().withIgnoreEmptyLines());
-		List<SampleMetadataStorageRow> rows = new ArrayList<>();
-
-		// save headers
-		Map<String, Integer> headersSet = parser.getHeaderMap();
-		List<String> headersList = new ArrayList<>(headersSet.keySet());
-		storage.setHeaders(headersList);
-
-		// save data
-		for (CSVRecord row : parser) {
-			Map<String, String> rowMap = new HashMap<>();
-			for (String key : row.toMap().keySet()) {
-				String value = row.toMap().get(key);
-				rowMap.put(key, value);
-			}
-			rows.add(new SampleMetadataStorageRow(rowMap));
+	public MetadataUpload parseCSV(Long projectId, InputStream inputStream) throws IOException {
+		try (CSVParser parser = CSVParser.parse(inputStream, StandardCharsets.UTF_8,
+				CSVFormat.RFC4180.withFirstRecordAsHeader().withTrim().withIgnoreEmptyLines())) {
+			List<String> headers = new ArrayList<>(parser.getHeaderMap().keySet());
+			return storeRows(projectId, headers,
+					Iterators.transform(parser.iterator(), record -> getCSVValues(record, headers.size())));
 		}
-		storage.setRows(rows);
-		storage.setSampleNameColumn(findColumnName(projectId, rows));
-		parser.close();
-
-		return storage;
 	}
 
 	/**
-	 * Parse metadata from an excel file.
+	 * Parse metadata from an excel file. xlsx files are streamed rather than
+	 * loaded into a workbook. The older xls format can't be streamed, but is
+	 * limited to 65536 rows.
 	 *
 	 * @param projectId
 	 *            {@link Long} The project identifier.
@@ -92,19 +84,20 @@ public class UIMetadataFileImportService {
 	 *            The inputStream of the excel file.
 	 * @param extension
 	 *            The extension of the excel file.
-	 * @return {@link SampleMetadataStorage} contains the metadata from file.
+	 * @return {@link MetadataUpload} containing the metadata from file.
 	 * @throws IOException
 	 *             thrown if the extension does not exist.
 	 */
-	public SampleMetadataStorage parseExcel(Long projectId, InputStream inputStream, String extension)
-			throws IOException {
-		SampleMetadataStorage storage = new SampleMetadataStorage();
-		Workbook workbook = null;
+	public MetadataUpload parseExcel(Long projectId, InputStream inputStream, String extension) throws IOException {
+		Workbook workbook;
 
 		// Check the type of workbook
 		switch (extension) {
 		case "xlsx":
-			workbook = new XSSFWorkbook(inputStream);
+			workbook = StreamingReader.builder()
+					.rowCacheSize(EXCEL_ROW_CACHE_SIZE)
+					.bufferSize(EXCEL_BUFFER_SIZE)
+					.open(inputStream);
 			break;
 		case "xls":
 			workbook = new HSSFWorkbook(inputStream);
@@ -115,56 +108,122 @@ public class UIMetadataFileImportService {
 			throw new MetadataImportFileTypeNotSupportedError(extension);
 		}
 
-		// Only look at the first sheet in the workbook as this should be the
-		// file we want.
-		Sheet sheet = workbook.getSheetAt(0);
-		Iterator<Row> rowIterator = sheet.iterator();
-
-		List<String> headers = getWorkbookHeaders(rowIterator.next());
-		storage.setHeaders(headers);
-
-		// Get the metadata out of the table.
-		List<SampleMetadataStorageRow> rows = new ArrayList<>();
-		while (rowIterator.hasNext()) {
-			Map<String, String> rowMap = new HashMap<>();
-			Row row = rowIterator.next();
-			Iterator<Cell> cellIterator = row.cellIterator();
-			while (cellIterator.hasNext()) {
-				Cell cell = cellIterator.next();
-
-				int columnIndex = cell.getColumnIndex();
-				if (columnIndex < headers.size()) {
-					String header = headers.get(columnIndex);
-
-					if (!Strings.isNullOrEmpty(header)) {
-						// Need to ignore empty headers.
-						if (cell.getCellType().equals(CellType.NUMERIC)) {
-							/*
-							 * This is a special handler for number cells. It
-							 * was requested that numbers keep their formatting
-							 * from their excel files. E.g. 2.222222 with
-							 * formatting for 2 decimal places will be saved as
-							 * 2.22.
-							 */
-							DataFormatter formatter = new DataFormatter();
-							String value = formatter.formatCellValue(cell);
-							rowMap.put(header, value);
-						} else {
-							rowMap.put(header, cell.getStringCellValue());
-						}
-					}
+		try (workbook) {
+			// Only look at the first sheet in the workbook as this should be the
+			// file we want.
+			Sheet sheet = workbook.getSheetAt(0);
+			Iterator<Row> rowIterator = sheet.iterator();
+
+			List<String> headers = getWorkbookHeaders(rowIterator.next());
+			DataFormatter formatter = new DataFormatter();
+			return storeRows(projectId, headers,
+					Iterators.transform(rowIterator, row -> getWorkbookValues(row, headers.size(), formatter)));
+		}
+	}
+
+	/**
+	 * Store rows in a new {@link MetadataUpload} a group at a time, looking
+	 * for the sample name column in each group until it is found.
+	 *
+	 * @param projectId
+	 *            {@link Long} The project identifier.
+	 * @param headers
+	 *            the headers of the file
+	 * @param rows
+	 *            the values of each row, in the same order as the headers
+	 * @return the {@link MetadataUpload}
+	 */
+	private MetadataUpload storeRows(Long projectId, List<String> headers, Iterator<List<String>> rows) {
+		String owner = SecurityContextHolder.getContext()
+				.getAuthentication()
+				.getName();
+		MetadataUpload upload = metadataUploadService.createUpload(projectId, headers, owner);
+		try {
+			List<List<String>> group = new ArrayList<>(MetadataUploadService.ROWS_PER_GROUP);
+			while (rows.hasNext()) {
+				group.add(rows.next());
+				if (group.size() == MetadataUploadService.ROWS_PER_GROUP) {
+					addGroup(projectId, headers, upload, group);
+					group = new ArrayList<>(MetadataUploadService.ROWS_PER_GROUP);
 				}
 			}
-			rows.add(new SampleMetadataStorageRow(rowMap));
+			addGroup(projectId, headers, upload, group);
+			metadataUploadService.updateUpload(upload);
+		} catch (RuntimeException e) {
+			metadataUploadService.removeUpload(upload.getId(), owner);
+			throw e;
 		}
-		storage.setRows(rows);
-		storage.setSampleNameColumn(findColumnName(projectId, rows));
+		return upload;
+	}
 
-		if (extension.equals("xlsx")) {
-			workbook.close();
+	/**
+	 * Add a group of rows to a {@link MetadataUpload}, looking for the sample
+	 * name column in the group if it hasn't been found in an earlier one.
+	 *
+	 * @param projectId
+	 *            {@link Long} The project identifier.
+	 * @param headers
+	 *            the headers of the file
+	 * @param upload
+	 *            the {@link MetadataUpload} to add to
+	 * @param group
+	 *            the next rows of the file
+	 */
+	private void addGroup(Long projectId, List<String> headers, MetadataUpload upload, List<List<String>> group) {
+		if (upload.getSampleNameColumn() == null) {
+			upload.setSampleNameColumn(findColumnName(projectId, headers, group));
 		}
+		metadataUploadService.addRows(upload, group);
+	}
 
-		return storage;
+	/**
+	 * Get the values of a csv record.
+	 *
+	 * @param record
+	 *            {@link CSVRecord} A record from the csv file.
+	 * @param columns
+	 *            the number of headers in the file.
+	 * @return the values, with null for any missing values.
+	 */
+	private static List<String> getCSVValues(CSVRecord record, int columns) {
+		List<String> values = new ArrayList<>(columns);
+		for (int i = 0; i < columns; i++) {
+			values.add(i < record.size() ? record.get(i) : null);
+		}
+		return values;
+	}
+
+	/**
+	 * Get the values of a row from an excel file.
+	 *
+	 * @param row
+	 *            {@link Row} A row from the excel file.
+	 * @param columns
+	 *            the number of headers in the file.
+	 * @param formatter
+	 *            {@link DataFormatter} for number cells.
+	 * @return the values, with null for any empty cells.
+	 */
+	private static List<String> getWorkbookValues(Row row, int columns, DataFormatter formatter) {
+		List<String> values = new ArrayList<>(columns);
+		for (int i = 0; i < columns; i++) {
+			Cell cell = row.getCell(i);
+			if (cell == null) {
+				values.add(null);
+			} else if (cell.getCellType()
+					.equals(CellType.NUMERIC)) {
+				/*
+				 * This is a special handler for number cells. It was requested
+				 * that numbers keep their formatting from their excel files.
+				 * E.g. 2.222222 with formatting for 2 decimal places will be
+				 * saved as 2.22.
+				 */
+				values.add(formatter.formatCellValue(cell));
+			} else {
+				values.add(cell.getStringCellValue());
+			}
+		}
+		return values;
 	}
 
 	/**
@@ -178,17 +237,20 @@ public class UIMetadataFileImportService {
 		// We want to return a list of the table headers back to the UI.
 		List<String> headers = new ArrayList<>();
 
-		// Get the column headers
-		Iterator<Cell> headerIterator = row.cellIterator();
-		while (headerIterator.hasNext()) {
-			Cell headerCell = headerIterator.next();
-			CellType cellType = headerCell.getCellType();
-
+		// Get the column headers. Blank cells are skipped by the row's
+		// iterator, so go by column index to keep the headers in place.
+		for (int i = 0; i < row.getLastCellNum(); i++) {
+			Cell headerCell = row.getCell(i);
 			String headerValue;
-			if (cellType.equals(CellType.STRING)) {
-				headerValue = headerCell.getStringCellValue().trim();
+			if (headerCell == null) {
+				headerValue = "";
+			} else if (headerCell.getCellType()
+					.equals(CellType.STRING)) {
+				headerValue = headerCell.getStringCellValue()
+						.trim();
 			} else {
-				headerValue = String.valueOf(headerCell.getNumericCellValue()).trim();
+				headerValue = String.valueOf(headerCell.getNumericCellValue())
+						.trim();
 			}
 
 			// Leave empty headers for now, we will remove those columns later.
@@ -198,58 +260,45 @@ public class UIMetadataFileImportService {
 	}
 
 	/**
-	 * Find the sample name column, given the rows of a file.
+	 * Find the sample name column in some rows of a file. The values of every
+	 * column are looked up at once, and the column of the first value that
+	 * names a sample in the project is used.
 	 *
 	 * @param projectId
 	 *            {@link Long} The project identifier.
+	 * @param headers
+	 *            the headers of the file.
 	 * @param rows
-	 *            {@link Row} The rows from the excel file.
-	 * @return {@link String} column name.
+	 *            some rows of the file.
+	 * @return {@link String} column name, or null if no values name a sample.
 	 */
-	private String findColumnName(Long projectId, List<SampleMetadataStorageRow> rows) {
-		String columnName = null;
-		int col = 0;
-		int numRows = rows.size();
-
-		while (columnName == null && col < numRows) {
-			columnName = findColumnNameInRow(projectId, rows.get(col));
-			col++;
+	private String findColumnName(Long projectId, List<String> headers, List<List<String>> rows) {
+		Project project = projectService.read(projectId);
+		Set<String> values = new LinkedHashSet<>();
+		for (List<String> row : rows) {
+			row.stream()
+					.filter(Objects::nonNull)
+					.forEach(values::add);
 		}
 
-		return columnName;
-	}
+		Set<String> found = new HashSet<>();
+		for (List<String> batch : Lists.partition(new ArrayList<>(values), SAMPLE_NAME_BATCH_SIZE)) {
+			for (ProjectSampleJoin join : sampleService.getSamplesInProjectByName(project, batch)) {
+				found.add(join.getObject()
+						.getSampleName());
+			}
+		}
 
-	/**
-	 * Find the sample name column, given a row of a file.
-	 *
-	 * @param projectId
-	 *            {@link Long} The project identifier.
-	 * @param row
-	 *            {@link Row} A row from the excel file.
-	 * @return {@link String} column name.
-	 */
-	private String findColumnNameInRow(Long projectId, SampleMetadataStorageRow row) {
-		String columnName = null;
-		Project project = projectService.read(projectId);
-		Iterator<Map.Entry<String, String>> iterator = row.getEntry().entrySet().iterator();
-
-		while (iterator.hasNext() && columnName == null) {
-			String key = null;
-			String value = null;
-			try {
-				Map.Entry<String, String> entry = iterator.next();
-				key = entry.getKey();
-				value = entry.getValue();
-
-				if (sampleService.getSampleBySampleName(project, value) != null) {
-					columnName = key;
+		if (!found.isEmpty()) {
+			for (List<String> row : rows) {
+				for (int i = 0; i < row.size(); i++) {
+					if (found.contains(row.get(i)) && !headers.get(i)
+							.isEmpty()) {
+						return headers.get(i);
+					}
 				}
-			} catch (EntityNotFoundException entityNotFoundException) {
-				logger.trace("Sample " + value + " in project " + project.getId() + " is not found.",
-						entityNotFoundException);
 			}
 		}
-
-		return columnName;
+		return null;
 	}
-}
\ No newline at end of file
+}
@@ -4,79 +4,126 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
-
-import javax.servlet.http.HttpSession;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.MetadataImportFileTypeNotSupportedError;
+import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUploadRow;
 import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorage;
 import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorageRow;
-import ca.corefacility.bioinformatics.irida.ria.web.errors.SavedMetadataException;
+import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.MetadataImportProgress;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
 import ca.corefacility.bioinformatics.irida.service.sample.MetadataTemplateService;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 
 /**
- * UI service to handle importing metadata files, so they can be saved to the
- * session.
+ * UI service to handle importing metadata files. Uploaded files are stored
+ * with the {@link MetadataUploadService} while they are reviewed, and sent to
+ * the UI a page at a time.
+ * <p>
+ * Saving the metadata looks up all of the samples and fields at once, then
+ * writes the metadata a batch of samples at a time in the background. Each
+ * batch, including the samples it creates, is saved in one transaction. The
+ * upload page follows along with {@link #getMetadataImportProgress(UUID)}.
  */
 @Component
 public class UIMetadataImportService {
 
 	private static final Logger logger = LoggerFactory.getLogger(UIMetadataImportService.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	// the same rule the upload page uses to check sample names
+	private static final Pattern SAMPLE_NAME = Pattern.compile("^[A-Za-z0-9-_]{3,}$");
+
 	private final MessageSource messageSource;
 	private final ProjectService projectService;
 	private final SampleService sampleService;
 	private final MetadataTemplateService metadataTemplateService;
 	private final UIMetadataFileImportService metadataFileImportService;
+	private final MetadataUploadService metadataUploadService;
+	private final int batchSize;
+	private final UIBackgroundJobs<MetadataImport> imports;
+	private final TransactionTemplate transactionTemplate;
 
+	/**
+	 * Builds a new {@link UIMetadataImportService}.
+	 *
+	 * @param messageSource             the {@link MessageSource}
+	 * @param projectService            the {@link ProjectService}
+	 * @param sampleService             the {@link SampleService}
+	 * @param metadataTemplateService   the {@link MetadataTemplateService}
+	 * @param metadataFileImportService the {@link UIMetadataFileImportService}
+	 * @param metadataUploadService     the {@link MetadataUploadService}
+	 * @param batchSize                 the number of samples to save the metadata for in each transaction
+	 * @param importExecutor            saves the uploaded metadata
+	 * @param transactionManager        the {@link PlatformTransactionManager} each batch is saved with
+	 */
 	@Autowired
 	public UIMetadataImportService(MessageSource messageSource, ProjectService projectService,
 			SampleService sampleService, MetadataTemplateService metadataTemplateService,
-			UIMetadataFileImportService metadataFileImportService) {
+			UIMetadataFileImportService metadataFileImportService, MetadataUploadService metadataUploadService,
+			@Value("${irida.metadata.import.batch.size:500}") int batchSize,
+			@Qualifier("metadataImportExecutor") Executor importExecutor,
+			PlatformTransactionManager transactionManager) {
 		this.messageSource = messageSource;
 		this.projectService = projectService;
 		this.sampleService = sampleService;
 		this.metadataTemplateService = metadataTemplateService;
 		this.metadataFileImportService = metadataFileImportService;
+		this.metadataUploadService = metadataUploadService;
+		this.batchSize = Math.max(1, batchSize);
+		this.imports = new UIBackgroundJobs<>(importExecutor);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
 	}
 
 	/**
 	 * Upload CSV or Excel file containing sample metadata and extract the
-	 * headers. The file is stored in the session until the column that
-	 * corresponds to a {@link Sample} identifier has been sent.
+	 * headers. The file is stored until the column that corresponds to a
+	 * {@link Sample} identifier has been sent. Any earlier upload by the
+	 * current user to the project is removed.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}
 	 * @param file
 	 *            {@link MultipartFile} The csv or excel file containing the
 	 *            metadata.
-	 * @return {@link Map} of headers and rows from the csv or excel file for
-	 *         the user to select the header corresponding the {@link Sample}
-	 *         identifier.
+	 * @return {@link SampleMetadataStorage} with the id of the upload and the
+	 *         headers from the csv or excel file for the user to select the
+	 *         header corresponding the {@link Sample} identifier.
 	 * @throws Exception
 	 *             if there is an error reading the file
 	 */
-	public SampleMetadataStorage createProjectSampleMetadata(HttpSession session, Long projectId, MultipartFile file)
-			throws Exception {
-		// We want to return a list of the table headers back to the UI.
-		SampleMetadataStorage storage = new SampleMetadataStorage();
+	public SampleMetadataStorage createProjectSampleMetadata(Long projectId, MultipartFile file) throws Exception {
+		metadataUploadService.removeUploads(projectId, getUsername());
+
+		MetadataUpload upload;
 		try (InputStream inputStream = file.getInputStream()) {
 			String filename = file.getOriginalFilename();
 			String extension = Files.getFileExtension(filename);
@@ -84,11 +131,11 @@ public class UIMetadataImportService {
 			// Check the file type
 			switch (extension) {
 			case "csv":
-				storage = metadataFileImportService.parseCSV(projectId, inputStream);
+				upload = metadataFileImportService.parseCSV(projectId, inputStream);
 				break;
 			case "xlsx":
 			case "xls":
-				storage = metadataFileImportService.parseExcel(projectId, inputStream, extension);
+				upload = metadataFileImportService.parseExcel(projectId, inputStream, extension);
 				break;
 			default:
 				// Should never reach here as the uploader limits to .csv, .xlsx
@@ -104,67 +151,130 @@ public class UIMetadataImportService {
 			throw e;
 		}
 
-		session.setAttribute("pm-" + projectId, storage);
-		return storage;
+		return toStorage(upload, null);
 	}
 
 	/**
 	 * Add the metadata to specific {@link Sample} based on the selected column
 	 * to correspond to the {@link Sample} id.
 	 *
-	 * @param session
-	 *            {@link HttpSession}.
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}.
+	 * @param uploadId
+	 *            the id of the upload
 	 * @param sampleNameColumn
 	 *            {@link String} the header to used to represent the
 	 *            {@link Sample} identifier.
 	 * @return {@link String} containing a complete message.
 	 */
-	public String setProjectSampleMetadataSampleId(HttpSession session, Long projectId, String sampleNameColumn) {
-		// Attempt to get the metadata from the sessions
-		SampleMetadataStorage stored = (SampleMetadataStorage) session.getAttribute("pm-" + projectId);
-
-		if (stored != null) {
-			stored.setSampleNameColumn(sampleNameColumn);
-			Project project = projectService.read(projectId);
-			List<SampleMetadataStorageRow> rows = stored.getRows();
-			List<SampleMetadataStorageRow> updatedRows = new ArrayList<>();
-
-			// Get the metadata out of the table.
-			for (SampleMetadataStorageRow row : rows) {
-				try {
-					// If this throws an error than the sample does not exist.
-					Sample sample = sampleService.getSampleBySampleName(project, row.getEntryValue(sampleNameColumn));
-					row.setFoundSampleId(sample.getId());
-				} catch (EntityNotFoundException e) {
-					row.setFoundSampleId(null);
+	public String setProjectSampleMetadataSampleId(Long projectId, String uploadId, String sampleNameColumn) {
+		MetadataUpload upload = getUpload(projectId, uploadId);
+		int column = upload.getHeaders()
+				.indexOf(sampleNameColumn);
+		if (column < 0) {
+			throw new IllegalArgumentException("The uploaded metadata has no column " + sampleNameColumn);
+		}
+		Project project = projectService.read(projectId);
+
+		int invalidSampleNames = 0;
+		for (int from = 0; from < upload.getRowCount(); from += batchSize) {
+			List<MetadataUploadRow> rows = metadataUploadService.getRows(upload, from, batchSize);
+			Map<String, ProjectSampleJoin> samples = getSamplesByName(project, rows.stream()
+					.map(row -> row.getValues()
+							.get(column))
+					.filter(Objects::nonNull)
+					.collect(Collectors.toSet()));
+
+			for (MetadataUploadRow row : rows) {
+				String name = row.getValues()
+						.get(column);
+				ProjectSampleJoin join = name == null ? null : samples.get(name);
+				row.setFoundSampleId(join == null ? null : join.getObject()
+						.getId());
+				if (!isValidSampleName(name)) {
+					invalidSampleNames++;
 				}
-				updatedRows.add(row);
 			}
-			stored.setRows(updatedRows);
+			metadataUploadService.updateRows(upload, rows);
 		}
 
+		upload.setSampleNameColumn(sampleNameColumn);
+		upload.setInvalidSampleNames(invalidSampleNames);
+		metadataUploadService.updateUpload(upload);
+
 		return "complete";
 	}
 
 	/**
-	 * Save uploaded metadata
+	 * Start saving uploaded metadata. The metadata is saved in the background,
+	 * follow along with {@link #getMetadataImportProgress(UUID)}. Every row
+	 * with a valid sample name is saved, except for rows that couldn't be
+	 * saved before. Any rows that can't be saved have their error set in the
+	 * upload.
 	 *
 	 * @param locale
 	 *            {@link Locale} of the current user.
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current project
-	 * @param sampleNames
-	 *            {@link List} of {@link String} sample names
-	 * @return {@link String} that returns a message and potential errors.
-	 * @throws SavedMetadataException
-	 *             if there is an error saving the metadata
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param excludedSampleNames
+	 *            {@link List} of {@link String} sample names the user chose
+	 *            not to save, may be null
+	 * @return the progress of the import, including the id to follow it with.
+	 */
+	public MetadataImportProgress saveProjectSampleMetadata(Locale locale, Long projectId, String uploadId,
+			List<String> excludedSampleNames) {
+		Project project = projectService.read(projectId);
+		MetadataUpload upload = getUpload(projectId, uploadId);
+		Set<String> excluded = excludedSampleNames == null ?
+				Collections.emptySet() :
+				new HashSet<>(excludedSampleNames);
+
+		MetadataImport metadataImport = new MetadataImport(upload.getRowCount());
+
+		// the metadata is saved as the user who uploaded it
+		imports.start(metadataImport, () -> {
+			try {
+				importMetadata(metadataImport, locale, project, upload, excluded);
+			} catch (RuntimeException e) {
+				logger.error("Could not save the metadata for import " + metadataImport.getId() + " to project "
+						+ projectId, e);
+				metadataImport.finish(true, null);
+			}
+		});
+
+		return metadataImport.toProgress();
+	}
+
+	/**
+	 * Get how far along saving uploaded metadata is.
+	 *
+	 * @param importId
+	 *            the id returned when the import was started
+	 * @return the progress of the import
+	 * @throws EntityNotFoundException
+	 *             if the current user has no import with the id, or it
+	 *             finished a while ago
+	 */
+	public MetadataImportProgress getMetadataImportProgress(UUID importId) throws EntityNotFoundException {
+		return imports.get(importId)
+				.orElseThrow(() -> new EntityNotFoundException("No metadata import with id " + importId))
+				.toProgress();
+	}
+
+	/**
+	 * Save the metadata in the upload to the samples in the project, creating
+	 * any samples and fields that don't exist yet. The rows are read and saved
+	 * a batch at a time. If a batch can't be saved, each of its rows is saved
+	 * on its own to find the ones that fail.
 	 */
-	public String saveProjectSampleMetadata(Locale locale, HttpSession session, Long projectId,
-			List<String> sampleNames) throws SavedMetadataException {
+	private void importMetadata(MetadataImport metadataImport, Locale locale, Project project,
+			MetadataUpload upload, Set<String> excluded) {
+		String sampleNameColumn = upload.getSampleNameColumn();
+		List<String> headers = upload.getHeaders();
+		int sampleNameIndex = headers.indexOf(sampleNameColumn);
+
 		List<String> DEFAULT_HEADERS = ImmutableList.of(
 				messageSource.getMessage("project.samples.table.sample-id", new Object[] {}, locale),
 				messageSource.getMessage("project.samples.table.id", new Object[] {}, locale),
@@ -174,65 +284,83 @@ public class UIMetadataImportService {
 				messageSource.getMessage("project.samples.table.created", new Object[] {}, locale),
 				messageSource.getMessage("project.samples.table.coverage", new Object[] {}, locale),
 				messageSource.getMessage("project.samples.table.project-id", new Object[] {}, locale));
-		Project project = projectService.read(projectId);
-		SampleMetadataStorage stored = (SampleMetadataStorage) session.getAttribute("pm-" + projectId);
-		boolean hasErrors = false;
-		String message;
+
+		// Make sure we are not saving non-metadata items.
+		Set<String> labels = headers.stream()
+				.filter(label -> !label.isEmpty() && !DEFAULT_HEADERS.contains(label)
+						&& !sampleNameColumn.contains(label))
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		Map<String, MetadataTemplateField> fields = getOrCreateFields(labels);
+
 		int samplesUpdatedCount = 0;
 		int samplesCreatedCount = 0;
+		boolean hasErrors = false;
+		Set<String> seen = new HashSet<>();
 
-		if (sampleNames != null) {
-			String sampleNameColumn = stored.getSampleNameColumn();
-
-			for (String sampleName : sampleNames) {
-				try {
-					Set<MetadataEntry> metadataEntrySet = new HashSet<>();
-					SampleMetadataStorageRow row = stored.getRow(sampleName, sampleNameColumn);
-					String name = row.getEntryValue(sampleNameColumn);
-					Sample sample = null;
-
-					if (row.getFoundSampleId() != null) {
-						sample = sampleService.getSampleBySampleName(project, name);
-						samplesUpdatedCount++;
-					} else {
-						sample = new Sample(name);
-						projectService.addSampleToProject(project, sample, true);
-						samplesCreatedCount++;
-					}
-
-					// Need to overwrite duplicate keys
-					for (Map.Entry<String, String> entry : row.getEntry().entrySet()) {
-						// Make sure we are not saving non-metadata items.
-						if (!DEFAULT_HEADERS.contains(entry.getKey()) && !sampleNameColumn.contains(entry.getKey())) {
-							MetadataTemplateField key = metadataTemplateService
-									.readMetadataFieldByLabel(entry.getKey());
+		for (int from = 0; from < upload.getRowCount(); from += batchSize) {
+			// skip the rows that were left out, can't be saved, or repeat a
+			// sample from an earlier row
+			List<MetadataUploadRow> batch = new ArrayList<>();
+			for (MetadataUploadRow row : metadataUploadService.getRows(upload, from, batchSize)) {
+				String name = row.getValues()
+						.get(sampleNameIndex);
+				if (isValidSampleName(name) && !Boolean.FALSE.equals(row.isSaved()) && !excluded.contains(name)
+						&& seen.add(name)) {
+					// forget the outcome of an earlier attempt
+					row.setSaved(null);
+					row.setError(null);
+					batch.add(row);
+				}
+			}
 
-							if (key == null) {
-								key = metadataTemplateService
-										.saveMetadataField(new MetadataTemplateField(entry.getKey(), "text"));
-							}
+			Map<String, ProjectSampleJoin> samples = getSamplesByName(project, batch.stream()
+					.map(row -> row.getValues()
+							.get(sampleNameIndex))
+					.collect(Collectors.toSet()));
 
-							metadataEntrySet.add(new MetadataEntry(entry.getValue(), "text", key));
-						}
+			Function<MetadataUploadRow, Set<MetadataEntry>> toMetadata = row -> getMetadataEntries(row, headers,
+					fields);
+			try {
+				transactionTemplate.executeWithoutResult(
+						status -> saveBatch(project, samples, batch, sampleNameIndex, toMetadata));
+				batch.forEach(row -> row.setSaved(true));
+			} catch (Exception e) {
+				logger.debug("Could not save a batch of metadata, saving each sample on its own", e);
+				// find out which of the samples couldn't be saved
+				for (MetadataUploadRow row : batch) {
+					String name = row.getValues()
+							.get(sampleNameIndex);
+					try {
+						transactionTemplate.executeWithoutResult(
+								status -> saveRow(project, samples.get(name), name, toMetadata.apply(row)));
+						row.setSaved(true);
+					} catch (Exception rowException) {
+						row.setError(rowException.getMessage());
+						row.setSaved(false);
 					}
+				}
+			}
+			metadataUploadService.updateRows(upload, batch);
 
-					// Save metadata back to the sample
-					sampleService.mergeSampleMetadata(sample, metadataEntrySet);
-					row.setSaved(true);
-				} catch (Exception e) {
-					SampleMetadataStorageRow row = stored.getRow(sampleName, sampleNameColumn);
-					row.setError(e.getMessage());
-					row.setSaved(false);
+			for (MetadataUploadRow row : batch) {
+				if (!Boolean.TRUE.equals(row.isSaved())) {
 					hasErrors = true;
+				} else if (!samples.containsKey(row.getValues()
+						.get(sampleNameIndex))) {
+					samplesCreatedCount++;
+				} else {
+					samplesUpdatedCount++;
 				}
 			}
+			metadataImport.processed(Math.min(upload.getRowCount(), from + batchSize));
 		}
 
 		if (hasErrors) {
-			throw new SavedMetadataException(stored);
+			metadataImport.finish(true, null);
+			return;
 		}
 
-		message = ((samplesUpdatedCount == 1)
+		String message = ((samplesUpdatedCount == 1)
 				? messageSource.getMessage("server.metadataimport.results.save.success.single-updated",
 						new Object[] { samplesUpdatedCount }, locale)
 				: messageSource.getMessage("server.metadataimport.results.save.success.multiple-updated",
@@ -243,32 +371,222 @@ public class UIMetadataImportService {
 				: messageSource.getMessage("server.metadataimport.results.save.success.multiple-created",
 						new Object[] { samplesCreatedCount }, locale);
 
-		return message;
+		metadataImport.finish(false, message);
+	}
+
+	/**
+	 * Save the metadata of a batch of rows, creating the samples that aren't
+	 * in the project yet. Should be called in a transaction so that the whole
+	 * batch is saved or nothing is.
+	 */
+	private void saveBatch(Project project, Map<String, ProjectSampleJoin> samples, List<MetadataUploadRow> batch,
+			int sampleNameIndex, Function<MetadataUploadRow, Set<MetadataEntry>> toMetadata) {
+		Map<Sample, Set<MetadataEntry>> owned = new LinkedHashMap<>();
+		for (MetadataUploadRow row : batch) {
+			String name = row.getValues()
+					.get(sampleNameIndex);
+			ProjectSampleJoin join = samples.get(name);
+			if (join == null) {
+				Sample sample = projectService.addSampleToProject(project, new Sample(name), true)
+						.getObject();
+				owned.put(sample, toMetadata.apply(row));
+			} else if (join.isOwner()) {
+				owned.put(join.getObject(), toMetadata.apply(row));
+			} else {
+				// the project doesn't own the sample, it can only be updated
+				// through a project that does
+				sampleService.mergeSampleMetadata(join.getObject(), toMetadata.apply(row));
+			}
+		}
+		sampleService.mergeSampleMetadata(project, owned);
+	}
+
+	/**
+	 * Save the metadata of a single row, creating its sample if it isn't in
+	 * the project yet. Should be called in a transaction so that a sample
+	 * isn't created without its metadata.
+	 */
+	private void saveRow(Project project, ProjectSampleJoin join, String name, Set<MetadataEntry> metadata) {
+		Sample sample = join == null ?
+				projectService.addSampleToProject(project, new Sample(name), true)
+						.getObject() :
+				join.getObject();
+		sampleService.mergeSampleMetadata(sample, metadata);
+	}
+
+	/**
+	 * Get the metadata in a row. New entries are made on every call, as
+	 * entries from a transaction that was rolled back can't be saved again.
+	 */
+	private static Set<MetadataEntry> getMetadataEntries(MetadataUploadRow row, List<String> headers,
+			Map<String, MetadataTemplateField> fields) {
+		Set<MetadataEntry> metadataEntrySet = new HashSet<>();
+		for (int i = 0; i < headers.size(); i++) {
+			MetadataTemplateField field = fields.get(headers.get(i));
+			String value = row.getValues()
+					.get(i);
+			if (field != null && value != null) {
+				metadataEntrySet.add(new MetadataEntry(value, "text", field));
+			}
+		}
+		return metadataEntrySet;
+	}
+
+	/**
+	 * Look up the samples in a project with the given names, a batch of names
+	 * at a time.
+	 *
+	 * @return the samples that were found, keyed by name
+	 */
+	private Map<String, ProjectSampleJoin> getSamplesByName(Project project, Collection<String> names) {
+		Map<String, ProjectSampleJoin> samples = new HashMap<>();
+		for (List<String> batch : Lists.partition(new ArrayList<>(names), batchSize)) {
+			for (ProjectSampleJoin join : sampleService.getSamplesInProjectByName(project, batch)) {
+				samples.put(join.getObject()
+						.getSampleName(), join);
+			}
+		}
+		return samples;
+	}
+
+	/**
+	 * Get the metadata fields with the given labels, creating the ones that
+	 * don't exist yet.
+	 *
+	 * @return the fields, keyed by label ignoring case
+	 */
+	private Map<String, MetadataTemplateField> getOrCreateFields(Collection<String> labels) {
+		Map<String, MetadataTemplateField> fields = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		fields.putAll(metadataTemplateService.readMetadataFieldsByLabels(labels)
+				.stream()
+				.collect(Collectors.toMap(MetadataTemplateField::getLabel, Function.identity(), (a, b) -> a)));
+
+		Map<String, MetadataTemplateField> missing = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (String label : labels) {
+			if (!fields.containsKey(label)) {
+				missing.putIfAbsent(label, new MetadataTemplateField(label, "text"));
+			}
+		}
+		if (!missing.isEmpty()) {
+			for (MetadataTemplateField field : metadataTemplateService.saveMetadataFields(missing.values())) {
+				fields.put(field.getLabel(), field);
+			}
+		}
+		return fields;
 	}
 
 	/**
-	 * Clear any uploaded sample metadata stored into the session.
+	 * Clear any sample metadata the current user uploaded to a project.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            identifier for the {@link Project} currently uploaded metadata
 	 *            to.
 	 */
-	public void clearProjectSampleMetadata(HttpSession session, Long projectId) {
-		session.removeAttribute("pm-" + projectId);
+	public void clearProjectSampleMetadata(Long projectId) {
+		metadataUploadService.removeUploads(projectId, getUsername());
 	}
 
 	/**
-	 * Get the currently stored metadata.
+	 * Get a page of the uploaded metadata.
 	 *
-	 * @param session
-	 *            {@link HttpSession}
 	 * @param projectId
 	 *            {@link Long} identifier for the current {@link Project}
-	 * @return the currently stored {@link SampleMetadataStorage}
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param page
+	 *            the page of rows to get, starting at 0
+	 * @param pageSize
+	 *            the number of rows on each page
+	 * @return the {@link SampleMetadataStorage} with the rows on the page
+	 */
+	public SampleMetadataStorage getProjectSampleMetadata(Long projectId, String uploadId, int page, int pageSize) {
+		MetadataUpload upload = getUpload(projectId, uploadId);
+		List<String> headers = upload.getHeaders();
+		List<SampleMetadataStorageRow> rows = new ArrayList<>();
+		for (MetadataUploadRow row : metadataUploadService.getRows(upload, Math.max(0, page) * pageSize,
+				pageSize)) {
+			Map<String, String> entry = new LinkedHashMap<>();
+			for (int i = 0; i < headers.size(); i++) {
+				// Need to ignore empty headers.
+				if (!headers.get(i)
+						.isEmpty() && row.getValues()
+						.get(i) != null) {
+					entry.put(headers.get(i), row.getValues()
+							.get(i));
+				}
+			}
+			SampleMetadataStorageRow storageRow = new SampleMetadataStorageRow(row.getIndex(), entry);
+			storageRow.setFoundSampleId(row.getFoundSampleId());
+			storageRow.setSaved(row.isSaved());
+			storageRow.setError(row.getError());
+			rows.add(storageRow);
+		}
+		return toStorage(upload, rows);
+	}
+
+	private SampleMetadataStorage toStorage(MetadataUpload upload, List<SampleMetadataStorageRow> rows) {
+		SampleMetadataStorage storage = new SampleMetadataStorage();
+		storage.setUploadId(upload.getId());
+		storage.setHeaders(upload.getHeaders());
+		storage.setSampleNameColumn(upload.getSampleNameColumn());
+		storage.setTotal(upload.getRowCount());
+		storage.setInvalidSampleNames(upload.getInvalidSampleNames());
+		storage.setRows(rows);
+		return storage;
+	}
+
+	/**
+	 * Get one of the current user's uploads to a project.
+	 *
+	 * @throws EntityNotFoundException
+	 *             if the user has no upload to the project with the id
+	 */
+	private MetadataUpload getUpload(Long projectId, String uploadId) {
+		MetadataUpload upload = metadataUploadService.getUpload(uploadId, getUsername());
+		if (!upload.getProjectId()
+				.equals(projectId)) {
+			throw new EntityNotFoundException("No metadata upload with id [" + uploadId + "] for project " + projectId);
+		}
+		return upload;
+	}
+
+	private static boolean isValidSampleName(String name) {
+		return name != null && SAMPLE_NAME.matcher(name)
+				.matches();
+	}
+
+	private static String getUsername() {
+		return SecurityContextHolder.getContext()
+				.getAuthentication()
+				.getName();
+	}
+
+	/**
+	 * Uploaded metadata being saved to a project.
 	 */
-	public SampleMetadataStorage getProjectSampleMetadata(HttpSession session, Long projectId) {
-		return (SampleMetadataStorage) session.getAttribute("pm-" + projectId);
+	private static class MetadataImport extends UIBackgroundJobs.Job {
+		private final int total;
+
+		private volatile int processed;
+		private volatile boolean failed;
+		private volatile String message;
+
+		private MetadataImport(int total) {
+			this.total = total;
+		}
+
+		private void processed(int processed) {
+			this.processed = processed;
+		}
+
+		private void finish(boolean failed, String message) {
+			this.failed = failed;
+			this.message = message;
+			finished();
+		}
+
+		private MetadataImportProgress toProgress() {
+			return new MetadataImportProgress(getId(), processed, total, isFinished(), failed, message);
+		}
 	}
 }
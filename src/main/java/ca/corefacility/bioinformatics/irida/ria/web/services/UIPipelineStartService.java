@@ -4,11 +4,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.pipelines.ReferenceFileRequiredException;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
@@ -21,7 +26,9 @@ import ca.corefacility.bioinformatics.irida.model.workflow.description.IridaWork
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmissionTemplate;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.IridaWorkflowNamedParameters;
+import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchProgress;
 import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchRequest;
+import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchStartedResponse;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
@@ -30,27 +37,46 @@ import ca.corefacility.bioinformatics.irida.service.workflow.WorkflowNamedParame
 
 /**
  * Service to handle starting of {@link IridaWorkflow}s through the UI.
+ * <p>
+ * A pipeline that runs on single samples creates an analysis for every sample
+ * in the cart, so those analyses are created in the background and the launch
+ * page follows along with {@link #getLaunchProgress(UUID)}.
  */
 @Component
 public class UIPipelineStartService {
+	private static final Logger logger = LoggerFactory.getLogger(UIPipelineStartService.class);
+
 	private final IridaWorkflowsService workflowsService;
 	private final SequencingObjectService sequencingObjectService;
 	private final AnalysisSubmissionService submissionService;
 	private final ProjectService projectService;
 	private final WorkflowNamedParametersService namedParametersService;
 	private final MessageSource messageSource;
+	private final UIBackgroundJobs<Launch> launches;
 
+	/**
+	 * Builds a new {@link UIPipelineStartService}.
+	 *
+	 * @param workflowsService        the {@link IridaWorkflowsService}
+	 * @param sequencingObjectService the {@link SequencingObjectService}
+	 * @param submissionService       the {@link AnalysisSubmissionService}
+	 * @param projectService          the {@link ProjectService}
+	 * @param namedParametersService  the {@link WorkflowNamedParametersService}
+	 * @param messageSource           the {@link MessageSource}
+	 * @param launchExecutor          creates the analyses for single sample pipelines
+	 */
 	@Autowired
 	public UIPipelineStartService(IridaWorkflowsService workflowsService,
 			SequencingObjectService sequencingObjectService, AnalysisSubmissionService submissionService,
 			ProjectService projectService, WorkflowNamedParametersService namedParametersService,
-			MessageSource messageSource) {
+			MessageSource messageSource, @Qualifier("pipelineLaunchExecutor") Executor launchExecutor) {
 		this.workflowsService = workflowsService;
 		this.sequencingObjectService = sequencingObjectService;
 		this.submissionService = submissionService;
 		this.projectService = projectService;
 		this.namedParametersService = namedParametersService;
 		this.messageSource = messageSource;
+		this.launches = new UIBackgroundJobs<>(launchExecutor);
 	}
 
 	/**
@@ -62,15 +88,16 @@ public class UIPipelineStartService {
 	 *            - details about the request to start the pipeline
 	 * @param locale
 	 *            - currently logged in users locale
-	 * @return The id of the new {@link AnalysisSubmission}, if more than one
-	 *         are kicked off, then the first id is returned.
+	 * @return The id of the new {@link AnalysisSubmission}, or if an
+	 *         analysis is being created for each sample, -1 and the id to
+	 *         follow their creation with.
 	 * @throws IridaWorkflowNotFoundException
 	 *             thrown if the workflow cannot be found
 	 * @throws ReferenceFileRequiredException
 	 *             thrown if a reference file is required and not sent (should
 	 *             not happen).
 	 */
-	public Long start(UUID id, LaunchRequest request, Locale locale)
+	public LaunchStartedResponse start(UUID id, LaunchRequest request, Locale locale)
 			throws IridaWorkflowNotFoundException, ReferenceFileRequiredException {
 		IridaWorkflow workflow = workflowsService.getIridaWorkflow(id);
 		IridaWorkflowDescription description = workflow.getWorkflowDescription();
@@ -97,7 +124,7 @@ public class UIPipelineStartService {
 					request.getReference(), request.getParameters(), namedParameters, request.getName(), statusMessage,
 					request.getDescription(), project, request.isUpdateSamples(), request.sendEmailOnCompletion(),
 					request.sendEmailOnError());
-			return template.getId();
+			return new LaunchStartedResponse(template.getId());
 		} else {
 			/*
 			 * SHARE RESULTS BACK TO PROJECTS?
@@ -131,20 +158,74 @@ public class UIPipelineStartService {
 			IridaWorkflowInput inputs = description.getInputs();
 
 			if (inputs.requiresSingleSample()) {
-				submissionService.createSingleSampleSubmission(workflow, request.getReference(), singles, pairs,
-						request.getParameters(), namedParameters, request.getName(), request.getDescription(), projects,
-						request.isUpdateSamples(), request.sendEmailOnCompletion(), request.sendEmailOnError());
+				final IridaWorkflowNamedParameters launchParameters = namedParameters;
+				final List<Project> shareWith = projects;
+				Launch launch = new Launch();
+
+				// the analyses are created as the user who launched them
+				launches.start(launch, () -> {
+					try {
+						submissionService.createSingleSampleSubmission(workflow, request.getReference(), singles,
+								pairs, request.getParameters(), launchParameters, request.getName(),
+								request.getDescription(), shareWith, request.isUpdateSamples(),
+								request.sendEmailOnCompletion(), request.sendEmailOnError(), launch::saved);
+						launch.finish(null);
+					} catch (RuntimeException e) {
+						logger.error("Could not create the analyses for launch " + launch.getId() + " of workflow "
+								+ id, e);
+						launch.finish(messageSource.getMessage("server.LaunchProgress.error",
+								new Object[] { launch.saved, launch.total }, locale));
+					}
+				});
+
 				// Returning -1L as a flag to the UI that multiple pipelines
 				// have been launched, thereby there is not
 				// On specific pipeline to go to.
-				return -1L;
+				return new LaunchStartedResponse(-1L, launch.getId());
 			} else {
 				AnalysisSubmission submission = submissionService.createMultipleSampleSubmission(workflow,
 						request.getReference(), singles, pairs, request.getParameters(), namedParameters,
 						request.getName(), request.getDescription(), projects, request.isUpdateSamples(),
 						request.sendEmailOnCompletion(), request.sendEmailOnError());
-				return submission.getId();
+				return new LaunchStartedResponse(submission.getId());
 			}
 		}
 	}
+
+	/**
+	 * Get how far along the creation of the analyses for a single sample
+	 * pipeline launch is.
+	 *
+	 * @param launchId the id returned when the pipeline was launched
+	 * @return the progress of the launch
+	 * @throws EntityNotFoundException if the current user has no launch with the id, or it finished a while ago
+	 */
+	public LaunchProgress getLaunchProgress(UUID launchId) throws EntityNotFoundException {
+		return launches.get(launchId)
+				.orElseThrow(() -> new EntityNotFoundException("No pipeline launch with id " + launchId))
+				.toProgress();
+	}
+
+	/**
+	 * The analyses being created for a single sample pipeline launch.
+	 */
+	private static class Launch extends UIBackgroundJobs.Job {
+		private volatile int saved;
+		private volatile int total;
+		private volatile String error;
+
+		private void saved(int saved, int total) {
+			this.total = total;
+			this.saved = saved;
+		}
+
+		private void finish(String error) {
+			this.error = error;
+			finished();
+		}
+
+		private LaunchProgress toProgress() {
+			return new LaunchProgress(getId(), saved, total, isFinished(), error);
+		}
+	}
 }
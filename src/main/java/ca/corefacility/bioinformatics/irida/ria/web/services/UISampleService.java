@@ -6,10 +6,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.ConstraintViolationException;
@@ -23,8 +22,10 @@ import org.apache.poi.ss.util.DateFormatConverter;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -46,8 +47,10 @@ import ca.corefacility.bioinformatics.irida.model.sequenceFile.*;
 import ca.corefacility.bioinformatics.irida.repositories.specification.ProjectSampleJoinSpecification;
 import ca.corefacility.bioinformatics.irida.repositories.specification.SearchCriteria;
 import ca.corefacility.bioinformatics.irida.repositories.specification.SearchOperation;
+import ca.corefacility.bioinformatics.irida.ria.utilities.ZipStreamWriter;
 import ca.corefacility.bioinformatics.irida.ria.web.exceptions.UIShareSamplesException;
 import ca.corefacility.bioinformatics.irida.ria.web.models.tables.AntSearch;
+import ca.corefacility.bioinformatics.irida.ria.web.models.tables.AntTableRequest;
 import ca.corefacility.bioinformatics.irida.ria.web.models.tables.AntTableResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.ProjectCartSample;
 import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.ProjectSampleTableItem;
@@ -82,6 +85,7 @@ public class UISampleService {
 	private final MetadataTemplateService metadataTemplateService;
 	private final MessageSource messageSource;
 	private final UICartService cartService;
+	private final Executor zipDeflateExecutor;
 	private final Integer MAX_PAGE_SIZE = 5000;
 
 	/*
@@ -97,7 +101,8 @@ public class UISampleService {
 	public UISampleService(SampleService sampleService, ProjectService projectService,
 			UpdateSamplePermission updateSamplePermission, SequencingObjectService sequencingObjectService,
 			GenomeAssemblyService genomeAssemblyService, MetadataTemplateService metadataTemplateService,
-			MessageSource messageSource, UICartService cartService) {
+			MessageSource messageSource, UICartService cartService,
+			@Qualifier("zipDeflateExecutor") Optional<Executor> zipDeflateExecutor) {
 		this.sampleService = sampleService;
 		this.projectService = projectService;
 		this.updateSamplePermission = updateSamplePermission;
@@ -106,6 +111,7 @@ public class UISampleService {
 		this.metadataTemplateService = metadataTemplateService;
 		this.messageSource = messageSource;
 		this.cartService = cartService;
+		this.zipDeflateExecutor = zipDeflateExecutor.orElse(null);
 	}
 
 	/**
@@ -303,16 +309,122 @@ public class UISampleService {
 		}
 		List<Project> projects = (List<Project>) projectService.readMultiple(projectIds);
 
+		Set<String> permittedKeys = getPermittedMetadataKeys(projectId, request);
+		ProjectSampleJoinSpecification filterSpec = getFilterSpecification(projectId, request, permittedKeys);
+		Sort sort = getPermittedSort(request, permittedKeys);
+
+		Page<ProjectSampleJoin> page = sampleService.getFilteredProjectSamples(projects, filterSpec, request.getPage(),
+				request.getPageSize(), sort);
+
+		List<ProjectSampleTableItem> items = formatSamplesForTable(page, locale);
+		addMetadataToTable(projectId, request.getMetadataFields(), items);
+		return new AntTableResponse<>(items, page.getTotalElements());
+	}
+
+	/**
+	 * Add the values of the metadata fields shown as columns to a page of the samples table.  Only fields the current
+	 * user can read are added, and only to the samples in the current project as the restrictions on the fields of
+	 * associated projects are not checked.
+	 *
+	 * @param projectId identifier for the current project
+	 * @param fieldIds  identifiers of the metadata fields shown in the table
+	 * @param items     the page of the samples table
+	 */
+	private void addMetadataToTable(Long projectId, List<Long> fieldIds, List<ProjectSampleTableItem> items) {
+		if (fieldIds.isEmpty()) {
+			return;
+		}
+
+		Project project = projectService.read(projectId);
+		List<MetadataTemplateField> fields = metadataTemplateService.getPermittedFieldsForCurrentUser(project, true)
+				.stream()
+				.filter(field -> fieldIds.contains(field.getId()))
+				.collect(Collectors.toList());
+		List<Long> sampleIds = items.stream()
+				.filter(item -> item.getProject().getId().equals(projectId))
+				.map(item -> item.getSample().getId())
+				.collect(Collectors.toList());
+		if (fields.isEmpty() || sampleIds.isEmpty()) {
+			return;
+		}
+
+		Map<Long, Set<MetadataEntry>> metadata = sampleService.getMetadataForProjectSamples(project, sampleIds, fields)
+				.getMetadata();
+		for (ProjectSampleTableItem item : items) {
+			if (item.getProject().getId().equals(projectId)) {
+				item.setMetadata(metadata.getOrDefault(item.getSample().getId(), Collections.emptySet())
+						.stream()
+						.collect(Collectors.toMap(entry -> entry.getField().getId(), MetadataEntry::getValue,
+								(v1, v2) -> v1)));
+			}
+		}
+	}
+
+	/**
+	 * Get the keys of the metadata fields in the project that the current user can search and sort the samples table
+	 * on.  The fields are only read when the request uses a metadata key.  Only the restrictions of the current project
+	 * are checked, so searches and sorts on these keys only apply to the samples in the current project.
+	 *
+	 * @param projectId identifier for the current project
+	 * @param request   the project samples table request
+	 * @return the {@link ProjectSampleJoinSpecification} keys of the permitted metadata fields
+	 */
+	private Set<String> getPermittedMetadataKeys(Long projectId, AntTableRequest request) {
+		boolean usesMetadata = request.getSearch()
+				.stream()
+				.anyMatch(search -> isMetadataKey(search.getProperty())) || request.getSort()
+				.stream()
+				.anyMatch(order -> isMetadataKey(order.getProperty()));
+		if (!usesMetadata) {
+			return Collections.emptySet();
+		}
+
+		Project project = projectService.read(projectId);
+		return metadataTemplateService.getPermittedFieldsForCurrentUser(project, true)
+				.stream()
+				.map(ProjectSampleJoinSpecification::getMetadataKey)
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Build the filter for the samples table.  Searches on metadata fields the user cannot read are ignored, and
+	 * samples in associated projects don't match searches on metadata fields as the restrictions of those projects are
+	 * not checked.
+	 *
+	 * @param projectId     identifier for the current project
+	 * @param request       the project samples table request
+	 * @param permittedKeys the keys of the metadata fields the user can read in the current project
+	 * @return the filter for the samples
+	 */
+	private ProjectSampleJoinSpecification getFilterSpecification(Long projectId, AntTableRequest request,
+			Set<String> permittedKeys) {
 		ProjectSampleJoinSpecification filterSpec = new ProjectSampleJoinSpecification();
+		filterSpec.setMetadataProject(projectId);
 		for (AntSearch search : request.getSearch()) {
-			filterSpec.add(new SearchCriteria(search.getProperty(), search.getValue(),
-					SearchOperation.fromString(search.getOperation())));
+			if (!isMetadataKey(search.getProperty()) || permittedKeys.contains(search.getProperty())) {
+				filterSpec.add(new SearchCriteria(search.getProperty(), search.getValue(),
+						SearchOperation.fromString(search.getOperation())));
+			}
 		}
+		return filterSpec;
+	}
 
-		Page<ProjectSampleJoin> page = sampleService.getFilteredProjectSamples(projects, filterSpec, request.getPage(),
-				request.getPageSize(), request.getSort());
+	/**
+	 * Get the sort for the samples table.  Orders on metadata fields the user cannot read are ignored.
+	 *
+	 * @param request       the project samples table request
+	 * @param permittedKeys the keys of the metadata fields the user can read
+	 * @return the sort for the samples
+	 */
+	private Sort getPermittedSort(AntTableRequest request, Set<String> permittedKeys) {
+		return Sort.by(request.getSort()
+				.stream()
+				.filter(order -> !isMetadataKey(order.getProperty()) || permittedKeys.contains(order.getProperty()))
+				.collect(Collectors.toList()));
+	}
 
-		return new AntTableResponse<>(formatSamplesForTable(page, locale), page.getTotalElements());
+	private boolean isMetadataKey(String property) {
+		return property.startsWith(ProjectSampleJoinSpecification.METADATA_PREFIX);
 	}
 
 	/**
@@ -336,20 +448,18 @@ public class UISampleService {
 		}
 		List<Project> projects = (List<Project>) projectService.readMultiple(projectIds);
 
-		ProjectSampleJoinSpecification filterSpec = new ProjectSampleJoinSpecification();
-		for (AntSearch search : request.getSearch()) {
-			filterSpec.add(new SearchCriteria(search.getProperty(), search.getValue(),
-					SearchOperation.fromString(search.getOperation())));
-		}
+		Set<String> permittedKeys = getPermittedMetadataKeys(projectId, request);
+		ProjectSampleJoinSpecification filterSpec = getFilterSpecification(projectId, request, permittedKeys);
+		Sort sort = getPermittedSort(request, permittedKeys);
 
 		Page<ProjectSampleJoin> page = sampleService.getFilteredProjectSamples(projects, filterSpec, 0, MAX_PAGE_SIZE,
-				request.getSort());
+				sort);
 
 		while (!page.isEmpty()) {
 			page.getContent().forEach(psj -> filteredProjectSamples.add(new ProjectCartSample(psj)));
 			// Get the next page
 			page = sampleService.getFilteredProjectSamples(projects, filterSpec, page.getNumber() + 1, MAX_PAGE_SIZE,
-					request.getSort());
+					sort);
 		}
 
 		return filteredProjectSamples;
@@ -415,8 +525,8 @@ public class UISampleService {
 		List<Sample> samples = (List<Sample>) sampleService.readMultiple(sampleIds);
 
 		StreamingResponseBody body = out -> {
-			final ZipOutputStream zipOutputStream = new ZipOutputStream(response.getOutputStream());
-			ZipEntry zipEntry;
+			final ZipStreamWriter zipOutputStream = new ZipStreamWriter(response.getOutputStream(),
+					zipDeflateExecutor);
 
 			// storing used file names to ensure we don't have a conflict
 			Set<String> usedFileNames = new HashSet<>();
@@ -435,17 +545,14 @@ public class UISampleService {
 							if (usedFileNames.contains(fileName)) {
 								fileName = handleDuplicate(fileName, usedFileNames);
 							}
-							zipEntry = new ZipEntry(fileName);
-							// set the file creation time on the zip entry to be
-							// whatever the creation time is on the filesystem
+							// set the file time on the zip entry to be whatever the
+							// creation time is on the filesystem. Compressed files
+							// are stored using the CRC-32 saved when the file was
+							// processed.
 							final BasicFileAttributes attr = Files.readAttributes(path, BasicFileAttributes.class);
-							zipEntry.setCreationTime(attr.creationTime());
-							zipEntry.setLastModifiedTime(attr.creationTime());
 
-							zipOutputStream.putNextEntry(zipEntry);
 							usedFileNames.add(fileName);
-							Files.copy(path, zipOutputStream);
-							zipOutputStream.closeEntry();
+							zipOutputStream.putFile(fileName, path, attr.creationTime(), file.getCrc32());
 						}
 					}
 				}
@@ -506,11 +613,9 @@ public class UISampleService {
 			projectIds.addAll(filter.getAssociated());
 		}
 
-		ProjectSampleJoinSpecification filterSpec = new ProjectSampleJoinSpecification();
-		for (AntSearch search : request.getSearch()) {
-			filterSpec.add(new SearchCriteria(search.getProperty(), search.getValue(),
-					SearchOperation.fromString(search.getOperation())));
-		}
+		Set<String> permittedKeys = getPermittedMetadataKeys(projectId, request);
+		ProjectSampleJoinSpecification filterSpec = getFilterSpecification(projectId, request, permittedKeys);
+		Sort sort = getPermittedSort(request, permittedKeys);
 
 		// Get all possible samples with this filter
 		// NOTE: THIS IS AN EXPENSIVE OPERATION!!!
@@ -518,13 +623,13 @@ public class UISampleService {
 		List<ProjectSampleTableItem> items = new ArrayList<>();
 
 		Page<ProjectSampleJoin> page = sampleService.getFilteredProjectSamples(projects, filterSpec, 0, MAX_PAGE_SIZE,
-				request.getSort());
+				sort);
 		while (!page.isEmpty()) {
 			items.addAll(formatSamplesForTable(page, locale));
 
 			// Get the next page
 			page = sampleService.getFilteredProjectSamples(projects, filterSpec, page.getNumber() + 1, MAX_PAGE_SIZE,
-					request.getSort());
+					sort);
 		}
 
 		List<String> headers = TABLE_HEADERS.stream()
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.processing.impl.FastQCChartRenderer;
 import ca.corefacility.bioinformatics.irida.ria.web.files.dto.FastQCDetailsResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.files.dto.FastQCImagesResponse;
 import ca.corefacility.bioinformatics.irida.service.AnalysisService;
@@ -21,6 +22,7 @@ import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
 public class UISequenceFileService {
 	private AnalysisService analysisService;
 	private SequencingObjectService sequencingObjectService;
+	private FastQCChartRenderer chartRenderer;
 
 	public static final String IMG_PERBASE = "perbase";
 	public static final String IMG_PERSEQUENCE = "persequence";
@@ -28,9 +30,11 @@ public class UISequenceFileService {
 	public static final String[] qcFileTypes = { "perbase", "persequence", "duplicationlevel" };
 
 	@Autowired
-	public UISequenceFileService(AnalysisService analysisService, SequencingObjectService sequencingObjectService) {
+	public UISequenceFileService(AnalysisService analysisService, SequencingObjectService sequencingObjectService,
+			FastQCChartRenderer chartRenderer) {
 		this.analysisService = analysisService;
 		this.sequencingObjectService = sequencingObjectService;
+		this.chartRenderer = chartRenderer;
 	}
 
 	/**
@@ -59,7 +63,8 @@ public class UISequenceFileService {
 	 * @param sequenceFileId
 	 *            Id for the {@link SequenceFile}
 	 * @return {@link FastQCImagesResponse} dto which has the byte arrays for
-	 *         the images as well as the fastqc version
+	 *         the images, the data the images were drawn from, as well as the
+	 *         fastqc version
 	 * @throws IOException
 	 *             if entity is not found
 	 */
@@ -74,17 +79,19 @@ public class UISequenceFileService {
 
 		for (String type : qcFileTypes) {
 			if (type.equals(IMG_PERBASE)) {
-				perBaseChart = fastQC.getPerBaseQualityScoreChart();
+				perBaseChart = chartRenderer.getPerBaseQualityScoreChart(fastQC);
 			} else if (type.equals(IMG_PERSEQUENCE)) {
-				perSequenceChart = fastQC.getPerSequenceQualityScoreChart();
+				perSequenceChart = chartRenderer.getPerSequenceQualityScoreChart(fastQC);
 			} else if (type.equals(IMG_DUPLICATION_LEVEL)) {
-				duplicationLevelChart = fastQC.getDuplicationLevelChart();
+				duplicationLevelChart = chartRenderer.getDuplicationLevelChart(fastQC);
 			} else {
 				throw new IOException("Image not found");
 			}
 		}
-		return new FastQCImagesResponse(perBaseChart, perSequenceChart, duplicationLevelChart,
-				fastQC.getFastqcVersion());
+		FastQCImagesResponse response = new FastQCImagesResponse(perBaseChart, perSequenceChart,
+				duplicationLevelChart, fastQC.getFastqcVersion());
+		response.setChartData(fastQC.getChartData());
+		return response;
 	}
 
 	/**
@@ -0,0 +1,126 @@
+package ca.corefacility.bioinformatics.irida.security.permissions;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ca.corefacility.bioinformatics.irida.events.ProjectMembershipChangedEvent;
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.user.User;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectUserJoinRepository;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.UserGroupProjectJoinRepository;
+
+/**
+ * Caches the identifiers of the {@link Project}s that each {@link User} is a
+ * member of, either directly or through a group, so that permission checks on
+ * projects and everything in them don't have to query the joins every time.
+ * <p>
+ * Entries are dropped when a {@link ProjectMembershipChangedEvent} is
+ * published, and are reloaded after <code>project.membership.cache_expiry</code>
+ * seconds regardless in case the joins were changed some other way.
+ * <p>
+ * Events are only seen by the node that published them. On a multi-node
+ * deployment the other nodes keep their entries until they expire, so a user
+ * removed from a project may still pass permission checks there for up to
+ * <code>project.membership.cache_expiry</code> seconds. Keep the expiry short
+ * for that reason; the cache only needs to absorb the many checks made while
+ * serving a single page.
+ */
+@Component
+public class ProjectMembershipCache {
+	private static final Logger logger = LoggerFactory.getLogger(ProjectMembershipCache.class);
+
+	private final ProjectUserJoinRepository pujRepository;
+	private final UserGroupProjectJoinRepository ugpjRepository;
+	private final long maxAgeNanos;
+
+	private final Map<String, Membership> memberships = new ConcurrentHashMap<>();
+
+	// incremented on every eviction so that a load which started before the
+	// eviction doesn't put stale memberships back into the cache
+	private final AtomicLong generation = new AtomicLong();
+
+	@Autowired
+	public ProjectMembershipCache(final ProjectUserJoinRepository pujRepository,
+			final UserGroupProjectJoinRepository ugpjRepository,
+			@Value("${project.membership.cache_expiry:5}") final long expirySeconds) {
+		this.pujRepository = pujRepository;
+		this.ugpjRepository = ugpjRepository;
+		this.maxAgeNanos = Duration.ofSeconds(expirySeconds).toNanos();
+	}
+
+	/**
+	 * Check whether a {@link User} is a member of a {@link Project}, directly or
+	 * through a group.
+	 *
+	 * @param username  the name of the user
+	 * @param projectId the identifier of the project
+	 * @return true if the user is a member of the project
+	 */
+	public boolean isMember(final String username, final Long projectId) {
+		return getProjectIds(username).contains(projectId);
+	}
+
+	/**
+	 * Get the identifiers of the {@link Project}s a {@link User} is a member
+	 * of, directly or through a group.
+	 *
+	 * @param username the name of the user
+	 * @return the identifiers of the user's projects
+	 */
+	public Set<Long> getProjectIds(final String username) {
+		final Membership cached = memberships.get(username);
+		if (cached != null && System.nanoTime() - cached.loadedAt < maxAgeNanos) {
+			return cached.projectIds;
+		}
+
+		final long loadingGeneration = generation.get();
+		final Set<Long> projectIds = new HashSet<>(pujRepository.getProjectIdsForUser(username));
+		projectIds.addAll(ugpjRepository.findProjectIdsByUser(username));
+		logger.trace("Loaded " + projectIds.size() + " projects for [" + username + "]");
+
+		final Membership loaded = new Membership(Set.copyOf(projectIds));
+		memberships.compute(username, (k, current) -> generation.get() == loadingGeneration ? loaded : current);
+		return loaded.projectIds;
+	}
+
+	/**
+	 * Drop cached memberships once the change that published the event is
+	 * committed.
+	 *
+	 * @param event the membership change
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void membershipChanged(final ProjectMembershipChangedEvent event) {
+		generation.incrementAndGet();
+		if (event.getUsername() == null) {
+			logger.trace("Clearing project memberships for all users");
+			memberships.clear();
+		} else {
+			logger.trace("Clearing project memberships for [" + event.getUsername() + "]");
+			memberships.remove(event.getUsername());
+		}
+	}
+
+	/**
+	 * The projects a user was a member of when they were loaded
+	 */
+	private static class Membership {
+		private final Set<Long> projectIds;
+		private final long loadedAt = System.nanoTime();
+
+		private Membership(final Set<Long> projectIds) {
+			this.projectIds = projectIds;
+		}
+	}
+}
@@ -135,6 +135,39 @@ public interface AnalysisSubmissionService extends CRUDService<Long, AnalysisSub
 			String analysisDescription, List<Project> projectsToShare, boolean writeResultsToSamples,
 			boolean emailPipelineResultCompleted, boolean emailPipelineResultError);
 
+	/**
+	 * Submit {@link AnalysisSubmission} for workflows requiring only one
+	 * {@link SequenceFile} or {@link SequenceFilePair}, reporting progress as
+	 * the submissions are saved. Submissions are saved in batches, each in its
+	 * own transaction unless the caller already has one, so if saving fails the
+	 * batches saved before it are kept.
+	 *
+	 * @param workflow                     {@link IridaWorkflow} that the files will be run on
+	 * @param ref                          {@link Long} id for a {@link ReferenceFile}
+	 * @param sequenceFiles                {@link List} of {@link SequenceFile} to run on the workflow
+	 * @param sequenceFilePairs            {@link List} of {@link SequenceFilePair} to run on the
+	 *                                     workflow
+	 * @param unnamedParameters            {@link Map} of parameters specific for the pipeline
+	 * @param namedParameters              the named parameters to use for the workflow.
+	 * @param name                         {@link String} the name for the analysis
+	 * @param analysisDescription          {@link String} the description of the analysis being submitted
+	 * @param projectsToShare              A list of {@link Project}s to share analysis results with
+	 * @param writeResultsToSamples        If true, results of this pipeline will be saved back to the
+	 *                                     samples on successful completion.
+	 * @param emailPipelineResultCompleted If true, user will be emailed if a pipelines successfully
+	 *                                     completes
+	 * @param emailPipelineResultError     If true, user will be emailed if a pipeline errors
+	 * @param listener                     notified after each batch of submissions is saved
+	 * @return the {@link Collection} of {@link AnalysisSubmission} created for
+	 * the supplied files.
+	 */
+	public Collection<AnalysisSubmission> createSingleSampleSubmission(IridaWorkflow workflow, Long ref,
+			List<SingleEndSequenceFile> sequenceFiles, List<SequenceFilePair> sequenceFilePairs,
+			Map<String, String> unnamedParameters, IridaWorkflowNamedParameters namedParameters, String name,
+			String analysisDescription, List<Project> projectsToShare, boolean writeResultsToSamples,
+			boolean emailPipelineResultCompleted, boolean emailPipelineResultError,
+			SubmissionProgressListener listener);
+
 	/**
 	 * Create a new {@link AnalysisSubmissionTemplate} for a project with the given settings
 	 *
@@ -200,6 +233,22 @@ public interface AnalysisSubmissionService extends CRUDService<Long, AnalysisSub
 	public float getPercentCompleteForAnalysisSubmission(Long id) throws EntityNotFoundException,
 			NoPercentageCompleteException, ExecutionManagerException;
 
+	/**
+	 * Gets the percentage complete of an {@link AnalysisSubmission} that has
+	 * already been read.
+	 *
+	 * @param analysisSubmission
+	 *            The {@link AnalysisSubmission}.
+	 * @return The percentage complete for this {@link AnalysisSubmission}.
+	 * @throws NoPercentageCompleteException
+	 *             An exception that indicates there is no percentage complete
+	 *             for the submission.
+	 * @throws ExecutionManagerException
+	 *             If there was an issue when contacting the execution manager.
+	 */
+	public float getPercentComplete(AnalysisSubmission analysisSubmission) throws NoPercentageCompleteException,
+			ExecutionManagerException;
+
 	/**
 	 * Get the {@link JobError} objects for a {@link AnalysisSubmission} id
 	 * @param id {@link AnalysisSubmission} id
@@ -342,6 +391,15 @@ public interface AnalysisSubmissionService extends CRUDService<Long, AnalysisSub
 	 */
 	public AnalysisServiceStatus getAnalysisServiceStatus();
 
+	/**
+	 * Get the queued analyses in the order they will be prepared.  Analyses queued behind the first {@code count} are
+	 * not included.
+	 *
+	 * @param count The number of queued analyses to get.
+	 * @return The queued {@link AnalysisSubmission}s, the next to be prepared first
+	 */
+	public List<AnalysisSubmission> getQueuedAnalysisSubmissions(int count);
+
 	/**
 	 * Get count of analyses run in the time period
 	 *
@@ -394,4 +452,18 @@ public interface AnalysisSubmissionService extends CRUDService<Long, AnalysisSub
 			return "Running: " + running + ", Queued: " + queued;
 		}
 	}
+
+	/**
+	 * Notified as a number of {@link AnalysisSubmission}s are saved.
+	 */
+	@FunctionalInterface
+	public interface SubmissionProgressListener {
+		/**
+		 * Called after each batch of submissions is saved.
+		 *
+		 * @param saved the number of submissions saved so far
+		 * @param total the number of submissions being saved
+		 */
+		public void saved(int saved, int total);
+	}
 }
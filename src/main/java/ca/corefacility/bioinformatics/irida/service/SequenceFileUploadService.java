@@ -0,0 +1,397 @@
+package ca.corefacility.bioinformatics.irida.service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.exceptions.StorageException;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Service for resumable uploads of {@link SequenceFile}s. Each
+ * {@link SequenceFileUploadSession} is stored in its own directory under the
+ * sequence file base directory, with the file being uploaded written in place
+ * as chunks arrive. Keeping the upload on the same filesystem as the sequence
+ * files means that the completed file is renamed into its final directory
+ * when the {@link SequenceFile} is saved instead of being copied again.
+ */
+@Service
+public class SequenceFileUploadService {
+	private static final Logger logger = LoggerFactory.getLogger(SequenceFileUploadService.class);
+
+	/**
+	 * Name of the directory in the sequence file base directory where uploads
+	 * are stored
+	 */
+	public static final String UPLOAD_DIRECTORY = ".uploads";
+	private static final String SESSION_FILE = "session.json";
+	private static final String LOCK_FILE = "session.lock";
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f\\-]{36}");
+	private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+
+	private static final ObjectMapper objectMapper = new ObjectMapper()
+			.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+			.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final Path uploadDirectory;
+	private final Duration expiry;
+	private final long maxSize;
+
+	// sessions are locked while the received ranges are updated. A file lock
+	// keeps out other servers, but not other threads of this one.
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+	@Autowired
+	public SequenceFileUploadService(@Qualifier("sequenceFileBaseDirectory") Path sequenceFileBaseDirectory,
+			@Value("${file.upload.session.expiry:24}") long expiryHours,
+			@Value("${file.upload.max_size:-1}") long maxSize) {
+		this.uploadDirectory = sequenceFileBaseDirectory.resolve(UPLOAD_DIRECTORY);
+		this.expiry = Duration.ofHours(expiryHours);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Start a new upload. The user must be allowed to add files to the sample.
+	 *
+	 * @param sampleId
+	 *            the id of the sample the file will be added to
+	 * @param fileName
+	 *            the name of the file
+	 * @param size
+	 *            the size of the file in bytes
+	 * @param sha256
+	 *            the sha256 of the file if the client knows it, or null
+	 * @param owner
+	 *            the name of the user uploading the file
+	 * @return the new {@link SequenceFileUploadSession}
+	 */
+	@PreAuthorize("hasPermission(#sampleId, 'canUpdateSample')")
+	public SequenceFileUploadSession createSession(Long sampleId, String fileName, long size, String sha256,
+			String owner) {
+		if (fileName == null || fileName.isBlank() || !Paths.get(fileName).getFileName().toString().equals(fileName)
+				|| fileName.equals("..") || fileName.equals(SESSION_FILE) || fileName.equals(LOCK_FILE)) {
+			throw new IllegalArgumentException("Invalid file name [" + fileName + "]");
+		}
+		if (size <= 0) {
+			throw new IllegalArgumentException("The file size must be greater than 0");
+		}
+		if (maxSize >= 0 && size > maxSize) {
+			throw new IllegalArgumentException(
+					"The file size " + size + " is larger than the maximum upload size of " + maxSize + " bytes");
+		}
+		checkSha256(sha256);
+
+		SequenceFileUploadSession session = new SequenceFileUploadSession(UUID.randomUUID().toString(), sampleId,
+				fileName, size, sha256 == null ? null : sha256.toLowerCase(), owner);
+		try {
+			Files.createDirectories(sessionDirectory(session.getId()));
+			Files.createFile(dataFile(session));
+			writeSession(session);
+		} catch (IOException e) {
+			throw new StorageException("Could not create upload [" + session.getId() + "]", e);
+		}
+
+		logger.debug("Created upload [" + session.getId() + "] for [" + fileName + "] (" + size + " bytes)");
+		return session;
+	}
+
+	/**
+	 * Read an upload
+	 *
+	 * @param sessionId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user reading the upload
+	 * @return the {@link SequenceFileUploadSession}
+	 * @throws EntityNotFoundException
+	 *             if the upload doesn't exist or belongs to another user
+	 */
+	public SequenceFileUploadSession getSession(String sessionId, String owner) throws EntityNotFoundException {
+		if (sessionId == null || !SESSION_ID.matcher(sessionId).matches()) {
+			throw new EntityNotFoundException("No upload with id [" + sessionId + "]");
+		}
+
+		SequenceFileUploadSession session;
+		try {
+			session = objectMapper.readValue(sessionDirectory(sessionId).resolve(SESSION_FILE).toFile(),
+					SequenceFileUploadSession.class);
+		} catch (NoSuchFileException | FileNotFoundException e) {
+			throw new EntityNotFoundException("No upload with id [" + sessionId + "]");
+		} catch (IOException e) {
+			throw new StorageException("Could not read upload [" + sessionId + "]", e);
+		}
+
+		// uploads belonging to other users are hidden
+		if (!session.getOwner().equals(owner)) {
+			throw new EntityNotFoundException("No upload with id [" + sessionId + "]");
+		}
+		return session;
+	}
+
+	/**
+	 * Write part of the file. The data is written at its offset in the file so
+	 * that chunks can be sent in any order, in parallel, or again after a
+	 * failure. The user must be allowed to add files to the sample, and no
+	 * more than the declared size of the file or of the data is accepted.
+	 *
+	 * @param sampleId
+	 *            the id of the sample the upload was started for
+	 * @param sessionId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user sending the data
+	 * @param offset
+	 *            the position in the file of the first byte of the data
+	 * @param length
+	 *            the number of bytes the client declared it's sending, or -1
+	 *            if it's unknown
+	 * @param data
+	 *            the data to write
+	 * @return the upload with the data added to the received ranges
+	 * @throws IOException
+	 *             if the data could not be read or written
+	 * @throws EntityNotFoundException
+	 *             if the upload doesn't exist, belongs to another user, or was
+	 *             started for a different sample
+	 */
+	@PreAuthorize("hasPermission(#sampleId, 'canUpdateSample')")
+	public SequenceFileUploadSession writeChunk(Long sampleId, String sessionId, String owner, long offset,
+			long length, InputStream data) throws IOException {
+		SequenceFileUploadSession session = getSession(sessionId, owner);
+		if (!session.getSampleId().equals(sampleId)) {
+			throw new EntityNotFoundException("No upload with id [" + sessionId + "] for sample " + sampleId);
+		}
+		if (offset < 0 || offset >= session.getSize()) {
+			throw new IllegalArgumentException(
+					"Offset " + offset + " is outside of the file (" + session.getSize() + " bytes)");
+		}
+		// reject data that can't fit before reading any of it
+		if (length > session.getSize() - offset) {
+			throw new IllegalArgumentException(
+					length + " bytes at offset " + offset + " run past the end of the file (" + session.getSize()
+							+ " bytes)");
+		}
+		long end = length >= 0 ? offset + length : session.getSize();
+
+		long position = offset;
+		try (FileChannel channel = FileChannel.open(dataFile(session), StandardOpenOption.WRITE)) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = data.read(buffer)) != -1) {
+				if (position + read > end) {
+					throw new IllegalArgumentException(
+							"Data at offset " + offset + " runs past the end of the file (" + session.getSize()
+									+ " bytes) or the declared length (" + length + " bytes)");
+				}
+				ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+				while (bytes.hasRemaining()) {
+					position += channel.write(bytes, position);
+				}
+			}
+		}
+
+		// the session file is replaced on every write, so the lock is taken on a
+		// separate file that stays in place
+		synchronized (lock(sessionId)) {
+			try (FileChannel lockChannel = FileChannel.open(sessionDirectory(sessionId).resolve(LOCK_FILE),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE); FileLock fileLock = lockChannel.lock()) {
+				// re-read the session in case other chunks were received meanwhile
+				session = getSession(sessionId, owner);
+				session.addReceived(offset, position);
+				writeSession(session);
+			} catch (NoSuchFileException e) {
+				throw new EntityNotFoundException("No upload with id [" + sessionId + "]");
+			}
+		}
+		logger.trace("Received bytes " + offset + "-" + position + " of upload [" + sessionId + "]");
+		return session;
+	}
+
+	/**
+	 * Check that the whole file was received and that it matches the expected
+	 * sha256. The returned file stays in the upload directory until it is
+	 * saved with a {@link SequenceFile}, then {@link #removeSession} should be
+	 * called.
+	 *
+	 * @param sessionId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user completing the upload
+	 * @param sha256
+	 *            the expected sha256 of the file, or null to use the sha256
+	 *            sent when the upload was created
+	 * @return a {@link SequenceFile} for the uploaded file, with its sha256
+	 *         set
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public SequenceFile completeSession(String sessionId, String owner, String sha256) throws IOException {
+		SequenceFileUploadSession session = getSession(sessionId, owner);
+		if (!session.isComplete()) {
+			throw new IllegalArgumentException("Upload [" + sessionId + "] is incomplete, received "
+					+ session.getBytesReceived() + " of " + session.getSize() + " bytes");
+		}
+		checkSha256(sha256);
+		String expected = sha256 != null ? sha256.toLowerCase() : session.getSha256();
+		if (expected == null) {
+			throw new IllegalArgumentException("A sha256 is required to complete upload [" + sessionId + "]");
+		}
+
+		Path file = dataFile(session);
+		MessageDigest digest = DigestUtils.getSha256Digest();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		String actual = Hex.encodeHexString(digest.digest());
+		if (!actual.equals(expected)) {
+			throw new IllegalArgumentException(
+					"The sha256 of upload [" + sessionId + "] is " + actual + ", expected " + expected);
+		}
+
+		SequenceFile sequenceFile = new SequenceFile(file);
+		sequenceFile.setUploadSha256(actual);
+		return sequenceFile;
+	}
+
+	/**
+	 * Delete an upload and any data that was received
+	 *
+	 * @param sessionId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user deleting the upload
+	 */
+	public void removeSession(String sessionId, String owner) {
+		getSession(sessionId, owner);
+		deleteSessionDirectory(sessionDirectory(sessionId));
+		locks.remove(sessionId);
+	}
+
+	/**
+	 * Delete uploads that were created longer ago than the configured expiry
+	 * and haven't received any data since.
+	 *
+	 * @return the number of uploads that were deleted
+	 */
+	public int removeExpiredSessions() {
+		if (!Files.isDirectory(uploadDirectory)) {
+			return 0;
+		}
+
+		Instant cutoff = Instant.now().minus(expiry);
+		int removed = 0;
+		try (DirectoryStream<Path> sessions = Files.newDirectoryStream(uploadDirectory)) {
+			for (Path directory : sessions) {
+				Path sessionFile = directory.resolve(SESSION_FILE);
+				try {
+					Path lastActivity = Files.exists(sessionFile) ? sessionFile : directory;
+					if (Files.getLastModifiedTime(lastActivity).toInstant().isBefore(cutoff)) {
+						logger.debug("Removing expired upload [" + directory.getFileName() + "]");
+						deleteSessionDirectory(directory);
+						locks.remove(directory.getFileName().toString());
+						removed++;
+					}
+				} catch (IOException e) {
+					logger.warn("Could not check upload [" + directory + "] for expiry", e);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Could not list uploads in [" + uploadDirectory + "]", e);
+		}
+		return removed;
+	}
+
+	private Object lock(String sessionId) {
+		return locks.computeIfAbsent(sessionId, k -> new Object());
+	}
+
+	private Path sessionDirectory(String sessionId) {
+		return uploadDirectory.resolve(sessionId);
+	}
+
+	private Path dataFile(SequenceFileUploadSession session) {
+		return sessionDirectory(session.getId()).resolve(session.getFileName());
+	}
+
+	/**
+	 * Write the session next to the upload. The session is written to a
+	 * temporary file first so that a crash can't leave a partial session.
+	 */
+	private void writeSession(SequenceFileUploadSession session) {
+		Path directory = sessionDirectory(session.getId());
+		try {
+			Path temp = Files.createTempFile(directory, SESSION_FILE, null);
+			objectMapper.writeValue(temp.toFile(), session);
+			Files.move(temp, directory.resolve(SESSION_FILE), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new StorageException("Could not save upload [" + session.getId() + "]", e);
+		}
+	}
+
+	private static void deleteSessionDirectory(Path directory) {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(f -> {
+				try {
+					Files.deleteIfExists(f);
+				} catch (IOException e) {
+					logger.warn("Could not delete [" + f + "]", e);
+				}
+			});
+		} catch (NoSuchFileException e) {
+			logger.trace("Upload [" + directory + "] was already removed");
+		} catch (IOException e) {
+			logger.warn("Could not delete upload [" + directory + "]", e);
+		}
+	}
+
+	private static void checkSha256(String sha256) {
+		if (sha256 != null && !SHA256.matcher(sha256).matches()) {
+			throw new IllegalArgumentException("Invalid sha256 [" + sha256 + "]");
+		}
+	}
+}
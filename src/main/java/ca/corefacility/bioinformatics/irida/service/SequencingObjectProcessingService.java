@@ -9,14 +9,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.lang.management.ManagementFactory;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Service used to run a {@link FileProcessingChain} on incoming {@link SequencingObject}s.
@@ -33,6 +35,9 @@ public class SequencingObjectProcessingService {
 
 	private final String machineString;
 
+	// ids of objects created since the last processing run
+	private final Queue<Long> newObjects = new ConcurrentLinkedQueue<>();
+
 	@Autowired
 	public SequencingObjectProcessingService(SequencingObjectRepository sequencingObjectRepository,
 			@Qualifier("fileProcessingChainExecutor") ThreadPoolTaskExecutor executor,
@@ -45,7 +50,18 @@ public class SequencingObjectProcessingService {
 	}
 
 	/**
-	 * Process new {@link SequencingObject}s uploaded and find new sequences to process next time around
+	 * Add a newly created {@link SequencingObject} to the queue of objects to
+	 * claim on the next processing run. The object may still be claimed by
+	 * another processor first.
+	 *
+	 * @param sequencingObjectId the id of the new {@link SequencingObject}
+	 */
+	public void enqueue(Long sequencingObjectId) {
+		newObjects.add(sequencingObjectId);
+	}
+
+	/**
+	 * Process {@link SequencingObject}s that have been queued or uploaded since the last run
 	 */
 	public synchronized void runProcessingJob() {
 		processFiles();
@@ -54,7 +70,9 @@ public class SequencingObjectProcessingService {
 	}
 
 	/**
-	 * Find new {@link SequencingObject}s to process and mark that this process is going to handle them
+	 * Claim new {@link SequencingObject}s to process and launch the file processing chain for them. Objects announced
+	 * by {@link #enqueue(Long)} are claimed first, then any remaining queue space is filled with a batch of
+	 * unprocessed objects.
 	 */
 	public synchronized void findFilesToProcess() {
 		//check our queue space
@@ -62,32 +80,42 @@ public class SequencingObjectProcessingService {
 
 		logger.trace("Processor " + machineString + " + has queuespace: " + queueSpace);
 
-		//check for any unprocessed files
-		List<SequencingObject> toProcess = sequencingObjectRepository
-				.getSequencingObjectsWithProcessingState(SequencingObject.ProcessingState.UNPROCESSED);
-
-		// individually loop through and mark the ones we're going to process.  Looping individually so 2 processes are less likely to write at the same time.
-		Iterator<SequencingObject> iterator = toProcess.iterator();
-
-		while (queueSpace > 0 && iterator.hasNext()) {
-			SequencingObject sequencingObject = iterator.next();
-
-			logger.trace("File processor " + machineString + " is processing file " + sequencingObject.getId());
-
+		// claim the objects we've been told about individually
+		Long sequencingObjectId;
+		while (queueSpace > 0 && (sequencingObjectId = newObjects.poll()) != null) {
 			try {
-				sequencingObjectRepository.markFileProcessor(sequencingObject.getId(), machineString,
-						SequencingObject.ProcessingState.QUEUED);
-
-				queueSpace--;
+				if (sequencingObjectRepository.markFileProcessor(sequencingObjectId, machineString,
+						SequencingObject.ProcessingState.PROCESSING) > 0) {
+					launch(sequencingObjectId);
+					queueSpace--;
+				}
 			} catch (CannotAcquireLockException ex) {
 				//If we can't get the lock, another processor is trying to pick up this file.  Let them have it.
-				logger.debug("Couldn't get transaction lock to mark file " + sequencingObject.getId());
+				logger.debug("Couldn't get transaction lock to mark file " + sequencingObjectId);
 			}
 		}
+
+		if (queueSpace <= 0) {
+			return;
+		}
+
+		// fill the rest of the queue with anything we weren't told about, like files uploaded to another server
+		List<Long> claimed;
+		try {
+			claimed = sequencingObjectRepository.claimUnprocessedSequencingObjects(machineString, queueSpace);
+		} catch (CannotAcquireLockException ex) {
+			logger.debug("Couldn't get transaction lock to claim unprocessed files");
+			return;
+		}
+
+		for (Long id : claimed) {
+			launch(id);
+		}
 	}
 
 	/**
-	 * Process {@link SequencingObject}s that have been locked for processing
+	 * Process {@link SequencingObject}s that have been locked for processing. Objects are no longer queued before
+	 * processing, but this picks up any left in the queued state for this processor.
 	 */
 	public synchronized void processFiles() {
 		//get sequences previously locked
@@ -95,15 +123,35 @@ public class SequencingObjectProcessingService {
 				.getSequencingObjectsWithProcessingStateAndProcessor(SequencingObject.ProcessingState.QUEUED,
 						machineString);
 
+		if (toProcess.isEmpty()) {
+			return;
+		}
+
 		//set their state to PROCESSING and update
 		toProcess.stream().forEach(s -> s.setProcessingState(SequencingObject.ProcessingState.PROCESSING));
 		sequencingObjectRepository.saveAll(toProcess);
 
 		//launch the file processing chain
 		for (SequencingObject sequencingObject : toProcess) {
-			fileProcessingChainExecutor.execute(
-					new SequenceFileProcessorLauncher(fileProcessingChain, sequencingObject.getId(),
-							SecurityContextHolder.getContext()));
+			launch(sequencingObject.getId());
+		}
+	}
+
+	/**
+	 * Launch the file processing chain for a {@link SequencingObject} claimed by this processor. If the executor won't
+	 * take it, the object is released so it can be claimed again.
+	 *
+	 * @param sequencingObjectId the id of the claimed {@link SequencingObject}
+	 */
+	private void launch(Long sequencingObjectId) {
+		logger.trace("File processor " + machineString + " is processing file " + sequencingObjectId);
+
+		try {
+			fileProcessingChainExecutor.execute(new SequenceFileProcessorLauncher(fileProcessingChain,
+					sequencingObjectId, SecurityContextHolder.getContext()));
+		} catch (TaskRejectedException e) {
+			logger.warn("File processing queue is full, releasing file " + sequencingObjectId);
+			sequencingObjectRepository.releaseSequencingObject(sequencingObjectId, machineString);
 		}
 	}
 }
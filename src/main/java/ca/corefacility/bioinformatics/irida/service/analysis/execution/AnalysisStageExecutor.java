@@ -0,0 +1,172 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.execution;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutor;
+import org.springframework.security.core.context.SecurityContext;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded thread pool for one stage of running {@link AnalysisSubmission}s
+ * (preparing, executing, transferring results or post-processing). Records how
+ * many submissions are waiting for the stage and histograms of how long they
+ * waited and how long the stage took, which are exported over JMX when
+ * <code>spring.jmx.enabled=true</code>.
+ */
+@ManagedResource(description = "Thread pool for a stage of running analyses")
+public class AnalysisStageExecutor implements Executor {
+
+	/**
+	 * Upper bounds of the latency histogram buckets, in seconds. The last
+	 * bucket counts everything longer.
+	 */
+	private static final long[] BUCKET_SECONDS = { 1, 5, 15, 60, 300, 900, 3600 };
+
+	private final String stage;
+	private final ThreadPoolExecutor threadPool;
+	private final Executor delegate;
+
+	private final AtomicLongArray waitHistogram = new AtomicLongArray(BUCKET_SECONDS.length + 1);
+	private final AtomicLongArray runHistogram = new AtomicLongArray(BUCKET_SECONDS.length + 1);
+
+	/**
+	 * Builds a new {@link AnalysisStageExecutor}.
+	 *
+	 * @param stage           The name of the stage, for logging and monitoring.
+	 * @param threads         The number of submissions the stage works on at once.
+	 * @param securityContext The {@link SecurityContext} the stage runs with.
+	 */
+	public AnalysisStageExecutor(String stage, int threads, SecurityContext securityContext) {
+		checkArgument(threads > 0, "threads for analysis stage " + stage + " must be > 0");
+		this.stage = stage;
+		this.threadPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>());
+		this.delegate = new DelegatingSecurityContextExecutor(threadPool, securityContext);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(Runnable task) {
+		long queued = System.nanoTime();
+		delegate.execute(() -> {
+			long started = System.nanoTime();
+			record(waitHistogram, started - queued);
+			try {
+				task.run();
+			} finally {
+				record(runHistogram, System.nanoTime() - started);
+			}
+		});
+	}
+
+	/**
+	 * Stops the stage, finishing submissions already handed to it.
+	 */
+	public void shutdown() {
+		threadPool.shutdown();
+	}
+
+	/**
+	 * Get the name of the stage.
+	 *
+	 * @return the stage name
+	 */
+	@ManagedAttribute(description = "Name of the stage")
+	public String getStage() {
+		return stage;
+	}
+
+	/**
+	 * Get the number of submissions waiting for a thread in this stage.
+	 *
+	 * @return the queue depth
+	 */
+	@ManagedAttribute(description = "Submissions waiting for the stage")
+	public int getQueueDepth() {
+		return threadPool.getQueue()
+				.size();
+	}
+
+	/**
+	 * Get the number of submissions this stage is working on.
+	 *
+	 * @return the number of active submissions
+	 */
+	@ManagedAttribute(description = "Submissions being worked on by the stage")
+	public int getActiveCount() {
+		return threadPool.getActiveCount();
+	}
+
+	/**
+	 * Get the number of submissions this stage has finished.
+	 *
+	 * @return the number of completed submissions
+	 */
+	@ManagedAttribute(description = "Submissions the stage has finished")
+	public long getCompletedCount() {
+		return threadPool.getCompletedTaskCount();
+	}
+
+	/**
+	 * Get a histogram of how long submissions waited for a thread in this
+	 * stage.
+	 *
+	 * @return the number of submissions in each bucket, keyed by the upper
+	 *         bound of the bucket
+	 */
+	@ManagedAttribute(description = "Histogram of time spent waiting for the stage")
+	public Map<String, Long> getWaitHistogram() {
+		return toMap(waitHistogram);
+	}
+
+	/**
+	 * Get a histogram of how long this stage took for each submission.
+	 *
+	 * @return the number of submissions in each bucket, keyed by the upper
+	 *         bound of the bucket
+	 */
+	@ManagedAttribute(description = "Histogram of time spent in the stage")
+	public Map<String, Long> getRunHistogram() {
+		return toMap(runHistogram);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "AnalysisStageExecutor [stage=" + stage + ", queueDepth=" + getQueueDepth() + ", active="
+				+ getActiveCount() + ", completed=" + getCompletedCount() + "]";
+	}
+
+	private static void record(AtomicLongArray histogram, long nanos) {
+		long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+		int bucket = 0;
+		while (bucket < BUCKET_SECONDS.length && seconds >= BUCKET_SECONDS[bucket]) {
+			bucket++;
+		}
+		histogram.incrementAndGet(bucket);
+	}
+
+	private static Map<String, Long> toMap(AtomicLongArray histogram) {
+		Map<String, Long> buckets = new LinkedHashMap<>();
+		for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+			buckets.put("<" + BUCKET_SECONDS[i] + "s", histogram.get(i));
+		}
+		buckets.put(">=" + BUCKET_SECONDS[BUCKET_SECONDS.length - 1] + "s", histogram.get(BUCKET_SECONDS.length));
+		return buckets;
+	}
+}
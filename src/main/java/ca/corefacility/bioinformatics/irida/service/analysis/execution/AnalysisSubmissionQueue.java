@@ -0,0 +1,219 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission.Priority;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary;
+import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
+
+/**
+ * Decides which {@link AnalysisState#NEW} {@link AnalysisSubmission}s are
+ * prepared next. Each user has a queue of analyses at each
+ * {@link Priority}, oldest first, and places are handed out one at a time to
+ * the queue with the largest share: the weight of its priority, growing the
+ * longer its oldest analysis has waited, divided by one more than the number
+ * of analyses the user already has running or placed ahead. A user who
+ * submits a large batch of analyses takes turns with everyone else instead of
+ * holding them up, and low priority analyses are run eventually.
+ * <p>
+ * Only the number of queued analyses for each user and priority, and the
+ * analyses that are placed, are loaded from the database.
+ */
+@Component
+public class AnalysisSubmissionQueue {
+	private static final Logger logger = LoggerFactory.getLogger(AnalysisSubmissionQueue.class);
+
+	public static final int DEFAULT_LOW_WEIGHT = 1;
+	public static final int DEFAULT_MEDIUM_WEIGHT = 2;
+	public static final int DEFAULT_HIGH_WEIGHT = 4;
+	public static final long DEFAULT_AGING_MINUTES = 60;
+
+	private final AnalysisSubmissionRepository analysisSubmissionRepository;
+	private final Map<Priority, Integer> priorityWeights = new EnumMap<>(Priority.class);
+	private final long agingMillis;
+
+	/**
+	 * Builds a new {@link AnalysisSubmissionQueue} with the default weights.
+	 *
+	 * @param analysisSubmissionRepository A repository for {@link AnalysisSubmission}s.
+	 */
+	public AnalysisSubmissionQueue(AnalysisSubmissionRepository analysisSubmissionRepository) {
+		this(analysisSubmissionRepository, DEFAULT_LOW_WEIGHT, DEFAULT_MEDIUM_WEIGHT, DEFAULT_HIGH_WEIGHT,
+				DEFAULT_AGING_MINUTES);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisSubmissionQueue}.
+	 *
+	 * @param analysisSubmissionRepository A repository for {@link AnalysisSubmission}s.
+	 * @param lowWeight                    The share given to {@link Priority#LOW} analyses.
+	 * @param mediumWeight                 The share given to {@link Priority#MEDIUM} analyses.
+	 * @param highWeight                   The share given to {@link Priority#HIGH} analyses.
+	 * @param agingMinutes                 How long (in minutes) it takes for the share of a waiting analysis to
+	 *                                     grow by its weight, or 0 to not grow it.
+	 */
+	@Autowired
+	public AnalysisSubmissionQueue(AnalysisSubmissionRepository analysisSubmissionRepository,
+			@Value("${irida.workflow.analysis.queue.weight.low:1}") int lowWeight,
+			@Value("${irida.workflow.analysis.queue.weight.medium:2}") int mediumWeight,
+			@Value("${irida.workflow.analysis.queue.weight.high:4}") int highWeight,
+			@Value("${irida.workflow.analysis.queue.aging:60}") long agingMinutes) {
+		this.analysisSubmissionRepository = analysisSubmissionRepository;
+		this.priorityWeights.put(Priority.LOW, lowWeight);
+		this.priorityWeights.put(Priority.MEDIUM, mediumWeight);
+		this.priorityWeights.put(Priority.HIGH, highWeight);
+		this.agingMillis = TimeUnit.MINUTES.toMillis(agingMinutes);
+	}
+
+	/**
+	 * Get the queued {@link AnalysisSubmission}s that should be prepared
+	 * next, in the order they should be prepared.
+	 *
+	 * @param count The maximum number of analyses to get.
+	 * @return The next analyses to prepare.
+	 */
+	public List<AnalysisSubmission> next(int count) {
+		if (count <= 0) {
+			return Collections.emptyList();
+		}
+
+		List<SubmitterQueueSummary> queued = analysisSubmissionRepository.summarizeBySubmitterAndPriority(
+				Lists.newArrayList(AnalysisState.NEW));
+		if (queued.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Map<Long, Long> runningBySubmitter = new HashMap<>();
+		for (SubmitterQueueSummary running : analysisSubmissionRepository.summarizeBySubmitterAndPriority(
+				AnalysisState.getRunningStates())) {
+			runningBySubmitter.merge(running.getSubmitterId(), running.getCount(), Long::sum);
+		}
+
+		List<SubmitterQueue> placed = place(queued, runningBySubmitter, count, System.currentTimeMillis());
+
+		// load each queue's share of the places in one query, then put them in order
+		Map<SubmitterQueue, Iterator<AnalysisSubmission>> loaded = new HashMap<>();
+		for (SubmitterQueue queue : placed) {
+			loaded.computeIfAbsent(queue,
+					q -> analysisSubmissionRepository.findOldestBySubmitterAndPriority(AnalysisState.NEW,
+							q.summary.getSubmitterId(), q.summary.getPriority(), PageRequest.of(0, q.placed))
+							.iterator());
+		}
+
+		List<AnalysisSubmission> next = new ArrayList<>(placed.size());
+		for (SubmitterQueue queue : placed) {
+			Iterator<AnalysisSubmission> submissions = loaded.get(queue);
+			// the queue may have shrunk since it was counted
+			if (submissions.hasNext()) {
+				next.add(submissions.next());
+			}
+		}
+
+		logger.trace("Next " + next.size() + " of " + queued.size() + " queues: " + next);
+		return next;
+	}
+
+	/**
+	 * Hand out places to the queues with the largest share.
+	 *
+	 * @param queued             The queues of analyses for each user and priority.
+	 * @param runningBySubmitter The number of running analyses for each user.
+	 * @param count              The number of places to hand out.
+	 * @param now                The current time in milliseconds.
+	 * @return The queue given each place, in order.
+	 */
+	private List<SubmitterQueue> place(List<SubmitterQueueSummary> queued, Map<Long, Long> runningBySubmitter,
+			int count, long now) {
+		List<SubmitterQueue> queues = new ArrayList<>(queued.size());
+		for (SubmitterQueueSummary summary : queued) {
+			queues.add(new SubmitterQueue(summary, agedWeight(summary, now)));
+		}
+
+		Map<Long, Long> placedBySubmitter = new HashMap<>();
+		List<SubmitterQueue> placed = new ArrayList<>(count);
+		while (placed.size() < count) {
+			SubmitterQueue best = null;
+			double bestShare = 0;
+			for (SubmitterQueue queue : queues) {
+				if (queue.placed >= queue.summary.getCount()) {
+					continue;
+				}
+				Long submitterId = queue.summary.getSubmitterId();
+				double share = queue.weight / (1 + runningBySubmitter.getOrDefault(submitterId, 0L)
+						+ placedBySubmitter.getOrDefault(submitterId, 0L));
+				if (best == null || share > bestShare || (share == bestShare && isAhead(queue, best))) {
+					best = queue;
+					bestShare = share;
+				}
+			}
+			if (best == null) {
+				break;
+			}
+
+			best.placed++;
+			placedBySubmitter.merge(best.summary.getSubmitterId(), 1L, Long::sum);
+			placed.add(best);
+		}
+		return placed;
+	}
+
+	private double agedWeight(SubmitterQueueSummary summary, long now) {
+		double weight = priorityWeights.getOrDefault(summary.getPriority(), DEFAULT_MEDIUM_WEIGHT);
+		if (agingMillis > 0 && summary.getOldestCreatedDate() != null) {
+			long waited = Math.max(0, now - summary.getOldestCreatedDate()
+					.getTime());
+			weight *= 1 + (double) waited / agingMillis;
+		}
+		return weight;
+	}
+
+	/**
+	 * Break a tie between queues with the same share: higher priority first,
+	 * then whichever has waited longest.
+	 */
+	private static boolean isAhead(SubmitterQueue queue, SubmitterQueue other) {
+		int priority = queue.summary.getPriority()
+				.compareTo(other.summary.getPriority());
+		if (priority != 0) {
+			return priority > 0;
+		}
+		if (queue.summary.getOldestCreatedDate() == null || other.summary.getOldestCreatedDate() == null) {
+			return false;
+		}
+		return queue.summary.getOldestCreatedDate()
+				.before(other.summary.getOldestCreatedDate());
+	}
+
+	/**
+	 * The analyses a user has queued at a priority, and how many of them have
+	 * been given a place.
+	 */
+	private static class SubmitterQueue {
+		private final SubmitterQueueSummary summary;
+		private final double weight;
+		private int placed;
+
+		private SubmitterQueue(SubmitterQueueSummary summary, double weight) {
+			this.summary = summary;
+			this.weight = weight;
+		}
+	}
+}
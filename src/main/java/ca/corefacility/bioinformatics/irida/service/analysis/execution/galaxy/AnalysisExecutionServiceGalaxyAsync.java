@@ -1,5 +1,6 @@
 package ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy;
 
+import ca.corefacility.bioinformatics.irida.events.AnalysisStageCompletedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.*;
 import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
 import ca.corefacility.bioinformatics.irida.model.workflow.IridaWorkflow;
@@ -18,6 +19,7 @@ import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsServi
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,10 +32,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Service for executing {@link AnalysisSubmission} stages within a Galaxy
- * execution manager asynchronously.
+ * execution manager asynchronously. Each stage runs on its own thread pool so
+ * that a backlog in one stage doesn't hold up the others.
  * 
  */
-@Async("analysisTaskExecutor")
 public class AnalysisExecutionServiceGalaxyAsync {
 
 	private static final Logger logger = LoggerFactory.getLogger(AnalysisExecutionServiceGalaxyAsync.class);
@@ -44,6 +46,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	private final GalaxyWorkflowService galaxyWorkflowService;
 	private final IridaWorkflowsService iridaWorkflowsService;
 	private final AnalysisSubmissionSampleProcessor analysisSubmissionSampleProcessor;
+	private final ApplicationEventPublisher eventPublisher;
 
 	/**
 	 * Builds a new {@link AnalysisExecutionServiceGalaxyAsync} with the given
@@ -62,18 +65,22 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	 * @param analysisSubmissionSampleService
 	 *            A service to updating samples associated with a submission
 	 *            with the analysis results.
+	 * @param eventPublisher
+	 *            Publisher for announcing when a submission finishes a stage.
 	 */
 	@Autowired
 	public AnalysisExecutionServiceGalaxyAsync(AnalysisSubmissionService analysisSubmissionService,
 			AnalysisService analysisService, GalaxyWorkflowService galaxyWorkflowService,
 			AnalysisWorkspaceServiceGalaxy workspaceService, IridaWorkflowsService iridaWorkflowsService,
-			AnalysisSubmissionSampleProcessor analysisSubmissionSampleService) {
+			AnalysisSubmissionSampleProcessor analysisSubmissionSampleService,
+			ApplicationEventPublisher eventPublisher) {
 		this.analysisSubmissionService = analysisSubmissionService;
 		this.analysisService = analysisService;
 		this.galaxyWorkflowService = galaxyWorkflowService;
 		this.workspaceService = workspaceService;
 		this.iridaWorkflowsService = iridaWorkflowsService;
 		this.analysisSubmissionSampleProcessor = analysisSubmissionSampleService;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -91,6 +98,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	 * @throws ExecutionManagerException
 	 *             If there was an issue preparing a workspace for the workflow.
 	 */
+	@Async("analysisPrepareExecutor")
 	@Transactional
 	public Future<AnalysisSubmission> prepareSubmission(final AnalysisSubmission analysisSubmission)
 			throws IridaWorkflowNotFoundException, IOException, ExecutionManagerException {
@@ -116,6 +124,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 		analysisSubmission.setRemoteWorkflowId(workflowId);
 		analysisSubmission.setRemoteAnalysisId(analysisId);
 		AnalysisSubmission analysisPrepared = analysisSubmissionService.update(analysisSubmission);
+		publishStageCompleted(analysisPrepared);
 
 		return new AsyncResult<>(analysisPrepared);
 	}
@@ -134,6 +143,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	 * @throws IridaWorkflowException If there was an issue with the IRIDA workflow.
 	 * @throws IOException If there was an error reading some of the input files.
 	 */
+	@Async("analysisExecuteExecutor")
 	@RunAsUser("#analysisSubmission.getSubmitter()")
 	public Future<AnalysisSubmission> executeAnalysis(AnalysisSubmission analysisSubmission)
 			throws ExecutionManagerException, IridaWorkflowException, IOException {
@@ -177,6 +187,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	 * @throws IridaWorkflowAnalysisTypeException
 	 *             If there was an issue building an {@link Analysis} object.
 	 */
+	@Async("analysisTransferExecutor")
 	@Transactional
 	public Future<AnalysisSubmission> transferAnalysisResults(AnalysisSubmission submittedAnalysis)
 			throws ExecutionManagerException, IOException, IridaWorkflowNotFoundException,
@@ -187,26 +198,39 @@ public class AnalysisExecutionServiceGalaxyAsync {
 			throw new EntityNotFoundException("Could not find analysis submission for " + submittedAnalysis);
 		}
 
-		logger.debug("Getting results for " + submittedAnalysis);
-		Analysis analysisResults = workspaceService.getAnalysisResults(submittedAnalysis);
+		AnalysisSubmission completedSubmission;
+		try {
+			logger.debug("Getting results for " + submittedAnalysis);
+			Analysis analysisResults = workspaceService.getAnalysisResults(submittedAnalysis);
 
-		logger.trace("Saving results for " + submittedAnalysis);
-		Analysis savedAnalysis = analysisService.create(analysisResults);
+			logger.trace("Saving results for " + submittedAnalysis);
+			Analysis savedAnalysis = analysisService.create(analysisResults);
 
-		// if samples should be updated, set to TRANSFERRED.  Otherwise just complete.
-		if (submittedAnalysis.getUpdateSamples()) {
-			submittedAnalysis.setAnalysisState(AnalysisState.TRANSFERRED);
-		} else {
-			submittedAnalysis.setAnalysisState(AnalysisState.COMPLETED);
-		}
+			// if samples should be updated, set to TRANSFERRED.  Otherwise just complete.
+			if (submittedAnalysis.getUpdateSamples()) {
+				submittedAnalysis.setAnalysisState(AnalysisState.TRANSFERRED);
+			} else {
+				submittedAnalysis.setAnalysisState(AnalysisState.COMPLETED);
+			}
 
-		try {
-			submittedAnalysis.setAnalysis(savedAnalysis);
-		} catch (AnalysisAlreadySetException e) {
-			throw new ExecutionManagerException("Analysis already set", e);
+			try {
+				submittedAnalysis.setAnalysis(savedAnalysis);
+			} catch (AnalysisAlreadySetException e) {
+				throw new ExecutionManagerException("Analysis already set", e);
+			}
+
+			completedSubmission = analysisSubmissionService.update(submittedAnalysis);
+		} finally {
+			// saved results have been moved out of the staging directory, and
+			// a failed transfer switches the submission to an error state
+			try {
+				workspaceService.cleanupAnalysisResults(submittedAnalysis);
+			} catch (IOException e) {
+				logger.warn("Could not remove downloaded results for " + submittedAnalysis, e);
+			}
 		}
 
-		AnalysisSubmission completedSubmission = analysisSubmissionService.update(submittedAnalysis);
+		publishStageCompleted(completedSubmission);
 
 		return new AsyncResult<>(completedSubmission);
 	}
@@ -217,6 +241,7 @@ public class AnalysisExecutionServiceGalaxyAsync {
 	 * @param analysisSubmission the {@link AnalysisSubmission} to process
 	 * @return a Future {@link AnalysisSubmission}
 	 */
+	@Async("analysisPostProcessExecutor")
 	@Transactional
 	@RunAsUser("#analysisSubmission.getSubmitter()")
 	public Future<AnalysisSubmission> postProcessResults(AnalysisSubmission analysisSubmission) {
@@ -237,4 +262,15 @@ public class AnalysisExecutionServiceGalaxyAsync {
 
 		return new AsyncResult<>(analysisSubmission);
 	}
+
+	/**
+	 * Announces that an {@link AnalysisSubmission} has finished a stage and is
+	 * ready for the next one.
+	 *
+	 * @param analysisSubmission the submission that finished a stage
+	 */
+	private void publishStageCompleted(AnalysisSubmission analysisSubmission) {
+		eventPublisher.publishEvent(
+				new AnalysisStageCompletedEvent(analysisSubmission.getId(), analysisSubmission.getAnalysisState()));
+	}
 }
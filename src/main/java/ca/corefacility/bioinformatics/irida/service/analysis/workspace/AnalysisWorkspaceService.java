@@ -67,6 +67,17 @@ public interface AnalysisWorkspaceService {
 			throws ExecutionManagerException, IridaWorkflowNotFoundException, IOException,
 			IridaWorkflowAnalysisTypeException;
 
+	/**
+	 * Removes anything left over from downloading the results of an
+	 * {@link AnalysisSubmission}, once the results have been saved.
+	 * 
+	 * @param analysisSubmission
+	 *            The {@link AnalysisSubmission} whose results were saved.
+	 * @throws IOException
+	 *             If the downloaded files could not be removed.
+	 */
+	public void cleanupAnalysisResults(AnalysisSubmission analysisSubmission) throws IOException;
+
 	/**
 	 * Checks if all output files from a given AnalysisSubmission are available on galaxy.
 	 *
@@ -0,0 +1,161 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisOutputFile;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+
+/**
+ * The directory that the output files of an {@link AnalysisSubmission} are
+ * downloaded into before they are saved as {@link AnalysisOutputFile}s. The
+ * directory is kept between attempts to transfer the results. Each file is
+ * recorded with its size and SHA-256 checksum once it has been completely
+ * downloaded, so a later attempt only downloads files that are missing or
+ * don't match, and can continue files that were partly downloaded.
+ */
+public class AnalysisOutputStaging {
+	private static final Logger logger = LoggerFactory.getLogger(AnalysisOutputStaging.class);
+
+	/**
+	 * The file listing the completely downloaded datasets, keyed by dataset
+	 * id.
+	 */
+	private static final String MANIFEST_FILE = ".transferred";
+	private static final String MANIFEST_SEPARATOR = ":";
+
+	private final Path directory;
+	private final Path manifestFile;
+	private final Properties manifest = new Properties();
+
+	private AnalysisOutputStaging(final Path directory) throws IOException {
+		this.directory = directory;
+		this.manifestFile = directory.resolve(MANIFEST_FILE);
+		if (Files.exists(manifestFile)) {
+			try (InputStream in = Files.newInputStream(manifestFile)) {
+				manifest.load(in);
+			}
+		}
+	}
+
+	/**
+	 * Opens the staging directory for the results of an analysis, creating it
+	 * if this is the first attempt to transfer them.
+	 *
+	 * @param stagingRoot      the directory holding the staging directories of
+	 *                         all analyses.
+	 * @param remoteAnalysisId the id of the analysis in Galaxy.
+	 * @return the staging directory for the analysis
+	 * @throws IOException if the directory could not be created or read.
+	 */
+	public static AnalysisOutputStaging open(final Path stagingRoot, final String remoteAnalysisId)
+			throws IOException {
+		Path directory = stagingRoot.resolve(remoteAnalysisId);
+		Files.createDirectories(directory);
+		return new AnalysisOutputStaging(directory);
+	}
+
+	/**
+	 * Get the staging directory.
+	 *
+	 * @return the directory
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Get the location in the staging directory for an output file.
+	 *
+	 * @param fileName the name of the output file.
+	 * @return the location of the file
+	 */
+	public Path resolve(final String fileName) {
+		return directory.resolve(fileName);
+	}
+
+	/**
+	 * Checks whether a dataset was completely downloaded to the given file by
+	 * an earlier attempt, and the file hasn't changed since. A file that has
+	 * changed is removed so it is downloaded again from the start.
+	 *
+	 * @param datasetId the id of the dataset in Galaxy.
+	 * @param file      the file the dataset was downloaded to.
+	 * @return true if the file doesn't need to be downloaded again.
+	 * @throws IOException if the file could not be read.
+	 */
+	public boolean isTransferred(final String datasetId, final Path file) throws IOException {
+		String recorded;
+		synchronized (manifest) {
+			recorded = manifest.getProperty(datasetId);
+		}
+		if (recorded == null || !Files.exists(file)) {
+			return false;
+		}
+		boolean matches = recorded.equals(describe(file));
+		if (!matches) {
+			logger.debug("Staged file " + file + " for dataset " + datasetId + " has changed, downloading again");
+			Files.delete(file);
+		}
+		return matches;
+	}
+
+	/**
+	 * Records that a dataset has been completely downloaded to the given file.
+	 *
+	 * @param datasetId the id of the dataset in Galaxy.
+	 * @param file      the file the dataset was downloaded to.
+	 * @throws IOException if the file could not be read or the record could
+	 *                     not be written.
+	 */
+	public void recordTransferred(final String datasetId, final Path file) throws IOException {
+		String description = describe(file);
+		synchronized (manifest) {
+			manifest.setProperty(datasetId, description);
+
+			// replace the manifest in one step so an interrupted write
+			// doesn't lose the earlier records
+			Path newManifest = Files.createTempFile(directory, MANIFEST_FILE, ".tmp");
+			try (OutputStream out = Files.newOutputStream(newManifest)) {
+				manifest.store(out, null);
+			}
+			Files.move(newManifest, manifestFile, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	/**
+	 * Deletes the staging directory and anything left in it, once the results
+	 * have been saved.
+	 *
+	 * @throws IOException if the directory could not be deleted.
+	 */
+	public void delete() throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	private static String describe(final Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return file.getFileName() + MANIFEST_SEPARATOR + Files.size(file) + MANIFEST_SEPARATOR
+					+ DigestUtils.sha256Hex(in);
+		}
+	}
+}
@@ -44,8 +44,6 @@ public class AnalysisProvenanceServiceGalaxy {
 	private static final String JSON_TEXT_ARRAY_INDICATOR = JsonToken.START_ARRAY.asString(); // "["
 	private static final String EMPTY_VALUE_PLACEHOLDER = null;
 	private static final ObjectMapper mapper = new ObjectMapper();
-	
-	private static final String COLLECTION = "dataset_collection";
 
 	private final GalaxyHistoriesService galaxyHistoriesService;
 	private final ToolsClient toolsClient;
@@ -86,51 +84,102 @@ public class AnalysisProvenanceServiceGalaxy {
 	public ToolExecution buildToolExecutionForOutputFile(final String remoteAnalysisId,
 			final String analysisOutputFilename) throws ExecutionManagerException {
 		final List<HistoryContents> historyContents = galaxyHistoriesService.showHistoryContents(remoteAnalysisId);
-		// group the history contents by name. The names that we're interested
-		// in starting from should match the filename of the output file.
-		final Map<String, List<HistoryContents>> historyContentsByName = historyContents.stream().
-				filter(content -> !COLLECTION.equals(content.getHistoryContentType())).
-				collect(Collectors.groupingBy(HistoryContents::getName));
+		return buildToolExecutionForOutputFile(new HistoryProvenanceCache(remoteAnalysisId, historyContents),
+				analysisOutputFilename);
+	}
 
-		final List<HistoryContents> currentContents = historyContentsByName.get(analysisOutputFilename);
+	/**
+	 * Build up a provenance report for a specific file that's attached to the
+	 * outputs of an analysis submission, reusing the history details already
+	 * loaded for other output files of the same submission.
+	 * 
+	 * @param history
+	 *            the history contents and any provenance already loaded for
+	 *            the submission history on the execution manager.
+	 * @param analysisOutputFilename
+	 *            the filename to build the report for. This should be the raw
+	 *            basename of the file (i.e., only the filename + extension
+	 *            part).
+	 * @return the complete report for the file.
+	 * @throws ExecutionManagerException
+	 *             if the history contents could not be shown for the specified
+	 *             file.
+	 */
+	public ToolExecution buildToolExecutionForOutputFile(final HistoryProvenanceCache history,
+			final String analysisOutputFilename) throws ExecutionManagerException {
+		// the names that we're interested in starting from should match the
+		// filename of the output file.
+		final List<HistoryContents> currentContents = history.getHistoryContentsNamed(analysisOutputFilename);
 		if (currentContents == null || currentContents.isEmpty() || currentContents.size() > 1) {
 			throw new ExecutionManagerException("Could not load a unique history contents for the specified filename ["
-					+ analysisOutputFilename + "] in history with id [" + remoteAnalysisId + "]");
+					+ analysisOutputFilename + "] in history with id [" + history.getHistoryId() + "]");
 		}
-		final HistoryContentsProvenance currentProvenance = galaxyHistoriesService.showProvenance(
-				remoteAnalysisId, currentContents.get(0).getId());
+		final HistoryContentsProvenance currentProvenance = showProvenance(history, currentContents.get(0).getId());
 
 		try {
-			final Tool toolDetails = toolsClient.showTool(currentProvenance.getToolId());
-	
-			return buildToolExecutionForHistoryStep(toolDetails, currentProvenance, remoteAnalysisId);
+			return buildToolExecutionForHistoryStep(currentProvenance, history, new HashSet<>());
 		} catch (final RuntimeException e) {
 			throw new ExecutionManagerException("Failed to build tool execution provenance.", e);
 		}
 	}
 
 	/**
-	 * Build up a complete *tree* of ToolExecution from Galaxy's history
+	 * Get the {@link ToolExecution} for a step in the history. Each Galaxy job
+	 * is only turned into a {@link ToolExecution} once per history, so a step
+	 * that feeds into several output files (or several later steps) is a
+	 * single node shared by all of them.
+	 * 
+	 * @param currentProvenance
+	 *            the provenance of the step.
+	 * @param history
+	 *            the Galaxy history we should use to extract tool execution
+	 *            information.
+	 * @param path
+	 *            the jobs that are being built by the caller, which must not be
+	 *            waited on.
+	 * @return the tool execution for the step and the steps before it.
+	 * @throws ExecutionManagerException
+	 *             if we could not get the history contents provenance or the
+	 *             tool details for the step or one of its predecessors.
+	 */
+	private ToolExecution buildToolExecutionForHistoryStep(final HistoryContentsProvenance currentProvenance,
+			final HistoryProvenanceCache history, final Set<String> path) throws ExecutionManagerException {
+		final String jobId = currentProvenance.getJobId();
+		if (jobId == null || path.contains(jobId)) {
+			return buildToolExecution(currentProvenance, history, path);
+		}
+		return history.getToolExecution(jobId, id -> {
+			path.add(id);
+			try {
+				return buildToolExecution(currentProvenance, history, path);
+			} finally {
+				path.remove(id);
+			}
+		});
+	}
+
+	/**
+	 * Build up a complete graph of ToolExecution from Galaxy's history
 	 * contents provenance objects. Recursively follows predecessors from the
 	 * current history.
 	 * 
-	 * @param toolDetails
-	 *            the details of the current tool to build up tool execution
-	 *            details for.
 	 * @param currentProvenance
-	 *            the provenance that corresponds to the tool details.
-	 * @param historyId
-	 *            the Galaxy ID we should use to extract tool execution
+	 *            the provenance to build up tool execution details for.
+	 * @param history
+	 *            the Galaxy history we should use to extract tool execution
 	 *            information.
-	 * @return the entire tree of ToolExecutions for the tool and its
+	 * @param path
+	 *            the jobs that are being built by the caller.
+	 * @return the entire graph of ToolExecutions for the tool and its
 	 *         provenance.
 	 * @throws ExecutionManagerException
 	 *             if we could not get the history contents provenance or the
 	 *             tool details for a predecessor of the current tool details or
 	 *             provenance.
 	 */
-	private ToolExecution buildToolExecutionForHistoryStep(final Tool toolDetails,
-			final HistoryContentsProvenance currentProvenance, final String historyId) throws ExecutionManagerException {
+	private ToolExecution buildToolExecution(final HistoryContentsProvenance currentProvenance,
+			final HistoryProvenanceCache history, final Set<String> path) throws ExecutionManagerException {
+		final Tool toolDetails = showTool(history, currentProvenance.getToolId());
 		final Map<String, Set<String>> predecessors = getPredecessors(currentProvenance);
 		final Map<String, Object> parameters = currentProvenance.getParameters();
 		// remove keys from parameters that are Galaxy-related (and thus
@@ -154,7 +203,7 @@ public class AnalysisProvenanceServiceGalaxy {
 		final String toolName = toolDetails.getName();
 		final String toolVersion = toolDetails.getVersion();
 		final String jobId = currentProvenance.getJobId();
-		final JobDetails jobDetails = jobsClient.showJob(jobId);
+		final JobDetails jobDetails = history.getJob(jobId, jobsClient::showJob);
 		final String commandLine = jobDetails.getCommandLine();
 		final Map<String, String> paramStrings = buildParamMap(paramValues);
 
@@ -162,17 +211,24 @@ public class AnalysisProvenanceServiceGalaxy {
 			// arbitrarily select one of the predecessors from the set, then
 			// recurse on that predecessor:
 			final String predecessor = predecessors.get(predecessorKey).iterator().next();
-			final HistoryContentsProvenance previousProvenance = galaxyHistoriesService.showProvenance(historyId,
-					predecessor);
-			final Tool previousToolDetails = toolsClient.showTool(previousProvenance.getToolId());
+			final HistoryContentsProvenance previousProvenance = showProvenance(history, predecessor);
 
-			final ToolExecution toolExecution = buildToolExecutionForHistoryStep(previousToolDetails,
-					previousProvenance, historyId);
-			prevSteps.add(toolExecution);
+			prevSteps.add(buildToolExecutionForHistoryStep(previousProvenance, history, path));
 		}
 		return new ToolExecution(prevSteps, toolName, toolVersion, jobId, paramStrings, commandLine);
 	}
 
+	private HistoryContentsProvenance showProvenance(final HistoryProvenanceCache history,
+			final String provenanceId) throws ExecutionManagerException {
+		return history.getProvenance(provenanceId,
+				id -> galaxyHistoriesService.showProvenance(history.getHistoryId(), id));
+	}
+
+	private Tool showTool(final HistoryProvenanceCache history, final String toolId)
+			throws ExecutionManagerException {
+		return history.getTool(toolId, toolsClient::showTool);
+	}
+
 	/**
 	 * Creates a key-value pair set of nodes that feed into the current workflow
 	 * node by inspecting the parameters supplied to the current node in
@@ -31,16 +31,21 @@ import com.github.jmchilton.blend4j.galaxy.beans.*;
 import com.github.jmchilton.blend4j.galaxy.beans.collection.response.CollectionResponse;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -70,6 +75,12 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 
 	private SequencingObjectService sequencingObjectService;
 
+	private ExecutorService outputDownloadExecutor;
+
+	private Path outputStagingDirectory;
+
+	private int transferAttempts;
+
 	/**
 	 * Builds a new {@link AnalysisWorkspaceServiceGalaxy} with the given
 	 * information.
@@ -91,6 +102,44 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 			AnalysisProvenanceServiceGalaxy analysisProvenanceServiceGalaxy,
 			AnalysisParameterServiceGalaxy analysisParameterServiceGalaxy,
 			SequencingObjectService sequencingObjectService) {
+		this(galaxyHistoriesService, galaxyWorkflowService, galaxyLibrariesService, iridaWorkflowsService,
+				analysisCollectionServiceGalaxy, analysisProvenanceServiceGalaxy, analysisParameterServiceGalaxy,
+				sequencingObjectService, MoreExecutors.newDirectExecutorService(),
+				Paths.get(System.getProperty("java.io.tmpdir"), "irida-analysis-output"), 1);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisWorkspaceServiceGalaxy} with the given
+	 * information, downloading the output files of an analysis on the given
+	 * {@link ExecutorService} into the given staging directory.
+	 *
+	 * @param galaxyHistoriesService          A GalaxyHistoriesService for interacting with Galaxy
+	 *                                        Histories.
+	 * @param galaxyWorkflowService           A GalaxyWorkflowService for interacting with Galaxy workflows.
+	 * @param galaxyLibrariesService          An object for building libraries in Galaxy.
+	 * @param iridaWorkflowsService           A service used for loading workflows from IRIDA.
+	 * @param analysisCollectionServiceGalaxy A service for constructing dataset collections of input files.
+	 * @param analysisProvenanceServiceGalaxy The service for provenance information.
+	 * @param analysisParameterServiceGalaxy  A service for setting up parameters in Galaxy.
+	 * @param sequencingObjectService         A service for reading {@link SequencingObject}s
+	 * @param outputDownloadExecutor          Downloads output files and builds their provenance. Its
+	 *                                        size limits how many files are downloaded from Galaxy at
+	 *                                        once.
+	 * @param outputStagingDirectory          The directory to download output files into before they are
+	 *                                        saved. Files are kept here between attempts to transfer the
+	 *                                        results of an analysis.
+	 * @param transferAttempts                How many times to try downloading the output files of an
+	 *                                        analysis before giving up.
+	 */
+	public AnalysisWorkspaceServiceGalaxy(GalaxyHistoriesService galaxyHistoriesService,
+			GalaxyWorkflowService galaxyWorkflowService, GalaxyLibrariesService galaxyLibrariesService,
+			IridaWorkflowsService iridaWorkflowsService,
+			AnalysisCollectionServiceGalaxy analysisCollectionServiceGalaxy,
+			AnalysisProvenanceServiceGalaxy analysisProvenanceServiceGalaxy,
+			AnalysisParameterServiceGalaxy analysisParameterServiceGalaxy,
+			SequencingObjectService sequencingObjectService, ExecutorService outputDownloadExecutor,
+			Path outputStagingDirectory, int transferAttempts) {
+		checkArgument(transferAttempts > 0, "transferAttempts=" + transferAttempts + " must be positive");
 		this.galaxyHistoriesService = galaxyHistoriesService;
 		this.galaxyWorkflowService = galaxyWorkflowService;
 		this.galaxyLibrariesService = galaxyLibrariesService;
@@ -99,6 +148,9 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 		this.analysisProvenanceServiceGalaxy = analysisProvenanceServiceGalaxy;
 		this.analysisParameterServiceGalaxy = analysisParameterServiceGalaxy;
 		this.sequencingObjectService = sequencingObjectService;
+		this.outputDownloadExecutor = outputDownloadExecutor;
+		this.outputStagingDirectory = outputStagingDirectory;
+		this.transferAttempts = transferAttempts;
 	}
 
 	/**
@@ -117,14 +169,16 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 	/**
 	 * Builds a new AnalysisOutputFile from the given file in Galaxy.
 	 * 
-	 * @param analysisId
-	 *            The id of the analysis performed in Galaxy.
+	 * @param history
+	 *            The history of the analysis performed in Galaxy, shared by
+	 *            all output files of the analysis.
 	 * @param labelPrefix
 	 *            The prefix to add to the label of this file.
 	 * @param dataset
 	 *            The dataset containing the data for the AnalysisOutputFile.
-	 * @param outputDirectory
-	 *            A directory to download the resulting output files.
+	 * @param staging
+	 *            The directory to download the resulting output files, which
+	 *            may hold the file from an earlier attempt.
 	 * @return An AnalysisOutputFile storing a local copy of the Galaxy file.
 	 * @throws IOException
 	 *             If there was an issue creating a local file.
@@ -134,14 +188,20 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 	 *             If there was an issue extracting tool execution provenance
 	 *             from Galaxy.
 	 */
-	private AnalysisOutputFile buildOutputFile(String analysisId, String labelPrefix, Dataset dataset,
-			Path outputDirectory) throws IOException, ExecutionManagerDownloadException, ExecutionManagerException {
+	private AnalysisOutputFile buildOutputFile(HistoryProvenanceCache history, String labelPrefix, Dataset dataset,
+			AnalysisOutputStaging staging)
+			throws IOException, ExecutionManagerDownloadException, ExecutionManagerException {
 		String datasetId = dataset.getId();
 		String fileName = dataset.getName();
 
-		Path outputFile = outputDirectory.resolve(fileName);
-		galaxyHistoriesService.downloadDatasetTo(analysisId, datasetId, outputFile);
-		final ToolExecution toolExecution = analysisProvenanceServiceGalaxy.buildToolExecutionForOutputFile(analysisId,
+		Path outputFile = staging.resolve(fileName);
+		if (staging.isTransferred(datasetId, outputFile)) {
+			logger.debug("Dataset " + datasetId + " was already downloaded to " + outputFile);
+		} else {
+			galaxyHistoriesService.downloadDatasetTo(history.getHistoryId(), dataset, outputFile);
+			staging.recordTransferred(datasetId, outputFile);
+		}
+		final ToolExecution toolExecution = analysisProvenanceServiceGalaxy.buildToolExecutionForOutputFile(history,
 				fileName);
 
 		AnalysisOutputFile analysisOutputFile = new AnalysisOutputFile(outputFile, labelPrefix, datasetId,
@@ -366,24 +426,83 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 		checkNotNull(analysisSubmission.getWorkflowId(), "workflowId is null");
 		checkNotNull(analysisSubmission.getRemoteWorkflowId(), "remoteWorkflowId is null");
 
-		Path outputDirectory = Files.createTempDirectory("analysis-output");
-		logger.trace("Created temporary directory " + outputDirectory + " for analysis output files");
-
 		IridaWorkflow iridaWorkflow = iridaWorkflowsService.getIridaWorkflow(analysisSubmission.getWorkflowId());
 		String analysisId = analysisSubmission.getRemoteAnalysisId();
 
+		AnalysisOutputStaging staging = AnalysisOutputStaging.open(outputStagingDirectory, analysisId);
+		logger.trace("Using staging directory " + staging.getDirectory() + " for analysis output files");
+
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return downloadAnalysisResults(analysisSubmission, iridaWorkflow, staging);
+			} catch (ExecutionManagerException | IOException | RuntimeException e) {
+				if (attempt >= transferAttempts || Thread.currentThread()
+						.isInterrupted()) {
+					// the submission is switched to an error state, nothing will use the files
+					try {
+						staging.delete();
+					} catch (IOException deleteException) {
+						e.addSuppressed(deleteException);
+					}
+					throw e;
+				}
+				// files downloaded by the failed attempt are kept
+				logger.warn("Attempt " + attempt + " of " + transferAttempts + " to download the results of "
+						+ analysisSubmission + " failed, trying again", e);
+			}
+		}
+	}
+
+	/**
+	 * Downloads the output files of an analysis into its staging directory
+	 * and builds the {@link Analysis} holding them.
+	 * 
+	 * @param analysisSubmission
+	 *            The submission whose results are downloaded.
+	 * @param iridaWorkflow
+	 *            The workflow the submission ran.
+	 * @param staging
+	 *            The directory to download the output files into, which may
+	 *            hold files from an earlier attempt.
+	 * @return The {@link Analysis} holding the downloaded output files.
+	 * @throws ExecutionManagerException
+	 *             If there was an issue downloading the files from Galaxy.
+	 * @throws IOException
+	 *             If there was an issue writing the local files.
+	 */
+	private Analysis downloadAnalysisResults(AnalysisSubmission analysisSubmission, IridaWorkflow iridaWorkflow,
+			AnalysisOutputStaging staging) throws ExecutionManagerException, IOException {
+		String analysisId = analysisSubmission.getRemoteAnalysisId();
+
 		Map<String, IridaWorkflowOutput> outputsMap = iridaWorkflow.getWorkflowDescription().getOutputsMap();
 
 		String labelPrefix = getLabelPrefix(analysisSubmission, iridaWorkflow);
 
-		Map<String, AnalysisOutputFile> analysisOutputFiles = Maps.newHashMap();
+		// load the history once and share it between the output files, most
+		// of them have steps in common
+		List<HistoryContents> historyContents = galaxyHistoriesService.showHistoryContents(analysisId);
+		HistoryProvenanceCache history = new HistoryProvenanceCache(analysisId, historyContents);
+
+		Map<String, Future<AnalysisOutputFile>> outputFutures = new LinkedHashMap<>();
 		for (String analysisOutputName : outputsMap.keySet()) {
 			String outputFileName = outputsMap.get(analysisOutputName).getFileName();
-			Dataset outputDataset = galaxyHistoriesService.getDatasetForFileInHistory(outputFileName, analysisId);
+			outputFutures.put(analysisOutputName, outputDownloadExecutor.submit(() -> {
+				Dataset outputDataset = galaxyHistoriesService.getDatasetForFileInHistory(outputFileName, analysisId,
+						historyContents);
+
+				return buildOutputFile(history, labelPrefix, outputDataset, staging);
+			}));
+		}
 
-			AnalysisOutputFile analysisOutput = buildOutputFile(analysisId, labelPrefix, outputDataset,
-					outputDirectory);
-			analysisOutputFiles.put(analysisOutputName, analysisOutput);
+		Map<String, AnalysisOutputFile> analysisOutputFiles = Maps.newHashMap();
+		try {
+			for (Map.Entry<String, Future<AnalysisOutputFile>> outputFuture : outputFutures.entrySet()) {
+				analysisOutputFiles.put(outputFuture.getKey(), getOutputFile(outputFuture.getValue()));
+			}
+		} finally {
+			// stop the other downloads if one of them failed
+			outputFutures.values()
+					.forEach(f -> f.cancel(true));
 		}
 
 		AnalysisType analysisType = iridaWorkflow.getWorkflowDescription().getAnalysisType();
@@ -391,6 +510,51 @@ public class AnalysisWorkspaceServiceGalaxy implements AnalysisWorkspaceService
 		return new Analysis(analysisId, analysisOutputFiles, analysisType);
 	}
 
+	/**
+	 * Waits for an output file to be downloaded from Galaxy.
+	 * 
+	 * @param outputFuture
+	 *            The download of the output file.
+	 * @return The downloaded output file.
+	 * @throws IOException
+	 *             If there was an issue creating the local file.
+	 * @throws ExecutionManagerException
+	 *             If there was an issue downloading the file or its
+	 *             provenance from Galaxy.
+	 */
+	private AnalysisOutputFile getOutputFile(Future<AnalysisOutputFile> outputFuture)
+			throws IOException, ExecutionManagerException {
+		try {
+			return outputFuture.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+					.interrupt();
+			throw new ExecutionManagerException("Interrupted while downloading analysis output files", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ExecutionManagerException) {
+				throw (ExecutionManagerException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new ExecutionManagerException("Failed to download analysis output file", cause);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void cleanupAnalysisResults(AnalysisSubmission analysisSubmission) throws IOException {
+		checkNotNull(analysisSubmission, "analysisSubmission is null");
+		checkNotNull(analysisSubmission.getRemoteAnalysisId(), "remoteAnalysisId is null");
+
+		AnalysisOutputStaging.open(outputStagingDirectory, analysisSubmission.getRemoteAnalysisId())
+				.delete();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,201 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.ToolExecution;
+
+import com.github.jmchilton.blend4j.galaxy.beans.HistoryContents;
+import com.github.jmchilton.blend4j.galaxy.beans.HistoryContentsProvenance;
+import com.github.jmchilton.blend4j.galaxy.beans.JobDetails;
+import com.github.jmchilton.blend4j.galaxy.beans.Tool;
+
+/**
+ * The details Galaxy reports about the steps of a single history, loaded the
+ * first time each step is asked for. One instance is shared by all of the
+ * output files of an analysis while its results are transferred, so a step
+ * that feeds into several outputs is only loaded from Galaxy once, and only
+ * one {@link ToolExecution} is built for it, which all of those outputs share.
+ * Safe to use from several threads; concurrent requests for the same step wait
+ * for a single load.
+ */
+public class HistoryProvenanceCache {
+
+	private static final String COLLECTION = "dataset_collection";
+
+	private final String historyId;
+	private final Map<String, List<HistoryContents>> historyContentsByName;
+
+	private final Map<String, HistoryContentsProvenance> provenance = new ConcurrentHashMap<>();
+	private final Map<String, Tool> tools = new ConcurrentHashMap<>();
+	private final Map<String, JobDetails> jobs = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<ToolExecution>> toolExecutions = new ConcurrentHashMap<>();
+
+	/**
+	 * Builds a new {@link HistoryProvenanceCache} for a history.
+	 *
+	 * @param historyId       the Galaxy id of the history.
+	 * @param historyContents the contents of the history.
+	 */
+	public HistoryProvenanceCache(final String historyId, final List<HistoryContents> historyContents) {
+		this.historyId = historyId;
+		this.historyContentsByName = historyContents.stream()
+				.filter(content -> !COLLECTION.equals(content.getHistoryContentType()))
+				.collect(Collectors.groupingBy(HistoryContents::getName));
+	}
+
+	/**
+	 * Get the Galaxy id of the history.
+	 *
+	 * @return the history id
+	 */
+	public String getHistoryId() {
+		return historyId;
+	}
+
+	/**
+	 * Get the datasets in the history with the given name, ignoring dataset
+	 * collections.
+	 *
+	 * @param name the name of the datasets
+	 * @return the matching history contents, or <code>null</code> if there are
+	 *         none
+	 */
+	List<HistoryContents> getHistoryContentsNamed(final String name) {
+		return historyContentsByName.get(name);
+	}
+
+	/**
+	 * Get the provenance of a step in the history, loading it if it hasn't been
+	 * loaded yet.
+	 *
+	 * @param provenanceId the id of the history contents
+	 * @param loader       loads the provenance from Galaxy
+	 * @return the provenance
+	 * @throws ExecutionManagerException if the provenance could not be loaded
+	 */
+	HistoryContentsProvenance getProvenance(final String provenanceId,
+			final Loader<HistoryContentsProvenance> loader) throws ExecutionManagerException {
+		return load(provenance, provenanceId, loader);
+	}
+
+	/**
+	 * Get the details of a tool, loading them if they haven't been loaded yet.
+	 *
+	 * @param toolId the id of the tool
+	 * @param loader loads the tool from Galaxy
+	 * @return the tool details
+	 * @throws ExecutionManagerException if the tool could not be loaded
+	 */
+	Tool getTool(final String toolId, final Loader<Tool> loader) throws ExecutionManagerException {
+		return load(tools, toolId, loader);
+	}
+
+	/**
+	 * Get the details of a job, loading them if they haven't been loaded yet.
+	 *
+	 * @param jobId  the id of the job
+	 * @param loader loads the job from Galaxy
+	 * @return the job details
+	 * @throws ExecutionManagerException if the job could not be loaded
+	 */
+	JobDetails getJob(final String jobId, final Loader<JobDetails> loader) throws ExecutionManagerException {
+		return load(jobs, jobId, loader);
+	}
+
+	/**
+	 * Get the {@link ToolExecution} for a job, building it if it hasn't been
+	 * built yet. The builder may ask for the tool executions of earlier jobs,
+	 * but not for the one it is building.
+	 *
+	 * @param jobId   the id of the job
+	 * @param builder builds the tool execution, including the steps before it
+	 * @return the tool execution
+	 * @throws ExecutionManagerException if the tool execution could not be built
+	 */
+	ToolExecution getToolExecution(final String jobId, final Loader<ToolExecution> builder)
+			throws ExecutionManagerException {
+		if (jobId == null) {
+			return builder.load(jobId);
+		}
+		final CompletableFuture<ToolExecution> building = new CompletableFuture<>();
+		final CompletableFuture<ToolExecution> built = toolExecutions.putIfAbsent(jobId, building);
+		if (built != null) {
+			try {
+				return built.join();
+			} catch (final CompletionException e) {
+				if (e.getCause() instanceof ExecutionManagerException) {
+					throw (ExecutionManagerException) e.getCause();
+				} else if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		try {
+			final ToolExecution toolExecution = builder.load(jobId);
+			building.complete(toolExecution);
+			return toolExecution;
+		} catch (final ExecutionManagerException | RuntimeException | Error e) {
+			building.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private static <T> T load(final Map<String, T> loaded, final String id, final Loader<T> loader)
+			throws ExecutionManagerException {
+		if (id == null) {
+			// nothing to key the result on, leave it to the loader
+			return loader.load(id);
+		}
+		try {
+			return loaded.computeIfAbsent(id, key -> {
+				try {
+					return loader.load(key);
+				} catch (final ExecutionManagerException e) {
+					throw new LoadFailedException(e);
+				}
+			});
+		} catch (final LoadFailedException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Loads a single item from Galaxy.
+	 *
+	 * @param <T> the type of item
+	 */
+	@FunctionalInterface
+	interface Loader<T> {
+		/**
+		 * Load the item with the given id.
+		 *
+		 * @param id the id of the item
+		 * @return the item
+		 * @throws ExecutionManagerException if the item could not be loaded
+		 */
+		T load(String id) throws ExecutionManagerException;
+	}
+
+	/**
+	 * Carries a failed load out of {@link Map#computeIfAbsent}.
+	 */
+	private static class LoadFailedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		LoadFailedException(final ExecutionManagerException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized ExecutionManagerException getCause() {
+			return (ExecutionManagerException) super.getCause();
+		}
+	}
+}
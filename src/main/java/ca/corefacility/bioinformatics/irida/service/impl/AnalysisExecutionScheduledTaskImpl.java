@@ -1,15 +1,30 @@
 package ca.corefacility.bioinformatics.irida.service.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.scheduling.annotation.AsyncResult;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import ca.corefacility.bioinformatics.irida.events.AnalysisProgressEvent;
+import ca.corefacility.bioinformatics.irida.events.AnalysisStageCompletedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowNotFoundException;
@@ -26,16 +41,19 @@ import ca.corefacility.bioinformatics.irida.service.AnalysisExecutionScheduledTa
 import ca.corefacility.bioinformatics.irida.service.CleanupAnalysisSubmissionCondition;
 import ca.corefacility.bioinformatics.irida.service.EmailController;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisExecutionService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisSubmissionQueue;
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.AnalysisWorkspaceService;
 
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * Implementation of analysis execution tasks. This will scan for
  * {@link AnalysisSubmission}s and execute the {@link Analysis} defined by the
  * submissions.
  */
-public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionScheduledTask {
+public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionScheduledTask,
+		ApplicationEventPublisherAware {
 
 	private final Object prepareAnalysesLock = new Object();
 	private final Object executeAnalysesLock = new Object();
@@ -46,6 +64,13 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 
 	private static final Logger logger = LoggerFactory.getLogger(AnalysisExecutionScheduledTaskImpl.class);
 
+	/**
+	 * States which are picked up by another stage as soon as a submission
+	 * reaches them.
+	 */
+	private static final Set<AnalysisState> NEXT_STAGE_STATES = EnumSet.of(AnalysisState.PREPARED,
+			AnalysisState.FINISHED_RUNNING, AnalysisState.TRANSFERRED);
+
 	private final AnalysisSubmissionRepository analysisSubmissionRepository;
 	private final AnalysisExecutionService analysisExecutionService;
 	private final CleanupAnalysisSubmissionCondition cleanupCondition;
@@ -53,7 +78,21 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 	private final JobErrorRepository jobErrorRepository;
 	private final EmailController emailController;
 	private final AnalysisWorkspaceService analysisWorkspaceService;
+	private final AnalysisSubmissionQueue submissionQueue;
+
+	private final ExecutorService statusExecutor;
+	private final ExecutorService transitionExecutor;
+	private final long statusTimeoutNanos;
+	private final int maxBackoffCycles;
+	private final boolean pipelineStages;
+
+	// only used while holding monitorRunningAnalysesLock
+	private final Map<Long, MonitoredSubmission> monitoredSubmissions = new HashMap<>();
 
+	private ApplicationEventPublisher eventPublisher;
+
+	private volatile long lastMonitorCycleMillis;
+	private volatile long maxMonitorLagMillis;
 
 	/**
 	 * Builds a new AnalysisExecutionScheduledTaskImpl with the given service
@@ -74,6 +113,88 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 			CleanupAnalysisSubmissionCondition cleanupCondition, GalaxyJobErrorsService galaxyJobErrorsService,
 			JobErrorRepository jobErrorRepository, EmailController emailController,
 		    AnalysisWorkspaceService analysisWorkspaceService) {
+		this(analysisSubmissionRepository, analysisExecutionServiceGalaxy, cleanupCondition, galaxyJobErrorsService,
+				jobErrorRepository, emailController, analysisWorkspaceService,
+				MoreExecutors.newDirectExecutorService(), MoreExecutors.newDirectExecutorService(), 0, 0,
+				new AnalysisSubmissionQueue(analysisSubmissionRepository), false);
+	}
+
+	/**
+	 * Builds a new AnalysisExecutionScheduledTaskImpl which checks the state of
+	 * running {@link AnalysisSubmission}s concurrently. Submissions that finish a
+	 * stage are passed straight to the next stage, so the scheduled methods only
+	 * need to pick up submissions that were missed, for example after a restart.
+	 *
+	 * @param analysisSubmissionRepository   A repository for {@link AnalysisSubmission}s.
+	 * @param analysisExecutionServiceGalaxy A service for executing {@link AnalysisSubmission}s.
+	 * @param cleanupCondition               The condition defining when an {@link AnalysisSubmission}
+	 *                                       should be cleaned up.
+	 * @param galaxyJobErrorsService         {@link GalaxyJobErrorsService} for getting {@link JobError} objects
+	 * @param jobErrorRepository             {@link JobErrorRepository} for {@link JobError} objects
+	 * @param emailController                {@link EmailController} for sending completion/error emails for {@link AnalysisSubmission}s
+	 * @param analysisWorkspaceService       {@link AnalysisWorkspaceService}
+	 * @param statusExecutor                 Executor used to get the state of running workflows from Galaxy. The
+	 *                                       size of its pool bounds the number of concurrent requests to Galaxy.
+	 * @param transitionExecutor             Executor used to handle workflows that have changed state.
+	 * @param statusTimeoutSeconds           How long a monitoring cycle waits for Galaxy to return the state of a
+	 *                                       workflow, or 0 to wait until it does. Requests that are still running
+	 *                                       after this long are cancelled and made again.
+	 * @param maxBackoffCycles               The maximum number of monitoring cycles to skip for a workflow whose
+	 *                                       state hasn't changed, or 0 to check every workflow in every cycle.
+	 */
+	public AnalysisExecutionScheduledTaskImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
+			AnalysisExecutionService analysisExecutionServiceGalaxy,
+			CleanupAnalysisSubmissionCondition cleanupCondition, GalaxyJobErrorsService galaxyJobErrorsService,
+			JobErrorRepository jobErrorRepository, EmailController emailController,
+			AnalysisWorkspaceService analysisWorkspaceService, ExecutorService statusExecutor,
+			ExecutorService transitionExecutor, long statusTimeoutSeconds, int maxBackoffCycles) {
+		this(analysisSubmissionRepository, analysisExecutionServiceGalaxy, cleanupCondition, galaxyJobErrorsService,
+				jobErrorRepository, emailController, analysisWorkspaceService, statusExecutor, transitionExecutor,
+				statusTimeoutSeconds, maxBackoffCycles, new AnalysisSubmissionQueue(analysisSubmissionRepository));
+	}
+
+	/**
+	 * Builds a new AnalysisExecutionScheduledTaskImpl which checks the state of
+	 * running {@link AnalysisSubmission}s concurrently and takes new
+	 * {@link AnalysisSubmission}s from the given queue.
+	 *
+	 * @param analysisSubmissionRepository   A repository for {@link AnalysisSubmission}s.
+	 * @param analysisExecutionServiceGalaxy A service for executing {@link AnalysisSubmission}s.
+	 * @param cleanupCondition               The condition defining when an {@link AnalysisSubmission}
+	 *                                       should be cleaned up.
+	 * @param galaxyJobErrorsService         {@link GalaxyJobErrorsService} for getting {@link JobError} objects
+	 * @param jobErrorRepository             {@link JobErrorRepository} for {@link JobError} objects
+	 * @param emailController                {@link EmailController} for sending completion/error emails for {@link AnalysisSubmission}s
+	 * @param analysisWorkspaceService       {@link AnalysisWorkspaceService}
+	 * @param statusExecutor                 Executor used to get the state of running workflows from Galaxy.
+	 * @param transitionExecutor             Executor used to handle workflows that have changed state.
+	 * @param statusTimeoutSeconds           How long a monitoring cycle waits for Galaxy to return the state of a
+	 *                                       workflow, or 0 to wait until it does. Requests that are still running
+	 *                                       after this long are cancelled and made again.
+	 * @param maxBackoffCycles               The maximum number of monitoring cycles to skip for a workflow whose
+	 *                                       state hasn't changed, or 0 to check every workflow in every cycle.
+	 * @param submissionQueue                The {@link AnalysisSubmissionQueue} deciding which new submissions are
+	 *                                       prepared next.
+	 */
+	public AnalysisExecutionScheduledTaskImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
+			AnalysisExecutionService analysisExecutionServiceGalaxy,
+			CleanupAnalysisSubmissionCondition cleanupCondition, GalaxyJobErrorsService galaxyJobErrorsService,
+			JobErrorRepository jobErrorRepository, EmailController emailController,
+			AnalysisWorkspaceService analysisWorkspaceService, ExecutorService statusExecutor,
+			ExecutorService transitionExecutor, long statusTimeoutSeconds, int maxBackoffCycles,
+			AnalysisSubmissionQueue submissionQueue) {
+		this(analysisSubmissionRepository, analysisExecutionServiceGalaxy, cleanupCondition, galaxyJobErrorsService,
+				jobErrorRepository, emailController, analysisWorkspaceService, statusExecutor, transitionExecutor,
+				statusTimeoutSeconds, maxBackoffCycles, submissionQueue, true);
+	}
+
+	private AnalysisExecutionScheduledTaskImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
+			AnalysisExecutionService analysisExecutionServiceGalaxy,
+			CleanupAnalysisSubmissionCondition cleanupCondition, GalaxyJobErrorsService galaxyJobErrorsService,
+			JobErrorRepository jobErrorRepository, EmailController emailController,
+			AnalysisWorkspaceService analysisWorkspaceService, ExecutorService statusExecutor,
+			ExecutorService transitionExecutor, long statusTimeoutSeconds, int maxBackoffCycles,
+			AnalysisSubmissionQueue submissionQueue, boolean pipelineStages) {
 		this.analysisSubmissionRepository = analysisSubmissionRepository;
 		this.analysisExecutionService = analysisExecutionServiceGalaxy;
 		this.cleanupCondition = cleanupCondition;
@@ -81,6 +202,20 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 		this.jobErrorRepository = jobErrorRepository;
 		this.emailController = emailController;
 		this.analysisWorkspaceService = analysisWorkspaceService;
+		this.submissionQueue = submissionQueue;
+		this.statusExecutor = statusExecutor;
+		this.transitionExecutor = transitionExecutor;
+		this.statusTimeoutNanos = TimeUnit.SECONDS.toNanos(statusTimeoutSeconds);
+		this.maxBackoffCycles = maxBackoffCycles;
+		this.pipelineStages = pipelineStages;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -91,27 +226,13 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 		synchronized (prepareAnalysesLock) {
 			logger.trace("Running prepareAnalyses");
 
-			List<AnalysisSubmission> analysisSubmissions = analysisSubmissionRepository.findByAnalysisState(
-					AnalysisState.NEW);
-
-			// Sort submissions by priority high to low
-			analysisSubmissions.sort((a1, a2) -> {
-				return a2.getPriority()
-						.compareTo(a1.getPriority());
-			});
-
 			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
 
 			// check to see if execution service wants any more jobs
 			int capacity = analysisExecutionService.getCapacity();
 			if (capacity > 0) {
-
-				if (capacity < analysisSubmissions.size()) {
-					logger.debug("Attempting to submit more jobs than capacity, list will be trimmed: "
-							+ analysisSubmissions.size() + "=>" + capacity);
-					// only submit up to capacity
-					analysisSubmissions = analysisSubmissions.subList(0, capacity);
-				}
+				// only submit up to capacity, taking turns between users
+				List<AnalysisSubmission> analysisSubmissions = submissionQueue.next(capacity);
 
 				for (AnalysisSubmission analysisSubmission : analysisSubmissions) {
 					logger.debug("Preparing " + analysisSubmission);
@@ -144,13 +265,7 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
 
 			for (AnalysisSubmission analysisSubmission : analysisSubmissions) {
-				logger.debug("Executing " + analysisSubmission);
-
-				try {
-					submissions.add(analysisExecutionService.executeAnalysis(analysisSubmission));
-				} catch (ExecutionManagerException | IridaWorkflowException | IOException e) {
-					logger.error("Error executing submission " + analysisSubmission, e);
-				}
+				executeAnalysis(analysisSubmission).ifPresent(submissions::add);
 			}
 
 			return submissions;
@@ -164,33 +279,228 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 	public Set<Future<AnalysisSubmission>> monitorRunningAnalyses() {
 		synchronized (monitorRunningAnalysesLock) {
 			logger.trace("Running monitorRunningAnalyses");
+			long cycleStart = System.nanoTime();
 
 			List<AnalysisSubmission> analysisSubmissions = analysisSubmissionRepository.findByAnalysisState(
 					AnalysisState.RUNNING);
 
-			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
+			// forget about submissions that have left the running state
+			Set<Long> runningIds = analysisSubmissions.stream()
+					.map(AnalysisSubmission::getId)
+					.collect(Collectors.toSet());
+			monitoredSubmissions.keySet()
+					.retainAll(runningIds);
+
+			List<AnalysisSubmission> checkedSubmissions = new ArrayList<>();
+			int skipped = 0;
 
 			for (AnalysisSubmission analysisSubmission : analysisSubmissions) {
-				logger.trace("Checking state of " + analysisSubmission);
+				MonitoredSubmission monitored = monitoredSubmissions.computeIfAbsent(analysisSubmission.getId(),
+						id -> new MonitoredSubmission(cycleStart));
+
+				if (monitored.transition != null && !monitored.transition.isDone()) {
+					logger.trace("Still handling change of state for " + analysisSubmission);
+					skipped++;
+				} else if (monitored.statusRequest != null) {
+					// a request from an earlier cycle that Galaxy hasn't answered, don't ask again
+					checkedSubmissions.add(analysisSubmission);
+				} else if (monitored.requestStarted != 0) {
+					// a cancelled request is still holding a thread until the Galaxy client times out
+					logger.trace("Cancelled request for the state of " + analysisSubmission + " hasn't returned yet");
+					skipped++;
+				} else if (monitored.cyclesToSkip > 0) {
+					logger.trace("State of " + analysisSubmission + " hasn't changed, skipping this cycle");
+					monitored.cyclesToSkip--;
+					skipped++;
+				} else {
+					logger.trace("Checking state of " + analysisSubmission);
+					monitored.statusRequest = statusExecutor.submit(() -> {
+						monitored.requestStarted = System.nanoTime();
+						try {
+							return analysisExecutionService.getWorkflowStatus(analysisSubmission);
+						} finally {
+							monitored.requestStarted = 0;
+						}
+					});
+					checkedSubmissions.add(analysisSubmission);
+				}
+			}
+
+			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
+			int waiting = 0;
+
+			for (AnalysisSubmission analysisSubmission : checkedSubmissions) {
+				MonitoredSubmission monitored = monitoredSubmissions.get(analysisSubmission.getId());
 
+				GalaxyWorkflowStatus workflowStatus;
 				try {
-					GalaxyWorkflowStatus workflowStatus = analysisExecutionService.getWorkflowStatus(
-							analysisSubmission);
-					submissions.add(handleWorkflowStatus(workflowStatus, analysisSubmission));
-				} catch (ExecutionManagerException | RuntimeException | IridaWorkflowNotFoundException e) {
-					logger.error("Error checking state for " + analysisSubmission, e);
-					analysisSubmission.setAnalysisState(AnalysisState.ERROR);
-					submissions.add(new AsyncResult<>(analysisSubmissionRepository.save(analysisSubmission)));
-					if (analysisSubmission.getEmailPipelineResultError()) {
-						emailController.sendPipelineStatusEmail(analysisSubmission);
+					workflowStatus = getWorkflowStatus(monitored, cycleStart);
+				} catch (TimeoutException e) {
+					waiting++;
+					long requestStarted = monitored.requestStarted;
+					if (requestStarted != 0 && System.nanoTime() - requestStarted > statusTimeoutNanos) {
+						logger.warn("Galaxy has not returned the state of " + analysisSubmission + " after "
+								+ TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - requestStarted)
+								+ " seconds, cancelling the request and checking again once it has stopped");
+						monitored.statusRequest.cancel(true);
+						monitored.statusRequest = null;
 					}
+					continue;
+				} catch (InterruptedException e) {
+					logger.warn("Interrupted while waiting for the state of running analyses");
+					Thread.currentThread()
+							.interrupt();
+					break;
+				} catch (ExecutionException e) {
+					monitored.statusRequest = null;
+					monitored.transition = transitionExecutor.submit(
+							() -> handleMonitoringError(analysisSubmission, e.getCause()));
+					submissions.add(monitored.transition);
+					continue;
+				}
+
+				monitored.statusRequest = null;
+				monitored.lastChecked = System.nanoTime();
+				boolean changed = updateBackoff(monitored, workflowStatus);
+
+				if (workflowStatus.isRunning() && !workflowStatus.errorOccurred()) {
+					logger.trace("Workflow for analysis " + analysisSubmission + " is running: proportion complete "
+							+ workflowStatus.getProportionComplete());
+					if (changed) {
+						publishProgress(analysisSubmission);
+					}
+					submissions.add(new AsyncResult<>(analysisSubmission));
+				} else {
+					monitored.transition = transitionExecutor.submit(() -> {
+						AnalysisSubmission handledSubmission;
+						try {
+							handledSubmission = handleWorkflowStatus(workflowStatus, analysisSubmission);
+						} catch (ExecutionManagerException | RuntimeException | IridaWorkflowNotFoundException e) {
+							return handleMonitoringError(analysisSubmission, e);
+						}
+						publishProgress(handledSubmission);
+						if (pipelineStages
+								&& AnalysisState.FINISHED_RUNNING.equals(handledSubmission.getAnalysisState())) {
+							advanceAnalysis(handledSubmission.getId(), AnalysisState.FINISHED_RUNNING);
+						}
+						return handledSubmission;
+					});
+					submissions.add(monitored.transition);
 				}
 			}
 
+			long cycleEnd = System.nanoTime();
+			long maxLag = monitoredSubmissions.values()
+					.stream()
+					.mapToLong(m -> cycleEnd - m.lastChecked)
+					.max()
+					.orElse(0);
+			lastMonitorCycleMillis = TimeUnit.NANOSECONDS.toMillis(cycleEnd - cycleStart);
+			maxMonitorLagMillis = TimeUnit.NANOSECONDS.toMillis(maxLag);
+
+			logger.debug("Monitored " + analysisSubmissions.size() + " running analyses in " + lastMonitorCycleMillis
+					+ " ms: " + (checkedSubmissions.size() - waiting) + " checked, " + skipped + " skipped, "
+					+ waiting + " waiting on Galaxy, maximum lag " + maxMonitorLagMillis + " ms");
+
 			return submissions;
 		}
 	}
 
+	/**
+	 * Waits for Galaxy to return the state of a workflow, giving up once the
+	 * status timeout has passed since the start of the monitoring cycle.
+	 *
+	 * @param monitored  The monitored submission with an outstanding request.
+	 * @param cycleStart When the monitoring cycle started.
+	 * @return The status of the workflow.
+	 * @throws TimeoutException     If Galaxy hasn't returned the state yet.
+	 * @throws InterruptedException If interrupted while waiting.
+	 * @throws ExecutionException   If getting the state failed.
+	 */
+	private GalaxyWorkflowStatus getWorkflowStatus(MonitoredSubmission monitored, long cycleStart)
+			throws TimeoutException, InterruptedException, ExecutionException {
+		if (statusTimeoutNanos == 0) {
+			return monitored.statusRequest.get();
+		}
+		long remaining = Math.max(0, cycleStart + statusTimeoutNanos - System.nanoTime());
+		return monitored.statusRequest.get(remaining, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Updates how many cycles to skip before checking a workflow again. Each
+	 * check that finds the workflow unchanged doubles the number of cycles
+	 * skipped, up to the configured maximum.
+	 *
+	 * @param monitored      The monitored submission.
+	 * @param workflowStatus The status just returned for the workflow.
+	 * @return Whether the status of the workflow changed since the last check.
+	 */
+	private boolean updateBackoff(MonitoredSubmission monitored, GalaxyWorkflowStatus workflowStatus) {
+		boolean changed = !workflowStatus.equals(monitored.lastStatus);
+		if (changed) {
+			monitored.unchangedChecks = 0;
+			monitored.cyclesToSkip = 0;
+		} else {
+			monitored.unchangedChecks++;
+			long backoff = 1L << Math.min(monitored.unchangedChecks - 1, 30);
+			monitored.cyclesToSkip = (int) Math.min(backoff, maxBackoffCycles);
+		}
+		monitored.lastStatus = workflowStatus;
+		return changed;
+	}
+
+	/**
+	 * Lets anyone watching an {@link AnalysisSubmission} know that it has made
+	 * progress.
+	 *
+	 * @param analysisSubmission The {@link AnalysisSubmission}.
+	 */
+	private void publishProgress(AnalysisSubmission analysisSubmission) {
+		if (eventPublisher != null) {
+			eventPublisher.publishEvent(
+					new AnalysisProgressEvent(analysisSubmission.getId(), analysisSubmission.getAnalysisState()));
+		}
+	}
+
+	/**
+	 * Switches an {@link AnalysisSubmission} to {@link AnalysisState#ERROR}
+	 * after failing to check or handle the state of its workflow.
+	 *
+	 * @param analysisSubmission The {@link AnalysisSubmission}.
+	 * @param e                  The cause of the failure.
+	 * @return The saved {@link AnalysisSubmission}.
+	 */
+	private AnalysisSubmission handleMonitoringError(AnalysisSubmission analysisSubmission, Throwable e) {
+		logger.error("Error checking state for " + analysisSubmission, e);
+		analysisSubmission.setAnalysisState(AnalysisState.ERROR);
+		AnalysisSubmission savedSubmission = analysisSubmissionRepository.save(analysisSubmission);
+		publishProgress(analysisSubmission);
+		if (analysisSubmission.getEmailPipelineResultError()) {
+			emailController.sendPipelineStatusEmail(analysisSubmission);
+		}
+		return savedSubmission;
+	}
+
+	/**
+	 * Gets how long the last cycle of {@link #monitorRunningAnalyses()} took.
+	 *
+	 * @return The duration of the last monitoring cycle in milliseconds.
+	 */
+	public long getLastMonitorCycleMillis() {
+		return lastMonitorCycleMillis;
+	}
+
+	/**
+	 * Gets the longest time, as of the end of the last monitoring cycle, that
+	 * any running {@link AnalysisSubmission} has gone without its state being
+	 * checked in Galaxy.
+	 *
+	 * @return The maximum lag in milliseconds.
+	 */
+	public long getMaxMonitorLagMillis() {
+		return maxMonitorLagMillis;
+	}
+
 	/**
 	 * Handle async saving of {@link JobError} objects for a {@link AnalysisSubmission}
 	 * to database through {@link JobErrorRepository} if there are any
@@ -221,13 +531,7 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
 
 			for (AnalysisSubmission analysisSubmission : analysisSubmissions) {
-				logger.debug("Transferring results for " + analysisSubmission);
-
-				try {
-					submissions.add(analysisExecutionService.transferAnalysisResults(analysisSubmission));
-				} catch (ExecutionManagerException | IOException | IridaWorkflowException e) {
-					logger.error("Error transferring submission " + analysisSubmission, e);
-				}
+				transferAnalysisResults(analysisSubmission).ifPresent(submissions::add);
 			}
 
 			return submissions;
@@ -248,26 +552,106 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 			Set<Future<AnalysisSubmission>> submissions = Sets.newHashSet();
 
 			for (AnalysisSubmission analysisSubmission : analysisSubmissions) {
-				logger.debug("Post processing results for " + analysisSubmission);
-				submissions.add(analysisExecutionService.postProcessResults(analysisSubmission));
+				submissions.add(postProcessResults(analysisSubmission));
 			}
 
 			return submissions;
 		}
 	}
 
+	/**
+	 * Passes an {@link AnalysisSubmission} that finished a stage straight to
+	 * the next stage instead of waiting for the next scheduled check.
+	 *
+	 * @param event The event for the submission that finished a stage.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void handleStageCompleted(AnalysisStageCompletedEvent event) {
+		if (pipelineStages && NEXT_STAGE_STATES.contains(event.getAnalysisState())) {
+			// the listener still takes part in the committed transaction, so start the next stage on another thread
+			transitionExecutor.execute(() -> advanceAnalysis(event.getSubmissionId(), event.getAnalysisState()));
+		}
+	}
+
+	/**
+	 * Starts the stage that handles {@link AnalysisSubmission}s in the given
+	 * state, unless a scheduled check has already picked the submission up.
+	 *
+	 * @param submissionId The id of the {@link AnalysisSubmission}.
+	 * @param state        The state the submission was left in by the last stage.
+	 */
+	private void advanceAnalysis(Long submissionId, AnalysisState state) {
+		switch (state) {
+		case PREPARED:
+			synchronized (executeAnalysesLock) {
+				findInState(submissionId, state).ifPresent(this::executeAnalysis);
+			}
+			break;
+		case FINISHED_RUNNING:
+			synchronized (transferAnalysesResultsLock) {
+				findInState(submissionId, state).ifPresent(this::transferAnalysisResults);
+			}
+			break;
+		case TRANSFERRED:
+			synchronized (postProcessingLock) {
+				findInState(submissionId, state).ifPresent(this::postProcessResults);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Re-reads an {@link AnalysisSubmission} if it's still in the given state.
+	 *
+	 * @param submissionId The id of the {@link AnalysisSubmission}.
+	 * @param state        The expected state.
+	 * @return The submission, or empty if it has moved on to another state.
+	 */
+	private Optional<AnalysisSubmission> findInState(Long submissionId, AnalysisState state) {
+		return analysisSubmissionRepository.findById(submissionId)
+				.filter(s -> state.equals(s.getAnalysisState()));
+	}
+
+	private Optional<Future<AnalysisSubmission>> executeAnalysis(AnalysisSubmission analysisSubmission) {
+		logger.debug("Executing " + analysisSubmission);
+
+		try {
+			return Optional.ofNullable(analysisExecutionService.executeAnalysis(analysisSubmission));
+		} catch (ExecutionManagerException | IridaWorkflowException | IOException e) {
+			logger.error("Error executing submission " + analysisSubmission, e);
+			return Optional.empty();
+		}
+	}
+
+	private Optional<Future<AnalysisSubmission>> transferAnalysisResults(AnalysisSubmission analysisSubmission) {
+		logger.debug("Transferring results for " + analysisSubmission);
+
+		try {
+			return Optional.ofNullable(analysisExecutionService.transferAnalysisResults(analysisSubmission));
+		} catch (ExecutionManagerException | IOException | IridaWorkflowException e) {
+			logger.error("Error transferring submission " + analysisSubmission, e);
+			return Optional.empty();
+		}
+	}
+
+	private Future<AnalysisSubmission> postProcessResults(AnalysisSubmission analysisSubmission) {
+		logger.debug("Post processing results for " + analysisSubmission);
+		return analysisExecutionService.postProcessResults(analysisSubmission);
+	}
+
 	/**
 	 * Handles checking the status of a workflow in an execution manager.
 	 *
 	 * @param workflowStatus     The status of the workflow.
 	 * @param analysisSubmission The {@link AnalysisSubmission}.
-	 * @return A {@link Future} with an {@link AnalysisSubmission} for this
-	 * submission.
+	 * @return The {@link AnalysisSubmission} for this submission.
 	 */
-	private Future<AnalysisSubmission> handleWorkflowStatus(GalaxyWorkflowStatus workflowStatus,
+	private AnalysisSubmission handleWorkflowStatus(GalaxyWorkflowStatus workflowStatus,
 			AnalysisSubmission analysisSubmission)
 			throws IridaWorkflowNotFoundException, ExecutionManagerException {
-		Future<AnalysisSubmission> returnedSubmission;
+		AnalysisSubmission returnedSubmission;
 
 		boolean workflowCompleted = false;
 		boolean workflowError = false;
@@ -276,7 +660,7 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 		if (workflowStatus.errorOccurred()) {
 			logger.error("Workflow for analysis " + analysisSubmission + " in error state " + workflowStatus);
 			analysisSubmission.setAnalysisState(AnalysisState.ERROR);
-			returnedSubmission = new AsyncResult<>(analysisSubmissionRepository.save(analysisSubmission));
+			returnedSubmission = analysisSubmissionRepository.save(analysisSubmission);
 			handleJobErrors(analysisSubmission);
 			workflowError = true;
 		} else if (
@@ -284,19 +668,19 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 				(workflowStatus.completedSuccessfully() && !analysisWorkspaceService.outputFilesExist(analysisSubmission))) {
 			logger.trace("Workflow for analysis " + analysisSubmission + " is running: proportion complete "
 					+ workflowStatus.getProportionComplete());
-			returnedSubmission = new AsyncResult<>(analysisSubmission);
+			returnedSubmission = analysisSubmission;
 		} else if (workflowStatus.completedSuccessfully()) {
 			logger.debug("Analysis finished " + analysisSubmission);
 
 			analysisSubmission.setAnalysisState(AnalysisState.FINISHED_RUNNING);
-			returnedSubmission = new AsyncResult<>(analysisSubmissionRepository.save(analysisSubmission));
+			returnedSubmission = analysisSubmissionRepository.save(analysisSubmission);
 			workflowCompleted = true;
 		} else {
 			// If one of the above combinations did not match, assume an error occurred.
 			logger.error("Workflow for analysis " + analysisSubmission
 					+ " is neither complete, in error, or still running. Switching to error state " + workflowStatus);
 			analysisSubmission.setAnalysisState(AnalysisState.ERROR);
-			returnedSubmission = new AsyncResult<>(analysisSubmissionRepository.save(analysisSubmission));
+			returnedSubmission = analysisSubmissionRepository.save(analysisSubmission);
 			handleJobErrors(analysisSubmission);
 			workflowError = true;
 		}
@@ -347,4 +731,22 @@ public class AnalysisExecutionScheduledTaskImpl implements AnalysisExecutionSche
 			return cleanedSubmissions;
 		}
 	}
+
+	/**
+	 * The monitoring state of a running {@link AnalysisSubmission}.
+	 */
+	private static class MonitoredSubmission {
+		private Future<GalaxyWorkflowStatus> statusRequest;
+		// when the running request for the status started, 0 if none is running
+		private volatile long requestStarted;
+		private Future<AnalysisSubmission> transition;
+		private GalaxyWorkflowStatus lastStatus;
+		private int unchangedChecks;
+		private int cyclesToSkip;
+		private long lastChecked;
+
+		MonitoredSubmission(long firstSeen) {
+			this.lastChecked = firstSeen;
+		}
+	}
 }
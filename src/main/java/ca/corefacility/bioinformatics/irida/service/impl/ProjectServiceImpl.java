@@ -11,6 +11,7 @@ import javax.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -28,6 +29,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import ca.corefacility.bioinformatics.irida.events.ProjectMembershipChangedEvent;
+import ca.corefacility.bioinformatics.irida.events.ProjectMetadataFieldsChangedEvent;
 import ca.corefacility.bioinformatics.irida.events.annotations.LaunchesProjectEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.*;
 import ca.corefacility.bioinformatics.irida.model.enums.ProjectMetadataRole;
@@ -58,6 +61,7 @@ import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.Pro
 import ca.corefacility.bioinformatics.irida.repositories.joins.project.*;
 import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleSequencingObjectJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.referencefile.ReferenceFileRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.SampleRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.user.UserGroupJoinRepository;
@@ -96,6 +100,8 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 	private final ProjectRepository projectRepository;
 	private final ProjectSubscriptionService projectSubscriptionService;
 	private final UserGroupJoinRepository userGroupJoinRepository;
+	private final MetadataEntryRepository metadataEntryRepository;
+	private final ApplicationEventPublisher eventPublisher;
 
 	@Autowired
 	public ProjectServiceImpl(ProjectRepository projectRepository, SampleRepository sampleRepository,
@@ -106,6 +112,7 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 			ProjectAnalysisSubmissionJoinRepository pasRepository,
 			SequencingObjectRepository sequencingObjectRepository,
 			ProjectSubscriptionService projectSubscriptionService, UserGroupJoinRepository userGroupJoinRepository,
+			MetadataEntryRepository metadataEntryRepository, ApplicationEventPublisher eventPublisher,
 			Validator validator) {
 		super(projectRepository, validator, Project.class);
 		this.projectRepository = projectRepository;
@@ -122,6 +129,8 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 		this.sequencingObjectRepository = sequencingObjectRepository;
 		this.projectSubscriptionService = projectSubscriptionService;
 		this.userGroupJoinRepository = userGroupJoinRepository;
+		this.metadataEntryRepository = metadataEntryRepository;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -182,6 +191,8 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 		UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 		User user = userRepository.loadUserByUsername(userDetails.getUsername());
 		addUserToProject(project, user, ProjectRole.PROJECT_OWNER, ProjectMetadataRole.LEVEL_4);
+		// calling addUserToProject directly doesn't launch a project event
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forUser(user.getUsername()));
 		return project;
 	}
 
@@ -412,6 +423,9 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 							+ project.getId(), sample);
 		}
 
+		// an existing sample brings its metadata fields to the project
+		boolean existingSample = sample.getId() != null;
+
 		// the sample hasn't been persisted before, persist it before calling
 		// the relationshipRepository.
 		if (sample.getId() == null) {
@@ -428,11 +442,16 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 		ProjectSampleJoin join = new ProjectSampleJoin(project, sample, owner);
 
 		try {
-			return psjRepository.save(join);
+			join = psjRepository.save(join);
 		} catch (DataIntegrityViolationException e) {
 			throw new EntityExistsException(
 					"Sample [" + sample.getId() + "] has already been added to project [" + project.getId() + "]");
 		}
+
+		if (existingSample) {
+			publishFieldChanges(project, sample, 1);
+		}
+		return join;
 	}
 
 	/**
@@ -514,6 +533,7 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 	public void removeSampleFromProject(Project project, Sample sample) {
 		ProjectSampleJoin readSampleForProject = psjRepository.readSampleForProject(project, sample);
 		psjRepository.delete(readSampleForProject);
+		publishFieldChanges(project, sample, -1);
 
 		// if the sample doesn't refer to any other projects, delete it
 		if (psjRepository.getProjectForSample(sample).isEmpty()) {
@@ -521,6 +541,23 @@ public class ProjectServiceImpl extends CRUDServiceImpl<Long, Project> implement
 		}
 	}
 
+	/**
+	 * Publish that a {@link Sample} added to or removed from a {@link Project} changes the number of samples in the
+	 * project with a value for each of the sample's metadata fields.
+	 *
+	 * @param project the project the sample was added to or removed from
+	 * @param sample  the sample
+	 * @param change  1 if the sample was added, -1 if it was removed
+	 */
+	private void publishFieldChanges(Project project, Sample sample, int change) {
+		Map<Long, Integer> fieldChanges = new HashMap<>();
+		metadataEntryRepository.getFieldIdsForSample(sample).forEach(f -> fieldChanges.put(f, change));
+		if (!fieldChanges.isEmpty()) {
+			eventPublisher.publishEvent(ProjectMetadataFieldsChangedEvent.forSamplesInProject(project.getId(),
+					Map.of(sample.getId(), fieldChanges)));
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
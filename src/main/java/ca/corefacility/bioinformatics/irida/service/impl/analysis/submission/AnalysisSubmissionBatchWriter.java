@@ -0,0 +1,97 @@
+package ca.corefacility.bioinformatics.irida.service.impl.analysis.submission;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.ProjectAnalysisSubmissionJoin;
+import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
+import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.ProjectAnalysisSubmissionJoinRepository;
+
+/**
+ * Saves new {@link AnalysisSubmission}s and shares them with projects a batch
+ * at a time. Each batch is written in its own transaction (unless the caller
+ * already has one), so launching a pipeline on a large number of samples
+ * doesn't hold a single transaction open until every analysis is saved, and
+ * the rows of a batch can be sent to the database together.
+ */
+@Component
+public class AnalysisSubmissionBatchWriter {
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	private final AnalysisSubmissionRepository analysisSubmissionRepository;
+	private final ProjectAnalysisSubmissionJoinRepository pasRepository;
+	private final int batchSize;
+
+	/**
+	 * Builds a new {@link AnalysisSubmissionBatchWriter} with the default batch
+	 * size.
+	 *
+	 * @param analysisSubmissionRepository A repository for {@link AnalysisSubmission}s.
+	 * @param pasRepository                The {@link ProjectAnalysisSubmissionJoinRepository}
+	 */
+	public AnalysisSubmissionBatchWriter(AnalysisSubmissionRepository analysisSubmissionRepository,
+			ProjectAnalysisSubmissionJoinRepository pasRepository) {
+		this(analysisSubmissionRepository, pasRepository, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisSubmissionBatchWriter}.
+	 *
+	 * @param analysisSubmissionRepository A repository for {@link AnalysisSubmission}s.
+	 * @param pasRepository                The {@link ProjectAnalysisSubmissionJoinRepository}
+	 * @param batchSize                    The number of analyses to save in each transaction.
+	 */
+	@Autowired
+	public AnalysisSubmissionBatchWriter(AnalysisSubmissionRepository analysisSubmissionRepository,
+			ProjectAnalysisSubmissionJoinRepository pasRepository,
+			@Value("${irida.analysis.launch.batch.size:100}") int batchSize) {
+		this.analysisSubmissionRepository = analysisSubmissionRepository;
+		this.pasRepository = pasRepository;
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Get the number of analyses that should be saved in each call to
+	 * {@link #save(List, Collection)}.
+	 *
+	 * @return the batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Save a batch of new {@link AnalysisSubmission}s and share each of them
+	 * with the given projects.
+	 *
+	 * @param submissions     the analyses to save, which must already have a submitter
+	 * @param projectsToShare the projects to share all of the analyses with
+	 * @return the saved analyses, in the same order
+	 */
+	@Transactional
+	public List<AnalysisSubmission> save(List<AnalysisSubmission> submissions, Collection<Project> projectsToShare) {
+		List<AnalysisSubmission> saved = Lists.newArrayList(analysisSubmissionRepository.saveAll(submissions));
+
+		if (!projectsToShare.isEmpty()) {
+			List<ProjectAnalysisSubmissionJoin> shares = new ArrayList<>(saved.size() * projectsToShare.size());
+			for (AnalysisSubmission submission : saved) {
+				for (Project project : projectsToShare) {
+					shares.add(new ProjectAnalysisSubmissionJoin(project, submission));
+				}
+			}
+			pasRepository.saveAll(shares);
+		}
+
+		return saved;
+	}
+}
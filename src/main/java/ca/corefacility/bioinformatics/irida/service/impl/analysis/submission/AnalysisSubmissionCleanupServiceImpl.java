@@ -1,5 +1,6 @@
 package ca.corefacility.bioinformatics.irida.service.impl.analysis.submission;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Set;
 
@@ -13,6 +14,7 @@ import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
 import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionCleanupService;
+import ca.corefacility.bioinformatics.irida.service.analysis.workspace.AnalysisWorkspaceService;
 
 import com.google.common.collect.ImmutableSet;
 
@@ -26,6 +28,8 @@ public class AnalysisSubmissionCleanupServiceImpl implements AnalysisSubmissionC
 	private static final Logger logger = LoggerFactory.getLogger(AnalysisSubmissionCleanupServiceImpl.class);
 	
 	private AnalysisSubmissionRepository analysisSubmissionRepository;
+
+	private AnalysisWorkspaceService analysisWorkspaceService;
 	
 	/**
 	 * Defines a set of states that, if IRIDA was shutdown with a submission in
@@ -45,7 +49,24 @@ public class AnalysisSubmissionCleanupServiceImpl implements AnalysisSubmissionC
 	 */
 	@Autowired
 	public AnalysisSubmissionCleanupServiceImpl(AnalysisSubmissionRepository analysisSubmissionRepository) {
+		this(analysisSubmissionRepository, null);
+	}
+
+	/**
+	 * Builds a new {@link AnalysisSubmissionCleanupServiceImpl} which also
+	 * removes the files downloaded for submissions whose results were being
+	 * transferred.
+	 * 
+	 * @param analysisSubmissionRepository
+	 *            The {@link AnalysisSubmissionRepository} to use.
+	 * @param analysisWorkspaceService
+	 *            The {@link AnalysisWorkspaceService} that downloads the
+	 *            results of submissions.
+	 */
+	public AnalysisSubmissionCleanupServiceImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
+			AnalysisWorkspaceService analysisWorkspaceService) {
 		this.analysisSubmissionRepository = analysisSubmissionRepository;
+		this.analysisWorkspaceService = analysisWorkspaceService;
 	}
 
 	/**
@@ -67,6 +88,10 @@ public class AnalysisSubmissionCleanupServiceImpl implements AnalysisSubmissionC
 							+ ", state=" + submission.getAnalysisState()
 							+ "] left in inconsistent state.  Switching to " + AnalysisState.ERROR + ".");
 					
+					if (AnalysisState.COMPLETING.equals(submission.getAnalysisState())) {
+						cleanupAnalysisResults(submission);
+					}
+
 					submission.setAnalysisState(AnalysisState.ERROR);
 					analysisSubmissionRepository.save(submission);
 					numberSubmissionsSwitched++;
@@ -76,4 +101,22 @@ public class AnalysisSubmissionCleanupServiceImpl implements AnalysisSubmissionC
 			return numberSubmissionsSwitched;
 		}
 	}
+
+	/**
+	 * Removes the files downloaded by a transfer of results which was stopped
+	 * part way through.
+	 * 
+	 * @param submission
+	 *            The submission whose results were being transferred.
+	 */
+	private void cleanupAnalysisResults(AnalysisSubmission submission) {
+		if (analysisWorkspaceService == null || submission.getRemoteAnalysisId() == null) {
+			return;
+		}
+		try {
+			analysisWorkspaceService.cleanupAnalysisResults(submission);
+		} catch (IOException e) {
+			logger.warn("Could not remove downloaded results for " + submission, e);
+		}
+	}
 }
@@ -31,6 +31,7 @@ import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
 import ca.corefacility.bioinformatics.irida.ria.web.admin.dto.statistics.GenericStatModel;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisSubmissionQueue;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy.AnalysisExecutionServiceGalaxyCleanupAsync;
 import ca.corefacility.bioinformatics.irida.service.impl.CRUDServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsService;
@@ -103,6 +104,8 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 	private final SequencingObjectService sequencingObjectService;
 	private final IridaWorkflowsService iridaWorkflowsService;
 	private JobErrorRepository jobErrorRepository;
+	private final AnalysisSubmissionQueue analysisSubmissionQueue;
+	private final AnalysisSubmissionBatchWriter batchWriter;
 
 	// required, but not constructor injected because we have circular dependencies :(
 	@Autowired
@@ -122,13 +125,42 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 	 * @param iridaWorkflowsService        The {@link IridaWorkflowsService}
 	 * @param validator                    A validator.
 	 */
-	@Autowired
 	public AnalysisSubmissionServiceImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
 			AnalysisSubmissionTemplateRepository analysisTemplateRepository, UserRepository userRepository,
 			final ReferenceFileRepository referenceFileRepository,
 			final SequencingObjectService sequencingObjectService, final GalaxyHistoriesService galaxyHistoriesService,
 			ProjectAnalysisSubmissionJoinRepository pasRepository, JobErrorRepository jobErrorRepository,
 			IridaWorkflowsService iridaWorkflowsService, Validator validator) {
+		this(analysisSubmissionRepository, analysisTemplateRepository, userRepository, referenceFileRepository,
+				sequencingObjectService, galaxyHistoriesService, pasRepository, jobErrorRepository,
+				iridaWorkflowsService, new AnalysisSubmissionQueue(analysisSubmissionRepository),
+				new AnalysisSubmissionBatchWriter(analysisSubmissionRepository, pasRepository), validator);
+	}
+
+	/**
+	 * Builds a new AnalysisSubmissionServiceImpl with the given information.
+	 *
+	 * @param analysisSubmissionRepository A repository for accessing analysis submissions.
+	 * @param analysisTemplateRepository   repository for {@link AnalysisSubmissionTemplate}s
+	 * @param userRepository               A repository for accessing user information.
+	 * @param referenceFileRepository      the reference file repository
+	 * @param sequencingObjectService      the {@link SequencingObject} service.
+	 * @param galaxyHistoriesService       The {@link GalaxyHistoriesService}.
+	 * @param pasRepository                The {@link ProjectAnalysisSubmissionJoinRepository}
+	 * @param jobErrorRepository           A repository for accessing {@link JobError}
+	 * @param iridaWorkflowsService        The {@link IridaWorkflowsService}
+	 * @param analysisSubmissionQueue      The {@link AnalysisSubmissionQueue} deciding which analyses are prepared next
+	 * @param batchWriter                  The {@link AnalysisSubmissionBatchWriter} saving new analyses in batches
+	 * @param validator                    A validator.
+	 */
+	@Autowired
+	public AnalysisSubmissionServiceImpl(AnalysisSubmissionRepository analysisSubmissionRepository,
+			AnalysisSubmissionTemplateRepository analysisTemplateRepository, UserRepository userRepository,
+			final ReferenceFileRepository referenceFileRepository,
+			final SequencingObjectService sequencingObjectService, final GalaxyHistoriesService galaxyHistoriesService,
+			ProjectAnalysisSubmissionJoinRepository pasRepository, JobErrorRepository jobErrorRepository,
+			IridaWorkflowsService iridaWorkflowsService, AnalysisSubmissionQueue analysisSubmissionQueue,
+			AnalysisSubmissionBatchWriter batchWriter, Validator validator) {
 		super(analysisSubmissionRepository, validator, AnalysisSubmission.class);
 		this.userRepository = userRepository;
 		this.analysisSubmissionRepository = analysisSubmissionRepository;
@@ -139,6 +171,8 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 		this.pasRepository = pasRepository;
 		this.jobErrorRepository = jobErrorRepository;
 		this.iridaWorkflowsService = iridaWorkflowsService;
+		this.analysisSubmissionQueue = analysisSubmissionQueue;
+		this.batchWriter = batchWriter;
 	}
 
 	public void setAnalysisExecutionService(final AnalysisExecutionServiceGalaxyCleanupAsync analysisExecutionService) {
@@ -387,16 +421,24 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 	@PreAuthorize("hasRole('ROLE_USER')")
 	public AnalysisSubmission create(AnalysisSubmission analysisSubmission)
 			throws ConstraintViolationException, EntityExistsException {
-		UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
-				.getAuthentication()
-				.getPrincipal();
-		User user = userRepository.loadUserByUsername(userDetails.getUsername());
-		analysisSubmission.setSubmitter(user);
+		analysisSubmission.setSubmitter(getCurrentUser());
 
 		return super.create(analysisSubmission);
 
 	}
 
+	/**
+	 * Get the currently logged in {@link User}.
+	 *
+	 * @return the current user
+	 */
+	private User getCurrentUser() {
+		UserDetails userDetails = (UserDetails) SecurityContextHolder.getContext()
+				.getAuthentication()
+				.getPrincipal();
+		return userRepository.loadUserByUsername(userDetails.getUsername());
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -519,18 +561,43 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 	 * {@inheritDoc}
 	 */
 	@Override
-	@Transactional
 	@PreAuthorize("hasRole('ROLE_USER')")
 	public Collection<AnalysisSubmission> createSingleSampleSubmission(IridaWorkflow workflow, Long ref,
 			List<SingleEndSequenceFile> sequenceFiles, List<SequenceFilePair> sequenceFilePairs,
 			Map<String, String> params, IridaWorkflowNamedParameters namedParameters, String name,
 			String analysisDescription, List<Project> projectsToShare, boolean writeResultsToSamples,
 			boolean emailPipelineResultCompleted, boolean emailPipelineResultError) {
-		final Collection<AnalysisSubmission> createdSubmissions = new HashSet<AnalysisSubmission>();
+		return createSingleSampleSubmission(workflow, ref, sequenceFiles, sequenceFilePairs, params, namedParameters,
+				name, analysisDescription, projectsToShare, writeResultsToSamples, emailPipelineResultCompleted,
+				emailPipelineResultError, (saved, total) -> {
+				});
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@PreAuthorize("hasRole('ROLE_USER')")
+	public Collection<AnalysisSubmission> createSingleSampleSubmission(IridaWorkflow workflow, Long ref,
+			List<SingleEndSequenceFile> sequenceFiles, List<SequenceFilePair> sequenceFilePairs,
+			Map<String, String> params, IridaWorkflowNamedParameters namedParameters, String name,
+			String analysisDescription, List<Project> projectsToShare, boolean writeResultsToSamples,
+			boolean emailPipelineResultCompleted, boolean emailPipelineResultError,
+			SubmissionProgressListener listener) {
+		final List<AnalysisSubmission> submissions = new ArrayList<>();
 
 		// Single end reads
 		IridaWorkflowDescription description = workflow.getWorkflowDescription();
 
+		// Look up everything the submissions share once instead of for every sample
+		User submitter = getCurrentUser();
+		ReferenceFile referenceFile = null;
+		if (ref != null && description.requiresReference()) {
+			// Note: This cannot be empty if through the UI if the
+			// pipeline required a reference file.
+			referenceFile = referenceFileRepository.findById(ref).orElse(null);
+		}
+
 		if (description.acceptsSingleSequenceFiles()) {
 			final Map<Sample, SingleEndSequenceFile> samplesMap = sequencingObjectService
 					.getUniqueSamplesForSequencingObjects(Sets.newHashSet(sequenceFiles));
@@ -547,10 +614,7 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 				builder.emailPipelineResultCompleted(emailPipelineResultCompleted);
 				builder.emailPipelineResultError(emailPipelineResultError);
 				// Add reference file
-				if (ref != null && description.requiresReference()) {
-					// Note: This cannot be empty if through the UI if the
-					// pipeline required a reference file.
-					ReferenceFile referenceFile = referenceFileRepository.findById(ref).orElse(null);
+				if (referenceFile != null) {
 					builder.referenceFile(referenceFile);
 				}
 
@@ -566,9 +630,7 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 					}
 				}
 
-				// Create the submission
-				createdSubmissions.add(create(builder.build()));
-
+				submissions.add(builder.build());
 			}
 
 		}
@@ -590,8 +652,7 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 				builder.emailPipelineResultCompleted(emailPipelineResultCompleted);
 				builder.emailPipelineResultError(emailPipelineResultError);
 				// Add reference file
-				if (ref != null && description.requiresReference()) {
-					ReferenceFile referenceFile = referenceFileRepository.findById(ref).orElse(null);
+				if (referenceFile != null) {
 					builder.referenceFile(referenceFile);
 				}
 
@@ -610,18 +671,22 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 				// Add description to submission, can be null
 				builder.analysisDescription(analysisDescription);
 
-				// Create the submission
-				createdSubmissions.add(create(builder.build()));
+				submissions.add(builder.build());
 			}
 		}
 
-		// Share with the required projects
-		for (AnalysisSubmission submission : createdSubmissions) {
-			for (Project project : projectsToShare) {
-				pasRepository.save(new ProjectAnalysisSubmissionJoin(project, submission));
-			}
+		// Create the submissions and share them with the required projects a batch at a time
+		final Collection<AnalysisSubmission> createdSubmissions = new HashSet<AnalysisSubmission>();
+		int saved = 0;
+		for (List<AnalysisSubmission> batch : Lists.partition(submissions, batchWriter.getBatchSize())) {
+			batch.forEach(submission -> submission.setSubmitter(submitter));
+			createdSubmissions.addAll(batchWriter.save(batch, projectsToShare));
+			saved += batch.size();
+			listener.saved(saved, submissions.size());
 		}
 
+		logger.debug("Created " + saved + " single sample submissions for workflow "
+				+ workflow.getWorkflowIdentifier());
 		return createdSubmissions;
 	}
 
@@ -699,7 +764,16 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 	@PreAuthorize("hasRole('ROLE_ADMIN') or hasPermission(#id, 'canReadAnalysisSubmission')")
 	public float getPercentCompleteForAnalysisSubmission(Long id) throws EntityNotFoundException,
 			ExecutionManagerException, NoPercentageCompleteException {
-		AnalysisSubmission analysisSubmission = read(id);
+		return getPercentComplete(read(id));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@PreAuthorize("hasRole('ROLE_ADMIN') or hasPermission(#analysisSubmission, 'canReadAnalysisSubmission')")
+	public float getPercentComplete(AnalysisSubmission analysisSubmission)
+			throws ExecutionManagerException, NoPercentageCompleteException {
 		AnalysisState analysisState = analysisSubmission.getAnalysisState();
 
 		switch (analysisState) {
@@ -728,7 +802,7 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 			 */
 		case RUNNING:
 			String workflowHistoryId = analysisSubmission.getRemoteAnalysisId();
-			GalaxyWorkflowStatus workflowStatus = galaxyHistoriesService.getStatusForHistory(workflowHistoryId);
+			GalaxyWorkflowStatus workflowStatus = galaxyHistoriesService.getRecentStatusForHistory(workflowHistoryId);
 			return RUNNING_PERCENT + (FINISHED_RUNNING_PERCENT - RUNNING_PERCENT)
 					* workflowStatus.getProportionComplete();
 
@@ -814,6 +888,14 @@ public class AnalysisSubmissionServiceImpl extends CRUDServiceImpl<Long, Analysi
 		return new AnalysisServiceStatus(running, queued);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@PreAuthorize("hasRole('ROLE_ADMIN')")
+	public List<AnalysisSubmission> getQueuedAnalysisSubmissions(int count) {
+		return analysisSubmissionQueue.next(count);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
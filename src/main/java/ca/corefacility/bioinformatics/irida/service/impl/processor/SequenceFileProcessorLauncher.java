@@ -5,7 +5,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
-import ca.corefacility.bioinformatics.irida.exceptions.FileProcessorTimeoutException;
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessingChain;
 
@@ -43,9 +43,9 @@ public class SequenceFileProcessorLauncher implements Runnable {
 		// proceed with analysis
 		try {
 			fileProcessingChain.launchChain(sequencingObjectId);
-		} catch (FileProcessorTimeoutException e) {
-			logger.error(
-					"FileProcessingChain did *not* execute -- the transaction opened by SequenceFileService never closed.",
+		} catch (EntityNotFoundException e) {
+			logger.warn(
+					"FileProcessingChain did *not* execute -- the sequencing object was removed before it was processed.",
 					e);
 		}
 
@@ -33,6 +33,8 @@ import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
 import ca.corefacility.bioinformatics.irida.service.impl.CRUDServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.sample.MetadataTemplateService;
 
+import com.google.common.collect.Lists;
+
 /**
  * Service for storing and reading {@link MetadataTemplate}s
  */
@@ -46,12 +48,13 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 	private UserRepository userRepository;
 	private ProjectUserJoinRepository pujRepository;
 	private UserGroupProjectJoinRepository userGroupProjectJoinRepository;
+	private ProjectMetadataFieldCatalog fieldCatalog;
 
 	@Autowired
 	public MetadataTemplateServiceImpl(MetadataTemplateRepository repository, MetadataFieldRepository fieldRepository,
 			Validator validator, MetadataRestrictionRepository metadataRestrictionRepository,
 			UserRepository userRepository, ProjectUserJoinRepository pujRepository,
-			UserGroupProjectJoinRepository userGroupProjectJoinRepository) {
+			UserGroupProjectJoinRepository userGroupProjectJoinRepository, ProjectMetadataFieldCatalog fieldCatalog) {
 		super(repository, validator, MetadataTemplate.class);
 		this.metadataTemplateRepository = repository;
 		this.fieldRepository = fieldRepository;
@@ -59,6 +62,7 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 		this.userRepository = userRepository;
 		this.pujRepository = pujRepository;
 		this.userGroupProjectJoinRepository = userGroupProjectJoinRepository;
+		this.fieldCatalog = fieldCatalog;
 	}
 
 	/**
@@ -126,6 +130,18 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 		return fieldRepository.findMetadataFieldByLabel(label);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@PreAuthorize("permitAll()")
+	@Override
+	public List<MetadataTemplateField> readMetadataFieldsByLabels(Collection<String> labels) {
+		if (labels.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return fieldRepository.findMetadataFieldsByLabels(labels);
+	}
+
 	@PreAuthorize("permitAll()")
 	@Override
 	public MetadataTemplateField readMetadataFieldByKey(String key) {
@@ -155,6 +171,21 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 		return fieldRepository.save(field);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@PreAuthorize("permitAll()")
+	@Override
+	@Transactional
+	public List<MetadataTemplateField> saveMetadataFields(Collection<MetadataTemplateField> fields) {
+		if (fields.stream()
+				.anyMatch(f -> f.getId() != null)) {
+			throw new IllegalArgumentException("Cannot save a MetadataField that has an ID");
+		}
+
+		return Lists.newArrayList(fieldRepository.saveAll(fields));
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -200,7 +231,10 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 	@PreAuthorize("hasPermission(#project, 'canReadProject')")
 	@Override
 	public List<MetadataTemplateField> getMetadataFieldsForProject(Project project) {
-		return fieldRepository.getMetadataFieldsForProject(project);
+		return fieldCatalog.getFields(project)
+				.stream()
+				.map(ProjectMetadataFieldCatalog.CatalogField::getField)
+				.collect(Collectors.toList());
 	}
 
 	@PreAuthorize("hasPermission(#project, 'canReadProject')")
@@ -254,7 +288,7 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 	private List<MetadataTemplateField> getPermittedFieldsForRole(Project project, ProjectMetadataRole role,
 			boolean includeTemplateFields) {
 		//get all fields for the project
-		List<MetadataTemplateField> metadataFieldsForProject = fieldRepository.getMetadataFieldsForProject(project);
+		List<MetadataTemplateField> metadataFieldsForProject = getMetadataFieldsForProject(project);
 
 		if (includeTemplateFields) {
 			//add all the metadata template fields to the list of fields to restrict
@@ -270,21 +304,17 @@ public class MetadataTemplateServiceImpl extends CRUDServiceImpl<Long, MetadataT
 			}
 		}
 
-		//get all restrictions for the project
-		List<MetadataRestriction> restrictionForProject = metadataRestrictionRepository.getRestrictionForProject(
-				project);
-
-		//collect the fields into a map
-		Map<MetadataTemplateField, MetadataRestriction> restrictionMap = restrictionForProject.stream()
-				.collect(Collectors.toMap(MetadataRestriction::getField, field -> field));
+		//get all restrictions for the project, keyed by field id
+		Map<Long, ProjectMetadataRole> restrictionMap = metadataRestrictionRepository.getRestrictionForProject(project)
+				.stream()
+				.collect(Collectors.toMap(r -> r.getField().getId(), MetadataRestriction::getLevel));
 
 		//for each field to check
 		List<MetadataTemplateField> filteredFields = metadataFieldsForProject.stream()
 				.filter(field -> {
 					//if the restriction map contains the field
-					if (restrictionMap.containsKey(field)) {
-						MetadataRestriction metadataRestriction = restrictionMap.get(field);
-						ProjectMetadataRole restrictionRole = metadataRestriction.getLevel();
+					if (restrictionMap.containsKey(field.getId())) {
+						ProjectMetadataRole restrictionRole = restrictionMap.get(field.getId());
 
 						//compare the restriction level to the given role.  If it's greater or equal, we're good
 						if (role.getLevel() >= restrictionRole.getLevel()) {
@@ -0,0 +1,571 @@
+package ca.corefacility.bioinformatics.irida.service.impl.sample;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.exceptions.StorageException;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUploadRow;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link MetadataUploadService} that stores each {@link MetadataUpload} in its
+ * own directory on disk.
+ * <p>
+ * Storage: uploads are kept under the sequence file base directory by default,
+ * so that any web server sharing that directory can serve the requests for an
+ * upload. A directory set in {@code irida.metadata.upload.directory} must also
+ * be shared by all of them.
+ * <p>
+ * Locking: writes to an upload hold a {@link FileLock} on a lock file in its
+ * directory, as well as a lock within this server since a {@link FileLock} is
+ * held by the whole JVM. On NFS these are POSIX locks, which need NFSv4 or a
+ * running lock daemon on NFSv3. A share mounted with {@code nolock} only locks
+ * within each server, and concurrent writes from two servers to the same upload
+ * could then lose rows. Reads don't lock: rows are only ever appended, a reader
+ * only reads the groups recorded in the {@link MetadataUpload} it was given,
+ * and the upload and error files are replaced by an atomic rename.
+ * <p>
+ * Cleanup: a user's uploads to a project are removed when they start another
+ * upload to it or close the uploader. Uploads the user walks away from are
+ * removed by {@link #removeExpiredUploads()}, which is scheduled hourly on
+ * every web server. It removes the uploads created more than
+ * {@code irida.metadata.upload.expiry} hours ago, and directories without an
+ * upload file. Removal is safe to run on several servers at once.
+ * <p>
+ * Rows are appended in groups. Within a group the values of each column are
+ * stored together, prefixed by the length of each column, so a page of rows
+ * reads one or two groups and a single column can be read without reading
+ * the others. The state of each row (the sample it was matched to and whether
+ * it was saved) is kept in a fixed width file so it can be updated in place.
+ */
+@Service
+public class MetadataUploadServiceImpl implements MetadataUploadService {
+	private static final Logger logger = LoggerFactory.getLogger(MetadataUploadServiceImpl.class);
+
+	private static final String UPLOAD_FILE = "upload.json";
+	private static final String ROWS_FILE = "rows";
+	private static final String STATE_FILE = "state";
+	private static final String ERRORS_FILE = "errors.json";
+	private static final String LOCK_FILE = "lock";
+
+	// found sample id and saved flag of each row
+	private static final int STATE_SIZE = Long.BYTES + 1;
+	private static final byte NOT_SAVED = 0;
+	private static final byte SAVED = 1;
+	private static final byte FAILED = 2;
+
+	private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f\\-]{36}");
+
+	private static final ObjectMapper objectMapper = new ObjectMapper()
+			.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+			.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final Path uploadDirectory;
+	private final Duration expiry;
+
+	// uploads are locked while rows or their state are written. A file lock
+	// keeps out other servers, but not other threads of this one.
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+	@Autowired
+	public MetadataUploadServiceImpl(
+			@Value("${irida.metadata.upload.directory:${sequence.file.base.directory}/.metadata-uploads}") Path uploadDirectory,
+			@Value("${irida.metadata.upload.expiry:24}") long expiryHours) {
+		this.uploadDirectory = uploadDirectory;
+		this.expiry = Duration.ofHours(expiryHours);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MetadataUpload createUpload(Long projectId, List<String> headers, String owner) {
+		MetadataUpload upload = new MetadataUpload(UUID.randomUUID().toString(), projectId, owner,
+				new ArrayList<>(headers));
+		try {
+			Files.createDirectories(uploadDirectory(upload.getId()));
+			Files.createFile(rowsFile(upload.getId()));
+			Files.createFile(stateFile(upload.getId()));
+			writeUpload(upload);
+		} catch (IOException e) {
+			throw new StorageException("Could not create metadata upload [" + upload.getId() + "]", e);
+		}
+
+		logger.debug("Created metadata upload [" + upload.getId() + "] for project " + projectId);
+		return upload;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public MetadataUpload getUpload(String uploadId, String owner) throws EntityNotFoundException {
+		if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+			throw new EntityNotFoundException("No metadata upload with id [" + uploadId + "]");
+		}
+
+		MetadataUpload upload = readUpload(uploadDirectory(uploadId));
+		// uploads belonging to other users are hidden
+		if (upload == null || !upload.getOwner().equals(owner)) {
+			throw new EntityNotFoundException("No metadata upload with id [" + uploadId + "]");
+		}
+		return upload;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateUpload(MetadataUpload upload) {
+		try {
+			locked(upload.getId(), () -> {
+				MetadataUpload stored = readUpload(uploadDirectory(upload.getId()));
+				if (stored == null) {
+					throw new NoSuchFileException(UPLOAD_FILE);
+				}
+				stored.setSampleNameColumn(upload.getSampleNameColumn());
+				stored.setInvalidSampleNames(upload.getInvalidSampleNames());
+				writeAtomically(upload.getId(), UPLOAD_FILE, stored);
+			});
+		} catch (NoSuchFileException e) {
+			throw new EntityNotFoundException("No metadata upload with id [" + upload.getId() + "]");
+		} catch (IOException e) {
+			throw new StorageException("Could not save metadata upload [" + upload.getId() + "]", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addRows(MetadataUpload upload, List<List<String>> rows) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		int columns = upload.getHeaders().size();
+
+		// collect the values of each column together
+		ByteArrayOutputStream[] chunks = new ByteArrayOutputStream[columns];
+		try {
+			for (int column = 0; column < columns; column++) {
+				chunks[column] = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(chunks[column]);
+				for (List<String> row : rows) {
+					writeValue(out, column < row.size() ? row.get(column) : null);
+				}
+			}
+
+			locked(upload.getId(), () -> {
+				Path rowsFile = rowsFile(upload.getId());
+				long offset = Files.size(rowsFile);
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+						Files.newOutputStream(rowsFile, StandardOpenOption.APPEND)))) {
+					out.writeInt(columns);
+					for (ByteArrayOutputStream chunk : chunks) {
+						out.writeInt(chunk.size());
+					}
+					for (ByteArrayOutputStream chunk : chunks) {
+						chunk.writeTo(out);
+					}
+				}
+				try (OutputStream out = Files.newOutputStream(stateFile(upload.getId()), StandardOpenOption.APPEND)) {
+					out.write(new byte[rows.size() * STATE_SIZE]);
+				}
+
+				upload.addGroup(offset, rows.size());
+				writeAtomically(upload.getId(), UPLOAD_FILE, upload);
+			});
+		} catch (IOException e) {
+			throw new StorageException("Could not add rows to metadata upload [" + upload.getId() + "]", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<MetadataUploadRow> getRows(MetadataUpload upload, int from, int count) {
+		int to = Math.min(upload.getRowCount(), from + count);
+		List<MetadataUploadRow> rows = new ArrayList<>(Math.max(0, to - from));
+		if (from >= to) {
+			return rows;
+		}
+
+		try (FileChannel channel = FileChannel.open(rowsFile(upload.getId()), StandardOpenOption.READ)) {
+			for (long[] group : upload.getGroups()) {
+				int first = (int) group[1];
+				int size = (int) group[2];
+				if (first + size <= from || first >= to) {
+					continue;
+				}
+
+				List<List<String>> columns = readGroup(channel, group, null);
+				for (int index = Math.max(from, first); index < Math.min(to, first + size); index++) {
+					List<String> values = new ArrayList<>(columns.size());
+					for (List<String> column : columns) {
+						values.add(column.get(index - first));
+					}
+					rows.add(new MetadataUploadRow(index, values, null, null, null));
+				}
+			}
+			readState(upload, rows);
+		} catch (IOException e) {
+			throw new StorageException("Could not read rows of metadata upload [" + upload.getId() + "]", e);
+		}
+		return rows;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<String> getColumn(MetadataUpload upload, String column, int from, int count) {
+		int columnIndex = upload.getHeaders().indexOf(column);
+		if (columnIndex < 0) {
+			throw new IllegalArgumentException("Metadata upload [" + upload.getId() + "] has no column " + column);
+		}
+
+		int to = Math.min(upload.getRowCount(), from + count);
+		List<String> values = new ArrayList<>(Math.max(0, to - from));
+		try (FileChannel channel = FileChannel.open(rowsFile(upload.getId()), StandardOpenOption.READ)) {
+			for (long[] group : upload.getGroups()) {
+				int first = (int) group[1];
+				int size = (int) group[2];
+				if (first + size <= from || first >= to) {
+					continue;
+				}
+				List<String> groupValues = readGroup(channel, group, columnIndex).get(0);
+				values.addAll(groupValues.subList(Math.max(from, first) - first, Math.min(to, first + size) - first));
+			}
+		} catch (IOException e) {
+			throw new StorageException("Could not read column of metadata upload [" + upload.getId() + "]", e);
+		}
+		return values;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void updateRows(MetadataUpload upload, Collection<MetadataUploadRow> rows) {
+		try {
+			locked(upload.getId(), () -> {
+				updateState(upload, rows);
+				updateErrors(upload, rows);
+			});
+		} catch (IOException e) {
+			throw new StorageException("Could not update rows of metadata upload [" + upload.getId() + "]", e);
+		}
+	}
+
+	private void updateState(MetadataUpload upload, Collection<MetadataUploadRow> rows) throws IOException {
+		try (FileChannel channel = FileChannel.open(stateFile(upload.getId()), StandardOpenOption.WRITE)) {
+			ByteBuffer state = ByteBuffer.allocate(STATE_SIZE);
+			for (MetadataUploadRow row : rows) {
+				state.clear();
+				state.putLong(row.getFoundSampleId() == null ? 0 : row.getFoundSampleId());
+				state.put(row.isSaved() == null ? NOT_SAVED : (row.isSaved() ? SAVED : FAILED));
+				state.flip();
+				long position = (long) row.getIndex() * STATE_SIZE;
+				while (state.hasRemaining()) {
+					position += channel.write(state, position);
+				}
+			}
+		}
+	}
+
+	private void updateErrors(MetadataUpload upload, Collection<MetadataUploadRow> rows) throws IOException {
+		SortedMap<Integer, String> errors = readErrors(upload.getId());
+		boolean changed = false;
+		for (MetadataUploadRow row : rows) {
+			String previous = row.getError() == null ?
+					errors.remove(row.getIndex()) :
+					errors.put(row.getIndex(), row.getError());
+			changed |= !Objects.equals(previous, row.getError());
+		}
+		if (changed) {
+			writeAtomically(upload.getId(), ERRORS_FILE, errors);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeUpload(String uploadId, String owner) {
+		getUpload(uploadId, owner);
+		deleteUploadDirectory(uploadDirectory(uploadId));
+		locks.remove(uploadId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int removeUploads(Long projectId, String owner) {
+		return removeUploads(upload -> upload.getProjectId()
+				.equals(projectId) && upload.getOwner()
+				.equals(owner));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int removeExpiredUploads() {
+		Date cutoff = Date.from(Instant.now()
+				.minus(expiry));
+		return removeUploads(upload -> upload.getCreatedDate()
+				.before(cutoff));
+	}
+
+	private int removeUploads(Predicate<MetadataUpload> remove) {
+		if (!Files.isDirectory(uploadDirectory)) {
+			return 0;
+		}
+
+		int removed = 0;
+		try (DirectoryStream<Path> uploads = Files.newDirectoryStream(uploadDirectory)) {
+			for (Path directory : uploads) {
+				try {
+					MetadataUpload upload = readUpload(directory);
+					if (upload == null || remove.test(upload)) {
+						logger.debug("Removing metadata upload [" + directory.getFileName() + "]");
+						deleteUploadDirectory(directory);
+						locks.remove(directory.getFileName()
+								.toString());
+						removed++;
+					}
+				} catch (StorageException e) {
+					logger.warn("Could not read metadata upload [" + directory + "]", e);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Could not list metadata uploads in [" + uploadDirectory + "]", e);
+		}
+		return removed;
+	}
+
+	/**
+	 * Read a group of rows.
+	 *
+	 * @param column
+	 *            the only column to read, or null to read all of them
+	 * @return the values of each column that was read
+	 */
+	private static List<List<String>> readGroup(FileChannel channel, long[] group, Integer column)
+			throws IOException {
+		int size = (int) group[2];
+		int columns = read(channel, group[0], Integer.BYTES).getInt();
+		ByteBuffer header = read(channel, group[0] + Integer.BYTES, Integer.BYTES * columns);
+		int[] lengths = new int[columns];
+		for (int i = 0; i < columns; i++) {
+			lengths[i] = header.getInt();
+		}
+
+		long position = group[0] + (long) Integer.BYTES * (columns + 1);
+		List<List<String>> values = new ArrayList<>();
+		for (int i = 0; i < columns; i++) {
+			if (column == null || column == i) {
+				ByteBuffer chunk = read(channel, position, lengths[i]);
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(chunk.array()));
+				List<String> columnValues = new ArrayList<>(size);
+				for (int row = 0; row < size; row++) {
+					columnValues.add(readValue(in));
+				}
+				values.add(columnValues);
+			}
+			position += lengths[i];
+		}
+		return values;
+	}
+
+	/**
+	 * Read the given number of bytes from a file, starting at a position
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new EOFException("Metadata upload is truncated at " + (position + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Fill in the found sample, saved state and error of the given rows
+	 */
+	private void readState(MetadataUpload upload, List<MetadataUploadRow> rows) throws IOException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		SortedMap<Integer, String> errors = readErrors(upload.getId());
+		try (FileChannel channel = FileChannel.open(stateFile(upload.getId()), StandardOpenOption.READ)) {
+			ByteBuffer state = read(channel, (long) rows.get(0)
+					.getIndex() * STATE_SIZE, rows.size() * STATE_SIZE);
+			for (MetadataUploadRow row : rows) {
+				long sampleId = state.getLong();
+				byte saved = state.get();
+				row.setFoundSampleId(sampleId == 0 ? null : sampleId);
+				row.setSaved(saved == NOT_SAVED ? null : saved == SAVED);
+				row.setError(errors.get(row.getIndex()));
+			}
+		}
+	}
+
+	private SortedMap<Integer, String> readErrors(String uploadId) throws IOException {
+		Path errorsFile = uploadDirectory(uploadId).resolve(ERRORS_FILE);
+		if (!Files.exists(errorsFile)) {
+			return new TreeMap<>();
+		}
+		return objectMapper.readValue(errorsFile.toFile(), new TypeReference<TreeMap<Integer, String>>() {
+		});
+	}
+
+	private static void writeValue(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readValue(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private Object lock(String uploadId) {
+		return locks.computeIfAbsent(uploadId, k -> new Object());
+	}
+
+	/**
+	 * Write to an upload while holding its lock, both within this server and
+	 * on the lock file in the upload's directory.
+	 *
+	 * @throws NoSuchFileException
+	 *             if the upload's directory doesn't exist
+	 */
+	private void locked(String uploadId, UploadWrite write) throws IOException {
+		synchronized (lock(uploadId)) {
+			try (FileChannel channel = FileChannel.open(uploadDirectory(uploadId).resolve(LOCK_FILE),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE); FileLock fileLock = channel.lock()) {
+				write.write();
+			}
+		}
+	}
+
+	/**
+	 * A write to an upload.
+	 */
+	@FunctionalInterface
+	private interface UploadWrite {
+		void write() throws IOException;
+	}
+
+	private Path uploadDirectory(String uploadId) {
+		return uploadDirectory.resolve(uploadId);
+	}
+
+	private Path rowsFile(String uploadId) {
+		return uploadDirectory(uploadId).resolve(ROWS_FILE);
+	}
+
+	private Path stateFile(String uploadId) {
+		return uploadDirectory(uploadId).resolve(STATE_FILE);
+	}
+
+	/**
+	 * Read the upload stored in a directory
+	 *
+	 * @return the upload, or null if the directory has no upload
+	 */
+	private static MetadataUpload readUpload(Path directory) {
+		try {
+			return objectMapper.readValue(directory.resolve(UPLOAD_FILE)
+					.toFile(), MetadataUpload.class);
+		} catch (NoSuchFileException | FileNotFoundException e) {
+			return null;
+		} catch (IOException e) {
+			throw new StorageException("Could not read metadata upload [" + directory.getFileName() + "]", e);
+		}
+	}
+
+	private void writeUpload(MetadataUpload upload) {
+		try {
+			writeAtomically(upload.getId(), UPLOAD_FILE, upload);
+		} catch (IOException e) {
+			throw new StorageException("Could not save metadata upload [" + upload.getId() + "]", e);
+		}
+	}
+
+	/**
+	 * Write a JSON file to a temporary file first so that a crash can't leave
+	 * a partial file.
+	 */
+	private void writeAtomically(String uploadId, String fileName, Object value) throws IOException {
+		Path directory = uploadDirectory(uploadId);
+		Path temp = Files.createTempFile(directory, fileName, null);
+		objectMapper.writeValue(temp.toFile(), value);
+		Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void deleteUploadDirectory(Path directory) {
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder())
+					.forEach(f -> {
+						try {
+							Files.deleteIfExists(f);
+						} catch (IOException e) {
+							logger.warn("Could not delete [" + f + "]", e);
+						}
+					});
+		} catch (NoSuchFileException e) {
+			logger.trace("Metadata upload [" + directory + "] was already removed");
+		} catch (IOException e) {
+			logger.warn("Could not delete metadata upload [" + directory + "]", e);
+		}
+	}
+}
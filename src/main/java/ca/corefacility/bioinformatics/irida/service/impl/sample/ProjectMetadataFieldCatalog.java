@@ -0,0 +1,222 @@
+package ca.corefacility.bioinformatics.irida.service.impl.sample;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import ca.corefacility.bioinformatics.irida.events.ProjectMetadataFieldsChangedEvent;
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectSampleJoinRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataFieldRepository;
+
+/**
+ * Caches the {@link MetadataTemplateField}s used by the samples of each {@link Project}, with the number of samples that
+ * have a value for each field, so that the line list and metadata pages don't have to go through the metadata entries
+ * of the whole project on every request. Restrictions on fields are not cached here since they decide what a user may
+ * read; they're read from the {@link ca.corefacility.bioinformatics.irida.repositories.sample.MetadataRestrictionRepository}
+ * every time.
+ * <p>
+ * The catalog of a project is updated field by field when a {@link ProjectMetadataFieldsChangedEvent} is published,
+ * and is read again after <code>project.metadata.field_catalog_expiry</code> seconds regardless. Events are only seen
+ * by the node that published them, so on a multi-node deployment another node's catalog may list a field that is no
+ * longer used, or miss a new one, for up to that many seconds.
+ */
+@Component
+public class ProjectMetadataFieldCatalog {
+	private static final Logger logger = LoggerFactory.getLogger(ProjectMetadataFieldCatalog.class);
+
+	private final MetadataFieldRepository fieldRepository;
+	private final ProjectSampleJoinRepository psjRepository;
+	private final long maxAgeNanos;
+
+	private final Map<Long, Catalog> catalogs = new ConcurrentHashMap<>();
+
+	// incremented on every change so that a load which started before the
+	// change doesn't put a stale catalog back into the cache
+	private final AtomicLong generation = new AtomicLong();
+
+	@Autowired
+	public ProjectMetadataFieldCatalog(final MetadataFieldRepository fieldRepository,
+			final ProjectSampleJoinRepository psjRepository,
+			@Value("${project.metadata.field_catalog_expiry:30}") final long expirySeconds) {
+		this.fieldRepository = fieldRepository;
+		this.psjRepository = psjRepository;
+		this.maxAgeNanos = Duration.ofSeconds(expirySeconds).toNanos();
+	}
+
+	/**
+	 * Get the fields that samples in a {@link Project} have a value for
+	 *
+	 * @param project the project to get fields for
+	 * @return the fields used in the project
+	 */
+	public List<CatalogField> getFields(final Project project) {
+		return new ArrayList<>(getCatalog(project).fields.values());
+	}
+
+	private Catalog getCatalog(final Project project) {
+		final Catalog cached = catalogs.get(project.getId());
+		if (cached != null && System.nanoTime() - cached.loadedAt < maxAgeNanos) {
+			return cached;
+		}
+
+		final long loadingGeneration = generation.get();
+		final Map<Long, Long> usage = fieldRepository.getMetadataFieldUsageForProject(project);
+
+		final Map<Long, CatalogField> fields = new HashMap<>();
+		if (!usage.isEmpty()) {
+			for (MetadataTemplateField field : fieldRepository.findAllById(usage.keySet())) {
+				fields.put(field.getId(), new CatalogField(field, usage.get(field.getId())));
+			}
+		}
+		logger.trace("Loaded " + fields.size() + " metadata fields for project [" + project.getId() + "]");
+
+		final Catalog loaded = new Catalog(fields, System.nanoTime());
+		catalogs.compute(project.getId(), (k, current) -> generation.get() == loadingGeneration ? loaded : current);
+		return loaded;
+	}
+
+	/**
+	 * Update the cached catalogs once the change that published the event is committed.
+	 *
+	 * @param event the metadata change
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void fieldsChanged(final ProjectMetadataFieldsChangedEvent event) {
+		generation.incrementAndGet();
+		final Map<Long, Map<Long, Integer>> sampleChanges = event.getSampleFieldChanges();
+		if (sampleChanges == null) {
+			logger.trace("Clearing metadata fields for project [" + event.getProjectId() + "]");
+			catalogs.remove(event.getProjectId());
+			return;
+		} else if (sampleChanges.isEmpty()) {
+			return;
+		}
+
+		// total the changes to each field for the samples in each cached project
+		final Map<Long, Map<Long, Integer>> projectChanges = new HashMap<>();
+		if (event.getProjectId() != null) {
+			if (catalogs.containsKey(event.getProjectId())) {
+				final Map<Long, Integer> changes = new HashMap<>();
+				sampleChanges.values().forEach(fieldChanges -> addChanges(changes, fieldChanges));
+				projectChanges.put(event.getProjectId(), changes);
+			}
+		} else if (!catalogs.isEmpty()) {
+			// find the projects of all the samples at once, skipping the projects that aren't cached
+			for (Object[] projectSample : psjRepository.getProjectIdsForSamples(sampleChanges.keySet())) {
+				final Long projectId = (Long) projectSample[0];
+				if (catalogs.containsKey(projectId)) {
+					addChanges(projectChanges.computeIfAbsent(projectId, k -> new HashMap<>()),
+							sampleChanges.get((Long) projectSample[1]));
+				}
+			}
+		}
+
+		// read the fields that are new to a project
+		final Set<Long> newFieldIds = new HashSet<>();
+		projectChanges.forEach((projectId, changes) -> {
+			final Catalog catalog = catalogs.get(projectId);
+			changes.forEach((fieldId, change) -> {
+				if (change > 0 && catalog != null && !catalog.fields.containsKey(fieldId)) {
+					newFieldIds.add(fieldId);
+				}
+			});
+		});
+		final Map<Long, MetadataTemplateField> newFields = new HashMap<>();
+		if (!newFieldIds.isEmpty()) {
+			fieldRepository.findAllById(newFieldIds).forEach(field -> newFields.put(field.getId(), field));
+		}
+
+		projectChanges.forEach((projectId, changes) -> {
+			logger.trace("Updating metadata fields for project [" + projectId + "]");
+			catalogs.computeIfPresent(projectId, (k, catalog) -> {
+				// a catalog loaded after the event was created may already include the change, so read it again
+				if (catalog.loadedAt >= event.getCreatedAt()) {
+					return null;
+				}
+				return catalog.withChanges(changes, newFields);
+			});
+		});
+	}
+
+	/**
+	 * Add the changes to the fields of a sample to the total changes
+	 *
+	 * @param changes      the total change to the number of samples with each field
+	 * @param fieldChanges the change to each field of a sample
+	 */
+	private static void addChanges(final Map<Long, Integer> changes, final Map<Long, Integer> fieldChanges) {
+		fieldChanges.forEach((fieldId, change) -> changes.merge(fieldId, change, Integer::sum));
+	}
+
+	/**
+	 * A {@link MetadataTemplateField} used in a {@link Project}
+	 */
+	public static class CatalogField {
+		private final MetadataTemplateField field;
+		private final long sampleCount;
+
+		private CatalogField(final MetadataTemplateField field, final long sampleCount) {
+			this.field = field;
+			this.sampleCount = sampleCount;
+		}
+
+		public MetadataTemplateField getField() {
+			return field;
+		}
+
+		/**
+		 * Get the number of samples in the project that have a value for the field
+		 *
+		 * @return the number of samples
+		 */
+		public long getSampleCount() {
+			return sampleCount;
+		}
+	}
+
+	/**
+	 * The fields of a project as they were loaded, plus the changes since
+	 */
+	private static class Catalog {
+		private final Map<Long, CatalogField> fields;
+		private final long loadedAt;
+
+		private Catalog(final Map<Long, CatalogField> fields, final long loadedAt) {
+			this.fields = fields;
+			this.loadedAt = loadedAt;
+		}
+
+		/**
+		 * Apply the changes in the number of samples with a value for each field
+		 *
+		 * @param changes   the change in the number of samples keyed by field id
+		 * @param newFields fields that may not be in the catalog yet, keyed by id
+		 * @return the updated catalog
+		 */
+		private Catalog withChanges(final Map<Long, Integer> changes, final Map<Long, MetadataTemplateField> newFields) {
+			final Map<Long, CatalogField> updated = new HashMap<>(fields);
+			changes.forEach((fieldId, change) -> {
+				final CatalogField current = updated.get(fieldId);
+				final long count = (current == null ? 0 : current.sampleCount) + change;
+				if (count <= 0) {
+					updated.remove(fieldId);
+				} else if (current != null) {
+					updated.put(fieldId, new CatalogField(current.field, count));
+				} else if (newFields.containsKey(fieldId)) {
+					updated.put(fieldId, new CatalogField(newFields.get(fieldId), count));
+				}
+			});
+			return new Catalog(updated, loadedAt);
+		}
+	}
+}
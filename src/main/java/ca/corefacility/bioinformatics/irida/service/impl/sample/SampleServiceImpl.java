@@ -12,6 +12,7 @@ import javax.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -25,6 +26,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import ca.corefacility.bioinformatics.irida.events.ProjectMetadataFieldsChangedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.InvalidPropertyException;
 import ca.corefacility.bioinformatics.irida.exceptions.SequenceFileAnalysisException;
@@ -42,6 +44,8 @@ import ca.corefacility.bioinformatics.irida.model.sample.Sample;
 import ca.corefacility.bioinformatics.irida.model.sample.SampleSequencingObjectJoin;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.ProjectMetadataResponse;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.model.user.User;
@@ -55,6 +59,7 @@ import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleGeno
 import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleSequencingObjectJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.QCEntryRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.SampleMetadataSummaryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.SampleRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.specification.ProjectSampleJoinSpecification;
@@ -66,6 +71,7 @@ import ca.corefacility.bioinformatics.irida.service.impl.CRUDServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -104,6 +110,10 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 
 	private final MetadataEntryRepository metadataEntryRepository;
 
+	private final SampleMetadataSummaryRepository metadataSummaryRepository;
+
+	private final ApplicationEventPublisher eventPublisher;
+
 	/**
 	 * Constructor.
 	 *
@@ -116,6 +126,8 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 	 * @param sampleGenomeAssemblyJoinRepository A {@link SampleGenomeAssemblyJoinRepository}
 	 * @param userRepository                     A {@link UserRepository}
 	 * @param metadataEntryRepository            A {@link MetadataEntryRepository}
+	 * @param metadataSummaryRepository          A {@link SampleMetadataSummaryRepository}
+	 * @param eventPublisher                     publisher for changes to the metadata fields of projects
 	 * @param validator                          validator.
 	 */
 	@Autowired
@@ -123,7 +135,8 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 			final AnalysisRepository analysisRepository, SampleSequencingObjectJoinRepository ssoRepository,
 			QCEntryRepository qcEntryRepository, SequencingObjectRepository sequencingObjectRepository,
 			SampleGenomeAssemblyJoinRepository sampleGenomeAssemblyJoinRepository, UserRepository userRepository,
-			MetadataEntryRepository metadataEntryRepository, Validator validator) {
+			MetadataEntryRepository metadataEntryRepository, SampleMetadataSummaryRepository metadataSummaryRepository,
+			ApplicationEventPublisher eventPublisher, Validator validator) {
 		super(sampleRepository, validator, Sample.class);
 		this.sampleRepository = sampleRepository;
 		this.psjRepository = psjRepository;
@@ -134,6 +147,8 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 		this.userRepository = userRepository;
 		this.sampleGenomeAssemblyJoinRepository = sampleGenomeAssemblyJoinRepository;
 		this.metadataEntryRepository = metadataEntryRepository;
+		this.metadataSummaryRepository = metadataSummaryRepository;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -232,6 +247,8 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 		}
 
 		metadataEntryRepository.saveAll(metadataToSet);
+		updateMetadataSummaries(Map.of(s, metadataToSet));
+		publishFieldChanges(Map.of(s.getId(), getFieldIds(currentMetadata)), Map.of(s, metadataToSet));
 
 		s = read(s.getId());
 		s.setModifiedDate(new Date());
@@ -244,22 +261,130 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 	/**
 	 * {@inheritDoc}
 	 */
-	@PreAuthorize("hasPermission(#s, 'canUpdateSample')")
+	@PreAuthorize("hasPermission(#project, 'isProjectOwner')")
 	@Transactional
-	public Sample mergeSampleMetadata(Sample s, Set<MetadataEntry> metadataToAdd) {
-		Set<MetadataEntry> currentMetadata = getMetadataForSample(s);
+	public List<Sample> mergeSampleMetadata(Project project, Map<Sample, Set<MetadataEntry>> metadataToAdd) {
+		if (metadataToAdd.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		// managing the project is only enough to update the samples it owns
+		Set<Long> ownedSamples = new HashSet<>(psjRepository.getOwnedSamplesInProject(project, metadataToAdd.keySet()));
+		List<Sample> notOwned = metadataToAdd.keySet()
+				.stream()
+				.filter(s -> !ownedSamples.contains(s.getId()))
+				.collect(Collectors.toList());
+		if (!notOwned.isEmpty()) {
+			throw new IllegalArgumentException(
+					"Samples " + notOwned + " are not owned by project [" + project.getId() + "]");
+		}
+
+		Map<Long, Set<MetadataEntry>> currentMetadata = metadataEntryRepository.getMetadataForSamples(
+						metadataToAdd.keySet())
+				.stream()
+				.collect(Collectors.groupingBy(e -> e.getSample()
+						.getId(), Collectors.toSet()));
+
+		Map<Long, Set<Long>> currentFields = new HashMap<>();
+		currentMetadata.forEach((sampleId, entries) -> currentFields.put(sampleId, getFieldIds(entries)));
+
+		List<MetadataEntry> toDelete = new ArrayList<>();
+		List<MetadataEntry> toSave = new ArrayList<>();
+		Map<Sample, Set<MetadataEntry>> mergedMetadata = new HashMap<>();
+		for (Map.Entry<Sample, Set<MetadataEntry>> sampleMetadata : metadataToAdd.entrySet()) {
+			Sample s = sampleMetadata.getKey();
+			Set<MetadataEntry> sampleCurrentMetadata = currentMetadata.getOrDefault(s.getId(), new HashSet<>());
+
+			toDelete.addAll(mergeMetadata(s, sampleCurrentMetadata, sampleMetadata.getValue()));
+			toSave.addAll(sampleCurrentMetadata);
+			mergedMetadata.put(s, sampleCurrentMetadata);
+		}
+
+		// metadata entries have identity ids, so Hibernate inserts new entries one statement at a time. Only the
+		// updates, deletes and audit rows are sent in JDBC batches.
+		metadataEntryRepository.deleteAll(toDelete);
+		metadataEntryRepository.saveAll(toSave);
+		updateMetadataSummaries(mergedMetadata);
+		publishFieldChanges(currentFields, mergedMetadata);
+
+		List<Sample> samples = Lists.newArrayList(sampleRepository.findAllById(ownedSamples));
+		Date modifiedDate = new Date();
+		for (Sample s : samples) {
+			s.setModifiedDate(modifiedDate);
+		}
+		// re-saving samples to update modified date
+		return Lists.newArrayList(sampleRepository.saveAll(samples));
+	}
+
+	/**
+	 * Rewrite the {@link SampleMetadataSummary} of each {@link Sample} after its metadata was saved.
+	 *
+	 * @param metadata all the saved metadata of each sample
+	 */
+	private void updateMetadataSummaries(Map<Sample, Set<MetadataEntry>> metadata) {
+		Map<Long, Map<Long, MetadataValue>> summaries = new HashMap<>();
+		for (Map.Entry<Sample, Set<MetadataEntry>> sampleMetadata : metadata.entrySet()) {
+			summaries.put(sampleMetadata.getKey().getId(), SampleMetadataSummary.summarize(sampleMetadata.getValue()));
+		}
+		metadataSummaryRepository.saveSummaries(summaries);
+	}
+
+	/**
+	 * Publish the fields each {@link Sample} gained or lost a value for, so that the cached fields of the projects the
+	 * samples are in can be updated.
+	 *
+	 * @param before the ids of the fields each sample had a value for before the change, keyed by sample id
+	 * @param after  all the saved metadata of each sample
+	 */
+	private void publishFieldChanges(Map<Long, Set<Long>> before, Map<Sample, Set<MetadataEntry>> after) {
+		Map<Long, Map<Long, Integer>> changes = new HashMap<>();
+		for (Map.Entry<Sample, Set<MetadataEntry>> sampleMetadata : after.entrySet()) {
+			Long sampleId = sampleMetadata.getKey().getId();
+			Set<Long> previous = before.getOrDefault(sampleId, Collections.emptySet());
+			Set<Long> current = getFieldIds(sampleMetadata.getValue());
+
+			Map<Long, Integer> sampleChanges = new HashMap<>();
+			current.stream().filter(f -> !previous.contains(f)).forEach(f -> sampleChanges.put(f, 1));
+			previous.stream().filter(f -> !current.contains(f)).forEach(f -> sampleChanges.put(f, -1));
+			if (!sampleChanges.isEmpty()) {
+				changes.put(sampleId, sampleChanges);
+			}
+		}
+
+		if (!changes.isEmpty()) {
+			eventPublisher.publishEvent(ProjectMetadataFieldsChangedEvent.forSamples(changes));
+		}
+	}
+
+	private static Set<Long> getFieldIds(Collection<MetadataEntry> entries) {
+		return entries.stream().map(e -> e.getField().getId()).collect(Collectors.toSet());
+	}
+
+	/**
+	 * Merge new metadata into the current metadata of a {@link Sample}. Entries for a field the sample already has are
+	 * merged into the existing entry when they are the same type, otherwise they replace it.
+	 *
+	 * @param s               the sample being updated
+	 * @param currentMetadata the current metadata of the sample, updated with the new metadata
+	 * @param metadataToAdd   the metadata to add
+	 * @return the existing entries that were replaced and must be deleted
+	 */
+	private static List<MetadataEntry> mergeMetadata(Sample s, Set<MetadataEntry> currentMetadata,
+			Set<MetadataEntry> metadataToAdd) {
+		List<MetadataEntry> replaced = new ArrayList<>();
+		Map<MetadataTemplateField, MetadataEntry> currentByField = new HashMap<>();
+		for (MetadataEntry e : currentMetadata) {
+			currentByField.putIfAbsent(e.getField(), e);
+		}
 
 		// loop through entry set and see if it already exists
 		for (MetadataEntry newMetadataEntry : metadataToAdd) {
 			MetadataTemplateField field = newMetadataEntry.getField();
 			newMetadataEntry.setSample(s);
 
-			Optional<MetadataEntry> metadataEntryForField = currentMetadata.stream()
-					.filter(e -> e.getField().equals(field))
-					.findFirst();
+			MetadataEntry originalMetadataEntry = currentByField.get(field);
 
-			if (metadataEntryForField.isPresent()) {
-				MetadataEntry originalMetadataEntry = metadataEntryForField.get();
+			if (originalMetadataEntry != null) {
 
 				// if the metadata entries are of the same type, I can directly merge
 				if (originalMetadataEntry.getClass().equals(newMetadataEntry.getClass())) {
@@ -268,16 +393,33 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 					// if they are different types, I need to replace the
 					// metadata entry instead of merging
 					currentMetadata.remove(originalMetadataEntry);
-					metadataEntryRepository.delete(originalMetadataEntry);
+					replaced.add(originalMetadataEntry);
 
 					currentMetadata.add(newMetadataEntry);
+					currentByField.put(field, newMetadataEntry);
 				}
 			} else {
 				currentMetadata.add(newMetadataEntry);
+				currentByField.put(field, newMetadataEntry);
 			}
 		}
 
+		return replaced;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@PreAuthorize("hasPermission(#s, 'canUpdateSample')")
+	@Transactional
+	public Sample mergeSampleMetadata(Sample s, Set<MetadataEntry> metadataToAdd) {
+		Set<MetadataEntry> currentMetadata = getMetadataForSample(s);
+		Set<Long> currentFields = getFieldIds(currentMetadata);
+
+		metadataEntryRepository.deleteAll(mergeMetadata(s, currentMetadata, metadataToAdd));
 		metadataEntryRepository.saveAll(currentMetadata);
+		updateMetadataSummaries(Map.of(s, currentMetadata));
+		publishFieldChanges(Map.of(s.getId(), currentFields), Map.of(s, currentMetadata));
 
 		s = read(s.getId());
 		s.setModifiedDate(new Date());
@@ -337,6 +479,19 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	@PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_SEQUENCER') or hasPermission(#project, 'canReadProject')")
+	public List<ProjectSampleJoin> getSamplesInProjectByName(Project project, Collection<String> sampleNames) {
+		if (sampleNames.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return psjRepository.getSamplesInProjectByName(project, sampleNames);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -422,6 +577,16 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 				sampleGenomeAssemblyJoinRepository.save(newJoin);
 			}
 
+			// the metadata of the deleted sample no longer counts towards any of its projects
+			Map<Long, Integer> removedFields = new HashMap<>();
+			metadataEntryRepository.getFieldIdsForSample(s).forEach(f -> removedFields.put(f, -1));
+			if (!removedFields.isEmpty()) {
+				for (Join<Project, Sample> join : psjRepository.getProjectForSample(s)) {
+					eventPublisher.publishEvent(ProjectMetadataFieldsChangedEvent.forSamplesInProject(join.getSubject()
+							.getId(), Map.of(s.getId(), removedFields)));
+				}
+			}
+
 			// have to remove the sample to be deleted from its project:
 			ProjectSampleJoin readSampleForProject = psjRepository.readSampleForProject(project, s);
 			psjRepository.delete(readSampleForProject);
@@ -563,6 +728,7 @@ public class SampleServiceImpl extends CRUDServiceImpl<Long, Sample> implements
 	public Page<ProjectSampleJoin> getFilteredProjectSamples(List<Project> projects,
 			ProjectSampleJoinSpecification filterSpec, int currentPage, int pageSize, Sort sort) {
 		filterSpec.add(new SearchCriteria("project", projects, SearchOperation.IN));
+		sort = filterSpec.applySort(sort);
 
 		return psjRepository.findAll(filterSpec, PageRequest.of(currentPage, pageSize, sort));
 	}
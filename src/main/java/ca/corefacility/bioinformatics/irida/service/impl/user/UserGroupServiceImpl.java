@@ -12,6 +12,7 @@ import javax.validation.ConstraintViolationException;
 import javax.validation.Validator;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +26,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import ca.corefacility.bioinformatics.irida.events.ProjectMembershipChangedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.EntityExistsException;
 import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.UserGroupWithoutOwnerException;
@@ -52,6 +54,7 @@ public class UserGroupServiceImpl extends CRUDServiceImpl<Long, UserGroup> imple
 	private final UserGroupProjectJoinRepository userGroupProjectJoinRepository;
 	private final UserGroupRepository userGroupRepository;
 	private final ProjectSubscriptionService projectSubscriptionService;
+	private final ApplicationEventPublisher eventPublisher;
 
 	/**
 	 * Create a new {@link UserGroupServiceImpl}.
@@ -61,19 +64,23 @@ public class UserGroupServiceImpl extends CRUDServiceImpl<Long, UserGroup> imple
 	 * @param userRepository                 the {@link UserRepository}
 	 * @param userGroupProjectJoinRepository The {@link UserGroupProjectJoinRepository}
 	 * @param projectSubscriptionService     The {@link ProjectSubscriptionService}
+	 * @param eventPublisher                 publisher for changes to the projects
+	 *                                       users can read through their groups
 	 * @param validator                      the {@link Validator}
 	 */
 	@Autowired
 	public UserGroupServiceImpl(final UserGroupRepository userGroupRepository,
 			final UserGroupJoinRepository userGroupJoinRepository, final UserRepository userRepository,
 			final UserGroupProjectJoinRepository userGroupProjectJoinRepository,
-			final ProjectSubscriptionService projectSubscriptionService, final Validator validator) {
+			final ProjectSubscriptionService projectSubscriptionService,
+			final ApplicationEventPublisher eventPublisher, final Validator validator) {
 		super(userGroupRepository, validator, UserGroup.class);
 		this.userGroupRepository = userGroupRepository;
 		this.userGroupJoinRepository = userGroupJoinRepository;
 		this.userRepository = userRepository;
 		this.userGroupProjectJoinRepository = userGroupProjectJoinRepository;
 		this.projectSubscriptionService = projectSubscriptionService;
+		this.eventPublisher = eventPublisher;
 	}
 
 	/**
@@ -115,6 +122,7 @@ public class UserGroupServiceImpl extends CRUDServiceImpl<Long, UserGroup> imple
 	@PreAuthorize("hasRole('ROLE_ADMIN') or hasPermission(#id, 'canUpdateUserGroup')")
 	public void delete(Long id) throws EntityNotFoundException {
 		super.delete(id);
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forAllUsers());
 	}
 
 	/**
@@ -231,8 +239,9 @@ public class UserGroupServiceImpl extends CRUDServiceImpl<Long, UserGroup> imple
 			projectSubscriptionService.addProjectSubscriptionForProjectAndUser(project, user);
 		}
 
-		final UserGroupJoin join = new UserGroupJoin(user, userGroup, role);
-		return userGroupJoinRepository.save(join);
+		final UserGroupJoin join = userGroupJoinRepository.save(new UserGroupJoin(user, userGroup, role));
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forUser(user.getUsername()));
+		return join;
 	}
 
 	/**
@@ -274,6 +283,7 @@ public class UserGroupServiceImpl extends CRUDServiceImpl<Long, UserGroup> imple
 		}
 
 		userGroupJoinRepository.delete(join);
+		eventPublisher.publishEvent(ProjectMembershipChangedEvent.forUser(user.getUsername()));
 	}
 
 	/**
@@ -1,5 +1,6 @@
 package ca.corefacility.bioinformatics.irida.service.sample;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,6 +68,15 @@ public interface MetadataTemplateService extends CRUDService<Long, MetadataTempl
 	 */
 	public MetadataTemplateField readMetadataFieldByLabel(String label);
 
+	/**
+	 * Get the {@link MetadataTemplateField}s with any of the given {@link String} labels
+	 *
+	 * @param labels the {@link String} labels for the
+	 *               {@link MetadataTemplateField}s.
+	 * @return the {@link MetadataTemplateField}s that exist
+	 */
+	public List<MetadataTemplateField> readMetadataFieldsByLabels(Collection<String> labels);
+
 	/**
 	 * Read a {@link MetadataTemplateField} by its key
 	 *
@@ -90,6 +100,14 @@ public interface MetadataTemplateService extends CRUDService<Long, MetadataTempl
 	 */
 	public MetadataTemplateField saveMetadataField(MetadataTemplateField field);
 
+	/**
+	 * Save a batch of new metadata fields
+	 *
+	 * @param fields the {@link MetadataTemplateField}s to save.
+	 * @return the saved {@link MetadataTemplateField}s
+	 */
+	public List<MetadataTemplateField> saveMetadataFields(Collection<MetadataTemplateField> fields);
+
 	/**
 	 * Get a list of all {@link MetadataTemplateField}s that contain the query
 	 *
@@ -0,0 +1,135 @@
+package ca.corefacility.bioinformatics.irida.service.sample;
+
+import java.util.Collection;
+import java.util.List;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUploadRow;
+
+/**
+ * Service for storing uploaded sample metadata while it is reviewed and saved,
+ * keeping the rows out of the user's session. Uploads are only visible to the
+ * user that created them, and are removed when the user starts another upload
+ * to the same project, closes the uploader, or when they expire.
+ */
+public interface MetadataUploadService {
+
+	/**
+	 * The number of rows that should be added to an upload at a time
+	 */
+	public static final int ROWS_PER_GROUP = 1000;
+
+	/**
+	 * Start a new upload
+	 *
+	 * @param projectId
+	 *            the id of the project the metadata will be saved to
+	 * @param headers
+	 *            the column headers of the uploaded file
+	 * @param owner
+	 *            the name of the user uploading the metadata
+	 * @return the new {@link MetadataUpload}, without any rows
+	 */
+	public MetadataUpload createUpload(Long projectId, List<String> headers, String owner);
+
+	/**
+	 * Read an upload
+	 *
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user reading the upload
+	 * @return the {@link MetadataUpload}
+	 * @throws EntityNotFoundException
+	 *             if the upload doesn't exist or belongs to another user
+	 */
+	public MetadataUpload getUpload(String uploadId, String owner) throws EntityNotFoundException;
+
+	/**
+	 * Save changes to the sample name column of an upload
+	 *
+	 * @param upload
+	 *            the {@link MetadataUpload} to save
+	 */
+	public void updateUpload(MetadataUpload upload);
+
+	/**
+	 * Add a group of rows to the end of an upload. Rows should be added
+	 * {@link #ROWS_PER_GROUP} at a time.
+	 *
+	 * @param upload
+	 *            the {@link MetadataUpload} to add the rows to, updated with
+	 *            the new row count
+	 * @param rows
+	 *            the values of each row, in the same order as the headers
+	 */
+	public void addRows(MetadataUpload upload, List<List<String>> rows);
+
+	/**
+	 * Read a page of rows from an upload
+	 *
+	 * @param upload
+	 *            the {@link MetadataUpload} to read
+	 * @param from
+	 *            the index of the first row to read
+	 * @param count
+	 *            the maximum number of rows to read
+	 * @return the rows, in the order they were uploaded
+	 */
+	public List<MetadataUploadRow> getRows(MetadataUpload upload, int from, int count);
+
+	/**
+	 * Read the values of a single column of an upload
+	 *
+	 * @param upload
+	 *            the {@link MetadataUpload} to read
+	 * @param column
+	 *            the header of the column
+	 * @param from
+	 *            the index of the first row to read
+	 * @param count
+	 *            the maximum number of rows to read
+	 * @return the values of the column, with null for empty cells
+	 */
+	public List<String> getColumn(MetadataUpload upload, String column, int from, int count);
+
+	/**
+	 * Save the sample that was found for, and the saved state and error of,
+	 * each of the given rows
+	 *
+	 * @param upload
+	 *            the {@link MetadataUpload} the rows belong to
+	 * @param rows
+	 *            the rows to update
+	 */
+	public void updateRows(MetadataUpload upload, Collection<MetadataUploadRow> rows);
+
+	/**
+	 * Delete an upload
+	 *
+	 * @param uploadId
+	 *            the id of the upload
+	 * @param owner
+	 *            the name of the user deleting the upload
+	 */
+	public void removeUpload(String uploadId, String owner);
+
+	/**
+	 * Delete all of a user's uploads to a project
+	 *
+	 * @param projectId
+	 *            the id of the project
+	 * @param owner
+	 *            the name of the user
+	 * @return the number of uploads that were deleted
+	 */
+	public int removeUploads(Long projectId, String owner);
+
+	/**
+	 * Delete uploads that were created longer ago than the configured expiry
+	 *
+	 * @return the number of uploads that were deleted
+	 */
+	public int removeExpiredUploads();
+}
@@ -62,6 +62,18 @@ public interface SampleService extends CRUDService<Long, Sample> {
 	 */
 	public Sample mergeSampleMetadata(Sample sample, Set<MetadataEntry> metadataToAdd);
 
+	/**
+	 * Merge the given sets of {@link MetadataEntry} into many {@link Sample}s owned by a {@link Project} at once. This
+	 * will replace existing metadata that matches and add the new data to each sample, the same as
+	 * {@link #mergeSampleMetadata(Sample, Set)}, but reads the current metadata of all of the samples together and
+	 * writes all of the changes in one transaction.
+	 *
+	 * @param project       the {@link Project} that owns all of the samples
+	 * @param metadataToAdd the metadata to add to each sample
+	 * @return the updated samples
+	 */
+	public List<Sample> mergeSampleMetadata(Project project, Map<Sample, Set<MetadataEntry>> metadataToAdd);
+
 	/**
 	 * Get the {@link MetadataEntry} set associated with the given {@link Sample}
 	 *
@@ -165,6 +177,15 @@ public interface SampleService extends CRUDService<Long, Sample> {
 	 */
 	public Sample getSampleBySampleName(Project project, String sampleName);
 
+	/**
+	 * Get the {@link Sample}s in a {@link Project} with any of the given names.
+	 *
+	 * @param project     the {@link Project} that the {@link Sample}s belong to.
+	 * @param sampleNames the names of the requested samples
+	 * @return the {@link ProjectSampleJoin}s for the samples that were found
+	 */
+	public List<ProjectSampleJoin> getSamplesInProjectByName(Project project, Collection<String> sampleNames);
+
 	/**
 	 * Remove a {@link SequencingObject} from a given {@link Sample}. This will delete the
 	 * {@link SampleSequencingObjectJoin} object
@@ -225,7 +246,8 @@ public interface SampleService extends CRUDService<Long, Sample> {
 	 * @param filterSpec  {@link ProjectSampleJoinSpecification}
 	 * @param currentPage {@link Integer} the current page the table is on.
 	 * @param pageSize    {@link Integer} the number of {@link ProjectSampleJoin} in the {@link Page}.
-	 * @param sort        {@link Sort} chained sort definitions to sort page by.
+	 * @param sort        {@link Sort} chained sort definitions to sort page by.  These can include metadata fields
+	 *                    keyed by {@link ProjectSampleJoinSpecification#getMetadataKey}.
 	 * @return a {@link Page} of {@link ProjectSampleJoin} that are filtered and sorted.
 	 */
 	public Page<ProjectSampleJoin> getFilteredProjectSamples(List<Project> projects,
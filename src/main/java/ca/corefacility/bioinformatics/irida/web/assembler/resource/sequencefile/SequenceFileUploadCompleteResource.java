@@ -0,0 +1,52 @@
+package ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+
+/**
+ * Request body used to complete {@link SequenceFileUploadSession}s. A single
+ * upload is completed with its sha256, while a pair of uploads is completed
+ * with the ids of the forward (<code>file1</code>) and reverse
+ * (<code>file2</code>) uploads, which must have been started with their
+ * sha256.
+ */
+public class SequenceFileUploadCompleteResource {
+	private String sha256;
+	private Long miseqRunId;
+	private String file1;
+	private String file2;
+
+	public SequenceFileUploadCompleteResource() {
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+
+	public void setSha256(String sha256) {
+		this.sha256 = sha256;
+	}
+
+	public Long getMiseqRunId() {
+		return miseqRunId;
+	}
+
+	public void setMiseqRunId(Long miseqRunId) {
+		this.miseqRunId = miseqRunId;
+	}
+
+	public String getFile1() {
+		return file1;
+	}
+
+	public void setFile1(String file1) {
+		this.file1 = file1;
+	}
+
+	public String getFile2() {
+		return file2;
+	}
+
+	public void setFile2(String file2) {
+		this.file2 = file2;
+	}
+}
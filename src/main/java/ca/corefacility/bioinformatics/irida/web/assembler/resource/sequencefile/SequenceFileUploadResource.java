@@ -0,0 +1,45 @@
+package ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+
+/**
+ * Request body used to start a {@link SequenceFileUploadSession}.
+ */
+public class SequenceFileUploadResource {
+	private String fileName;
+	private long size;
+	private String sha256;
+
+	public SequenceFileUploadResource() {
+	}
+
+	public SequenceFileUploadResource(String fileName, long size, String sha256) {
+		this.fileName = fileName;
+		this.size = size;
+		this.sha256 = sha256;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getSha256() {
+		return sha256;
+	}
+
+	public void setSha256(String sha256) {
+		this.sha256 = sha256;
+	}
+}
@@ -0,0 +1,284 @@
+package ca.corefacility.bioinformatics.irida.web.controller.api.samples;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.io.IOException;
+import java.security.Principal;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.model.enums.SequencingRunUploadStatus;
+import ca.corefacility.bioinformatics.irida.model.run.SequencingRun;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sample.SampleSequencingObjectJoin;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFilePair;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
+import ca.corefacility.bioinformatics.irida.service.SequenceFileUploadService;
+import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
+import ca.corefacility.bioinformatics.irida.service.SequencingRunService;
+import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.ResponseResource;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.RootResource;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile.SequenceFileUploadCompleteResource;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile.SequenceFileUploadResource;
+import ca.corefacility.bioinformatics.irida.web.controller.api.projects.RESTProjectSamplesController;
+
+import com.google.common.net.HttpHeaders;
+
+import io.swagger.v3.oas.annotations.Operation;
+
+/**
+ * Controller for resumable uploads of {@link SequenceFile}s to a
+ * {@link Sample}. An upload is started with the name, size and (optionally)
+ * sha256 of the file, the file is sent in chunks with <code>PUT</code>
+ * requests at their offset in the file, and the upload is completed once every
+ * chunk has been received. Interrupted uploads can be resumed by reading the
+ * upload to find the ranges that have been received.
+ */
+@Controller
+public class RESTSampleSequenceFileUploadsController {
+	private static final Logger logger = LoggerFactory.getLogger(RESTSampleSequenceFileUploadsController.class);
+
+	private SampleService sampleService;
+	private SequencingRunService sequencingRunService;
+	private SequencingObjectService sequencingObjectService;
+	private SequenceFileUploadService uploadService;
+
+	protected RESTSampleSequenceFileUploadsController() {
+	}
+
+	@Autowired
+	public RESTSampleSequenceFileUploadsController(SampleService sampleService,
+			SequencingRunService sequencingRunService, SequencingObjectService sequencingObjectService,
+			SequenceFileUploadService uploadService) {
+		this.sampleService = sampleService;
+		this.sequencingRunService = sequencingRunService;
+		this.sequencingObjectService = sequencingObjectService;
+		this.uploadService = uploadService;
+	}
+
+	/**
+	 * Start a resumable upload of a {@link SequenceFile} to a {@link Sample}.
+	 *
+	 * @param sampleId  the identifier for the {@link Sample}.
+	 * @param upload    the name, size and sha256 of the file.
+	 * @param principal the user starting the upload.
+	 * @param response  the servlet response.
+	 * @return the new upload.
+	 */
+	@Operation(operationId = "createSequenceFileUpload", summary = "Start a resumable sequence file upload", description = "Start a resumable upload of a sequence file to the given sample.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/sequenceFiles/uploads", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseResource<SequenceFileUploadSession> createUpload(@PathVariable Long sampleId,
+			@RequestBody SequenceFileUploadResource upload, Principal principal, HttpServletResponse response) {
+		// make sure the sample exists before accepting data, the upload
+		// service checks that files can be added to it
+		Sample sample = sampleService.read(sampleId);
+
+		SequenceFileUploadSession session = uploadService.createSession(sample.getId(), upload.getFileName(),
+				upload.getSize(), upload.getSha256(), principal.getName());
+
+		String location = linkTo(
+				methodOn(RESTSampleSequenceFileUploadsController.class).readUpload(sampleId, session.getId(),
+						null)).withSelfRel().getHref();
+		response.addHeader(HttpHeaders.LOCATION, location);
+		response.setStatus(HttpStatus.CREATED.value());
+		return new ResponseResource<>(session);
+	}
+
+	/**
+	 * Read a resumable upload to find which parts of the file have been
+	 * received.
+	 *
+	 * @param sampleId  the identifier for the {@link Sample}.
+	 * @param uploadId  the identifier for the upload.
+	 * @param principal the user reading the upload.
+	 * @return the upload.
+	 */
+	@Operation(operationId = "readSequenceFileUpload", summary = "Read a resumable sequence file upload", description = "Get the byte ranges received for a resumable sequence file upload.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/sequenceFiles/uploads/{uploadId}", method = RequestMethod.GET)
+	public ResponseResource<SequenceFileUploadSession> readUpload(@PathVariable Long sampleId,
+			@PathVariable String uploadId, Principal principal) {
+		return new ResponseResource<>(readSession(sampleId, uploadId, principal));
+	}
+
+	/**
+	 * Send part of the file for a resumable upload. The request body is written
+	 * to the file starting at the given offset. A body whose
+	 * <code>Content-Length</code> runs past the end of the file is rejected
+	 * before any of it is read.
+	 *
+	 * @param sampleId  the identifier for the {@link Sample}.
+	 * @param uploadId  the identifier for the upload.
+	 * @param offset    the position in the file of the first byte of the body.
+	 * @param principal the user sending the data.
+	 * @param request   the servlet request containing the data.
+	 * @return the upload with the ranges received so far.
+	 * @throws IOException if the data could not be written.
+	 */
+	@Operation(operationId = "writeSequenceFileUpload", summary = "Send part of a resumable sequence file upload", description = "Write the request body to a resumable sequence file upload at the given offset.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/sequenceFiles/uploads/{uploadId}", method = RequestMethod.PUT, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseResource<SequenceFileUploadSession> writeUpload(@PathVariable Long sampleId,
+			@PathVariable String uploadId, @RequestParam(defaultValue = "0") long offset, Principal principal,
+			HttpServletRequest request) throws IOException {
+		return new ResponseResource<>(uploadService.writeChunk(sampleId, uploadId, principal.getName(), offset,
+				request.getContentLengthLong(), request.getInputStream()));
+	}
+
+	/**
+	 * Cancel a resumable upload and delete any data that was received.
+	 *
+	 * @param sampleId  the identifier for the {@link Sample}.
+	 * @param uploadId  the identifier for the upload.
+	 * @param principal the user cancelling the upload.
+	 * @return a link back to the sample.
+	 */
+	@Operation(operationId = "deleteSequenceFileUpload", summary = "Cancel a resumable sequence file upload", description = "Cancel a resumable sequence file upload and delete the data received.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/sequenceFiles/uploads/{uploadId}", method = RequestMethod.DELETE)
+	public ResponseResource<RootResource> deleteUpload(@PathVariable Long sampleId, @PathVariable String uploadId,
+			Principal principal) {
+		readSession(sampleId, uploadId, principal);
+		uploadService.removeSession(uploadId, principal.getName());
+
+		RootResource resource = new RootResource();
+		resource.add(linkTo(methodOn(RESTProjectSamplesController.class).getSample(sampleId)).withRel(
+				RESTSampleSequenceFilesController.REL_SAMPLE));
+		return new ResponseResource<>(resource);
+	}
+
+	/**
+	 * Complete a resumable upload and add the file to the {@link Sample} as a
+	 * single-end file. The whole file must have been received and must match
+	 * the sha256 sent when the upload was started or with this request.
+	 *
+	 * @param sampleId   the identifier for the {@link Sample}.
+	 * @param uploadId   the identifier for the upload.
+	 * @param completion the sha256 of the file and the sequencing run it belongs
+	 *                   to.
+	 * @param principal  the user completing the upload.
+	 * @param response   the servlet response.
+	 * @return the new {@link SequenceFile}.
+	 * @throws IOException if the file could not be verified.
+	 */
+	@Operation(operationId = "completeSequenceFileUpload", summary = "Complete a resumable sequence file upload", description = "Verify a resumable upload and add it to the given sample as a single-end sequence file.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/sequenceFiles/uploads/{uploadId}/complete", method = RequestMethod.POST)
+	public ResponseResource<SequenceFile> completeUpload(@PathVariable Long sampleId, @PathVariable String uploadId,
+			@RequestBody(required = false) SequenceFileUploadCompleteResource completion, Principal principal,
+			HttpServletResponse response) throws IOException {
+		if (completion == null) {
+			completion = new SequenceFileUploadCompleteResource();
+		}
+		Sample sample = sampleService.read(sampleId);
+		readSession(sampleId, uploadId, principal);
+
+		SequenceFile sf = uploadService.completeSession(uploadId, principal.getName(), completion.getSha256());
+		SingleEndSequenceFile singleEndSequenceFile = new SingleEndSequenceFile(sf);
+		singleEndSequenceFile.setSequencingRun(readUploadingRun(completion.getMiseqRunId()));
+
+		SampleSequencingObjectJoin join = sequencingObjectService.createSequencingObjectInSample(
+				singleEndSequenceFile, sample);
+		uploadService.removeSession(uploadId, principal.getName());
+		logger.debug("Completed upload [" + uploadId + "] to sample " + sampleId);
+
+		singleEndSequenceFile = (SingleEndSequenceFile) sequencingObjectService.read(join.getObject().getId());
+		singleEndSequenceFile = RESTSampleSequenceFilesController.addSequencingObjectLinks(singleEndSequenceFile,
+				sampleId);
+		SequenceFile sequenceFile = singleEndSequenceFile.getSequenceFile();
+		sequenceFile.add(linkTo(methodOn(RESTSampleSequenceFilesController.class).getSampleSequenceFiles(
+				sampleId)).withRel(RESTSampleSequenceFilesController.REL_SAMPLE_SEQUENCE_FILES));
+		sequenceFile.add(linkTo(methodOn(RESTProjectSamplesController.class).getSample(sampleId)).withRel(
+				RESTSampleSequenceFilesController.REL_SAMPLE));
+
+		response.addHeader(HttpHeaders.LOCATION, sequenceFile.getLink("self")
+				.map(Link::getHref).orElse(null));
+		response.setStatus(HttpStatus.CREATED.value());
+		return new ResponseResource<>(sequenceFile);
+	}
+
+	/**
+	 * Complete two resumable uploads and add the files to the {@link Sample}
+	 * as a {@link SequenceFilePair}. Both uploads must have been started with
+	 * the sha256 of their file.
+	 *
+	 * @param sampleId   the identifier for the {@link Sample}.
+	 * @param completion the forward and reverse uploads and the sequencing run
+	 *                   they belong to.
+	 * @param principal  the user completing the uploads.
+	 * @param response   the servlet response.
+	 * @return the new {@link SequenceFilePair}.
+	 * @throws IOException if the files could not be verified.
+	 */
+	@Operation(operationId = "completeSequenceFilePairUpload", summary = "Complete a pair of resumable sequence file uploads", description = "Verify two resumable uploads and add them to the given sample as a pair of sequence files.", tags = "samples")
+	@RequestMapping(value = "/api/samples/{sampleId}/pairs/uploads", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseResource<SequencingObject> completePairUpload(@PathVariable Long sampleId,
+			@RequestBody SequenceFileUploadCompleteResource completion, Principal principal,
+			HttpServletResponse response) throws IOException {
+		if (completion.getFile1() == null || completion.getFile2() == null) {
+			throw new IllegalArgumentException("Both file1 and file2 uploads are required to create a pair.");
+		}
+		Sample sample = sampleService.read(sampleId);
+		readSession(sampleId, completion.getFile1(), principal);
+		readSession(sampleId, completion.getFile2(), principal);
+
+		SequenceFile sf1 = uploadService.completeSession(completion.getFile1(), principal.getName(), null);
+		SequenceFile sf2 = uploadService.completeSession(completion.getFile2(), principal.getName(), null);
+		SequenceFilePair pair = new SequenceFilePair(sf1, sf2);
+		pair.setSequencingRun(readUploadingRun(completion.getMiseqRunId()));
+
+		SampleSequencingObjectJoin join = sequencingObjectService.createSequencingObjectInSample(pair, sample);
+		uploadService.removeSession(completion.getFile1(), principal.getName());
+		uploadService.removeSession(completion.getFile2(), principal.getName());
+		logger.debug("Completed uploads [" + completion.getFile1() + ", " + completion.getFile2() + "] to sample "
+				+ sampleId);
+
+		SequencingObject sequencingObject = RESTSampleSequenceFilesController.addSequencingObjectLinks(
+				join.getObject(), sampleId);
+		sequencingObject.add(linkTo(methodOn(RESTSampleSequenceFilesController.class).getSampleSequenceFiles(
+				sampleId)).withRel(RESTSampleSequenceFilesController.REL_SAMPLE_SEQUENCE_FILES));
+
+		response.addHeader(HttpHeaders.LOCATION, sequencingObject.getLink("self")
+				.map(Link::getHref).orElse(null));
+		response.setStatus(HttpStatus.CREATED.value());
+		return new ResponseResource<>(sequencingObject);
+	}
+
+	/**
+	 * Read an upload, making sure that it was started for the given sample
+	 */
+	private SequenceFileUploadSession readSession(Long sampleId, String uploadId, Principal principal) {
+		SequenceFileUploadSession session = uploadService.getSession(uploadId, principal.getName());
+		if (!session.getSampleId().equals(sampleId)) {
+			throw new EntityNotFoundException("No upload with id [" + uploadId + "] for sample " + sampleId);
+		}
+		return session;
+	}
+
+	/**
+	 * Read the sequencing run that uploaded files will be added to
+	 */
+	private SequencingRun readUploadingRun(Long runId) {
+		if (runId == null) {
+			return null;
+		}
+
+		SequencingRun run = sequencingRunService.read(runId);
+		if (run.getUploadStatus() != SequencingRunUploadStatus.UPLOADING) {
+			throw new IllegalArgumentException("The sequencing run must be in the UPLOADING state to upload data.");
+		}
+		return run;
+	}
+}
@@ -30,6 +30,7 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
 /**
@@ -38,6 +39,7 @@ import org.springframework.stereotype.Component;
  */
 @Component
 public class HttpHeadFilter implements Filter {
+	private static final String HEAD_REQUEST_ATTRIBUTE = HttpHeadFilter.class.getName() + ".HEAD";
 
 	@Override
 	public void init(FilterConfig filterConfig) throws ServletException {
@@ -53,8 +55,12 @@ public class HttpHeadFilter implements Filter {
 			HttpServletResponse httpServletResponse = (HttpServletResponse) response;
 			NoBodyResponseWrapper noBodyResponseWrapper = new NoBodyResponseWrapper(httpServletResponse);
 
+			httpServletRequest.setAttribute(HEAD_REQUEST_ATTRIBUTE, Boolean.TRUE);
 			chain.doFilter(new ForceGetRequestWrapper(httpServletRequest), noBodyResponseWrapper);
-			noBodyResponseWrapper.setContentLength();
+			// keep the length of a body that was deliberately not written
+			if (!httpServletResponse.containsHeader(HttpHeaders.CONTENT_LENGTH)) {
+				noBodyResponseWrapper.setContentLength();
+			}
 		} else {
 			chain.doFilter(request, response);
 		}
@@ -65,6 +71,20 @@ public class HttpHeadFilter implements Filter {
 		// Do nothing
 	}
 
+	/**
+	 * Checks whether a request that appears to be a GET was a HEAD request
+	 * presented as a GET by this filter. Responses to HEAD requests can skip
+	 * writing the body, as long as they set the <code>Content-Length</code>
+	 * header.
+	 *
+	 * @param request
+	 *            The request to check.
+	 * @return {@code true} if it is HEAD, {@code false} if it isn't.
+	 */
+	public static boolean isHeadRequest(HttpServletRequest request) {
+		return "HEAD".equals(request.getMethod()) || Boolean.TRUE.equals(request.getAttribute(HEAD_REQUEST_ATTRIBUTE));
+	}
+
 	/**
 	 * Checks whether the HTTP method of this request is HEAD.
 	 * 
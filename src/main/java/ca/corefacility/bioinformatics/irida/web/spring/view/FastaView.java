@@ -1,6 +1,7 @@
 package ca.corefacility.bioinformatics.irida.web.spring.view;
 
 import ca.corefacility.bioinformatics.irida.model.irida.IridaSequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.web.assembler.resource.ResponseResource;
 import ca.corefacility.bioinformatics.irida.web.controller.api.RESTGenericController;
 
@@ -13,8 +14,6 @@ import org.springframework.web.servlet.view.AbstractView;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
 
@@ -46,11 +45,8 @@ public class FastaView extends AbstractView {
 		String filename = fileContent.getFileName().toString();
 		logger.trace("Sending file to client [" + filename + "]");
 		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
-		response.setHeader(HttpHeaders.CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
-		response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(Files.size(fileContent)));
-		OutputStream os = response.getOutputStream();
-		Files.copy(fileContent, os);
-		os.flush();
-		os.close();
+		String etag = sfr instanceof SequenceFile ? RangedFileResponse.sequenceFileEtag((SequenceFile) sfr)
+				: RangedFileResponse.fileEtag(fileContent);
+		RangedFileResponse.write(request, response, fileContent, DEFAULT_CONTENT_TYPE, etag);
 	}
 }
@@ -0,0 +1,279 @@
+package ca.corefacility.bioinformatics.irida.web.spring.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.StringJoiner;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.web.filter.HttpHeadFilter;
+
+/**
+ * Writes a file to the client with support for conditional (
+ * <code>If-None-Match</code>, <code>If-Modified-Since</code>) and byte-range (
+ * <code>Range</code>, <code>If-Range</code>) requests, so that clients can skip
+ * files they already have and resume interrupted downloads.
+ */
+public class RangedFileResponse {
+	private static final Logger logger = LoggerFactory.getLogger(RangedFileResponse.class);
+
+	// request attributes used by Tomcat to send a file from the connector
+	private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+	private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_FILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_FILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+	private static final String BYTES = "bytes";
+	private static final String CRLF = "\r\n";
+
+	private RangedFileResponse() {
+	}
+
+	/**
+	 * Build a strong entity tag from values that change whenever the content of
+	 * a file changes.
+	 *
+	 * @param parts
+	 *            the values identifying the file content (e.g. a checksum and
+	 *            a file revision number)
+	 * @return the quoted entity tag
+	 */
+	public static String etag(Object... parts) {
+		StringJoiner joiner = new StringJoiner("-", "\"", "\"");
+		for (Object part : parts) {
+			joiner.add(String.valueOf(part));
+		}
+		return joiner.toString();
+	}
+
+	/**
+	 * Build a strong entity tag for a file from an identifier and the file's
+	 * size and modification time.
+	 *
+	 * @param file
+	 *            the file on disk
+	 * @param identifiers
+	 *            values identifying the file (e.g. a database id and a file
+	 *            revision number)
+	 * @return the quoted entity tag
+	 * @throws IOException
+	 *             if the file attributes could not be read
+	 */
+	public static String fileEtag(Path file, Object... identifiers) throws IOException {
+		Object[] parts = new Object[identifiers.length + 2];
+		System.arraycopy(identifiers, 0, parts, 0, identifiers.length);
+		parts[identifiers.length] = Long.toHexString(Files.size(file));
+		parts[identifiers.length + 1] = Long.toHexString(Files.getLastModifiedTime(file).toMillis());
+		return etag(parts);
+	}
+
+	/**
+	 * Build a strong entity tag for a {@link SequenceFile}. The checksum of
+	 * the uploaded file is used with the file revision number when the
+	 * checksum has been computed.
+	 *
+	 * @param sequenceFile
+	 *            the {@link SequenceFile}
+	 * @return the quoted entity tag
+	 * @throws IOException
+	 *             if the file attributes could not be read
+	 */
+	public static String sequenceFileEtag(SequenceFile sequenceFile) throws IOException {
+		if (sequenceFile.getUploadSha256() != null) {
+			return etag(sequenceFile.getUploadSha256(), sequenceFile.getFileRevisionNumber());
+		}
+		return fileEtag(sequenceFile.getFile(), sequenceFile.getId(), sequenceFile.getFileRevisionNumber());
+	}
+
+	/**
+	 * Write a file to the client. The caller should set any
+	 * <code>Content-Disposition</code> header before calling this method.
+	 * <ul>
+	 * <li>If the client already has the current version of the file a
+	 * <code>304 Not Modified</code> response is sent.</li>
+	 * <li>If the client asked for one byte range, only that range is sent with
+	 * a <code>206 Partial Content</code> response.</li>
+	 * <li>If the client asked for more than one range, the ranges are sent as
+	 * <code>multipart/byteranges</code>.</li>
+	 * <li>If the ranges can't be satisfied, a
+	 * <code>416 Range Not Satisfiable</code> response is sent.</li>
+	 * <li>Otherwise the whole file is sent.</li>
+	 * </ul>
+	 *
+	 * @param request
+	 *            the {@link HttpServletRequest}
+	 * @param response
+	 *            the {@link HttpServletResponse}
+	 * @param file
+	 *            the file to send
+	 * @param contentType
+	 *            the content type of the file
+	 * @param etag
+	 *            the strong entity tag for the current version of the file
+	 * @throws IOException
+	 *             if the file could not be read or written to the client
+	 */
+	public static void write(HttpServletRequest request, HttpServletResponse response, Path file,
+			String contentType, String etag) throws IOException {
+		long length = Files.size(file);
+		long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+			logger.trace("Client has the current version of [" + file + "]");
+			return;
+		}
+
+		List<HttpRange> ranges = null;
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+			try {
+				ranges = HttpRange.parseRanges(rangeHeader);
+			} catch (IllegalArgumentException e) {
+				logger.trace("Ignoring invalid range header [" + rangeHeader + "]");
+			}
+		}
+
+		if (ranges == null || ranges.isEmpty()) {
+			response.setContentType(contentType);
+			response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length));
+			writeRegion(request, response, file, 0, length);
+			return;
+		}
+
+		List<ResourceRegion> regions;
+		try {
+			regions = HttpRange.toResourceRegions(ranges, new FileSystemResource(file));
+		} catch (IllegalArgumentException e) {
+			logger.trace("Range [" + rangeHeader + "] can't be satisfied for [" + file + "]: " + e.getMessage());
+			response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+
+		response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+		if (regions.size() == 1) {
+			ResourceRegion region = regions.get(0);
+			response.setContentType(contentType);
+			response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(region, length));
+			response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(region.getCount()));
+			writeRegion(request, response, file, region.getPosition(), region.getCount());
+		} else {
+			writeMultipart(request, response, file, contentType, regions, length);
+		}
+	}
+
+	/**
+	 * Check whether a range request applies to the current version of the
+	 * file. A range is only sent when the <code>If-Range</code> header is
+	 * missing or matches the file.
+	 */
+	private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		} else if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			// weak tags never match for ranges
+			return ifRange.equals(etag);
+		}
+
+		try {
+			return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static String contentRange(ResourceRegion region, long length) {
+		long end = region.getPosition() + region.getCount() - 1;
+		return BYTES + " " + region.getPosition() + "-" + end + "/" + length;
+	}
+
+	/**
+	 * Send a part of the file as the response body. If the servlet container
+	 * can send the file itself, the file is handed to the container so that it
+	 * is copied by the operating system. Otherwise the file channel is copied
+	 * to the response.
+	 */
+	private static void writeRegion(HttpServletRequest request, HttpServletResponse response, Path file,
+			long position, long count) throws IOException {
+		if (HttpHeadFilter.isHeadRequest(request)) {
+			return;
+		}
+
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+			File canonical = file.toFile().getCanonicalFile();
+			request.setAttribute(SENDFILE_FILENAME_ATTR, canonical.getAbsolutePath());
+			request.setAttribute(SENDFILE_FILE_START_ATTR, position);
+			request.setAttribute(SENDFILE_FILE_END_ATTR, position + count);
+			return;
+		}
+
+		OutputStream os = response.getOutputStream();
+		transfer(file, position, count, Channels.newChannel(os));
+		os.flush();
+		os.close();
+	}
+
+	/**
+	 * Send several parts of the file as a <code>multipart/byteranges</code>
+	 * response body.
+	 */
+	private static void writeMultipart(HttpServletRequest request, HttpServletResponse response, Path file,
+			String contentType, List<ResourceRegion> regions, long length) throws IOException {
+		String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+		response.setContentType("multipart/byteranges; boundary=" + boundary);
+		if (HttpHeadFilter.isHeadRequest(request)) {
+			return;
+		}
+
+		OutputStream os = response.getOutputStream();
+		WritableByteChannel channel = Channels.newChannel(os);
+		for (ResourceRegion region : regions) {
+			String partHeaders = CRLF + "--" + boundary + CRLF + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+					+ HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, length) + CRLF + CRLF;
+			os.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+			transfer(file, region.getPosition(), region.getCount(), channel);
+		}
+		os.write((CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII));
+		os.flush();
+		os.close();
+	}
+
+	/**
+	 * Copy part of a file to a channel
+	 */
+	private static void transfer(Path file, long position, long count, WritableByteChannel target)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long sent = 0;
+			while (sent < count) {
+				long transferred = channel.transferTo(position + sent, count - sent, target);
+				if (transferred <= 0) {
+					throw new IOException("File [" + file + "] ended before " + (position + count) + " bytes");
+				}
+				sent += transferred;
+			}
+		}
+	}
+}
@@ -213,6 +213,21 @@ export async function getUpdatedDetails(submissionId) {
   }
 }
 
+/**
+ * Receive the progress of an analysis as it runs, instead of polling for it.
+ * The current progress is sent as soon as the connection opens.
+ * @param {number} submissionId Submission ID
+ * @param {function} onProgress called with the `id`, `analysisState`,
+ * `percentComplete` and `finished` of the analysis each time it changes
+ * @return {EventSource} the connection, close it once it is no longer needed
+ */
+export function watchAnalysisProgress(submissionId, onProgress) {
+  return openProgressEvents(
+    `${ANALYSIS_URL}/${submissionId}/progress-events`,
+    onProgress
+  );
+}
+
 /**
  * Get the data from the output file for with the supplied chunk size
  * @param {object} contains the output file data
@@ -360,6 +375,18 @@ export async function fetchAnalysesQueueCounts() {
   return axios.get(`${ANALYSES_URL}/queue`).then(({ data }) => data);
 }
 
+/**
+ * Fetch the analyses waiting to run, in the order they will be run.  Only
+ * available to administrators.
+ * @param {number} count the number of queued analyses to fetch
+ * @return {Promise<T>} return a list of the queued analyses with their position.
+ */
+export async function fetchQueuedAnalyses(count = 100) {
+  return axios
+    .get(`${ANALYSES_URL}/queue/analyses?count=${count}`)
+    .then(({ data }) => data);
+}
+
 /**
  * Get the updated progress of an analysis
  * @param {number} submissionID Submission ID
@@ -375,3 +402,26 @@ export async function getUpdatedTableDetails(submissionId) {
     return { error };
   }
 }
+
+/**
+ * Receive the progress of several analyses as they run, instead of polling
+ * for each of them.
+ * @param {array} ids the identifiers of the analyses to watch
+ * @param {function} onProgress called with the `id`, `analysisState`,
+ * `percentComplete` and `finished` of an analysis each time it changes
+ * @return {EventSource} the connection, close it once it is no longer needed
+ */
+export function watchAnalysesProgress(ids, onProgress) {
+  return openProgressEvents(
+    `${ANALYSES_URL}/progress-events?ids=${ids.join(",")}`,
+    onProgress
+  );
+}
+
+function openProgressEvents(url, onProgress) {
+  const source = new EventSource(url);
+  source.addEventListener("progress", (event) =>
+    onProgress(JSON.parse(event.data))
+  );
+  return source;
+}
@@ -13,10 +13,13 @@ export const metadataImportApi = createApi({
   tagTypes: ["MetadataImport"],
   endpoints: (build) => ({
     getProjectSampleMetadata: build.query({
-      query: (projectId) => ({
+      query: ({ projectId, uploadId, current, pageSize }) => ({
         url: `/getMetadata`,
         params: {
           projectId,
+          uploadId,
+          current,
+          pageSize,
         },
       }),
       /**
@@ -25,9 +28,9 @@ export const metadataImportApi = createApi({
       transformResponse(response) {
         const transformed = {
           ...response,
-          rows: response.rows.map((row, index) => ({
+          rows: response.rows.map((row) => ({
             ...row,
-            rowKey: `row-${index}`,
+            rowKey: `row-${row.index}`,
             isSampleNameValid: validateSampleName(
               row.entry[response.sampleNameColumn]
             ),
@@ -48,26 +51,35 @@ export const metadataImportApi = createApi({
       invalidatesTags: ["MetadataImport"],
     }),
     setColumnProjectSampleMetadata: build.mutation({
-      query: ({ projectId, sampleNameColumn }) => ({
+      query: ({ projectId, uploadId, sampleNameColumn }) => ({
         url: `/setSampleColumn`,
         method: "PUT",
         params: {
           projectId,
+          uploadId,
           sampleNameColumn,
         },
       }),
       invalidatesTags: ["MetadataImport"],
     }),
     saveProjectSampleMetadata: build.mutation({
-      query: ({ projectId, sampleNames }) => ({
+      query: ({ projectId, uploadId, excludedSampleNames }) => ({
         url: `/save`,
         method: "POST",
         params: {
           projectId,
-          sampleNames,
+          uploadId,
+          excludedSampleNames,
+        },
+      }),
+    }),
+    getMetadataImportProgress: build.query({
+      query: (importId) => ({
+        url: `/progress`,
+        params: {
+          importId,
         },
       }),
-      invalidatesTags: ["MetadataImport"],
     }),
   }),
 });
@@ -77,4 +89,5 @@ export const {
   useClearProjectSampleMetadataMutation,
   useSetColumnProjectSampleMetadataMutation,
   useSaveProjectSampleMetadataMutation,
+  useGetMetadataImportProgressQuery,
 } = metadataImportApi;
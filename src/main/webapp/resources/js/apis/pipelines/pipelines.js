@@ -72,6 +72,17 @@ export const launchPipeline = (id, parameters) =>
       throw Promise.reject(error.response.data);
     });
 
+/**
+ * Get how far along the creation of the analyses for a pipeline launched on
+ * single samples is.
+ * @param launchId - identifier for the launch returned when it was started
+ * @returns {Promise<any>} the number of analyses saved and the total, whether it has finished and any error
+ */
+export const fetchLaunchProgress = (launchId) =>
+  axios
+    .get(`${AJAX_URL}/launch/${launchId}`)
+    .then(({ data }) => data);
+
 /**
  * Save a set of pipeline parameters for future use.
  * @param label - the name for the parameter set
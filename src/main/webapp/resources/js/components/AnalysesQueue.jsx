@@ -1,12 +1,16 @@
 import React, { useEffect, useState } from "react";
-import { Alert, notification, Tooltip } from "antd";
-import { fetchAnalysesQueueCounts } from "./../apis/analysis/analysis";
+import { Alert, List, notification, Popover, Tag, Tooltip } from "antd";
+import {
+  fetchAnalysesQueueCounts,
+  fetchQueuedAnalyses,
+} from "./../apis/analysis/analysis";
 import { SPACE_XS } from "../styles/spacing";
 import styled from "styled-components";
 import { formatNumber } from "../utilities/number-utilities";
 import { blue6 } from "../styles/colors";
 import { IconCloudServer } from "./icons/Icons";
 import { useInterval } from "../hooks";
+import { setBaseUrl } from "../utilities/url-utilities";
 
 const Label = styled.span`
   font-weight: bold;
@@ -22,6 +26,8 @@ const Value = styled.span`
 
 const UPDATE_QUEUE_COUNT_DELAY = 60000;
 
+const isAdmin = window.TL._USER.systemRole === "ROLE_ADMIN";
+
 /**
  * React component for rendering the current server status
  * for running analyses.
@@ -31,6 +37,7 @@ const UPDATE_QUEUE_COUNT_DELAY = 60000;
 export function AnalysesQueue({}) {
   const [running, setRunning] = useState(null);
   const [queued, setQueued] = useState(null);
+  const [queuedAnalyses, setQueuedAnalyses] = useState(null);
 
   useEffect(() => {
     fetchAnalysesQueueCounts().then((data) => {
@@ -56,53 +63,102 @@ export function AnalysesQueue({}) {
       });
   }, UPDATE_QUEUE_COUNT_DELAY);
 
-  return (
-    <Tooltip title={i18n("AnalysesQueue.title")} placement={"left"}>
-      <Alert
-        style={{ padding: 0 }}
-        message={
+  /*
+   * Administrators can see the analyses waiting to run, in the order they
+   * will be run, and change their priority from the analysis settings.
+   */
+  function loadQueuedAnalyses(visible) {
+    if (visible) {
+      fetchQueuedAnalyses()
+        .then(setQueuedAnalyses)
+        .catch((message) => notification.error({ message }));
+    }
+  }
+
+  const alert = (
+    <Alert
+      style={{ padding: 0 }}
+      message={
+        <div
+          style={{
+            width: 160,
+            display: "flex",
+            alignContent: "center",
+            color: blue6,
+          }}
+        >
+          <IconCloudServer
+            style={{ fontSize: "2em", flex: 1, padding: SPACE_XS }}
+          />
           <div
             style={{
-              width: 160,
-              display: "flex",
-              alignContent: "center",
-              color: blue6,
+              display: "inline-block",
+              width: 130,
+              marginRight: SPACE_XS,
             }}
           >
-            <IconCloudServer
-              style={{ fontSize: "2em", flex: 1, padding: SPACE_XS }}
-            />
             <div
               style={{
-                display: "inline-block",
-                width: 130,
-                marginRight: SPACE_XS,
+                display: "flex",
+                justifyContent: "space-between",
               }}
             >
-              <div
-                style={{
-                  display: "flex",
-                  justifyContent: "space-between",
-                }}
-              >
-                <Label>{i18n("AnalysesQueue.running")}</Label>
-                <Value className="t-running-counts">
-                  {formatNumber(running)}
-                </Value>
-              </div>
-              <div
-                style={{
-                  display: "flex",
-                  justifyContent: "space-between",
-                }}
-              >
-                <Label>{i18n("AnalysesQueue.queued")}</Label>
-                <Value className="t-queue-counts">{formatNumber(queued)}</Value>
-              </div>
+              <Label>{i18n("AnalysesQueue.running")}</Label>
+              <Value className="t-running-counts">
+                {formatNumber(running)}
+              </Value>
+            </div>
+            <div
+              style={{
+                display: "flex",
+                justifyContent: "space-between",
+              }}
+            >
+              <Label>{i18n("AnalysesQueue.queued")}</Label>
+              <Value className="t-queue-counts">{formatNumber(queued)}</Value>
             </div>
           </div>
-        }
-      />
+        </div>
+      }
+    />
+  );
+
+  return isAdmin ? (
+    <Popover
+      title={i18n("AnalysesQueue.title")}
+      placement={"left"}
+      onVisibleChange={loadQueuedAnalyses}
+      content={
+        <List
+          size="small"
+          style={{ width: 400, maxHeight: 400, overflowY: "auto" }}
+          loading={queuedAnalyses === null}
+          locale={{ emptyText: i18n("AnalysesQueue.empty") }}
+          dataSource={queuedAnalyses || []}
+          renderItem={(analysis) => (
+            <List.Item
+              className="t-queued-analysis"
+              extra={<Tag>{analysis.priority}</Tag>}
+            >
+              <List.Item.Meta
+                avatar={analysis.position}
+                title={
+                  <a href={setBaseUrl(`analysis/${analysis.id}/settings`)}>
+                    {analysis.name}
+                  </a>
+                }
+                description={analysis.submitter}
+              />
+            </List.Item>
+          )}
+        />
+      }
+    >
+      {alert}
+    </Popover>
+  ) : (
+    <Tooltip title={i18n("AnalysesQueue.title")} placement={"left"}>
+      {alert}
     </Tooltip>
   );
 }
@@ -19,10 +19,6 @@ import { AnalysesQueue } from "./../AnalysesQueue";
 import { AnalysisDownloadButton } from "./AnalysisDownloadButton";
 import { IconTableFilter } from "../icons/Icons";
 
-// Used to poll for changes in state and duration
-// Set to 1 minute
-const UPDATE_PROGRESS_DELAY = 60000;
-
 /**
  * Displays the Analyses Table for both user and admin pages.
  * @param {boolean} canManage - If the current user can manage
@@ -80,7 +76,6 @@ export function AnalysesTable({ canManage }) {
           <AnalysisState
             state={state}
             analysisId={data.id}
-            updateDelay={UPDATE_PROGRESS_DELAY}
           />
         );
       },
@@ -117,7 +112,6 @@ export function AnalysesTable({ canManage }) {
             state={data.state}
             duration={duration}
             analysisId={data.id}
-            updateDelay={UPDATE_PROGRESS_DELAY}
           />
         );
       },
@@ -131,7 +125,6 @@ export function AnalysesTable({ canManage }) {
           <AnalysisDownloadButton
             state={record.state.value}
             analysisId={record.id}
-            updateDelay={UPDATE_PROGRESS_DELAY}
           />
         );
       },
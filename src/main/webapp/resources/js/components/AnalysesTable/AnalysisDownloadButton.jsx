@@ -1,7 +1,6 @@
-import React, { useContext, useState } from "react";
+import React, { useContext } from "react";
 import { Button } from "antd";
 
-import { useInterval } from "../../hooks";
 import { setBaseUrl } from "../../utilities/url-utilities";
 import { IconDownloadFile } from "../icons/Icons";
 import { AnalysesTableContext } from "../../contexts/AnalysesTableContext";
@@ -10,36 +9,18 @@ import { AnalysesTableContext } from "../../contexts/AnalysesTableContext";
  * Display the download results button for an analysis
  * @param {string} state The state of the analysis
  * @param {number} analysisId the analysis identifier
- * @param {number} updateDelay the polling delay
  * @returns {*}
  * @constructor
  */
-export function AnalysisDownloadButton({ state, analysisId, updateDelay }) {
-  const [disableDownloadButton, setDisableDownloadButton] = useState(
-    state !== "COMPLETED"
-  );
-  const { analysesTableContext } = useContext(AnalysesTableContext);
-
-  // Update if an analysis is completed (to enable or disable download results button)
-  const intervalId = useInterval(() => {
-    if (state !== "COMPLETED" && state !== "ERROR") {
-      let rowData = analysesTableContext.rows.filter(
-        (row) => row.identifier === analysisId
-      );
-      let currRowData = rowData[rowData.length - 1];
-      if (typeof currRowData !== "undefined") {
-        if (currRowData.isCompleted) {
-          setDisableDownloadButton(false);
-        }
+export function AnalysisDownloadButton({ state, analysisId }) {
+  const { getRowData } = useContext(AnalysesTableContext);
 
-        if (currRowData.isCompleted || currRowData.isError) {
-          clearInterval(intervalId);
-        }
-      }
-    } else {
-      clearInterval(intervalId);
-    }
-  }, updateDelay);
+  // Enable the download results button once the analysis has completed
+  const currRowData = getRowData(analysisId);
+  const disableDownloadButton =
+    typeof currRowData !== "undefined"
+      ? !currRowData.isCompleted
+      : state !== "COMPLETED";
 
   return (
     <Button
@@ -1,50 +1,37 @@
-import React, { useContext, useState } from "react";
+import React, { useContext, useEffect } from "react";
 import { Badge } from "antd";
 import { SPACE_XS } from "../../styles/spacing";
 import { green6 } from "../../styles/colors";
 import { IconSyncSpin } from "../icons/Icons";
-import { useInterval } from "../../hooks";
 
 import { AnalysesTableContext } from "../../contexts/AnalysesTableContext";
 
-
 /**
  * Display the state of an analysis
  * @param {object} state
  * @param {string} analysisId the analysis identifier
- * @param {number} the polling delay
  * @returns {*}
  * @constructor
  */
-export function AnalysisState({ state, analysisId, updateDelay }) {
-  const { analysesTableContext, updateRowData } = useContext(AnalysesTableContext);
-  const [currStateText, setCurrStateText] = useState(state.text);
-  const [currStateValue, setCurrStateValue] = useState(state.value);
-
-  // Update the analysis state using polling
-  const intervalId = useInterval(() => {
-    if(state.value !== "COMPLETED" && state.value !== "ERROR") {
-      updateRowData(analysisId);
-
-      let rowData = analysesTableContext.rows.filter(row => row.identifier === analysisId);
-      let currRowData = rowData[rowData.length - 1];
-      if(typeof currRowData !== "undefined") {
-        if(currStateText !== currRowData.analysisState.text) {
-          setCurrStateText(currRowData.analysisState.text);
-        }
-
-        if(currStateValue !== currRowData.analysisState.value) {
-          setCurrStateValue(currRowData.analysisState.value);
-        }
+export function AnalysisState({ state, analysisId }) {
+  const { watchAnalysis, getRowData } = useContext(AnalysesTableContext);
 
-        if(currRowData.isCompleted || currRowData.isError) {
-          clearInterval(intervalId);
-        }
-      }
-    } else {
-      clearInterval(intervalId);
+  // Have the state pushed from the server while the analysis is running
+  useEffect(() => {
+    if (state.value !== "COMPLETED" && state.value !== "ERROR") {
+      watchAnalysis(analysisId);
     }
-  }, updateDelay);
+  }, [analysisId]);
+
+  const currRowData = getRowData(analysisId);
+  const currStateText =
+    typeof currRowData !== "undefined"
+      ? currRowData.analysisState.text
+      : state.text;
+  const currStateValue =
+    typeof currRowData !== "undefined"
+      ? currRowData.analysisState.value
+      : state.value;
 
   switch (currStateValue) {
     case "NEW":
@@ -3,8 +3,11 @@
  * an analysis.
  */
 
-import React, { useState } from "react";
-import { getUpdatedTableDetails } from "../apis/analysis/analysis";
+import React, { useEffect, useRef, useState } from "react";
+import {
+  getUpdatedTableDetails,
+  watchAnalysesProgress,
+} from "../apis/analysis/analysis";
 import { notification } from "antd";
 
 const initialContext = {
@@ -17,6 +20,55 @@ function AnalysesTableProvider(props) {
   const [analysesTableContext, setAnalysesTableContext] = useState(
     initialContext
   );
+  const [watchedIds, setWatchedIds] = useState([]);
+  const lastProgress = useRef({});
+
+  /*
+   * Keep a single connection open for the progress of all the analyses
+   * in the table that haven't finished, and only get the state and
+   * duration of an analysis when the server pushes a change.
+   */
+  useEffect(() => {
+    if (watchedIds.length === 0) {
+      return;
+    }
+    const finished = new Set();
+    const progressEvents = watchAnalysesProgress(watchedIds, (progress) => {
+      const key = `${progress.analysisState}:${progress.percentComplete}`;
+      if (lastProgress.current[progress.id] !== key) {
+        lastProgress.current[progress.id] = key;
+        updateRowData(progress.id);
+      }
+      if (progress.finished) {
+        finished.add(progress.id);
+        if (finished.size === watchedIds.length) {
+          progressEvents.close();
+        }
+      }
+    });
+    return () => progressEvents.close();
+  }, [watchedIds]);
+
+  /*
+   * This function adds an analysis to the ones whose progress is
+   * pushed from the server.
+   */
+  function watchAnalysis(analysisId) {
+    setWatchedIds((watchedIds) =>
+      watchedIds.includes(analysisId) ? watchedIds : [...watchedIds, analysisId]
+    );
+  }
+
+  /*
+   * This function gets the latest state and duration received
+   * for an analysis, if any have been.
+   */
+  function getRowData(analysisId) {
+    const rowData = analysesTableContext.rows.filter(
+      (row) => row.identifier === analysisId
+    );
+    return rowData[rowData.length - 1];
+  }
 
   /*
    * This function gets the analysis duration and state, and
@@ -50,6 +102,8 @@ function AnalysesTableProvider(props) {
       value={{
         analysesTableContext,
         updateRowData,
+        watchAnalysis,
+        getRowData,
       }}
     >
       {props.children}
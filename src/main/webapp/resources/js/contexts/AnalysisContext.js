@@ -10,9 +10,9 @@ import {
   getAnalysisInfo,
   getUpdatedDetails,
   updateAnalysis,
+  watchAnalysisProgress,
 } from "../apis/analysis/analysis";
 
-import { useInterval } from "../hooks";
 import { showNotification } from "../modules/notifications";
 
 /*
@@ -49,8 +49,6 @@ const initialContext = {
   loading: true,
 };
 
-const UPDATE_ANALYSIS_DELAY = 60000;
-
 const AnalysisContext = React.createContext(initialContext);
 
 function AnalysisProvider(props) {
@@ -85,30 +83,37 @@ function AnalysisProvider(props) {
   }, []);
 
   /* Update the analysis details that are required
-   * to display the progression using polling
+   * to display the progression each time the server
+   * pushes a change in progress
    */
-  const intervalId = useInterval(() => {
-    getUpdatedDetails(analysisIdentifier)
-      .then((res) => {
-        updateAnalysisState(res.analysisState, res.previousState);
-        updateTreeDefault(res.treeDefault);
-        updateAnalysisDuration(res.duration);
-        /*
-         * If the analysis has completed or errored we want to clear the interval
-         * so we do not keep retrieving the analysis progress
-         */
-        if (
-          res.analysisState === "COMPLETED" ||
-          res.analysisState.includes("ERROR")
-        ) {
-          clearInterval(intervalId);
-        }
-      })
-      .catch((message) => {
-        notification.error({ message });
-        clearInterval(intervalId);
-      });
-  }, UPDATE_ANALYSIS_DELAY);
+  useEffect(() => {
+    if (!analysisIdentifier) {
+      return;
+    }
+    const progressEvents = watchAnalysisProgress(analysisIdentifier, () => {
+      getUpdatedDetails(analysisIdentifier)
+        .then((res) => {
+          updateAnalysisState(res.analysisState, res.previousState);
+          updateTreeDefault(res.treeDefault);
+          updateAnalysisDuration(res.duration);
+          /*
+           * If the analysis has completed or errored we want to close the connection
+           * so we do not keep receiving the analysis progress
+           */
+          if (
+            res.analysisState === "COMPLETED" ||
+            res.analysisState.includes("ERROR")
+          ) {
+            progressEvents.close();
+          }
+        })
+        .catch((message) => {
+          notification.error({ message });
+          progressEvents.close();
+        });
+    });
+    return () => progressEvents.close();
+  }, [analysisIdentifier]);
 
   /* This function is used to update the AnalysisContext
    * analysis duration if it has changed from the original
@@ -9,6 +9,7 @@ import { launchNewPipeline } from "./launch-dispatch";
 import { LaunchParameters } from "./LaunchParameters";
 import { setBaseUrl } from "../../utilities/url-utilities";
 import { LaunchButton } from "./LaunchButton";
+import { LaunchProgress } from "./LaunchProgress";
 
 /**
  * React component to handle all form components for launching a pipeline.
@@ -24,8 +25,15 @@ export function LaunchForm() {
 
   const [state, launchDispatch] = useLaunch();
   const [launchState, setLaunchState] = React.useState(LAUNCH_STATES.WAITING);
+  const [launchId, setLaunchId] = React.useState(null);
   const [form] = Form.useForm();
 
+  const redirect = (url) => {
+    window.setTimeout(() => {
+      window.location.href = setBaseUrl(url);
+    }, 350);
+  };
+
   /**
    * Triggered when submitting the launch.
    * This let's us perform any last minute validation and UI updates.
@@ -35,15 +43,18 @@ export function LaunchForm() {
     form.validateFields().then((values) => {
       setLaunchState(LAUNCH_STATES.LOADING);
       launchNewPipeline(launchDispatch, values, state)
-        .then(({ id }) => {
+        .then(({ id, launchId }) => {
+          if (launchId) {
+            // An analysis is being created for each sample, wait for them
+            setLaunchId(launchId);
+            return;
+          }
           // Redirect to analysis page or project settings processing page for automated pipelines
           setLaunchState(LAUNCH_STATES.SUCCESS);
           const url = state.automatedId
             ? `projects/${state.automatedId}/settings/processing`
             : `analysis${+id > 0 ? `/${id}` : ``}`;
-          window.setTimeout(() => {
-            window.location.href = setBaseUrl(url);
-          }, 350);
+          redirect(url);
         })
         .catch(({ error }) => {
           setLaunchState(LAUNCH_STATES.WAITING);
@@ -54,6 +65,23 @@ export function LaunchForm() {
     });
   };
 
+  /**
+   * Triggered once all the analyses for a single sample pipeline have been
+   * created, or creating them failed.  The form stays disabled after a failure
+   * since launching again would create the analyses that were saved twice.
+   */
+  const onLaunchFinished = ({ error }) => {
+    setLaunchState(LAUNCH_STATES.SUCCESS);
+    if (error) {
+      notification.error({
+        message: error,
+        duration: 0,
+      });
+    } else {
+      redirect(`analysis`);
+    }
+  };
+
   return (
     <Form
       form={form}
@@ -76,6 +104,9 @@ export function LaunchForm() {
           }
           loading={launchState === LAUNCH_STATES.LOADING}
         />
+        {launchId ? (
+          <LaunchProgress launchId={launchId} onFinished={onLaunchFinished} />
+        ) : null}
       </Space>
     </Form>
   );
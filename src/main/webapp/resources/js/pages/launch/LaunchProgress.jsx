@@ -0,0 +1,48 @@
+import React from "react";
+import { Progress, Space, Typography } from "antd";
+import { fetchLaunchProgress } from "../../apis/pipelines/pipelines";
+import { useInterval } from "../../hooks";
+
+const PROGRESS_DELAY = 1000;
+
+/**
+ * React component to show how many of the analyses for a pipeline launched
+ * on single samples have been created, while they are created on the server.
+ * @param {string} launchId - identifier for the launch
+ * @param {function} onFinished - called with the final progress once all the analyses have been created, or creating them failed
+ * @returns {JSX.Element}
+ * @constructor
+ */
+export function LaunchProgress({ launchId, onFinished }) {
+  const [progress, setProgress] = React.useState({ saved: 0, total: 0 });
+  const [delay, setDelay] = React.useState(PROGRESS_DELAY);
+
+  useInterval(() => {
+    fetchLaunchProgress(launchId)
+      .then((data) => {
+        setProgress(data);
+        if (data.finished) {
+          setDelay(null);
+          onFinished(data);
+        }
+      })
+      .catch(() => {
+        setDelay(null);
+        onFinished({ finished: true, error: i18n("LaunchProgress.unavailable") });
+      });
+  }, delay);
+
+  const percent =
+    progress.total > 0 ? Math.floor((progress.saved / progress.total) * 100) : 0;
+
+  return (
+    <Space direction="vertical" className="t-launch-progress">
+      <Progress percent={percent} status={progress.error ? "exception" : "active"} />
+      <Typography.Text type="secondary">
+        {progress.total > 0
+          ? i18n("LaunchProgress.saving", progress.saved, progress.total)
+          : i18n("LaunchProgress.preparing")}
+      </Typography.Text>
+    </Space>
+  );
+}
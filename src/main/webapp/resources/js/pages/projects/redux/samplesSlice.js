@@ -16,6 +16,7 @@ const addSelectedSample = createAction("samples/table/selected/add");
 const removeSelectedSample = createAction("samples/table/selected/remove");
 const clearSelectedSamples = createAction("samples/table/selected/clear");
 const clearFilterByFile = createAction("samples/table/clearFilterByFile");
+const setMetadataFields = createAction("samples/table/metadataFields");
 
 /**
  * Called when selecting all samples from the Samples Table.
@@ -152,6 +153,7 @@ export default createReducer(initialState, (builder) => {
     .addCase(reloadTable, (state) => {
       const newOptions = getInitialTableOptions();
       newOptions.pagination.pageSize = state.options.pagination.pageSize;
+      newOptions.metadataFields = state.options.metadataFields;
       newOptions.reload = Math.floor(Math.random() * 90000) + 10000; // Unique 5 digit number to trigger reload
       state.options = newOptions;
       state.selected = {};
@@ -195,6 +197,21 @@ export default createReducer(initialState, (builder) => {
       state.options.search.push(action.payload.fileFilter);
       state.filterByFile = action.payload;
     })
+    .addCase(setMetadataFields, (state, action) => {
+      // Sorting and filtering on a metadata field stops when its column is removed
+      const shown = action.payload.map((id) => `metadata.${id}`);
+      const isRemoved = (property) =>
+        property.startsWith("metadata.") && !shown.includes(property);
+      state.options.metadataFields = action.payload;
+      if (state.options.order) {
+        state.options.order = state.options.order.filter(
+          (order) => !isRemoved(order.property)
+        );
+      }
+      state.options.search = state.options.search.filter(
+        (search) => !isRemoved(search.property)
+      );
+    })
     .addCase(clearFilterByFile, (state) => {
       state.filterByFile = null;
       // Need to specifically remove the filter by file from the search filters.
@@ -213,6 +230,7 @@ export {
   clearSelectedSamples,
   filterByFile,
   clearFilterByFile,
+  setMetadataFields,
   selectAllSamples,
   addToCart,
   downloadSamples,
@@ -22,7 +22,9 @@ export function SampleMetadataImportMapHeaders() {
   const { projectId } = useParams();
   const navigate = useNavigate();
   const [column, setColumn] = React.useState();
-  const { headers, sampleNameColumn } = useSelector((state) => state.reducer);
+  const { headers, sampleNameColumn, uploadId } = useSelector(
+    (state) => state.reducer
+  );
   const [updateColumn] = useSetColumnProjectSampleMetadataMutation();
 
   React.useEffect(() => {
@@ -30,7 +32,7 @@ export function SampleMetadataImportMapHeaders() {
   }, []);
 
   const onSubmit = () => {
-    updateColumn({ projectId, sampleNameColumn: column })
+    updateColumn({ projectId, uploadId, sampleNameColumn: column })
       .unwrap()
       .then((payload) => {
         navigate(`/${projectId}/sample-metadata/upload/review`);
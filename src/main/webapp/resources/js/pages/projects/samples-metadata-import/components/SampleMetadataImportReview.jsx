@@ -1,8 +1,18 @@
 import React from "react";
+import { useSelector } from "react-redux";
 import { useNavigate, useParams } from "react-router-dom";
-import { Alert, Button, Table, Tag, Tooltip, Typography } from "antd";
+import {
+  Alert,
+  Button,
+  Progress,
+  Table,
+  Tag,
+  Tooltip,
+  Typography,
+} from "antd";
 import { SampleMetadataImportWizard } from "./SampleMetadataImportWizard";
 import {
+  useGetMetadataImportProgressQuery,
   useGetProjectSampleMetadataQuery,
   useSaveProjectSampleMetadataMutation,
 } from "../../../../apis/metadata/metadata-import";
@@ -46,13 +56,22 @@ const MetadataTable = styled(Table)`
 export function SampleMetadataImportReview() {
   const { projectId } = useParams();
   const navigate = useNavigate();
+  const { uploadId } = useSelector((state) => state.reducer);
   const [columns, setColumns] = React.useState([]);
-  const [selected, setSelected] = React.useState([]);
-  const [valid, setValid] = React.useState(true);
-  const { data = {}, isFetching, isSuccess } = useGetProjectSampleMetadataQuery(
-    projectId
-  );
+  const [excluded, setExcluded] = React.useState([]);
+  const [page, setPage] = React.useState({ current: 1, pageSize: 100 });
+  const [importId, setImportId] = React.useState();
+  const {
+    data = {},
+    isFetching,
+    isSuccess,
+    refetch,
+  } = useGetProjectSampleMetadataQuery({ projectId, uploadId, ...page });
   const [saveMetadata] = useSaveProjectSampleMetadataMutation();
+  const { data: progress } = useGetMetadataImportProgressQuery(importId, {
+    skip: !importId,
+    pollingInterval: 1000,
+  });
 
   const tagColumn = {
     title: "",
@@ -82,24 +101,43 @@ export function SampleMetadataImportReview() {
       value === "new" ? !record.foundSampleId : record.foundSampleId,
   };
 
+  const isSelectable = (row) =>
+    row.isSampleNameValid && (row.saved === null || row.saved === true);
+
+  const getSampleName = (row) => row.entry[data.sampleNameColumn];
+
+  /*
+  Only a page of rows is loaded at a time, so keep track of the samples the
+  user has chosen not to save instead of the ones that are selected.
+   */
+  const updateExcluded = (rows, selected) => {
+    const names = rows.map(getSampleName);
+    setExcluded((current) =>
+      selected
+        ? current.filter((name) => !names.includes(name))
+        : [...current, ...names.filter((name) => !current.includes(name))]
+    );
+  };
+
   const rowSelection = {
     fixed: true,
-    selectedRowKeys: selected,
-    onChange: (selectedRowKeys) => {
-      setSelected(selectedRowKeys);
-    },
+    selectedRowKeys: isSuccess
+      ? data.rows
+          .filter(
+            (row) => isSelectable(row) && !excluded.includes(getSampleName(row))
+          )
+          .map((row) => row.rowKey)
+      : [],
+    onSelect: (record, selected) => updateExcluded([record], selected),
+    onSelectAll: (selected, selectedRows, changeRows) =>
+      updateExcluded(changeRows, selected),
     getCheckboxProps: (record) => ({
-      disabled: !(
-        record.isSampleNameValid &&
-        (record.saved === null || record.saved === true)
-      ),
+      disabled: !isSelectable(record),
     }),
   };
 
   React.useEffect(() => {
     if (isSuccess) {
-      setValid(!data.rows.some((row) => row.isSampleNameValid === false));
-
       const index = data.headers.findIndex(
         (item) => item === data.sampleNameColumn
       );
@@ -151,31 +189,32 @@ export function SampleMetadataImportReview() {
       ];
 
       setColumns(updatedColumns);
-      setSelected(
-        data.rows.map((row) => {
-          if (
-            row.isSampleNameValid &&
-            (row.saved === null || row.saved === true)
-          )
-            return row.rowKey;
-        })
-      );
     }
   }, [data, isSuccess]);
 
-  const save = () => {
-    const sampleNames = data.rows
-      .filter((row) => selected.includes(row.rowKey))
-      .map((row) => row.entry[data.sampleNameColumn]);
-    saveMetadata({ projectId, sampleNames })
-      .unwrap()
-      .then((payload) => {
+  React.useEffect(() => {
+    if (progress?.finished) {
+      setImportId(undefined);
+      if (progress.failed) {
+        // Reload the metadata to show which rows could not be saved
+        refetch();
+      } else {
         navigate(`/${projectId}/sample-metadata/upload/complete`, {
-          state: { statusMessage: payload.message },
+          state: { statusMessage: progress.message },
         });
-      });
+      }
+    }
+  }, [navigate, progress, projectId, refetch]);
+
+  const save = () => {
+    saveMetadata({ projectId, uploadId, excludedSampleNames: excluded })
+      .unwrap()
+      .then((payload) => setImportId(payload.importId));
   };
 
+  const saving = importId !== undefined;
+  const valid = !isSuccess || data.invalidSampleNames === 0;
+
   return (
     <SampleMetadataImportWizard currentStep={2}>
       <Text>{i18n("SampleMetadataImportReview.description")}</Text>
@@ -196,6 +235,18 @@ export function SampleMetadataImportReview() {
           showIcon
         />
       )}
+      {saving && (
+        <div className="t-metadata-uploader-progress">
+          <Text>{i18n("SampleMetadataImportReview.progress")}</Text>
+          <Progress
+            percent={
+              progress?.total
+                ? Math.floor((progress.saved / progress.total) * 100)
+                : 0
+            }
+          />
+        </div>
+      )}
       <MetadataTable
         className="t-metadata-uploader-review-table"
         rowKey={(row) => row.rowKey}
@@ -207,13 +258,18 @@ export function SampleMetadataImportReview() {
         columns={columns}
         dataSource={data.rows}
         scroll={{ x: "max-content", y: 600 }}
-        pagination={false}
+        pagination={{
+          ...page,
+          total: data.total,
+          onChange: (current, pageSize) => setPage({ current, pageSize }),
+        }}
       />
 
       <div style={{ display: "flex" }}>
         <Button
           className="t-metadata-uploader-column-button"
           icon={<IconArrowLeft />}
+          disabled={saving}
           onClick={() => navigate(-1)}
         >
           {i18n("SampleMetadataImportReview.button.back")}
@@ -221,6 +277,7 @@ export function SampleMetadataImportReview() {
         <Button
           className="t-metadata-uploader-upload-button"
           style={{ marginLeft: "auto" }}
+          loading={saving}
           onClick={save}
         >
           {i18n("SampleMetadataImportReview.button.next")}
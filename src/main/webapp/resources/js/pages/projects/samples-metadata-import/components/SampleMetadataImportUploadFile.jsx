@@ -46,7 +46,8 @@ export function SampleMetadataImportUploadFile() {
         dispatch(
           setHeaders(
             info.file.response.headers,
-            info.file.response.sampleNameColumn
+            info.file.response.sampleNameColumn,
+            info.file.response.uploadId
           )
         );
         navigate(`/${projectId}/sample-metadata/upload/headers`);
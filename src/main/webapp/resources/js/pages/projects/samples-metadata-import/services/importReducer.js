@@ -8,8 +8,8 @@ For more information on redux actions see: https://redux-toolkit.js.org/api/crea
  */
 export const setHeaders = createAction(
   `rootReducers/setHeaders`,
-  (headers, sampleNameColumn) => ({
-    payload: { headers, sampleNameColumn }
+  (headers, sampleNameColumn, uploadId) => ({
+    payload: { headers, sampleNameColumn, uploadId }
   })
 );
 
@@ -23,6 +23,7 @@ export const importReducer = createReducer(
     builder.addCase(setHeaders, (state, action) => {
       state.headers = action.payload.headers;
       state.sampleNameColumn = action.payload.sampleNameColumn;
+      state.uploadId = action.payload.uploadId;
     });
   }
 );
\ No newline at end of file
@@ -0,0 +1,37 @@
+import React from "react";
+import { useDispatch, useSelector } from "react-redux";
+import { Select } from "antd";
+import { useGetMetadataFieldsForProjectQuery } from "../../../../apis/metadata/field";
+import { setMetadataFields } from "../../redux/samplesSlice";
+
+/**
+ * React component to pick the metadata fields shown as columns in the
+ * samples table.  The table can be sorted and filtered on these columns.
+ * @returns {JSX.Element}
+ * @constructor
+ */
+export default function MetadataColumnsSelect() {
+  const dispatch = useDispatch();
+  const { projectId, options } = useSelector((state) => state.samples);
+  const { data: fields = [], isLoading } = useGetMetadataFieldsForProjectQuery(
+    projectId
+  );
+
+  return (
+    <Select
+      className="t-metadata-columns"
+      mode="multiple"
+      allowClear
+      loading={isLoading}
+      placeholder={i18n("SamplesTable.metadataColumns")}
+      value={options.metadataFields}
+      onChange={(fieldIds) => dispatch(setMetadataFields(fieldIds))}
+      options={fields.map((field) => ({
+        label: field.label,
+        value: field.id,
+      }))}
+      optionFilterProp="label"
+      style={{ minWidth: 250 }}
+    />
+  );
+}
@@ -33,6 +33,7 @@ import {
   MergeCellsOutlined,
 } from "@ant-design/icons";
 import { useGetProjectDetailsQuery } from "../../../../apis/projects/project";
+import MetadataColumnsSelect from "./MetadataColumnsSelect";
 
 const MergeModal = lazy(() => import("./MergeModal"));
 const RemoveModal = lazy(() => import("./RemoveModal"));
@@ -315,22 +316,25 @@ export default function SamplesMenu() {
             {i18n("SampleMenu.cart")}
           </Button>
         </Space>
-        {fileFiltered ? (
-          <Button
-            shape="round"
-            icon={<CloseCircleOutlined />}
-            onClick={() => dispatch(clearFilterByFile())}
-          >
-            {i18n("SampleMenu.fileFilter.clear", fileFiltered.filename)}
-          </Button>
-        ) : (
-          <Button
-            onClick={() => setFilterByFileVisible(true)}
-            icon={<FileTextOutlined />}
-          >
-            {i18n("SampleMenu.fileFilter")}
-          </Button>
-        )}
+        <Space>
+          <MetadataColumnsSelect />
+          {fileFiltered ? (
+            <Button
+              shape="round"
+              icon={<CloseCircleOutlined />}
+              onClick={() => dispatch(clearFilterByFile())}
+            >
+              {i18n("SampleMenu.fileFilter.clear", fileFiltered.filename)}
+            </Button>
+          ) : (
+            <Button
+              onClick={() => setFilterByFileVisible(true)}
+              icon={<FileTextOutlined />}
+            >
+              {i18n("SampleMenu.fileFilter")}
+            </Button>
+          )}
+        </Space>
       </Row>
       {mergeVisible && (
         <Suspense fallback={<span />}>
@@ -2,6 +2,7 @@ import React from "react";
 import { useDispatch, useSelector } from "react-redux";
 import { Button, Checkbox, DatePicker, Select, Space, Table, Tag } from "antd";
 import { useListAssociatedProjectsQuery } from "../../../../apis/projects/associated-projects";
+import { useGetMetadataFieldsForProjectQuery } from "../../../../apis/metadata/field";
 import { formatInternationalizedDateTime } from "../../../../utilities/date-utilities";
 import {
   formatSearch,
@@ -62,6 +63,12 @@ export function SamplesTable() {
     projectId
   );
 
+  /**
+   * Fetch the metadata fields of the project to title the metadata columns
+   * picked by the user.
+   */
+  const { data: fields = [] } = useGetMetadataFieldsForProjectQuery(projectId);
+
   /**
    * Handle row selection change event
    * @param event
@@ -105,6 +112,7 @@ export function SamplesTable() {
         pagination,
         order: formatSort(sorter),
         search,
+        metadataFields: options.metadataFields,
       })
     );
   };
@@ -215,6 +223,20 @@ export function SamplesTable() {
     ),
   });
 
+  /*
+  Metadata columns are sorted and filtered on the server by the key
+  "metadata.<field id>", which is the joined dataIndex of the column.
+   */
+  const metadataColumns = fields
+    .filter((field) => options.metadataFields.includes(field.id))
+    .map((field) => ({
+      title: field.label,
+      className: "t-td-metadata",
+      dataIndex: ["metadata", String(field.id)],
+      sorter: { multiple: 1 },
+      ...getColumnSearchProps(["metadata", String(field.id)]),
+    }));
+
   const sampleUrl = setBaseUrl(`/projects/${projectId}/samples`);
   const columns = [
     {
@@ -306,6 +328,7 @@ export function SamplesTable() {
       sorter: { multiple: 1 },
       ...getColumnSearchProps(["sample", "collectedBy"]),
     },
+    ...metadataColumns,
     {
       title: i18n("SamplesTable.Column.created"),
       className: "t-td-created",
@@ -13,6 +13,7 @@ import {
 } from "../../../apis/projects/associated-projects";
 import samplesReducer from "../redux/samplesSlice";
 import { projectApi } from "../../../apis/projects/project";
+import { fieldsApi } from "../../../apis/metadata/field";
 
 /**
  * Redux store for project samples
@@ -23,11 +24,13 @@ export const store = configureStore({
     [projectApi.reducerPath]: projectApi.reducer,
     [samplesApi.reducerPath]: samplesApi.reducer,
     [associatedProjectsApi.reducerPath]: associatedProjectsApi.reducer,
+    [fieldsApi.reducerPath]: fieldsApi.reducer,
   },
   middleware: (getDefaultMiddleware) =>
     getDefaultMiddleware().concat(
       samplesApi.middleware,
-      associatedProjectsApi.middleware
+      associatedProjectsApi.middleware,
+      fieldsApi.middleware
     ),
   devTools: process.env.NODE_ENV !== "production",
 });
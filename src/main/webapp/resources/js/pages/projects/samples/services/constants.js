@@ -10,4 +10,5 @@ export const INITIAL_TABLE_STATE = JSON.stringify({
   },
   order: [{ property: "sample.modifiedDate", direction: "desc" }],
   search: [],
+  metadataFields: [],
 });
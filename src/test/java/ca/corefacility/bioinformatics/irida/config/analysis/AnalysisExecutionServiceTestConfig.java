@@ -7,6 +7,7 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Lazy;
@@ -39,6 +40,7 @@ import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
 import ca.corefacility.bioinformatics.irida.service.DatabaseSetupGalaxyITService;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisExecutionService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisStageExecutor;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy.AnalysisExecutionServiceGalaxy;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy.AnalysisExecutionServiceGalaxyAsync;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy.AnalysisExecutionServiceGalaxyCleanupAsync;
@@ -101,6 +103,9 @@ public class AnalysisExecutionServiceTestConfig {
 	@Autowired
 	private SampleRepository sampleRepository;
 
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
 	@Bean
 	public AnalysisSubmissionSampleProcessor analysisSubmissionSampleProcessor() {
 		List<AnalysisSampleUpdater> analysisSampleUpdaters = Lists.newLinkedList();
@@ -120,7 +125,7 @@ public class AnalysisExecutionServiceTestConfig {
 	public AnalysisExecutionServiceGalaxyAsync analysisExecutionServiceGalaxyAsync() {
 		return new AnalysisExecutionServiceGalaxyAsync(analysisSubmissionService, analysisService,
 				galaxyWorkflowService, analysisWorkspaceService(), iridaWorkflowsService,
-				analysisSubmissionSampleProcessor);
+				analysisSubmissionSampleProcessor, eventPublisher);
 	}
 
 	@Lazy
@@ -164,6 +169,26 @@ public class AnalysisExecutionServiceTestConfig {
 		return new DelegatingSecurityContextScheduledExecutorService(delegateExecutor, schedulerContext);
 	}
 
+	@Bean(destroyMethod = "shutdown")
+	public AnalysisStageExecutor analysisPrepareExecutor() {
+		return new AnalysisStageExecutor("prepare", 1, createSchedulerSecurityContext());
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public AnalysisStageExecutor analysisExecuteExecutor() {
+		return new AnalysisStageExecutor("execute", 1, createSchedulerSecurityContext());
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public AnalysisStageExecutor analysisTransferExecutor() {
+		return new AnalysisStageExecutor("transfer", 1, createSchedulerSecurityContext());
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public AnalysisStageExecutor analysisPostProcessExecutor() {
+		return new AnalysisStageExecutor("post-process", 1, createSchedulerSecurityContext());
+	}
+
 	/**
 	 * Creates a security context object for the analysis tasks.
 	 * 
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.AdditionalAnswers;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
 
 import ca.corefacility.bioinformatics.irida.model.enums.ProjectRole;
 import ca.corefacility.bioinformatics.irida.model.event.*;
@@ -28,6 +29,7 @@ import ca.corefacility.bioinformatics.irida.repositories.sample.SampleRepository
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -39,6 +41,7 @@ public class ProjectEventHandlerTest {
 	private ProjectRepository projectRepository;
 	private ProjectSampleJoinRepository psjRepository;
 	private SampleRepository sampleRepository;
+	private ApplicationEventPublisher eventPublisher;
 
 	@BeforeEach
 	public void setup() {
@@ -46,7 +49,9 @@ public class ProjectEventHandlerTest {
 		psjRepository = mock(ProjectSampleJoinRepository.class);
 		projectRepository = mock(ProjectRepository.class);
 		sampleRepository = mock(SampleRepository.class);
-		handler = new ProjectEventHandler(eventRepository, psjRepository, projectRepository, sampleRepository);
+		eventPublisher = mock(ApplicationEventPublisher.class);
+		handler = new ProjectEventHandler(eventRepository, psjRepository, projectRepository, sampleRepository,
+				eventPublisher);
 	}
 
 	@Test
@@ -78,6 +83,7 @@ public class ProjectEventHandlerTest {
 		Project project = new Project();
 		project.setId(1L);
 		User user = new User();
+		user.setUsername("tom");
 		ProjectUserJoin returnValue = new ProjectUserJoin(project, user, ProjectRole.PROJECT_USER);
 		Object[] args = { project, user, ProjectRole.PROJECT_USER };
 		MethodEvent methodEvent = new MethodEvent(clazz, returnValue, args);
@@ -93,6 +99,7 @@ public class ProjectEventHandlerTest {
 		assertTrue(event instanceof UserRoleSetProjectEvent);
 
 		verify(projectRepository).updateProjectModifiedDate(eq(project), any(Date.class));
+		verifyMembershipChanged("tom");
 	}
 
 	@Test
@@ -101,6 +108,7 @@ public class ProjectEventHandlerTest {
 		Project project = new Project();
 		project.setId(1L);
 		User user = new User();
+		user.setUsername("tom");
 		Object[] args = { project, user };
 		MethodEvent methodEvent = new MethodEvent(clazz, null, args);
 
@@ -115,6 +123,7 @@ public class ProjectEventHandlerTest {
 		assertTrue(event instanceof UserRemovedProjectEvent);
 
 		verify(projectRepository).updateProjectModifiedDate(eq(project), any(Date.class));
+		verifyMembershipChanged("tom");
 	}
 
 	@Test
@@ -260,4 +269,11 @@ public class ProjectEventHandlerTest {
 
 		verifyNoInteractions(eventRepository);
 	}
+
+	private void verifyMembershipChanged(String username) {
+		ArgumentCaptor<ProjectMembershipChangedEvent> captor = ArgumentCaptor.forClass(
+				ProjectMembershipChangedEvent.class);
+		verify(eventPublisher).publishEvent(captor.capture());
+		assertEquals(username, captor.getValue().getUsername(), "Membership should change for the user");
+	}
 }
@@ -1,8 +1,12 @@
 package ca.corefacility.bioinformatics.irida.model.sample.metadata.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
@@ -86,4 +90,23 @@ public class MetadataEntryTest {
 
 		assertThrows(IllegalArgumentException.class, () -> { e1.merge(e2); });
 	}
+
+	@Test
+	public void testTypedValues() {
+		MetadataEntry number = new MetadataEntry(" 12.5 ", "text");
+		assertEquals(12.5, number.getNumericValue(), "Numeric value should be read");
+		assertNull(number.getDateValue(), "Number is not a date");
+
+		MetadataEntry date = new MetadataEntry("2022-05-31", "text");
+		assertEquals(Date.from(LocalDate.of(2022, 5, 31).atStartOfDay(ZoneId.systemDefault()).toInstant()),
+				date.getDateValue(), "Date value should be read");
+		assertNull(date.getNumericValue(), "Date is not a number");
+
+		MetadataEntry text = new MetadataEntry("2022-02-30", "text");
+		assertNull(text.getDateValue(), "Invalid dates should not be read");
+		text.merge(new MetadataEntry("-1e3", "text"));
+		assertEquals(-1000, text.getNumericValue(), "Numeric value should be updated on merge");
+		text.setValue("NaN");
+		assertNull(text.getNumericValue(), "Only decimal numbers should be read");
+	}
 }
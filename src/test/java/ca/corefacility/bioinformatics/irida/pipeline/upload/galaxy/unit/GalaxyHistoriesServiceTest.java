@@ -2,19 +2,29 @@ package ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -211,6 +221,85 @@ public class GalaxyHistoriesServiceTest {
 		});
 	}
 	
+	/**
+	 * Tests that the progress status of a history uses the status loaded by
+	 * the monitor.
+	 * @throws ExecutionManagerException 
+	 */
+	@Test
+	public void testGetRecentStatusUsesMonitoredStatus() throws ExecutionManagerException {
+		Map<String, List<String>> validStateIds = Util.buildStateIdsWithStateFilled("running", Arrays.asList("1", "2"));
+		
+		when(historiesClient.showHistory(VALID_HISTORY_ID)).thenReturn(historyDetails);
+		when(historyDetails.getState()).thenReturn("running");
+		when(historyDetails.getStateIds()).thenReturn(validStateIds);
+		
+		GalaxyWorkflowStatus monitored = galaxyHistory.getStatusForHistory(VALID_HISTORY_ID);
+		
+		assertSame(monitored, galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID),
+				"progress should use the status loaded by the monitor");
+		assertSame(monitored, galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID),
+				"progress should use the status loaded by the monitor");
+		verify(historiesClient, times(1)).showHistory(VALID_HISTORY_ID);
+	}
+	
+	/**
+	 * Tests that an out of date progress status is loaded again.
+	 * @throws ExecutionManagerException 
+	 */
+	@Test
+	public void testGetRecentStatusExpired() throws ExecutionManagerException {
+		galaxyHistory = new GalaxyHistoriesService(historiesClient, toolsClient, galaxyLibrariesService, null,
+				Duration.ZERO);
+		Map<String, List<String>> validStateIds = Util.buildStateIdsWithStateFilled("running", Arrays.asList("1", "2"));
+		
+		when(historiesClient.showHistory(VALID_HISTORY_ID)).thenReturn(historyDetails);
+		when(historyDetails.getState()).thenReturn("running");
+		when(historyDetails.getStateIds()).thenReturn(validStateIds);
+		
+		galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID);
+		galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID);
+		
+		verify(historiesClient, times(2)).showHistory(VALID_HISTORY_ID);
+	}
+	
+	/**
+	 * Tests that concurrent requests for the progress status of a history
+	 * only load it from Galaxy once.
+	 * @throws Exception 
+	 */
+	@Test
+	public void testGetRecentStatusLoadedOnce() throws Exception {
+		Map<String, List<String>> validStateIds = Util.buildStateIdsWithStateFilled("running", Arrays.asList("1", "2"));
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		
+		when(historiesClient.showHistory(VALID_HISTORY_ID)).thenAnswer(invocation -> {
+			loading.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return historyDetails;
+		});
+		when(historyDetails.getState()).thenReturn("running");
+		when(historyDetails.getStateIds()).thenReturn(validStateIds);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<GalaxyWorkflowStatus> first = executor.submit(
+					() -> galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID));
+			assertTrue(loading.await(5, TimeUnit.SECONDS), "status should be loading");
+			Future<GalaxyWorkflowStatus> second = executor.submit(
+					() -> galaxyHistory.getRecentStatusForHistory(VALID_HISTORY_ID));
+			
+			release.countDown();
+			assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS),
+					"both requests should get the same status");
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		verify(historiesClient, times(1)).showHistory(VALID_HISTORY_ID);
+	}
+	
 	/**
 	 * Tests building a new history.
 	 */
@@ -3,19 +3,40 @@ package ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.unit;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.github.jmchilton.blend4j.galaxy.LibrariesClient;
+import com.github.jmchilton.blend4j.galaxy.beans.FilesystemPathsLibraryUpload;
+import com.github.jmchilton.blend4j.galaxy.beans.GalaxyObject;
 import com.github.jmchilton.blend4j.galaxy.beans.Library;
+import com.github.jmchilton.blend4j.galaxy.beans.LibraryContent;
+import com.github.jmchilton.blend4j.galaxy.beans.LibraryDataset;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import ca.corefacility.bioinformatics.irida.exceptions.UploadErrorException;
+import ca.corefacility.bioinformatics.irida.exceptions.UploadException;
 import ca.corefacility.bioinformatics.irida.exceptions.galaxy.CreateLibraryException;
 import ca.corefacility.bioinformatics.irida.model.upload.galaxy.GalaxyProjectName;
+import ca.corefacility.bioinformatics.irida.pipeline.upload.DataStorage;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyLibrariesService;
 
 /**
@@ -128,4 +149,110 @@ public class GalaxyLibrariesServiceTest {
 			new GalaxyLibrariesService(librariesClient, 1, 2, 1).buildEmptyLibrary(new GalaxyProjectName("test"));
 		});
 	}
+	/**
+	 * Tests that each uploaded dataset is handed on as soon as it is ready,
+	 * while other datasets are still processing.
+	 * 
+	 * @throws UploadException
+	 * @throws IOException
+	 */
+	@Test
+	public void testFilesToLibraryWaitHandlesReadyDatasetsFirst() throws UploadException, IOException {
+		Path file1 = createFastqFile();
+		Path file2 = createFastqFile();
+		String file1Id = file1.getFileName() + "-id";
+		String file2Id = file2.getFileName() + "-id";
+		setupLibraryUploads();
+
+		CountDownLatch file1Handled = new CountDownLatch(1);
+		when(librariesClient.showDataset(LIBRARY_ID, file1Id)).thenReturn(libraryDataset("ok"));
+		when(librariesClient.showDataset(LIBRARY_ID, file2Id)).thenReturn(libraryDataset("queued"))
+				.thenAnswer(invocation -> {
+					// still processing until the other dataset has been handled
+					return libraryDataset(file1Handled.await(5, TimeUnit.SECONDS) ? "ok" : "queued");
+				});
+
+		GalaxyLibrariesService librariesService = new GalaxyLibrariesService(librariesClient, 1, 10, 2);
+		Map<Path, String> handled = librariesService.filesToLibraryWait(ImmutableSet.of(file1, file2), testLibrary,
+				DataStorage.LOCAL, datasetLibraryId -> {
+					if (datasetLibraryId.equals(file1Id)) {
+						file1Handled.countDown();
+					}
+					return "history-" + datasetLibraryId;
+				});
+
+		assertEquals(ImmutableMap.of(file1, "history-" + file1Id, file2, "history-" + file2Id), handled,
+				"every dataset should be handled");
+		verify(librariesClient, times(1)).getRootFolder(LIBRARY_ID);
+		verify(librariesClient, times(1)).showDataset(LIBRARY_ID, file1Id);
+		verify(librariesClient, times(2)).showDataset(LIBRARY_ID, file2Id);
+	}
+
+	/**
+	 * Tests that handling the uploaded datasets isn't limited by the upload
+	 * timeout.
+	 * 
+	 * @throws UploadException
+	 * @throws IOException
+	 */
+	@Test
+	public void testFilesToLibraryWaitHandlingOutlastsUploadTimeout() throws UploadException, IOException {
+		Path file1 = createFastqFile();
+		String file1Id = file1.getFileName() + "-id";
+		setupLibraryUploads();
+		when(librariesClient.showDataset(LIBRARY_ID, file1Id)).thenReturn(libraryDataset("ok"));
+
+		GalaxyLibrariesService librariesService = new GalaxyLibrariesService(librariesClient, 1, 2, 2);
+		Map<Path, String> handled = librariesService.filesToLibraryWait(ImmutableSet.of(file1), testLibrary,
+				DataStorage.LOCAL, datasetLibraryId -> {
+					Uninterruptibles.sleepUninterruptibly(3, TimeUnit.SECONDS);
+					return "history-" + datasetLibraryId;
+				});
+
+		assertEquals(ImmutableMap.of(file1, "history-" + file1Id), handled, "dataset should be handled");
+	}
+
+	/**
+	 * Tests failing when Galaxy fails to process an uploaded dataset.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testFilesToLibraryWaitFailState() throws IOException {
+		Path file1 = createFastqFile();
+		setupLibraryUploads();
+		when(librariesClient.showDataset(LIBRARY_ID, file1.getFileName() + "-id")).thenReturn(
+				libraryDataset("error"));
+
+		GalaxyLibrariesService librariesService = new GalaxyLibrariesService(librariesClient, 1, 10, 2);
+		UploadErrorException e = assertThrows(UploadErrorException.class, () -> {
+			librariesService.filesToLibraryWait(ImmutableSet.of(file1), testLibrary, DataStorage.LOCAL);
+		});
+		assertTrue(e.getMessage().contains("state=error"), "should report the failed state");
+	}
+
+	private void setupLibraryUploads() {
+		LibraryContent rootFolder = new LibraryContent();
+		rootFolder.setId("root");
+		when(librariesClient.getRootFolder(LIBRARY_ID)).thenReturn(rootFolder);
+		when(librariesClient.uploadFilesystemPaths(eq(LIBRARY_ID), any(FilesystemPathsLibraryUpload.class)))
+				.thenAnswer(invocation -> {
+					FilesystemPathsLibraryUpload upload = invocation.getArgument(1);
+					GalaxyObject uploaded = new GalaxyObject();
+					uploaded.setId(upload.getName() + "-id");
+					return uploaded;
+				});
+	}
+
+	private static Path createFastqFile() throws IOException {
+		Path file = Files.createTempFile("galaxy-libraries-service-test", ".fastq");
+		file.toFile().deleteOnExit();
+		return Files.write(file, "@read".getBytes());
+	}
+
+	private static LibraryDataset libraryDataset(String state) {
+		LibraryDataset libraryDataset = new LibraryDataset();
+		libraryDataset.setState(state);
+		return libraryDataset;
+	}
 }
@@ -36,12 +36,14 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.context.MessageSource;
 
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 public class AutomatedAnalysisFileProcessorTest {
@@ -131,13 +133,13 @@ public class AutomatedAnalysisFileProcessorTest {
 		when(ssoRepository.getSampleForSequencingObject(pair)).thenReturn(new SampleSequencingObjectJoin(sample, pair));
 		when(psjRepository.getProjectForSample(sample)).thenReturn(
 				ImmutableList.of(new ProjectSampleJoin(project, sample, true)));
-		when(submissionRepository.save(any(AnalysisSubmission.class))).thenReturn(built);
+		when(submissionRepository.saveAll(anyList())).thenReturn(List.of(built));
 
 		assertTrue(processor.shouldProcessFile(pair), "should want to assemble file");
 		processor.process(pair);
 
-		verify(submissionRepository).save(any(AnalysisSubmission.class));
-		verify(pasRepository).save(any(ProjectAnalysisSubmissionJoin.class));
+		verify(submissionRepository).saveAll(anyList());
+		verify(pasRepository).saveAll(anyList());
 
 		//ensure the assembly is associated with the sample
 		ArgumentCaptor<SequencingObject> captor = ArgumentCaptor.forClass(SequencingObject.class);
@@ -172,13 +174,13 @@ public class AutomatedAnalysisFileProcessorTest {
 		when(ssoRepository.getSampleForSequencingObject(pair)).thenReturn(new SampleSequencingObjectJoin(sample, pair));
 		when(psjRepository.getProjectForSample(sample)).thenReturn(
 				ImmutableList.of(new ProjectSampleJoin(project, sample, true)));
-		when(submissionRepository.save(any(AnalysisSubmission.class))).thenReturn(built);
+		when(submissionRepository.saveAll(anyList())).thenReturn(List.of(built));
 
 		assertTrue(processor.shouldProcessFile(pair), "should want to assemble file");
 		processor.process(pair);
 
-		verify(submissionRepository).save(any(AnalysisSubmission.class));
-		verify(pasRepository).save(any(ProjectAnalysisSubmissionJoin.class));
+		verify(submissionRepository).saveAll(anyList());
+		verify(pasRepository).saveAll(anyList());
 
 		//ensure the assembly is associated with the sample
 		verify(objectRepository, times(0)).save(any(SequencingObject.class));
@@ -224,19 +226,21 @@ public class AutomatedAnalysisFileProcessorTest {
 		when(psjRepository.getProjectForSample(sample)).thenReturn(
 				ImmutableList.of(new ProjectSampleJoin(disabledProject, sample, true),
 						new ProjectSampleJoin(project, sample, true)));
-		when(submissionRepository.save(any(AnalysisSubmission.class))).thenReturn(built);
+		when(submissionRepository.saveAll(anyList())).thenReturn(List.of(built));
 
 		processor.process(pair);
 
-		verify(submissionRepository).save(any(AnalysisSubmission.class));
+		verify(submissionRepository).saveAll(anyList());
 
-		ArgumentCaptor<ProjectAnalysisSubmissionJoin> captor = ArgumentCaptor.forClass(
-				ProjectAnalysisSubmissionJoin.class);
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<ProjectAnalysisSubmissionJoin>> captor = ArgumentCaptor.forClass(List.class);
 
-		verify(pasRepository).save(captor.capture());
+		verify(pasRepository).saveAll(captor.capture());
 
-		ProjectAnalysisSubmissionJoin captorValue = captor.getValue();
-		assertEquals(project, captorValue.getSubject(), "should have run file processor for one project");
+		List<ProjectAnalysisSubmissionJoin> captorValue = captor.getValue();
+		assertEquals(1, captorValue.size(), "should have shared one submission");
+		assertEquals(project, captorValue.get(0)
+				.getSubject(), "should have run file processor for one project");
 
 	}
 }
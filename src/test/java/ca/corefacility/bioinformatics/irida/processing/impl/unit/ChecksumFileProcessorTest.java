@@ -1,8 +1,12 @@
 package ca.corefacility.bioinformatics.irida.processing.impl.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
@@ -15,8 +19,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFilePair;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
 import ca.corefacility.bioinformatics.irida.processing.impl.ChecksumFileProcessor;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFileRepository;
 
@@ -25,6 +31,7 @@ public class ChecksumFileProcessorTest {
 	private SequenceFileRepository sequenceFileRepository;
 	private static final String FILE_CONTENTS = ">test read\nACGTACTCATG";
 	private static final String CHECKSUM = "aeaa0755dc44b393ffe12f02e9bd42b0169b12ca9c15708085db6a4ac9110ee0";
+	private static final long CRC32 = 906206316L;
 
 	@BeforeEach
 	public void setUp() {
@@ -46,6 +53,71 @@ public class ChecksumFileProcessorTest {
 		SequenceFile file = fileCaptor.getValue();
 
 		assertEquals(CHECKSUM, file.getUploadSha256(), "checksums should be equal");
+		assertEquals(CRC32, file.getCrc32(), "CRC-32 should be saved");
+	}
+
+	@Test
+	public void testChecksumsCreatedInParallel() throws IOException {
+		SequenceFilePair pair = new SequenceFilePair(constructSequenceFile(), constructSequenceFile());
+
+		SequenceFileTaskRunner runner = new SequenceFileTaskRunner(2);
+		fileProcessor.setFileTaskRunner(runner);
+		try {
+			fileProcessor.process(pair);
+		} finally {
+			runner.shutdown();
+		}
+
+		ArgumentCaptor<SequenceFile> fileCaptor = ArgumentCaptor.forClass(SequenceFile.class);
+		verify(sequenceFileRepository, times(2)).saveMetadata(fileCaptor.capture());
+
+		for (SequenceFile file : fileCaptor.getAllValues()) {
+			assertEquals(CHECKSUM, file.getUploadSha256(), "checksums should be equal");
+			assertEquals(CRC32, file.getCrc32(), "CRC-32 should be saved");
+		}
+	}
+
+	@Test
+	public void testChecksumsCreatedFromStream() throws IOException {
+		final SequenceFile sf = constructSequenceFile();
+		byte[] contents = FILE_CONTENTS.getBytes();
+
+		ChecksumFileProcessor.ChecksumConsumer consumer = fileProcessor.openStream(sf, false);
+		consumer.accept(contents, 0, 5);
+		consumer.accept(contents, 5, contents.length - 5);
+		fileProcessor.completeStream(sf, consumer);
+
+		verify(sequenceFileRepository).saveMetadata(sf);
+		assertEquals(CHECKSUM, sf.getUploadSha256(), "checksums should be equal");
+		assertEquals(CRC32, sf.getCrc32(), "CRC-32 should be saved");
+	}
+
+	@Test
+	public void testCrcClearedWhenFileChanges() throws IOException {
+		final SequenceFile sf = constructSequenceFile();
+		sf.setCrc32(CRC32);
+
+		sf.incrementFileRevisionNumber();
+
+		assertNull(sf.getCrc32(), "CRC-32 of the old file should be cleared");
+	}
+
+	@Test
+	public void testFileNotExistsInParallel() throws IOException {
+		SequenceFilePair pair = new SequenceFilePair(constructSequenceFile(),
+				new SequenceFile(Paths.get("/reallyfakefile")));
+
+		SequenceFileTaskRunner runner = new SequenceFileTaskRunner(2);
+		fileProcessor.setFileTaskRunner(runner);
+		try {
+			assertThrows(FileProcessorException.class, () -> {
+				fileProcessor.process(pair);
+			});
+		} finally {
+			runner.shutdown();
+		}
+
+		verify(sequenceFileRepository, never()).saveMetadata(any(SequenceFile.class));
 	}
 
 	@Test
@@ -1,12 +1,17 @@
 package ca.corefacility.bioinformatics.irida.processing.impl.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -18,13 +23,15 @@ import org.mockito.ArgumentCaptor;
 
 import com.google.common.collect.Sets;
 
-import ca.corefacility.bioinformatics.irida.exceptions.FileProcessorTimeoutException;
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.model.sample.QCEntry;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessingChain;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.StreamingFileProcessor;
 import ca.corefacility.bioinformatics.irida.processing.impl.DefaultFileProcessingChain;
 import ca.corefacility.bioinformatics.irida.repositories.sample.QCEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
@@ -42,6 +49,8 @@ public class DefaultFileProcessingChainTest {
 	private SequencingObject seqObject;
 	private Long objectId = 1L;
 
+	private static final String FILE_CONTENTS = "@read\nACGT\n+\n????\n";
+
 	@BeforeEach
 	public void setUp() {
 		this.objectRepository = mock(SequencingObjectRepository.class);
@@ -52,29 +61,26 @@ public class DefaultFileProcessingChainTest {
 	}
 
 	@Test
-	public void testExceedsTimeout() throws FileProcessorTimeoutException {
+	public void testRemovedObject() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository);
-		fileProcessingChain.setTimeout(1);
-		fileProcessingChain.setSleepDuration(0);
+		when(objectRepository.findById(objectId)).thenReturn(Optional.empty());
 
-		assertThrows(FileProcessorTimeoutException.class, () -> {
+		assertThrows(EntityNotFoundException.class, () -> {
 			fileProcessingChain.launchChain(objectId);
 		});
 	}
 
 	@Test
-	public void testProcessEmptyChain() throws FileProcessorTimeoutException {
+	public void testProcessEmptyChain() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository);
-		when(objectRepository.existsById(objectId)).thenReturn(true);
 
 		fileProcessingChain.launchChain(objectId);
 	}
 
 	@Test
-	public void testFailWithContinueChain() throws FileProcessorTimeoutException {
+	public void testFailWithContinueChain() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
 				new FailingFileProcessor());
-		when(objectRepository.existsById(objectId)).thenReturn(true);
 
 		List<Exception> exceptions = fileProcessingChain.launchChain(1L);
 		// exceptions should be ignored in this test
@@ -85,10 +91,9 @@ public class DefaultFileProcessingChainTest {
 	}
 
 	@Test
-	public void testFastFailProcessorChain() throws FileProcessorTimeoutException {
+	public void testFastFailProcessorChain() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
 				new FailingFileProcessor());
-		when(objectRepository.existsById(objectId)).thenReturn(true);
 
 		fileProcessingChain.setFastFail(true);
 
@@ -98,11 +103,10 @@ public class DefaultFileProcessingChainTest {
 	}
 
 	@Test
-	public void testFailOnProcessorChain() throws FileProcessorTimeoutException {
+	public void testFailOnProcessorChain() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
 				new FailingFileProcessorNoContinue());
 
-		when(objectRepository.existsById(objectId)).thenReturn(true);
 
 		assertThrows(FileProcessorException.class, () -> {
 			fileProcessingChain.launchChain(1L);
@@ -110,10 +114,9 @@ public class DefaultFileProcessingChainTest {
 	}
 
 	@Test
-	public void testFailWriteQCEntry() throws FileProcessorTimeoutException {
+	public void testFailWriteQCEntry() {
 		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
 				new FailingFileProcessorNoContinue());
-		when(objectRepository.existsById(objectId)).thenReturn(true);
 
 		boolean exceptionCaught = false;
 		try {
@@ -132,6 +135,115 @@ public class DefaultFileProcessingChainTest {
 
 	}
 
+	@Test
+	public void testStreamingProcessorsShareOneRead() throws IOException {
+		SequencingObject fileObject = createFileObject();
+		when(objectRepository.findById(objectId)).thenReturn(Optional.of(fileObject));
+
+		RecordingStreamingFileProcessor first = new RecordingStreamingFileProcessor(false);
+		RecordingStreamingFileProcessor second = new RecordingStreamingFileProcessor(false);
+		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
+				first, second);
+		fileProcessingChain.setStreaming(true);
+
+		fileProcessingChain.launchChain(objectId);
+
+		assertEquals(0, first.processed, "processor should not have read the file itself");
+		assertEquals(0, second.processed, "processor should not have read the file itself");
+		assertEquals(FILE_CONTENTS, first.completed, "processor should have seen the whole file");
+		assertEquals(FILE_CONTENTS, second.completed, "processor should have seen the whole file");
+	}
+
+	@Test
+	public void testStreamingFallsBackWhenReadFails() throws IOException {
+		SequencingObject fileObject = createFileObject();
+		when(objectRepository.findById(objectId)).thenReturn(Optional.of(fileObject));
+
+		RecordingStreamingFileProcessor first = new RecordingStreamingFileProcessor(false);
+		RecordingStreamingFileProcessor failing = new RecordingStreamingFileProcessor(true);
+		FileProcessingChain fileProcessingChain = new DefaultFileProcessingChain(objectRepository, qcRepository,
+				first, failing);
+		fileProcessingChain.setStreaming(true);
+
+		fileProcessingChain.launchChain(objectId);
+
+		assertEquals(1, first.processed, "processor should have been run on its own");
+		assertEquals(1, failing.processed, "processor should have been run on its own");
+		assertNull(first.completed, "nothing should have been persisted from the failed read");
+		assertEquals(1, first.discarded, "the stream of the failed read should have been discarded");
+		assertEquals(1, failing.discarded, "the stream of the failed read should have been discarded");
+	}
+
+	private SequencingObject createFileObject() throws IOException {
+		Path file = Files.createTempFile(null, null);
+		Files.write(file, FILE_CONTENTS.getBytes());
+		return new SingleEndSequenceFile(new SequenceFile(file));
+	}
+
+	/**
+	 * Streaming processor that records what it was given
+	 */
+	private static class RecordingStreamingFileProcessor
+			implements StreamingFileProcessor<RecordingStreamingFileProcessor.RecordingConsumer> {
+		private final boolean failToConsume;
+		private int processed = 0;
+		private int discarded = 0;
+		private String completed;
+
+		public RecordingStreamingFileProcessor(boolean failToConsume) {
+			this.failToConsume = failToConsume;
+		}
+
+		@Override
+		public Boolean modifiesFile() {
+			return false;
+		}
+
+		@Override
+		public void process(SequencingObject sequencingObject) {
+			processed++;
+		}
+
+		@Override
+		public StreamContent getStreamContent() {
+			return StreamContent.DECOMPRESSED;
+		}
+
+		@Override
+		public RecordingConsumer openStream(SequenceFile sequenceFile, boolean compressed) {
+			return new RecordingConsumer(this, failToConsume);
+		}
+
+		@Override
+		public void completeStream(SequenceFile sequenceFile, RecordingConsumer consumer) {
+			completed = consumer.contents.toString();
+		}
+
+		private static class RecordingConsumer implements StreamConsumer {
+			private final RecordingStreamingFileProcessor processor;
+			private final boolean fail;
+			private final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+
+			public RecordingConsumer(RecordingStreamingFileProcessor processor, boolean fail) {
+				this.processor = processor;
+				this.fail = fail;
+			}
+
+			@Override
+			public void discard() {
+				processor.discarded++;
+			}
+
+			@Override
+			public void accept(byte[] buffer, int offset, int length) throws IOException {
+				if (fail) {
+					throw new IOException("I can't read.");
+				}
+				contents.write(buffer, offset, length);
+			}
+		}
+	}
+
 	private static class FailingFileProcessor implements FileProcessor {
 
 		@Override
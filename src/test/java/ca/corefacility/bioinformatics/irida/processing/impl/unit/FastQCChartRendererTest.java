@@ -0,0 +1,94 @@
+package ca.corefacility.bioinformatics.irida.processing.impl.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.BoxPlotSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData.LineSeries;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartDataConverter;
+import ca.corefacility.bioinformatics.irida.processing.impl.FastQCChartRenderer;
+
+/**
+ * Tests for {@link FastQCChartRenderer}.
+ */
+public class FastQCChartRendererTest {
+	private FastQCChartRenderer renderer;
+	private FastQCChartData chartData;
+
+	@BeforeEach
+	public void setUp() {
+		renderer = new FastQCChartRenderer(2);
+
+		BoxPlotSeries perBase = new BoxPlotSeries(new double[] { 30, 31 }, new double[] { 30, 32 },
+				new double[] { 20, 21 }, new double[] { 35, 36 }, new double[] { 25, Double.NaN },
+				new double[] { 33, 34 }, 0, 40, 2, new String[] { "1", "2" },
+				"Quality scores across all bases (Sanger / Illumina 1.9 encoding)");
+		LineSeries perSequence = new LineSeries(new double[][] { { 1, 10, 100 } }, 0, 100,
+				"Mean Sequence Quality (Phred Score)", new String[] { "Average Quality per read" },
+				new String[] { "28", "29", "30" }, "Quality score distribution over all sequences");
+		LineSeries duplication = new LineSeries(new double[][] { { 90, 10 }, { 80, 20 } }, 0, 100,
+				"Sequence Duplication Level", new String[] { "% Deduplicated sequences", "% Total sequences" },
+				new String[] { "1", "2" }, "Percent of seqs remaining if deduplicated 90%");
+		chartData = new FastQCChartData(perBase, perSequence, duplication);
+	}
+
+	@Test
+	public void testDrawCharts() throws IOException {
+		AnalysisFastQC analysis = AnalysisFastQC.builder().chartData(chartData).build();
+
+		assertChart(renderer.getPerBaseQualityScoreChart(analysis));
+		assertChart(renderer.getPerSequenceQualityScoreChart(analysis));
+		assertChart(renderer.getDuplicationLevelChart(analysis));
+	}
+
+	@Test
+	public void testChartsAreCached() throws IOException {
+		AnalysisFastQC analysis = AnalysisFastQC.builder().chartData(chartData).build();
+		analysis.setId(1L);
+
+		byte[] first = renderer.getPerBaseQualityScoreChart(analysis);
+		assertSame(first, renderer.getPerBaseQualityScoreChart(analysis), "Chart should be drawn once");
+
+		// filling the cache pushes out the least recently used chart
+		renderer.getPerSequenceQualityScoreChart(analysis);
+		renderer.getDuplicationLevelChart(analysis);
+		byte[] redrawn = renderer.getPerBaseQualityScoreChart(analysis);
+		assertNotSame(first, redrawn, "Chart should have been dropped from the cache");
+		assertArrayEquals(first, redrawn, "Redrawn chart should be the same");
+	}
+
+	@Test
+	public void testAnalysisWithoutChartData() throws IOException {
+		AnalysisFastQC analysis = AnalysisFastQC.builder().build();
+
+		assertEquals(0, renderer.getPerBaseQualityScoreChart(analysis).length,
+				"Analysis without chart data or images should have no chart");
+	}
+
+	@Test
+	public void testChartDataRoundTrip() {
+		FastQCChartDataConverter converter = new FastQCChartDataConverter();
+
+		String json = converter.convertToDatabaseColumn(chartData);
+		assertEquals(chartData, converter.convertToEntityAttribute(json), "Chart data should be read back");
+		assertNull(converter.convertToDatabaseColumn(null), "No chart data should be stored as null");
+		assertNull(converter.convertToEntityAttribute(null), "Null should be read as no chart data");
+	}
+
+	private static void assertChart(byte[] png) throws IOException {
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		assertNotNull(image, "Chart should be a PNG");
+		assertEquals(FastQCChartRenderer.WIDTH, image.getWidth(), "Chart width should be set");
+		assertEquals(FastQCChartRenderer.HEIGHT, image.getHeight(), "Chart height should be set");
+	}
+}
@@ -1,19 +1,21 @@
 package ca.corefacility.bioinformatics.irida.processing.impl.unit;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
 
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.Fast5Object;
-import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisOutputFile;
-import ca.corefacility.bioinformatics.irida.repositories.analysis.AnalysisOutputFileRepository;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.FastQCChartData;
+import com.google.common.collect.ImmutableList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -24,10 +26,14 @@ import org.springframework.util.ReflectionUtils;
 
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.OverrepresentedSequence;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFilePair;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
 import ca.corefacility.bioinformatics.irida.processing.FileProcessorException;
+import ca.corefacility.bioinformatics.irida.processing.SequenceFileTaskRunner;
+import ca.corefacility.bioinformatics.irida.processing.impl.FastQCChartRenderer;
 import ca.corefacility.bioinformatics.irida.processing.impl.FastqcFileProcessor;
+import ca.corefacility.bioinformatics.irida.processing.impl.StreamingFileProcessingPass;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFileRepository;
 
 /**
@@ -38,7 +44,6 @@ import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequenceFi
 public class FastqcFileProcessorTest {
 	private FastqcFileProcessor fileProcessor;
 	private SequenceFileRepository sequenceFileRepository;
-	private AnalysisOutputFileRepository outputFileRepository;
 	private MessageSource messageSource;
 	private static final Logger logger = LoggerFactory.getLogger(FastqcFileProcessorTest.class);
 
@@ -51,8 +56,7 @@ public class FastqcFileProcessorTest {
 	public void setUp() {
 		messageSource = mock(MessageSource.class);
 		sequenceFileRepository = mock(SequenceFileRepository.class);
-		outputFileRepository = mock(AnalysisOutputFileRepository.class);
-		fileProcessor = new FastqcFileProcessor(messageSource, sequenceFileRepository, outputFileRepository);
+		fileProcessor = new FastqcFileProcessor(messageSource, sequenceFileRepository);
 	}
 
 	@Test
@@ -120,13 +124,18 @@ public class FastqcFileProcessorTest {
 		assertEquals(Long.valueOf(SEQUENCE.length() * 2), updated.getTotalBases(),
 				"Total number of bases was not correct.");
 
-		verify(outputFileRepository,times(3)).save(any(AnalysisOutputFile.class));
+		assertTrue(updated.getAnalysisOutputFiles().isEmpty(), "Chart images should not be written while processing.");
 
-		assertNotNull(updated.getAnalysisOutputFileNames().contains("perBaseQualityScoreChart"), "Per-base quality score chart was not created.");
-
-		assertNotNull(updated.getAnalysisOutputFileNames().contains("perSequenceQualityScoreChart"), "Per-sequence quality score chart was not created.");
-
-		assertNotNull(updated.getAnalysisOutputFileNames().contains("duplicationLevelChart"), "Duplication level chart was not created.");
+		FastQCChartData chartData = updated.getChartData();
+		assertNotNull(chartData, "Chart data was not stored.");
+		assertNotNull(chartData.getPerBaseQualityScores(), "Per-base quality score chart data was not stored.");
+		assertEquals(SEQUENCE.length(), chartData.getPerBaseQualityScores().getxLabels().length,
+				"Per-base quality scores should have one group per position.");
+		assertNotNull(chartData.getPerSequenceQualityScores(),
+				"Per-sequence quality score chart data was not stored.");
+		assertArrayEquals(new String[] { "30" }, chartData.getPerSequenceQualityScores().getxCategories(),
+				"Every read should have a mean quality of 30.");
+		assertNotNull(chartData.getDuplicationLevels(), "Duplication level chart data was not stored.");
 
 		Iterator<OverrepresentedSequence> ovrs = updated.getOverrepresentedSequences().iterator();
 		assertTrue(ovrs.hasNext(), "No overrepresented sequences added to analysis.");
@@ -137,6 +146,195 @@ public class FastqcFileProcessorTest {
 
 	}
 
+	@Test
+	public void testHandlePairInParallel() throws IOException {
+		Path forward = Files.createTempFile(null, null);
+		Path reverse = Files.createTempFile(null, null);
+		Files.write(forward, FASTQ_FILE_CONTENTS.getBytes());
+		Files.write(reverse, FASTQ_FILE_CONTENTS.getBytes());
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(forward));
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(reverse));
+
+		SequenceFilePair pair = new SequenceFilePair(new SequenceFile(forward), new SequenceFile(reverse));
+
+		SequenceFileTaskRunner runner = new SequenceFileTaskRunner(2);
+		fileProcessor.setFileTaskRunner(runner);
+		try {
+			fileProcessor.process(pair);
+		} finally {
+			runner.shutdown();
+		}
+
+		ArgumentCaptor<SequenceFile> argument = ArgumentCaptor.forClass(SequenceFile.class);
+		verify(sequenceFileRepository, times(2)).saveMetadata(argument.capture());
+
+		for (SequenceFile updated : argument.getAllValues()) {
+			assertNotNull(updated.getFastQCAnalysis(), "FastQC analysis should be set for both files");
+			assertEquals(Integer.valueOf(2), updated.getFastQCAnalysis().getTotalSequences(),
+					"Total sequences was not correct.");
+		}
+	}
+
+	@Test
+	public void testStreamGzippedFastqFile() throws IOException, IllegalArgumentException, IllegalAccessException {
+		// streaming a gzipped file should give the same results as running
+		// fastqc on the decompressed file
+		Path fastq = Files.createTempFile(null, ".fastq.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(fastq))) {
+			out.write(FASTQ_FILE_CONTENTS.getBytes());
+		}
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(fastq));
+
+		SequenceFile sf = new SequenceFile(fastq);
+		sf.setId(1L);
+		SingleEndSequenceFile so = new SingleEndSequenceFile(sf);
+		assertTrue(fileProcessor.canStream(so), "should be able to stream a fastq file");
+
+		StreamingFileProcessingPass pass = new StreamingFileProcessingPass(so, ImmutableList.of(fileProcessor));
+		pass.read();
+		pass.complete(fileProcessor);
+
+		ArgumentCaptor<SequenceFile> argument = ArgumentCaptor.forClass(SequenceFile.class);
+		verify(sequenceFileRepository).saveMetadata(argument.capture());
+		final Field fastqcAnalysis = ReflectionUtils.findField(SequenceFile.class, "fastqcAnalysis");
+		ReflectionUtils.makeAccessible(fastqcAnalysis);
+		AnalysisFastQC updated = (AnalysisFastQC) fastqcAnalysis.get(argument.getValue());
+		assertEquals(Short.valueOf((short) 50), updated.getGcContent(), "GC Content was not set correctly.");
+		assertEquals(Integer.valueOf(2), updated.getTotalSequences(), "Total sequences was not correct.");
+		assertEquals("Sanger / Illumina 1.9", updated.getEncoding(), "Encoding was not correct.");
+		assertEquals(Long.valueOf(SEQUENCE.length() * 2), updated.getTotalBases(),
+				"Total number of bases was not correct.");
+		assertEquals(1, updated.getOverrepresentedSequences().size(), "Overrepresented sequence was not found.");
+	}
+
+	@Test
+	public void testStreamFastaFile() throws IOException {
+		Path fasta = Files.createTempFile(null, null);
+		Files.write(fasta, FASTA_FILE_CONTENTS.getBytes());
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(fasta));
+		SingleEndSequenceFile so = new SingleEndSequenceFile(new SequenceFile(fasta));
+
+		StreamingFileProcessingPass pass = new StreamingFileProcessingPass(so, ImmutableList.of(fileProcessor));
+		assertThrows(IOException.class, pass::read, "streaming a fasta file should fail");
+	}
+
+	@Test
+	public void testNativeStatisticsMatchFastQC() throws IOException {
+		// variable length reads with a common adapter, enough reads at each
+		// position for the quality percentiles
+		Path fastq = writeRandomFastq(2000, 60, 151, 7);
+		assertNativeMatchesFastQC(fastq);
+	}
+
+	@Test
+	public void testNativeStatisticsMatchFastQCPastUniqueLimit() throws IOException {
+		// more unique sequences than FastQC tracks for duplication levels
+		Path fastq = writeRandomFastq(120000, 35, 40, 11);
+		assertNativeMatchesFastQC(fastq);
+	}
+
+	@Test
+	public void testNativeStatisticsStreamed() throws IOException, IllegalArgumentException, IllegalAccessException {
+		Path fastq = Files.createTempFile(null, ".fastq.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(fastq))) {
+			out.write(FASTQ_FILE_CONTENTS.getBytes());
+		}
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(fastq));
+
+		fileProcessor.setNativeStatistics(true);
+		SequenceFile sf = new SequenceFile(fastq);
+		sf.setId(1L);
+		SingleEndSequenceFile so = new SingleEndSequenceFile(sf);
+
+		StreamingFileProcessingPass pass = new StreamingFileProcessingPass(so, ImmutableList.of(fileProcessor));
+		pass.read();
+		pass.complete(fileProcessor);
+
+		ArgumentCaptor<SequenceFile> argument = ArgumentCaptor.forClass(SequenceFile.class);
+		verify(sequenceFileRepository).saveMetadata(argument.capture());
+		AnalysisFastQC updated = argument.getValue().getFastQCAnalysis();
+		assertEquals(Integer.valueOf(2), updated.getTotalSequences(), "Total sequences was not correct.");
+		assertEquals(Short.valueOf((short) 50), updated.getGcContent(), "GC Content was not set correctly.");
+		assertEquals(1, updated.getOverrepresentedSequences().size(), "Should have one overrepresented sequence");
+	}
+
+	/**
+	 * Run the processor over a file with the FastQC modules and with the
+	 * native statistics, and check that the analyses and drawn charts are the
+	 * same.
+	 */
+	private void assertNativeMatchesFastQC(Path fastq) throws IOException {
+		fileProcessor.setNativeStatistics(false);
+		AnalysisFastQC expected = runAnalysis(fastq);
+
+		fileProcessor.setNativeStatistics(true);
+		AnalysisFastQC actual = runAnalysis(fastq);
+
+		assertEquals(expected.getFileType(), actual.getFileType(), "File type should match");
+		assertEquals(expected.getEncoding(), actual.getEncoding(), "Encoding should match");
+		assertEquals(expected.getTotalSequences(), actual.getTotalSequences(), "Total sequences should match");
+		assertEquals(expected.getFilteredSequences(), actual.getFilteredSequences(), "Filtered sequences should match");
+		assertEquals(expected.getMinLength(), actual.getMinLength(), "Min length should match");
+		assertEquals(expected.getMaxLength(), actual.getMaxLength(), "Max length should match");
+		assertEquals(expected.getGcContent(), actual.getGcContent(), "GC content should match");
+		assertEquals(expected.getTotalBases(), actual.getTotalBases(), "Total bases should match");
+		assertEquals(expected.getOverrepresentedSequences(), actual.getOverrepresentedSequences(),
+				"Overrepresented sequences should match");
+
+		FastQCChartData expectedCharts = expected.getChartData();
+		FastQCChartData actualCharts = actual.getChartData();
+		assertEquals(expectedCharts, actualCharts, "Chart data should match");
+		assertArrayEquals(FastQCChartRenderer.render(expectedCharts.getPerBaseQualityScores()),
+				FastQCChartRenderer.render(actualCharts.getPerBaseQualityScores()),
+				"Per-base quality score chart should match");
+		assertArrayEquals(FastQCChartRenderer.render(expectedCharts.getPerSequenceQualityScores()),
+				FastQCChartRenderer.render(actualCharts.getPerSequenceQualityScores()),
+				"Per-sequence quality score chart should match");
+		assertArrayEquals(FastQCChartRenderer.render(expectedCharts.getDuplicationLevels()),
+				FastQCChartRenderer.render(actualCharts.getDuplicationLevels()),
+				"Duplication level chart should match");
+	}
+
+	private AnalysisFastQC runAnalysis(Path fastq) {
+		reset(sequenceFileRepository);
+
+		SequenceFile sf = new SequenceFile(fastq);
+		sf.setId(1L);
+		fileProcessor.process(new SingleEndSequenceFile(sf));
+
+		ArgumentCaptor<SequenceFile> fileCaptor = ArgumentCaptor.forClass(SequenceFile.class);
+		verify(sequenceFileRepository).saveMetadata(fileCaptor.capture());
+		return fileCaptor.getValue().getFastQCAnalysis();
+	}
+
+	private static Path writeRandomFastq(int reads, int minLength, int maxLength, long seed) throws IOException {
+		Random random = new Random(seed);
+		String adapter = "AGATCGGAAGAGCACACGTCTGAACTCCAGTCACATCACGATCTCGTATGCCGTCTTCTGCTTG";
+		char[] bases = new char[] { 'A', 'C', 'G', 'T', 'N', 'a', 'c', 'g', 't' };
+
+		Path fastq = Files.createTempFile(null, ".fastq");
+		Runtime.getRuntime().addShutdownHook(new DeleteFileOnExit(fastq));
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < reads; i++) {
+			int length = minLength + random.nextInt(maxLength - minLength + 1);
+			StringBuilder sequence = new StringBuilder(length);
+			StringBuilder quality = new StringBuilder(length);
+			for (int b = 0; b < length; b++) {
+				if (i % 10 == 0 && b < adapter.length()) {
+					sequence.append(adapter.charAt(b));
+				} else {
+					sequence.append(bases[random.nextInt(bases.length)]);
+				}
+				quality.append((char) ('#' + random.nextInt(39)));
+			}
+			builder.append("@read").append(i).append('\n').append(sequence).append("\n+\n").append(quality)
+					.append(i % 3 == 0 ? "\r\n" : "\n");
+		}
+		Files.write(fastq, builder.toString().getBytes());
+		return fastq;
+	}
+
 	private static final class DeleteFileOnExit extends Thread {
 
 		private final Path fileToDelete;
@@ -0,0 +1,76 @@
+package ca.corefacility.bioinformatics.irida.processing.impl.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.processing.impl.NativeFastqStatistics;
+import ca.corefacility.bioinformatics.irida.processing.impl.NativeFastqStatistics.UnsupportedFastqException;
+
+/**
+ * Tests for {@link NativeFastqStatistics}.
+ */
+public class NativeFastqStatisticsTest {
+
+	@Test
+	public void testSplitRecords() throws IOException {
+		String fastq = "@read1\r\nACGTacgt\r\n+\r\nIIIIIIII\r\n\n@read2\rACGTN\r+read2\r#####";
+
+		// feed the file a few bytes at a time so records are split across
+		// buffers
+		NativeFastqStatistics statistics = new NativeFastqStatistics();
+		byte[] bytes = fastq.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < bytes.length; i += 3) {
+			statistics.accept(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i)));
+		}
+		statistics.finish();
+
+		AnalysisFastQC analysis = build(statistics);
+		assertEquals(Integer.valueOf(2), analysis.getTotalSequences(), "Total sequences was not correct.");
+		assertEquals(Integer.valueOf(5), analysis.getMinLength(), "Min length was not correct.");
+		assertEquals(Integer.valueOf(8), analysis.getMaxLength(), "Max length was not correct.");
+		assertEquals(Long.valueOf(13), analysis.getTotalBases(), "Total bases was not correct.");
+		assertEquals(Short.valueOf((short) 50), analysis.getGcContent(), "GC content was not correct.");
+		assertEquals("Sanger / Illumina 1.9", analysis.getEncoding(), "Encoding was not correct.");
+	}
+
+	@Test
+	public void testTruncatedFile() throws IOException {
+		NativeFastqStatistics statistics = accept("@read1\nACGT\n+\n");
+		assertThrows(IOException.class, statistics::finish, "truncated file should fail");
+	}
+
+	@Test
+	public void testBadIdLine() {
+		assertThrows(IOException.class, () -> accept(">read1\nACGT\n"), "fasta file should fail");
+	}
+
+	@Test
+	public void testBadMidline() {
+		assertThrows(IOException.class, () -> accept("@read1\nACGT\n-\nIIII\n"), "bad midline should fail");
+	}
+
+	@Test
+	public void testColorspace() {
+		assertThrows(UnsupportedFastqException.class, () -> accept("@read1\nT0123.\n+\nIIIIII\n"),
+				"colorspace should not be supported");
+	}
+
+	private static NativeFastqStatistics accept(String fastq) throws IOException {
+		NativeFastqStatistics statistics = new NativeFastqStatistics();
+		statistics.accept(ByteBuffer.wrap(fastq.getBytes(StandardCharsets.US_ASCII)));
+		return statistics;
+	}
+
+	private static AnalysisFastQC build(NativeFastqStatistics statistics) {
+		AnalysisFastQC.AnalysisFastQCBuilder builder = AnalysisFastQC.builder();
+		statistics.populateBasicStats(builder);
+		return builder.build();
+	}
+}
@@ -11,15 +11,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.test.context.support.WithMockUser;
 
 import com.github.springtestdbunit.annotation.DatabaseSetup;
 import com.github.springtestdbunit.annotation.DatabaseTearDown;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import ca.corefacility.bioinformatics.irida.annotation.ServiceIntegrationTest;
@@ -32,6 +35,7 @@ import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
 import ca.corefacility.bioinformatics.irida.model.user.User;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary;
 import ca.corefacility.bioinformatics.irida.repositories.referencefile.ReferenceFileRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
@@ -163,6 +167,33 @@ public class AnalysisSubmissionRepositoryIT {
 		assertEquals(Collections.EMPTY_LIST, submittedAnalyses);
 	}
 
+	/**
+	 * Tests counting new analyses for each submitter and loading the oldest of them.
+	 */
+	@Test
+	@WithMockUser(username = "aaron", roles = "ADMIN")
+	public void testQueuedBySubmitterAndPriority() {
+		analysisSubmission.setAnalysisState(AnalysisState.NEW);
+		analysisSubmission2.setAnalysisState(AnalysisState.NEW);
+		analysisSubmission2.setPriority(AnalysisSubmission.Priority.HIGH);
+		AnalysisSubmission saved = analysisSubmissionRepository.save(analysisSubmission);
+		analysisSubmissionRepository.save(analysisSubmission2);
+
+		List<SubmitterQueueSummary> summaries = analysisSubmissionRepository.summarizeBySubmitterAndPriority(
+				Lists.newArrayList(AnalysisState.NEW));
+		Set<String> queues = summaries.stream()
+				.map(q -> q.getSubmitterId() + ":" + q.getPriority() + ":" + q.getCount())
+				.collect(Collectors.toSet());
+		assertEquals(Sets.newHashSet(submitter1.getId() + ":MEDIUM:1", submitter2.getId() + ":HIGH:1"), queues,
+				"should have a queue for each submitter");
+
+		List<AnalysisSubmission> oldest = analysisSubmissionRepository.findOldestBySubmitterAndPriority(
+				AnalysisState.NEW, submitter1.getId(), AnalysisSubmission.Priority.MEDIUM, PageRequest.of(0, 5));
+		assertEquals(1, oldest.size(), "should have gotten the first submitter's analysis");
+		assertEquals(saved.getId(), oldest.get(0)
+				.getId());
+	}
+
 	/**
 	 * Tests getting a single analysis by two states and succeeding
 	 */
@@ -0,0 +1,86 @@
+package ca.corefacility.bioinformatics.irida.repositories.filesystem;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.repositories.filesystem.FilesystemSupplementedRepositoryImpl.RelativePathTranslatorListener;
+
+/**
+ * Compares hydrating {@link SequenceFile}s through
+ * {@link RelativePathTranslatorListener} against scanning each entity's class
+ * with reflection, the way the listener used to. The class name doesn't match
+ * surefire's test name patterns, so it isn't part of the regular build; run it
+ * with:
+ *
+ * <pre>
+ * mvn test -Dtest=PathFieldAccessorsBenchmark
+ * </pre>
+ */
+public class PathFieldAccessorsBenchmark {
+	private static final Path BASE_DIRECTORY = Paths.get("/data/sequence-files");
+	private static final int ENTITIES = 10_000;
+	private static final int ROUNDS = 20;
+
+	private final RelativePathTranslatorListener listener = new RelativePathTranslatorListener();
+
+	@Test
+	public void benchmarkEntityHydration() {
+		RelativePathTranslatorListener.addBaseDirectory(SequenceFile.class, BASE_DIRECTORY);
+		SequenceFile[] files = new SequenceFile[ENTITIES];
+
+		// warm up both paths before measuring
+		for (int round = 0; round < ROUNDS; round++) {
+			hydrate(files, true);
+			hydrate(files, false);
+		}
+
+		long reflective = 0;
+		long accessors = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			reflective += hydrate(files, true);
+			accessors += hydrate(files, false);
+		}
+
+		System.out.printf("Hydrating %,d entities: reflective scan %.2f ms/round, cached accessors %.2f ms/round%n",
+				ENTITIES, reflective / 1e6 / ROUNDS, accessors / 1e6 / ROUNDS);
+	}
+
+	private long hydrate(SequenceFile[] files, boolean reflective) {
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new SequenceFile(Paths.get(i + "/1/reads.fastq"));
+		}
+
+		long start = System.nanoTime();
+		for (SequenceFile file : files) {
+			if (reflective) {
+				reflectiveAbsolutePath(file);
+			} else {
+				listener.absolutePath(file);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * The listener's translation before the {@link Path} members were cached.
+	 */
+	private static void reflectiveAbsolutePath(SequenceFile entity) {
+		Set<Field> pathFields = Arrays.stream(entity.getClass().getDeclaredFields())
+				.filter(f -> f.getType().equals(Path.class)).collect(Collectors.toSet());
+		for (Field field : pathFields) {
+			ReflectionUtils.makeAccessible(field);
+			Path source = (Path) ReflectionUtils.getField(field, entity);
+			if (source != null && source.getRoot() == null) {
+				ReflectionUtils.setField(field, entity, BASE_DIRECTORY.resolve(source));
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package ca.corefacility.bioinformatics.irida.repositories.filesystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisOutputFile;
+import ca.corefacility.bioinformatics.irida.repositories.filesystem.FilesystemSupplementedRepositoryImpl.RelativePathTranslatorListener;
+
+/**
+ * Tests for {@link RelativePathTranslatorListener}.
+ */
+public class RelativePathTranslatorListenerTest {
+	private static final Path SEQUENCE_FILE_DIRECTORY = Paths.get("/data/sequence-files");
+	private static final Path OUTPUT_FILE_DIRECTORY = Paths.get("/data/output-files");
+
+	private final RelativePathTranslatorListener listener = new RelativePathTranslatorListener();
+
+	@BeforeAll
+	public static void setUp() {
+		RelativePathTranslatorListener.addBaseDirectory(SequenceFile.class, SEQUENCE_FILE_DIRECTORY);
+		RelativePathTranslatorListener.addBaseDirectory(AnalysisOutputFile.class, OUTPUT_FILE_DIRECTORY);
+	}
+
+	@Test
+	public void testAbsolutePath() {
+		SequenceFile file = new SequenceFile(Paths.get("1/1/reads.fastq"));
+
+		listener.absolutePath(file);
+		assertEquals(SEQUENCE_FILE_DIRECTORY.resolve("1/1/reads.fastq"), file.getFile(),
+				"Relative path should be resolved against the base directory");
+
+		listener.absolutePath(file);
+		assertEquals(SEQUENCE_FILE_DIRECTORY.resolve("1/1/reads.fastq"), file.getFile(),
+				"Absolute path should not be changed");
+	}
+
+	@Test
+	public void testRelativePath() {
+		SequenceFile file = new SequenceFile(SEQUENCE_FILE_DIRECTORY.resolve("1/1/reads.fastq"));
+
+		listener.relativePath(file);
+		assertEquals(Paths.get("1/1/reads.fastq"), file.getFile(), "Base directory should be removed");
+	}
+
+	@Test
+	public void testFinalPathMember() {
+		AnalysisOutputFile file = new AnalysisOutputFile(Paths.get("1/1/contigs.fasta"), null, null, null);
+
+		listener.absolutePath(file);
+		assertEquals(OUTPUT_FILE_DIRECTORY.resolve("1/1/contigs.fasta"), file.getFile(),
+				"Final path members should be translated");
+	}
+}
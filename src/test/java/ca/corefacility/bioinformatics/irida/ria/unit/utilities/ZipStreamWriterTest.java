@@ -0,0 +1,213 @@
+package ca.corefacility.bioinformatics.irida.ria.unit.utilities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.ria.utilities.ZipStreamWriter;
+
+/**
+ * Tests for {@link ZipStreamWriter}. Archives are read back with both the
+ * central directory ({@link ZipFile}) and streaming ({@link ZipInputStream})
+ * readers.
+ */
+public class ZipStreamWriterTest {
+	private static final String FASTQ = "@read\nACGTACGTACGTACGTACGT\n+\n????????????????????\n";
+
+	private Path directory;
+	private Path fastq;
+	private Path gzip;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory(null);
+		fastq = directory.resolve("reads.fastq");
+		Files.writeString(fastq, FASTQ.repeat(100));
+
+		gzip = directory.resolve("reads.fastq.gz");
+		try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+			out.write(Files.readAllBytes(fastq));
+		}
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (var files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testCompressedFilesAreStored() throws IOException {
+		Path archive = directory.resolve("archive.zip");
+		try (ZipStreamWriter writer = new ZipStreamWriter(Files.newOutputStream(archive))) {
+			writer.putFile("project/sample/reads.fastq", fastq);
+			writer.putFile("project/sample/reads.fastq.gz", gzip);
+			writer.putBytes("project/sample/reads.fastq-prov.json", "{}".getBytes(StandardCharsets.UTF_8));
+		}
+
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			assertEquals(3, zip.size(), "All entries should be written");
+
+			ZipEntry fastqEntry = zip.getEntry("project/sample/reads.fastq");
+			assertEquals(ZipEntry.DEFLATED, fastqEntry.getMethod(), "Uncompressed files should be deflated");
+			assertTrue(fastqEntry.getCompressedSize() < fastqEntry.getSize(), "File should be compressed");
+			assertArrayEquals(Files.readAllBytes(fastq), zip.getInputStream(fastqEntry).readAllBytes(),
+					"Deflated file should be read back");
+
+			ZipEntry gzipEntry = zip.getEntry("project/sample/reads.fastq.gz");
+			assertEquals(ZipEntry.STORED, gzipEntry.getMethod(), "Compressed files should be stored");
+			assertEquals(Files.size(gzip), gzipEntry.getCompressedSize(), "Stored file should not be compressed");
+			assertArrayEquals(Files.readAllBytes(gzip), zip.getInputStream(gzipEntry).readAllBytes(),
+					"Stored file should be read back");
+
+			assertEquals("{}",
+					new String(zip.getInputStream(zip.getEntry("project/sample/reads.fastq-prov.json"))
+							.readAllBytes(), StandardCharsets.UTF_8),
+					"Entry from memory should be read back");
+		}
+
+		Map<String, byte[]> streamed = readStream(Files.newInputStream(archive));
+		assertArrayEquals(Files.readAllBytes(fastq), streamed.get("project/sample/reads.fastq"),
+				"Deflated file should be streamed back");
+		assertArrayEquals(Files.readAllBytes(gzip), streamed.get("project/sample/reads.fastq.gz"),
+				"Stored file should be streamed back");
+	}
+
+	@Test
+	public void testCachedCrcIsUsed() throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(Files.readAllBytes(gzip));
+		FileTime modified = FileTime.fromMillis(1600000000000L);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ZipStreamWriter writer = new ZipStreamWriter(out)) {
+			writer.putFile("reads.fastq.gz", gzip, modified, crc.getValue());
+		}
+
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			ZipEntry entry = zip.getNextEntry();
+			assertEquals(crc.getValue(), entry.getCrc(), "Cached CRC should be written");
+			assertEquals(modified, entry.getLastModifiedTime(), "Modified time should be written");
+			assertArrayEquals(Files.readAllBytes(gzip), zip.readAllBytes(), "File should be read back");
+		}
+	}
+
+	@Test
+	public void testParallelDeflate() throws IOException {
+		// random bases so that the file doesn't compress down to nothing
+		Random random = new Random(1);
+		StringBuilder reads = new StringBuilder();
+		while (reads.length() < 6 * 1024 * 1024) {
+			reads.append("@read\n");
+			for (int i = 0; i < 100; i++) {
+				reads.append("ACGT".charAt(random.nextInt(4)));
+			}
+			reads.append("\n+\n").append("?".repeat(100)).append("\n");
+		}
+		Path large = directory.resolve("large.fastq");
+		Files.writeString(large, reads);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		ByteArrayOutputStream serial = new ByteArrayOutputStream();
+		try {
+			try (ZipStreamWriter writer = new ZipStreamWriter(parallel, executor)) {
+				writer.putFile("large.fastq", large);
+				writer.putFile("reads.fastq", fastq);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		try (ZipStreamWriter writer = new ZipStreamWriter(serial)) {
+			writer.putFile("large.fastq", large);
+		}
+
+		Map<String, byte[]> entries = readStream(new ByteArrayInputStream(parallel.toByteArray()));
+		assertArrayEquals(Files.readAllBytes(large), entries.get("large.fastq"),
+				"File deflated in blocks should be read back");
+		assertArrayEquals(Files.readAllBytes(fastq), entries.get("reads.fastq"),
+				"Entry after the parallel entry should be read back");
+
+		// priming each block with the previous block should keep the size close
+		assertTrue(parallel.size() < serial.size() * 1.05,
+				"Deflating in blocks should compress about as well as deflating the whole file");
+
+		Path archive = directory.resolve("parallel.zip");
+		Files.write(archive, parallel.toByteArray());
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			ZipEntry entry = zip.getEntry("large.fastq");
+			assertEquals(Files.size(large), entry.getSize(), "Size should be in the central directory");
+			assertArrayEquals(Files.readAllBytes(large), zip.getInputStream(entry).readAllBytes(),
+					"File deflated in blocks should be read from the central directory");
+		}
+	}
+
+	@Test
+	public void testManyEntriesUseZip64() throws IOException {
+		Path archive = directory.resolve("many.zip");
+		int count = 70000;
+		try (ZipStreamWriter writer = new ZipStreamWriter(Files.newOutputStream(archive))) {
+			for (int i = 0; i < count; i++) {
+				writer.putBytes("file-" + i, new byte[0]);
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			assertEquals(count, zip.size(), "All entries should be in the ZIP64 central directory");
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			assertEquals("file-0", entries.nextElement().getName(), "Entries should be in order");
+		}
+	}
+
+	@Test
+	public void testNoEntriesAfterFinish() throws IOException {
+		ZipStreamWriter writer = new ZipStreamWriter(new ByteArrayOutputStream());
+		writer.finish();
+
+		assertThrows(IllegalStateException.class, () -> writer.putFile("reads.fastq", fastq));
+	}
+
+	@Test
+	public void testIsStored() {
+		assertTrue(ZipStreamWriter.isStored(gzip), "Gzipped files should be stored");
+		assertTrue(ZipStreamWriter.isStored(directory.resolve("image.PNG")), "Images should be stored");
+		assertFalse(ZipStreamWriter.isStored(fastq), "Fastq files should be deflated");
+	}
+
+	private static Map<String, byte[]> readStream(InputStream in) throws IOException {
+		Map<String, byte[]> entries = new HashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(in)) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				entries.put(entry.getName(), zip.readAllBytes());
+			}
+		}
+		return entries;
+	}
+}
@@ -1,10 +1,10 @@
 package ca.corefacility.bioinformatics.irida.ria.unit.web.analysis;
 
 import java.security.Principal;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.context.MessageSource;
@@ -44,7 +44,6 @@ public class AnalysesTableAjaxControllerTest {
 	@Mock
 	private MessageSource messageSource;
 
-	@InjectMocks
 	private AnalysesTableAjaxController controller;
 
 	private MockMvc mockMvc;
@@ -52,6 +51,8 @@ public class AnalysesTableAjaxControllerTest {
 	@BeforeEach
 	public void setUp() {
 		MockitoAnnotations.openMocks(this);
+		controller = new AnalysesTableAjaxController(analysisSubmissionService, analysisTypesService, null,
+				iridaWorkflowsService, messageSource, updateAnalysisSubmissionPermission, null, null, Optional.empty());
 
 		/*
 		Set up all mocks here
@@ -29,6 +29,7 @@ import ca.corefacility.bioinformatics.irida.ria.unit.TestDataFactory;
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.AnalysisAjaxController;
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.dto.*;
 import ca.corefacility.bioinformatics.irida.ria.web.analysis.auditing.AnalysisAudit;
+import ca.corefacility.bioinformatics.irida.ria.web.services.UIAnalysisProgressService;
 import ca.corefacility.bioinformatics.irida.security.permissions.analysis.UpdateAnalysisSubmissionPermission;
 import ca.corefacility.bioinformatics.irida.service.*;
 import ca.corefacility.bioinformatics.irida.service.sample.MetadataTemplateService;
@@ -93,7 +94,8 @@ public class AnalysisAjaxControllerTest {
 		analysisAjaxController = new AnalysisAjaxController(analysisSubmissionServiceMock, iridaWorkflowsServiceMock,
 				userServiceMock, sampleService, projectServiceMock, updatePermission, metadataTemplateService,
 				sequencingObjectService, analysisSubmissionSampleProcessor, messageSourceMock, configFileMock,
-				analysisAuditMock, analysisTypesServiceMock, emailControllerMock);
+				analysisAuditMock, analysisTypesServiceMock, emailControllerMock, mock(UIAnalysisProgressService.class),
+				Optional.empty());
 
 	}
 
@@ -3,6 +3,7 @@ package ca.corefacility.bioinformatics.irida.ria.unit.web.services;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,7 +44,7 @@ public class UIAnalysesOutputsServiceTest {
 		principal = mock(Principal.class);
 
 		uiProjectAnalysesService = new UIAnalysesOutputsService(analysisSubmissionService, workflowsService,
-				userService, analysisOutputFileDownloadManager);
+				userService, analysisOutputFileDownloadManager, Optional.empty());
 
 		/*
 		Mock the principal user
@@ -0,0 +1,177 @@
+package ca.corefacility.bioinformatics.irida.ria.unit.web.services;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import ca.corefacility.bioinformatics.irida.events.AnalysisProgressEvent;
+import ca.corefacility.bioinformatics.irida.exceptions.NoPercentageCompleteException;
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.AnalysisProgressUpdate;
+import ca.corefacility.bioinformatics.irida.ria.web.services.UIAnalysisProgressService;
+import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class UIAnalysisProgressServiceTest {
+	private AnalysisSubmissionService analysisSubmissionService;
+	private AnalysisSubmission submission;
+	private ExecutorService sendExecutor;
+
+	private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		analysisSubmissionService = mock(AnalysisSubmissionService.class);
+		submission = mockSubmission(1L, AnalysisState.RUNNING);
+		when(analysisSubmissionService.getPercentComplete(submission)).thenReturn(20.0f);
+		when(analysisSubmissionService.readMultiple(any())).thenReturn(List.of(submission));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (sendExecutor != null) {
+			sendExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPushesProgressUntilFinished() throws Exception {
+		UIAnalysisProgressService service = createService(MoreExecutors.newDirectExecutorService(), 10);
+		service.subscribe(List.of(submission));
+		RecordingEmitter emitter = emitters.get(0);
+
+		assertEquals(List.of(new AnalysisProgressUpdate(1L, AnalysisState.RUNNING, 20.0f)), emitter.updates,
+				"Current progress should be sent when subscribing");
+		assertEquals(1, service.getConnectionCount(), "Connection should be open");
+
+		when(analysisSubmissionService.getPercentComplete(submission)).thenReturn(50.0f);
+		service.handleAnalysisProgress(new AnalysisProgressEvent(1L, AnalysisState.RUNNING));
+		assertEquals(new AnalysisProgressUpdate(1L, AnalysisState.RUNNING, 50.0f), emitter.updates.get(1),
+				"Progress reported by the monitor should be pushed");
+
+		// the scheduled check has nothing new to push
+		service.pushProgress();
+		assertEquals(2, emitter.updates.size(), "Unchanged progress should not be pushed again");
+
+		when(submission.getAnalysisState()).thenReturn(AnalysisState.ERROR);
+		when(analysisSubmissionService.getPercentComplete(submission)).thenThrow(
+				new NoPercentageCompleteException("error"));
+		service.pushProgress();
+		assertEquals(new AnalysisProgressUpdate(1L, AnalysisState.ERROR, null), emitter.updates.get(2),
+				"Failed analysis should be pushed");
+		assertTrue(emitter.completed, "Connection should be closed once the analysis has finished");
+		assertEquals(0, service.getConnectionCount(), "No connections should be open");
+	}
+
+	@Test
+	public void testProgressForUnwatchedSubmissionIgnored() {
+		UIAnalysisProgressService service = createService(MoreExecutors.newDirectExecutorService(), 10);
+		service.subscribe(List.of(submission));
+
+		service.handleAnalysisProgress(new AnalysisProgressEvent(2L, AnalysisState.RUNNING));
+		verify(analysisSubmissionService, never()).readMultiple(any());
+	}
+
+	@Test
+	public void testFinishedSubmissionsNotWatched() throws Exception {
+		AnalysisSubmission completed = mockSubmission(2L, AnalysisState.COMPLETED);
+		when(analysisSubmissionService.getPercentComplete(completed)).thenReturn(100.0f);
+
+		UIAnalysisProgressService service = createService(MoreExecutors.newDirectExecutorService(), 10);
+		service.subscribe(List.of(completed));
+		RecordingEmitter emitter = emitters.get(0);
+
+		assertEquals(List.of(new AnalysisProgressUpdate(2L, AnalysisState.COMPLETED, 100.0f)), emitter.updates,
+				"Current progress should be sent");
+		assertTrue(emitter.completed, "Nothing to watch, connection should be closed");
+		assertEquals(0, service.getConnectionCount(), "No connections should be open");
+	}
+
+	@Test
+	public void testSlowConnectionClosed() throws Exception {
+		AnalysisSubmission second = mockSubmission(2L, AnalysisState.RUNNING);
+		AnalysisSubmission third = mockSubmission(3L, AnalysisState.RUNNING);
+		when(analysisSubmissionService.getPercentComplete(any())).thenReturn(20.0f);
+
+		sendExecutor = Executors.newSingleThreadExecutor();
+		UIAnalysisProgressService service = createService(sendExecutor, 1);
+
+		// hold up sending until all of the updates have been queued
+		CountDownLatch release = new CountDownLatch(1);
+		sendExecutor.execute(() -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		service.subscribe(List.of(submission, second, third));
+		RecordingEmitter emitter = emitters.get(0);
+		release.countDown();
+
+		sendExecutor.shutdown();
+		assertTrue(sendExecutor.awaitTermination(5, TimeUnit.SECONDS), "Sending should finish");
+		assertEquals(List.of(new AnalysisProgressUpdate(3L, AnalysisState.RUNNING, 20.0f)), emitter.updates,
+				"Updates that didn't fit should be dropped");
+		assertTrue(emitter.completed, "Connection should be closed so the browser reconnects");
+		assertEquals(0, service.getConnectionCount(), "No connections should be open");
+	}
+
+	private UIAnalysisProgressService createService(ExecutorService sendExecutor, int maxPendingUpdates) {
+		return new UIAnalysisProgressService(analysisSubmissionService, MoreExecutors.newDirectExecutorService(),
+				sendExecutor, maxPendingUpdates, 30) {
+			@Override
+			protected SseEmitter createEmitter() {
+				RecordingEmitter emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+	}
+
+	private static AnalysisSubmission mockSubmission(Long id, AnalysisState state) {
+		AnalysisSubmission submission = mock(AnalysisSubmission.class);
+		when(submission.getId()).thenReturn(id);
+		when(submission.getAnalysisState()).thenReturn(state);
+		return submission;
+	}
+
+	/**
+	 * Records the updates sent instead of writing them to a response.
+	 */
+	private class RecordingEmitter extends SseEmitter {
+		private final List<AnalysisProgressUpdate> updates = new CopyOnWriteArrayList<>();
+		private volatile boolean completed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			builder.build()
+					.stream()
+					.map(DataWithMediaType::getData)
+					.filter(AnalysisProgressUpdate.class::isInstance)
+					.map(AnalysisProgressUpdate.class::cast)
+					.forEach(updates::add);
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+		}
+	}
+}
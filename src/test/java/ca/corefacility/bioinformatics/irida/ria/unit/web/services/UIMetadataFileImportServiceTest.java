@@ -1,81 +1,146 @@
 package ca.corefacility.bioinformatics.irida.ria.unit.web.services;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.springframework.http.MediaType;
-import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
-import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorage;
-import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorageRow;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUploadRow;
 import ca.corefacility.bioinformatics.irida.ria.web.services.UIMetadataFileImportService;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
+import ca.corefacility.bioinformatics.irida.service.impl.sample.MetadataUploadServiceImpl;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 public class UIMetadataFileImportServiceTest {
 	private final Long PROJECT_ID = 1L;
 	private final Project project = new Project();
-	private final Sample sample = new Sample();
+	private final Sample sample = new Sample("value2");
 	private UIMetadataFileImportService service;
 	private ProjectService projectService;
 	private SampleService sampleService;
+	private MetadataUploadService metadataUploadService;
+	private Path uploadDirectory;
 
 	@BeforeEach
-	public void setUp() {
+	public void setUp() throws IOException {
 		this.projectService = Mockito.mock(ProjectService.class);
 		this.sampleService = Mockito.mock(SampleService.class);
-		service = new UIMetadataFileImportService(projectService, sampleService);
+		uploadDirectory = Files.createTempDirectory(null);
+		metadataUploadService = new MetadataUploadServiceImpl(uploadDirectory, 24);
+		service = new UIMetadataFileImportService(projectService, sampleService, metadataUploadService);
+
+		project.setId(PROJECT_ID);
+		when(projectService.read(PROJECT_ID)).thenReturn(project);
+		when(sampleService.getSamplesInProjectByName(eq(project), anyCollection())).thenReturn(
+				List.of(new ProjectSampleJoin(project, sample, true)));
+
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new UsernamePasswordAuthenticationToken("user", "password"));
+		SecurityContextHolder.setContext(context);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		SecurityContextHolder.clearContext();
+		try (Stream<Path> files = Files.walk(uploadDirectory)) {
+			files.sorted(Comparator.reverseOrder())
+					.forEach(f -> f.toFile()
+							.delete());
+		}
+	}
+
+	@Test
+	public void parseCSV() throws IOException {
+		InputStream inputStream = new ByteArrayInputStream(
+				"header1,header2,header3\nvalue1,value2,value3\nvalue4,value5".getBytes());
+		MetadataUpload upload = service.parseCSV(PROJECT_ID, inputStream);
+
+		assertEquals(List.of("header1", "header2", "header3"), upload.getHeaders(), "Headers are stored");
+		assertEquals("header2", upload.getSampleNameColumn(), "Sample name column is found");
+		assertEquals(List.of(Arrays.asList("value1", "value2", "value3"), Arrays.asList("value4", "value5", null)),
+				getValues(upload), "Rows are stored");
 	}
 
 	@Test
-	public void parseCSV() {
-		try {
-			SampleMetadataStorage expected_storage = getSampleMetadataStorage();
-
-			project.setId(PROJECT_ID);
-			when(projectService.read(PROJECT_ID)).thenReturn(project);
-			when(sampleService.getSampleBySampleName(project, "value2")).thenReturn(sample);
-
-			MockMultipartFile file = new MockMultipartFile("file", "test.csv", MediaType.TEXT_PLAIN_VALUE,
-					"header1,header2,header3\nvalue1,value2,value3".getBytes());
-
-			byte[] byteArr = file.getBytes();
-			InputStream inputStream = new ByteArrayInputStream(byteArr);
-			SampleMetadataStorage actual_storage = service.parseCSV(PROJECT_ID, inputStream);
-			assertEquals(actual_storage, expected_storage);
-		} catch (IOException e) {
-			e.printStackTrace();
+	public void parseCSVSampleNameAfterFirstGroup() throws IOException {
+		StringBuilder csv = new StringBuilder("header1,header2,header3\n");
+		for (int i = 0; i < MetadataUploadService.ROWS_PER_GROUP; i++) {
+			csv.append("other").append(i).append(",,\n");
 		}
+		csv.append(",other,value2\n");
+		when(sampleService.getSamplesInProjectByName(eq(project), anyCollection())).thenAnswer(
+				i -> i.<Collection<String>>getArgument(1)
+						.contains("value2") ? List.of(new ProjectSampleJoin(project, sample, true)) : List.of());
+
+		MetadataUpload upload = service.parseCSV(PROJECT_ID, new ByteArrayInputStream(csv.toString()
+				.getBytes()));
+
+		assertEquals("header3", upload.getSampleNameColumn(), "Sample name column is found past the first group");
+		assertEquals(MetadataUploadService.ROWS_PER_GROUP + 1, upload.getRowCount(), "Rows are stored");
+	}
+
+	@Test
+	public void parseExcel() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			Sheet sheet = workbook.createSheet();
+			Row headers = sheet.createRow(0);
+			headers.createCell(0)
+					.setCellValue("header1");
+			headers.createCell(1)
+					.setCellValue("header2");
+			headers.createCell(2)
+					.setCellValue("header3");
+			Row row = sheet.createRow(1);
+			row.createCell(0)
+					.setCellValue(12);
+			row.createCell(1)
+					.setCellValue("value2");
+			workbook.write(bytes);
+		}
+
+		MetadataUpload upload = service.parseExcel(PROJECT_ID, new ByteArrayInputStream(bytes.toByteArray()),
+				"xlsx");
+
+		assertEquals(List.of("header1", "header2", "header3"), upload.getHeaders(), "Headers are stored");
+		assertEquals("header2", upload.getSampleNameColumn(), "Sample name column is found");
+		assertEquals(List.of(Arrays.asList("12", "value2", null)), getValues(upload), "Rows are stored");
 	}
 
-	private SampleMetadataStorage getSampleMetadataStorage() {
-		SampleMetadataStorage expected_storage = new SampleMetadataStorage();
-		List<String> headers_list = new ArrayList<>();
-		headers_list.add("header1");
-		headers_list.add("header2");
-		headers_list.add("header3");
-		expected_storage.setHeaders(headers_list);
-		List<SampleMetadataStorageRow> rows = new ArrayList<>();
-		Map<String, String> rowMap = new HashMap<>();
-		rowMap.put("header1", "value1");
-		rowMap.put("header2", "value2");
-		rowMap.put("header3", "value3");
-		rows.add(new SampleMetadataStorageRow(rowMap));
-		expected_storage.setRows(rows);
-		expected_storage.setSampleNameColumn("header2");
-		return expected_storage;
+	private List<List<String>> getValues(MetadataUpload upload) {
+		MetadataUpload stored = metadataUploadService.getUpload(upload.getId(), "user");
+		return metadataUploadService.getRows(stored, 0, stored.getRowCount())
+				.stream()
+				.map(MetadataUploadRow::getValues)
+				.collect(Collectors.toList());
 	}
 }
@@ -2,10 +2,16 @@ package ca.corefacility.bioinformatics.irida.ria.unit.web.services;
 
 import java.util.*;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.context.MessageSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.pipelines.ReferenceFileRequiredException;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
@@ -18,9 +24,12 @@ import ca.corefacility.bioinformatics.irida.model.workflow.description.IridaWork
 import ca.corefacility.bioinformatics.irida.model.workflow.structure.IridaWorkflowStructure;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmissionTemplate;
+import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchProgress;
 import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchRequest;
+import ca.corefacility.bioinformatics.irida.ria.web.launchPipeline.dtos.LaunchStartedResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.services.UIPipelineStartService;
 import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService;
+import ca.corefacility.bioinformatics.irida.service.AnalysisSubmissionService.SubmissionProgressListener;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
 import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsService;
@@ -29,7 +38,13 @@ import ca.corefacility.bioinformatics.irida.service.workflow.WorkflowNamedParame
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 public class UIPipelineStartServiceTest {
@@ -38,6 +53,7 @@ public class UIPipelineStartServiceTest {
 	private final UUID WORKFLOW_ID = UUID.randomUUID();
 	private final AnalysisType ANALYSIS_TYPE = new AnalysisType(PIPELINE_TYPE);
 	private final Long PROJECT_ID = 1L;
+	private static final String USERNAME = "bruce";
 	private final LaunchRequest request = new LaunchRequest();
 
 	private UIPipelineStartService service;
@@ -48,8 +64,8 @@ public class UIPipelineStartServiceTest {
 	private WorkflowNamedParametersService namedParametersService;
 	private MessageSource messageSource;
 
-	@Test
-	public void startTest() throws IridaWorkflowNotFoundException, ReferenceFileRequiredException {
+	@BeforeEach
+	public void setUp() {
 		workflowsService = Mockito.mock(IridaWorkflowsService.class);
 		sequencingObjectService = Mockito.mock(SequencingObjectService.class);
 		submissionService = Mockito.mock(AnalysisSubmissionService.class);
@@ -58,8 +74,18 @@ public class UIPipelineStartServiceTest {
 		messageSource = Mockito.mock(MessageSource.class);
 
 		service = new UIPipelineStartService(workflowsService, sequencingObjectService, submissionService,
-				projectService, namedParametersService, messageSource);
+				projectService, namedParametersService, messageSource, MoreExecutors.newDirectExecutorService());
+
+		login(USERNAME);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
 
+	@Test
+	public void startTest() throws IridaWorkflowNotFoundException, ReferenceFileRequiredException {
 		IridaWorkflowDescription description = mock(IridaWorkflowDescription.class);
 		when(description.getAnalysisType()).thenReturn(ANALYSIS_TYPE);
 		when(description.getName()).thenReturn(PIPELINE_NAME);
@@ -76,6 +102,7 @@ public class UIPipelineStartServiceTest {
 		when(workflowsService.getIridaWorkflow(WORKFLOW_ID)).thenReturn(workflow);
 		AnalysisSubmissionTemplate template = new AnalysisSubmissionTemplate("Superman", WORKFLOW_ID, ImmutableMap.of(),
 				null, true, "Interesting superhero with cape", true, true, project);
+		template.setId(2L);
 		when(projectService.read(PROJECT_ID)).thenReturn(project);
 
 		request.setProjects(ImmutableList.of(PROJECT_ID));
@@ -103,10 +130,15 @@ public class UIPipelineStartServiceTest {
 
 		Collection<AnalysisSubmission> submissions = ImmutableList.of(AnalysisSubmission.builder(WORKFLOW_ID)
 				.name("Wonder Woman").inputFiles(ImmutableSet.of(sequencingObject)).build());
-		when(submissionService.createSingleSampleSubmission(workflow, request.getReference(), ImmutableList.of(),
-				ImmutableList.of(), request.getParameters(), null, request.getName(), request.getDescription(),
-				projects, request.isUpdateSamples(), request.sendEmailOnCompletion(), request.sendEmailOnError()))
-						.thenReturn(submissions);
+		when(submissionService.createSingleSampleSubmission(eq(workflow), eq(request.getReference()),
+				eq(ImmutableList.of()), eq(ImmutableList.of()), eq(request.getParameters()), isNull(),
+				eq(request.getName()), eq(request.getDescription()), eq(projects), eq(request.isUpdateSamples()),
+				eq(request.sendEmailOnCompletion()), eq(request.sendEmailOnError()),
+				any(SubmissionProgressListener.class))).thenAnswer(invocation -> {
+			invocation.<SubmissionProgressListener>getArgument(12)
+					.saved(1, 1);
+			return submissions;
+		});
 
 		when(messageSource.getMessage(any(), any(), any())).thenReturn("FOOBAR");
 		when(submissionService.createSingleSampleSubmissionTemplate(workflow, null, request.getParameters(), null,
@@ -116,13 +148,17 @@ public class UIPipelineStartServiceTest {
 		/*
 		 * Test launching a pipeline
 		 */
-		service.start(WORKFLOW_ID, request, Locale.CANADA);
+		LaunchStartedResponse response = service.start(WORKFLOW_ID, request, Locale.CANADA);
 		verify(workflowsService, timeout(1)).getIridaWorkflow(WORKFLOW_ID);
 		verify(projectService, times(1)).readMultiple(request.getProjects());
-		verify(submissionService, times(1)).createSingleSampleSubmission(workflow, request.getReference(),
-				ImmutableList.of(), ImmutableList.of(), request.getParameters(), null, request.getName(),
-				request.getDescription(), ImmutableList.of(project), request.isUpdateSamples(),
-				request.sendEmailOnCompletion(), request.sendEmailOnError());
+		verify(submissionService, times(1)).createSingleSampleSubmission(eq(workflow), eq(request.getReference()),
+				eq(ImmutableList.of()), eq(ImmutableList.of()), eq(request.getParameters()), isNull(),
+				eq(request.getName()), eq(request.getDescription()), eq(ImmutableList.of(project)),
+				eq(request.isUpdateSamples()), eq(request.sendEmailOnCompletion()), eq(request.sendEmailOnError()),
+				any(SubmissionProgressListener.class));
+		assertEquals(-1L, response.getId(), "Analyses are created for each sample");
+		assertEquals(new LaunchProgress(response.getLaunchId(), 1, 1, true, null),
+				service.getLaunchProgress(response.getLaunchId()), "Launch should have finished");
 
 		/*
 		 * Test automated pipelines
@@ -134,4 +170,54 @@ public class UIPipelineStartServiceTest {
 				request.getParameters(), null, request.getName(), "FOOBAR", request.getDescription(), project,
 				request.isUpdateSamples(), request.sendEmailOnCompletion(), request.sendEmailOnError());
 	}
+
+	@Test
+	public void testLaunchFailureReported() throws IridaWorkflowNotFoundException, ReferenceFileRequiredException {
+		IridaWorkflow workflow = singleSampleWorkflow();
+		when(submissionService.createSingleSampleSubmission(any(), any(), any(), any(), any(), any(), any(), any(),
+				any(), anyBoolean(), anyBoolean(), anyBoolean(), any(SubmissionProgressListener.class))).thenAnswer(
+				invocation -> {
+					invocation.<SubmissionProgressListener>getArgument(12)
+							.saved(100, 300);
+					throw new IllegalStateException("database went away");
+				});
+		when(messageSource.getMessage("server.LaunchProgress.error", new Object[] { 100, 300 },
+				Locale.CANADA)).thenReturn("Only 100 of 300");
+
+		LaunchStartedResponse response = service.start(workflow.getWorkflowIdentifier(), request, Locale.CANADA);
+
+		assertEquals(new LaunchProgress(response.getLaunchId(), 100, 300, true, "Only 100 of 300"),
+				service.getLaunchProgress(response.getLaunchId()), "Failure should be reported");
+	}
+
+	@Test
+	public void testLaunchProgressForOtherUser() throws IridaWorkflowNotFoundException, ReferenceFileRequiredException {
+		IridaWorkflow workflow = singleSampleWorkflow();
+		LaunchStartedResponse response = service.start(workflow.getWorkflowIdentifier(), request, Locale.CANADA);
+
+		login("someone-else");
+		assertThrows(EntityNotFoundException.class, () -> service.getLaunchProgress(response.getLaunchId()),
+				"Only the user who launched the pipeline can follow it");
+		assertThrows(EntityNotFoundException.class, () -> service.getLaunchProgress(UUID.randomUUID()),
+				"Unknown launch should not be found");
+	}
+
+	private IridaWorkflow singleSampleWorkflow() throws IridaWorkflowNotFoundException {
+		IridaWorkflowDescription description = mock(IridaWorkflowDescription.class);
+		when(description.getInputs()).thenReturn(new IridaWorkflowInput("sequence_reads", null, null, true));
+		IridaWorkflow workflow = new IridaWorkflow(description, mock(IridaWorkflowStructure.class));
+		when(description.getId()).thenReturn(WORKFLOW_ID);
+		when(workflowsService.getIridaWorkflow(WORKFLOW_ID)).thenReturn(workflow);
+		when(sequencingObjectService.readMultiple(any())).thenReturn(List.of());
+		request.setName("Hulk");
+		request.setProjects(List.of());
+		request.setEmailPipelineResult("none");
+		return workflow;
+	}
+
+	private static void login(String username) {
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new UsernamePasswordAuthenticationToken(username, "password"));
+		SecurityContextHolder.setContext(context);
+	}
 }
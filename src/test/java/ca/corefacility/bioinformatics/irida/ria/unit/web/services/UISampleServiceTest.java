@@ -2,9 +2,12 @@ package ca.corefacility.bioinformatics.irida.ria.unit.web.services;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.context.MessageSource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -14,7 +17,10 @@ import org.springframework.security.core.context.SecurityContext;
 
 import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.ProjectMetadataResponse;
 import ca.corefacility.bioinformatics.irida.model.user.Role;
 import ca.corefacility.bioinformatics.irida.model.user.User;
 import ca.corefacility.bioinformatics.irida.repositories.specification.ProjectSampleJoinSpecification;
@@ -36,16 +42,19 @@ import ca.corefacility.bioinformatics.irida.service.sample.MetadataTemplateServi
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class UISampleServiceTest {
 	private UISampleService service;
 	private ProjectService projectService;
+	private SampleService sampleService;
+	private MetadataTemplateService metadataTemplateService;
 	private final User USER_1 = new User("test", "test@nowhere.com", "PW1@3456", "Test", "Tester", "1234567890");
 	private final Sample SAMPLE_1 = new Sample("SAMPLE_01");
 
@@ -66,16 +75,16 @@ public class UISampleServiceTest {
 
 	@BeforeEach
 	public void setUp() {
-		SampleService sampleService = mock(SampleService.class);
+		sampleService = mock(SampleService.class);
 		projectService = mock(ProjectService.class);
 		UpdateSamplePermission updateSamplePermission = mock(UpdateSamplePermission.class);
 		SequencingObjectService sequencingObjectService = mock(SequencingObjectService.class);
 		GenomeAssemblyService genomeAssemblyService = mock(GenomeAssemblyService.class);
-		MetadataTemplateService metadataTemplateService = mock(MetadataTemplateService.class);
+		metadataTemplateService = mock(MetadataTemplateService.class);
 		MessageSource messageSource = mock(MessageSource.class);
 		UICartService cartService = mock(UICartService.class);
 		service = new UISampleService(sampleService, projectService, updateSamplePermission, sequencingObjectService,
-				genomeAssemblyService, metadataTemplateService, messageSource, cartService);
+				genomeAssemblyService, metadataTemplateService, messageSource, cartService, Optional.empty());
 
 		// DATA
 		SAMPLE_1.setId(SAMPLE_ID);
@@ -142,5 +151,46 @@ public class UISampleServiceTest {
 					joins.get(index).getSubject().getName(), "Should return the proper project name");
 
 		}
+		verifyNoInteractions(metadataTemplateService);
+	}
+
+	@Test
+	public void testGetPagedProjectSamplesSortedByMetadata() {
+		MetadataTemplateField permitted = new MetadataTemplateField("permitted", "text");
+		permitted.setId(5L);
+		when(projectService.read(PROJECT_ID_1)).thenReturn(PROJECT_1);
+		when(metadataTemplateService.getPermittedFieldsForCurrentUser(PROJECT_1, true)).thenReturn(
+				ImmutableList.of(permitted));
+
+		request.setOrder(ImmutableList.of(new AntSort("metadata.5", "asc"), new AntSort("metadata.6", "desc")));
+		service.getPagedProjectSamples(PROJECT_ID_1, request, Locale.CANADA);
+
+		ArgumentCaptor<ProjectSampleJoinSpecification> filterSpec = ArgumentCaptor.forClass(
+				ProjectSampleJoinSpecification.class);
+		verify(sampleService).getFilteredProjectSamples(anyList(), filterSpec.capture(), anyInt(), eq(10),
+				eq(Sort.by(Sort.Direction.ASC, "metadata.5")));
+		assertEquals(PROJECT_ID_1, filterSpec.getValue().getMetadataProject(),
+				"Only samples in the current project should be sorted on metadata");
+	}
+
+	@Test
+	public void testGetPagedProjectSamplesWithMetadataColumns() {
+		MetadataTemplateField permitted = new MetadataTemplateField("permitted", "text");
+		permitted.setId(5L);
+		when(projectService.read(PROJECT_ID_1)).thenReturn(PROJECT_1);
+		when(metadataTemplateService.getPermittedFieldsForCurrentUser(PROJECT_1, true)).thenReturn(
+				ImmutableList.of(permitted));
+		when(sampleService.getMetadataForProjectSamples(PROJECT_1, ImmutableList.of(SAMPLE_ID),
+				ImmutableList.of(permitted))).thenReturn(new ProjectMetadataResponse(PROJECT_1,
+				ImmutableMap.<Long, Set<MetadataEntry>>of(SAMPLE_ID,
+						ImmutableSet.of(new MetadataEntry("value", "text", permitted)))));
+
+		request.setMetadataFields(ImmutableList.of(5L, 6L));
+		List<?> items = service.getPagedProjectSamples(PROJECT_ID_1, request, Locale.CANADA).getContent();
+
+		assertEquals(ImmutableMap.of(5L, "value"), ((ProjectSampleTableItem) items.get(0)).getMetadata(),
+				"Should have the values of the permitted fields");
+		assertTrue(((ProjectSampleTableItem) items.get(1)).getMetadata().isEmpty(),
+				"Samples in associated projects should not have values");
 	}
 }
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisFastQC;
+import ca.corefacility.bioinformatics.irida.processing.impl.FastQCChartRenderer;
 
 import ca.corefacility.bioinformatics.irida.ria.web.files.dto.FastQCDetailsResponse;
 
@@ -27,6 +28,7 @@ public class UISequenceFileServiceTest {
 	private UISequenceFileService service;
 	private AnalysisService analysisService;
 	private SequencingObjectService sequencingObjectService;
+	private FastQCChartRenderer chartRenderer;
 
 	private AnalysisFastQC fastQC;
 	private SingleEndSequenceFile seqObject;
@@ -39,7 +41,8 @@ public class UISequenceFileServiceTest {
 	public void setUp() {
 		analysisService = mock(AnalysisService.class);
 		sequencingObjectService = mock(SequencingObjectService.class);
-		service = new UISequenceFileService(analysisService, sequencingObjectService);
+		chartRenderer = mock(FastQCChartRenderer.class);
+		service = new UISequenceFileService(analysisService, sequencingObjectService, chartRenderer);
 		fastQC = mock(AnalysisFastQC.class);
 
 		Path path = Paths.get(FILE_PATH);
@@ -68,6 +71,9 @@ public class UISequenceFileServiceTest {
 		verify(sequencingObjectService, times(1)).read(OBJECT_ID);
 		verify(analysisService, times(1)).getFastQCAnalysisForSequenceFile(seqObject, FILE_ID);
 		assertTrue(response.getClass().equals(FastQCImagesResponse.class), "Response type is FastQCImagesResponse");
+		verify(chartRenderer).getPerBaseQualityScoreChart(fastQC);
+		verify(chartRenderer).getPerSequenceQualityScoreChart(fastQC);
+		verify(chartRenderer).getDuplicationLevelChart(fastQC);
 	}
 
 	@Test
@@ -0,0 +1,94 @@
+package ca.corefacility.bioinformatics.irida.security.permissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.events.ProjectMembershipChangedEvent;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectUserJoinRepository;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.UserGroupProjectJoinRepository;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests for {@link ProjectMembershipCache}.
+ */
+public class ProjectMembershipCacheTest {
+	private ProjectMembershipCache membershipCache;
+	private ProjectUserJoinRepository pujRepository;
+	private UserGroupProjectJoinRepository ugpjRepository;
+
+	@BeforeEach
+	public void setUp() {
+		pujRepository = mock(ProjectUserJoinRepository.class);
+		ugpjRepository = mock(UserGroupProjectJoinRepository.class);
+		membershipCache = new ProjectMembershipCache(pujRepository, ugpjRepository, 600);
+
+		when(pujRepository.getProjectIdsForUser("tom")).thenReturn(ImmutableList.of(1L, 2L));
+		when(ugpjRepository.findProjectIdsByUser("tom")).thenReturn(ImmutableList.of(2L, 3L));
+		when(pujRepository.getProjectIdsForUser("mary")).thenReturn(ImmutableList.of(4L));
+		when(ugpjRepository.findProjectIdsByUser("mary")).thenReturn(ImmutableList.of());
+	}
+
+	@Test
+	public void testMembershipIsCached() {
+		assertEquals(Set.of(1L, 2L, 3L), membershipCache.getProjectIds("tom"),
+				"Direct and group projects should be combined");
+		assertTrue(membershipCache.isMember("tom", 3L), "Group project should be readable");
+		assertFalse(membershipCache.isMember("tom", 4L), "Other project should not be readable");
+
+		verify(pujRepository, times(1)).getProjectIdsForUser("tom");
+		verify(ugpjRepository, times(1)).findProjectIdsByUser("tom");
+	}
+
+	@Test
+	public void testMembershipChangedForUser() {
+		membershipCache.getProjectIds("tom");
+		membershipCache.getProjectIds("mary");
+
+		when(pujRepository.getProjectIdsForUser("tom")).thenReturn(ImmutableList.of(1L, 2L, 5L));
+		membershipCache.membershipChanged(ProjectMembershipChangedEvent.forUser("tom"));
+
+		assertTrue(membershipCache.isMember("tom", 5L), "New project should be readable");
+		membershipCache.getProjectIds("mary");
+
+		verify(pujRepository, times(2)).getProjectIdsForUser("tom");
+		verify(pujRepository, times(1)).getProjectIdsForUser("mary");
+	}
+
+	@Test
+	public void testMembershipChangedForAllUsers() {
+		membershipCache.getProjectIds("tom");
+		membershipCache.getProjectIds("mary");
+
+		membershipCache.membershipChanged(ProjectMembershipChangedEvent.forAllUsers());
+		membershipCache.getProjectIds("tom");
+		membershipCache.getProjectIds("mary");
+
+		verify(pujRepository, times(2)).getProjectIdsForUser("tom");
+		verify(pujRepository, times(2)).getProjectIdsForUser("mary");
+	}
+
+	@Test
+	public void testLoadDuringChangeIsNotCached() {
+		// the membership changes while tom's projects are being loaded
+		when(ugpjRepository.findProjectIdsByUser("tom")).thenAnswer(i -> {
+			membershipCache.membershipChanged(ProjectMembershipChangedEvent.forUser("tom"));
+			return ImmutableList.of(3L);
+		});
+
+		membershipCache.getProjectIds("tom");
+		membershipCache.getProjectIds("tom");
+
+		verify(pujRepository, times(2)).getProjectIdsForUser("tom");
+	}
+}
@@ -9,7 +9,6 @@ import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -18,18 +17,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
-import ca.corefacility.bioinformatics.irida.model.enums.ProjectMetadataRole;
-import ca.corefacility.bioinformatics.irida.model.enums.ProjectRole;
-import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectUserJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
 import ca.corefacility.bioinformatics.irida.model.user.Role;
-import ca.corefacility.bioinformatics.irida.model.user.User;
-import ca.corefacility.bioinformatics.irida.model.user.group.UserGroup;
-import ca.corefacility.bioinformatics.irida.model.user.group.UserGroupProjectJoin;
 import ca.corefacility.bioinformatics.irida.repositories.ProjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectUserJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.joins.project.UserGroupProjectJoinRepository;
-import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
+import ca.corefacility.bioinformatics.irida.security.permissions.ProjectMembershipCache;
 
 import com.google.common.collect.ImmutableList;
 
@@ -40,62 +33,54 @@ import com.google.common.collect.ImmutableList;
  */
 public class ReadProjectPermissionTest {
 	private ReadProjectPermission readProjectPermission;
-	private UserRepository userRepository;
 	private ProjectRepository projectRepository;
 	private ProjectUserJoinRepository pujRepository;
 	private UserGroupProjectJoinRepository ugpjRepository;
 
 	@BeforeEach
 	public void setUp() {
-		userRepository = mock(UserRepository.class);
 		projectRepository = mock(ProjectRepository.class);
 		pujRepository = mock(ProjectUserJoinRepository.class);
 		ugpjRepository = mock(UserGroupProjectJoinRepository.class);
-		readProjectPermission = new ReadProjectPermission(projectRepository, userRepository, pujRepository,
-				ugpjRepository);
+		readProjectPermission = new ReadProjectPermission(projectRepository,
+				new ProjectMembershipCache(pujRepository, ugpjRepository, 600));
 	}
 
 	@Test
 	public void testGrantPermission() {
 		String username = "fbristow";
-		User u = new User();
-		u.setUsername(username);
 		Project p = new Project();
-		ProjectUserJoin projectUser = new ProjectUserJoin(p, u, ProjectRole.PROJECT_USER);
+		p.setId(1L);
 
-		when(userRepository.loadUserByUsername(username)).thenReturn(u);
 		when(projectRepository.findById(1L)).thenReturn(Optional.of(p));
-		when(pujRepository.getProjectJoinForUser(p, u)).thenReturn(projectUser);
+		when(pujRepository.getProjectIdsForUser(username)).thenReturn(ImmutableList.of(1L));
+		when(ugpjRepository.findProjectIdsByUser(username)).thenReturn(ImmutableList.of());
 
 		Authentication auth = new UsernamePasswordAuthenticationToken("fbristow", "password1");
 
 		assertTrue(readProjectPermission.isAllowed(auth, 1L), "permission was not granted.");
 
-		verify(userRepository).loadUserByUsername(username);
 		verify(projectRepository).findById(1L);
-		verify(pujRepository).getProjectJoinForUser(p, u);
+		verify(pujRepository).getProjectIdsForUser(username);
 	}
 
 	@Test
 	public void testRejectPermission() {
 		String username = "fbristow";
-		User u = new User();
-		u.setUsername(username);
 		Project p = new Project();
+		p.setId(1L);
 
-		when(userRepository.loadUserByUsername(username)).thenReturn(u);
 		when(projectRepository.findById(1L)).thenReturn(Optional.of(p));
-		when(pujRepository.getProjectJoinForUser(p, u)).thenReturn(null);
-		when(ugpjRepository.findGroupsForProjectAndUser(p, u)).thenReturn(ImmutableList.of());
+		when(pujRepository.getProjectIdsForUser(username)).thenReturn(ImmutableList.of(2L));
+		when(ugpjRepository.findProjectIdsByUser(username)).thenReturn(ImmutableList.of());
 
 		Authentication auth = new UsernamePasswordAuthenticationToken("fbristow", "password1");
 
 		assertFalse(readProjectPermission.isAllowed(auth, 1L), "permission was granted.");
 
-		verify(userRepository).loadUserByUsername(username);
 		verify(projectRepository).findById(1L);
-		verify(pujRepository).getProjectJoinForUser(p, u);
-		verify(ugpjRepository).findGroupsForProjectAndUser(p, u);
+		verify(pujRepository).getProjectIdsForUser(username);
+		verify(ugpjRepository).findProjectIdsByUser(username);
 	}
 
 	@Test
@@ -109,32 +94,25 @@ public class ReadProjectPermissionTest {
 		assertTrue(readProjectPermission.isAllowed(auth, 1L), "permission should be granted to admin.");
 
 		// we should fast pass through to permission granted for administrators.
-		verifyNoInteractions(userRepository);
+		verifyNoInteractions(pujRepository, ugpjRepository);
 	}
 
 	@Test
 	public void testGrantPermissionByGroup() {
 		final String username = "fbristow";
-		final User u = new User();
-		u.setUsername(username);
 		final Project p = new Project();
-		final UserGroup g = new UserGroup("The group");
+		p.setId(1L);
 
-		final List<UserGroupProjectJoin> projectGroups = new ArrayList<>();
-		projectGroups.add(new UserGroupProjectJoin(p, g, ProjectRole.PROJECT_USER, ProjectMetadataRole.LEVEL_1));
-
-		when(userRepository.loadUserByUsername(username)).thenReturn(u);
 		when(projectRepository.findById(1L)).thenReturn(Optional.of(p));
-		when(pujRepository.getProjectJoinForUser(p, u)).thenReturn(null);
-		when(ugpjRepository.findGroupsForProjectAndUser(p, u)).thenReturn(projectGroups);
+		when(pujRepository.getProjectIdsForUser(username)).thenReturn(ImmutableList.of());
+		when(ugpjRepository.findProjectIdsByUser(username)).thenReturn(ImmutableList.of(1L));
 
 		Authentication auth = new UsernamePasswordAuthenticationToken("fbristow", "password1");
 
 		assertTrue(readProjectPermission.isAllowed(auth, 1L), "permission should be granted by user group.");
 
-		verify(userRepository).loadUserByUsername(username);
 		verify(projectRepository).findById(1L);
-		verify(pujRepository).getProjectJoinForUser(p, u);
-		verify(ugpjRepository).findGroupsForProjectAndUser(p, u);
+		verify(pujRepository).getProjectIdsForUser(username);
+		verify(ugpjRepository).findProjectIdsByUser(username);
 	}
 }
@@ -19,12 +19,14 @@ import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
+import ca.corefacility.bioinformatics.irida.events.AnalysisStageCompletedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.AccessDeniedException;
 
 import com.github.jmchilton.blend4j.galaxy.beans.HistoryDeleteResponse;
@@ -92,6 +94,8 @@ public class AnalysisExecutionServiceGalaxyTest {
 	private IridaWorkflowStructure iridaWorkflowStructure;
 	@Mock
 	private Path workflowFile;
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
 
 	private AnalysisSubmission analysisSubmission;
 	private AnalysisSubmission analysisPreparing;
@@ -149,7 +153,7 @@ public class AnalysisExecutionServiceGalaxyTest {
 
 		AnalysisExecutionServiceGalaxyAsync workflowManagementAsync = new AnalysisExecutionServiceGalaxyAsync(
 				analysisSubmissionService, analysisService, galaxyWorkflowService, analysisWorkspaceService,
-				iridaWorkflowsService, analysisSubmissionSampleProcessor);
+				iridaWorkflowsService, analysisSubmissionSampleProcessor, eventPublisher);
 		AnalysisExecutionServiceGalaxyCleanupAsync analysisExecutionServiceGalaxyCleanupAsync = new AnalysisExecutionServiceGalaxyCleanupAsync(
 				analysisSubmissionService, galaxyWorkflowService, galaxyHistoriesService, galaxyLibrariesService);
 		workflowManagement = new AnalysisExecutionServiceGalaxy(analysisSubmissionService, galaxyHistoriesService,
@@ -275,6 +279,7 @@ public class AnalysisExecutionServiceGalaxyTest {
 		verify(galaxyWorkflowService).uploadGalaxyWorkflow(workflowFile);
 		verify(analysisWorkspaceService).prepareAnalysisWorkspace(analysisPreparing);
 		verify(analysisSubmissionService, times(2)).update(any(AnalysisSubmission.class));
+		verify(eventPublisher).publishEvent(any(AnalysisStageCompletedEvent.class));
 	}
 
 	/**
@@ -501,6 +506,7 @@ public class AnalysisExecutionServiceGalaxyTest {
 
 		verify(analysisService).create(analysisResults);
 		verify(analysisSubmissionService, times(2)).update(any(AnalysisSubmission.class));
+		verify(eventPublisher).publishEvent(any(AnalysisStageCompletedEvent.class));
 	}
 	
 	/**
@@ -550,6 +556,7 @@ public class AnalysisExecutionServiceGalaxyTest {
 
 			actualCompletedSubmissionFuture.get();
 		});
+		verify(analysisWorkspaceService).cleanupAnalysisResults(analysisCompleting);
 	}
 
 	/**
@@ -0,0 +1,98 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.execution.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisStageExecutor;
+
+/**
+ * Unit tests for {@link AnalysisStageExecutor}.
+ */
+public class AnalysisStageExecutorTest {
+
+	private SecurityContext securityContext;
+	private AnalysisStageExecutor executor;
+
+	@BeforeEach
+	public void setUp() {
+		securityContext = SecurityContextHolder.createEmptyContext();
+		securityContext.setAuthentication(new UsernamePasswordAuthenticationToken("admin", null));
+		executor = new AnalysisStageExecutor("test", 1, securityContext);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		executor.shutdown();
+	}
+
+	@Test
+	public void testQueueDepthAndHistograms() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(3);
+		executor.execute(() -> {
+			started.countDown();
+			await(release);
+			finished.countDown();
+		});
+		executor.execute(finished::countDown);
+		executor.execute(finished::countDown);
+
+		assertTrue(started.await(5, TimeUnit.SECONDS), "First submission should start");
+		assertEquals(2, executor.getQueueDepth(), "Other submissions should wait for the only thread");
+		assertEquals(1, executor.getActiveCount(), "One submission should be running");
+
+		release.countDown();
+		assertTrue(finished.await(5, TimeUnit.SECONDS), "All submissions should finish");
+		// the histograms are updated just after each submission finishes
+		long deadline = System.currentTimeMillis() + 5000;
+		while (executor.getCompletedCount() < 3 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		Map<String, Long> runHistogram = executor.getRunHistogram();
+		Map<String, Long> waitHistogram = executor.getWaitHistogram();
+		assertEquals(3L, runHistogram.values().stream().mapToLong(Long::longValue).sum(),
+				"Each submission should be counted once");
+		assertEquals(3L, runHistogram.get("<1s"), "Submissions should be counted in the shortest bucket");
+		assertEquals(3L, waitHistogram.values().stream().mapToLong(Long::longValue).sum(),
+				"Each submission should be counted once");
+		assertEquals(0, executor.getQueueDepth(), "Queue should be empty");
+	}
+
+	@Test
+	public void testRunsWithSecurityContext() throws InterruptedException {
+		AtomicReference<Authentication> authentication = new AtomicReference<>();
+		CountDownLatch finished = new CountDownLatch(1);
+		executor.execute(() -> {
+			authentication.set(SecurityContextHolder.getContext().getAuthentication());
+			finished.countDown();
+		});
+
+		assertTrue(finished.await(5, TimeUnit.SECONDS), "Submission should finish");
+		assertSame(securityContext.getAuthentication(), authentication.get(),
+				"Stage should run with its own security context");
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
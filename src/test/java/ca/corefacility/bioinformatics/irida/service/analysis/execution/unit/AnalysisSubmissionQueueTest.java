@@ -0,0 +1,147 @@
+package ca.corefacility.bioinformatics.irida.service.analysis.execution.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import com.google.common.collect.Lists;
+
+import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission.Priority;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary;
+import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisSubmissionQueue;
+
+/**
+ * Unit tests for {@link AnalysisSubmissionQueue}.
+ */
+public class AnalysisSubmissionQueueTest {
+	private static final Long USER_1 = 1L;
+	private static final Long USER_2 = 2L;
+
+	private AnalysisSubmissionRepository analysisSubmissionRepository;
+	private AnalysisSubmissionQueue queue;
+
+	private List<SubmitterQueueSummary> queued;
+	private List<SubmitterQueueSummary> running;
+
+	@BeforeEach
+	public void setUp() {
+		analysisSubmissionRepository = mock(AnalysisSubmissionRepository.class);
+		queue = new AnalysisSubmissionQueue(analysisSubmissionRepository);
+
+		queued = new ArrayList<>();
+		running = new ArrayList<>();
+		when(analysisSubmissionRepository.summarizeBySubmitterAndPriority(Lists.newArrayList(AnalysisState.NEW)))
+				.thenReturn(queued);
+		when(analysisSubmissionRepository.summarizeBySubmitterAndPriority(AnalysisState.getRunningStates()))
+				.thenReturn(running);
+	}
+
+	@Test
+	public void testUsersTakeTurns() {
+		List<AnalysisSubmission> batch = queue(USER_1, Priority.MEDIUM, 60, 5);
+		List<AnalysisSubmission> single = queue(USER_2, Priority.MEDIUM, 1, 1);
+
+		assertEquals(List.of(batch.get(0), single.get(0), batch.get(1)), queue.next(3),
+				"Second user should not wait for the first user's batch");
+	}
+
+	@Test
+	public void testRunningAnalysesCountAgainstUser() {
+		List<AnalysisSubmission> busy = queue(USER_1, Priority.HIGH, 1, 1);
+		List<AnalysisSubmission> idle = queue(USER_2, Priority.LOW, 1, 1);
+		running.add(new SubmitterQueueSummary(USER_1, Priority.MEDIUM, 4L, new Date()));
+
+		assertEquals(List.of(idle.get(0), busy.get(0)), queue.next(2),
+				"User without running analyses should go first");
+	}
+
+	@Test
+	public void testPriorityOrder() {
+		List<AnalysisSubmission> low = queue(USER_1, Priority.LOW, 1, 1);
+		List<AnalysisSubmission> high = queue(USER_1, Priority.HIGH, 1, 1);
+		List<AnalysisSubmission> medium = queue(USER_1, Priority.MEDIUM, 1, 1);
+
+		assertEquals(List.of(high.get(0), medium.get(0), low.get(0)), queue.next(3),
+				"One user's analyses should be in priority order");
+	}
+
+	@Test
+	public void testWaitingLowPriorityAnalysisRuns() {
+		List<AnalysisSubmission> waiting = queue(USER_1, Priority.LOW, TimeUnit.HOURS.toMinutes(4), 1);
+		List<AnalysisSubmission> high = queue(USER_2, Priority.HIGH, 1, 1);
+
+		assertEquals(List.of(waiting.get(0)), queue.next(1), "Long waiting analysis should go first");
+		assertEquals(List.of(waiting.get(0), high.get(0)), queue.next(2), "Both analyses should be listed");
+	}
+
+	@Test
+	public void testQueueLoadedOnce() {
+		List<AnalysisSubmission> batch = queue(USER_1, Priority.MEDIUM, 1, 5);
+
+		assertEquals(batch.subList(0, 3), queue.next(3), "Oldest analyses should be next");
+		verify(analysisSubmissionRepository).findOldestBySubmitterAndPriority(AnalysisState.NEW, USER_1,
+				Priority.MEDIUM, PageRequest.of(0, 3));
+	}
+
+	@Test
+	public void testQueueShrunk() {
+		queued.add(new SubmitterQueueSummary(USER_1, Priority.MEDIUM, 2L, new Date()));
+		AnalysisSubmission remaining = submission(new Date());
+		when(analysisSubmissionRepository.findOldestBySubmitterAndPriority(eq(AnalysisState.NEW), eq(USER_1),
+				eq(Priority.MEDIUM), any(Pageable.class))).thenReturn(List.of(remaining));
+
+		assertEquals(List.of(remaining), queue.next(2), "Only the remaining analysis should be next");
+	}
+
+	@Test
+	public void testNothingQueued() {
+		assertTrue(queue.next(4)
+				.isEmpty(), "Nothing should be next");
+		verify(analysisSubmissionRepository, never()).findOldestBySubmitterAndPriority(any(), any(), any(), any());
+	}
+
+	/**
+	 * Queue up analyses for a user, the oldest submitted the given number of
+	 * minutes ago.
+	 */
+	private List<AnalysisSubmission> queue(Long userId, Priority priority, long minutesAgo, int count) {
+		Date oldest = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(minutesAgo));
+		List<AnalysisSubmission> submissions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			submissions.add(submission(new Date(oldest.getTime() + i)));
+		}
+		queued.add(new SubmitterQueueSummary(userId, priority, (long) count, oldest));
+		when(analysisSubmissionRepository.findOldestBySubmitterAndPriority(eq(AnalysisState.NEW), eq(userId),
+				eq(priority), any(Pageable.class))).thenAnswer(
+				invocation -> submissions.subList(0, invocation.<Pageable>getArgument(3)
+						.getPageSize()));
+		return submissions;
+	}
+
+	private static AnalysisSubmission submission(Date createdDate) {
+		AnalysisSubmission submission = mock(AnalysisSubmission.class);
+		when(submission.getId()).thenReturn(UUID.randomUUID()
+				.getMostSignificantBits());
+		when(submission.getCreatedDate()).thenReturn(createdDate);
+		return submission;
+	}
+}
@@ -2,11 +2,15 @@ package ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.i
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.nio.file.Paths;
@@ -22,6 +26,7 @@ import ca.corefacility.bioinformatics.irida.model.workflow.analysis.AnalysisOutp
 import ca.corefacility.bioinformatics.irida.model.workflow.analysis.ToolExecution;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyHistoriesService;
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.AnalysisProvenanceServiceGalaxy;
+import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.HistoryProvenanceCache;
 
 import com.github.jmchilton.blend4j.galaxy.JobsClient;
 import com.github.jmchilton.blend4j.galaxy.ToolsClient;
@@ -289,6 +294,82 @@ public class AnalysisProvenanceServiceGalaxyTest {
 				"tool execution parameter should be specified value.");
 	}
 
+	@Test
+	public void testBuildToolExecutionsSharedPredecessorLoadedOnce() throws ExecutionManagerException {
+		final String historyId = analysisSubmission();
+		final HistoryContents hc1 = new HistoryContents();
+		hc1.setName("output1.txt");
+		hc1.setId("output1Id");
+		final HistoryContents hc2 = new HistoryContents();
+		hc2.setName("output2.txt");
+		hc2.setId("output2Id");
+		final HistoryContentsProvenance hcp1 = new HistoryContentsProvenance();
+		hcp1.setParameters(ImmutableMap.of("input", (Object) ImmutableMap.of("id", "previousKey")));
+		hcp1.setToolId("tool1");
+		hcp1.setJobId("job1");
+		final HistoryContentsProvenance hcp2 = new HistoryContentsProvenance();
+		hcp2.setParameters(ImmutableMap.of("input", (Object) ImmutableMap.of("id", "previousKey")));
+		hcp2.setToolId("tool2");
+		hcp2.setJobId("job2");
+		final HistoryContentsProvenance hcpShared = new HistoryContentsProvenance();
+		hcpShared.setParameters(ImmutableMap.of("akey", (Object) "value"));
+		hcpShared.setToolId("inputTool");
+		hcpShared.setJobId("inputJob");
+		when(galaxyHistoriesService.showProvenance(historyId, "output1Id")).thenReturn(hcp1);
+		when(galaxyHistoriesService.showProvenance(historyId, "output2Id")).thenReturn(hcp2);
+		when(galaxyHistoriesService.showProvenance(historyId, "previousKey")).thenReturn(hcpShared);
+		when(jobsClient.showJob(any(String.class))).thenReturn(new JobDetails());
+		when(toolsClient.showTool(any(String.class))).thenReturn(new Tool());
+
+		final HistoryProvenanceCache history = new HistoryProvenanceCache(historyId, Lists.newArrayList(hc1, hc2));
+		final ToolExecution toolExecution1 = provenanceService.buildToolExecutionForOutputFile(history,
+				"output1.txt");
+		final ToolExecution toolExecution2 = provenanceService.buildToolExecutionForOutputFile(history,
+				"output2.txt");
+
+		final ToolExecution predecessor1 = toolExecution1.getPreviousSteps().iterator().next();
+		final ToolExecution predecessor2 = toolExecution2.getPreviousSteps().iterator().next();
+		assertSame(predecessor1, predecessor2, "both outputs should share the predecessor");
+
+		verify(galaxyHistoriesService, never()).showHistoryContents(any(String.class));
+		verify(galaxyHistoriesService, times(1)).showProvenance(historyId, "previousKey");
+		verify(toolsClient, times(1)).showTool("inputTool");
+		verify(jobsClient, times(1)).showJob("inputJob");
+	}
+
+	@Test
+	public void testBuildToolExecutionsSameJobShared() throws ExecutionManagerException {
+		final String historyId = analysisSubmission();
+		final HistoryContents hc1 = new HistoryContents();
+		hc1.setName("output1.txt");
+		hc1.setId("output1Id");
+		final HistoryContents hc2 = new HistoryContents();
+		hc2.setName("output2.txt");
+		hc2.setId("output2Id");
+		final HistoryContentsProvenance hcp1 = new HistoryContentsProvenance();
+		hcp1.setParameters(ImmutableMap.of("akey", (Object) "{\"key\": \"value\"}"));
+		hcp1.setToolId("tool");
+		hcp1.setJobId("job");
+		final HistoryContentsProvenance hcp2 = new HistoryContentsProvenance();
+		hcp2.setParameters(ImmutableMap.of("akey", (Object) "{\"key\": \"value\"}"));
+		hcp2.setToolId("tool");
+		hcp2.setJobId("job");
+		when(galaxyHistoriesService.showProvenance(historyId, "output1Id")).thenReturn(hcp1);
+		when(galaxyHistoriesService.showProvenance(historyId, "output2Id")).thenReturn(hcp2);
+		when(jobsClient.showJob(any(String.class))).thenReturn(new JobDetails());
+		when(toolsClient.showTool(any(String.class))).thenReturn(new Tool());
+
+		final HistoryProvenanceCache history = new HistoryProvenanceCache(historyId, Lists.newArrayList(hc1, hc2));
+		final ToolExecution toolExecution1 = provenanceService.buildToolExecutionForOutputFile(history,
+				"output1.txt");
+		final ToolExecution toolExecution2 = provenanceService.buildToolExecutionForOutputFile(history,
+				"output2.txt");
+
+		assertSame(toolExecution1, toolExecution2, "outputs of the same job should share the tool execution");
+		assertEquals("value", toolExecution1.getExecutionTimeParameters().get("akey.key"),
+				"tool execution parameter should be specified value.");
+	}
+
 	private String analysisSubmission() {
 		return UUID.randomUUID().toString();
 	}
@@ -26,6 +26,7 @@ import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.An
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.AnalysisParameterServiceGalaxy;
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.AnalysisProvenanceServiceGalaxy;
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.AnalysisWorkspaceServiceGalaxy;
+import ca.corefacility.bioinformatics.irida.service.analysis.workspace.galaxy.HistoryProvenanceCache;
 import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsService;
 import com.github.jmchilton.blend4j.galaxy.beans.*;
 import com.github.jmchilton.blend4j.galaxy.beans.WorkflowInvocationInputs.WorkflowInvocationInput;
@@ -33,16 +34,23 @@ import com.github.jmchilton.blend4j.galaxy.beans.collection.response.CollectionR
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -90,6 +98,7 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 	private Set<SequencingObject> inputFiles;
 	private ReferenceFile referenceFile;
 	private Path refFile;
+	private Path outputStagingDirectory;
 	private AnalysisSubmission submission;
 	private WorkflowDetails workflowDetails;
 
@@ -149,9 +158,11 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 	 * @throws IOException
 	 * @throws GalaxyDatasetException
 	 * @throws UploadException
+	 * @throws ExecutionManagerDownloadException
 	 */
 	@BeforeEach
-	public void setup() throws IOException, UploadException, GalaxyDatasetException {
+	public void setup() throws IOException, UploadException, GalaxyDatasetException,
+			ExecutionManagerDownloadException {
 		MockitoAnnotations.openMocks(this);
 
 		sFileA = new SequenceFile(createTempFile("fileA", "fastq"));
@@ -196,10 +207,18 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		workflowDetails = new WorkflowDetails();
 		workflowDetails.setId(WORKFLOW_ID);
 
+		outputStagingDirectory = Files.createTempDirectory("analysis-output-staging");
 		workflowPreparation = new AnalysisWorkspaceServiceGalaxy(galaxyHistoriesService, galaxyWorkflowService,
 				galaxyLibrariesService, iridaWorkflowsService, analysisCollectionServiceGalaxy,
 				analysisProvenanceServiceGalaxy, analysisParameterServiceGalaxy,
-				sequencingObjectService);
+				sequencingObjectService, MoreExecutors.newDirectExecutorService(), outputStagingDirectory, 2);
+
+		// downloading a dataset writes its id to the file
+		doAnswer(invocation -> {
+			Dataset dataset = invocation.getArgument(1);
+			Files.write(invocation.getArgument(2), dataset.getId().getBytes());
+			return null;
+		}).when(galaxyHistoriesService).downloadDatasetTo(any(String.class), any(Dataset.class), any(Path.class));
 
 		output1Dataset = new Dataset();
 		output1Dataset.setId("1");
@@ -722,8 +741,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 				.thenReturn(Sets.newHashSet(singleFiles));
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID)).thenReturn(output1Dataset);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output2Filename, HISTORY_ID)).thenReturn(output2Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
 
 		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(singleFiles))
 				.thenReturn(sampleSingleSequenceFileMap);
@@ -742,8 +761,139 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 				analysis.getAnalysisOutputFile("output2").getLabel(),
 				"missing output file for analysis");
 
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output1.txt", HISTORY_ID);
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output2.txt", HISTORY_ID);
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output1.txt"), eq(HISTORY_ID), any());
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output2.txt"), eq(HISTORY_ID), any());
+	}
+
+	/**
+	 * Tests that output files are downloaded at the same time and share the
+	 * history loaded from Galaxy.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGetAnalysisResultsConcurrentDownloads() throws Exception {
+		ExecutorService downloadExecutor = Executors.newFixedThreadPool(2);
+		workflowPreparation = new AnalysisWorkspaceServiceGalaxy(galaxyHistoriesService, galaxyWorkflowService,
+				galaxyLibrariesService, iridaWorkflowsService, analysisCollectionServiceGalaxy,
+				analysisProvenanceServiceGalaxy, analysisParameterServiceGalaxy, sequencingObjectService,
+				downloadExecutor, outputStagingDirectory, 1);
+		Set<SingleEndSequenceFile> singleFiles = Sets.newHashSet(sampleSingleSequenceFileMap.values());
+
+		submission = AnalysisSubmission.builder(workflowId).name("my analysis").inputFiles(singleInputFiles)
+				.referenceFile(referenceFile).build();
+		submission.setRemoteWorkflowId(WORKFLOW_ID);
+		submission.setRemoteAnalysisId(HISTORY_ID);
+
+		when(sequencingObjectService.getSequencingObjectsForAnalysisSubmission(submission))
+				.thenReturn(Sets.newHashSet(singleFiles));
+		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(singleFiles))
+				.thenReturn(sampleSingleSequenceFileMap);
+		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
+
+		// each download waits until the other has started
+		CountDownLatch downloadsStarted = new CountDownLatch(2);
+		doAnswer(invocation -> {
+			downloadsStarted.countDown();
+			assertTrue(downloadsStarted.await(5, TimeUnit.SECONDS), "output files should be downloaded at once");
+			Files.write(invocation.getArgument(2), "output".getBytes());
+			return null;
+		}).when(galaxyHistoriesService).downloadDatasetTo(eq(HISTORY_ID), any(Dataset.class), any(Path.class));
+
+		try {
+			Analysis analysis = workflowPreparation.getAnalysisResults(submission);
+			assertEquals(2, analysis.getAnalysisOutputFiles().size(), "invalid number of output files");
+		} finally {
+			downloadExecutor.shutdown();
+		}
+
+		verify(galaxyHistoriesService, times(1)).showHistoryContents(HISTORY_ID);
+		ArgumentCaptor<HistoryProvenanceCache> historyCaptor = ArgumentCaptor.forClass(HistoryProvenanceCache.class);
+		verify(analysisProvenanceServiceGalaxy, times(2)).buildToolExecutionForOutputFile(historyCaptor.capture(),
+				any(String.class));
+		assertSame(historyCaptor.getAllValues().get(0), historyCaptor.getAllValues().get(1),
+				"output files should share the loaded history");
+	}
+
+	/**
+	 * Tests that retrying a failed download only downloads the output files
+	 * that weren't downloaded the first time.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGetAnalysisResultsRetryDownloadsMissingFiles() throws Exception {
+		Set<SingleEndSequenceFile> singleFiles = Sets.newHashSet(sampleSingleSequenceFileMap.values());
+
+		submission = AnalysisSubmission.builder(workflowId).name("my analysis").inputFiles(singleInputFiles)
+				.referenceFile(referenceFile).build();
+		submission.setRemoteWorkflowId(WORKFLOW_ID);
+		submission.setRemoteAnalysisId(HISTORY_ID);
+
+		when(sequencingObjectService.getSequencingObjectsForAnalysisSubmission(submission))
+				.thenReturn(Sets.newHashSet(singleFiles));
+		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(singleFiles))
+				.thenReturn(sampleSingleSequenceFileMap);
+		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
+
+		// the second file fails to download the first time
+		doAnswer(invocation -> {
+			Files.write(invocation.getArgument(2), "partial".getBytes());
+			throw new IOException("connection reset");
+		}).doAnswer(invocation -> {
+			Files.write(invocation.getArgument(2), "2".getBytes());
+			return null;
+		}).when(galaxyHistoriesService).downloadDatasetTo(eq(HISTORY_ID), datasetWithId("2"), any(Path.class));
+
+		Analysis analysis = workflowPreparation.getAnalysisResults(submission);
+		assertEquals(2, analysis.getAnalysisOutputFiles().size(), "invalid number of output files");
+
+		verify(galaxyHistoriesService, times(1)).downloadDatasetTo(eq(HISTORY_ID), datasetWithId("1"), any(Path.class));
+		verify(galaxyHistoriesService, times(2)).downloadDatasetTo(eq(HISTORY_ID), datasetWithId("2"), any(Path.class));
+
+		workflowPreparation.cleanupAnalysisResults(submission);
+		assertFalse(Files.exists(outputStagingDirectory.resolve(HISTORY_ID)), "staging directory should be removed");
+	}
+
+	/**
+	 * Tests that the downloaded files are removed once the last attempt to
+	 * download the output files fails.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testGetAnalysisResultsLastAttemptFails() throws Exception {
+		Set<SingleEndSequenceFile> singleFiles = Sets.newHashSet(sampleSingleSequenceFileMap.values());
+
+		submission = AnalysisSubmission.builder(workflowId).name("my analysis").inputFiles(singleInputFiles)
+				.referenceFile(referenceFile).build();
+		submission.setRemoteWorkflowId(WORKFLOW_ID);
+		submission.setRemoteAnalysisId(HISTORY_ID);
+
+		when(sequencingObjectService.getSequencingObjectsForAnalysisSubmission(submission))
+				.thenReturn(Sets.newHashSet(singleFiles));
+		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(singleFiles))
+				.thenReturn(sampleSingleSequenceFileMap);
+		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
+
+		// the second file never downloads
+		doAnswer(invocation -> {
+			Files.write(invocation.getArgument(2), "partial".getBytes());
+			throw new IOException("connection reset");
+		}).when(galaxyHistoriesService).downloadDatasetTo(eq(HISTORY_ID), datasetWithId("2"), any(Path.class));
+
+		assertThrows(IOException.class, () -> {
+			workflowPreparation.getAnalysisResults(submission);
+		});
+
+		verify(galaxyHistoriesService, times(2)).downloadDatasetTo(eq(HISTORY_ID), datasetWithId("2"), any(Path.class));
+		assertFalse(Files.exists(outputStagingDirectory.resolve(HISTORY_ID)), "staging directory should be removed");
 	}
 
 	/**
@@ -766,8 +916,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		submission.setRemoteAnalysisId(HISTORY_ID);
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID)).thenReturn(output1Dataset);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output2Filename, HISTORY_ID)).thenReturn(output2Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
 
 		when(sequencingObjectService.getSequencingObjectsForAnalysisSubmission(submission))
 				.thenReturn(Sets.newHashSet(pairedFiles));
@@ -787,8 +937,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		assertEquals("SampleB-output2.txt", analysis.getAnalysisOutputFile("output2").getLabel(),
 				"missing output file for analysis");
 
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output1.txt", HISTORY_ID);
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output2.txt", HISTORY_ID);
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output1.txt"), eq(HISTORY_ID), any());
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output2.txt"), eq(HISTORY_ID), any());
 	}
 
 	/**
@@ -824,8 +974,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowIdMultiSamples))
 				.thenReturn(iridaWorkflowSinglePairedMultipleSamples);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID)).thenReturn(output1Dataset);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output2Filename, HISTORY_ID)).thenReturn(output2Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
 
 		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(joinedFiles))
 				.thenReturn(joinedMap);
@@ -843,8 +993,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		assertEquals("output2.txt", analysis.getAnalysisOutputFile("output2").getLabel(),
 				"missing output file for analysis");
 
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output1.txt", HISTORY_ID);
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output2.txt", HISTORY_ID);
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output1.txt"), eq(HISTORY_ID), any());
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output2.txt"), eq(HISTORY_ID), any());
 	}
 
 	/**
@@ -875,8 +1025,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 				SequenceFilePair.class)).thenReturn(pairedFiles);
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID)).thenReturn(output1Dataset);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output2Filename, HISTORY_ID)).thenReturn(output2Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
 
 		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(singleFiles))
 				.thenReturn(sampleSingleSequenceFileMap);
@@ -896,8 +1046,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		assertEquals("output2.txt", analysis.getAnalysisOutputFile("output2").getLabel(),
 				"missing output file for analysis");
 
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output1.txt", HISTORY_ID);
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output2.txt", HISTORY_ID);
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output1.txt"), eq(HISTORY_ID), any());
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output2.txt"), eq(HISTORY_ID), any());
 	}
 
 	/**
@@ -920,8 +1070,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		submission.setRemoteAnalysisId(HISTORY_ID);
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID)).thenReturn(output1Dataset);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output2Filename, HISTORY_ID)).thenReturn(output2Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any())).thenReturn(output1Dataset);
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output2Filename), eq(HISTORY_ID), any())).thenReturn(output2Dataset);
 
 		Analysis analysis = workflowPreparation.getAnalysisResults(submission);
 
@@ -936,8 +1086,8 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		assertEquals("output2.txt", analysis.getAnalysisOutputFile("output2").getLabel(),
 				"missing output file for analysis");
 
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output1.txt", HISTORY_ID);
-		verify(galaxyHistoriesService).getDatasetForFileInHistory("output2.txt", HISTORY_ID);
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output1.txt"), eq(HISTORY_ID), any());
+		verify(galaxyHistoriesService).getDatasetForFileInHistory(eq("output2.txt"), eq(HISTORY_ID), any());
 	}
 
 	/**
@@ -958,11 +1108,15 @@ public class AnalysisWorkspaceServiceGalaxyTest {
 		submission.setRemoteAnalysisId(HISTORY_ID);
 
 		when(iridaWorkflowsService.getIridaWorkflow(workflowId)).thenReturn(iridaWorkflowSingle);
-		when(galaxyHistoriesService.getDatasetForFileInHistory(output1Filename, HISTORY_ID))
+		when(galaxyHistoriesService.getDatasetForFileInHistory(eq(output1Filename), eq(HISTORY_ID), any()))
 				.thenThrow(new GalaxyDatasetException());
 
 		assertThrows(GalaxyDatasetException.class, () -> {
 			workflowPreparation.getAnalysisResults(submission);
 		});
 	}
+
+	private static Dataset datasetWithId(String id) {
+		return argThat(dataset -> dataset != null && id.equals(dataset.getId()));
+	}
 }
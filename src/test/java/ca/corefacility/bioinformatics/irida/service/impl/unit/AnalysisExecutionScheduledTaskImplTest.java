@@ -1,16 +1,24 @@
 package ca.corefacility.bioinformatics.irida.service.impl.unit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import ca.corefacility.bioinformatics.irida.service.analysis.workspace.AnalysisWorkspaceService;
 import org.joda.time.DateTime;
@@ -18,10 +26,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
 
 import com.github.jmchilton.blend4j.galaxy.HistoriesClient;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import ca.corefacility.bioinformatics.irida.events.AnalysisStageCompletedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowAnalysisTypeException;
 import ca.corefacility.bioinformatics.irida.exceptions.IridaWorkflowException;
@@ -34,6 +47,7 @@ import ca.corefacility.bioinformatics.irida.model.workflow.analysis.Analysis;
 import ca.corefacility.bioinformatics.irida.model.workflow.execution.galaxy.GalaxyWorkflowState;
 import ca.corefacility.bioinformatics.irida.model.workflow.execution.galaxy.GalaxyWorkflowStatus;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
+import ca.corefacility.bioinformatics.irida.model.workflow.submission.SubmitterQueueSummary;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyJobErrorsService;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.integration.Util;
 import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.AnalysisSubmissionRepository;
@@ -131,8 +145,7 @@ public class AnalysisExecutionScheduledTaskImplTest {
 			throws ExecutionManagerException, IridaWorkflowNotFoundException, IOException {
 		analysisSubmission.setAnalysisState(AnalysisState.NEW);
 
-		when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.NEW)).thenReturn(
-				Arrays.asList(analysisSubmission));
+		queueSubmissions(analysisSubmission);
 		when(analysisExecutionService.getCapacity()).thenReturn(1);
 
 		analysisExecutionScheduledTask.prepareAnalyses();
@@ -161,8 +174,7 @@ public class AnalysisExecutionScheduledTaskImplTest {
 				.priority(AnalysisSubmission.Priority.HIGH)
 				.build();
 
-		when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.NEW)).thenReturn(
-				Arrays.asList(medium, high, low));
+		queueSubmissions(medium, high, low);
 		when(analysisExecutionService.getCapacity()).thenReturn(2);
 
 		analysisExecutionScheduledTask.prepareAnalyses();
@@ -184,7 +196,7 @@ public class AnalysisExecutionScheduledTaskImplTest {
 			throws ExecutionManagerException, IridaWorkflowNotFoundException, IOException {
 		analysisSubmission.setAnalysisState(AnalysisState.NEW);
 
-		when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.NEW)).thenReturn(Arrays.asList());
+		queueSubmissions();
 
 		analysisExecutionScheduledTask.prepareAnalyses();
 
@@ -523,6 +535,190 @@ public class AnalysisExecutionScheduledTaskImplTest {
 		verify(analysisSubmissionRepository).save(analysisSubmission);
 	}
 
+	/**
+	 * Tests that a workflow whose state hasn't changed is checked less and less
+	 * often, and is checked every cycle again once its state changes.
+	 *
+	 * @throws ExecutionManagerException
+	 * @throws IridaWorkflowNotFoundException
+	 */
+	@Test
+	public void testMonitorRunningAnalysesBackoffUnchanged()
+			throws ExecutionManagerException, IridaWorkflowNotFoundException {
+		AnalysisExecutionScheduledTask backoffTask = new AnalysisExecutionScheduledTaskImpl(
+				analysisSubmissionRepository, analysisExecutionService,
+				CleanupAnalysisSubmissionCondition.ALWAYS_CLEANUP, galaxyJobErrorsService, jobErrorRepository,
+				emailController, analysisWorkspaceService, MoreExecutors.newDirectExecutorService(),
+				MoreExecutors.newDirectExecutorService(), 0, 2);
+		analysisSubmission.setAnalysisState(AnalysisState.RUNNING);
+
+		when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.RUNNING)).thenReturn(
+				Arrays.asList(analysisSubmission));
+		when(analysisExecutionService.getWorkflowStatus(analysisSubmission)).thenReturn(
+				new GalaxyWorkflowStatus(GalaxyWorkflowState.RUNNING,
+						Util.buildStateIdsWithStateFilled(GalaxyWorkflowState.RUNNING, Sets.newHashSet("1"))));
+
+		// checked in cycles 1, 2, 4 and 7, skipping 1 then 2 cycles in between
+		for (int cycle = 0; cycle < 7; cycle++) {
+			backoffTask.monitorRunningAnalyses();
+		}
+		verify(analysisExecutionService, times(4)).getWorkflowStatus(analysisSubmission);
+
+		// skipping is capped at 2 cycles
+		for (int cycle = 0; cycle < 3; cycle++) {
+			backoffTask.monitorRunningAnalyses();
+		}
+		verify(analysisExecutionService, times(5)).getWorkflowStatus(analysisSubmission);
+
+		when(analysisExecutionService.getWorkflowStatus(analysisSubmission)).thenReturn(
+				new GalaxyWorkflowStatus(GalaxyWorkflowState.RUNNING,
+						Util.buildStateIdsWithStateFilled(GalaxyWorkflowState.OK, Sets.newHashSet("1"))));
+		for (int cycle = 0; cycle < 4; cycle++) {
+			backoffTask.monitorRunningAnalyses();
+		}
+		// skips 2 cycles before the change is seen, then checks again in the next cycle
+		verify(analysisExecutionService, times(7)).getWorkflowStatus(analysisSubmission);
+		assertEquals(AnalysisState.RUNNING, analysisSubmission.getAnalysisState());
+	}
+
+	/**
+	 * Tests that a Galaxy history which doesn't return its state doesn't hold
+	 * up the other running analyses, that the request is cancelled once it
+	 * times out and that it isn't asked for again until the cancelled request
+	 * returns.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testMonitorRunningAnalysesHungHistory() throws Exception {
+		ExecutorService statusExecutor = Executors.newFixedThreadPool(2);
+		ExecutorService transitionExecutor = Executors.newSingleThreadExecutor();
+		try {
+			AnalysisExecutionScheduledTaskImpl concurrentTask = new AnalysisExecutionScheduledTaskImpl(
+					analysisSubmissionRepository, analysisExecutionService,
+					CleanupAnalysisSubmissionCondition.ALWAYS_CLEANUP, galaxyJobErrorsService, jobErrorRepository,
+					emailController, analysisWorkspaceService, statusExecutor, transitionExecutor, 1, 0);
+
+			AnalysisSubmission hungSubmission = AnalysisSubmission.builder(workflowId)
+					.name("hung analysis")
+					.inputFiles(sequenceFiles)
+					.referenceFile(referenceFile)
+					.emailPipelineResultCompleted(false)
+					.emailPipelineResultError(false)
+					.build();
+			hungSubmission.setId(INTERNAL_ID + 1);
+			hungSubmission.setAnalysisState(AnalysisState.RUNNING);
+			analysisSubmission.setAnalysisState(AnalysisState.RUNNING);
+
+			GalaxyWorkflowStatus finished = new GalaxyWorkflowStatus(GalaxyWorkflowState.OK,
+					Util.buildStateIdsWithStateFilled(GalaxyWorkflowState.OK, Sets.newHashSet("1")));
+			CountDownLatch galaxyResponds = new CountDownLatch(1);
+
+			when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.RUNNING)).thenReturn(
+					Arrays.asList(hungSubmission, analysisSubmission));
+			// like a blocking read from Galaxy, ignores being interrupted
+			when(analysisExecutionService.getWorkflowStatus(hungSubmission)).thenAnswer(i -> {
+				Uninterruptibles.awaitUninterruptibly(galaxyResponds);
+				return finished;
+			});
+			when(analysisExecutionService.getWorkflowStatus(analysisSubmission)).thenReturn(finished);
+			when(analysisWorkspaceService.outputFilesExist(any(AnalysisSubmission.class))).thenReturn(true);
+			when(analysisSubmissionRepository.save(any(AnalysisSubmission.class))).thenAnswer(i -> i.getArgument(0));
+
+			for (Future<AnalysisSubmission> submission : concurrentTask.monitorRunningAnalyses()) {
+				submission.get();
+			}
+			assertEquals(AnalysisState.FINISHED_RUNNING, analysisSubmission.getAnalysisState(),
+					"Other analysis should finish while the hung history is waiting");
+			assertEquals(AnalysisState.RUNNING, hungSubmission.getAnalysisState(), "Hung analysis should be left running");
+
+			when(analysisSubmissionRepository.findByAnalysisState(AnalysisState.RUNNING)).thenReturn(
+					Arrays.asList(hungSubmission));
+			// the request has now timed out and is cancelled
+			concurrentTask.monitorRunningAnalyses();
+			verify(analysisExecutionService, times(1)).getWorkflowStatus(hungSubmission);
+			assertTrue(concurrentTask.getMaxMonitorLagMillis() >= 1000, "Lag should include the hung history");
+
+			concurrentTask.monitorRunningAnalyses();
+			verify(analysisExecutionService, times(1)).getWorkflowStatus(hungSubmission);
+
+			galaxyResponds.countDown();
+			for (int cycle = 0; cycle < 100
+					&& AnalysisState.RUNNING.equals(hungSubmission.getAnalysisState()); cycle++) {
+				for (Future<AnalysisSubmission> submission : concurrentTask.monitorRunningAnalyses()) {
+					submission.get();
+				}
+				Thread.sleep(10);
+			}
+			verify(analysisExecutionService, times(2)).getWorkflowStatus(hungSubmission);
+			assertEquals(AnalysisState.FINISHED_RUNNING, hungSubmission.getAnalysisState(),
+					"Hung analysis should be asked for again once the cancelled request returns");
+		} finally {
+			statusExecutor.shutdownNow();
+			transitionExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Tests that a submission which finished preparing is executed straight
+	 * away.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStageCompletedStartsNextStage() throws Exception {
+		AnalysisExecutionScheduledTaskImpl pipelinedTask = new AnalysisExecutionScheduledTaskImpl(
+				analysisSubmissionRepository, analysisExecutionService,
+				CleanupAnalysisSubmissionCondition.ALWAYS_CLEANUP, galaxyJobErrorsService, jobErrorRepository,
+				emailController, analysisWorkspaceService, MoreExecutors.newDirectExecutorService(),
+				MoreExecutors.newDirectExecutorService(), 0, 0);
+		analysisSubmission.setAnalysisState(AnalysisState.PREPARED);
+		when(analysisSubmissionRepository.findById(INTERNAL_ID)).thenReturn(Optional.of(analysisSubmission));
+
+		pipelinedTask.handleStageCompleted(new AnalysisStageCompletedEvent(INTERNAL_ID, AnalysisState.PREPARED));
+
+		verify(analysisExecutionService).executeAnalysis(analysisSubmission);
+	}
+
+	/**
+	 * Tests that a submission which a scheduled check already moved on to the
+	 * next stage isn't started again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStageCompletedAlreadyStarted() throws Exception {
+		AnalysisExecutionScheduledTaskImpl pipelinedTask = new AnalysisExecutionScheduledTaskImpl(
+				analysisSubmissionRepository, analysisExecutionService,
+				CleanupAnalysisSubmissionCondition.ALWAYS_CLEANUP, galaxyJobErrorsService, jobErrorRepository,
+				emailController, analysisWorkspaceService, MoreExecutors.newDirectExecutorService(),
+				MoreExecutors.newDirectExecutorService(), 0, 0);
+		analysisSubmission.setAnalysisState(AnalysisState.COMPLETING);
+		when(analysisSubmissionRepository.findById(INTERNAL_ID)).thenReturn(Optional.of(analysisSubmission));
+
+		pipelinedTask.handleStageCompleted(
+				new AnalysisStageCompletedEvent(INTERNAL_ID, AnalysisState.FINISHED_RUNNING));
+
+		verify(analysisExecutionService, never()).transferAnalysisResults(any(AnalysisSubmission.class));
+	}
+
+	/**
+	 * Tests that a task which isn't pipelining stages leaves finished stages
+	 * for the scheduled checks.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testStageCompletedNotPipelined() throws Exception {
+		analysisSubmission.setAnalysisState(AnalysisState.TRANSFERRED);
+		when(analysisSubmissionRepository.findById(INTERNAL_ID)).thenReturn(Optional.of(analysisSubmission));
+
+		((AnalysisExecutionScheduledTaskImpl) analysisExecutionScheduledTask).handleStageCompleted(
+				new AnalysisStageCompletedEvent(INTERNAL_ID, AnalysisState.TRANSFERRED));
+
+		verify(analysisExecutionService, never()).postProcessResults(any(AnalysisSubmission.class));
+	}
+
 	/**
 	 * Tests successfully transferring results for a submitted analysis.
 	 *
@@ -798,4 +994,23 @@ public class AnalysisExecutionScheduledTaskImplTest {
 		verify(analysisExecutionService).cleanupSubmission(analysisSubmissionMock);
 		verify(analysisExecutionService, never()).cleanupSubmission(analysisSubmissionMock2);
 	}
+
+	/**
+	 * Queues up new submissions, all from the same user.
+	 *
+	 * @param submissions the submissions to queue
+	 */
+	private void queueSubmissions(AnalysisSubmission... submissions) {
+		List<SubmitterQueueSummary> summaries = new ArrayList<>();
+		Arrays.stream(submissions)
+				.collect(Collectors.groupingBy(AnalysisSubmission::getPriority))
+				.forEach((priority, queued) -> {
+					summaries.add(new SubmitterQueueSummary(null, priority, (long) queued.size(), queued.get(0)
+							.getCreatedDate()));
+					when(analysisSubmissionRepository.findOldestBySubmitterAndPriority(eq(AnalysisState.NEW), isNull(),
+							eq(priority), any(Pageable.class))).thenReturn(queued);
+				});
+		when(analysisSubmissionRepository.summarizeBySubmitterAndPriority(Lists.newArrayList(AnalysisState.NEW)))
+				.thenReturn(summaries);
+	}
 }
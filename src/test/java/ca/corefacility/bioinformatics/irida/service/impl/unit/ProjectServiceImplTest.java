@@ -15,6 +15,7 @@ import javax.validation.Validator;
 import org.hibernate.validator.internal.engine.ConstraintViolationImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -45,6 +46,7 @@ import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.Pro
 import ca.corefacility.bioinformatics.irida.repositories.joins.project.*;
 import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleSequencingObjectJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.referencefile.ReferenceFileRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.SampleRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.user.UserGroupJoinRepository;
@@ -79,6 +81,7 @@ public class ProjectServiceImplTest {
 	private SequencingObjectRepository sequencingObjectRepository;
 	private ProjectSubscriptionService projectSubscriptionService;
 	private UserGroupJoinRepository userGroupJoinRepository;
+	private MetadataEntryRepository metadataEntryRepository;
 
 	private Validator validator;
 
@@ -97,10 +100,11 @@ public class ProjectServiceImplTest {
 		sequencingObjectRepository = mock(SequencingObjectRepository.class);
 		projectSubscriptionService = mock(ProjectSubscriptionService.class);
 		userGroupJoinRepository = mock(UserGroupJoinRepository.class);
+		metadataEntryRepository = mock(MetadataEntryRepository.class);
 		projectService = new ProjectServiceImpl(projectRepository, sampleRepository, userRepository, pujRepository,
 				psjRepository, relatedProjectRepository, referenceFileRepository, prfjRepository, ugpjRepository,
 				ssoRepository, pasRepository, sequencingObjectRepository, projectSubscriptionService,
-				userGroupJoinRepository, validator);
+				userGroupJoinRepository, metadataEntryRepository, mock(ApplicationEventPublisher.class), validator);
 	}
 
 	@Test
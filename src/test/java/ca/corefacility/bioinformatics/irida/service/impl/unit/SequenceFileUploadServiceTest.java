@@ -0,0 +1,193 @@
+package ca.corefacility.bioinformatics.irida.service.impl.unit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+import ca.corefacility.bioinformatics.irida.service.SequenceFileUploadService;
+
+/**
+ * Unit tests for {@link SequenceFileUploadService}
+ */
+public class SequenceFileUploadServiceTest {
+	private static final String CONTENTS = "@read\nACGTACGTACGTACGTACGT\n+\n????????????????????\n";
+	private static final String SHA256 = DigestUtils.sha256Hex(CONTENTS);
+	private static final String OWNER = "uploader";
+
+	private Path baseDirectory;
+	private SequenceFileUploadService uploadService;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		baseDirectory = Files.createTempDirectory(null);
+		uploadService = new SequenceFileUploadService(baseDirectory, 24, 1024);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(baseDirectory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testUploadInChunks() throws IOException {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		// send the second half first, then the first half
+		int half = CONTENTS.length() / 2;
+		session = writeChunk(session, half, CONTENTS.substring(half));
+		assertFalse(session.isComplete(), "Upload should be missing the first half");
+		assertEquals(CONTENTS.length() - half, session.getBytesReceived(), "Second half should be received");
+
+		session = writeChunk(session, 0, CONTENTS.substring(0, half));
+		assertTrue(session.isComplete(), "Whole file should be received");
+		assertEquals(1, session.getReceived().size(), "Received ranges should be merged");
+
+		SequenceFile sequenceFile = uploadService.completeSession(session.getId(), OWNER, null);
+		assertEquals(CONTENTS, Files.readString(sequenceFile.getFile()), "File should be written in place");
+		assertEquals("reads.fastq", sequenceFile.getFile().getFileName().toString(), "File name should be kept");
+		assertEquals(SHA256, sequenceFile.getUploadSha256(), "Checksum should be set");
+		assertTrue(sequenceFile.getFile().startsWith(baseDirectory),
+				"Upload should be on the same filesystem as the sequence files");
+
+		uploadService.removeSession(session.getId(), OWNER);
+		assertFalse(Files.exists(sequenceFile.getFile()), "Upload should be removed");
+	}
+
+	@Test
+	public void testResendChunk() throws IOException {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		writeChunk(session, 0, CONTENTS.substring(0, 10));
+		writeChunk(session, 5, CONTENTS.substring(5));
+		session = writeChunk(session, 0, CONTENTS.substring(0, 10));
+
+		assertTrue(session.isComplete(), "Overlapping chunks should complete the file");
+		assertEquals(CONTENTS.length(), session.getBytesReceived(), "Overlapping bytes should be counted once");
+		assertEquals(SHA256, uploadService.completeSession(session.getId(), OWNER, null).getUploadSha256(),
+				"File should match");
+	}
+
+	@Test
+	public void testIncompleteUpload() throws IOException {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+		writeChunk(session, 0, CONTENTS.substring(0, 10));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.completeSession(session.getId(), OWNER, null));
+	}
+
+	@Test
+	public void testChecksumMismatch() throws IOException {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), null,
+				OWNER);
+		writeChunk(session, 0, CONTENTS.replace('A', 'T'));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.completeSession(session.getId(), OWNER, SHA256));
+	}
+
+	@Test
+	public void testChunkPastEndOfFile() {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		assertThrows(IllegalArgumentException.class, () -> writeChunk(session, 10, CONTENTS));
+		assertThrows(IllegalArgumentException.class, () -> writeChunk(session, CONTENTS.length(), "A"));
+	}
+
+	@Test
+	public void testDeclaredLengthPastEndOfFile() {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+		ByteArrayInputStream data = new ByteArrayInputStream(CONTENTS.getBytes(StandardCharsets.US_ASCII));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.writeChunk(1L, session.getId(), OWNER, 10, CONTENTS.length(), data));
+		assertEquals(CONTENTS.length(), data.available(), "No data should be read when the length is too long");
+
+		// more data than the client declared is rejected even if it fits in the file
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.writeChunk(1L, session.getId(), OWNER, 0, 10, data));
+		assertEquals(0, uploadService.getSession(session.getId(), OWNER).getBytesReceived(),
+				"Rejected data should not be received");
+	}
+
+	@Test
+	public void testFileLargerThanMaxSize() {
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.createSession(1L, "reads.fastq", 1025, SHA256, OWNER));
+	}
+
+	@Test
+	public void testChunkForOtherSample() {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		assertThrows(EntityNotFoundException.class, () -> uploadService.writeChunk(2L, session.getId(), OWNER, 0,
+				CONTENTS.length(), new ByteArrayInputStream(CONTENTS.getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	@Test
+	public void testOtherUsersUpload() {
+		SequenceFileUploadSession session = uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getSession(session.getId(), "someone-else"));
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getSession("../" + session.getId(), OWNER));
+	}
+
+	@Test
+	public void testInvalidFileName() {
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.createSession(1L, "../reads.fastq", CONTENTS.length(), SHA256, OWNER));
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.createSession(1L, "reads.fastq", CONTENTS.length(), "not-a-checksum", OWNER));
+		assertThrows(IllegalArgumentException.class,
+				() -> uploadService.createSession(1L, "session.lock", CONTENTS.length(), SHA256, OWNER));
+	}
+
+	@Test
+	public void testRemoveExpiredSessions() throws IOException {
+		SequenceFileUploadSession expired = uploadService.createSession(1L, "old.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+		SequenceFileUploadSession active = uploadService.createSession(1L, "new.fastq", CONTENTS.length(), SHA256,
+				OWNER);
+
+		Path sessionFile = baseDirectory.resolve(SequenceFileUploadService.UPLOAD_DIRECTORY)
+				.resolve(expired.getId())
+				.resolve("session.json");
+		Files.setLastModifiedTime(sessionFile, FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS)));
+
+		assertEquals(1, uploadService.removeExpiredSessions(), "Expired upload should be removed");
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getSession(expired.getId(), OWNER));
+		assertNotNull(uploadService.getSession(active.getId(), OWNER), "Active upload should be kept");
+	}
+
+	private SequenceFileUploadSession writeChunk(SequenceFileUploadSession session, long offset, String data)
+			throws IOException {
+		return uploadService.writeChunk(1L, session.getId(), OWNER, offset, data.length(),
+				new ByteArrayInputStream(data.getBytes(StandardCharsets.US_ASCII)));
+	}
+}
@@ -0,0 +1,88 @@
+package ca.corefacility.bioinformatics.irida.service.impl.unit;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject.ProcessingState;
+import ca.corefacility.bioinformatics.irida.processing.FileProcessingChain;
+import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
+import ca.corefacility.bioinformatics.irida.service.SequencingObjectProcessingService;
+import ca.corefacility.bioinformatics.irida.service.impl.processor.SequenceFileProcessorLauncher;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SequencingObjectProcessingServiceTest {
+
+	private SequencingObjectProcessingService service;
+	private SequencingObjectRepository repository;
+	private ThreadPoolTaskExecutor executor;
+	private FileProcessingChain chain;
+
+	@BeforeEach
+	public void setUp() {
+		repository = mock(SequencingObjectRepository.class);
+		executor = mock(ThreadPoolTaskExecutor.class);
+		chain = mock(FileProcessingChain.class);
+
+		when(executor.getCorePoolSize()).thenReturn(4);
+		when(executor.getActiveCount()).thenReturn(0);
+		when(repository.claimUnprocessedSequencingObjects(anyString(), anyInt())).thenReturn(List.of());
+
+		service = new SequencingObjectProcessingService(repository, executor, chain);
+	}
+
+	@Test
+	public void testEnqueuedObjectsProcessedFirst() {
+		when(repository.markFileProcessor(eq(1L), anyString(), eq(ProcessingState.PROCESSING))).thenReturn(1);
+		when(repository.markFileProcessor(eq(2L), anyString(), eq(ProcessingState.PROCESSING))).thenReturn(0);
+
+		service.enqueue(1L);
+		service.enqueue(2L);
+		service.runProcessingJob();
+
+		// object 2 was claimed by another processor, so only object 1 is launched here
+		verify(executor, times(1)).execute(any(SequenceFileProcessorLauncher.class));
+		verify(repository).claimUnprocessedSequencingObjects(anyString(), eq(3));
+	}
+
+	@Test
+	public void testClaimedBatchLaunched() {
+		when(repository.claimUnprocessedSequencingObjects(anyString(), eq(4))).thenReturn(ImmutableList.of(1L, 2L));
+
+		service.runProcessingJob();
+
+		verify(repository, never()).markFileProcessor(any(), any(), any());
+		verify(executor, times(2)).execute(any(SequenceFileProcessorLauncher.class));
+	}
+
+	@Test
+	public void testRejectedObjectReleased() {
+		when(repository.claimUnprocessedSequencingObjects(anyString(), eq(4))).thenReturn(ImmutableList.of(1L));
+		doThrow(new TaskRejectedException("full")).when(executor).execute(any(Runnable.class));
+
+		service.runProcessingJob();
+
+		verify(repository).releaseSequencingObject(eq(1L), anyString());
+	}
+
+	@Test
+	public void testNoQueueSpace() {
+		when(executor.getActiveCount()).thenReturn(4);
+
+		service.enqueue(1L);
+		service.runProcessingJob();
+
+		verify(repository, never()).markFileProcessor(any(), any(), any());
+		verify(repository, never()).claimUnprocessedSequencingObjects(anyString(), anyInt());
+	}
+}
@@ -1,5 +1,6 @@
 package ca.corefacility.bioinformatics.irida.service.impl.unit;
 
+import ca.corefacility.bioinformatics.irida.events.SequencingObjectCreatedEvent;
 import ca.corefacility.bioinformatics.irida.model.run.SequencingRun;
 import ca.corefacility.bioinformatics.irida.model.run.SequencingRun.LayoutType;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
@@ -15,6 +16,7 @@ import ca.corefacility.bioinformatics.irida.service.impl.SequencingObjectService
 import ca.corefacility.bioinformatics.irida.web.controller.test.unit.TestDataFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
 
 import javax.validation.Validator;
 import java.io.IOException;
@@ -31,6 +33,7 @@ public class SequencingObjectServiceTest {
 	SampleSequencingObjectJoinRepository ssoRepository;
 	SequenceConcatenationRepository concatenationRepository;
 	Validator validator;
+	ApplicationEventPublisher eventPublisher;
 
 	@BeforeEach
 	public void setUp() {
@@ -39,9 +42,10 @@ public class SequencingObjectServiceTest {
 		ssoRepository = mock(SampleSequencingObjectJoinRepository.class);
 
 		concatenationRepository = mock(SequenceConcatenationRepository.class);
+		eventPublisher = mock(ApplicationEventPublisher.class);
 
 		service = new SequencingObjectServiceImpl(repository, sequenceFileRepository, ssoRepository,
-				concatenationRepository, validator);
+				concatenationRepository, validator, eventPublisher);
 	}
 
 	@Test
@@ -55,6 +59,7 @@ public class SequencingObjectServiceTest {
 		service.createSequencingObjectInSample(sf, s);
 
 		verify(sequenceFileRepository, times(1)).save(any(SequenceFile.class));
+		verify(eventPublisher).publishEvent(any(SequencingObjectCreatedEvent.class));
 	}
 
 	@Test
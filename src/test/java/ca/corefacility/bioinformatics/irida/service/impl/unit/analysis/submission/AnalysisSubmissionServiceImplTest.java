@@ -1,12 +1,26 @@
 package ca.corefacility.bioinformatics.irida.service.impl.unit.analysis.submission;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 
 import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
 import ca.corefacility.bioinformatics.irida.exceptions.ExecutionManagerException;
 import ca.corefacility.bioinformatics.irida.exceptions.NoPercentageCompleteException;
 import ca.corefacility.bioinformatics.irida.model.enums.AnalysisCleanedState;
 import ca.corefacility.bioinformatics.irida.model.enums.AnalysisState;
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
+import ca.corefacility.bioinformatics.irida.model.user.User;
+import ca.corefacility.bioinformatics.irida.model.workflow.IridaWorkflow;
+import ca.corefacility.bioinformatics.irida.model.workflow.description.IridaWorkflowDescription;
 import ca.corefacility.bioinformatics.irida.model.workflow.execution.galaxy.GalaxyWorkflowStatus;
 import ca.corefacility.bioinformatics.irida.model.workflow.submission.AnalysisSubmission;
 import ca.corefacility.bioinformatics.irida.pipeline.upload.galaxy.GalaxyHistoriesService;
@@ -17,18 +31,28 @@ import ca.corefacility.bioinformatics.irida.repositories.analysis.submission.Pro
 import ca.corefacility.bioinformatics.irida.repositories.referencefile.ReferenceFileRepository;
 import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
 import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
+import ca.corefacility.bioinformatics.irida.service.analysis.execution.AnalysisSubmissionQueue;
 import ca.corefacility.bioinformatics.irida.service.analysis.execution.galaxy.AnalysisExecutionServiceGalaxyCleanupAsync;
+import ca.corefacility.bioinformatics.irida.service.impl.analysis.submission.AnalysisSubmissionBatchWriter;
 import ca.corefacility.bioinformatics.irida.service.impl.analysis.submission.AnalysisSubmissionServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.workflow.IridaWorkflowsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.google.common.collect.Sets;
 
 import javax.validation.Validator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -163,7 +187,7 @@ public class AnalysisSubmissionServiceImplTest {
 	public void testGetPercentageCompleteStateRunningJustStarted() throws EntityNotFoundException,
 			ExecutionManagerException {
 		when(analysisSubmission.getAnalysisState()).thenReturn(AnalysisState.RUNNING);
-		when(galaxyHistoriesService.getStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
+		when(galaxyHistoriesService.getRecentStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
 		when(galaxyWorkflowStatus.getProportionComplete()).thenReturn(0.0f);
 
 		assertEquals(AnalysisSubmissionServiceImpl.STATE_PERCENTAGE.get(AnalysisState.RUNNING),
@@ -182,7 +206,7 @@ public class AnalysisSubmissionServiceImplTest {
 	public void testGetPercentageCompleteStateRunningHalfway() throws EntityNotFoundException,
 			ExecutionManagerException {
 		when(analysisSubmission.getAnalysisState()).thenReturn(AnalysisState.RUNNING);
-		when(galaxyHistoriesService.getStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
+		when(galaxyHistoriesService.getRecentStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
 		when(galaxyWorkflowStatus.getProportionComplete()).thenReturn(0.5f);
 
 		Float runningState = AnalysisSubmissionServiceImpl.STATE_PERCENTAGE.get(AnalysisState.RUNNING);
@@ -204,7 +228,7 @@ public class AnalysisSubmissionServiceImplTest {
 	public void testGetPercentageCompleteStateRunningFullyComplete() throws EntityNotFoundException,
 			ExecutionManagerException {
 		when(analysisSubmission.getAnalysisState()).thenReturn(AnalysisState.RUNNING);
-		when(galaxyHistoriesService.getStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
+		when(galaxyHistoriesService.getRecentStatusForHistory(HISTORY_ID)).thenReturn(galaxyWorkflowStatus);
 		when(galaxyWorkflowStatus.getProportionComplete()).thenReturn(1.0f);
 
 		assertEquals(90.0f,
@@ -303,4 +327,58 @@ public class AnalysisSubmissionServiceImplTest {
 		verify(analysisExecutionService).cleanupSubmission(analysisSubmission);
 		verify(analysisSubmissionRepository).deleteById(ID);
 	}
+
+	/**
+	 * Tests that single sample submissions are saved and shared a batch at a
+	 * time, with the current user looked up once.
+	 */
+	@Test
+	public void testCreateSingleSampleSubmissionInBatches() {
+		AnalysisSubmissionServiceImpl service = new AnalysisSubmissionServiceImpl(analysisSubmissionRepository,
+				analysisTemplateRepository, userRepository, referenceFileRepository, sequencingObjectService,
+				galaxyHistoriesService, pasRepository, jobErrorRepository, iridaWorkflowsService,
+				new AnalysisSubmissionQueue(analysisSubmissionRepository),
+				new AnalysisSubmissionBatchWriter(analysisSubmissionRepository, pasRepository, 2), validator);
+
+		User user = new User("bruce", "bruce@example.com", "Password1!", "Bruce", "Wayne", "1234");
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new UsernamePasswordAuthenticationToken(user, null));
+		SecurityContextHolder.setContext(context);
+		when(userRepository.loadUserByUsername("bruce")).thenReturn(user);
+
+		IridaWorkflowDescription description = mock(IridaWorkflowDescription.class);
+		when(description.acceptsSingleSequenceFiles()).thenReturn(true);
+		IridaWorkflow workflow = mock(IridaWorkflow.class);
+		when(workflow.getWorkflowDescription()).thenReturn(description);
+		when(workflow.getWorkflowIdentifier()).thenReturn(UUID.randomUUID());
+
+		Map<Sample, SingleEndSequenceFile> samples = new HashMap<>();
+		for (int i = 0; i < 3; i++) {
+			samples.put(new Sample("sample" + i),
+					new SingleEndSequenceFile(new SequenceFile(Paths.get("/tmp/file" + i + ".fastq"))));
+		}
+		List<SingleEndSequenceFile> files = new ArrayList<>(samples.values());
+		when(sequencingObjectService.getUniqueSamplesForSequencingObjects(Sets.newHashSet(files))).thenReturn(
+				samples);
+		when(analysisSubmissionRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		Project project = new Project("shared");
+		List<String> progress = new ArrayList<>();
+		try {
+			Collection<AnalysisSubmission> created = service.createSingleSampleSubmission(workflow, null, files,
+					List.of(), Map.of(), null, "batch", null, List.of(project), false, false, false,
+					(saved, total) -> progress.add(saved + "/" + total));
+
+			assertEquals(3, created.size(), "An analysis should be created for each sample");
+			created.forEach(submission -> assertEquals(user, submission.getSubmitter(),
+					"Current user should have submitted the analyses"));
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+
+		assertEquals(List.of("2/3", "3/3"), progress, "Progress should be reported after each batch");
+		verify(analysisSubmissionRepository, times(2)).saveAll(anyList());
+		verify(pasRepository, times(2)).saveAll(anyList());
+		verify(userRepository, times(1)).loadUserByUsername("bruce");
+	}
 }
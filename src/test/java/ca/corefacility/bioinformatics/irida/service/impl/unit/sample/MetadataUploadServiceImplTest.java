@@ -0,0 +1,125 @@
+package ca.corefacility.bioinformatics.irida.service.impl.unit.sample;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUpload;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataUploadRow;
+import ca.corefacility.bioinformatics.irida.service.impl.sample.MetadataUploadServiceImpl;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
+
+/**
+ * Unit tests for {@link MetadataUploadServiceImpl}
+ */
+public class MetadataUploadServiceImplTest {
+	private static final String OWNER = "uploader";
+	private static final List<String> HEADERS = List.of("name", "value", "notes");
+
+	private Path uploadDirectory;
+	private MetadataUploadService uploadService;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		uploadDirectory = Files.createTempDirectory(null);
+		uploadService = new MetadataUploadServiceImpl(uploadDirectory, 24);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(uploadDirectory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testReadPagesAcrossGroups() {
+		MetadataUpload upload = uploadService.createUpload(1L, HEADERS, OWNER);
+		uploadService.addRows(upload, rows(0, 3));
+		uploadService.addRows(upload, rows(3, 3));
+
+		upload = uploadService.getUpload(upload.getId(), OWNER);
+		assertEquals(6, upload.getRowCount(), "All rows should be counted");
+		assertEquals(2, upload.getGroups().size(), "Rows should be stored in two groups");
+
+		List<MetadataUploadRow> page = uploadService.getRows(upload, 2, 3);
+		assertEquals(List.of(2, 3, 4), page.stream().map(MetadataUploadRow::getIndex).collect(Collectors.toList()),
+				"Page should span both groups");
+		assertEquals(Arrays.asList("sample-3", "3", null), page.get(1).getValues(), "Values should be read in order");
+		assertTrue(uploadService.getRows(upload, 6, 3).isEmpty(), "No rows after the end");
+
+		assertEquals(List.of("sample-1", "sample-2", "sample-3", "sample-4"),
+				uploadService.getColumn(upload, "name", 1, 4), "Single column should be read across groups");
+	}
+
+	@Test
+	public void testUpdateRows() {
+		MetadataUpload upload = uploadService.createUpload(1L, HEADERS, OWNER);
+		uploadService.addRows(upload, rows(0, 3));
+
+		List<MetadataUploadRow> rows = uploadService.getRows(upload, 0, 3);
+		assertNull(rows.get(1).isSaved(), "Rows should start unsaved");
+		rows.get(0).setFoundSampleId(12L);
+		rows.get(0).setSaved(true);
+		rows.get(1).setSaved(false);
+		rows.get(1).setError("could not save");
+		uploadService.updateRows(upload, rows);
+
+		rows = uploadService.getRows(upload, 0, 3);
+		assertEquals(12L, rows.get(0).getFoundSampleId(), "Found sample should be stored");
+		assertTrue(rows.get(0).isSaved(), "Saved row should be stored");
+		assertFalse(rows.get(1).isSaved(), "Failed row should be stored");
+		assertEquals("could not save", rows.get(1).getError(), "Error should be stored");
+		assertNull(rows.get(2).getFoundSampleId(), "Other rows should be unchanged");
+
+		rows.get(1).setSaved(true);
+		rows.get(1).setError(null);
+		uploadService.updateRows(upload, rows.subList(1, 2));
+		assertNull(uploadService.getRows(upload, 1, 1).get(0).getError(), "Error should be cleared");
+	}
+
+	@Test
+	public void testUploadHiddenFromOtherUsers() {
+		MetadataUpload upload = uploadService.createUpload(1L, HEADERS, OWNER);
+
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getUpload(upload.getId(), "someone-else"));
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getUpload("../" + upload.getId(), OWNER));
+	}
+
+	@Test
+	public void testRemoveUploads() {
+		MetadataUpload first = uploadService.createUpload(1L, HEADERS, OWNER);
+		MetadataUpload otherProject = uploadService.createUpload(2L, HEADERS, OWNER);
+		MetadataUpload otherUser = uploadService.createUpload(1L, HEADERS, "someone-else");
+
+		assertEquals(1, uploadService.removeUploads(1L, OWNER), "Only the user's upload to the project is removed");
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getUpload(first.getId(), OWNER));
+		assertNotNull(uploadService.getUpload(otherProject.getId(), OWNER));
+		assertNotNull(uploadService.getUpload(otherUser.getId(), "someone-else"));
+
+		assertEquals(0, uploadService.removeExpiredUploads(), "New uploads have not expired");
+		assertEquals(2, new MetadataUploadServiceImpl(uploadDirectory, -1).removeExpiredUploads(),
+				"Expired uploads are removed");
+	}
+
+	private static List<List<String>> rows(int first, int count) {
+		List<List<String>> rows = new ArrayList<>();
+		for (int i = first; i < first + count; i++) {
+			rows.add(Arrays.asList("sample-" + i, String.valueOf(i), null));
+		}
+		return rows;
+	}
+}
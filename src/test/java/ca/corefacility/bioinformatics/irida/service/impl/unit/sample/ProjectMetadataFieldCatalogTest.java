@@ -0,0 +1,133 @@
+package ca.corefacility.bioinformatics.irida.service.impl.unit.sample;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ca.corefacility.bioinformatics.irida.events.ProjectMetadataFieldsChangedEvent;
+import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
+import ca.corefacility.bioinformatics.irida.repositories.joins.project.ProjectSampleJoinRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataFieldRepository;
+import ca.corefacility.bioinformatics.irida.service.impl.sample.ProjectMetadataFieldCatalog;
+import ca.corefacility.bioinformatics.irida.service.impl.sample.ProjectMetadataFieldCatalog.CatalogField;
+
+/**
+ * Tests for {@link ProjectMetadataFieldCatalog}.
+ */
+public class ProjectMetadataFieldCatalogTest {
+	private ProjectMetadataFieldCatalog fieldCatalog;
+	private MetadataFieldRepository fieldRepository;
+	private ProjectSampleJoinRepository psjRepository;
+
+	private Project project;
+	private MetadataTemplateField field1;
+	private MetadataTemplateField field2;
+
+	@BeforeEach
+	public void setUp() {
+		fieldRepository = mock(MetadataFieldRepository.class);
+		psjRepository = mock(ProjectSampleJoinRepository.class);
+		fieldCatalog = new ProjectMetadataFieldCatalog(fieldRepository, psjRepository, 600);
+
+		project = new Project("project");
+		project.setId(1L);
+		field1 = new MetadataTemplateField("field1", "text");
+		field1.setId(1L);
+		field2 = new MetadataTemplateField("field2", "text");
+		field2.setId(2L);
+
+		when(fieldRepository.getMetadataFieldUsageForProject(project)).thenReturn(Map.of(1L, 2L));
+		when(fieldRepository.findAllById(Set.of(1L))).thenReturn(List.of(field1));
+		when(fieldRepository.findAllById(Set.of(2L))).thenReturn(List.of(field2));
+	}
+
+	@Test
+	public void testFieldsAreCached() {
+		List<CatalogField> fields = fieldCatalog.getFields(project);
+		assertEquals(1, fields.size(), "Only the used field should be in the catalog");
+		assertEquals(field1, fields.get(0).getField(), "Should have the used field");
+		assertEquals(2L, fields.get(0).getSampleCount(), "Should have the number of samples");
+
+		fieldCatalog.getFields(project);
+		verify(fieldRepository, times(1)).getMetadataFieldUsageForProject(project);
+	}
+
+	@Test
+	public void testFieldsChangedInProject() {
+		fieldCatalog.getFields(project);
+
+		fieldCatalog.fieldsChanged(ProjectMetadataFieldsChangedEvent.forSamplesInProject(1L,
+				Map.of(10L, Map.of(1L, -1, 2L, 1))));
+		assertEquals(Map.of(1L, 1L, 2L, 1L), getSampleCounts(), "Counts should be updated");
+		assertEquals(field2, getField(2L).getField(), "New field should be read");
+
+		fieldCatalog.fieldsChanged(ProjectMetadataFieldsChangedEvent.forSamplesInProject(1L,
+				Map.of(11L, Map.of(1L, -1))));
+		assertEquals(Map.of(2L, 1L), getSampleCounts(), "Field without samples should be removed");
+
+		verify(fieldRepository, times(1)).getMetadataFieldUsageForProject(project);
+	}
+
+	@Test
+	public void testFieldsChangedForSamples() {
+		fieldCatalog.getFields(project);
+
+		// only sample 10 is in the project, sample 11 is in a project that isn't cached
+		when(psjRepository.getProjectIdsForSamples(any())).thenReturn(
+				List.of(new Object[] { 1L, 10L }, new Object[] { 2L, 11L }));
+		fieldCatalog.fieldsChanged(
+				ProjectMetadataFieldsChangedEvent.forSamples(Map.of(10L, Map.of(2L, 1), 11L, Map.of(1L, -1))));
+
+		assertEquals(Map.of(1L, 2L, 2L, 1L), getSampleCounts(), "Only samples in the project should be counted");
+		verify(fieldRepository, times(1)).getMetadataFieldUsageForProject(project);
+		verify(psjRepository, times(1)).getProjectIdsForSamples(any());
+	}
+
+	@Test
+	public void testProjectChangedReloads() {
+		fieldCatalog.getFields(project);
+
+		fieldCatalog.fieldsChanged(ProjectMetadataFieldsChangedEvent.forProject(1L));
+		fieldCatalog.getFields(project);
+
+		verify(fieldRepository, times(2)).getMetadataFieldUsageForProject(project);
+	}
+
+	@Test
+	public void testLoadDuringChangeIsNotCached() {
+		// the metadata changes while the fields are being loaded
+		when(fieldRepository.getMetadataFieldUsageForProject(project)).thenAnswer(i -> {
+			fieldCatalog.fieldsChanged(ProjectMetadataFieldsChangedEvent.forProject(1L));
+			return Map.of(1L, 2L);
+		});
+
+		fieldCatalog.getFields(project);
+		fieldCatalog.getFields(project);
+
+		verify(fieldRepository, times(2)).getMetadataFieldUsageForProject(project);
+	}
+
+	private Map<Long, Long> getSampleCounts() {
+		return fieldCatalog.getFields(project)
+				.stream()
+				.collect(Collectors.toMap(f -> f.getField().getId(), CatalogField::getSampleCount));
+	}
+
+	private CatalogField getField(Long id) {
+		return fieldCatalog.getFields(project)
+				.stream()
+				.filter(f -> f.getField().getId().equals(id))
+				.findFirst()
+				.orElseThrow();
+	}
+}
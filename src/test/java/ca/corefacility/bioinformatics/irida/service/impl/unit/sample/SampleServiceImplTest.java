@@ -7,7 +7,9 @@ import java.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
 
+import ca.corefacility.bioinformatics.irida.events.ProjectMetadataFieldsChangedEvent;
 import ca.corefacility.bioinformatics.irida.exceptions.AnalysisAlreadySetException;
 import ca.corefacility.bioinformatics.irida.exceptions.SequenceFileAnalysisException;
 import ca.corefacility.bioinformatics.irida.model.joins.Join;
@@ -18,6 +20,7 @@ import ca.corefacility.bioinformatics.irida.model.sample.Sample;
 import ca.corefacility.bioinformatics.irida.model.sample.SampleSequencingObjectJoin;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.MetadataEntry;
 import ca.corefacility.bioinformatics.irida.model.sample.metadata.PipelineProvidedMetadataEntry;
+import ca.corefacility.bioinformatics.irida.model.sample.metadata.SampleMetadataSummary.MetadataValue;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFilePair;
 import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
@@ -30,6 +33,7 @@ import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleGeno
 import ca.corefacility.bioinformatics.irida.repositories.joins.sample.SampleSequencingObjectJoinRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.MetadataEntryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.QCEntryRepository;
+import ca.corefacility.bioinformatics.irida.repositories.sample.SampleMetadataSummaryRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sample.SampleRepository;
 import ca.corefacility.bioinformatics.irida.repositories.sequencefile.SequencingObjectRepository;
 import ca.corefacility.bioinformatics.irida.repositories.user.UserRepository;
@@ -57,6 +61,8 @@ public class SampleServiceImplTest {
 	private SampleGenomeAssemblyJoinRepository sampleGenomeAssemblyJoinRepository;
 	private UserRepository userRepository;
 	private MetadataEntryRepository metadataEntryRepository;
+	private SampleMetadataSummaryRepository metadataSummaryRepository;
+	private ApplicationEventPublisher eventPublisher;
 
 	/**
 	 * Variation in a floating point number to be considered equal.
@@ -73,10 +79,12 @@ public class SampleServiceImplTest {
 		sequencingObjectRepository = mock(SequencingObjectRepository.class);
 		sampleGenomeAssemblyJoinRepository = mock(SampleGenomeAssemblyJoinRepository.class);
 		metadataEntryRepository = mock(MetadataEntryRepository.class);
+		metadataSummaryRepository = mock(SampleMetadataSummaryRepository.class);
+		eventPublisher = mock(ApplicationEventPublisher.class);
 
 		sampleService = new SampleServiceImpl(sampleRepository, psjRepository, analysisRepository, ssoRepository,
 				qcEntryRepository, sequencingObjectRepository, sampleGenomeAssemblyJoinRepository, userRepository,
-				metadataEntryRepository, null);
+				metadataEntryRepository, metadataSummaryRepository, eventPublisher, null);
 	}
 
 	@Test
@@ -504,6 +512,81 @@ public class SampleServiceImplTest {
 		assertTrue(pipelineOpt.isEmpty(), "should be no pipeline entries left");
 	}
 
+	@Test
+	public void testMergeMetadataForManySamples() {
+		Project project = new Project();
+		Sample s1 = new Sample();
+		s1.setId(1L);
+		Sample s2 = new Sample();
+		s2.setId(2L);
+
+		MetadataTemplateField field1 = new MetadataTemplateField("field1", "text");
+		field1.setId(3L);
+		MetadataEntry existing = new MetadataEntry("old", "text", field1);
+		existing.setSample(s1);
+
+		when(psjRepository.getOwnedSamplesInProject(eq(project), anyCollection())).thenReturn(List.of(1L, 2L));
+		when(metadataEntryRepository.getMetadataForSamples(anyCollection())).thenReturn(Sets.newHashSet(existing));
+		when(sampleRepository.findAllById(anyIterable())).thenReturn(List.of(s1, s2));
+		when(sampleRepository.saveAll(anyIterable())).thenAnswer(i -> i.getArgument(0));
+
+		Map<Sample, Set<MetadataEntry>> metadata = new HashMap<>();
+		metadata.put(s1, Sets.newHashSet(new MetadataEntry("new", "text", field1)));
+		metadata.put(s2, Sets.newHashSet(new MetadataEntry("other", "text", field1)));
+
+		sampleService.mergeSampleMetadata(project, metadata);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<MetadataEntry>> saveCaptor = ArgumentCaptor.forClass(List.class);
+		verify(metadataEntryRepository).saveAll(saveCaptor.capture());
+		verify(metadataEntryRepository, times(1)).getMetadataForSamples(anyCollection());
+		verify(metadataEntryRepository, never()).getMetadataForSample(any());
+
+		List<MetadataEntry> saved = saveCaptor.getValue();
+		assertEquals(2, saved.size(), "should be one entry for each sample");
+		assertTrue(saved.contains(existing), "existing entry should be updated instead of replaced");
+		assertEquals("new", existing.getValue(), "value should have been updated");
+		assertEquals(s2, saved.stream()
+				.filter(e -> e != existing)
+				.findAny()
+				.get()
+				.getSample(), "new entry should be added to the other sample");
+		verify(sampleRepository).saveAll(List.of(s1, s2));
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Map<Long, Map<Long, MetadataValue>>> summaryCaptor = ArgumentCaptor.forClass(Map.class);
+		verify(metadataSummaryRepository).saveSummaries(summaryCaptor.capture());
+		Map<Long, Map<Long, MetadataValue>> summaries = summaryCaptor.getValue();
+		assertEquals(2, summaries.size(), "both samples should be summarized");
+		assertEquals("new", summaries.get(1L).get(3L).getValue(), "summary should have the new value");
+
+		ArgumentCaptor<ProjectMetadataFieldsChangedEvent> eventCaptor = ArgumentCaptor.forClass(
+				ProjectMetadataFieldsChangedEvent.class);
+		verify(eventPublisher).publishEvent(eventCaptor.capture());
+		assertNull(eventCaptor.getValue().getProjectId(), "change should apply to every project of the samples");
+		assertEquals(Map.of(2L, Map.of(3L, 1)), eventCaptor.getValue().getSampleFieldChanges(),
+				"only the sample without a value should gain the field");
+		assertEquals("other", summaries.get(2L).get(3L).getValue(),
+				"other sample should get a new summary");
+	}
+
+	@Test
+	public void testMergeMetadataForSamplesNotOwned() {
+		Project project = new Project();
+		Sample s1 = new Sample();
+		s1.setId(1L);
+
+		when(psjRepository.getOwnedSamplesInProject(eq(project), anyCollection())).thenReturn(List.of());
+
+		Map<Sample, Set<MetadataEntry>> metadata = Map.of(s1,
+				Sets.newHashSet(new MetadataEntry("new", "text", new MetadataTemplateField("field1", "text"))));
+
+		assertThrows(IllegalArgumentException.class, () -> {
+			sampleService.mergeSampleMetadata(project, metadata);
+		});
+		verify(metadataEntryRepository, never()).saveAll(any());
+	}
+
 	@Test
 	public void testUpdateSampleMetadata() {
 		Sample s1 = new Sample();
@@ -1,9 +1,12 @@
 package ca.corefacility.bioinformatics.irida.web.controller.test.unit.projects.metadata;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Stream;
 
-import javax.servlet.http.HttpSession;
-
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.MessageSource;
@@ -11,22 +14,32 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import ca.corefacility.bioinformatics.irida.model.joins.impl.ProjectSampleJoin;
 import ca.corefacility.bioinformatics.irida.model.project.Project;
+import ca.corefacility.bioinformatics.irida.model.sample.MetadataTemplateField;
 import ca.corefacility.bioinformatics.irida.model.sample.Sample;
 import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorage;
 import ca.corefacility.bioinformatics.irida.ria.utilities.SampleMetadataStorageRow;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxResponse;
 import ca.corefacility.bioinformatics.irida.ria.web.ajax.dto.ajax.AjaxSuccessResponse;
+import ca.corefacility.bioinformatics.irida.ria.web.projects.dto.MetadataImportProgress;
 import ca.corefacility.bioinformatics.irida.ria.web.projects.metadata.ProjectSampleMetadataAjaxController;
 import ca.corefacility.bioinformatics.irida.ria.web.services.UIMetadataFileImportService;
 import ca.corefacility.bioinformatics.irida.ria.web.services.UIMetadataImportService;
 import ca.corefacility.bioinformatics.irida.service.ProjectService;
+import ca.corefacility.bioinformatics.irida.service.impl.sample.MetadataUploadServiceImpl;
 import ca.corefacility.bioinformatics.irida.service.sample.MetadataTemplateService;
+import ca.corefacility.bioinformatics.irida.service.sample.MetadataUploadService;
 import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class ProjectSampleMetadataAjaxControllerTest {
@@ -37,7 +50,9 @@ public class ProjectSampleMetadataAjaxControllerTest {
 	private SampleService sampleService;
 	private MetadataTemplateService metadataTemplateService;
 	private UIMetadataFileImportService metadataFileImportService;
-	private HttpSession session;
+	private Path uploadDirectory;
+	private Project project;
+	private Sample sample;
 
 	private final Long PROJECT_ID = 1L;
 	private final Long SAMPLE_ID = 1L;
@@ -45,34 +60,61 @@ public class ProjectSampleMetadataAjaxControllerTest {
 	private final String SAMPLE_NAME_COLUMN = "header2";
 
 	@BeforeEach
-	public void setUp() {
-		session = mock(HttpSession.class);
+	public void setUp() throws IOException {
+		uploadDirectory = Files.createTempDirectory(null);
 		messageSource = mock(MessageSource.class);
 		projectService = mock(ProjectService.class);
 		sampleService = mock(SampleService.class);
 		metadataTemplateService = mock(MetadataTemplateService.class);
-		metadataFileImportService = new UIMetadataFileImportService(projectService, sampleService);
+		MetadataUploadService metadataUploadService = new MetadataUploadServiceImpl(uploadDirectory, 24);
+		metadataFileImportService = new UIMetadataFileImportService(projectService, sampleService,
+				metadataUploadService);
 		metadataImportService = new UIMetadataImportService(messageSource, projectService, sampleService,
-				metadataTemplateService, metadataFileImportService);
+				metadataTemplateService, metadataFileImportService, metadataUploadService,
+				UIMetadataImportService.DEFAULT_BATCH_SIZE, MoreExecutors.newDirectExecutorService(),
+				mock(PlatformTransactionManager.class));
 		controller = new ProjectSampleMetadataAjaxController(metadataImportService);
+
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new UsernamePasswordAuthenticationToken("user", "password"));
+		SecurityContextHolder.setContext(context);
+
+		project = createProject();
+		sample = createSample();
+		when(projectService.read(PROJECT_ID)).thenReturn(project);
+		when(sampleService.getSamplesInProjectByName(eq(project), anyCollection())).thenReturn(
+				List.of(new ProjectSampleJoin(project, sample, true)));
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		SecurityContextHolder.clearContext();
+		try (Stream<Path> files = Files.walk(uploadDirectory)) {
+			files.sorted(Comparator.reverseOrder())
+					.forEach(f -> f.toFile()
+							.delete());
+		}
 	}
 
-	private SampleMetadataStorage createSampleMetadataStorage() {
-		SampleMetadataStorage expected_storage = new SampleMetadataStorage();
-		List<String> headers_list = new ArrayList<>();
-		headers_list.add("header1");
-		headers_list.add("header2");
-		headers_list.add("header3");
-		expected_storage.setHeaders(headers_list);
-		List<SampleMetadataStorageRow> rows = new ArrayList<>();
-		Map<String, String> rowMap = new HashMap<>();
-		rowMap.put("header1", "value1");
-		rowMap.put("header2", "value2");
-		rowMap.put("header3", "value3");
-		rows.add(new SampleMetadataStorageRow(rowMap));
-		expected_storage.setRows(rows);
-		expected_storage.setSampleNameColumn(SAMPLE_NAME_COLUMN);
-		return expected_storage;
+	private String uploadMetadata(String contents) throws Exception {
+		MockMultipartFile file = new MockMultipartFile("file", "test.csv", MediaType.TEXT_PLAIN_VALUE,
+				contents.getBytes());
+		return controller.createProjectSampleMetadata(PROJECT_ID, file)
+				.getBody()
+				.getUploadId();
+	}
+
+	private String uploadMetadata() throws Exception {
+		String uploadId = uploadMetadata("header1,header2,header3\nvalue1,value2,value3");
+		controller.setProjectSampleMetadataSampleId(PROJECT_ID, uploadId, SAMPLE_NAME_COLUMN);
+		return uploadId;
+	}
+
+	private SampleMetadataStorageRow getRow(String uploadId) {
+		return controller.getProjectSampleMetadata(PROJECT_ID, uploadId, 1, 100)
+				.getBody()
+				.getRows()
+				.get(0);
 	}
 
 	private Sample createSample() {
@@ -92,47 +134,129 @@ public class ProjectSampleMetadataAjaxControllerTest {
 	public void createProjectSampleMetadataTest() throws Exception {
 		MockMultipartFile file = new MockMultipartFile("file", "test.csv", MediaType.TEXT_PLAIN_VALUE,
 				"header1,header2,header3\nvalue1,value2,value3".getBytes());
-		SampleMetadataStorage stored = createSampleMetadataStorage();
-
-		when(session.getAttribute("pm-" + PROJECT_ID)).thenReturn(stored);
 
-		ResponseEntity<SampleMetadataStorage> response = controller.createProjectSampleMetadata(session, PROJECT_ID,
-				file);
-		stored = (SampleMetadataStorage) session.getAttribute("pm-" + PROJECT_ID);
+		ResponseEntity<SampleMetadataStorage> response = controller.createProjectSampleMetadata(PROJECT_ID, file);
+		SampleMetadataStorage stored = response.getBody();
 
 		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
-		assertEquals(stored.getRows().size(), 1, "Sample name columns is saved");
-		assertEquals(stored.getHeaders().size(), 3, "Sample is saved");
+		assertNotNull(stored.getUploadId(), "Upload id is returned");
+		assertEquals(1, stored.getTotal(), "Row is stored");
+		assertEquals(3, stored.getHeaders()
+				.size(), "Headers are stored");
+		assertEquals(SAMPLE_NAME_COLUMN, stored.getSampleNameColumn(), "Sample name column is found");
+		assertNull(stored.getRows(), "Rows are not sent with the upload");
 	}
 
 	@Test
-	public void setProjectSampleMetadataSampleIdTest() {
-		SampleMetadataStorage stored = createSampleMetadataStorage();
-		Sample sample = createSample();
-		Project project = createProject();
+	public void setProjectSampleMetadataSampleIdTest() throws Exception {
+		String uploadId = uploadMetadata("header1,header2,header3\nvalue1,value2,value3\nvalue4,x,value6");
 
-		when(session.getAttribute("pm-" + PROJECT_ID)).thenReturn(stored);
-		when(projectService.read(project.getId())).thenReturn(project);
-		when(sampleService.getSampleBySampleName(project, sample.getSampleName())).thenReturn(sample);
-
-		ResponseEntity<AjaxResponse> response = controller.setProjectSampleMetadataSampleId(session, PROJECT_ID,
+		ResponseEntity<AjaxResponse> response = controller.setProjectSampleMetadataSampleId(PROJECT_ID, uploadId,
 				SAMPLE_NAME_COLUMN);
-		stored = (SampleMetadataStorage) session.getAttribute("pm-" + PROJECT_ID);
+		SampleMetadataStorage stored = controller.getProjectSampleMetadata(PROJECT_ID, uploadId, 1, 100)
+				.getBody();
 
 		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
 		assertEquals(((AjaxSuccessResponse) response.getBody()).getMessage(), "complete", "Receive a complete message");
 		assertEquals(stored.getSampleNameColumn(), SAMPLE_NAME_COLUMN, "Sample name columns is saved");
-		assertEquals((long) stored.getRow(sample.getSampleName(), SAMPLE_NAME_COLUMN).getFoundSampleId(),
-				(long) sample.getId(), "Found sample id is saved");
+		assertEquals(SAMPLE_ID, stored.getRows()
+				.get(0)
+				.getFoundSampleId(), "Found sample id is saved");
+		assertNull(stored.getRows()
+				.get(1)
+				.getFoundSampleId(), "New sample has no sample id");
+		assertEquals(1, stored.getInvalidSampleNames(), "Invalid sample name is counted");
+	}
+
+	@Test
+	public void saveProjectSampleMetadataTest() throws Exception {
+		Locale locale = new Locale("en");
+		String uploadId = uploadMetadata();
+		mockSave(locale);
+		when(messageSource.getMessage("server.metadataimport.results.save.success.single-updated",
+				new Object[] { 1 }, locale)).thenReturn("1 sample has been updated");
+
+		ResponseEntity<MetadataImportProgress> response = controller.saveProjectSampleMetadata(locale, PROJECT_ID,
+				uploadId, null);
+
+		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
+		assertTrue(getRow(uploadId).isSaved(), "Sample is saved");
+		verify(sampleService).mergeSampleMetadata(eq(project), argThat(m -> m.keySet()
+				.equals(Set.of(sample)) && m.get(sample)
+				.size() == 2));
+		verify(metadataTemplateService, times(1)).readMetadataFieldsByLabels(anyCollection());
+		verify(metadataTemplateService, never()).readMetadataFieldByLabel(anyString());
+
+		MetadataImportProgress progress = controller.getMetadataImportProgress(response.getBody()
+				.getImportId())
+				.getBody();
+		assertTrue(progress.isFinished(), "Import is finished");
+		assertFalse(progress.isFailed(), "Import did not fail");
+		assertEquals(1, progress.getSaved(), "One row is saved");
+		assertTrue(progress.getMessage()
+				.startsWith("1 sample has been updated"), "Import message is set");
+	}
+
+	@Test
+	public void saveProjectSampleMetadataNewSampleTest() throws Exception {
+		Locale locale = new Locale("en");
+		String uploadId = uploadMetadata();
+		mockSave(locale);
+		Sample created = new Sample(SAMPLE_NAME);
+		created.setId(2L);
+		when(sampleService.getSamplesInProjectByName(eq(project), anyCollection())).thenReturn(List.of());
+		when(projectService.addSampleToProject(eq(project), any(Sample.class), eq(true))).thenReturn(
+				new ProjectSampleJoin(project, created, true));
+
+		controller.saveProjectSampleMetadata(locale, PROJECT_ID, uploadId, null);
+
+		assertTrue(getRow(uploadId).isSaved(), "New sample is saved");
+		verify(sampleService).mergeSampleMetadata(eq(project), argThat(m -> m.keySet()
+				.equals(Set.of(created))));
+		verify(sampleService, never()).mergeSampleMetadata(any(Sample.class), anySet());
+	}
+
+	@Test
+	public void saveProjectSampleMetadataExcludedTest() throws Exception {
+		Locale locale = new Locale("en");
+		String uploadId = uploadMetadata();
+		mockSave(locale);
+
+		controller.saveProjectSampleMetadata(locale, PROJECT_ID, uploadId, List.of(SAMPLE_NAME));
+
+		assertNull(getRow(uploadId).isSaved(), "Excluded sample is not saved");
+		verify(sampleService).mergeSampleMetadata(eq(project), argThat(Map::isEmpty));
 	}
 
 	@Test
-	public void saveProjectSampleMetadataTest() {
-		Sample sample = createSample();
-		List<String> sampleNames = List.of(sample.getSampleName());
+	public void saveProjectSampleMetadataBatchFailureTest() throws Exception {
 		Locale locale = new Locale("en");
-		SampleMetadataStorage stored = createSampleMetadataStorage();
-		when(session.getAttribute("pm-" + PROJECT_ID)).thenReturn(stored);
+		String uploadId = uploadMetadata();
+		mockSave(locale);
+		when(sampleService.mergeSampleMetadata(eq(project), anyMap())).thenThrow(new RuntimeException("batch"));
+		when(sampleService.mergeSampleMetadata(eq(sample), anySet())).thenThrow(new RuntimeException("row"));
+
+		ResponseEntity<MetadataImportProgress> response = controller.saveProjectSampleMetadata(locale, PROJECT_ID,
+				uploadId, null);
+
+		SampleMetadataStorageRow row = getRow(uploadId);
+		assertFalse(row.isSaved(), "Sample is not saved");
+		assertEquals("row", row.getError(), "Error for the sample is recorded");
+
+		MetadataImportProgress progress = controller.getMetadataImportProgress(response.getBody()
+				.getImportId())
+				.getBody();
+		assertTrue(progress.isFinished(), "Import is finished");
+		assertTrue(progress.isFailed(), "Import failed");
+	}
+
+	@Test
+	public void getMetadataImportProgressNotFoundTest() {
+		assertEquals(HttpStatus.NOT_FOUND, controller.getMetadataImportProgress(UUID.randomUUID())
+				.getStatusCode(), "Unknown import is not found");
+	}
+
+	private void mockSave(Locale locale) {
 		when(messageSource.getMessage("project.samples.table.sample-id", new Object[] {}, locale))
 				.thenReturn("Sample Id");
 		when(messageSource.getMessage("project.samples.table.id", new Object[] {}, locale)).thenReturn("ID");
@@ -148,27 +272,45 @@ public class ProjectSampleMetadataAjaxControllerTest {
 				.thenReturn("Coverage");
 		when(messageSource.getMessage("project.samples.table.project-id", new Object[] {}, locale))
 				.thenReturn("Project ID");
+		when(metadataTemplateService.saveMetadataFields(anyCollection())).thenAnswer(
+				i -> new ArrayList<MetadataTemplateField>(i.getArgument(0)));
+	}
 
-		ResponseEntity<AjaxResponse> response = controller.saveProjectSampleMetadata(locale, session, PROJECT_ID,
-				sampleNames);
-		stored = (SampleMetadataStorage) session.getAttribute("pm-" + PROJECT_ID);
+	@Test
+	public void clearProjectSampleMetadataTest() throws Exception {
+		String uploadId = uploadMetadata();
 
-		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
-		assertTrue(stored.getRow(sample.getSampleName(), SAMPLE_NAME_COLUMN).isSaved(), "Sample is saved");
+		controller.clearProjectSampleMetadata(PROJECT_ID);
+
+		assertEquals(HttpStatus.NOT_FOUND, controller.getProjectSampleMetadata(PROJECT_ID, uploadId, 1, 100)
+				.getStatusCode(), "Upload is removed");
 	}
 
 	@Test
-	public void clearProjectSampleMetadataTest() {
-		controller.clearProjectSampleMetadata(session, PROJECT_ID);
+	public void getProjectSampleMetadataTest() throws Exception {
+		String uploadId = uploadMetadata("header1,header2,header3\na1,a2,a3\nb1,b2,b3\nc1,c2,c3");
 
-		verify(session, times(1)).removeAttribute("pm-" + PROJECT_ID);
+		ResponseEntity<SampleMetadataStorage> response = controller.getProjectSampleMetadata(PROJECT_ID, uploadId,
+				2, 2);
+		SampleMetadataStorage page = response.getBody();
+
+		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
+		assertEquals(3, page.getTotal(), "Total rows are counted");
+		assertEquals(1, page.getRows()
+				.size(), "Only the rows on the page are sent");
+		assertEquals(2, page.getRows()
+				.get(0)
+				.getIndex(), "Last row is on the second page");
+		assertEquals("c2", page.getRows()
+				.get(0)
+				.getEntryValue("header2"), "Values are read for the row");
 	}
 
 	@Test
-	public void getProjectSampleMetadataTest() {
-		ResponseEntity<SampleMetadataStorage> response = controller.getProjectSampleMetadata(session, PROJECT_ID);
+	public void getProjectSampleMetadataOtherProjectTest() throws Exception {
+		String uploadId = uploadMetadata();
 
-		assertEquals(response.getStatusCode(), HttpStatus.OK, "Receive an 200 OK response");
-		verify(session, times(1)).getAttribute("pm-" + PROJECT_ID);
+		assertEquals(HttpStatus.NOT_FOUND, controller.getProjectSampleMetadata(2L, uploadId, 1, 100)
+				.getStatusCode(), "Upload to another project is not found");
 	}
 }
@@ -0,0 +1,181 @@
+package ca.corefacility.bioinformatics.irida.web.controller.test.unit.samples;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Principal;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.google.common.net.HttpHeaders;
+
+import ca.corefacility.bioinformatics.irida.exceptions.EntityNotFoundException;
+import ca.corefacility.bioinformatics.irida.model.sample.Sample;
+import ca.corefacility.bioinformatics.irida.model.sample.SampleSequencingObjectJoin;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFile;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFilePair;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequenceFileUploadSession;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SequencingObject;
+import ca.corefacility.bioinformatics.irida.model.sequenceFile.SingleEndSequenceFile;
+import ca.corefacility.bioinformatics.irida.service.SequenceFileUploadService;
+import ca.corefacility.bioinformatics.irida.service.SequencingObjectService;
+import ca.corefacility.bioinformatics.irida.service.SequencingRunService;
+import ca.corefacility.bioinformatics.irida.service.sample.SampleService;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile.SequenceFileUploadCompleteResource;
+import ca.corefacility.bioinformatics.irida.web.assembler.resource.sequencefile.SequenceFileUploadResource;
+import ca.corefacility.bioinformatics.irida.web.controller.api.samples.RESTSampleSequenceFileUploadsController;
+import ca.corefacility.bioinformatics.irida.web.controller.test.unit.TestDataFactory;
+
+/**
+ * Unit tests for {@link RESTSampleSequenceFileUploadsController}.
+ */
+public class RESTSampleSequenceFileUploadsControllerTest {
+	private static final String CONTENTS = "@read\nACGTACGTACGTACGTACGT\n+\n????????????????????\n";
+	private static final String SHA256 = DigestUtils.sha256Hex(CONTENTS);
+
+	private RESTSampleSequenceFileUploadsController controller;
+	private SampleService sampleService;
+	private SequencingObjectService sequencingObjectService;
+	private SequenceFileUploadService uploadService;
+	private Path baseDirectory;
+	private Principal principal;
+	private Sample sample;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		sampleService = mock(SampleService.class);
+		sequencingObjectService = mock(SequencingObjectService.class);
+		baseDirectory = Files.createTempDirectory(null);
+		uploadService = new SequenceFileUploadService(baseDirectory, 24, -1);
+		principal = new UsernamePasswordAuthenticationToken("uploader", null);
+
+		controller = new RESTSampleSequenceFileUploadsController(sampleService, mock(SequencingRunService.class),
+				sequencingObjectService, uploadService);
+
+		sample = TestDataFactory.constructSample();
+		when(sampleService.read(sample.getId())).thenReturn(sample);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(baseDirectory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testUploadSingleEndFile() throws IOException {
+		SingleEndSequenceFile so = TestDataFactory.constructSingleEndSequenceFile();
+		when(sequencingObjectService.createSequencingObjectInSample(any(SingleEndSequenceFile.class), eq(sample)))
+				.thenReturn(new SampleSequencingObjectJoin(sample, so));
+		when(sequencingObjectService.read(so.getId())).thenReturn(so);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		SequenceFileUploadSession session = controller.createUpload(sample.getId(),
+				new SequenceFileUploadResource("reads.fastq", CONTENTS.length(), SHA256), principal, response)
+				.getResource();
+		assertEquals(HttpStatus.CREATED.value(), response.getStatus(), "Upload should be created");
+		assertEquals("http://localhost/api/samples/" + sample.getId() + "/sequenceFiles/uploads/" + session.getId(),
+				response.getHeader(HttpHeaders.LOCATION), "Location should be the upload");
+
+		int half = CONTENTS.length() / 2;
+		putChunk(session, 0, CONTENTS.substring(0, half));
+		session = controller.readUpload(sample.getId(), session.getId(), principal).getResource();
+		assertEquals(half, session.getBytesReceived(), "First chunk should be received");
+
+		putChunk(session, half, CONTENTS.substring(half));
+
+		response = new MockHttpServletResponse();
+		SequenceFile sequenceFile = controller.completeUpload(sample.getId(), session.getId(), null, principal,
+				response).getResource();
+		assertEquals(HttpStatus.CREATED.value(), response.getStatus(), "File should be created");
+		assertEquals(so.getSequenceFile(), sequenceFile, "New file should be returned");
+
+		ArgumentCaptor<SingleEndSequenceFile> captor = ArgumentCaptor.forClass(SingleEndSequenceFile.class);
+		verify(sequencingObjectService).createSequencingObjectInSample(captor.capture(), eq(sample));
+		assertEquals(SHA256, captor.getValue().getSequenceFile().getUploadSha256(), "Checksum should be set");
+
+		String uploadId = session.getId();
+		assertThrows(EntityNotFoundException.class, () -> uploadService.getSession(uploadId, "uploader"),
+				"Upload should be removed once the file is created");
+	}
+
+	@Test
+	public void testUploadPair() throws IOException {
+		when(sequencingObjectService.createSequencingObjectInSample(any(SequenceFilePair.class), eq(sample)))
+				.thenAnswer(i -> {
+					SequenceFilePair pair = i.getArgument(0);
+					pair.setId(5L);
+					pair.getFiles().forEach(f -> f.setId(f.getFileName().contains("R1") ? 6L : 7L));
+					return new SampleSequencingObjectJoin(sample, pair);
+				});
+
+		SequenceFileUploadSession forward = startUpload("reads_R1.fastq");
+		SequenceFileUploadSession reverse = startUpload("reads_R2.fastq");
+		putChunk(forward, 0, CONTENTS);
+		putChunk(reverse, 0, CONTENTS);
+
+		SequenceFileUploadCompleteResource completion = new SequenceFileUploadCompleteResource();
+		completion.setFile1(forward.getId());
+		completion.setFile2(reverse.getId());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		SequencingObject created = controller.completePairUpload(sample.getId(), completion, principal, response)
+				.getResource();
+
+		assertEquals(HttpStatus.CREATED.value(), response.getStatus(), "Pair should be created");
+		assertEquals("http://localhost/api/samples/" + sample.getId() + "/pairs/5",
+				response.getHeader(HttpHeaders.LOCATION), "Location should be the new pair");
+		assertEquals("reads_R1.fastq",
+				((SequenceFilePair) created).getForwardSequenceFile().getFile().getFileName().toString(),
+				"Forward file should be the first upload");
+	}
+
+	@Test
+	public void testCompleteIncompleteUpload() throws IOException {
+		SequenceFileUploadSession session = startUpload("reads.fastq");
+		putChunk(session, 0, CONTENTS.substring(1));
+
+		assertThrows(IllegalArgumentException.class, () -> controller.completeUpload(sample.getId(), session.getId(),
+				null, principal, new MockHttpServletResponse()));
+		verify(sequencingObjectService, never()).createSequencingObjectInSample(any(), any());
+	}
+
+	@Test
+	public void testUploadForOtherSample() {
+		SequenceFileUploadSession session = startUpload("reads.fastq");
+
+		assertThrows(EntityNotFoundException.class,
+				() -> controller.readUpload(sample.getId() + 1, session.getId(), principal));
+	}
+
+	private SequenceFileUploadSession startUpload(String fileName) {
+		return controller.createUpload(sample.getId(),
+				new SequenceFileUploadResource(fileName, CONTENTS.length(), SHA256), principal,
+				new MockHttpServletResponse()).getResource();
+	}
+
+	private void putChunk(SequenceFileUploadSession session, long offset, String data) throws IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/");
+		request.setContent(data.getBytes(StandardCharsets.US_ASCII));
+		controller.writeUpload(sample.getId(), session.getId(), offset, principal, request);
+	}
+}
@@ -0,0 +1,161 @@
+package ca.corefacility.bioinformatics.irida.web.controller.test.unit.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import ca.corefacility.bioinformatics.irida.web.filter.HttpHeadFilter;
+import ca.corefacility.bioinformatics.irida.web.spring.view.RangedFileResponse;
+
+/**
+ * Unit tests for {@link RangedFileResponse}
+ */
+public class RangedFileResponseTest {
+	private static final String CONTENTS = "@read\nACGTACGTAC\n+\n??????????\n";
+	private static final String CONTENT_TYPE = "application/fastq";
+	private static final String ETAG = RangedFileResponse.etag("abc123", 1L);
+
+	private Path file;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		file = Files.createTempFile(null, ".fastq");
+		Files.write(file, CONTENTS.getBytes(StandardCharsets.US_ASCII));
+		request = new MockHttpServletRequest("GET", "/file");
+		response = new MockHttpServletResponse();
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testWholeFile() throws IOException {
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus(), "Whole file should be sent");
+		assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG), "ETag should be set");
+		assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES), "Ranges should be accepted");
+		assertEquals(String.valueOf(CONTENTS.length()), response.getHeader(HttpHeaders.CONTENT_LENGTH),
+				"Content length should be the file size");
+		assertEquals(CONTENTS, response.getContentAsString(), "Whole file should be written");
+	}
+
+	@Test
+	public void testNotModified() throws IOException {
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus(), "File should not be sent again");
+		assertEquals(0, response.getContentAsByteArray().length, "Nothing should be written");
+	}
+
+	@Test
+	public void testModified() throws IOException {
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, RangedFileResponse.etag("abc123", 0L));
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus(), "Changed file should be sent");
+		assertEquals(CONTENTS, response.getContentAsString(), "Whole file should be written");
+	}
+
+	@Test
+	public void testSingleRange() throws IOException {
+		request.addHeader(HttpHeaders.RANGE, "bytes=6-15");
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus(), "Range should be sent");
+		assertEquals("bytes 6-15/" + CONTENTS.length(), response.getHeader(HttpHeaders.CONTENT_RANGE),
+				"Content range should be set");
+		assertEquals("10", response.getHeader(HttpHeaders.CONTENT_LENGTH), "Content length should be the range");
+		assertEquals("ACGTACGTAC", response.getContentAsString(), "Only the range should be written");
+	}
+
+	@Test
+	public void testOpenEndedRange() throws IOException {
+		int start = CONTENTS.length() - 11;
+		request.addHeader(HttpHeaders.RANGE, "bytes=" + start + "-");
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus(), "Range should be sent");
+		assertEquals(CONTENTS.substring(start), response.getContentAsString(),
+				"The rest of the file should be written");
+	}
+
+	@Test
+	public void testMultipleRanges() throws IOException {
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-4,-11");
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus(), "Ranges should be sent");
+		assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="),
+				"Ranges should be sent as multipart");
+		String boundary = response.getContentType().substring(response.getContentType().indexOf('=') + 1);
+
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: " + CONTENT_TYPE + "\r\nContent-Range: bytes 0-4/"
+				+ CONTENTS.length() + "\r\n\r\n@read" + "\r\n--" + boundary + "\r\nContent-Type: " + CONTENT_TYPE
+				+ "\r\nContent-Range: bytes " + (CONTENTS.length() - 11) + "-" + (CONTENTS.length() - 1) + "/"
+				+ CONTENTS.length() + "\r\n\r\n??????????\n" + "\r\n--" + boundary + "--\r\n";
+		assertEquals(expected, response.getContentAsString(), "Both ranges should be written");
+	}
+
+	@Test
+	public void testUnsatisfiableRange() throws IOException {
+		request.addHeader(HttpHeaders.RANGE, "bytes=1000-2000");
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus(),
+				"Range past the end of the file can't be sent");
+		assertEquals("bytes */" + CONTENTS.length(), response.getHeader(HttpHeaders.CONTENT_RANGE),
+				"Content range should have the file size");
+	}
+
+	@Test
+	public void testIfRangeChanged() throws IOException {
+		request.addHeader(HttpHeaders.RANGE, "bytes=6-15");
+		request.addHeader(HttpHeaders.IF_RANGE, RangedFileResponse.etag("abc123", 0L));
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus(), "Changed file should be sent in full");
+		assertEquals(CONTENTS, response.getContentAsString(), "Whole file should be written");
+	}
+
+	@Test
+	public void testIfRangeUnchanged() throws IOException {
+		request.addHeader(HttpHeaders.RANGE, "bytes=6-15");
+		request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+		RangedFileResponse.write(request, response, file, CONTENT_TYPE, ETAG);
+
+		assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus(), "Range should be sent");
+		assertEquals("ACGTACGTAC", response.getContentAsString(), "Only the range should be written");
+	}
+
+	@Test
+	public void testHead() throws IOException, ServletException {
+		request.setMethod("HEAD");
+		new HttpHeadFilter().doFilter(request, response, (req, res) -> RangedFileResponse
+				.write((HttpServletRequest) req, (HttpServletResponse) res, file, CONTENT_TYPE, ETAG));
+
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus(), "Head request should succeed");
+		assertEquals(String.valueOf(CONTENTS.length()), response.getHeader(HttpHeaders.CONTENT_LENGTH),
+				"Content length should be the file size");
+		assertEquals(0, response.getContentAsByteArray().length, "Nothing should be written");
+	}
+}